@@ -0,0 +1,94 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.encog.neural.networks.BasicNetwork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.core.dtrain.dataset.FloatFlatNetwork;
+import ml.shifu.shifu.core.dtrain.nn.IndependentNNModel;
+
+/**
+ * Throughput of NN forward computing with 1000 inputs and 3 hidden layers, one operation is one record:
+ * {@link IndependentNNModel#compute(double[])} for scoring and {@link FloatFlatNetwork#compute(float[], double[])} for
+ * training.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class NNModelBenchmark {
+
+    private IndependentNNModel model;
+
+    private FloatFlatNetwork flatNetwork;
+
+    private double[][] records;
+
+    private float[][] floatRecords;
+
+    private double[] output;
+
+    private int index;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(SyntheticWorkloads.SEED);
+        List<ColumnConfig> columnConfigList = SyntheticWorkloads.columnConfigs(random);
+        BasicNetwork network = SyntheticWorkloads.network(columnConfigList.size(),
+                SyntheticWorkloads.DEFAULT_HIDDEN_NODES, random);
+        this.model = SyntheticWorkloads.nnModel(columnConfigList, network);
+        this.flatNetwork = (FloatFlatNetwork) network.getFlat();
+        this.output = new double[this.flatNetwork.getOutputCount()];
+
+        this.records = SyntheticWorkloads.normalizedRecords(columnConfigList.size(), 1024, random);
+        this.floatRecords = new float[this.records.length][columnConfigList.size()];
+        for(int r = 0; r < this.records.length; r++) {
+            for(int i = 0; i < this.records[r].length; i++) {
+                this.floatRecords[r][i] = (float) this.records[r][i];
+            }
+        }
+    }
+
+    @Benchmark
+    public double[] independentNNModelCompute() {
+        return this.model.compute(this.records[this.index++ & (this.records.length - 1)]);
+    }
+
+    @Benchmark
+    public double[] floatFlatNetworkCompute() {
+        this.flatNetwork.compute(this.floatRecords[this.index++ & (this.floatRecords.length - 1)], this.output);
+        return this.output;
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.container.obj.ModelNormalizeConf.NormType;
+import ml.shifu.shifu.core.Normalizer;
+import ml.shifu.shifu.util.BinUtils;
+
+/**
+ * Throughput of binning and normalization of one raw record with 1000 features (10% categorical), one operation is
+ * one record: {@link BinUtils#getBinIndex(List, Double)} and {@link BinUtils#getBinIndex(double[], double)} on all
+ * numerical features and {@link Normalizer#normalize(ColumnConfig, Object, Double, NormType)} on all features.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class NormalizationBenchmark {
+
+    @Param({ "ZSCALE", "WOE", "WOE_ZSCORE" })
+    public String normType;
+
+    private List<ColumnConfig> columnConfigList;
+
+    private NormType type;
+
+    private Double cutoff;
+
+    private String[][] records;
+
+    private Double[][] numericRecords;
+
+    private int index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(SyntheticWorkloads.SEED);
+        this.columnConfigList = SyntheticWorkloads.columnConfigs(random);
+        this.type = NormType.valueOf(this.normType);
+        this.cutoff = 6d;
+        this.records = SyntheticWorkloads.rawRecords(this.columnConfigList, 1024, random);
+        this.numericRecords = new Double[this.records.length][this.columnConfigList.size()];
+        for(int r = 0; r < this.records.length; r++) {
+            for(int i = 0; i < this.columnConfigList.size(); i++) {
+                if(this.columnConfigList.get(i).isNumerical()) {
+                    String value = this.records[r][i];
+                    this.numericRecords[r][i] = value.isEmpty() ? Double.NaN : Double.valueOf(value);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void getBinIndex(Blackhole blackhole) {
+        Double[] record = this.numericRecords[this.index++ & (this.numericRecords.length - 1)];
+        for(int i = 0; i < record.length; i++) {
+            if(record[i] != null) {
+                blackhole.consume(BinUtils.getBinIndex(this.columnConfigList.get(i).getBinBoundary(), record[i]));
+            }
+        }
+    }
+
+    @Benchmark
+    public void getBinIndexArray(Blackhole blackhole) {
+        Double[] record = this.numericRecords[this.index++ & (this.numericRecords.length - 1)];
+        for(int i = 0; i < record.length; i++) {
+            if(record[i] != null) {
+                blackhole.consume(BinUtils.getBinIndex(this.columnConfigList.get(i).getBinBoundaryArray(),
+                        record[i].doubleValue()));
+            }
+        }
+    }
+
+    @Benchmark
+    public void normalize(Blackhole blackhole) {
+        String[] record = this.records[this.index++ & (this.records.length - 1)];
+        for(int i = 0; i < record.length; i++) {
+            blackhole.consume(Normalizer.normalize(this.columnConfigList.get(i), record[i], this.cutoff, this.type));
+        }
+    }
+
+}
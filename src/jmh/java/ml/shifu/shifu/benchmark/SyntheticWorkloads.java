@@ -0,0 +1,313 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IOUtils;
+import org.encog.ml.BasicML;
+import org.encog.neural.networks.BasicNetwork;
+
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.container.obj.ColumnConfig.ColumnFlag;
+import ml.shifu.shifu.container.obj.ColumnType;
+import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.core.dtrain.CommonConstants;
+import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.dt.IndependentTreeModel;
+import ml.shifu.shifu.core.dtrain.dt.Node;
+import ml.shifu.shifu.core.dtrain.dt.Predict;
+import ml.shifu.shifu.core.dtrain.dt.Split;
+import ml.shifu.shifu.core.dtrain.dt.TreeNode;
+import ml.shifu.shifu.core.dtrain.nn.BinaryNNSerializer;
+import ml.shifu.shifu.core.dtrain.nn.IndependentNNModel;
+
+/**
+ * Generators of synthetic column stats, models and records for benchmarks. Sizes are like real production workloads
+ * (1000+ features, 500 trees GBT, 3 hidden layers NN) and all generators are deterministic with the given
+ * {@link Random} to make results comparable between releases.
+ */
+public final class SyntheticWorkloads {
+
+    /**
+     * Default # of features, in which {@link #DEFAULT_CATEGORICAL_RATIO} are categorical features.
+     */
+    public static final int DEFAULT_FEATURES = 1000;
+
+    public static final double DEFAULT_CATEGORICAL_RATIO = 0.1d;
+
+    public static final int DEFAULT_BINS = 10;
+
+    public static final int DEFAULT_CATEGORIES = 20;
+
+    public static final int DEFAULT_TREES = 500;
+
+    public static final int DEFAULT_TREE_DEPTH = 6;
+
+    public static final List<Integer> DEFAULT_HIDDEN_NODES = Collections.unmodifiableList(Arrays.asList(100, 50, 20));
+
+    public static final long SEED = 2019L;
+
+    private SyntheticWorkloads() {
+    }
+
+    /**
+     * Generate column configs of final selected features, the first (features * categoricalRatio) columns are
+     * categorical with categories binning, others are numerical with bin boundaries.
+     */
+    public static List<ColumnConfig> columnConfigs(int features, double categoricalRatio, int bins, int categories,
+            Random random) {
+        int categoricalFeatures = (int) (features * categoricalRatio);
+        List<ColumnConfig> columnConfigList = new ArrayList<ColumnConfig>(features);
+        for(int i = 0; i < features; i++) {
+            ColumnConfig config = new ColumnConfig();
+            config.setColumnNum(i);
+            config.setColumnName("f" + i);
+            config.setColumnFlag(ColumnFlag.Candidate);
+            config.setFinalSelect(true);
+
+            int binSize;
+            if(i < categoricalFeatures) {
+                config.setColumnType(ColumnType.C);
+                List<String> binCategory = new ArrayList<String>(categories);
+                for(int j = 0; j < categories; j++) {
+                    binCategory.add("c" + j);
+                }
+                config.setBinCategory(binCategory);
+                binSize = categories;
+            } else {
+                config.setColumnType(ColumnType.N);
+                List<Double> binBoundary = new ArrayList<Double>(bins);
+                binBoundary.add(Double.NEGATIVE_INFINITY);
+                double boundary = random.nextGaussian() * 10d;
+                for(int j = 1; j < bins; j++) {
+                    boundary += 0.1d + random.nextDouble();
+                    binBoundary.add(boundary);
+                }
+                config.setBinBoundary(binBoundary);
+                config.setMean(binBoundary.get(bins / 2));
+                config.setStdDev(1d + random.nextDouble() * 2d);
+                binSize = bins;
+            }
+
+            // one more bin for missing value
+            List<Integer> binCountNeg = new ArrayList<Integer>(binSize + 1);
+            List<Integer> binCountPos = new ArrayList<Integer>(binSize + 1);
+            List<Double> binPosRate = new ArrayList<Double>(binSize + 1);
+            List<Double> binCountWoe = new ArrayList<Double>(binSize + 1);
+            for(int j = 0; j <= binSize; j++) {
+                int neg = 100 + random.nextInt(1000), pos = 10 + random.nextInt(100);
+                binCountNeg.add(neg);
+                binCountPos.add(pos);
+                binPosRate.add(pos / (double) (neg + pos));
+                binCountWoe.add(Math.log((pos + 0.5d) / (neg + 0.5d)));
+            }
+            config.setBinCountNeg(binCountNeg);
+            config.setBinCountPos(binCountPos);
+            config.setBinPosCaseRate(binPosRate);
+            config.getColumnBinning().setBinCountWoe(binCountWoe);
+            config.getColumnBinning().setBinWeightedWoe(new ArrayList<Double>(binCountWoe));
+            if(config.isCategorical()) {
+                // categorical mean and stddev are computed on pos rates
+                config.setMean(0.1d);
+                config.setStdDev(0.05d);
+            }
+            columnConfigList.add(config);
+        }
+        return columnConfigList;
+    }
+
+    public static List<ColumnConfig> columnConfigs(Random random) {
+        return columnConfigs(DEFAULT_FEATURES, DEFAULT_CATEGORICAL_RATIO, DEFAULT_BINS, DEFAULT_CATEGORIES, random);
+    }
+
+    /**
+     * Generate raw text values of columns, about 1% values are missing (empty).
+     */
+    public static String[][] rawRecords(List<ColumnConfig> columnConfigList, int records, Random random) {
+        String[][] data = new String[records][columnConfigList.size()];
+        for(int r = 0; r < records; r++) {
+            for(int i = 0; i < columnConfigList.size(); i++) {
+                ColumnConfig config = columnConfigList.get(i);
+                if(random.nextInt(100) == 0) {
+                    data[r][i] = "";
+                } else if(config.isCategorical()) {
+                    data[r][i] = config.getBinCategory().get(random.nextInt(config.getBinCategory().size()));
+                } else {
+                    data[r][i] = Double.toString(config.getMean() + random.nextGaussian() * config.getStdDev());
+                }
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Generate records for {@link IndependentTreeModel#compute(double[])}, numerical value is raw value and categorical
+     * value is category index.
+     */
+    public static double[][] treeRecords(List<ColumnConfig> columnConfigList, int records, Random random) {
+        double[][] data = new double[records][columnConfigList.size()];
+        for(int r = 0; r < records; r++) {
+            for(int i = 0; i < columnConfigList.size(); i++) {
+                ColumnConfig config = columnConfigList.get(i);
+                if(config.isCategorical()) {
+                    data[r][i] = random.nextInt(config.getBinCategory().size());
+                } else {
+                    data[r][i] = config.getMean() + random.nextGaussian() * config.getStdDev();
+                }
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Generate normalized records for NN models.
+     */
+    public static double[][] normalizedRecords(int inputs, int records, Random random) {
+        double[][] data = new double[records][inputs];
+        for(int r = 0; r < records; r++) {
+            for(int i = 0; i < inputs; i++) {
+                data[r][i] = random.nextGaussian();
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Generate GBT regression model with full binary trees in depth, split feature of each node is random, numerical
+     * threshold is one of bin boundaries and categorical split has random half of categories at left. Depth is the
+     * same as 'MaxDepth' in train params, nodes at such level are leaves.
+     */
+    public static IndependentTreeModel gbtModel(List<ColumnConfig> columnConfigList, int trees, int depth,
+            Random random) {
+        Map<Integer, Double> numericalMeanMapping = new HashMap<Integer, Double>();
+        Map<Integer, String> numNameMapping = new HashMap<Integer, String>();
+        Map<Integer, List<String>> categoricalColumnNameNames = new HashMap<Integer, List<String>>();
+        Map<Integer, Map<String, Integer>> columnCategoryIndexMapping = new HashMap<Integer, Map<String, Integer>>();
+        Map<Integer, Integer> columnNumIndexMapping = new HashMap<Integer, Integer>();
+        for(int i = 0; i < columnConfigList.size(); i++) {
+            ColumnConfig config = columnConfigList.get(i);
+            numNameMapping.put(config.getColumnNum(), config.getColumnName());
+            columnNumIndexMapping.put(config.getColumnNum(), i);
+            if(config.isCategorical()) {
+                categoricalColumnNameNames.put(config.getColumnNum(), config.getBinCategory());
+                Map<String, Integer> categoryIndexes = new HashMap<String, Integer>();
+                for(int j = 0; j < config.getBinCategory().size(); j++) {
+                    categoryIndexes.put(config.getBinCategory().get(j), j);
+                }
+                columnCategoryIndexMapping.put(config.getColumnNum(), categoryIndexes);
+            } else {
+                numericalMeanMapping.put(config.getColumnNum(), config.getMean());
+            }
+        }
+
+        List<TreeNode> treeList = new ArrayList<TreeNode>(trees);
+        List<Double> weightList = new ArrayList<Double>(trees);
+        for(int i = 0; i < trees; i++) {
+            treeList.add(new TreeNode(i, buildNode(Node.ROOT_INDEX, depth, columnConfigList, random), 0.05d));
+            weightList.add(i == 0 ? 1d : 0.05d);
+        }
+        List<List<TreeNode>> bagTrees = new ArrayList<List<TreeNode>>();
+        bagTrees.add(treeList);
+        List<List<Double>> bagWeights = new ArrayList<List<Double>>();
+        bagWeights.add(weightList);
+        return new IndependentTreeModel(numericalMeanMapping, numNameMapping, categoricalColumnNameNames,
+                columnCategoryIndexMapping, columnNumIndexMapping, false, bagTrees, bagWeights, true, false, true,
+                "squared", "GBT", columnConfigList.size(), CommonConstants.TREE_FORMAT_VERSION);
+    }
+
+    public static IndependentTreeModel gbtModel(List<ColumnConfig> columnConfigList, Random random) {
+        return gbtModel(columnConfigList, DEFAULT_TREES, DEFAULT_TREE_DEPTH, random);
+    }
+
+    private static Node buildNode(int id, int depth, List<ColumnConfig> columnConfigList, Random random) {
+        if(Node.indexToLevel(id) >= depth) {
+            return new Node(id, new Predict(random.nextGaussian() * 0.1d), 0d, true);
+        }
+        ColumnConfig config = columnConfigList.get(random.nextInt(columnConfigList.size()));
+        Split split;
+        if(config.isCategorical()) {
+            Set<Short> leftCategories = new HashSet<Short>();
+            for(short j = 0; j < config.getBinCategory().size(); j++) {
+                if(random.nextBoolean()) {
+                    leftCategories.add(j);
+                }
+            }
+            split = new Split(config.getColumnNum(), Split.CATEGORICAL, 0d, true, leftCategories);
+        } else {
+            List<Double> binBoundary = config.getBinBoundary();
+            split = new Split(config.getColumnNum(), Split.CONTINUOUS,
+                    binBoundary.get(1 + random.nextInt(binBoundary.size() - 1)), true, null);
+        }
+        Node node = new Node(id);
+        node.setSplit(split);
+        node.setLeft(buildNode(Node.leftIndex(id), depth, columnConfigList, random));
+        node.setRight(buildNode(Node.rightIndex(id), depth, columnConfigList, random));
+        return node;
+    }
+
+    /**
+     * Generate NN network with one sigmoid output and tanh hidden layers, weights are uniform in [-0.1, 0.1).
+     */
+    public static BasicNetwork network(int inputs, List<Integer> hiddenNodes, Random random) {
+        List<String> actFunc = new ArrayList<String>(hiddenNodes.size());
+        for(int i = 0; i < hiddenNodes.size(); i++) {
+            actFunc.add("tanh");
+        }
+        BasicNetwork network = DTrainUtils.generateNetwork(inputs, 1, hiddenNodes.size(), actFunc, hiddenNodes,
+                false, 0d, DTrainUtils.WGT_INIT_DEFAULT, false, "sigmoid");
+        double[] weights = network.getFlat().getWeights();
+        for(int i = 0; i < weights.length; i++) {
+            weights[i] = (random.nextDouble() - 0.5d) * 0.2d;
+        }
+        return network;
+    }
+
+    /**
+     * Save network in binary NN model format with given column configs and load it as {@link IndependentNNModel}.
+     */
+    public static IndependentNNModel nnModel(List<ColumnConfig> columnConfigList, BasicNetwork network)
+            throws IOException {
+        File file = File.createTempFile("shifu-benchmark-", ".nn");
+        InputStream input = null;
+        try {
+            BinaryNNSerializer.save(new ModelConfig(), columnConfigList,
+                    Collections.<BasicML> singletonList(network), FileSystem.getLocal(new Configuration()),
+                    new Path(file.getAbsolutePath()));
+            input = new FileInputStream(file);
+            return IndependentNNModel.loadFromStream(input);
+        } finally {
+            IOUtils.closeStream(input);
+            file.delete();
+        }
+    }
+
+}
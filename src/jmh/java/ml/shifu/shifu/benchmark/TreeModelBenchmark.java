@@ -0,0 +1,83 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.core.dtrain.dt.IndependentTreeModel;
+
+/**
+ * Throughput of {@link IndependentTreeModel#compute(double[])} on 500 trees GBT model with 1000 features, one
+ * operation is scoring one record.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TreeModelBenchmark {
+
+    @Param({ "500" })
+    public int trees;
+
+    @Param({ "6" })
+    public int depth;
+
+    /**
+     * If model is compiled into primitive arrays by {@link IndependentTreeModel#compile()}.
+     */
+    @Param({ "false", "true" })
+    public boolean compiled;
+
+    private IndependentTreeModel model;
+
+    private double[][] records;
+
+    private int index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(SyntheticWorkloads.SEED);
+        List<ColumnConfig> columnConfigList = SyntheticWorkloads.columnConfigs(random);
+        this.model = SyntheticWorkloads.gbtModel(columnConfigList, this.trees, this.depth, random);
+        if(this.compiled) {
+            this.model.compile();
+        }
+        this.records = SyntheticWorkloads.treeRecords(columnConfigList, 1024, random);
+    }
+
+    @Benchmark
+    public double[] compute() {
+        return this.model.compute(this.records[this.index++ & (this.records.length - 1)]);
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.dt;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ml.shifu.shifu.benchmark.SyntheticWorkloads;
+
+/**
+ * Throughput of {@link Impurity#featureUpdate(double[], int, float, float, float)} which builds histograms in
+ * {@link DTWorker}, one operation is updating histograms of all 1000 features by one record. It is in the same package
+ * as impurity implementations as they are package private.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ImpurityBenchmark {
+
+    @Param({ "variance", "friedmanmse", "entropy", "gini" })
+    public String impurityName;
+
+    private Impurity impurity;
+
+    private double[][] featureStatistics;
+
+    private short[][] bins;
+
+    private float[] labels;
+
+    private float[] weights;
+
+    private int index;
+
+    @Setup
+    public void setup() {
+        if("variance".equals(this.impurityName)) {
+            this.impurity = new Variance(1, 0d, "sort");
+        } else if("friedmanmse".equals(this.impurityName)) {
+            this.impurity = new FriedmanMSE(1, 0d, "sort");
+        } else if("entropy".equals(this.impurityName)) {
+            this.impurity = new Entropy(2, 1, 0d, "sort");
+        } else {
+            this.impurity = new Gini(2, 1, 0d, "sort");
+        }
+
+        Random random = new Random(SyntheticWorkloads.SEED);
+        int features = SyntheticWorkloads.DEFAULT_FEATURES, records = 1024;
+        // one more bin for missing value
+        int binSize = SyntheticWorkloads.DEFAULT_CATEGORIES + 1;
+        this.featureStatistics = new double[features][binSize * this.impurity.getStatsSize()];
+        this.bins = new short[records][features];
+        this.labels = new float[records];
+        this.weights = new float[records];
+        for(int r = 0; r < records; r++) {
+            for(int i = 0; i < features; i++) {
+                this.bins[r][i] = (short) random.nextInt(binSize);
+            }
+            this.labels[r] = random.nextInt(2);
+            this.weights[r] = random.nextInt(3);
+        }
+    }
+
+    @Benchmark
+    public double[][] featureUpdate() {
+        int r = this.index++ & (this.bins.length - 1);
+        short[] record = this.bins[r];
+        float label = this.labels[r], weight = this.weights[r];
+        for(int i = 0; i < record.length; i++) {
+            this.impurity.featureUpdate(this.featureStatistics[i], record[i], label, 1f, weight);
+        }
+        return this.featureStatistics;
+    }
+
+}
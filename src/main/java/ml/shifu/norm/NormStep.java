@@ -90,6 +90,8 @@ public class NormStep extends Step<List<ColumnConfig>> {
                     LOG.info("Post train is disabled by 'postTrainOn=false'.");
                     normPigPath = pathFinder.getScriptPath("scripts/NormalizeWithParquet.pig");
                 }
+            } else if(modelConfig.getNormalize().getIsBinary()) {
+                normPigPath = pathFinder.getScriptPath("scripts/NormalizeWithBinary.pig");
             } else {
                 if(modelConfig.getBasic().getPostTrainOn()) {
                     // this condition is for comment, no matter post train enabled or not, only norm results will be
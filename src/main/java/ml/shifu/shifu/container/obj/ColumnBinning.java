@@ -26,6 +26,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import ml.shifu.shifu.util.Constants;
+
 /**
  * ColumnBinning class represents the information of BINNING. Usually the BINNING information will be used to calculate
  * KS/IV, or reason code in evaluation.
@@ -50,10 +52,18 @@ public class ColumnBinning {
     private List<String> binCategory;
 
     /**
-     * A map version of {@link #binCategory},
+     * A map version of {@link #binCategory}, merged category like 'cn@^us' is flattened to be keys of each value. Lazily
+     * built by {@link #getBinCateMap()} and reset once {@link #binCategory} is set.
+     */
+    @JsonIgnore
+    private volatile Map<String, Integer> binCateMap;
+
+    /**
+     * A primitive array version of {@link #binBoundary} for allocation free binary search. Lazily built by
+     * {@link #getBinBoundaryArray()} and reset once {@link #binBoundary} is set.
      */
     @JsonIgnore
-    private Map<String, Integer> binCateMap;
+    private volatile double[] binBoundaryArray;
 
     /**
      * Count of negative records in bins
@@ -109,6 +119,24 @@ public class ColumnBinning {
 
     public void setBinBoundary(List<Double> binBoundary) {
         this.binBoundary = binBoundary;
+        this.binBoundaryArray = null;
+    }
+
+    /**
+     * @return primitive array of {@link #getBinBoundary()}, null if bin boundary is null. The array is cached and
+     *         shared, it should not be changed by callers.
+     */
+    @JsonIgnore
+    public double[] getBinBoundaryArray() {
+        double[] boundaryArray = this.binBoundaryArray;
+        if(boundaryArray == null && this.binBoundary != null) {
+            boundaryArray = new double[this.binBoundary.size()];
+            for(int i = 0; i < boundaryArray.length; i++) {
+                boundaryArray[i] = this.binBoundary.get(i);
+            }
+            this.binBoundaryArray = boundaryArray;
+        }
+        return boundaryArray;
     }
 
     public List<String> getBinCategory() {
@@ -117,6 +145,7 @@ public class ColumnBinning {
 
     public void setBinCategory(List<String> binCategory) {
         this.binCategory = binCategory;
+        this.binCateMap = null;
     }
 
     public List<Integer> getBinCountNeg() {
@@ -197,9 +226,48 @@ public class ColumnBinning {
         this.binWeightedWoe = binWeightedWoe;
     }
 
+    /**
+     * @return category to bin index map, lazily built from {@link #getBinCategory()} if not set, null if bin category
+     *         is null
+     */
     @JsonIgnore
     public Map<String, Integer> getBinCateMap() {
-        return binCateMap;
+        Map<String, Integer> cateMap = this.binCateMap;
+        if(cateMap == null && this.binCategory != null) {
+            cateMap = buildBinCateMap(this.binCategory);
+            this.binCateMap = cateMap;
+        }
+        return cateMap;
+    }
+
+    /**
+     * Build category to bin index map, merged category like 'cn@^us' is flattened and each value is mapped to index of
+     * such merged category. The same value in different categories is mapped to the first one, the same as a linear
+     * scan of bin categories.
+     * 
+     * @param categories
+     *            the bin categories
+     * @return category to bin index map
+     */
+    public static Map<String, Integer> buildBinCateMap(List<String> categories) {
+        String delimiter = Constants.CATEGORICAL_GROUP_VAL_DELIMITER;
+        Map<String, Integer> categoryIndexMapping = new HashMap<String, Integer>();
+        for(int i = 0; i < categories.size(); i++) {
+            String category = categories.get(i);
+            if(category.contains(delimiter)) {
+                int begin = 0, end;
+                while((end = category.indexOf(delimiter, begin)) >= 0) {
+                    categoryIndexMapping.putIfAbsent(category.substring(begin, end), i);
+                    begin = end + delimiter.length();
+                }
+                categoryIndexMapping.putIfAbsent(category.substring(begin), i);
+                // merged category itself can also be looked up
+                categoryIndexMapping.putIfAbsent(category, i);
+            } else {
+                categoryIndexMapping.putIfAbsent(category, i);
+            }
+        }
+        return categoryIndexMapping;
     }
 
     @JsonIgnore
@@ -323,6 +391,7 @@ public class ColumnBinning {
      */
     public void read(DataInputStream input) throws IOException {
         length = input.readInt();
+        binBoundaryArray = null;
 
         int size = input.readInt();
         binBoundary = new ArrayList<Double>();
@@ -337,9 +406,14 @@ public class ColumnBinning {
         }
 
         size = input.readInt();
-        binCateMap = new HashMap<String, Integer>();
-        for (int i = 0; i < size; i++) {
-            binCateMap.put(input.readUTF(), input.readInt());
+        // empty map is written if it is not built, leave it null to be lazily built from categories
+        binCateMap = null;
+        if (size > 0) {
+            Map<String, Integer> cateMap = new HashMap<String, Integer>();
+            for (int i = 0; i < size; i++) {
+                cateMap.put(input.readUTF(), input.readInt());
+            }
+            binCateMap = cateMap;
         }
 
         size = input.readInt();
@@ -254,6 +254,14 @@ public class ColumnConfig {
         return columnBinning.getBinBoundary();
     }
 
+    /**
+     * @return cached primitive array of {@link #getBinBoundary()}, see {@link ColumnBinning#getBinBoundaryArray()}
+     */
+    @JsonIgnore
+    public double[] getBinBoundaryArray() {
+        return columnBinning.getBinBoundaryArray();
+    }
+
     @JsonIgnore
     public List<String> getBinCategory() {
         return columnBinning.getBinCategory();
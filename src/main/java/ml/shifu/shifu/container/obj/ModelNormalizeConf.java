@@ -98,6 +98,11 @@ public class ModelNormalizeConf {
      */
     private Boolean isParquet = Boolean.FALSE;
 
+    /**
+     * If norm output is Shifu binary format which is read by NN, LR, WDL and MTL training without text parsing.
+     */
+    private Boolean isBinary = Boolean.FALSE;
+
     public Double getStdDevCutOff() {
         return stdDevCutOff;
     }
@@ -154,6 +159,23 @@ public class ModelNormalizeConf {
         this.isParquet = isParquet;
     }
 
+    /**
+     * @return the isBinary
+     */
+    @JsonIgnore
+    public Boolean getIsBinary() {
+        return isBinary;
+    }
+
+    /**
+     * @param isBinary
+     *            the isBinary to set
+     */
+    @JsonProperty
+    public void setIsBinary(Boolean isBinary) {
+        this.isBinary = isBinary;
+    }
+
     @Override
     public ModelNormalizeConf clone() {
         ModelNormalizeConf other = new ModelNormalizeConf();
@@ -162,6 +184,7 @@ public class ModelNormalizeConf {
         other.setSampleNegOnly(sampleNegOnly);
         other.setStdDevCutOff(stdDevCutOff);
         other.setIsParquet(isParquet);
+        other.setIsBinary(isBinary);
         // other.setCorrelation(correlation);
         return other;
     }
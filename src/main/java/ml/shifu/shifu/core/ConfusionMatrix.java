@@ -50,6 +50,7 @@ import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.dtrain.CommonConstants;
 import ml.shifu.shifu.core.eval.AreaUnderCurve;
 import ml.shifu.shifu.core.eval.GainChart;
+import ml.shifu.shifu.core.eval.ScoreHistogram;
 import ml.shifu.shifu.exception.ShifuErrorCode;
 import ml.shifu.shifu.exception.ShifuException;
 import ml.shifu.shifu.fs.PathFinder;
@@ -330,30 +331,12 @@ public class ConfusionMatrix {
         boolean hasWeight = StringUtils.isNotBlank(evalConfig.getDataSet().getWeightColumnName());
         boolean isDir = ShifuFileUtils.isDir(pathFinder.getEvalScorePath(evalConfig, sourceType), sourceType);
 
-        List<PerformanceObject> FPRList = new ArrayList<PerformanceObject>(numBucket + 1);
-        List<PerformanceObject> catchRateList = new ArrayList<PerformanceObject>(numBucket + 1);
-        List<PerformanceObject> gainList = new ArrayList<PerformanceObject>(numBucket + 1);
-        List<PerformanceObject> modelScoreList = new ArrayList<PerformanceObject>(numBucket + 1);
-        List<PerformanceObject> FPRWeightList = new ArrayList<PerformanceObject>(numBucket + 1);
-        List<PerformanceObject> catchRateWeightList = new ArrayList<PerformanceObject>(numBucket + 1);
-        List<PerformanceObject> gainWeightList = new ArrayList<PerformanceObject>(numBucket + 1);
-
-        double binScore = (maxScore - minScore) * 1d / numBucket, binCapacity = 1.0 / numBucket, scoreBinCount = 0,
-                scoreBinWeigthedCount = 0;
-        int fpBin = 1, tpBin = 1, gainBin = 1, fpWeightBin = 1, tpWeightBin = 1, gainWeightBin = 1, modelScoreBin = 1;
         long index = 0, cnt = 0, invalidTargetCnt = 0, invalidWgtCnt = 0;
 
         ConfusionMatrixObject prevCmo = buildInitalCmo(pigPosTags, pigNegTags, pigPosWeightTags, pigNegWeightTags,
                 maxScore);
-        PerformanceObject po = buildFirstPO(prevCmo);
-
-        FPRList.add(po);
-        catchRateList.add(po);
-        gainList.add(po);
-        FPRWeightList.add(po);
-        catchRateWeightList.add(po);
-        gainWeightList.add(po);
-        modelScoreList.add(po);
+        PerformanceBins bins = new PerformanceBins(numBucket, maxScore, minScore, pigPosTags + pigNegTags,
+                buildFirstPO(prevCmo));
 
         boolean isGBTScoreHalfCutoffStreategy = isGBTScoreHalfCutoffStreategy();
         boolean isGBTScoreMaxMinScaleStreategy = isGBTScoreMaxMinScaleStreategy();
@@ -406,9 +389,6 @@ public class ConfusionMatrix {
                     continue;
                 }
 
-                scoreBinCount += 1;
-                scoreBinWeigthedCount += weight;
-
                 ConfusionMatrixObject cmo = new ConfusionMatrixObject(prevCmo);
                 if(posTags.contains(tag)) {
                     // Positive Instance
@@ -439,80 +419,130 @@ public class ConfusionMatrix {
                 }
 
                 cmo.setScore(Double.parseDouble(SCORE_FORMAT.format(score)));
+                bins.add(cmo, score, index + 1, 1d, weight);
 
-                ConfusionMatrixObject object = cmo;
-                po = PerformanceEvaluator.setPerformanceObject(object);
-                if(po.fpr >= fpBin * binCapacity) {
-                    po.binNum = fpBin++;
-                    FPRList.add(po);
-                }
+                index += 1;
+                prevCmo = cmo;
+            }
+            scanner.close();
+        }
+        LOG.info("Totally loading {} records with invalid target records {} and invalid weight records {} in eval {}.",
+                cnt, invalidTargetCnt, invalidWgtCnt, evalConfig.getName());
 
-                if(po.recall >= tpBin * binCapacity) {
-                    po.binNum = tpBin++;
-                    catchRateList.add(po);
-                }
+        PerformanceResult result = bins.buildPerfResult();
+        logAndWritePerfResult(result, evalPerformancePath, isPrint, isGenerateChart, hasWeight);
 
-                // prevent 99%
-                double validRecordCnt = (double) (index + 1);
-                if(validRecordCnt / (pigPosTags + pigNegTags) >= gainBin * binCapacity) {
-                    po.binNum = gainBin++;
-                    gainList.add(po);
-                }
+        if(cnt == 0) {
+            LOG.error("No score read, the EvalScore did not genernate or is null file");
+            throw new ShifuException(ShifuErrorCode.ERROR_EVALSCORE);
+        }
+        return result;
+    }
 
-                if(po.weightedFpr >= fpWeightBin * binCapacity) {
-                    po.binNum = fpWeightBin++;
-                    FPRWeightList.add(po);
+    /**
+     * Compute bucketing performance from score histogram built by distributed eval instead of scanning all eval scores
+     * sorted by score. Buckets are scanned from the highest score and records in one bucket are taken as the same score
+     * which is the lowest score of the bucket.
+     * 
+     * @param histogramPath
+     *            the path of non-empty histogram buckets output by eval
+     * @param histogramBuckets
+     *            number of buckets of the histogram
+     * @param evalPerformancePath
+     *            the path to write performance result
+     * @param isPrint
+     *            if log performance result
+     * @param isGenerateChart
+     *            if generate gain chart and other performance files
+     * @return performance result
+     * @throws IOException
+     *             any io exception in reading histogram
+     */
+    public PerformanceResult computeConfusionMatrixAndPerformanceFromHistogram(String histogramPath,
+            int histogramBuckets, String evalPerformancePath, boolean isPrint, boolean isGenerateChart)
+            throws IOException {
+        ScoreHistogram histogram = new ScoreHistogram(histogramBuckets, scoreScale);
+        SourceType sourceType = evalConfig.getDataSet().getSource();
+        List<Scanner> scanners = ShifuFileUtils.getDataScanners(histogramPath, sourceType);
+        Splitter splitter = Splitter.on(delimiter).trimResults();
+        for(Scanner scanner: scanners) {
+            while(scanner.hasNext()) {
+                String line = scanner.nextLine();
+                if(StringUtils.isBlank(line)) {
+                    continue;
                 }
+                String[] fields = CommonUtils.readIterableToArray(splitter.split(line));
+                histogram.add(Integer.parseInt(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                        Double.parseDouble(fields[3]), Double.parseDouble(fields[4]));
+            }
+            scanner.close();
+        }
 
-                if(po.weightedRecall >= tpWeightBin * binCapacity) {
-                    po.binNum = tpWeightBin++;
-                    catchRateWeightList.add(po);
-                }
+        long posCount = histogram.getPosCount(), negCount = histogram.getNegCount();
+        LOG.info("Loaded score histogram with {} positive records and {} negative records in eval {}.", posCount,
+                negCount, evalConfig.getName());
+        if(posCount + negCount == 0L) {
+            LOG.error("No score read, the EvalScore did not genernate or is null file");
+            throw new ShifuException(ShifuErrorCode.ERROR_EVALSCORE);
+        }
 
-                if((object.getWeightedTp() + object.getWeightedFp()) / object.getWeightedTotal() >= gainWeightBin
-                        * binCapacity) {
-                    po.binNum = gainWeightBin++;
-                    gainWeightList.add(po);
-                }
+        double maxScore = scoreScale;
+        ConfusionMatrixObject prevCmo = buildInitalCmo(posCount, negCount, histogram.getPosWeight(),
+                histogram.getNegWeight(), maxScore);
+        PerformanceBins bins = new PerformanceBins(evalConfig.getPerformanceBucketNum(), maxScore, 0d,
+                posCount + negCount, buildFirstPO(prevCmo));
 
-                if((maxScore - (modelScoreBin * binScore)) >= score) {
-                    po.binNum = modelScoreBin++;
-                    po.scoreCount = scoreBinCount;
-                    po.scoreWgtCount = scoreBinWeigthedCount;
-                    // System.out.println("score count is " + scoreBinCount);
-                    // reset to 0 for next bin score cnt stats
-                    scoreBinCount = scoreBinWeigthedCount = 0;
-                    modelScoreList.add(po);
-                }
-                index += 1;
-                prevCmo = cmo;
+        long index = 0;
+        for(int i = histogram.getBuckets() - 1; i >= 0; i--) {
+            if(histogram.isEmpty(i)) {
+                continue;
             }
-            scanner.close();
+            long pos = histogram.getPosCount(i), neg = histogram.getNegCount(i);
+            double posWeight = histogram.getPosWeight(i), negWeight = histogram.getNegWeight(i);
+
+            ConfusionMatrixObject cmo = new ConfusionMatrixObject(prevCmo);
+            cmo.setTp(cmo.getTp() + pos);
+            cmo.setFn(cmo.getFn() - pos);
+            cmo.setWeightedTp(cmo.getWeightedTp() + posWeight);
+            cmo.setWeightedFn(cmo.getWeightedFn() - posWeight);
+            cmo.setFp(cmo.getFp() + neg);
+            cmo.setTn(cmo.getTn() - neg);
+            cmo.setWeightedFp(cmo.getWeightedFp() + negWeight);
+            cmo.setWeightedTn(cmo.getWeightedTn() - negWeight);
+
+            double score = histogram.getLowestScore(i);
+            cmo.setScore(Double.parseDouble(SCORE_FORMAT.format(score)));
+            index += pos + neg;
+            bins.add(cmo, score, index, pos + neg, posWeight + negWeight);
+            prevCmo = cmo;
         }
-        LOG.info("Totally loading {} records with invalid target records {} and invalid weight records {} in eval {}.",
-                cnt, invalidTargetCnt, invalidWgtCnt, evalConfig.getName());
 
-        PerformanceResult result = buildPerfResult(FPRList, catchRateList, gainList, modelScoreList, FPRWeightList,
-                catchRateWeightList, gainWeightList);
+        boolean hasWeight = StringUtils.isNotBlank(evalConfig.getDataSet().getWeightColumnName());
+        PerformanceResult result = bins.buildPerfResult();
+        logAndWritePerfResult(result, evalPerformancePath, isPrint, isGenerateChart, hasWeight);
+        return result;
+    }
 
+    private void logAndWritePerfResult(PerformanceResult result, String evalPerformancePath, boolean isPrint,
+            boolean isGenerateChart, boolean hasWeight) throws IOException {
         synchronized(this.lock) {
             if(isPrint) {
-                PerformanceEvaluator.logResult(FPRList, "Bucketing False Positive Rate");
+                PerformanceEvaluator.logResult(result.roc, "Bucketing False Positive Rate");
 
                 if(hasWeight) {
-                    PerformanceEvaluator.logResult(FPRWeightList, "Bucketing Weighted False Positive Rate");
+                    PerformanceEvaluator.logResult(result.weightedRoc, "Bucketing Weighted False Positive Rate");
                 }
 
-                PerformanceEvaluator.logResult(catchRateList, "Bucketing Catch Rate");
+                PerformanceEvaluator.logResult(result.pr, "Bucketing Catch Rate");
 
                 if(hasWeight) {
-                    PerformanceEvaluator.logResult(catchRateWeightList, "Bucketing Weighted Catch Rate");
+                    PerformanceEvaluator.logResult(result.weightedPr, "Bucketing Weighted Catch Rate");
                 }
 
-                PerformanceEvaluator.logResult(gainList, "Bucketing Action Rate");
+                PerformanceEvaluator.logResult(result.gains, "Bucketing Action Rate");
 
                 if(hasWeight) {
-                    PerformanceEvaluator.logResult(gainWeightList, "Bucketing Weighted Action Rate");
+                    PerformanceEvaluator.logResult(result.weightedGains, "Bucketing Weighted Action Rate");
                 }
 
                 PerformanceEvaluator.logAucResult(result, hasWeight);
@@ -524,12 +554,6 @@ public class ConfusionMatrix {
                 generateChartAndJsonPerfFiles(hasWeight, result);
             }
         }
-
-        if(cnt == 0) {
-            LOG.error("No score read, the EvalScore did not genernate or is null file");
-            throw new ShifuException(ShifuErrorCode.ERROR_EVALSCORE);
-        }
-        return result;
     }
 
     private void writePerResult2File(String evalPerformancePath, PerformanceResult result) {
@@ -544,7 +568,7 @@ public class ConfusionMatrix {
         }
     }
 
-    private PerformanceResult buildPerfResult(List<PerformanceObject> FPRList, List<PerformanceObject> catchRateList,
+    private static PerformanceResult buildPerfResult(List<PerformanceObject> FPRList, List<PerformanceObject> catchRateList,
             List<PerformanceObject> gainList, List<PerformanceObject> modelScoreList,
             List<PerformanceObject> FPRWeightList, List<PerformanceObject> catchRateWeightList,
             List<PerformanceObject> gainWeightList) {
@@ -985,4 +1009,122 @@ public class ConfusionMatrix {
 
         confMatWriter.close();
     }
+
+    /**
+     * Bucketing performance lists which are built by confusion matrix objects of score thresholds from the highest
+     * score to the lowest score.
+     */
+    static class PerformanceBins {
+
+        private final List<PerformanceObject> FPRList;
+        private final List<PerformanceObject> catchRateList;
+        private final List<PerformanceObject> gainList;
+        private final List<PerformanceObject> modelScoreList;
+        private final List<PerformanceObject> FPRWeightList;
+        private final List<PerformanceObject> catchRateWeightList;
+        private final List<PerformanceObject> gainWeightList;
+
+        private final int numBucket;
+        private final double maxScore;
+        private final double binScore;
+        private final long totalCount;
+
+        private double scoreBinCount = 0, scoreBinWeigthedCount = 0;
+        private int fpBin = 1, tpBin = 1, gainBin = 1, fpWeightBin = 1, tpWeightBin = 1, gainWeightBin = 1,
+                modelScoreBin = 1;
+
+        PerformanceBins(int numBucket, double maxScore, double minScore, long totalCount, PerformanceObject firstPO) {
+            this.FPRList = new ArrayList<PerformanceObject>(numBucket + 1);
+            this.catchRateList = new ArrayList<PerformanceObject>(numBucket + 1);
+            this.gainList = new ArrayList<PerformanceObject>(numBucket + 1);
+            this.modelScoreList = new ArrayList<PerformanceObject>(numBucket + 1);
+            this.FPRWeightList = new ArrayList<PerformanceObject>(numBucket + 1);
+            this.catchRateWeightList = new ArrayList<PerformanceObject>(numBucket + 1);
+            this.gainWeightList = new ArrayList<PerformanceObject>(numBucket + 1);
+
+            this.numBucket = numBucket;
+            this.maxScore = maxScore;
+            this.binScore = (maxScore - minScore) * 1d / numBucket;
+            this.totalCount = totalCount;
+
+            this.FPRList.add(firstPO);
+            this.catchRateList.add(firstPO);
+            this.gainList.add(firstPO);
+            this.FPRWeightList.add(firstPO);
+            this.catchRateWeightList.add(firstPO);
+            this.gainWeightList.add(firstPO);
+            this.modelScoreList.add(firstPO);
+        }
+
+        /**
+         * Add confusion matrix object after records of current score are counted.
+         * 
+         * @param object
+         *            confusion matrix object including all records with score not less than current score
+         * @param score
+         *            current score
+         * @param validRecordCnt
+         *            number of all records with score not less than current score
+         * @param count
+         *            number of records with current score
+         * @param weightedCount
+         *            weighted number of records with current score
+         */
+        void add(ConfusionMatrixObject object, double score, long validRecordCnt, double count,
+                double weightedCount) {
+            scoreBinCount += count;
+            scoreBinWeigthedCount += weightedCount;
+
+            PerformanceObject po = PerformanceEvaluator.setPerformanceObject(object);
+            // one record or histogram bucket may cross several bins, one object is added for each crossed bin and no
+            // more than numBucket bins are added to each list
+            while(fpBin <= numBucket && po.fpr * numBucket >= fpBin) {
+                FPRList.add(newBinPO(object, fpBin++));
+            }
+
+            while(tpBin <= numBucket && po.recall * numBucket >= tpBin) {
+                catchRateList.add(newBinPO(object, tpBin++));
+            }
+
+            // prevent 99%
+            double actionRate = (double) validRecordCnt / totalCount;
+            while(gainBin <= numBucket && actionRate * numBucket >= gainBin) {
+                gainList.add(newBinPO(object, gainBin++));
+            }
+
+            while(fpWeightBin <= numBucket && po.weightedFpr * numBucket >= fpWeightBin) {
+                FPRWeightList.add(newBinPO(object, fpWeightBin++));
+            }
+
+            while(tpWeightBin <= numBucket && po.weightedRecall * numBucket >= tpWeightBin) {
+                catchRateWeightList.add(newBinPO(object, tpWeightBin++));
+            }
+
+            double weightedActionRate = (object.getWeightedTp() + object.getWeightedFp()) / object.getWeightedTotal();
+            while(gainWeightBin <= numBucket && weightedActionRate * numBucket >= gainWeightBin) {
+                gainWeightList.add(newBinPO(object, gainWeightBin++));
+            }
+
+            while(modelScoreBin <= numBucket && (maxScore - (modelScoreBin * binScore)) >= score) {
+                PerformanceObject scorePO = newBinPO(object, modelScoreBin++);
+                // all records counted so far are in the first crossed bin, the other crossed bins are empty
+                scorePO.scoreCount = scoreBinCount;
+                scorePO.scoreWgtCount = scoreBinWeigthedCount;
+                // reset to 0 for next bin score cnt stats
+                scoreBinCount = scoreBinWeigthedCount = 0;
+                modelScoreList.add(scorePO);
+            }
+        }
+
+        private static PerformanceObject newBinPO(ConfusionMatrixObject object, int binNum) {
+            PerformanceObject po = PerformanceEvaluator.setPerformanceObject(object);
+            po.binNum = binNum;
+            return po;
+        }
+
+        PerformanceResult buildPerfResult() {
+            return ConfusionMatrix.buildPerfResult(FPRList, catchRateList, gainList, modelScoreList, FPRWeightList,
+                    catchRateWeightList, gainWeightList);
+        }
+    }
 }
@@ -0,0 +1,825 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.container.obj.ModelNormalizeConf.NormType;
+import ml.shifu.shifu.udf.norm.CategoryMissingNormType;
+import ml.shifu.shifu.util.BinUtils;
+
+/**
+ * {@link NormPlan} is the normalization of one column compiled once from its {@link ColumnConfig} and norm settings.
+ * Norm type dispatch, cutoff check, woe mean and standard deviation and bin tables are resolved at compile time, and
+ * each value is normalized into a reusable {@code double[]} row buffer without allocating {@code List<Double>}.
+ *
+ * <p>
+ * Plans compiled by {@link #compile(ColumnConfig, Double, NormType, CategoryMissingNormType)} have the same results
+ * as {@link Normalizer#normalize(ColumnConfig, Object, Double, NormType, CategoryMissingNormType)} and plans compiled
+ * with category index map have the same results as
+ * {@link Normalizer#fullNormalize(ColumnConfig, Object, Double, NormType, CategoryMissingNormType, Map)}. If some
+ * stats needed are missing in ColumnConfig, the plan falls back to {@link Normalizer} to keep the same behavior.
+ *
+ * <p>
+ * Plans are immutable and can be shared by threads, ColumnConfig should not be changed after the plan is compiled.
+ */
+public abstract class NormPlan {
+
+    private Double cutoff;
+
+    private NormType normType;
+
+    private CategoryMissingNormType categoryMissingNormType;
+
+    private Map<String, Integer> cateIndexMap;
+
+    private boolean isFull;
+
+    /**
+     * Compile norm plan with the same results as
+     * {@link Normalizer#normalize(ColumnConfig, Object, Double, NormType, CategoryMissingNormType)}.
+     *
+     * @param config
+     *            ColumnConfig to normalize data
+     * @param cutoff
+     *            standard deviation cut off
+     * @param normType
+     *            normalization type
+     * @param categoryMissingNormType
+     *            missing categorical value norm type
+     * @return compiled norm plan
+     */
+    public static NormPlan compile(ColumnConfig config, Double cutoff, NormType normType,
+            CategoryMissingNormType categoryMissingNormType) {
+        return compile(config, cutoff, normType, categoryMissingNormType, null, false);
+    }
+
+    /**
+     * Compile norm plan with the same results as
+     * {@link Normalizer#fullNormalize(ColumnConfig, Object, Double, NormType, CategoryMissingNormType, Map)}.
+     *
+     * @param config
+     *            ColumnConfig to normalize data
+     * @param cutoff
+     *            standard deviation cut off
+     * @param normType
+     *            normalization type
+     * @param categoryMissingNormType
+     *            missing categorical value norm type
+     * @param cateIndexMap
+     *            the map from category to index
+     * @return compiled norm plan
+     */
+    public static NormPlan compile(ColumnConfig config, Double cutoff, NormType normType,
+            CategoryMissingNormType categoryMissingNormType, Map<String, Integer> cateIndexMap) {
+        return compile(config, cutoff, normType, categoryMissingNormType, cateIndexMap, true);
+    }
+
+    private static NormPlan compile(ColumnConfig config, Double cutoff, NormType normType,
+            CategoryMissingNormType categoryMissingNormType, Map<String, Integer> cateIndexMap, boolean isFull) {
+        NormPlan plan = isFull ? compileFull(config, cutoff, normType, categoryMissingNormType, cateIndexMap)
+                : compileNormalize(config, cutoff, normType, categoryMissingNormType);
+        if(plan == null) {
+            plan = new Delegate(config);
+        }
+        plan.cutoff = cutoff;
+        plan.normType = normType;
+        plan.categoryMissingNormType = categoryMissingNormType;
+        plan.cateIndexMap = cateIndexMap;
+        plan.isFull = isFull;
+        if(plan instanceof Delegate) {
+            ((Delegate) plan).size = delegateSize(config, normType, isFull);
+        }
+        return plan;
+    }
+
+    /**
+     * @return if this plan is compiled with the same settings, category index map is compared by reference.
+     */
+    public boolean isCompiledFor(Double cutoff, NormType normType, CategoryMissingNormType categoryMissingNormType,
+            Map<String, Integer> cateIndexMap, boolean isFull) {
+        return this.normType == normType && this.categoryMissingNormType == categoryMissingNormType
+                && this.cateIndexMap == cateIndexMap && this.isFull == isFull
+                && (this.cutoff == null ? cutoff == null : this.cutoff.equals(cutoff));
+    }
+
+    /**
+     * @return if this plan falls back to {@link Normalizer}
+     */
+    public boolean isFallback() {
+        return this instanceof Delegate;
+    }
+
+    /**
+     * @return number of normalized values of this column
+     */
+    public abstract int size();
+
+    /**
+     * Normalize raw value of this column into row buffer.
+     *
+     * @param raw
+     *            raw input value
+     * @param row
+     *            row buffer to write into
+     * @param offset
+     *            offset in row buffer of this column
+     * @return offset of the next column in row buffer
+     */
+    public abstract int normalize(Object raw, double[] row, int offset);
+
+    /**
+     * Normalize raw value of this column into list, only for callers which need list format.
+     *
+     * @param raw
+     *            raw input value
+     * @return normalized values
+     */
+    public List<Double> normalize(Object raw) {
+        double[] row = new double[size()];
+        int size = normalize(raw, row, 0);
+        Double[] values = new Double[size];
+        for(int i = 0; i < size; i++) {
+            values[i] = row[i];
+        }
+        return Arrays.asList(values);
+    }
+
+    private static NormPlan compileFull(ColumnConfig config, Double cutoff, NormType normType,
+            CategoryMissingNormType categoryMissingNormType, Map<String, Integer> cateIndexMap) {
+        // column not numerical nor categorical falls through cases in Normalizer#fullNormalize, leave it to fallback
+        if(!config.isNumerical() && !config.isCategorical()) {
+            switch(normType) {
+                case ZSCORE_INDEX:
+                case ZSCALE_INDEX:
+                case WOE_INDEX:
+                case WOE_ZSCALE_INDEX:
+                case INDEX:
+                case ZSCORE_APPEND_INDEX:
+                case ZSCALE_APPEND_INDEX:
+                case WOE_APPEND_INDEX:
+                case WOE_ZSCALE_APPEND_INDEX:
+                    return null;
+                default:
+                    return compileNormalize(config, cutoff, normType, categoryMissingNormType);
+            }
+        }
+
+        switch(normType) {
+            case ZSCORE_INDEX:
+            case ZSCALE_INDEX:
+                return config.isNumerical() ? zscore(config, cutoff, null, false) : cateIndex(config, cateIndexMap);
+            case WOE_INDEX:
+                return config.isNumerical() ? woe(config, cutoff, false, false) : cateIndex(config, cateIndexMap);
+            case WOE_ZSCALE_INDEX:
+                return config.isNumerical() ? woe(config, cutoff, false, true) : cateIndex(config, cateIndexMap);
+            case INDEX:
+                return config.isNumerical() ? binIndex(config) : cateIndex(config, cateIndexMap);
+            case ZSCORE_APPEND_INDEX:
+            case ZSCALE_APPEND_INDEX:
+                return config.isNumerical() ? concat(zscore(config, cutoff, null, false), binIndex(config))
+                        : concat(cateIndex(config, cateIndexMap), cateIndex(config, cateIndexMap));
+            case WOE_APPEND_INDEX:
+                return concat(woe(config, cutoff, false, false),
+                        config.isNumerical() ? binIndex(config) : cateIndex(config, cateIndexMap));
+            case WOE_ZSCALE_APPEND_INDEX:
+                return concat(woe(config, cutoff, false, true),
+                        config.isNumerical() ? binIndex(config) : cateIndex(config, cateIndexMap));
+            default:
+                return compileNormalize(config, cutoff, normType, categoryMissingNormType);
+        }
+    }
+
+    private static NormPlan compileNormalize(ColumnConfig config, Double cutoff, NormType normType,
+            CategoryMissingNormType categoryMissingNormType) {
+        switch(normType) {
+            case ASIS_WOE:
+            case ASIS_PR:
+                if(config.isNumerical()) {
+                    return config.getMean() == null ? null : new AsIs(config.getMean());
+                }
+                return woe(config, normType == NormType.ASIS_WOE ? config.getBinCountWoe() : config.getBinPosRate(),
+                        null);
+            case WOE:
+                return woe(config, cutoff, false, false);
+            case WEIGHT_WOE:
+                return woe(config, cutoff, true, false);
+            case HYBRID:
+            case WEIGHT_HYBRID:
+                return config.isNumerical() ? zscore(config, cutoff, CategoryMissingNormType.POSRATE, false)
+                        : woe(config, cutoff, normType == NormType.WEIGHT_HYBRID, false);
+            case WOE_ZSCORE:
+            case WOE_ZSCALE:
+                return woe(config, cutoff, false, true);
+            case WEIGHT_WOE_ZSCORE:
+            case WEIGHT_WOE_ZSCALE:
+                return woe(config, cutoff, true, true);
+            case ONEHOT:
+                return oneHot(config, config.isNumerical() ? config.getBinBoundary() : config.getBinCategory());
+            case ZSCALE_ONEHOT:
+                return config.isNumerical() ? zscore(config, cutoff, categoryMissingNormType, false)
+                        : oneHot(config, config.getBinCategory());
+            case ZSCALE_ORDINAL:
+                return config.isNumerical() ? zscore(config, cutoff, categoryMissingNormType, false)
+                        : ordinal(config);
+            case MAXMIN_INDEX:
+                return config.isNumerical() ? maxMin(config) : ordinal(config);
+            case DISCRETE_ZSCORE:
+            case DISCRETE_ZSCALE:
+                return config.isCategorical() ? zscore(config, cutoff, categoryMissingNormType, false)
+                        : discrete(config, cutoff);
+            case OLD_ZSCALE:
+            case OLD_ZSCORE:
+                return zscore(config, cutoff, categoryMissingNormType, true);
+            case ZSCALE:
+            case ZSCORE:
+            default:
+                return zscore(config, cutoff, categoryMissingNormType, false);
+        }
+    }
+
+    private static NormPlan zscore(ColumnConfig config, Double cutoff,
+            CategoryMissingNormType categoryMissingNormType, boolean isOld) {
+        if(config.getMean() == null || config.getStdDev() == null) {
+            return null;
+        }
+        ZScaler scaler = new ZScaler(config.getMean(), config.getStdDev(), Normalizer.checkCutOff(cutoff));
+        if(!config.isCategorical()) {
+            return new ZScore(scaler, null, null, Normalizer.defaultMissingValue(config), false);
+        }
+
+        List<Double> binPosRate = config.getBinPosRate();
+        BinLookup lookup = BinLookup.of(config);
+        if(binPosRate == null || lookup == null) {
+            return null;
+        }
+        double missingValue;
+        if(categoryMissingNormType == null || categoryMissingNormType == CategoryMissingNormType.POSRATE) {
+            // last one is missing bin, if it is missing, using pos rate for default value.
+            if(binPosRate.isEmpty() || binPosRate.get(binPosRate.size() - 1) == null) {
+                return null;
+            }
+            missingValue = binPosRate.get(binPosRate.size() - 1);
+        } else {
+            missingValue = Normalizer.defaultMissingValue(config);
+        }
+        return new ZScore(scaler, lookup, binPosRate.toArray(new Double[binPosRate.size()]), missingValue, isOld);
+    }
+
+    private static NormPlan woe(ColumnConfig config, Double cutoff, boolean isWeightedNorm, boolean isZScore) {
+        NormPlan plan = woe(config, isWeightedNorm ? config.getBinWeightedWoe() : config.getBinCountWoe(), null);
+        if(plan == null || !isZScore) {
+            return plan;
+        }
+        double[] meanAndStdDev;
+        try {
+            meanAndStdDev = Normalizer.calculateWoeMeanAndStdDev(config, isWeightedNorm);
+        } catch (RuntimeException e) {
+            // bad woe stats, fallback to fail in the same way as Normalizer
+            return null;
+        }
+        return woe(config, isWeightedNorm ? config.getBinWeightedWoe() : config.getBinCountWoe(),
+                new ZScaler(meanAndStdDev[0], meanAndStdDev[1], Normalizer.checkCutOff(cutoff)));
+    }
+
+    private static NormPlan woe(ColumnConfig config, List<Double> binValues, ZScaler scaler) {
+        double[] table = toArray(binValues);
+        if(table == null || table.length == 0) {
+            return null;
+        }
+        if(config.isHybrid()) {
+            double[] boundaries = config.getBinBoundaryArray();
+            List<String> categories = config.getBinCategory();
+            if(boundaries == null || categories == null) {
+                return null;
+            }
+            BinLookup cateLookup = new BinLookup(true, config.getColumnBinning().getBinCateMap(), config.getHashSeed(),
+                    null);
+            return new Woe(table, null, cateLookup, boundaries, categories.size(), scaler);
+        }
+        BinLookup lookup = BinLookup.of(config);
+        return lookup == null ? null : new Woe(table, lookup, null, null, 0, scaler);
+    }
+
+    private static NormPlan oneHot(ColumnConfig config, List<?> bins) {
+        BinLookup lookup = BinLookup.of(config);
+        return (lookup == null || bins == null) ? null : new OneHot(lookup, bins.size() + 1);
+    }
+
+    private static NormPlan ordinal(ColumnConfig config) {
+        BinLookup lookup = BinLookup.of(config);
+        return (lookup == null || config.getBinCategory() == null) ? null
+                : new Ordinal(lookup, config.getBinCategory().size());
+    }
+
+    private static NormPlan binIndex(ColumnConfig config) {
+        BinLookup lookup = BinLookup.of(config);
+        return (lookup == null || config.getBinBoundary() == null) ? null
+                : new Ordinal(lookup, config.getBinBoundary().size());
+    }
+
+    private static NormPlan cateIndex(ColumnConfig config, Map<String, Integer> cateIndexMap) {
+        return config.getBinCategory() == null ? null : new CateIndex(cateIndexMap, config.getBinCategory().size());
+    }
+
+    private static NormPlan maxMin(ColumnConfig config) {
+        Double max = config.getColumnStats().getMax();
+        Double min = config.getColumnStats().getMin();
+        boolean isScaled = max != null && min != null && (max - min) > 1e-7;
+        return new MaxMin(Normalizer.defaultMissingValue(config), isScaled ? min : 0d, isScaled ? max - min : 0d,
+                isScaled);
+    }
+
+    private static NormPlan discrete(ColumnConfig config, Double cutoff) {
+        BinLookup lookup = BinLookup.of(config);
+        if(lookup == null || config.getMean() == null || config.getStdDev() == null
+                || config.getColumnStats().getMin() == null) {
+            return null;
+        }
+        return new Discrete(lookup, config.getMean(), config.getColumnStats().getMin(),
+                new ZScaler(config.getMean(), config.getStdDev(), Normalizer.checkCutOff(cutoff)));
+    }
+
+    private static NormPlan concat(NormPlan first, NormPlan second) {
+        return (first == null || second == null) ? null : new Concat(first, second);
+    }
+
+    private static int delegateSize(ColumnConfig config, NormType normType, boolean isFull) {
+        switch(normType) {
+            case ZSCORE_APPEND_INDEX:
+            case ZSCALE_APPEND_INDEX:
+            case WOE_APPEND_INDEX:
+            case WOE_ZSCALE_APPEND_INDEX:
+                return isFull ? 2 : 1;
+            case ONEHOT:
+            case ZSCALE_ONEHOT:
+                List<?> bins = config.isNumerical() ? config.getBinBoundary() : config.getBinCategory();
+                if(bins == null || (normType == NormType.ZSCALE_ONEHOT && config.isNumerical())) {
+                    return 1;
+                }
+                return bins.size() + 1;
+            default:
+                return 1;
+        }
+    }
+
+    private static double[] toArray(List<Double> values) {
+        if(values == null) {
+            return null;
+        }
+        double[] array = new double[values.size()];
+        for(int i = 0; i < array.length; i++) {
+            Double value = values.get(i);
+            if(value == null) {
+                return null;
+            }
+            array[i] = value;
+        }
+        return array;
+    }
+
+    /**
+     * Parse numerical value the same as numerical part of {@link Normalizer#normalize(ColumnConfig, Object)}, missing,
+     * invalid, NaN and infinite values are replaced by default value.
+     */
+    private static double parseNumber(Object raw, double defaultValue) {
+        if(raw == null) {
+            return defaultValue;
+        }
+        double value;
+        if(raw instanceof Double) {
+            value = (Double) raw;
+        } else if(raw instanceof Integer) {
+            value = ((Integer) raw).doubleValue();
+        } else if(raw instanceof Float) {
+            value = ((Float) raw).doubleValue();
+        } else {
+            String str = raw.toString();
+            if(StringUtils.isBlank(str)) {
+                return defaultValue;
+            }
+            try {
+                value = Double.parseDouble(str);
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+        return (Double.isInfinite(value) || Double.isNaN(value)) ? defaultValue : value;
+    }
+
+    /**
+     * Bin index lookup of one column, the same as {@link BinUtils#getBinNum(ColumnConfig, Object)}.
+     */
+    private static final class BinLookup {
+
+        private final boolean isCategorical;
+
+        private final Map<String, Integer> binCateMap;
+
+        private final int hashSeed;
+
+        private final double[] binBoundaries;
+
+        BinLookup(boolean isCategorical, Map<String, Integer> binCateMap, int hashSeed, double[] binBoundaries) {
+            this.isCategorical = isCategorical;
+            this.binCateMap = binCateMap;
+            this.hashSeed = hashSeed;
+            this.binBoundaries = binBoundaries;
+        }
+
+        /**
+         * @return bin lookup of column, null if numerical column without bin boundaries
+         */
+        static BinLookup of(ColumnConfig config) {
+            if(config.isCategorical()) {
+                return new BinLookup(true, config.getColumnBinning().getBinCateMap(), config.getHashSeed(), null);
+            }
+            double[] binBoundaries = config.getBinBoundaryArray();
+            return binBoundaries == null ? null : new BinLookup(false, null, 0, binBoundaries);
+        }
+
+        int binNum(Object raw) {
+            if(!this.isCategorical) {
+                return BinUtils.getNumericalBinIndex(this.binBoundaries, raw);
+            }
+            if(raw == null) {
+                return -1;
+            }
+            String value = raw.toString();
+            if(StringUtils.isBlank(value)) {
+                return -1;
+            }
+            if(this.hashSeed > 0) {
+                value = value.hashCode() % this.hashSeed + "";
+            }
+            if(this.binCateMap == null) {
+                return -1;
+            }
+            Integer index = this.binCateMap.get(value);
+            return (index == null || index < 0) ? -1 : index;
+        }
+    }
+
+    /**
+     * ZScore with cutoff computed in advance, the same as
+     * {@link Normalizer#computeZScore(double, double, double, double)}.
+     */
+    private static final class ZScaler {
+
+        private final double mean;
+
+        private final double stdDev;
+
+        private final double minCutOff;
+
+        private final double maxCutOff;
+
+        ZScaler(double mean, double stdDev, double stdDevCutOff) {
+            this.mean = mean;
+            this.stdDev = stdDev;
+            this.maxCutOff = mean + stdDevCutOff * stdDev;
+            this.minCutOff = mean - stdDevCutOff * stdDev;
+        }
+
+        double scale(double value) {
+            if(value > this.maxCutOff) {
+                value = this.maxCutOff;
+            }
+            if(value < this.minCutOff) {
+                value = this.minCutOff;
+            }
+            return this.stdDev > 0.00001 ? (value - this.mean) / this.stdDev : 0d;
+        }
+    }
+
+    /**
+     * Plan with one normalized value.
+     */
+    private abstract static class Single extends NormPlan {
+
+        @Override
+        public int size() {
+            return 1;
+        }
+
+        @Override
+        public int normalize(Object raw, double[] row, int offset) {
+            row[offset] = value(raw);
+            return offset + 1;
+        }
+
+        abstract double value(Object raw);
+    }
+
+    /**
+     * ZScore of numerical value or of categorical positive rate, positive rate is not scaled in old zscore.
+     */
+    private static final class ZScore extends Single {
+
+        private final ZScaler scaler;
+
+        private final BinLookup lookup;
+
+        private final Double[] binPosRates;
+
+        private final double missingValue;
+
+        private final boolean isOld;
+
+        ZScore(ZScaler scaler, BinLookup lookup, Double[] binPosRates, double missingValue, boolean isOld) {
+            this.scaler = scaler;
+            this.lookup = lookup;
+            this.binPosRates = binPosRates;
+            this.missingValue = missingValue;
+            this.isOld = isOld;
+        }
+
+        @Override
+        double value(Object raw) {
+            if(this.binPosRates == null) {
+                return this.scaler.scale(parseNumber(raw, this.missingValue));
+            }
+            double value = this.missingValue;
+            if(raw != null && !StringUtils.isBlank(raw.toString())) {
+                int index = this.lookup.binNum(raw);
+                if(index != -1 && this.binPosRates[index] != null) {
+                    value = this.binPosRates[index];
+                }
+            }
+            return this.isOld ? value : this.scaler.scale(value);
+        }
+    }
+
+    private static final class AsIs extends Single {
+
+        private final double mean;
+
+        AsIs(double mean) {
+            this.mean = mean;
+        }
+
+        @Override
+        double value(Object raw) {
+            if(raw instanceof Double) {
+                return (Double) raw;
+            } else if(raw instanceof Integer) {
+                return ((Integer) raw).doubleValue();
+            }
+            try {
+                return Double.parseDouble(raw.toString());
+            } catch (Exception e) {
+                return this.mean;
+            }
+        }
+    }
+
+    private static final class MaxMin extends Single {
+
+        private final double missingValue;
+
+        private final double min;
+
+        private final double range;
+
+        private final boolean isScaled;
+
+        MaxMin(double missingValue, double min, double range, boolean isScaled) {
+            this.missingValue = missingValue;
+            this.min = min;
+            this.range = range;
+            this.isScaled = isScaled;
+        }
+
+        @Override
+        double value(Object raw) {
+            return this.isScaled ? (parseNumber(raw, this.missingValue) - this.min) / this.range : 0d;
+        }
+    }
+
+    /**
+     * ZScore of low boundary of numerical bin, min value for the first bin and mean for missing value.
+     */
+    private static final class Discrete extends Single {
+
+        private final BinLookup lookup;
+
+        private final double mean;
+
+        private final double min;
+
+        private final ZScaler scaler;
+
+        Discrete(BinLookup lookup, double mean, double min, ZScaler scaler) {
+            this.lookup = lookup;
+            this.mean = mean;
+            this.min = min;
+            this.scaler = scaler;
+        }
+
+        @Override
+        double value(Object raw) {
+            int binIndex = this.lookup.binNum(raw);
+            double value;
+            if(binIndex < 0 || binIndex >= this.lookup.binBoundaries.length) {
+                value = this.mean;
+            } else if(binIndex == 0) {
+                value = this.min;
+            } else {
+                value = this.lookup.binBoundaries[binIndex];
+            }
+            return this.scaler.scale(value);
+        }
+    }
+
+    /**
+     * Bin value like woe or positive rate with the last one for missing value, optionally zscore scaled.
+     */
+    private static final class Woe extends Single {
+
+        private final double[] binValues;
+
+        private final BinLookup lookup;
+
+        /**
+         * Lookup of categorical part for hybrid column, null for other columns
+         */
+        private final BinLookup hybridCateLookup;
+
+        private final double[] hybridBoundaries;
+
+        private final int hybridCateSize;
+
+        private final ZScaler scaler;
+
+        Woe(double[] binValues, BinLookup lookup, BinLookup hybridCateLookup, double[] hybridBoundaries,
+                int hybridCateSize, ZScaler scaler) {
+            this.binValues = binValues;
+            this.lookup = lookup;
+            this.hybridCateLookup = hybridCateLookup;
+            this.hybridBoundaries = hybridBoundaries;
+            this.hybridCateSize = hybridCateSize;
+            this.scaler = scaler;
+        }
+
+        @Override
+        double value(Object raw) {
+            int binIndex;
+            if(this.hybridCateLookup != null) {
+                binIndex = this.hybridCateLookup.binNum(raw);
+                if(binIndex != -1) {
+                    binIndex += this.hybridBoundaries.length; // append the first numerical bins
+                } else {
+                    double value = BinUtils.parseNumber(raw);
+                    binIndex = Double.isNaN(value) ? this.hybridBoundaries.length + this.hybridCateSize
+                            : BinUtils.getBinIndex(this.hybridBoundaries, value);
+                }
+            } else {
+                binIndex = this.lookup.binNum(raw);
+            }
+            // the last bin is the missing value bin
+            double value = this.binValues[binIndex == -1 ? this.binValues.length - 1 : binIndex];
+            return this.scaler == null ? value : this.scaler.scale(value);
+        }
+    }
+
+    /**
+     * Bin index with missing index for invalid bin.
+     */
+    private static final class Ordinal extends Single {
+
+        private final BinLookup lookup;
+
+        private final int missingIndex;
+
+        Ordinal(BinLookup lookup, int missingIndex) {
+            this.lookup = lookup;
+            this.missingIndex = missingIndex;
+        }
+
+        @Override
+        double value(Object raw) {
+            int binIndex = this.lookup.binNum(raw);
+            return (binIndex < 0 || binIndex > this.missingIndex) ? this.missingIndex : binIndex;
+        }
+    }
+
+    /**
+     * Category index from category index map, the last index for missing or invalid category.
+     */
+    private static final class CateIndex extends Single {
+
+        private final Map<String, Integer> cateIndexMap;
+
+        private final int missingIndex;
+
+        CateIndex(Map<String, Integer> cateIndexMap, int missingIndex) {
+            this.cateIndexMap = cateIndexMap;
+            this.missingIndex = missingIndex;
+        }
+
+        @Override
+        double value(Object raw) {
+            Integer index = this.cateIndexMap == null ? null : this.cateIndexMap.get(raw == null ? "" : raw.toString());
+            return (index == null || index == -1) ? this.missingIndex : index;
+        }
+    }
+
+    private static final class OneHot extends NormPlan {
+
+        private final BinLookup lookup;
+
+        private final int size;
+
+        OneHot(BinLookup lookup, int size) {
+            this.lookup = lookup;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
+        @Override
+        public int normalize(Object raw, double[] row, int offset) {
+            Arrays.fill(row, offset, offset + this.size, 0d);
+            int binNum = this.lookup.binNum(raw);
+            row[offset + (binNum < 0 ? this.size - 1 : binNum)] = 1d;
+            return offset + this.size;
+        }
+    }
+
+    private static final class Concat extends NormPlan {
+
+        private final NormPlan first;
+
+        private final NormPlan second;
+
+        Concat(NormPlan first, NormPlan second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public int size() {
+            return this.first.size() + this.second.size();
+        }
+
+        @Override
+        public int normalize(Object raw, double[] row, int offset) {
+            return this.second.normalize(raw, row, this.first.normalize(raw, row, offset));
+        }
+    }
+
+    /**
+     * Fallback to {@link Normalizer} for columns with missing stats.
+     */
+    private static final class Delegate extends NormPlan {
+
+        private final ColumnConfig config;
+
+        private int size;
+
+        Delegate(ColumnConfig config) {
+            this.config = config;
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
+        @Override
+        public int normalize(Object raw, double[] row, int offset) {
+            NormPlan plan = this;
+            List<Double> values = plan.isFull
+                    ? Normalizer.fullNormalize(this.config, raw, plan.cutoff, plan.normType,
+                            plan.categoryMissingNormType, plan.cateIndexMap)
+                    : Normalizer.normalize(this.config, raw, plan.cutoff, plan.normType,
+                            plan.categoryMissingNormType);
+            for(Double value: values) {
+                row[offset++] = value;
+            }
+            return offset;
+        }
+    }
+
+}
@@ -754,7 +754,7 @@ public class Normalizer {
                 if(Double.isNaN(douVal)) {
                     binIndex = config.getBinBoundary().size() + config.getBinCategory().size();
                 } else {
-                    binIndex = BinUtils.getBinIndex(config.getBinBoundary(), douVal);
+                    binIndex = BinUtils.getBinIndex(config.getBinBoundaryArray(), douVal);
                 }
             }
         } else {
@@ -0,0 +1,328 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.binning;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
+import ml.shifu.shifu.core.DataPurifier;
+import ml.shifu.shifu.core.dtrain.CommonConstants;
+import ml.shifu.shifu.fs.PathFinder;
+import ml.shifu.shifu.udf.norm.PrecisionType;
+import ml.shifu.shifu.util.CommonUtils;
+import ml.shifu.shifu.util.Constants;
+import ml.shifu.shifu.util.HDFSUtils;
+
+/**
+ * {@link BinningPartialMapper} builds partial binning of all columns in one mapper, it replaces the column flatten and
+ * group by column in StatsSpdtI.pig which shuffles one tuple per cell.
+ *
+ * <p>
+ * Records are filtered and sampled the same as PurifyDataUDF and AddColumnNumAndFilterUDF, each value is added to the
+ * streaming binning of its column: {@link EqualPopulationBinning} or {@link EqualIntervalBinning} for numerical
+ * columns, {@link CategoricalBinning} for categorical columns and both for hybrid columns. In cleanup, only one
+ * partial binning per column (and per segment expression) is sent to {@link BinningPartialReducer} for merging, so
+ * shuffle size is columns * mappers instead of records * columns.
+ *
+ * <p>
+ * We assume that binning of all columns can be saved in mapper memory, histogram of each numerical column is bounded
+ * by 10000 units.
+ */
+public class BinningPartialMapper extends Mapper<LongWritable, Text, IntWritable, Text> {
+
+    private final static Logger LOG = LoggerFactory.getLogger(BinningPartialMapper.class);
+
+    /**
+     * Model configuration read from HDFS
+     */
+    private ModelConfig modelConfig;
+
+    /**
+     * Column Config list read from HDFS
+     */
+    private List<ColumnConfig> columnConfigList;
+
+    /**
+     * To filter records by customized expressions
+     */
+    private DataPurifier dataPurifier;
+
+    /**
+     * Data purifiers for column expansion
+     */
+    private List<DataPurifier> expressionDataPurifiers;
+    private List<Integer> newTagIndexes;
+    private boolean isForExpressions = false;
+
+    private int tagColumnNum = -1;
+    private int weightedColumnNum = -1;
+
+    private Set<String> posTags;
+    private Set<String> negTags;
+    private Set<String> tags;
+
+    private boolean isLinearTarget = false;
+
+    private PrecisionType precisionType;
+
+    private int maxCategorySize;
+
+    private Random random = new Random(System.currentTimeMillis());
+
+    /**
+     * Partial binning of each column, key is the column index of expanded columns by segment expressions.
+     */
+    private Map<Integer, AbstractBinning<?>> columnBinning;
+
+    /**
+     * Categorical binning of missing or small values of hybrid columns.
+     */
+    private Map<Integer, AbstractBinning<?>> hybridBinning;
+
+    private IntWritable outputKey;
+
+    private Text outputValue;
+
+    /**
+     * Load model config and column config files.
+     */
+    private void loadConfigFiles(final Context context) {
+        try {
+            // inject fs.defaultFS from UDFContext.getUDFContext().getJobConf()
+            if(context != null && context.getConfiguration() != null) {
+                HDFSUtils.getConf().set(FileSystem.FS_DEFAULT_NAME_KEY,
+                        context.getConfiguration().get(FileSystem.FS_DEFAULT_NAME_KEY));
+            }
+
+            SourceType sourceType = SourceType.valueOf(
+                    context.getConfiguration().get(Constants.SHIFU_MODELSET_SOURCE_TYPE, SourceType.HDFS.toString()));
+            this.modelConfig = CommonUtils.loadModelConfig(context.getConfiguration().get(Constants.SHIFU_MODEL_CONFIG),
+                    sourceType);
+            if(modelConfig.isMultiTask()) {
+                int mtlIndex = context.getConfiguration().getInt(CommonConstants.MTL_INDEX, -1);
+                this.modelConfig.setMtlIndex(mtlIndex);
+                this.columnConfigList = CommonUtils.loadColumnConfigList(
+                        new PathFinder(this.modelConfig).getMTLColumnConfigPath(SourceType.HDFS, mtlIndex), sourceType);
+            } else {
+                this.columnConfigList = CommonUtils.loadColumnConfigList(
+                        context.getConfiguration().get(Constants.SHIFU_COLUMN_CONFIG), sourceType);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        loadConfigFiles(context);
+
+        String precision = context.getConfiguration().get(Constants.SHIFU_PRECISION_TYPE);
+        if(StringUtils.isNotBlank(precision)) {
+            this.precisionType = PrecisionType.of(precision);
+        }
+
+        this.dataPurifier = new DataPurifier(this.modelConfig, this.columnConfigList, false);
+
+        String filterExpressions = context.getConfiguration().get(Constants.SHIFU_STATS_FILTER_EXPRESSIONS);
+        if(StringUtils.isNotBlank(filterExpressions)) {
+            this.isForExpressions = true;
+            String[] splits = CommonUtils.split(filterExpressions, Constants.SHIFU_STATS_FILTER_EXPRESSIONS_DELIMETER);
+            this.expressionDataPurifiers = new ArrayList<DataPurifier>(splits.length);
+            this.newTagIndexes = new ArrayList<Integer>(splits.length);
+            for(String split: splits) {
+                DataPurifier dataPurifier = new DataPurifier(modelConfig, this.columnConfigList, split, false);
+                if(dataPurifier.isNewTag()) {
+                    ColumnConfig cc = CommonUtils.findColumnConfigByName(columnConfigList,
+                            dataPurifier.getNewTagColumnName());
+                    this.newTagIndexes.add(cc == null ? -1 : cc.getColumnNum());
+                } else {
+                    this.newTagIndexes.add(-1);
+                }
+                this.expressionDataPurifiers.add(dataPurifier);
+            }
+        }
+
+        this.tagColumnNum = CommonUtils.getTargetColumnNum(this.columnConfigList);
+        loadWeightColumnNum();
+
+        this.posTags = new HashSet<String>(modelConfig.getPosTags());
+        this.negTags = new HashSet<String>(modelConfig.getNegTags());
+        this.tags = new HashSet<String>(modelConfig.getFlattenTags());
+        this.isLinearTarget = CommonUtils.isLinearTarget(modelConfig, columnConfigList);
+
+        this.maxCategorySize = context.getConfiguration().getInt(Constants.SHIFU_MAX_CATEGORY_SIZE,
+                Constants.MAX_CATEGORICAL_BINC_COUNT);
+
+        this.columnBinning = new HashMap<Integer, AbstractBinning<?>>(this.columnConfigList.size(), 1f);
+        this.hybridBinning = new HashMap<Integer, AbstractBinning<?>>();
+        this.outputKey = new IntWritable();
+        this.outputValue = new Text();
+    }
+
+    /**
+     * Load weight column index field.
+     */
+    private void loadWeightColumnNum() {
+        String weightColumnName = this.modelConfig.getDataSet().getWeightColumnName();
+        if(StringUtils.isNotBlank(weightColumnName)) {
+            if(this.modelConfig.isMultiTask() && this.modelConfig.isMultiWeightsInMTL()) {
+                weightColumnName = this.modelConfig.getMultiTaskWeightColumnNames().get(this.modelConfig.getMtlIndex());
+            }
+            for(ColumnConfig config: this.columnConfigList) {
+                if(config.getColumnName().equalsIgnoreCase(weightColumnName.trim())) {
+                    this.weightedColumnNum = config.getColumnNum();
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
+        String valueStr = value.toString();
+        if(valueStr == null || valueStr.trim().length() == 0) {
+            LOG.warn("Empty input.");
+            return;
+        }
+
+        context.getCounter(Constants.SHIFU_GROUP_COUNTER, "TOTAL_VALID_COUNT").increment(1L);
+
+        if(!this.dataPurifier.isFilter(valueStr)) {
+            context.getCounter(Constants.SHIFU_GROUP_COUNTER, "FILTER_OUT_COUNT").increment(1L);
+            return;
+        }
+
+        String[] units = CommonUtils.split(valueStr, this.modelConfig.getDataSetDelimiter());
+        if(units.length != this.columnConfigList.size()) {
+            LOG.error("Data column length doesn't match with ColumnConfig size. Just skip.");
+            return;
+        }
+
+        String tag = CommonUtils.trimTag(units[this.tagColumnNum]);
+        if(this.isLinearTarget ? !NumberUtils.isNumber(tag) : !this.tags.contains(tag)) {
+            context.getCounter(Constants.SHIFU_GROUP_COUNTER, "INVALID_TAG").increment(1L);
+            return;
+        }
+
+        // binning sampling, the same as AddColumnNumAndFilterUDF
+        if(PartialBinningUtils.isSampledOut(modelConfig, this.isLinearTarget, this.negTags, tag, this.random)) {
+            return;
+        }
+
+        double weight = getWeight(units, context);
+
+        List<Boolean> filterResults = null;
+        if(this.isForExpressions) {
+            filterResults = new ArrayList<Boolean>(this.expressionDataPurifiers.size());
+            for(DataPurifier dp: this.expressionDataPurifiers) {
+                filterResults.add(dp.isFilter(valueStr));
+            }
+        }
+
+        boolean isPositive = modelConfig.isRegression() && this.posTags.contains(tag);
+        for(int i = 0; i < units.length; i++) {
+            ColumnConfig config = this.columnConfigList.get(i);
+            if(!PartialBinningUtils.isValidRecord(modelConfig, isPositive, config)) {
+                continue;
+            }
+            addData(i, i, units[i], weight);
+            if(this.isForExpressions) {
+                for(int j = 0; j < this.expressionDataPurifiers.size(); j++) {
+                    Boolean filter = filterResults.get(j);
+                    if(filter == null || !filter) {
+                        continue;
+                    }
+                    DataPurifier dataPurifier = this.expressionDataPurifiers.get(j);
+                    if(dataPurifier.isNewTag()) {
+                        String newTag = units[this.newTagIndexes.get(j)];
+                        if(newTag == null || (!dataPurifier.getNewPosTags().contains(newTag)
+                                && !dataPurifier.getNewNegTags().contains(newTag))) {
+                            context.getCounter(Constants.SHIFU_GROUP_COUNTER, "INVALID_EXTENSION_TAG")
+                                    .increment(1L);
+                            continue;
+                        }
+                    }
+                    addData(i, (j + 1) * units.length + i, units[i], weight);
+                }
+            }
+        }
+    }
+
+    private double getWeight(String[] units, Context context) {
+        if(this.weightedColumnNum < 0) {
+            return 1d;
+        }
+        double weight = PartialBinningUtils.parseWeight(units[this.weightedColumnNum]);
+        if(Double.isNaN(weight) || weight < 0d) {
+            context.getCounter(Constants.SHIFU_GROUP_COUNTER, "INVALID_WEIGHT_RECORDS").increment(1L);
+        }
+        return Double.isNaN(weight) ? 1d : weight;
+    }
+
+    private void addData(int columnIndex, int newCCIndex, String value, double weight) {
+        ColumnConfig columnConfig = this.columnConfigList.get(columnIndex);
+        // reduced to precision type, invalid numbers are skipped as null value in pig
+        String valStr = PartialBinningUtils.toPrecisionValue(this.precisionType, columnConfig, value);
+        if(valStr == null) {
+            return;
+        }
+
+        AbstractBinning<?> binning = this.columnBinning.get(newCCIndex);
+        if(binning == null) {
+            binning = PartialBinningUtils.newBinning(modelConfig, columnConfig, this.maxCategorySize);
+            this.columnBinning.put(newCCIndex, binning);
+            AbstractBinning<?> backupBinning = PartialBinningUtils.newBackupBinning(modelConfig, columnConfig,
+                    this.maxCategorySize);
+            if(backupBinning != null) {
+                this.hybridBinning.put(newCCIndex, backupBinning);
+            }
+        }
+        PartialBinningUtils.addData(modelConfig, columnConfig, binning, this.hybridBinning.get(newCCIndex), valStr,
+                weight);
+    }
+
+    /**
+     * Write partial binning of each column to reducer for merging.
+     */
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        for(Map.Entry<Integer, AbstractBinning<?>> entry: this.columnBinning.entrySet()) {
+            this.outputKey.set(entry.getKey());
+            this.outputValue.set(
+                    PartialBinningUtils.toPartialString(entry.getValue(), this.hybridBinning.get(entry.getKey())));
+            context.write(this.outputKey, this.outputValue);
+        }
+    }
+
+}
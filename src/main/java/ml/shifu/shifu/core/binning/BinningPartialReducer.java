@@ -0,0 +1,107 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.binning;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
+import ml.shifu.shifu.core.dtrain.CommonConstants;
+import ml.shifu.shifu.fs.PathFinder;
+import ml.shifu.shifu.util.CommonUtils;
+import ml.shifu.shifu.util.Constants;
+import ml.shifu.shifu.util.HDFSUtils;
+
+/**
+ * {@link BinningPartialReducer} merges partial binning of one column from all {@link BinningPartialMapper}s and writes
+ * bin boundaries or categories in the same format as BinningDataMergeUDF: column id, binning data info and
+ * cardinality split by output delimiter, which is read by {@link UpdateBinningInfoMapper}.
+ */
+public class BinningPartialReducer extends Reducer<IntWritable, Text, NullWritable, Text> {
+
+    private final static Logger LOG = LoggerFactory.getLogger(BinningPartialReducer.class);
+
+    private ModelConfig modelConfig;
+
+    private List<ColumnConfig> columnConfigList;
+
+    private int maxCategorySize;
+
+    private String outputDelimiter;
+
+    private Text outputValue;
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        // inject fs.defaultFS from UDFContext.getUDFContext().getJobConf()
+        HDFSUtils.getConf().set(FileSystem.FS_DEFAULT_NAME_KEY,
+                context.getConfiguration().get(FileSystem.FS_DEFAULT_NAME_KEY));
+        SourceType sourceType = SourceType.valueOf(
+                context.getConfiguration().get(Constants.SHIFU_MODELSET_SOURCE_TYPE, SourceType.HDFS.toString()));
+        this.modelConfig = CommonUtils.loadModelConfig(context.getConfiguration().get(Constants.SHIFU_MODEL_CONFIG),
+                sourceType);
+        if(modelConfig.isMultiTask()) {
+            int mtlIndex = context.getConfiguration().getInt(CommonConstants.MTL_INDEX, -1);
+            this.modelConfig.setMtlIndex(mtlIndex);
+            this.columnConfigList = CommonUtils.loadColumnConfigList(
+                    new PathFinder(this.modelConfig).getMTLColumnConfigPath(SourceType.HDFS, mtlIndex), sourceType);
+        } else {
+            this.columnConfigList = CommonUtils
+                    .loadColumnConfigList(context.getConfiguration().get(Constants.SHIFU_COLUMN_CONFIG), sourceType);
+        }
+        this.maxCategorySize = context.getConfiguration().getInt(Constants.SHIFU_MAX_CATEGORY_SIZE,
+                Constants.MAX_CATEGORICAL_BINC_COUNT);
+        this.outputDelimiter = context.getConfiguration().get(Constants.SHIFU_OUTPUT_DATA_DELIMITER,
+                Constants.DEFAULT_DELIMITER);
+        this.outputValue = new Text();
+    }
+
+    @Override
+    protected void reduce(IntWritable key, Iterable<Text> values, Context context)
+            throws IOException, InterruptedException {
+        int columnId = key.get();
+        ColumnConfig columnConfig = this.columnConfigList.get(columnId % this.columnConfigList.size());
+
+        AbstractBinning<?>[] merged = null;
+        int partials = 0;
+        for(Text value: values) {
+            merged = PartialBinningUtils.mergePartial(modelConfig, columnConfig, merged, value.toString(),
+                    this.maxCategorySize);
+            partials += 1;
+        }
+        if(merged == null) {
+            return;
+        }
+
+        String binStr = PartialBinningUtils.toBinningInfo(columnConfig, merged, this.maxCategorySize);
+        long cardinality = PartialBinningUtils.cardinality(columnConfig, merged);
+
+        LOG.info("Merged {} partial binning for column {}.", partials, columnId);
+        this.outputValue.set(columnId + this.outputDelimiter + binStr + this.outputDelimiter + cardinality);
+        context.write(NullWritable.get(), this.outputValue);
+    }
+
+}
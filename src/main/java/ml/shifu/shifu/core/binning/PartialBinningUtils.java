@@ -0,0 +1,358 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.binning;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.container.obj.ModelStatsConf.BinningAlgorithm;
+import ml.shifu.shifu.container.obj.ModelStatsConf.BinningMethod;
+import ml.shifu.shifu.udf.CalculateStatsUDF;
+import ml.shifu.shifu.udf.norm.PrecisionType;
+import ml.shifu.shifu.util.BinUtils;
+import ml.shifu.shifu.util.CommonUtils;
+import ml.shifu.shifu.util.Constants;
+
+/**
+ * {@link PartialBinningUtils} is shared by the Pig binning path (AddColumnNumAndFilterUDF, BinningPartialDataUDF and
+ * BinningDataMergeUDF) and the MapReduce binning path ({@link BinningPartialMapper} and
+ * {@link BinningPartialReducer}) so that both paths filter, sample, build and merge column binning the same way.
+ *
+ * <p>
+ * Merged binning of one column is kept in an array of two: index 0 is the binning of the column and index 1 is the
+ * backup {@link CategoricalBinning} of hybrid columns (null for other columns).
+ */
+public final class PartialBinningUtils {
+
+    private final static Logger LOG = LoggerFactory.getLogger(PartialBinningUtils.class);
+
+    /**
+     * Avoid using new for our utility class.
+     */
+    private PartialBinningUtils() {
+    }
+
+    /**
+     * If binning method is one of weighted binning methods.
+     *
+     * @param modelConfig
+     *            model config
+     * @return true if values should be added with record weight
+     */
+    public static boolean isWeightBinningMethod(ModelConfig modelConfig) {
+        BinningMethod method = modelConfig.getBinningMethod();
+        return method.equals(BinningMethod.WeightEqualTotal) || method.equals(BinningMethod.WeightEqualInterval)
+                || method.equals(BinningMethod.WeightEqualPositive) || method.equals(BinningMethod.WeightEqualNegative);
+    }
+
+    /**
+     * Check if value of one column in current record should be added into binning. For binary classification,
+     * EqualPositive and EqualNegative methods only bin values of positive or negative records.
+     *
+     * @param modelConfig
+     *            model config
+     * @param isPositive
+     *            if current record is positive
+     * @param columnConfig
+     *            column config of the value
+     * @return true if the value should be binned
+     */
+    public static boolean isValidRecord(ModelConfig modelConfig, boolean isPositive, ColumnConfig columnConfig) {
+        if(columnConfig == null) {
+            return false;
+        }
+        if(modelConfig.isRegression()) {
+            return columnConfig.isCategorical() || isValidBinningMethodForBinary(modelConfig, isPositive);
+        } else {
+            return columnConfig.isCategorical() || isValidBinningMethod(modelConfig);
+        }
+    }
+
+    private static boolean isValidBinningMethodForBinary(ModelConfig modelConfig, boolean isPositive) {
+        BinningMethod method = modelConfig.getBinningMethod();
+        return modelConfig.getBinningAlgorithm().equals(BinningAlgorithm.DynamicBinning)
+                || method.equals(BinningMethod.EqualTotal) || method.equals(BinningMethod.EqualInterval)
+                || (method.equals(BinningMethod.EqualPositive) && isPositive)
+                || (method.equals(BinningMethod.EqualNegative) && !isPositive)
+                || method.equals(BinningMethod.WeightEqualTotal) || method.equals(BinningMethod.WeightEqualInterval)
+                || (method.equals(BinningMethod.WeightEqualPositive) && isPositive)
+                || (method.equals(BinningMethod.WeightEqualNegative) && !isPositive);
+    }
+
+    private static boolean isValidBinningMethod(ModelConfig modelConfig) {
+        BinningMethod method = modelConfig.getBinningMethod();
+        return method.equals(BinningMethod.EqualTotal) || method.equals(BinningMethod.EqualInterval)
+                || method.equals(BinningMethod.WeightEqualTotal) || method.equals(BinningMethod.WeightEqualInterval);
+    }
+
+    /**
+     * Binning sampling by binningSampleRate, only negative records are sampled if sampleNegOnly is set for binary
+     * classification.
+     *
+     * @param modelConfig
+     *            model config
+     * @param isLinearTarget
+     *            if target is numerical
+     * @param negTags
+     *            negative tags
+     * @param tag
+     *            tag of current record
+     * @param random
+     *            random instance for sampling
+     * @return true if current record is sampled out and should be skipped
+     */
+    public static boolean isSampledOut(ModelConfig modelConfig, boolean isLinearTarget, Set<String> negTags,
+            String tag, Random random) {
+        Double rate = modelConfig.getBinningSampleRate();
+        if(!isLinearTarget && !modelConfig.isClassification() && modelConfig.isBinningSampleNegOnly()) {
+            return negTags.contains(tag) && random.nextDouble() > rate;
+        }
+        return random.nextDouble() > rate;
+    }
+
+    /**
+     * Parse weight column value.
+     *
+     * @param weightVal
+     *            raw weight value
+     * @return weight, NaN if weight is null or not a number
+     */
+    public static double parseWeight(Object weightVal) {
+        if(weightVal == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(weightVal.toString());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Reduce numerical value to precision type before binning.
+     *
+     * @param precisionType
+     *            precision type, null means not set
+     * @param columnConfig
+     *            column config of the value
+     * @param value
+     *            raw value
+     * @return value to be binned, null if value is null or numerical value cannot be parsed
+     */
+    public static String toPrecisionValue(PrecisionType precisionType, ColumnConfig columnConfig, Object value) {
+        if(value == null) {
+            return null;
+        }
+        if(precisionType == null || columnConfig.isCategorical()) {
+            return value.toString();
+        }
+        try {
+            return precisionType.to(Double.parseDouble(value.toString())).toString();
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * New streaming binning of one column: {@link CategoricalBinning} for categorical columns,
+     * {@link EqualIntervalBinning} or {@link EqualPopulationBinning} for numerical and hybrid columns.
+     *
+     * @param modelConfig
+     *            model config
+     * @param columnConfig
+     *            column config
+     * @param maxCategorySize
+     *            max category size
+     * @return binning of the column
+     */
+    public static AbstractBinning<?> newBinning(ModelConfig modelConfig, ColumnConfig columnConfig,
+            int maxCategorySize) {
+        int maxNumBin = modelConfig.getStats().getMaxNumBin() > 0 ? modelConfig.getStats().getMaxNumBin() : 1024;
+        if(columnConfig.isCategorical()) {
+            return new CategoricalBinning(-1, modelConfig.getMissingOrInvalidValues(), maxCategorySize,
+                    columnConfig.getHashSeed());
+        } else if(modelConfig.getBinningMethod().equals(BinningMethod.EqualInterval)) {
+            return new EqualIntervalBinning(maxNumBin, modelConfig.getMissingOrInvalidValues());
+        } else {
+            return new EqualPopulationBinning(maxNumBin, modelConfig.getMissingOrInvalidValues());
+        }
+    }
+
+    /**
+     * New backup binning for missing, non-numerical or below threshold values of hybrid columns.
+     *
+     * @param modelConfig
+     *            model config
+     * @param columnConfig
+     *            column config
+     * @param maxCategorySize
+     *            max category size
+     * @return backup binning, null if column is not hybrid
+     */
+    public static AbstractBinning<?> newBackupBinning(ModelConfig modelConfig, ColumnConfig columnConfig,
+            int maxCategorySize) {
+        if(!columnConfig.isHybrid()) {
+            return null;
+        }
+        return new CategoricalBinning(-1, modelConfig.getMissingOrInvalidValues(), maxCategorySize);
+    }
+
+    /**
+     * Add one value into binning of its column, missing, non-numerical or below hybrid threshold values of hybrid
+     * columns are also added into backup binning.
+     *
+     * @param modelConfig
+     *            model config
+     * @param columnConfig
+     *            column config
+     * @param binning
+     *            binning of the column
+     * @param backupBinning
+     *            backup binning of hybrid column, null for other columns
+     * @param valStr
+     *            value to be binned
+     * @param weight
+     *            record weight, only used in weighted binning methods
+     */
+    public static void addData(ModelConfig modelConfig, ColumnConfig columnConfig, AbstractBinning<?> binning,
+            AbstractBinning<?> backupBinning, String valStr, double weight) {
+        if(isWeightBinningMethod(modelConfig) && binning instanceof EqualPopulationBinning) {
+            ((EqualPopulationBinning) binning).addData(valStr, weight);
+        } else {
+            binning.addData(valStr);
+        }
+
+        if(columnConfig.isHybrid()) {
+            // missing value and not number value go to categorical binning
+            double douVal = BinUtils.parseNumber(valStr);
+            Double hybridThreshold = columnConfig.getHybridThreshold();
+            if(hybridThreshold == null) {
+                hybridThreshold = Double.NEGATIVE_INFINITY;
+            }
+            // douVal < hybridThreshold which will also be set to category
+            if(binning.isMissingVal(valStr) || Double.isNaN(douVal) || douVal < hybridThreshold) {
+                backupBinning.addData(valStr);
+            }
+        }
+    }
+
+    /**
+     * Serialize partial binning to be merged by {@link #mergePartial(ModelConfig, ColumnConfig, AbstractBinning[],
+     * String, int)}.
+     *
+     * @param binning
+     *            binning of the column
+     * @param backupBinning
+     *            backup binning of hybrid column, null for other columns
+     * @return partial binning string
+     */
+    public static String toPartialString(AbstractBinning<?> binning, AbstractBinning<?> backupBinning) {
+        if(binning == null) {
+            return null;
+        }
+        String binningObjStr = binning.objToString();
+        if(backupBinning != null) {
+            binningObjStr += Constants.HYBRID_BIN_STR_DILIMETER + backupBinning.objToString();
+        }
+        return binningObjStr;
+    }
+
+    /**
+     * Merge one partial binning string into merged binning of the column.
+     *
+     * @param modelConfig
+     *            model config
+     * @param columnConfig
+     *            column config
+     * @param merged
+     *            merged binning and backup binning, null for the first partial binning
+     * @param partialStr
+     *            partial binning string from {@link #toPartialString(AbstractBinning, AbstractBinning)}
+     * @param maxCategorySize
+     *            max category size
+     * @return merged binning and backup binning
+     */
+    public static AbstractBinning<?>[] mergePartial(ModelConfig modelConfig, ColumnConfig columnConfig,
+            AbstractBinning<?>[] merged, String partialStr, int maxCategorySize) {
+        String objValStr = partialStr;
+        AbstractBinning<?> partialBackupBinning = null;
+        // for hybrid, split
+        if(columnConfig.isHybrid()) {
+            String[] splits = CommonUtils.split(partialStr, Constants.HYBRID_BIN_STR_DILIMETER);
+            objValStr = splits[0];
+            partialBackupBinning = new CategoricalBinning();
+            partialBackupBinning.stringToObj(splits[1]);
+        }
+        AbstractBinning<?> partialBinning = AbstractBinning.constructBinningFromStr(modelConfig, columnConfig,
+                objValStr, maxCategorySize);
+
+        if(merged == null) {
+            return new AbstractBinning<?>[] { partialBinning, partialBackupBinning };
+        }
+        merged[0].mergeBin(partialBinning);
+        if(columnConfig.isHybrid()) {
+            merged[1].mergeBin(partialBackupBinning);
+        }
+        return merged;
+    }
+
+    /**
+     * Bin boundaries or categories of merged binning, categories of hybrid columns are appended after hybrid
+     * delimiter.
+     *
+     * @param columnConfig
+     *            column config
+     * @param merged
+     *            merged binning and backup binning
+     * @param maxCategorySize
+     *            max category size
+     * @return binning data info
+     */
+    public static String toBinningInfo(ColumnConfig columnConfig, AbstractBinning<?>[] merged, int maxCategorySize) {
+        List<?> binFields = merged[0].getDataBin();
+        String binStr = StringUtils.join(binFields, CalculateStatsUDF.CATEGORY_VAL_SEPARATOR);
+        if(columnConfig.isCategorical() && binFields.size() > maxCategorySize) {
+            LOG.warn("{} {} is over maximal categorical size: {}, better to use hash column or check if it is "
+                    + "numerical variable.", columnConfig.getColumnNum(), columnConfig.getColumnName(),
+                    maxCategorySize);
+        } else if(columnConfig.isHybrid()) {
+            binStr += Constants.HYBRID_BIN_STR_DILIMETER
+                    + StringUtils.join(merged[1].getDataBin(), CalculateStatsUDF.CATEGORY_VAL_SEPARATOR);
+        }
+        return binStr;
+    }
+
+    /**
+     * Cardinality of categorical columns.
+     *
+     * @param columnConfig
+     *            column config
+     * @param merged
+     *            merged binning and backup binning
+     * @return cardinality of categorical column, -1 for other columns
+     */
+    public static long cardinality(ColumnConfig columnConfig, AbstractBinning<?>[] merged) {
+        return columnConfig.isCategorical() ? ((CategoricalBinning) merged[0]).cardinality() : -1L;
+    }
+
+}
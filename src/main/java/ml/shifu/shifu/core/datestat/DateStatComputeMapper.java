@@ -419,7 +419,7 @@ public class DateStatComputeMapper extends Mapper<LongWritable, Text, Text, Date
                 }
             } else {
                 // For invalid or missing values, no need update sum, squaredSum, max, min ...
-                int binNum = getBinNum(columnConfig.getBinBoundary(), units[columnIndex]);
+                int binNum = getBinNum(columnConfig.getBinBoundaryArray(), units[columnIndex]);
                 if(binNum == -1) {
                     throw new RuntimeException("binNum should not be -1 to this step.");
                 }
@@ -461,6 +461,19 @@ public class DateStatComputeMapper extends Mapper<LongWritable, Text, Text, Date
         return BinUtils.getBinIndex(binBoundaryList, dval);
     }
 
+    public static int getBinNum(double[] binBoundaries, String columnVal) {
+        if(StringUtils.isBlank(columnVal)) {
+            return -1;
+        }
+        double dval = 0.0;
+        try {
+            dval = Double.parseDouble(columnVal);
+        } catch (Exception e) {
+            return -1;
+        }
+        return BinUtils.getBinIndex(binBoundaries, dval);
+    }
+
     public static int getBinNum(List<Double> binBoundaryList, double dVal) {
         return BinUtils.getBinIndex(binBoundaryList, dVal);
     }
@@ -44,18 +44,67 @@ public interface CommonConstants {
 
     public static final String SHIFU_TRAINER_ID = "shifu.trainer.id";
 
+    // comma separated trainer ids of all models trained in one job, see SHIFU_TRAIN_MODELS_IN_ONE_JOB
+    public static final String SHIFU_TRAINER_IDS = "shifu.trainer.ids";
+
+    // comma separated model output paths of trainers in SHIFU_TRAINER_IDS
+    public static final String SHIFU_TRAINER_OUTPUTS = "shifu.trainer.outputs";
+
+    // comma separated validation error output paths of trainers in SHIFU_TRAINER_IDS
+    public static final String SHIFU_TRAINER_VALIDATION_ERRORS = "shifu.trainer.validation.errors";
+
     public static final String SHIFU_DTRAIN_PROGRESS_FILE = "shifu.progress.file";
 
     public static final String CROSS_VALIDATION_DIR = "shifu.crossValidation.dir";
 
     public static final String SHIFU_TRAIN_BAGGING_INPARALLEL = "shifu.train.bagging.inparallel";
 
+    // if true, bagging or grid search LR models are trained together in one job which loads data only once
+    public static final String SHIFU_TRAIN_MODELS_IN_ONE_JOB = "shifu.train.models.in.one.job";
+
+    // if true, parsed normalized data of each split are cached in binary files and reused by later training jobs
+    public static final String SHIFU_TRAIN_DATA_CACHE = "shifu.train.data.cache";
+
+    // folder of parsed normalized data cache, only set by client if SHIFU_TRAIN_DATA_CACHE is enabled
+    public static final String SHIFU_TRAIN_DATA_CACHE_DIR = "shifu.train.data.cache.dir";
+
+    // if true, normalized data is in Shifu binary format written by norm step with normalize#isBinary
+    public static final String SHIFU_NORM_BINARY = "shifu.norm.binary";
+
     public static final String CONTINUOUS_TRAINING = "shifu.continuous.training";
 
     public static final String SHIFU_DT_MASTER_CHECKPOINT_INTERVAL = "shifu.dt.master.checkpoint.interval";
 
     public static final String SHIFU_DT_MASTER_CHECKPOINT_FOLDER = "shifu.dt.master.checkpoint.folder";
 
+    // Threads of DT master to merge worker stats in groups and compute node splits in parallel
+    public static final String SHIFU_DT_MASTER_THREAD_COUNT = "shifu.dt.master.thread.count";
+
+    // Used to enable per record node index in DT worker to avoid walking trees from root in each iteration
+    public static final String SHIFU_DT_WORKER_NODE_INDEX_ENABLE = "shifu.dt.worker.node.index.enable";
+
+    // Used to enable histogram subtraction (child stats = parent stats - sibling stats) in DT worker
+    public static final String SHIFU_DT_WORKER_HIST_SUBTRACTION_ENABLE = "shifu.dt.worker.hist.subtraction.enable";
+
+    // Max heap fraction of node index or cached node stats in DT worker
+    public static final String SHIFU_DT_WORKER_CACHE_MEMORY_FRACTION = "shifu.dt.worker.cache.memoryFraction";
+
+    // Out of heap storage of DT worker data over heap budget, 'mmap' for memory mapped temp file or 'direct' buffers
+    public static final String SHIFU_DT_WORKER_STORE_SPILL_MODE = "shifu.dt.worker.store.spill";
+
+    // Stats building mode of DT worker threads: 'row', 'feature' or 'auto' (default)
+    public static final String SHIFU_DT_WORKER_STATS_PARALLEL = "shifu.dt.worker.stats.parallel";
+
+    // Node stats encoding from DT worker to master, comma separated of 'sparse', 'varint', 'float', 'deflate' or 'raw'
+    public static final String SHIFU_DT_WORKER_STATS_ENCODING = "shifu.dt.worker.stats.encoding";
+
+    // # of records computed in one block by each NN worker thread, 0 (default) to compute record by record
+    public static final String SHIFU_NN_WORKER_BATCH_COMPUTE_SIZE = "shifu.nn.worker.batch.compute.size";
+
+    // # of iterations between full WDL weights sent by master, weights updated in last iteration are only sent in
+    // other iterations; 0 (default) to send full weights in each iteration
+    public static final String SHIFU_WDL_FULL_WEIGHTS_INTERVAL = "shifu.wdl.full.weights.interval";
+
     // Used to enable input layer dropout
     public static final String SHIFU_TRAIN_NN_INPUTLAYERDROPOUT_ENABLE = "shifu.train.nn.inputlayerdropout.enable";
 
@@ -63,6 +112,16 @@ public interface CommonConstants {
 
     public static final String SHIFU_DAILYSTAT_REDUCER = "shifu.datestat.reducer";
 
+    // build partial binning of all columns in mappers instead of flattening records to column tuples in pig
+    public static final String SHIFU_STATS_MAPSIDE_BINNING = "shifu.stats.mapside.binning";
+
+    public static final String SHIFU_BINNING_PARTIAL_REDUCER = "shifu.binning.partial.reducer";
+
+    // compute eval performance from score histograms merged in combiners instead of sorting all eval scores
+    public static final String SHIFU_EVAL_HISTOGRAM = "shifu.eval.histogram";
+
+    public static final String SHIFU_EVAL_HISTOGRAM_BUCKETS = "shifu.eval.histogram.buckets";
+
     public static final String SHIFU_NN_FEATURE_SUBSET = "shifu.nn.feature.subset";
 
     public static final String SHIFU_TREE_CHECKPOINT_INTERVAL = "shifu.tree.checkpoint.interval";
@@ -97,6 +156,10 @@ public interface CommonConstants {
 
     public static final String DROPOUT_RATE = "DropoutRate";
 
+    public static final String GOSS_TOP_RATE = "GOSSTopRate";
+
+    public static final String GOSS_OTHER_RATE = "GOSSOtherRate";
+
     public static final String PROPAGATION = "Propagation";
 
     public static final String OUTPUT_ACTIVATION_FUNC = "OutputActivationFunc";
@@ -126,6 +189,13 @@ public interface CommonConstants {
 
     public static final String MINI_BATCH = "MiniBatchs";
 
+    // wire encoding of NN/LR weights and gradients like 'float,deflate' or 'half,delta,deflate', raw doubles if not set
+    public static final String PARAMS_ENCODING = "ParamsEncoding";
+
+    // max iterations NN gradients of workers missed by master (not in min workers ratio) are carried into later
+    // iterations, 0 (default) to drop late gradients
+    public static final String STALENESS_BOUND = "StalenessBound";
+
     /* -------------- TF Constants ---------------------- */
     public static final String TF_OPTIMIZER = "TF.optimizer";
 
@@ -337,6 +337,51 @@ public final class DTrainUtils {
                 .append(trainerId).append('-').append(iteration).append(".").append(modelPost).toString();
     }
 
+    /**
+     * Get trainer ids of all models trained in current job.
+     * 
+     * @param props
+     *            the job properties
+     * @return trainer ids in {@link CommonConstants#SHIFU_TRAINER_IDS}, or the only trainer id in
+     *         {@link CommonConstants#SHIFU_TRAINER_ID} if not set
+     */
+    public static int[] getTrainerIds(Properties props) {
+        String trainerIds = props.getProperty(CommonConstants.SHIFU_TRAINER_IDS);
+        if(StringUtils.isBlank(trainerIds)) {
+            return new int[] { Integer.parseInt(props.getProperty(CommonConstants.SHIFU_TRAINER_ID, "0")) };
+        }
+        String[] ids = trainerIds.split(",");
+        int[] results = new int[ids.length];
+        for(int i = 0; i < ids.length; i++) {
+            results[i] = Integer.parseInt(ids[i].trim());
+        }
+        return results;
+    }
+
+    /**
+     * Check if any worker side setting like {@link CommonConstants#MINI_BATCH} or
+     * {@link CommonConstants#PARAMS_ENCODING} differs in grid search params. Models trained in one job share one worker
+     * and one wire encoding, such grid search has to be trained in one job per model.
+     * 
+     * @param paramsList
+     *            flatten grid search params, one map per model
+     * @return true if any worker side setting has different values in the given params
+     */
+    public static boolean isWorkerParamsVaried(List<Map<String, Object>> paramsList) {
+        if(paramsList == null || paramsList.size() <= 1) {
+            return false;
+        }
+        for(String key: new String[] { CommonConstants.MINI_BATCH, CommonConstants.PARAMS_ENCODING }) {
+            String first = String.valueOf(paramsList.get(0).get(key));
+            for(int i = 1; i < paramsList.size(); i++) {
+                if(!first.equals(String.valueOf(paramsList.get(i).get(key)))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     public static int tmpModelFactor(int epochs) {
         return Math.max(epochs / 25, 20);
     }
@@ -0,0 +1,176 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ml.shifu.guagua.util.NumberFormatUtils;
+import ml.shifu.shifu.guagua.GuaguaNormCacheRecordReader;
+import ml.shifu.shifu.util.NumberCodec;
+
+/**
+ * {@link NormFields} is the view of fields in one line of normalized data. Fields are either raw strings split from
+ * the text line, ranges of the text line which are parsed in place without field strings, or float values parsed
+ * before and read from cache by {@link GuaguaNormCacheRecordReader}.
+ *
+ * <p>
+ * Empty, invalid or NaN values are returned as default value in both cases which is the same as
+ * {@link DTrainUtils#parseRawNormValue(String[], int, float)}.
+ */
+public class NormFields {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NormFields.class);
+
+    /**
+     * Raw string fields, null if fields are parsed float values
+     */
+    private List<String> strings;
+
+    /**
+     * Parsed float values with NaN for missing values, null if fields are raw strings
+     */
+    private float[] values;
+
+    /**
+     * Text line, null if fields are not ranges of line
+     */
+    private String line;
+
+    /**
+     * Start and end index of each field in line, reused for all lines
+     */
+    private int[] starts = new int[16];
+
+    private int[] ends = new int[16];
+
+    private int lineFields;
+
+    public NormFields reset(List<String> strings) {
+        this.strings = strings;
+        this.values = null;
+        this.line = null;
+        return this;
+    }
+
+    public NormFields reset(float[] values) {
+        this.values = values;
+        this.strings = null;
+        this.line = null;
+        return this;
+    }
+
+    /**
+     * Reset fields as ranges of the text line split by delimiter, the same as {@code Splitter.on(delimiter)}, which
+     * keeps empty fields and doesn't trim fields.
+     */
+    public NormFields reset(String line, String delimiter) {
+        if(delimiter.length() == 0) {
+            throw new IllegalArgumentException("The delimiter may not be the empty string.");
+        }
+        this.line = line;
+        this.strings = null;
+        this.values = null;
+        this.lineFields = 0;
+        int start = 0;
+        while(true) {
+            if(this.lineFields == this.starts.length) {
+                this.starts = Arrays.copyOf(this.starts, this.lineFields * 2);
+                this.ends = Arrays.copyOf(this.ends, this.lineFields * 2);
+            }
+            int end = line.indexOf(delimiter, start);
+            this.starts[this.lineFields] = start;
+            if(end < 0) {
+                this.ends[this.lineFields++] = line.length();
+                break;
+            }
+            this.ends[this.lineFields++] = end;
+            start = end + delimiter.length();
+        }
+        return this;
+    }
+
+    public int size() {
+        if(this.line != null) {
+            return this.lineFields;
+        }
+        return this.values == null ? this.strings.size() : this.values.length;
+    }
+
+    public float getFloat(int pos, float defVal) {
+        checkRange(pos);
+        if(this.values != null) {
+            return Float.isNaN(this.values[pos]) ? defVal : this.values[pos];
+        }
+        if(this.line != null) {
+            float fval = NumberCodec.parseFloat(this.line, this.starts[pos], this.ends[pos], defVal);
+            return Float.isNaN(fval) ? defVal : fval;
+        }
+        String input = this.strings.get(pos);
+        // check here to avoid bad performance in failed NumberFormatUtils.getFloat(input, 0f)
+        float fval = ((input.length() == 0) ? defVal : NumberFormatUtils.getFloat(input, defVal));
+        return Float.isNaN(fval) ? defVal : fval;
+    }
+
+    public double getDouble(int pos, double defVal) {
+        checkRange(pos);
+        if(this.values != null) {
+            return Float.isNaN(this.values[pos]) ? defVal : this.values[pos];
+        }
+        if(this.line != null) {
+            double dval = NumberCodec.parseDouble(this.line, this.starts[pos], this.ends[pos], defVal);
+            return Double.isNaN(dval) ? defVal : dval;
+        }
+        String input = this.strings.get(pos);
+        // check here to avoid bad performance in failed NumberFormatUtils.getDouble(input, 0d)
+        double dval = ((input.length() == 0) ? defVal : NumberFormatUtils.getDouble(input, defVal));
+        return Double.isNaN(dval) ? defVal : dval;
+    }
+
+    /**
+     * Hash code of one field used to split training and validation data in fixed initial input mode.
+     */
+    public int fieldHash(int pos) {
+        checkRange(pos);
+        if(this.line != null) {
+            // the same as String#hashCode of the field
+            int hash = 0;
+            for(int i = this.starts[pos]; i < this.ends[pos]; i++) {
+                hash = 31 * hash + this.line.charAt(i);
+            }
+            return hash;
+        }
+        return this.values == null ? this.strings.get(pos).hashCode() : Float.floatToIntBits(this.values[pos]);
+    }
+
+    private void checkRange(int pos) {
+        if(pos >= size()) { // out of range, when fetching normalization data element
+            LOG.error("Normalization data set doesn't match. Out of Range {}/{}", pos, size());
+            throw new RuntimeException("Out of range Normalization data doesn't match with ColumnConfig.json.");
+        }
+    }
+
+    /**
+     * Parse one field of normalized data to float, NaN for empty or invalid value.
+     */
+    public static float parse(String input) {
+        return input.length() == 0 ? Float.NaN : NumberFormatUtils.getFloat(input, Float.NaN);
+    }
+
+}
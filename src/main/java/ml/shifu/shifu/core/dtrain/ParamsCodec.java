@@ -0,0 +1,274 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.commons.lang.StringUtils;
+
+import ml.shifu.shifu.udf.norm.PrecisionType;
+
+/**
+ * {@link ParamsCodec} encodes weights or gradients of NN and LR models sent between master and workers.
+ *
+ * <p>
+ * Encoding is combined by flags:
+ * <ul>
+ * <li>{@link #FLOAT}: values are written in float32, lossy.</li>
+ * <li>{@link #HALF}: values are scaled by max absolute value of the array and written in fp16, lossy. Only for
+ * gradients, weights with this flag are written in float32, see {@link #weightFlags(int)}.</li>
+ * <li>{@link #DELTA}: bits of each value are xor-ed with bits of the previous value, lossless. Neighbour weights or
+ * gradients mostly share sign and exponent, which leaves many zero bytes for {@link #DEFLATE}.</li>
+ * <li>{@link #DEFLATE}: encoded bytes are compressed by {@link Deflater} in best speed level.</li>
+ * </ul>
+ * All encoded values are put into one byte buffer and written once. {@link #RAW} writes doubles one by one which is the
+ * same format as before encoding is introduced.
+ */
+public final class ParamsCodec {
+
+    public static final int RAW = 0;
+
+    public static final int FLOAT = 1;
+
+    public static final int HALF = 1 << 1;
+
+    public static final int DELTA = 1 << 2;
+
+    public static final int DEFLATE = 1 << 3;
+
+    /**
+     * Max absolute value of an array is scaled to this value in fp16, far below fp16 max value 65504 while leaving
+     * normal fp16 range for small values.
+     */
+    private static final double HALF_RANGE = 32768d;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private ParamsCodec() {
+    }
+
+    /**
+     * Parse encoding flags from comma separated names like 'float,delta,deflate' or 'half,deflate', 'raw' or blank for
+     * {@link #RAW}.
+     */
+    public static int parseFlags(String encoding) {
+        if(StringUtils.isBlank(encoding)) {
+            return RAW;
+        }
+        int flags = RAW;
+        for(String name: encoding.split(",")) {
+            name = name.trim();
+            if("raw".equalsIgnoreCase(name)) {
+                continue;
+            } else if("float".equalsIgnoreCase(name)) {
+                flags |= FLOAT;
+            } else if("half".equalsIgnoreCase(name)) {
+                flags |= HALF;
+            } else if("delta".equalsIgnoreCase(name)) {
+                flags |= DELTA;
+            } else if("deflate".equalsIgnoreCase(name)) {
+                flags |= DEFLATE;
+            } else {
+                throw new IllegalArgumentException("Invalid params encoding " + name + " in " + encoding);
+            }
+        }
+        return flags;
+    }
+
+    /**
+     * Flags used to write weights: fp16 is too coarse for weights and is replaced by float32.
+     */
+    public static int weightFlags(int flags) {
+        return (flags & HALF) == 0 ? flags : ((flags & ~HALF) | FLOAT);
+    }
+
+    /**
+     * Write values in given encoding, null values are written as an empty array.
+     */
+    public static void write(DataOutput out, double[] values, int flags) throws IOException {
+        int length = values == null ? 0 : values.length;
+        out.writeInt(length);
+        if(flags == RAW) {
+            for(int i = 0; i < length; i++) {
+                out.writeDouble(values[i]);
+            }
+            return;
+        }
+        byte[] bytes = encode(values, length, flags);
+        if((flags & DEFLATE) != 0) {
+            bytes = deflate(bytes);
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Read values written by {@link #write(DataOutput, double[], int)} with the same flags.
+     */
+    public static double[] read(DataInput in, int flags) throws IOException {
+        int length = in.readInt();
+        double[] values = new double[length];
+        if(flags == RAW) {
+            for(int i = 0; i < length; i++) {
+                values[i] = in.readDouble();
+            }
+            return values;
+        }
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        if((flags & DEFLATE) != 0) {
+            bytes = inflate(bytes, encodedSize(length, flags));
+        }
+        decode(ByteBuffer.wrap(bytes), values, flags);
+        return values;
+    }
+
+    private static int encodedSize(int length, int flags) {
+        if((flags & HALF) != 0) {
+            return 8 + 2 * length;
+        } else if((flags & FLOAT) != 0) {
+            return 4 * length;
+        } else {
+            return 8 * length;
+        }
+    }
+
+    private static byte[] encode(double[] values, int length, int flags) {
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(length, flags));
+        boolean delta = (flags & DELTA) != 0;
+        if((flags & HALF) != 0) {
+            double scale = halfScale(values, length);
+            buffer.putDouble(scale);
+            int last = 0;
+            for(int i = 0; i < length; i++) {
+                int bits = PrecisionType.fromFloat((float) (values[i] / scale));
+                buffer.putShort((short) (delta ? bits ^ last : bits));
+                last = bits;
+            }
+        } else if((flags & FLOAT) != 0) {
+            int last = 0;
+            for(int i = 0; i < length; i++) {
+                int bits = Float.floatToRawIntBits((float) values[i]);
+                buffer.putInt(delta ? bits ^ last : bits);
+                last = bits;
+            }
+        } else {
+            long last = 0L;
+            for(int i = 0; i < length; i++) {
+                long bits = Double.doubleToRawLongBits(values[i]);
+                buffer.putLong(delta ? bits ^ last : bits);
+                last = bits;
+            }
+        }
+        return buffer.array();
+    }
+
+    private static void decode(ByteBuffer buffer, double[] values, int flags) {
+        boolean delta = (flags & DELTA) != 0;
+        if((flags & HALF) != 0) {
+            double scale = buffer.getDouble();
+            int last = 0;
+            for(int i = 0; i < values.length; i++) {
+                int bits = buffer.getShort() & 0xffff;
+                if(delta) {
+                    bits ^= last;
+                }
+                values[i] = PrecisionType.toFloat(bits) * scale;
+                last = bits;
+            }
+        } else if((flags & FLOAT) != 0) {
+            int last = 0;
+            for(int i = 0; i < values.length; i++) {
+                int bits = buffer.getInt();
+                if(delta) {
+                    bits ^= last;
+                }
+                values[i] = Float.intBitsToFloat(bits);
+                last = bits;
+            }
+        } else {
+            long last = 0L;
+            for(int i = 0; i < values.length; i++) {
+                long bits = buffer.getLong();
+                if(delta) {
+                    bits ^= last;
+                }
+                values[i] = Double.longBitsToDouble(bits);
+                last = bits;
+            }
+        }
+    }
+
+    /**
+     * Scale of fp16 values, 1 if all values are 0 or any value is not finite which is kept as NaN or infinity in fp16.
+     */
+    private static double halfScale(double[] values, int length) {
+        double max = 0d;
+        for(int i = 0; i < length; i++) {
+            max = Math.max(max, Math.abs(values[i]));
+        }
+        if(max == 0d || Double.isNaN(max) || Double.isInfinite(max)) {
+            return 1d;
+        }
+        return max / HALF_RANGE;
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 2));
+            byte[] buf = new byte[BUFFER_SIZE];
+            while(!deflater.finished()) {
+                int size = deflater.deflate(buf);
+                out.write(buf, 0, size);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes, int size) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            byte[] result = new byte[size];
+            int offset = 0;
+            while(offset < size) {
+                int read = inflater.inflate(result, offset, size - offset);
+                if(read == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Deflated params are truncated, expect " + size + " bytes but got " + offset);
+                }
+                offset += read;
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+}
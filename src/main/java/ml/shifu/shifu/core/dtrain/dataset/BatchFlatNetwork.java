@@ -0,0 +1,233 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.dataset;
+
+import org.encog.engine.network.activation.ActivationFunction;
+import org.encog.neural.flat.FlatNetwork;
+
+/**
+ * {@link BatchFlatNetwork} is to do forward computing of a block of records on one {@link FlatNetwork}. Each layer is
+ * computed as matrix-matrix product of record block and layer weights, one weight row is applied to all records in
+ * the block before next weight row.
+ *
+ * <p>
+ * Layer buffers are allocated once in construction and reused in all calls, records larger than block size are
+ * computed block by block. Per neuron summation order is the same as {@link FlatNetwork#compute(double[], double[])}
+ * which makes scores bit-for-bit identical to per record computing.
+ *
+ * <p>
+ * Such class is not thread-safe as layer buffers are shared, please use one instance per thread. Recurrent network
+ * with context neurons is computed record by record by {@link FlatNetwork#compute(double[], double[])}.
+ */
+public class BatchFlatNetwork {
+
+    /**
+     * Default # of records computed in one block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 128;
+
+    /**
+     * The network to be computed.
+     */
+    private final FlatNetwork flat;
+
+    /**
+     * # of records in one block.
+     */
+    private final int blockSize;
+
+    /**
+     * Layer buffers in the same layer order of {@link FlatNetwork#getLayerIndex()}, each buffer is blockSize *
+     * layerCounts[i] with bias neuron values filled.
+     */
+    private final double[][] layerBuffers;
+
+    /**
+     * If network has context neurons.
+     */
+    private final boolean isRecurrent;
+
+    /**
+     * Input and output buffer for recurrent network.
+     */
+    private final double[] recordInput;
+
+    private final double[] recordOutput;
+
+    public BatchFlatNetwork(FlatNetwork flat) {
+        this(flat, DEFAULT_BLOCK_SIZE);
+    }
+
+    public BatchFlatNetwork(FlatNetwork flat, int blockSize) {
+        if(blockSize <= 0) {
+            throw new IllegalArgumentException("Block size should be positive, but is " + blockSize);
+        }
+        this.flat = flat;
+        this.blockSize = blockSize;
+        this.recordInput = new double[flat.getInputCount()];
+        this.recordOutput = new double[flat.getOutputCount()];
+
+        boolean hasContext = false;
+        for(int size: flat.getContextTargetSize()) {
+            if(size > 0) {
+                hasContext = true;
+                break;
+            }
+        }
+        this.isRecurrent = hasContext;
+
+        int[] layerCounts = flat.getLayerCounts();
+        int[] layerFeedCounts = flat.getLayerFeedCounts();
+        int[] layerIndex = flat.getLayerIndex();
+        double[] layerOutput = flat.getLayerOutput();
+        this.layerBuffers = new double[layerCounts.length][];
+        for(int i = 0; i < layerCounts.length; i++) {
+            int count = layerCounts[i];
+            int feedCount = (i == layerCounts.length - 1) ? flat.getInputCount() : layerFeedCounts[i];
+            double[] buffer = new double[blockSize * count];
+            // bias neurons are never updated in forward computing, fill them once for all records
+            for(int r = 0; r < blockSize; r++) {
+                System.arraycopy(layerOutput, layerIndex[i] + feedCount, buffer, r * count + feedCount, count
+                        - feedCount);
+            }
+            this.layerBuffers[i] = buffer;
+        }
+    }
+
+    /**
+     * Compute network outputs of records in row-major layout.
+     *
+     * @param data
+     *            records in row-major layout, record r starts at r * inputCount
+     * @param numRecords
+     *            # of records
+     * @param output
+     *            output in row-major layout, record r starts at r * outputCount
+     */
+    public void compute(double[] data, int numRecords, double[] output) {
+        int inputCount = this.flat.getInputCount();
+        for(int start = 0; start < numRecords; start += this.blockSize) {
+            int rows = Math.min(this.blockSize, numRecords - start);
+            if(this.isRecurrent) {
+                for(int r = 0; r < rows; r++) {
+                    System.arraycopy(data, (start + r) * inputCount, this.recordInput, 0, inputCount);
+                    computeRecord(start + r, output);
+                }
+                continue;
+            }
+            double[] inputs = this.layerBuffers[this.layerBuffers.length - 1];
+            int stride = this.flat.getLayerCounts()[this.layerBuffers.length - 1];
+            for(int r = 0; r < rows; r++) {
+                System.arraycopy(data, (start + r) * inputCount, inputs, r * stride, inputCount);
+            }
+            computeBlock(start, rows, output);
+        }
+    }
+
+    /**
+     * Compute network outputs of records in columnar layout.
+     *
+     * @param columns
+     *            records in columnar layout, columns[i][r] is input i of record r
+     * @param numRecords
+     *            # of records
+     * @param output
+     *            output in row-major layout, record r starts at r * outputCount
+     */
+    public void compute(double[][] columns, int numRecords, double[] output) {
+        int inputCount = this.flat.getInputCount();
+        for(int start = 0; start < numRecords; start += this.blockSize) {
+            int rows = Math.min(this.blockSize, numRecords - start);
+            if(this.isRecurrent) {
+                for(int r = 0; r < rows; r++) {
+                    for(int i = 0; i < inputCount; i++) {
+                        this.recordInput[i] = columns[i][start + r];
+                    }
+                    computeRecord(start + r, output);
+                }
+                continue;
+            }
+            double[] inputs = this.layerBuffers[this.layerBuffers.length - 1];
+            int stride = this.flat.getLayerCounts()[this.layerBuffers.length - 1];
+            for(int i = 0; i < inputCount; i++) {
+                double[] column = columns[i];
+                for(int r = 0, offset = i; r < rows; r++, offset += stride) {
+                    inputs[offset] = column[start + r];
+                }
+            }
+            computeBlock(start, rows, output);
+        }
+    }
+
+    private void computeRecord(int record, double[] output) {
+        this.flat.compute(this.recordInput, this.recordOutput);
+        System.arraycopy(this.recordOutput, 0, output, record * this.recordOutput.length, this.recordOutput.length);
+    }
+
+    private void computeBlock(int start, int rows, double[] output) {
+        for(int i = this.layerBuffers.length - 1; i > 0; i--) {
+            computeLayer(i, rows);
+        }
+        int outputCount = this.flat.getOutputCount();
+        int stride = this.flat.getLayerCounts()[0];
+        double[] outputs = this.layerBuffers[0];
+        for(int r = 0; r < rows; r++) {
+            System.arraycopy(outputs, r * stride, output, (start + r) * outputCount, outputCount);
+        }
+    }
+
+    private void computeLayer(int currentLayer, int rows) {
+        int[] layerCounts = this.flat.getLayerCounts();
+        double[] weights = this.flat.getWeights();
+        double[] inputs = this.layerBuffers[currentLayer];
+        double[] outputs = this.layerBuffers[currentLayer - 1];
+        int inputSize = layerCounts[currentLayer];
+        int outputStride = layerCounts[currentLayer - 1];
+        int outputSize = this.flat.getLayerFeedCounts()[currentLayer - 1];
+        int weightIndex = this.flat.getWeightIndex()[currentLayer - 1];
+
+        for(int x = 0; x < outputSize; x++, weightIndex += inputSize) {
+            for(int r = 0; r < rows; r++) {
+                int inputIndex = r * inputSize;
+                double sum = 0;
+                for(int y = 0; y < inputSize; y++) {
+                    sum += weights[weightIndex + y] * inputs[inputIndex + y];
+                }
+                outputs[r * outputStride + x] = sum;
+            }
+        }
+
+        ActivationFunction activation = this.flat.getActivationFunctions()[currentLayer - 1];
+        for(int r = 0; r < rows; r++) {
+            activation.activationFunction(outputs, r * outputStride, outputSize);
+        }
+    }
+
+    /**
+     * @return the network to be computed
+     */
+    public FlatNetwork getFlat() {
+        return flat;
+    }
+
+    /**
+     * @return # of records in one block
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+}
@@ -133,17 +133,8 @@ public class BufferedFloatMLDataSet implements FloatMLDataSet, Serializable {
      */
     @Override
     public final void getRecord(final long index, final FloatMLDataPair pair) {
-        this.egb.setLocation((int) index);
-        float[] inputTarget = pair.getInputArray();
-        this.egb.read(inputTarget);
-
-        if(pair.getIdealArray() != null) {
-            float[] idealTarget = pair.getIdealArray();
-            this.egb.read(idealTarget);
-        }
-
-        // read and set significance
-        pair.setSignificance(this.egb.read());
+        // records are read through mapped segments of the file, next segment is prefetched when reading sequentially
+        pair.setSignificance(this.egb.readMapped(index, pair.getInputArray(), pair.getIdealArray()));
     }
 
     /**
@@ -229,8 +220,11 @@ public class BufferedFloatMLDataSet implements FloatMLDataSet, Serializable {
             this.owner.removeAdditional(this);
         }
 
-        this.egb.close();
-        this.egb = null;
+        // views may be closed by owner firstly and then by its user
+        if(this.egb != null) {
+            this.egb.close();
+            this.egb = null;
+        }
     }
 
     /**
@@ -20,7 +20,12 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Copy from {@link EncogFloatEGBFile} to support float type data.
@@ -37,6 +42,23 @@ public class EncogFloatEGBFile {
      */
     public static final int HEADER_SIZE = EncogFloatEGBFile.FLOAT_SIZE * 2 * 3;
 
+    /**
+     * Max bytes of one mapped segment, segments are aligned to records so one record is never split into two segments.
+     */
+    public static final int MAPPED_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Daemon thread to load next mapped segment into memory while current segment is being read.
+     */
+    private static final ExecutorService PREFETCHER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "EGB-Segment-Prefetcher");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
     /**
      * The file that we are working with.
      */
@@ -87,6 +109,27 @@ public class EncogFloatEGBFile {
      */
     private int numberOfRecords;
 
+    /**
+     * Read only mapped segments of the records, null if file is not mapped yet. Segments are mapped lazily on first
+     * access and dropped once the file is changed, created, reopened or closed.
+     */
+    private FloatBuffer[] segments;
+
+    /**
+     * Mapped byte buffers of {@link #segments}, kept to prefetch them.
+     */
+    private MappedByteBuffer[] mappedSegments;
+
+    /**
+     * Number of records in each mapped segment.
+     */
+    private int segmentRecords;
+
+    /**
+     * Index of segment last read, to trigger prefetching of next segment only once.
+     */
+    private int lastSegment = -1;
+
     /**
      * Construct an EGB file.
      * 
@@ -107,6 +150,7 @@ public class EncogFloatEGBFile {
      *            Is this an input column?
      */
     public final void addColumn(final int col, final boolean isInput) {
+        unmap();
         try {
             // process the file
             // allocate buffers
@@ -201,6 +245,7 @@ public class EncogFloatEGBFile {
      *            Where to add the row.
      */
     public final void addRow(final int row) {
+        unmap();
         try {
             this.numberOfRecords++;
 
@@ -292,6 +337,7 @@ public class EncogFloatEGBFile {
      * Close the file.
      */
     public final void close() {
+        unmap();
         try {
             if(this.raf != null) {
                 this.raf.close();
@@ -315,6 +361,7 @@ public class EncogFloatEGBFile {
      *            The ideal count.
      */
     public final void create(final int theInputCount, final int theIdealCount) {
+        unmap();
         try {
             this.inputCount = theInputCount;
             this.idealCount = theIdealCount;
@@ -369,6 +416,7 @@ public class EncogFloatEGBFile {
      *            The column to delete.
      */
     public final void deleteCol(final int col) {
+        unmap();
         try {
             // process the file
 
@@ -458,6 +506,7 @@ public class EncogFloatEGBFile {
      *            The row to delete.
      */
     public final void deleteRow(final int row) {
+        unmap();
         try {
             for(int i = row; i < this.numberOfRecords - 1; i++) {
                 final int s = EncogFloatEGBFile.HEADER_SIZE + (this.recordSize * i) + this.recordSize;
@@ -551,6 +600,7 @@ public class EncogFloatEGBFile {
      * OPen an existing EGB file.
      */
     public final void open() {
+        unmap();
         try {
             this.raf = new RandomAccessFile(this.file, "rw");
             this.fc = this.raf.getChannel();
@@ -687,6 +737,91 @@ public class EncogFloatEGBFile {
 
     }
 
+    /**
+     * Read a record through read only memory mapped segments of the file, no system call or intermediate buffer is
+     * needed in this path. Each instance should be read by only one thread, use one instance for each thread.
+     * 
+     * @param row
+     *            The record to read.
+     * @param input
+     *            The array to read input values into.
+     * @param ideal
+     *            The array to read ideal values into, ideal values are skipped if it is null.
+     * @return The significance of the record.
+     */
+    public final float readMapped(final long row, final float[] input, final float[] ideal) {
+        if(this.segments == null) {
+            map();
+        }
+        int segment = (int) (row / this.segmentRecords);
+        if(segment != this.lastSegment) {
+            this.lastSegment = segment;
+            prefetch(segment + 1);
+        }
+        FloatBuffer buffer = this.segments[segment];
+        int offset = (int) (row % this.segmentRecords) * this.recordCount;
+        buffer.position(offset);
+        buffer.get(input, 0, this.inputCount);
+        if(ideal != null) {
+            buffer.get(ideal, 0, this.idealCount);
+        } else {
+            buffer.position(offset + this.inputCount + this.idealCount);
+        }
+        return buffer.get();
+    }
+
+    /**
+     * Map all records of current file into read only segments, mapping only reserves address space and pages are
+     * loaded by OS on demand or by {@link #prefetch(int)}.
+     */
+    private void map() {
+        try {
+            this.segmentRecords = Math.max(1, MAPPED_SEGMENT_SIZE / this.recordSize);
+            int size = (int) ((this.numberOfRecords + (long) this.segmentRecords - 1) / this.segmentRecords);
+            FloatBuffer[] floatBuffers = new FloatBuffer[size];
+            MappedByteBuffer[] byteBuffers = new MappedByteBuffer[size];
+            for(int i = 0; i < size; i++) {
+                long start = (long) i * this.segmentRecords;
+                int records = (int) Math.min(this.segmentRecords, this.numberOfRecords - start);
+                byteBuffers[i] = this.fc.map(FileChannel.MapMode.READ_ONLY, calculateIndex(start),
+                        (long) records * this.recordSize);
+                byteBuffers[i].order(ByteOrder.LITTLE_ENDIAN);
+                floatBuffers[i] = byteBuffers[i].asFloatBuffer();
+            }
+            this.mappedSegments = byteBuffers;
+            this.segments = floatBuffers;
+            this.lastSegment = -1;
+        } catch (final IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Asynchronously load the given segment into physical memory so that I/O is overlapped with computation on
+     * current segment.
+     */
+    private void prefetch(int segment) {
+        if(segment >= this.mappedSegments.length) {
+            return;
+        }
+        final MappedByteBuffer buffer = this.mappedSegments[segment];
+        PREFETCHER.execute(new Runnable() {
+            @Override
+            public void run() {
+                buffer.load();
+            }
+        });
+    }
+
+    /**
+     * Drop mapped segments, pages are released by GC of mapped buffers.
+     */
+    private void unmap() {
+        this.segments = null;
+        this.mappedSegments = null;
+        this.lastSegment = -1;
+    }
+
     /**
      * Set the current location to the specified row.
      * 
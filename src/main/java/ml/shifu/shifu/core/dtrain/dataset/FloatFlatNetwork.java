@@ -91,7 +91,9 @@ public class FloatFlatNetwork extends FlatNetwork implements Cloneable {
 
         final int sourceIndex = getLayerOutput().length - getLayerCounts()[getLayerCounts().length - 1];
         boolean inputLayerDropoutEnable = isDropoutEnable(getLayerCounts().length - 1, dropoutNodes);
-        double nonDropoutRate = (1d - this.getLayerDropoutRates()[getLayerCounts().length - 1]);
+        double nonDropoutRate = inputLayerDropoutEnable
+                ? (1d - this.getLayerDropoutRates()[getLayerCounts().length - 1])
+                : 1d;
         for(int i = 0; i < getInputCount(); i++) {
             if(inputLayerDropoutEnable) {
                 if(dropoutNodes.contains(i + sourceIndex)) {
@@ -231,6 +233,8 @@ public class FloatFlatNetwork extends FlatNetwork implements Cloneable {
     public FloatFlatNetwork clone() {
         final FloatFlatNetwork result = new FloatFlatNetwork();
         super.cloneFlatNetwork(result);
+        // dropout rates are not in FlatNetwork, copy them or clones in sub gradients run without dropout
+        result.setLayerDropoutRates(this.getLayerDropoutRates().clone());
         return result;
     }
 
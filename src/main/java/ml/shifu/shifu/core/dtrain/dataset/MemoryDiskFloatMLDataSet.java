@@ -98,6 +98,14 @@ public class MemoryDiskFloatMLDataSet implements FloatMLDataSet {
      */
     private long diskCount = 0L;
 
+    /**
+     * Buffers to read disk records, this data set or each view of it by {@link #openAdditional()} should be read by
+     * only one thread.
+     */
+    private float[] diskInput;
+
+    private float[] diskIdeal;
+
     /**
      * Constructor with {@link #fileName}, {@link #inputCount} and {@link #outputCount}
      * 
@@ -306,6 +314,15 @@ public class MemoryDiskFloatMLDataSet implements FloatMLDataSet {
         if(index < this.memoryCount) {
             this.memoryDataSet.getRecord(index, pair);
         } else {
+            // pair may still refer to arrays of a memory record, read disk record into own buffers to not overwrite it
+            if(this.diskInput == null) {
+                this.diskInput = new float[this.inputCount];
+                this.diskIdeal = new float[this.outputCount];
+            }
+            pair.setInputArray(this.diskInput);
+            if(pair.getIdealArray() != null) {
+                pair.setIdealArray(this.diskIdeal);
+            }
             this.diskDataSet.getRecord(index - this.memoryCount, pair);
         }
     }
@@ -317,7 +334,17 @@ public class MemoryDiskFloatMLDataSet implements FloatMLDataSet {
      */
     @Override
     public FloatMLDataSet openAdditional() {
-        throw new UnsupportedOperationException();
+        MemoryDiskFloatMLDataSet result = new MemoryDiskFloatMLDataSet(this.maxByteSize, this.fileName,
+                this.inputCount, this.outputCount);
+        // memory part is shared, disk part is opened with its own file handle so that views can be read concurrently
+        result.memoryDataSet = this.memoryDataSet.openAdditional();
+        if(this.diskDataSet != null) {
+            result.diskDataSet = this.diskDataSet.openAdditional();
+        }
+        result.byteSize = this.byteSize;
+        result.memoryCount = this.memoryCount;
+        result.diskCount = this.diskCount;
+        return result;
     }
 
     /*
@@ -0,0 +1,398 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.dt;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+
+import ml.shifu.guagua.GuaguaRuntimeException;
+import ml.shifu.shifu.core.dtrain.dt.DTWorker.Data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ColumnarDataStore} stores bin indexes and label, predict, output, significance and subsample weights of
+ * {@link Data} records in primitive columns instead of one {@link Data} object per record.
+ *
+ * <p>
+ * Records are stored in chunks of {@link #CHUNK_SIZE} records, in each chunk one column per feature is kept, byte
+ * column for feature with no more than 127 bins and short column for others. Chunks are on heap primitive arrays until
+ * heap memory budget is used up, then chunks are allocated in direct {@link ByteBuffer}s or memory mapped files
+ * according to spill mode.
+ *
+ * <p>
+ * Appending is not thread-safe. Reading and updating different records in different threads is safe after all records
+ * are appended.
+ */
+final class ColumnarDataStore implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ColumnarDataStore.class);
+
+    static final int CHUNK_SHIFT = 14;
+
+    /**
+     * # of records in one chunk.
+     */
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * Float column indexes in one chunk, subsample weights start from {@link #WEIGHT}.
+     */
+    private static final int LABEL = 0, PREDICT = 1, OUTPUT = 2, SIGNIFICANCE = 3, WEIGHT = 4;
+
+    /**
+     * Spill chunks over heap budget into direct byte buffers.
+     */
+    static final String SPILL_DIRECT = "direct";
+
+    /**
+     * Spill chunks over heap budget into memory mapped temp file.
+     */
+    static final String SPILL_MMAP = "mmap";
+
+    /**
+     * Bytes of each bin index column, 1 or 2.
+     */
+    private final int[] widths;
+
+    /**
+     * Max heap memory in bytes used by chunks.
+     */
+    private final long maxHeapMemory;
+
+    private final String spillMode;
+
+    /**
+     * # of subsample weights per record.
+     */
+    private final int weightSize;
+
+    private Chunk[] chunks = new Chunk[16];
+
+    private int chunkCount;
+
+    private int size;
+
+    private long heapMemory;
+
+    private File spillFile;
+
+    private RandomAccessFile spillAccessFile;
+
+    private long spillOffset;
+
+    /**
+     * Create store with max bin index of each input.
+     *
+     * @param maxBinIndexes
+     *            max bin index of each input to decide byte or short column
+     * @param weightSize
+     *            # of subsample weights per record
+     * @param maxHeapMemory
+     *            max heap memory used by chunks
+     * @param spillMode
+     *            {@link #SPILL_MMAP} or {@link #SPILL_DIRECT}
+     */
+    ColumnarDataStore(int[] maxBinIndexes, int weightSize, long maxHeapMemory, String spillMode) {
+        this.widths = new int[maxBinIndexes.length];
+        for(int i = 0; i < maxBinIndexes.length; i++) {
+            this.widths[i] = maxBinIndexes[i] <= Byte.MAX_VALUE ? 1 : 2;
+        }
+        this.weightSize = weightSize;
+        this.maxHeapMemory = maxHeapMemory;
+        this.spillMode = SPILL_DIRECT.equalsIgnoreCase(spillMode) ? SPILL_DIRECT : SPILL_MMAP;
+    }
+
+    private int floatColumns() {
+        return WEIGHT + this.weightSize;
+    }
+
+    private long chunkBytes() {
+        long bytes = 0L;
+        for(int width: this.widths) {
+            bytes += width;
+        }
+        return (bytes + 4L * floatColumns()) * CHUNK_SIZE;
+    }
+
+    /**
+     * Append one record, subsample weights are copied only if size is the same as weight size of this store, otherwise
+     * weights are set to 1 and can be set later by {@link #setWeight(int, int, float)}.
+     */
+    public void append(Data data) {
+        if(data.inputs.length != this.widths.length) {
+            throw new IllegalArgumentException("Inputs size " + data.inputs.length + " is not equal to column size "
+                    + this.widths.length);
+        }
+
+        int offset = this.size & CHUNK_MASK;
+        if(offset == 0) {
+            addChunk();
+        }
+        Chunk chunk = this.chunks[this.chunkCount - 1];
+        for(int i = 0; i < data.inputs.length; i++) {
+            chunk.setBin(i, offset, data.inputs[i]);
+        }
+        chunk.setFloat(LABEL, offset, data.label);
+        chunk.setFloat(PREDICT, offset, data.predict);
+        chunk.setFloat(OUTPUT, offset, data.output);
+        chunk.setFloat(SIGNIFICANCE, offset, data.significance);
+        boolean hasWeights = data.subsampleWeights != null && data.subsampleWeights.length == this.weightSize;
+        for(int i = 0; i < this.weightSize; i++) {
+            chunk.setFloat(WEIGHT + i, offset, hasWeights ? data.subsampleWeights[i] : 1f);
+        }
+        this.size += 1;
+    }
+
+    private void addChunk() {
+        if(this.chunkCount == this.chunks.length) {
+            this.chunks = Arrays.copyOf(this.chunks, this.chunks.length * 2);
+        }
+        long bytes = chunkBytes();
+        Chunk chunk;
+        if(this.heapMemory + bytes <= this.maxHeapMemory) {
+            chunk = new HeapChunk(this.widths, floatColumns());
+            this.heapMemory += bytes;
+        } else {
+            chunk = new BufferChunk(this.widths, floatColumns(), allocateBuffer(bytes));
+        }
+        this.chunks[this.chunkCount++] = chunk;
+    }
+
+    private ByteBuffer allocateBuffer(long bytes) {
+        if(bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Chunk size " + bytes + " is too large to be allocated out of heap.");
+        }
+        if(SPILL_DIRECT.equals(this.spillMode)) {
+            return ByteBuffer.allocateDirect((int) bytes);
+        }
+        try {
+            if(this.spillAccessFile == null) {
+                this.spillFile = File.createTempFile("dt-store-", ".bin");
+                this.spillFile.deleteOnExit();
+                this.spillAccessFile = new RandomAccessFile(this.spillFile, "rw");
+                LOG.info("Heap memory {} is used up, spill records into file {}.", this.heapMemory, this.spillFile);
+            }
+            ByteBuffer buffer = this.spillAccessFile.getChannel().map(MapMode.READ_WRITE, this.spillOffset, bytes);
+            this.spillOffset += bytes;
+            return buffer;
+        } catch (IOException e) {
+            throw new GuaguaRuntimeException(e);
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return if some chunks are not on heap
+     */
+    public boolean isSpilled() {
+        return this.chunkCount > 0 && this.chunks[this.chunkCount - 1] instanceof BufferChunk;
+    }
+
+    public short getBin(int input, int record) {
+        return this.chunks[record >>> CHUNK_SHIFT].getBin(input, record & CHUNK_MASK);
+    }
+
+    public float getLabel(int record) {
+        return this.chunks[record >>> CHUNK_SHIFT].getFloat(LABEL, record & CHUNK_MASK);
+    }
+
+    public float getPredict(int record) {
+        return this.chunks[record >>> CHUNK_SHIFT].getFloat(PREDICT, record & CHUNK_MASK);
+    }
+
+    public void setPredict(int record, float predict) {
+        this.chunks[record >>> CHUNK_SHIFT].setFloat(PREDICT, record & CHUNK_MASK, predict);
+    }
+
+    public float getOutput(int record) {
+        return this.chunks[record >>> CHUNK_SHIFT].getFloat(OUTPUT, record & CHUNK_MASK);
+    }
+
+    public void setOutput(int record, float output) {
+        this.chunks[record >>> CHUNK_SHIFT].setFloat(OUTPUT, record & CHUNK_MASK, output);
+    }
+
+    public float getSignificance(int record) {
+        return this.chunks[record >>> CHUNK_SHIFT].getFloat(SIGNIFICANCE, record & CHUNK_MASK);
+    }
+
+    /**
+     * @return # of subsample weights per record
+     */
+    public int getWeightSize() {
+        return this.weightSize;
+    }
+
+    public float getWeight(int index, int record) {
+        return this.chunks[record >>> CHUNK_SHIFT].getFloat(WEIGHT + index, record & CHUNK_MASK);
+    }
+
+    public void setWeight(int index, int record, float weight) {
+        this.chunks[record >>> CHUNK_SHIFT].setFloat(WEIGHT + index, record & CHUNK_MASK, weight);
+    }
+
+    @Override
+    public void close() {
+        this.chunks = new Chunk[0];
+        this.chunkCount = 0;
+        if(this.spillAccessFile != null) {
+            try {
+                this.spillAccessFile.close();
+            } catch (IOException e) {
+                LOG.warn("Error in closing spill file " + this.spillFile, e);
+            }
+            if(!this.spillFile.delete()) {
+                LOG.warn("Spill file {} is not deleted.", this.spillFile);
+            }
+            this.spillAccessFile = null;
+        }
+    }
+
+    private abstract static class Chunk {
+
+        abstract short getBin(int input, int offset);
+
+        abstract void setBin(int input, int offset, short bin);
+
+        abstract float getFloat(int column, int offset);
+
+        abstract void setFloat(int column, int offset, float value);
+    }
+
+    /**
+     * Chunk with primitive array columns on heap.
+     */
+    private static final class HeapChunk extends Chunk {
+
+        private final byte[][] byteColumns;
+
+        private final short[][] shortColumns;
+
+        private final float[][] floatColumns;
+
+        HeapChunk(int[] widths, int floatColumns) {
+            this.byteColumns = new byte[widths.length][];
+            this.shortColumns = new short[widths.length][];
+            for(int i = 0; i < widths.length; i++) {
+                if(widths[i] == 1) {
+                    this.byteColumns[i] = new byte[CHUNK_SIZE];
+                } else {
+                    this.shortColumns[i] = new short[CHUNK_SIZE];
+                }
+            }
+            this.floatColumns = new float[floatColumns][CHUNK_SIZE];
+        }
+
+        @Override
+        short getBin(int input, int offset) {
+            byte[] bytes = this.byteColumns[input];
+            return bytes != null ? bytes[offset] : this.shortColumns[input][offset];
+        }
+
+        @Override
+        void setBin(int input, int offset, short bin) {
+            byte[] bytes = this.byteColumns[input];
+            if(bytes != null) {
+                bytes[offset] = (byte) bin;
+            } else {
+                this.shortColumns[input][offset] = bin;
+            }
+        }
+
+        @Override
+        float getFloat(int column, int offset) {
+            return this.floatColumns[column][offset];
+        }
+
+        @Override
+        void setFloat(int column, int offset, float value) {
+            this.floatColumns[column][offset] = value;
+        }
+    }
+
+    /**
+     * Chunk with all columns in one off heap or memory mapped {@link ByteBuffer}, columns are laid out one by one.
+     */
+    private static final class BufferChunk extends Chunk {
+
+        private final ByteBuffer buffer;
+
+        private final int[] widths;
+
+        /**
+         * Start position of each bin index column.
+         */
+        private final int[] binPositions;
+
+        /**
+         * Start position of float columns.
+         */
+        private final int floatPosition;
+
+        BufferChunk(int[] widths, int floatColumns, ByteBuffer buffer) {
+            this.buffer = buffer.order(ByteOrder.nativeOrder());
+            this.widths = widths;
+            this.binPositions = new int[widths.length];
+            int position = 0;
+            for(int i = 0; i < widths.length; i++) {
+                this.binPositions[i] = position;
+                position += widths[i] * CHUNK_SIZE;
+            }
+            this.floatPosition = position;
+        }
+
+        @Override
+        short getBin(int input, int offset) {
+            if(this.widths[input] == 1) {
+                return this.buffer.get(this.binPositions[input] + offset);
+            }
+            return this.buffer.getShort(this.binPositions[input] + (offset << 1));
+        }
+
+        @Override
+        void setBin(int input, int offset, short bin) {
+            if(this.widths[input] == 1) {
+                this.buffer.put(this.binPositions[input] + offset, (byte) bin);
+            } else {
+                this.buffer.putShort(this.binPositions[input] + (offset << 1), bin);
+            }
+        }
+
+        @Override
+        float getFloat(int column, int offset) {
+            return this.buffer.getFloat(this.floatPosition + ((column * CHUNK_SIZE + offset) << 2));
+        }
+
+        @Override
+        void setFloat(int column, int offset, float value) {
+            this.buffer.putFloat(this.floatPosition + ((column * CHUNK_SIZE + offset) << 2), value);
+        }
+    }
+
+}
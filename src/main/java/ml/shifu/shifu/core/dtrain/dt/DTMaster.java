@@ -27,13 +27,24 @@ import java.util.PriorityQueue;
 import java.util.Properties;
 import java.util.Queue;
 import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import ml.shifu.guagua.GuaguaConstants;
 import ml.shifu.guagua.GuaguaRuntimeException;
 import ml.shifu.guagua.master.AbstractMasterComputable;
 import ml.shifu.guagua.master.MasterComputable;
 import ml.shifu.guagua.master.MasterContext;
+import ml.shifu.guagua.master.MasterContext.MasterCompletionCallBack;
 import ml.shifu.guagua.util.NumberFormatUtils;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
@@ -227,6 +238,16 @@ public class DTMaster extends AbstractMasterComputable<DTMasterParams, DTWorkerP
      */
     private int maxBatchSplitSize = 16;
 
+    /**
+     * # of threads to merge worker stats and compute node splits in master.
+     */
+    private int masterThreadCount;
+
+    /**
+     * Thread pool of master, only created if {@link #masterThreadCount} is larger than 1.
+     */
+    private ExecutorService threadPool;
+
     /**
      * DTEarlyStopDecider will decide automatic whether it need further training, this only for GBDT.
      */
@@ -292,47 +313,22 @@ public class DTMaster extends AbstractMasterComputable<DTMasterParams, DTWorkerP
             return tmpMasterParams;
         }
 
-        boolean isFirst = false;
-        Map<Integer, NodeStats> nodeStatsMap = null;
-        double trainError = 0d, validationError = 0d, weightedTrainCount = 0d, weightedValidationCount = 0d;
-        for(DTWorkerParams params: context.getWorkerResults()) {
-            if(!isFirst) {
-                isFirst = true;
-                nodeStatsMap = params.getNodeStatsMap();
-            } else {
-                Map<Integer, NodeStats> currNodeStatsMap = params.getNodeStatsMap();
-                for(Entry<Integer, NodeStats> entry: nodeStatsMap.entrySet()) {
-                    NodeStats resultNodeStats = entry.getValue();
-                    mergeNodeStats(resultNodeStats, currNodeStatsMap.get(entry.getKey()));
-                }
-                // set to null after merging, release memory at the earliest stage
-                params.setNodeStatsMap(null);
-            }
-            trainError += params.getTrainError();
-            validationError += params.getValidationError();
-            weightedTrainCount += params.getTrainCount();
-            weightedValidationCount += params.getValidationCount();
-        }
-
+        // group merging only pays off with at least 2 worker results per group
+        boolean isGroupMerge = this.threadPool != null && this.workerNumber >= 2 * this.masterThreadCount;
+        DTWorkerParams mergedParams = mergeWorkerResults(context.getWorkerResults(),
+                isGroupMerge ? this.threadPool : null, this.masterThreadCount);
+        Map<Integer, NodeStats> nodeStatsMap = mergedParams.getNodeStatsMap();
+        double trainError = mergedParams.getTrainError(), validationError = mergedParams.getValidationError();
+        double weightedTrainCount = mergedParams.getTrainCount();
+        double weightedValidationCount = mergedParams.getValidationCount();
+
+        Map<Integer, GainInfo> maxGainInfos = computeMaxGainInfos(nodeStatsMap, this.threadPool, this.impurity,
+                this.columnConfigList);
         for(Entry<Integer, NodeStats> entry: nodeStatsMap.entrySet()) {
             NodeStats nodeStats = entry.getValue();
             int treeId = nodeStats.getTreeId();
             Node doneNode = Node.getNode(trees.get(treeId).getNode(), nodeStats.getNodeId());
-            // doneNode, NodeStats
-            Map<Integer, double[]> statistics = nodeStats.getFeatureStatistics();
-
-            List<GainInfo> gainList = new ArrayList<GainInfo>();
-            for(Entry<Integer, double[]> gainEntry: statistics.entrySet()) {
-                int columnNum = gainEntry.getKey();
-                ColumnConfig config = this.columnConfigList.get(columnNum);
-                double[] statsArray = gainEntry.getValue();
-                GainInfo gainInfo = this.impurity.computeImpurity(statsArray, config);
-                if(gainInfo != null) {
-                    gainList.add(gainInfo);
-                }
-            }
-
-            GainInfo maxGainInfo = GainInfo.getGainInfoByMaxGain(gainList);
+            GainInfo maxGainInfo = maxGainInfos.get(entry.getKey());
             if(maxGainInfo == null) {
                 // null gain info, set to leaf and continue next stats
                 doneNode.setLeaf(true);
@@ -537,9 +533,177 @@ public class DTMaster extends AbstractMasterComputable<DTMasterParams, DTWorkerP
 
         LOG.debug("weightedTrainCount {}, weightedValidationCount {}, trainError {}, validationError {}",
                 weightedTrainCount, weightedValidationCount, trainError, validationError);
+        // fast exit on halt, pool is also shut down in completion callback if job stops at max iteration
+        if(masterParams.isHalt() && this.threadPool != null) {
+            this.threadPool.shutdownNow();
+            this.threadPool = null;
+        }
         return masterParams;
     }
 
+    /**
+     * Merge worker results into one. With thread pool, worker results are dispatched round-robin into groups and each
+     * group is merged by one thread while results are still being iterated, then group results are merged in pairs; so
+     * merging is parallel and only # of groups merged results are materialized. Otherwise results are merged one by one
+     * into the first result.
+     */
+    static DTWorkerParams mergeWorkerResults(Iterable<DTWorkerParams> workerResults, ExecutorService threadPool,
+            final int groups) {
+        if(threadPool == null || groups <= 1) {
+            DTWorkerParams mergedParams = null;
+            for(DTWorkerParams params: workerResults) {
+                mergedParams = mergeWorkerParams(mergedParams, params);
+            }
+            return mergedParams;
+        }
+
+        List<BlockingQueue<DTWorkerParams>> queues = new ArrayList<BlockingQueue<DTWorkerParams>>(groups);
+        List<Future<DTWorkerParams>> futures = new ArrayList<Future<DTWorkerParams>>(groups);
+        // empty params denote end of worker results
+        final DTWorkerParams endParams = new DTWorkerParams();
+        for(int i = 0; i < groups; i++) {
+            final BlockingQueue<DTWorkerParams> queue = new ArrayBlockingQueue<DTWorkerParams>(2);
+            queues.add(queue);
+            futures.add(threadPool.submit(new Callable<DTWorkerParams>() {
+                @Override
+                public DTWorkerParams call() throws Exception {
+                    DTWorkerParams mergedParams = null;
+                    DTWorkerParams params;
+                    while((params = queue.take()) != endParams) {
+                        mergedParams = mergeWorkerParams(mergedParams, params);
+                    }
+                    return mergedParams;
+                }
+            }));
+        }
+
+        int index = 0;
+        for(DTWorkerParams params: workerResults) {
+            offer(queues.get(index % groups), futures.get(index % groups), params);
+            index += 1;
+        }
+        for(int i = 0; i < groups; i++) {
+            offer(queues.get(i), futures.get(i), endParams);
+        }
+
+        List<DTWorkerParams> groupResults = new ArrayList<DTWorkerParams>(groups);
+        for(Future<DTWorkerParams> future: futures) {
+            DTWorkerParams groupResult = waitFor(future);
+            if(groupResult != null) {
+                groupResults.add(groupResult);
+            }
+        }
+        // merge group results in pairs
+        while(groupResults.size() > 1) {
+            List<Future<DTWorkerParams>> pairFutures = new ArrayList<Future<DTWorkerParams>>();
+            for(int i = 0; i + 1 < groupResults.size(); i += 2) {
+                final DTWorkerParams left = groupResults.get(i), right = groupResults.get(i + 1);
+                pairFutures.add(threadPool.submit(new Callable<DTWorkerParams>() {
+                    @Override
+                    public DTWorkerParams call() throws Exception {
+                        return mergeWorkerParams(left, right);
+                    }
+                }));
+            }
+            List<DTWorkerParams> pairResults = new ArrayList<DTWorkerParams>(pairFutures.size() + 1);
+            for(Future<DTWorkerParams> future: pairFutures) {
+                pairResults.add(waitFor(future));
+            }
+            if(groupResults.size() % 2 == 1) {
+                pairResults.add(groupResults.get(groupResults.size() - 1));
+            }
+            groupResults = pairResults;
+        }
+        return groupResults.isEmpty() ? null : groupResults.get(0);
+    }
+
+    /**
+     * Merge params into merged params, the one with node stats is used to keep merged stats.
+     */
+    private static DTWorkerParams mergeWorkerParams(DTWorkerParams mergedParams, DTWorkerParams params) {
+        if(mergedParams == null) {
+            return params;
+        }
+        if(mergedParams.getNodeStatsMap() == null && params.getNodeStatsMap() != null) {
+            return params.combine(mergedParams);
+        }
+        // encoded stats from workers are decoded and added in streaming way in combine
+        return mergedParams.combine(params);
+    }
+
+    private static void offer(BlockingQueue<DTWorkerParams> queue, Future<DTWorkerParams> future, DTWorkerParams params) {
+        try {
+            while(!queue.offer(params, 1, TimeUnit.SECONDS)) {
+                if(future.isDone()) {
+                    // merging thread is failed, get to throw its exception
+                    waitFor(future);
+                    throw new IllegalStateException("Merging thread is done before all worker results are merged.");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GuaguaRuntimeException(e);
+        }
+    }
+
+    /**
+     * Compute max gain info of each node stats, nodes are computed in parallel if thread pool is not null.
+     * 
+     * @return max gain info of each node stats key, value is null if no valid gain info
+     */
+    static Map<Integer, GainInfo> computeMaxGainInfos(Map<Integer, NodeStats> nodeStatsMap, ExecutorService threadPool,
+            final Impurity impurity, final List<ColumnConfig> columnConfigList) {
+        Map<Integer, GainInfo> maxGainInfos = new HashMap<Integer, GainInfo>(nodeStatsMap.size() * 2);
+        if(threadPool == null || nodeStatsMap.size() <= 1) {
+            for(Entry<Integer, NodeStats> entry: nodeStatsMap.entrySet()) {
+                maxGainInfos.put(entry.getKey(), computeMaxGainInfo(entry.getValue(), impurity, columnConfigList));
+            }
+            return maxGainInfos;
+        }
+
+        Map<Integer, Future<GainInfo>> futures = new HashMap<Integer, Future<GainInfo>>(nodeStatsMap.size() * 2);
+        for(Entry<Integer, NodeStats> entry: nodeStatsMap.entrySet()) {
+            final NodeStats nodeStats = entry.getValue();
+            futures.put(entry.getKey(), threadPool.submit(new Callable<GainInfo>() {
+                @Override
+                public GainInfo call() throws Exception {
+                    return computeMaxGainInfo(nodeStats, impurity, columnConfigList);
+                }
+            }));
+        }
+        for(Entry<Integer, Future<GainInfo>> entry: futures.entrySet()) {
+            maxGainInfos.put(entry.getKey(), waitFor(entry.getValue()));
+        }
+        return maxGainInfos;
+    }
+
+    private static GainInfo computeMaxGainInfo(NodeStats nodeStats, Impurity impurity,
+            List<ColumnConfig> columnConfigList) {
+        Map<Integer, double[]> statistics = nodeStats.getFeatureStatistics();
+        List<GainInfo> gainList = new ArrayList<GainInfo>();
+        for(Entry<Integer, double[]> gainEntry: statistics.entrySet()) {
+            int columnNum = gainEntry.getKey();
+            ColumnConfig config = columnConfigList.get(columnNum);
+            double[] statsArray = gainEntry.getValue();
+            GainInfo gainInfo = impurity.computeImpurity(statsArray, config);
+            if(gainInfo != null) {
+                gainList.add(gainInfo);
+            }
+        }
+        return GainInfo.getGainInfoByMaxGain(gainList);
+    }
+
+    private static <T> T waitFor(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new GuaguaRuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GuaguaRuntimeException(e);
+        }
+    }
+
     /**
      * Split node into left and right for leaf-wised tree growth, doneNode should be populated by
      * {@link #populateGainInfoToNode(int, Node, GainInfo)}.
@@ -750,16 +914,6 @@ public class DTMaster extends AbstractMasterComputable<DTMasterParams, DTWorkerP
         return statsMem;
     }
 
-    private void mergeNodeStats(NodeStats resultNodeStats, NodeStats nodeStats) {
-        Map<Integer, double[]> featureStatistics = resultNodeStats.getFeatureStatistics();
-        for(Entry<Integer, double[]> entry: nodeStats.getFeatureStatistics().entrySet()) {
-            double[] statistics = featureStatistics.get(entry.getKey());
-            for(int i = 0; i < statistics.length; i++) {
-                statistics[i] += entry.getValue()[i];
-            }
-        }
-    }
-
     private DTMasterParams buildInitialMasterParams() {
         Map<Integer, TreeNode> todoNodes = new HashMap<Integer, TreeNode>(treeNum, 1.0f);
         int nodeIndexInGroup = 0;
@@ -917,6 +1071,39 @@ public class DTMaster extends AbstractMasterComputable<DTMasterParams, DTWorkerP
         // worker number is used to estimate nodes per iteration for stats
         this.workerNumber = NumberFormatUtils.getInt(props.getProperty(GuaguaConstants.GUAGUA_WORKER_NUMBER), true);
 
+        this.masterThreadCount = NumberFormatUtils.getInt(
+                props.getProperty(CommonConstants.SHIFU_DT_MASTER_THREAD_COUNT),
+                Math.min(Runtime.getRuntime().availableProcessors(), 8));
+        if(this.masterThreadCount > 1) {
+            final AtomicInteger threadIndex = new AtomicInteger(0);
+            this.threadPool = Executors.newFixedThreadPool(this.masterThreadCount, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "dt-master-" + threadIndex.getAndIncrement());
+                    // daemon thread not to block exit of master
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            context.addCompletionCallBack(new MasterCompletionCallBack<DTMasterParams, DTWorkerParams>() {
+                @Override
+                public void callback(MasterContext<DTMasterParams, DTWorkerParams> context) {
+                    ExecutorService pool = DTMaster.this.threadPool;
+                    if(pool == null) {
+                        return;
+                    }
+                    pool.shutdownNow();
+                    try {
+                        pool.awaitTermination(2, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    DTMaster.this.threadPool = null;
+                }
+            });
+        }
+        LOG.info("Master thread count is {}.", this.masterThreadCount);
+
         // check if variables are set final selected
         int[] inputOutputIndex = DTrainUtils.getNumericAndCategoricalInputAndOutputCounts(this.columnConfigList);
         this.inputNum = inputOutputIndex[0] + inputOutputIndex[1];
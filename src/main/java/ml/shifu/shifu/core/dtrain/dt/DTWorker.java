@@ -22,6 +22,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -36,7 +37,9 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import ml.shifu.guagua.ComputableMonitor;
 import ml.shifu.guagua.GuaguaRuntimeException;
@@ -44,7 +47,6 @@ import ml.shifu.guagua.hadoop.io.GuaguaLineRecordReader;
 import ml.shifu.guagua.hadoop.io.GuaguaWritableAdapter;
 import ml.shifu.guagua.io.Bytable;
 import ml.shifu.guagua.io.GuaguaFileSplit;
-import ml.shifu.guagua.util.MemoryLimitedList;
 import ml.shifu.guagua.util.NumberFormatUtils;
 import ml.shifu.guagua.worker.AbstractWorkerComputable;
 import ml.shifu.guagua.worker.WorkerContext;
@@ -109,6 +111,22 @@ public class DTWorker extends
 
     protected static final Logger LOG = LoggerFactory.getLogger(DTWorker.class);
 
+    /**
+     * Records are split into ranges, each thread builds stats of all todo nodes and features in its own copy, copies
+     * are merged after all threads finished.
+     */
+    static final String STATS_PARALLEL_ROW = "row";
+
+    /**
+     * Each thread builds stats of disjoint (todo node, feature) pairs over all records, no copy or merge of stats.
+     */
+    static final String STATS_PARALLEL_FEATURE = "feature";
+
+    /**
+     * Choose row or feature parallel mode by feature count, todo node count and thread count in each iteration.
+     */
+    static final String STATS_PARALLEL_AUTO = "auto";
+
     /**
      * Model configuration loaded from configuration file.
      */
@@ -183,14 +201,15 @@ public class DTWorker extends
     protected long negativeValidationCount;
 
     /**
-     * Training data set with only in memory because for GBDT data will be changed in later iterations.
+     * Training data set in columnar store, on heap at first and spilled out of heap if over memory budget; records are
+     * updated in place because for GBDT data will be changed in later iterations.
      */
-    private volatile MemoryLimitedList<Data> trainingData;
+    private volatile ColumnarDataStore trainingData;
 
     /**
-     * Validation data set with only in memory because for GBDT data will be changed in later iterations.
+     * Validation data set in columnar store, on heap at first and spilled out of heap if over memory budget.
      */
-    private volatile MemoryLimitedList<Data> validationData;
+    private volatile ColumnarDataStore validationData;
 
     /**
      * PoissonDistribution which is used for up sampling positive records.
@@ -277,6 +296,17 @@ public class DTWorker extends
      */
     private int workerThreadCount;
 
+    /**
+     * Stats building mode of worker threads: {@link #STATS_PARALLEL_ROW}, {@link #STATS_PARALLEL_FEATURE} or
+     * {@link #STATS_PARALLEL_AUTO}.
+     */
+    private String statsParallelMode;
+
+    /**
+     * Encoding flags of node stats sent to master, see {@link NodeStatsCodec}.
+     */
+    private int statsEncoding;
+
     /**
      * Indicates if validation are set by users for validationDataPath, not random picking
      */
@@ -328,6 +358,27 @@ public class DTWorker extends
      */
     private Random dropOutRandom = new Random(System.currentTimeMillis() + 5000L);
 
+    /**
+     * Rate of records with top absolute gradients always selected in GOSS (gradient-based one-side sampling) of GBDT.
+     */
+    private double gossTopRate = 0d;
+
+    /**
+     * Rate of other records randomly selected in GOSS, selected other records are weighted by (1 - a) / b with a as
+     * {@link #gossTopRate} and b as {@link #gossOtherRate}.
+     */
+    private double gossOtherRate = 0d;
+
+    /**
+     * If GOSS is enabled to renew sample weights of each tree instead of bagging sampling in GBDT.
+     */
+    private boolean isGOSS = false;
+
+    /**
+     * Random object to select other records in GOSS.
+     */
+    private Random gossRandom;
+
     /**
      * Random object to sample negative records
      */
@@ -340,6 +391,17 @@ public class DTWorker extends
      */
     private WeightPolicy wp;
 
+    /**
+     * Node id of each training record per tree to avoid walking trees from root in each iteration, null if disabled or
+     * no enough memory.
+     */
+    private RecordNodeIndex nodeIndex;
+
+    /**
+     * Worker local node statistics of former iterations for histogram subtraction, null if disabled.
+     */
+    private NodeStatsCache statsCache;
+
     @Override
     public void initRecordReader(GuaguaFileSplit fileSplit) throws IOException {
         super.setRecordReader(new GuaguaLineRecordReader(fileSplit));
@@ -406,6 +468,10 @@ public class DTWorker extends
 
         this.workerThreadCount = modelConfig.getTrain().getWorkerThreadCount();
         this.threadPool = Executors.newFixedThreadPool(this.workerThreadCount);
+        this.statsParallelMode = context.getProps().getProperty(CommonConstants.SHIFU_DT_WORKER_STATS_PARALLEL,
+                STATS_PARALLEL_AUTO);
+        this.statsEncoding = NodeStatsCodec
+                .parseFlags(context.getProps().getProperty(CommonConstants.SHIFU_DT_WORKER_STATS_ENCODING));
         // enable shut down logic
         context.addCompletionCallBack(new WorkerCompletionCallBack<DTMasterParams, DTWorkerParams>() {
             @Override
@@ -416,6 +482,13 @@ public class DTWorker extends
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                 }
+                // release off heap chunks and spill files of data stores
+                if(DTWorker.this.trainingData != null) {
+                    DTWorker.this.trainingData.close();
+                }
+                if(DTWorker.this.validationData != null) {
+                    DTWorker.this.validationData.close();
+                }
             }
         });
 
@@ -435,27 +508,6 @@ public class DTWorker extends
         double memoryFraction = Double.valueOf(context.getProps().getProperty("guagua.data.memoryFraction", "0.6"));
         LOG.info("Max heap memory: {}, fraction: {}", Runtime.getRuntime().maxMemory(), memoryFraction);
 
-        double validationRate = this.modelConfig.getValidSetRate();
-        if(StringUtils.isNotBlank(modelConfig.getValidationDataSetRawPath())) {
-            // fixed 0.6 and 0.4 of max memory for trainingData and validationData
-            this.trainingData = new MemoryLimitedList<Data>(
-                    (long) (Runtime.getRuntime().maxMemory() * memoryFraction * 0.6), new ArrayList<Data>());
-            this.validationData = new MemoryLimitedList<Data>(
-                    (long) (Runtime.getRuntime().maxMemory() * memoryFraction * 0.4), new ArrayList<Data>());
-        } else {
-            if(Double.compare(validationRate, 0d) != 0) {
-                this.trainingData = new MemoryLimitedList<Data>(
-                        (long) (Runtime.getRuntime().maxMemory() * memoryFraction * (1 - validationRate)),
-                        new ArrayList<Data>());
-                this.validationData = new MemoryLimitedList<Data>(
-                        (long) (Runtime.getRuntime().maxMemory() * memoryFraction * validationRate),
-                        new ArrayList<Data>());
-            } else {
-                this.trainingData = new MemoryLimitedList<Data>(
-                        (long) (Runtime.getRuntime().maxMemory() * memoryFraction), new ArrayList<Data>());
-            }
-        }
-
         int[] inputOutputIndex = DTrainUtils.getNumericAndCategoricalInputAndOutputCounts(this.columnConfigList);
         // numerical + categorical = # of all input
         this.inputCount = inputOutputIndex[0] + inputOutputIndex[1];
@@ -525,10 +577,31 @@ public class DTWorker extends
             if(dropoutObj != null) {
                 this.dropOutRate = Double.valueOf(dropoutObj.toString());
             }
+
+            Object gossTopObj = validParams.get(CommonConstants.GOSS_TOP_RATE);
+            Object gossOtherObj = validParams.get(CommonConstants.GOSS_OTHER_RATE);
+            if(gossTopObj != null && gossOtherObj != null) {
+                this.gossTopRate = Double.valueOf(gossTopObj.toString());
+                this.gossOtherRate = Double.valueOf(gossOtherObj.toString());
+                this.isGOSS = this.gossTopRate > 0d && this.gossOtherRate > 0d
+                        && this.gossTopRate + this.gossOtherRate < 1d;
+                if(this.isGOSS && this.gbdtSampleWithReplacement) {
+                    LOG.warn("GOSS is not supported with GBTSampleWithReplacement, GOSS is disabled.");
+                    this.isGOSS = false;
+                }
+                if(this.isGOSS) {
+                    this.gossRandom = DTrainUtils.generateRandomBySampleSeed(
+                            modelConfig.getTrain().getBaggingSampleSeed(), CommonConstants.NOT_CONFIGURED_BAGGING_SEED);
+                }
+                LOG.info("GOSS is enabled: {} with top rate {} and other rate {}.", this.isGOSS, this.gossTopRate,
+                        this.gossOtherRate);
+            }
         }
 
         this.isStratifiedSampling = this.modelConfig.getTrain().getStratifiedSample();
 
+        initDataStores(context, memoryFraction);
+
         this.checkpointOutput = new Path(context.getProps()
                 .getProperty(CommonConstants.SHIFU_DT_MASTER_CHECKPOINT_FOLDER, "tmp/cp_" + context.getAppId()));
 
@@ -598,27 +671,45 @@ public class DTWorker extends
             this.baggingRandomMap = new HashMap<Integer, Random>();
         }
 
+        if(this.isNeedRecoverGBDTPredict || (this.isContinuousEnabled && lastMasterResult.isContinuousRunningStart())) {
+            // data predict is recovered from all trees, node index and cached stats are not valid any more
+            if(this.nodeIndex != null) {
+                this.nodeIndex.reset();
+            }
+            if(this.statsCache != null) {
+                this.statsCache.clear();
+            }
+        } else if(this.isGBDT && lastMasterResult.isSwitchToNextTree() && this.statsCache != null) {
+            // gradients and sample weights are renewed in new tree, stats of former tree are useless
+            this.statsCache.clear();
+        }
+        NodeLookup[] lookups = initNodeLookups(trees, lastMasterResult.isSwitchToNextTree());
+
         long start = System.nanoTime();
-        for(Data data: this.trainingData) {
+        final ColumnarDataStore trainingData = this.trainingData;
+        for(int j = 0; j < trainingData.size(); j++) {
+            float label = trainingData.getLabel(j);
+            float significance = trainingData.getSignificance(j);
             if(this.isRF) {
-                for(TreeNode treeNode: trees) {
+                for(int i = 0; i < trees.size(); i++) {
+                    TreeNode treeNode = trees.get(i);
                     if(treeNode.getNode().getId() == Node.INVALID_INDEX) {
                         continue;
                     }
 
-                    Node predictNode = predictNodeIndex(treeNode.getNode(), data, true);
+                    Node predictNode = locateNode(treeNode, lookups[i], j);
                     if(predictNode.getPredict() != null) {
                         // only update when not in first node, for treeNode, no predict statistics at that time
-                        float weight = data.subsampleWeights[treeNode.getTreeId()];
+                        float weight = trainingData.getWeight(treeNode.getTreeId(), j);
                         if(Float.compare(weight, 0f) == 0) {
                             // oob data, no need to do weighting
-                            validationError += data.significance
-                                    * loss.computeError((float) (predictNode.getPredict().getPredict()), data.label);
-                            weightedValidationCount += data.significance;
+                            validationError += significance
+                                    * loss.computeError((float) (predictNode.getPredict().getPredict()), label);
+                            weightedValidationCount += significance;
                         } else {
-                            trainError += weight * data.significance
-                                    * loss.computeError((float) (predictNode.getPredict().getPredict()), data.label);
-                            weightedTrainCount += weight * data.significance;
+                            trainError += weight * significance
+                                    * loss.computeError((float) (predictNode.getPredict().getPredict()), label);
+                            weightedTrainCount += weight * significance;
                         }
                     }
                 }
@@ -626,43 +717,45 @@ public class DTWorker extends
 
             if(this.isGBDT) {
                 if(this.isContinuousEnabled && lastMasterResult.isContinuousRunningStart()) {
-                    recoverGBTData(context, data.output, data.predict, data, false);
-                    trainError += data.significance * loss.computeError(data.predict, data.label);
-                    weightedTrainCount += data.significance;
+                    recoverGBTData(trainingData, j, false);
+                    trainError += significance * loss.computeError(trainingData.getPredict(j), label);
+                    weightedTrainCount += significance;
                 } else {
                     if(isNeedRecoverGBDTPredict) {
                         if(this.recoverTrees == null) {
                             this.recoverTrees = recoverCurrentTrees();
                         }
                         // recover gbdt data for fail over
-                        recoverGBTData(context, data.output, data.predict, data, true);
+                        recoverGBTData(trainingData, j, true);
                     }
                     int currTreeIndex = trees.size() - 1;
 
                     if(lastMasterResult.isSwitchToNextTree()) {
                         if(currTreeIndex >= 1) {
-                            Node node = trees.get(currTreeIndex - 1).getNode();
-                            Node predictNode = predictNodeIndex(node, data, false);
+                            Node predictNode = locateNode(trees.get(currTreeIndex - 1), lookups[currTreeIndex - 1], j);
                             if(predictNode.getPredict() != null) {
                                 double predict = predictNode.getPredict().getPredict();
+                                float dataPredict = trainingData.getPredict(j);
                                 // first tree logic, master must set it to first tree even second tree with ROOT is
                                 // sending
                                 if(context.getLastMasterResult().isFirstTree()) {
-                                    data.predict = (float) predict;
+                                    dataPredict = (float) predict;
                                 } else {
                                     // random drop
                                     boolean drop = (this.dropOutRate > 0.0
                                             && dropOutRandom.nextDouble() < this.dropOutRate);
                                     if(!drop) {
-                                        data.predict += (float) (this.learningRate * predict);
+                                        dataPredict += (float) (this.learningRate * predict);
                                     }
                                 }
-                                data.output = -1f * loss.computeGradient(data.predict, data.label);
+                                trainingData.setPredict(j, dataPredict);
+                                trainingData.setOutput(j, -1f * loss.computeGradient(dataPredict, label));
                             }
-                            // if not sampling with replacement in gbdt, renew bagging sample rate in next tree
-                            if(!this.gbdtSampleWithReplacement) {
+                            // if not sampling with replacement in gbdt, renew bagging sample rate in next tree, GOSS
+                            // sampling is done after gradients of all records are updated
+                            if(!this.gbdtSampleWithReplacement && !this.isGOSS) {
                                 Random random = null;
-                                int classValue = (int) (data.label + 0.01f);
+                                int classValue = (int) (label + 0.01f);
                                 if(this.isStratifiedSampling) {
                                     random = baggingRandomMap.get(classValue);
                                     if(random == null) {
@@ -680,89 +773,100 @@ public class DTWorker extends
                                         baggingRandomMap.put(0, random);
                                     }
                                 }
+                                int weightIndex = currTreeIndex % trainingData.getWeightSize();
                                 if(random.nextDouble() <= modelConfig.getTrain().getBaggingSampleRate()) {
-                                    data.subsampleWeights[currTreeIndex % data.subsampleWeights.length] = 1f;
+                                    trainingData.setWeight(weightIndex, j, 1f);
                                 } else {
-                                    data.subsampleWeights[currTreeIndex % data.subsampleWeights.length] = 0f;
+                                    trainingData.setWeight(weightIndex, j, 0f);
                                 }
                             }
                         }
                     }
 
                     if(context.getLastMasterResult().isFirstTree() && !lastMasterResult.isSwitchToNextTree()) {
-                        Node currTree = trees.get(currTreeIndex).getNode();
-                        Node predictNode = predictNodeIndex(currTree, data, true);
+                        Node predictNode = locateNode(trees.get(currTreeIndex), lookups[currTreeIndex], j);
                         if(predictNode.getPredict() != null) {
-                            trainError += data.significance
-                                    * loss.computeError((float) (predictNode.getPredict().getPredict()), data.label);
-                            weightedTrainCount += data.significance;
+                            trainError += significance
+                                    * loss.computeError((float) (predictNode.getPredict().getPredict()), label);
+                            weightedTrainCount += significance;
                         }
                     } else {
-                        trainError += data.significance * loss.computeError(data.predict, data.label);
-                        weightedTrainCount += data.significance;
+                        trainError += significance * loss.computeError(trainingData.getPredict(j), label);
+                        weightedTrainCount += significance;
                     }
                 }
             }
         }
         LOG.debug("Compute train error time is {}ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
 
+        if(this.isGOSS && lastMasterResult.isSwitchToNextTree() && trees.size() >= 2
+                && !(this.isContinuousEnabled && lastMasterResult.isContinuousRunningStart())) {
+            sampleByGradients(this.trainingData, trees.size() - 1, this.gossTopRate, this.gossOtherRate,
+                    this.gossRandom);
+        }
+
         if(validationData != null) {
             start = System.nanoTime();
-            for(Data data: this.validationData) {
+            final ColumnarDataStore validationData = this.validationData;
+            for(int j = 0; j < validationData.size(); j++) {
+                float label = validationData.getLabel(j);
+                float significance = validationData.getSignificance(j);
                 if(this.isRF) {
                     for(TreeNode treeNode: trees) {
                         if(treeNode.getNode().getId() == Node.INVALID_INDEX) {
                             continue;
                         }
-                        Node predictNode = predictNodeIndex(treeNode.getNode(), data, true);
+                        Node predictNode = predictNodeIndex(treeNode.getNode(), validationData, j);
                         if(predictNode.getPredict() != null) {
                             // only update when not in first node, for treeNode, no predict statistics at that time
-                            validationError += data.significance
-                                    * loss.computeError((float) (predictNode.getPredict().getPredict()), data.label);
-                            weightedValidationCount += data.significance;
+                            validationError += significance
+                                    * loss.computeError((float) (predictNode.getPredict().getPredict()), label);
+                            weightedValidationCount += significance;
                         }
                     }
                 }
 
                 if(this.isGBDT) {
                     if(this.isContinuousEnabled && lastMasterResult.isContinuousRunningStart()) {
-                        recoverGBTData(context, data.output, data.predict, data, false);
-                        validationError += data.significance * loss.computeError(data.predict, data.label);
-                        weightedValidationCount += data.significance;
+                        recoverGBTData(validationData, j, false);
+                        validationError += significance * loss.computeError(validationData.getPredict(j), label);
+                        weightedValidationCount += significance;
                     } else {
                         if(isNeedRecoverGBDTPredict) {
                             if(this.recoverTrees == null) {
                                 this.recoverTrees = recoverCurrentTrees();
                             }
                             // recover gbdt data for fail over
-                            recoverGBTData(context, data.output, data.predict, data, true);
+                            recoverGBTData(validationData, j, true);
                         }
                         int currTreeIndex = trees.size() - 1;
                         if(lastMasterResult.isSwitchToNextTree()) {
                             if(currTreeIndex >= 1) {
                                 Node node = trees.get(currTreeIndex - 1).getNode();
-                                Node predictNode = predictNodeIndex(node, data, false);
+                                Node predictNode = predictNodeIndex(node, validationData, j);
                                 if(predictNode.getPredict() != null) {
                                     double predict = predictNode.getPredict().getPredict();
+                                    float dataPredict = validationData.getPredict(j);
                                     if(context.getLastMasterResult().isFirstTree()) {
-                                        data.predict = (float) predict;
+                                        dataPredict = (float) predict;
                                     } else {
-                                        data.predict += (float) (this.learningRate * predict);
+                                        dataPredict += (float) (this.learningRate * predict);
                                     }
-                                    data.output = -1f * loss.computeGradient(data.predict, data.label);
+                                    validationData.setPredict(j, dataPredict);
+                                    validationData.setOutput(j, -1f * loss.computeGradient(dataPredict, label));
                                 }
                             }
                         }
                         if(context.getLastMasterResult().isFirstTree() && !lastMasterResult.isSwitchToNextTree()) {
-                            Node predictNode = predictNodeIndex(trees.get(currTreeIndex).getNode(), data, true);
+                            Node predictNode = predictNodeIndex(trees.get(currTreeIndex).getNode(), validationData, j);
                             if(predictNode.getPredict() != null) {
-                                validationError += data.significance * loss
-                                        .computeError((float) (predictNode.getPredict().getPredict()), data.label);
-                                weightedValidationCount += data.significance;
+                                validationError += significance
+                                        * loss.computeError((float) (predictNode.getPredict().getPredict()), label);
+                                weightedValidationCount += significance;
                             }
                         } else {
-                            validationError += data.significance * loss.computeError(data.predict, data.label);
-                            weightedValidationCount += data.significance;
+                            validationError += significance * loss.computeError(validationData.getPredict(j), label);
+                            weightedValidationCount += significance;
                         }
                     }
                 }
@@ -780,10 +884,26 @@ public class DTWorker extends
         }
 
         start = System.nanoTime();
-        CompletionService<Map<Integer, NodeStats>> completionService = new ExecutorCompletionService<Map<Integer, NodeStats>>(
-                this.threadPool);
+        final int[] statsTreeIndexes = initStatsNodeLookups(trees, todoNodes, lookups);
+        final NodeLookup[] statsLookups = lookups;
+        if(this.statsCache != null) {
+            this.statsCache.evict(toTreeMap(trees));
+        }
+
+        // flatten todo nodes to slots, todo node of one record is found by binary search of node id in its tree
+        final int slotSize = todoNodes.size();
+        final int[] slotKeys = new int[slotSize];
+        final TreeNode[] slotNodes = new TreeNode[slotSize];
+        int slot = 0;
+        for(Entry<Integer, TreeNode> entry: todoNodes.entrySet()) {
+            slotKeys[slot] = entry.getKey();
+            slotNodes[slot] = entry.getValue();
+            slot += 1;
+        }
+        final int[][] todoIds = new int[trees.size()][];
+        final int[][] todoSlots = new int[trees.size()][];
+        initTodoLookups(trees, slotNodes, todoIds, todoSlots);
 
-        int realThreadCount = 0;
         LOG.debug("while todo size {}", todoNodes.size());
 
         int realRecords = this.trainingData.size();
@@ -806,72 +926,84 @@ public class DTWorker extends
             }
         }
 
-        for(int i = 0; i < realThreads; i++) {
-            final Map<Integer, TreeNode> localTodoNodes = new HashMap<Integer, TreeNode>(todoNodes);
+        // stats of some todo nodes are derived by parent stats minus sibling stats instead of scanning records
+        SubtractionPlan[] plans = planSubtraction(slotKeys, slotNodes, todoIds, todoSlots, trees, statsTreeIndexes,
+                statsLookups, trainLows, trainHighs, statistics);
+
+        final int[][] scanColumns = new int[slotSize][];
+        final int[][] scanInputIndexes = new int[slotSize][];
+        boolean hasScan = false;
+        for(int i = 0; i < slotSize; i++) {
+            Set<Integer> features = statistics.get(slotKeys[i]).getFeatureStatistics().keySet();
+            List<Integer> columns = new ArrayList<Integer>(features.size());
+            for(Integer columnNum: features) {
+                if(plans[i] == null || !plans[i].features.contains(columnNum)) {
+                    columns.add(columnNum);
+                }
+            }
+            scanColumns[i] = new int[columns.size()];
+            scanInputIndexes[i] = new int[columns.size()];
+            for(int j = 0; j < columns.size(); j++) {
+                scanColumns[i][j] = columns.get(j);
+                scanInputIndexes[i][j] = this.inputIndexMap.get(columns.get(j));
+            }
+            hasScan = hasScan || !columns.isEmpty();
+        }
+
+        final boolean isFeatureParallel = hasScan
+                && isFeatureParallel(realThreads, realRecords, slotKeys, scanColumns, statistics);
+        if(isFeatureParallel) {
+            buildFeatureParallelStats(slotKeys, slotNodes, todoIds, todoSlots, trees, statsTreeIndexes, statsLookups,
+                    trainLows, trainHighs, scanColumns, scanInputIndexes, statistics);
+        }
+
+        CompletionService<Map<Integer, NodeStats>> completionService = new ExecutorCompletionService<Map<Integer, NodeStats>>(
+                this.threadPool);
+        int realThreadCount = 0;
+        for(int i = 0; hasScan && !isFeatureParallel && i < realThreads; i++) {
             final Map<Integer, NodeStats> localStatistics = initTodoNodeStats(todoNodes);
 
             final int startIndex = trainLows[i];
             final int endIndex = trainHighs[i];
-            LOG.info("Thread {} todo size {} stats size {} start index {} end index {}", i, localTodoNodes.size(),
+            LOG.info("Thread {} todo size {} stats size {} start index {} end index {}", i, slotSize,
                     localStatistics.size(), startIndex, endIndex);
 
-            if(localTodoNodes.size() == 0) {
-                continue;
-            }
             realThreadCount += 1;
             completionService.submit(new Callable<Map<Integer, NodeStats>>() {
                 @Override
                 public Map<Integer, NodeStats> call() throws Exception {
                     long start = System.nanoTime();
-                    List<Integer> nodeIndexes = new ArrayList<Integer>(trees.size());
+                    double[][][] slotStatistics = new double[slotSize][][];
+                    for(int s = 0; s < slotSize; s++) {
+                        Map<Integer, double[]> featureStatistics = localStatistics.get(slotKeys[s])
+                                .getFeatureStatistics();
+                        slotStatistics[s] = new double[scanColumns[s].length][];
+                        for(int k = 0; k < scanColumns[s].length; k++) {
+                            slotStatistics[s][k] = featureStatistics.get(scanColumns[s][k]);
+                        }
+                    }
+                    ColumnarDataStore trainingData = DTWorker.this.trainingData;
+                    int weightSize = trainingData.getWeightSize();
                     for(int j = startIndex; j <= endIndex; j++) {
-                        Data data = DTWorker.this.trainingData.get(j);
-                        nodeIndexes.clear();
-                        if(DTWorker.this.isRF) {
-                            for(TreeNode treeNode: trees) {
-                                if(treeNode.getNode().getId() == Node.INVALID_INDEX) {
-                                    nodeIndexes.add(Node.INVALID_INDEX);
-                                } else {
-                                    Node predictNode = predictNodeIndex(treeNode.getNode(), data, false);
-                                    nodeIndexes.add(predictNode.getId());
-                                }
+                        for(int treeIndex: statsTreeIndexes) {
+                            Node predictNode = locateNode(trees.get(treeIndex), statsLookups[treeIndex], j);
+                            int index = Arrays.binarySearch(todoIds[treeIndex], predictNode.getId());
+                            if(index < 0) {
+                                continue;
                             }
-                        }
-
-                        if(DTWorker.this.isGBDT) {
-                            int currTreeIndex = trees.size() - 1;
-                            Node predictNode = predictNodeIndex(trees.get(currTreeIndex).getNode(), data, false);
-                            // update node index
-                            nodeIndexes.add(predictNode.getId());
-                        }
-                        for(Map.Entry<Integer, TreeNode> entry: localTodoNodes.entrySet()) {
+                            int s = todoSlots[treeIndex][index];
                             // only do statistics on effective data
-                            Node todoNode = entry.getValue().getNode();
-                            int treeId = entry.getValue().getTreeId();
-                            int currPredictIndex = 0;
-                            if(DTWorker.this.isRF) {
-                                currPredictIndex = nodeIndexes.get(entry.getValue().getTreeId());
+                            float weight = trainingData.getWeight(slotNodes[s].getTreeId() % weightSize, j);
+                            if(Float.compare(weight, 0f) == 0) {
+                                continue;
                             }
-                            if(DTWorker.this.isGBDT) {
-                                currPredictIndex = nodeIndexes.get(0);
-                            }
-
-                            if(todoNode.getId() == currPredictIndex) {
-                                List<Integer> features = entry.getValue().getFeatures();
-                                if(features.isEmpty()) {
-                                    features = getAllValidFeatures();
-                                }
-                                for(Integer columnNum: features) {
-                                    double[] featuerStatistic = localStatistics.get(entry.getKey())
-                                            .getFeatureStatistics().get(columnNum);
-                                    float weight = data.subsampleWeights[treeId % data.subsampleWeights.length];
-                                    if(Float.compare(weight, 0f) != 0) {
-                                        // only compute weight is not 0
-                                        short binIndex = data.inputs[DTWorker.this.inputIndexMap.get(columnNum)];
-                                        DTWorker.this.impurity.featureUpdate(featuerStatistic, binIndex, data.output,
-                                                data.significance, weight);
-                                    }
-                                }
+                            float output = trainingData.getOutput(j);
+                            float significance = trainingData.getSignificance(j);
+                            int[] inputIndexes = scanInputIndexes[s];
+                            double[][] featureStatistics = slotStatistics[s];
+                            for(int k = 0; k < inputIndexes.length; k++) {
+                                DTWorker.this.impurity.featureUpdate(featureStatistics[k],
+                                        trainingData.getBin(inputIndexes[k], j), output, significance, weight);
                             }
                         }
                     }
@@ -901,13 +1033,18 @@ public class DTWorker extends
             }
             rCnt += 1;
         }
+
+        subtractNodeStats(plans, slotKeys, slotNodes, statistics);
         LOG.debug("Compute stats time is {}ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
 
         LOG.info(
                 "worker count is {}, error is {}, and stats size is {}. weightedTrainCount {}, weightedValidationCount {}, trainError {}, validationError {}",
                 count, trainError, statistics.size(), weightedTrainCount, weightedValidationCount, trainError,
                 validationError);
-        return new DTWorkerParams(weightedTrainCount, weightedValidationCount, trainError, validationError, statistics);
+        DTWorkerParams workerParams = new DTWorkerParams(weightedTrainCount, weightedValidationCount, trainError,
+                validationError, statistics);
+        workerParams.setStatsEncoding(this.statsEncoding);
+        return workerParams;
     }
 
     private void mergeNodeStats(NodeStats resultNodeStats, NodeStats nodeStats) {
@@ -920,6 +1057,523 @@ public class DTWorker extends
         }
     }
 
+    /**
+     * Init node lookups of trees used to compute errors of training data, null in lookup means no node index is used
+     * for such tree.
+     */
+    private NodeLookup[] initNodeLookups(List<TreeNode> trees, boolean isSwitchToNextTree) {
+        NodeLookup[] lookups = new NodeLookup[trees.size()];
+        if(this.nodeIndex == null) {
+            return lookups;
+        }
+        if(this.isRF) {
+            for(int i = 0; i < trees.size(); i++) {
+                TreeNode treeNode = trees.get(i);
+                if(treeNode.getNode().getId() != Node.INVALID_INDEX) {
+                    this.nodeIndex.ensureTree(treeNode.getTreeId());
+                    lookups[i] = new NodeLookup(treeNode.getNode());
+                }
+            }
+        } else if(this.isGBDT) {
+            int currTreeIndex = trees.size() - 1;
+            if(isSwitchToNextTree) {
+                // node index is still of former tree which is used to update predict of data
+                if(currTreeIndex >= 1 && this.nodeIndex.isIndexed(trees.get(currTreeIndex - 1).getTreeId())) {
+                    lookups[currTreeIndex - 1] = new NodeLookup(trees.get(currTreeIndex - 1).getNode());
+                }
+            } else {
+                this.nodeIndex.ensureTree(trees.get(currTreeIndex).getTreeId());
+                lookups[currTreeIndex] = new NodeLookup(trees.get(currTreeIndex).getNode());
+            }
+        }
+        return lookups;
+    }
+
+    /**
+     * Init node lookups of trees used to compute stats and return sorted indexes of trees with todo nodes.
+     */
+    private int[] initStatsNodeLookups(List<TreeNode> trees, Map<Integer, TreeNode> todoNodes, NodeLookup[] lookups) {
+        if(this.isGBDT && this.nodeIndex != null) {
+            int currTreeIndex = trees.size() - 1;
+            if(lookups[currTreeIndex] == null) {
+                // new tree is started, reset node index to root of new tree
+                this.nodeIndex.ensureTree(trees.get(currTreeIndex).getTreeId());
+                lookups[currTreeIndex] = new NodeLookup(trees.get(currTreeIndex).getNode());
+            }
+        }
+        boolean[] hasTodo = new boolean[trees.size()];
+        int size = 0;
+        for(TreeNode todoNode: todoNodes.values()) {
+            int treeIndex = treeIndexOf(todoNode, trees);
+            if(!hasTodo[treeIndex]) {
+                hasTodo[treeIndex] = true;
+                size += 1;
+            }
+        }
+        int[] treeIndexes = new int[size];
+        for(int i = 0, j = 0; i < hasTodo.length; i++) {
+            if(hasTodo[i]) {
+                treeIndexes[j++] = i;
+            }
+        }
+        return treeIndexes;
+    }
+
+    /**
+     * Index of todo node's tree in trees sent by master: tree id for RF and the last one for GBDT.
+     */
+    private int treeIndexOf(TreeNode todoNode, List<TreeNode> trees) {
+        return this.isRF ? todoNode.getTreeId() : trees.size() - 1;
+    }
+
+    private Map<Integer, TreeNode> toTreeMap(List<TreeNode> trees) {
+        Map<Integer, TreeNode> treeMap = new HashMap<Integer, TreeNode>(trees.size(), 1f);
+        for(TreeNode treeNode: trees) {
+            treeMap.put(treeNode.getTreeId(), treeNode);
+        }
+        return treeMap;
+    }
+
+    /**
+     * Init sorted todo node ids and its slots per tree index.
+     */
+    private void initTodoLookups(List<TreeNode> trees, TreeNode[] slotNodes, int[][] todoIds, int[][] todoSlots) {
+        int[] sizes = new int[trees.size()];
+        for(TreeNode slotNode: slotNodes) {
+            sizes[treeIndexOf(slotNode, trees)] += 1;
+        }
+        long[][] idSlots = new long[trees.size()][];
+        for(int i = 0; i < sizes.length; i++) {
+            idSlots[i] = new long[sizes[i]];
+            sizes[i] = 0;
+        }
+        for(int s = 0; s < slotNodes.length; s++) {
+            int treeIndex = treeIndexOf(slotNodes[s], trees);
+            // node id in high bits for sorting and slot in low bits
+            idSlots[treeIndex][sizes[treeIndex]++] = (((long) slotNodes[s].getNode().getId()) << 32) | s;
+        }
+        for(int i = 0; i < idSlots.length; i++) {
+            Arrays.sort(idSlots[i]);
+            todoIds[i] = new int[idSlots[i].length];
+            todoSlots[i] = new int[idSlots[i].length];
+            for(int j = 0; j < idSlots[i].length; j++) {
+                todoIds[i][j] = (int) (idSlots[i][j] >>> 32);
+                todoSlots[i][j] = (int) idSlots[i][j];
+            }
+        }
+    }
+
+    /**
+     * Walk tree from node in node index if lookup is not null, else from root, node index is updated to the result
+     * node.
+     */
+    private Node locateNode(TreeNode treeNode, NodeLookup lookup, int record) {
+        if(lookup == null) {
+            return predictNodeIndex(treeNode.getNode(), this.trainingData, record);
+        }
+        int treeId = treeNode.getTreeId();
+        Node indexedNode = lookup.get(this.nodeIndex.get(treeId, record));
+        Node predictNode = predictNodeIndex(indexedNode == null ? treeNode.getNode() : indexedNode, this.trainingData,
+                record);
+        this.nodeIndex.set(treeId, record, predictNode.getId());
+        return predictNode;
+    }
+
+    /**
+     * Plan which todo nodes can be derived by parent stats minus sibling stats: if parent and sibling stats are both
+     * cached, node is derived; if parent stats is cached and sibling is also todo node, the child with less records is
+     * scanned and the other one is derived.
+     */
+    private SubtractionPlan[] planSubtraction(int[] slotKeys, TreeNode[] slotNodes, int[][] todoIds,
+            int[][] todoSlots, List<TreeNode> trees, int[] statsTreeIndexes, NodeLookup[] lookups, int[] trainLows,
+            int[] trainHighs, Map<Integer, NodeStats> statistics) {
+        SubtractionPlan[] plans = new SubtractionPlan[slotNodes.length];
+        if(this.statsCache == null) {
+            return plans;
+        }
+        List<int[]> pairs = new ArrayList<int[]>();
+        for(int s = 0; s < slotNodes.length; s++) {
+            int treeId = slotNodes[s].getTreeId();
+            int nodeId = slotNodes[s].getNode().getId();
+            if(nodeId <= Node.ROOT_INDEX) {
+                continue;
+            }
+            Map<Integer, double[]> parentStats = this.statsCache.get(treeId, nodeId >>> 1);
+            if(parentStats == null) {
+                continue;
+            }
+            int siblingId = nodeId ^ 1;
+            Map<Integer, double[]> siblingStats = this.statsCache.get(treeId, siblingId);
+            if(siblingStats != null) {
+                plans[s] = SubtractionPlan.of(statistics.get(slotKeys[s]).getFeatureStatistics(), parentStats,
+                        siblingStats, -1);
+            } else if(nodeId == Node.leftIndex(nodeId >>> 1)) {
+                int treeIndex = treeIndexOf(slotNodes[s], trees);
+                int index = Arrays.binarySearch(todoIds[treeIndex], siblingId);
+                if(index >= 0) {
+                    pairs.add(new int[] { s, todoSlots[treeIndex][index] });
+                }
+            }
+        }
+        if(pairs.isEmpty()) {
+            return plans;
+        }
+
+        // count records only if node index is enabled, else tree walking twice is more expensive than scanning
+        long[] counts = this.nodeIndex == null ? null
+                : countTodoRecords(slotNodes, todoIds, todoSlots, trees, statsTreeIndexes, lookups, trainLows,
+                        trainHighs);
+        for(int[] pair: pairs) {
+            int left = pair[0], right = pair[1];
+            int derived = (counts != null && counts[left] > counts[right]) ? left : right;
+            int scanned = derived == left ? right : left;
+            TreeNode treeNode = slotNodes[derived];
+            Map<Integer, double[]> parentStats = this.statsCache.get(treeNode.getTreeId(),
+                    treeNode.getNode().getId() >>> 1);
+            plans[derived] = SubtractionPlan.of(statistics.get(slotKeys[derived]).getFeatureStatistics(),
+                    parentStats, statistics.get(slotKeys[scanned]).getFeatureStatistics(), scanned);
+        }
+        return plans;
+    }
+
+    /**
+     * Feature parallel mode is used if there are enough (todo node, feature) pairs to keep all threads busy and size
+     * of stats copies in row parallel mode is comparable to # of records, in which case merging copies is a serial
+     * bottleneck and copies take much memory.
+     */
+    private boolean isFeatureParallel(int threads, int records, int[] slotKeys, int[][] scanColumns,
+            Map<Integer, NodeStats> statistics) {
+        if(STATS_PARALLEL_ROW.equalsIgnoreCase(this.statsParallelMode)) {
+            return false;
+        }
+        if(STATS_PARALLEL_FEATURE.equalsIgnoreCase(this.statsParallelMode)) {
+            return true;
+        }
+        if(threads <= 1) {
+            return false;
+        }
+        long units = 0L, statsSize = 0L;
+        for(int s = 0; s < slotKeys.length; s++) {
+            Map<Integer, double[]> featureStatistics = statistics.get(slotKeys[s]).getFeatureStatistics();
+            for(int columnNum: scanColumns[s]) {
+                statsSize += featureStatistics.get(columnNum).length;
+            }
+            units += scanColumns[s].length;
+        }
+        boolean isFeatureParallel = units >= 2L * threads && statsSize * threads >= records;
+        LOG.debug("Stats units {}, stats size {}, threads {}, records {}, feature parallel {}", units, statsSize,
+                threads, records, isFeatureParallel);
+        return isFeatureParallel;
+    }
+
+    /**
+     * Build stats in feature parallel mode: records of each todo node are collected at first by row ranges, then each
+     * (todo node, feature) pair is built by only one thread over records of the todo node in record order, stats are
+     * updated in place without copies and merging.
+     */
+    private void buildFeatureParallelStats(final int[] slotKeys, final TreeNode[] slotNodes, final int[][] todoIds,
+            final int[][] todoSlots, final List<TreeNode> trees, final int[] statsTreeIndexes,
+            final NodeLookup[] lookups, int[] trainLows, int[] trainHighs, final int[][] scanColumns,
+            final int[][] scanInputIndexes, Map<Integer, NodeStats> statistics) {
+        final int slotSize = slotNodes.length;
+        List<Future<int[][]>> recordFutures = new ArrayList<Future<int[][]>>(trainLows.length);
+        for(int i = 0; i < trainLows.length; i++) {
+            final int startIndex = trainLows[i];
+            final int endIndex = trainHighs[i];
+            recordFutures.add(this.threadPool.submit(new Callable<int[][]>() {
+                @Override
+                public int[][] call() throws Exception {
+                    ColumnarDataStore trainingData = DTWorker.this.trainingData;
+                    int weightSize = trainingData.getWeightSize();
+                    int[][] slotRecords = new int[slotSize][];
+                    int[] sizes = new int[slotSize];
+                    for(int j = startIndex; j <= endIndex; j++) {
+                        for(int treeIndex: statsTreeIndexes) {
+                            Node predictNode = locateNode(trees.get(treeIndex), lookups[treeIndex], j);
+                            int index = Arrays.binarySearch(todoIds[treeIndex], predictNode.getId());
+                            if(index < 0) {
+                                continue;
+                            }
+                            int s = todoSlots[treeIndex][index];
+                            // only do statistics on effective data
+                            float weight = trainingData.getWeight(slotNodes[s].getTreeId() % weightSize, j);
+                            if(scanColumns[s].length == 0 || Float.compare(weight, 0f) == 0) {
+                                continue;
+                            }
+                            if(slotRecords[s] == null) {
+                                slotRecords[s] = new int[16];
+                            } else if(sizes[s] == slotRecords[s].length) {
+                                slotRecords[s] = Arrays.copyOf(slotRecords[s], sizes[s] * 2);
+                            }
+                            slotRecords[s][sizes[s]++] = j;
+                        }
+                    }
+                    for(int s = 0; s < slotSize; s++) {
+                        slotRecords[s] = slotRecords[s] == null ? new int[0] : Arrays.copyOf(slotRecords[s], sizes[s]);
+                    }
+                    return slotRecords;
+                }
+            }));
+        }
+
+        // concatenate records in order of row ranges to keep records of each todo node sorted
+        int[][][] rangeRecords = new int[trainLows.length][][];
+        for(int i = 0; i < trainLows.length; i++) {
+            rangeRecords[i] = waitFor(recordFutures.get(i));
+        }
+        final int[][] slotRecords = new int[slotSize][];
+        for(int s = 0; s < slotSize; s++) {
+            int size = 0;
+            for(int i = 0; i < rangeRecords.length; i++) {
+                size += rangeRecords[i][s].length;
+            }
+            slotRecords[s] = new int[size];
+            int offset = 0;
+            for(int i = 0; i < rangeRecords.length; i++) {
+                System.arraycopy(rangeRecords[i][s], 0, slotRecords[s], offset, rangeRecords[i][s].length);
+                offset += rangeRecords[i][s].length;
+            }
+        }
+
+        // (todo node, feature) pairs are picked by threads one by one
+        int unitSize = 0;
+        for(int s = 0; s < slotSize; s++) {
+            unitSize += slotRecords[s].length == 0 ? 0 : scanColumns[s].length;
+        }
+        final int[] unitSlots = new int[unitSize];
+        final int[] unitInputIndexes = new int[unitSize];
+        final double[][] unitStatistics = new double[unitSize][];
+        int unit = 0;
+        for(int s = 0; s < slotSize; s++) {
+            if(slotRecords[s].length == 0) {
+                continue;
+            }
+            Map<Integer, double[]> featureStatistics = statistics.get(slotKeys[s]).getFeatureStatistics();
+            for(int k = 0; k < scanColumns[s].length; k++) {
+                unitSlots[unit] = s;
+                unitInputIndexes[unit] = scanInputIndexes[s][k];
+                unitStatistics[unit] = featureStatistics.get(scanColumns[s][k]);
+                unit += 1;
+            }
+        }
+
+        final AtomicInteger nextUnit = new AtomicInteger(0);
+        int threads = Math.min(trainLows.length, unitSize);
+        List<Future<Object>> futures = new ArrayList<Future<Object>>(threads);
+        for(int i = 0; i < threads; i++) {
+            futures.add(this.threadPool.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    long start = System.nanoTime();
+                    ColumnarDataStore trainingData = DTWorker.this.trainingData;
+                    int weightSize = trainingData.getWeightSize();
+                    int u;
+                    while((u = nextUnit.getAndIncrement()) < unitSlots.length) {
+                        int s = unitSlots[u];
+                        int inputIndex = unitInputIndexes[u];
+                        int weightIndex = slotNodes[s].getTreeId() % weightSize;
+                        double[] featureStatistics = unitStatistics[u];
+                        for(int j: slotRecords[s]) {
+                            DTWorker.this.impurity.featureUpdate(featureStatistics,
+                                    trainingData.getBin(inputIndex, j), trainingData.getOutput(j),
+                                    trainingData.getSignificance(j), trainingData.getWeight(weightIndex, j));
+                        }
+                    }
+                    LOG.debug("Thread computing feature parallel stats time is {}ms in thread {}",
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                            Thread.currentThread().getName());
+                    return null;
+                }
+            }));
+        }
+        for(Future<Object> future: futures) {
+            waitFor(future);
+        }
+        LOG.debug("Feature parallel stats are built by {} threads with {} (todo node, feature) pairs.", threads,
+                unitSize);
+    }
+
+    private <T> T waitFor(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Count effective training records in each todo node, node index is updated as well.
+     */
+    private long[] countTodoRecords(final TreeNode[] slotNodes, final int[][] todoIds, final int[][] todoSlots,
+            final List<TreeNode> trees, final int[] statsTreeIndexes, final NodeLookup[] lookups, int[] trainLows,
+            int[] trainHighs) {
+        CompletionService<long[]> completionService = new ExecutorCompletionService<long[]>(this.threadPool);
+        for(int i = 0; i < trainLows.length; i++) {
+            final int startIndex = trainLows[i];
+            final int endIndex = trainHighs[i];
+            completionService.submit(new Callable<long[]>() {
+                @Override
+                public long[] call() throws Exception {
+                    long[] counts = new long[slotNodes.length];
+                    ColumnarDataStore trainingData = DTWorker.this.trainingData;
+                    int weightSize = trainingData.getWeightSize();
+                    for(int j = startIndex; j <= endIndex; j++) {
+                        for(int treeIndex: statsTreeIndexes) {
+                            Node predictNode = locateNode(trees.get(treeIndex), lookups[treeIndex], j);
+                            int index = Arrays.binarySearch(todoIds[treeIndex], predictNode.getId());
+                            if(index >= 0) {
+                                int s = todoSlots[treeIndex][index];
+                                float weight = trainingData.getWeight(slotNodes[s].getTreeId() % weightSize, j);
+                                if(Float.compare(weight, 0f) != 0) {
+                                    counts[s] += 1;
+                                }
+                            }
+                        }
+                    }
+                    return counts;
+                }
+            });
+        }
+
+        long[] counts = new long[slotNodes.length];
+        for(int i = 0; i < trainLows.length; i++) {
+            try {
+                long[] currCounts = completionService.take().get();
+                for(int s = 0; s < counts.length; s++) {
+                    counts[s] += currCounts[s];
+                }
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Derive stats by parent stats minus sibling stats according to plans and cache stats of todo nodes for later
+     * iterations.
+     */
+    private void subtractNodeStats(SubtractionPlan[] plans, int[] slotKeys, TreeNode[] slotNodes,
+            Map<Integer, NodeStats> statistics) {
+        if(this.statsCache == null) {
+            return;
+        }
+        int derivedCount = 0;
+        for(int s = 0; s < plans.length; s++) {
+            SubtractionPlan plan = plans[s];
+            if(plan == null) {
+                continue;
+            }
+            Map<Integer, double[]> featureStatistics = statistics.get(slotKeys[s]).getFeatureStatistics();
+            Map<Integer, double[]> siblingStats = plan.siblingSlot >= 0
+                    ? statistics.get(slotKeys[plan.siblingSlot]).getFeatureStatistics()
+                    : plan.siblingStats;
+            for(Integer columnNum: plan.features) {
+                this.impurity.featureSubtract(plan.parentStats.get(columnNum), siblingStats.get(columnNum),
+                        featureStatistics.get(columnNum));
+            }
+            // both children stats are computed, parent stats is useless
+            this.statsCache.remove(slotNodes[s].getTreeId(), slotNodes[s].getNode().getId() >>> 1);
+            derivedCount += 1;
+        }
+        for(int s = 0; s < slotNodes.length; s++) {
+            this.statsCache.put(slotNodes[s].getTreeId(), slotNodes[s].getNode().getId(),
+                    statistics.get(slotKeys[s]).getFeatureStatistics());
+        }
+        LOG.info("Stats of {} todo nodes are derived by histogram subtraction, {} node stats are cached.",
+                derivedCount, this.statsCache.size());
+    }
+
+    /**
+     * Sorted node ids and nodes of one tree to find node in {@link RecordNodeIndex} by id.
+     */
+    private static final class NodeLookup {
+
+        private final int[] ids;
+
+        private final Node[] nodes;
+
+        NodeLookup(Node root) {
+            List<Node> nodeList = new ArrayList<Node>();
+            List<Node> queue = new ArrayList<Node>();
+            queue.add(root);
+            while(!queue.isEmpty()) {
+                Node node = queue.remove(queue.size() - 1);
+                nodeList.add(node);
+                if(node.getLeft() != null) {
+                    queue.add(node.getLeft());
+                }
+                if(node.getRight() != null) {
+                    queue.add(node.getRight());
+                }
+            }
+            long[] idIndexes = new long[nodeList.size()];
+            for(int i = 0; i < idIndexes.length; i++) {
+                idIndexes[i] = (((long) nodeList.get(i).getId()) << 32) | i;
+            }
+            Arrays.sort(idIndexes);
+            this.ids = new int[idIndexes.length];
+            this.nodes = new Node[idIndexes.length];
+            for(int i = 0; i < idIndexes.length; i++) {
+                this.ids[i] = (int) (idIndexes[i] >>> 32);
+                this.nodes[i] = nodeList.get((int) idIndexes[i]);
+            }
+        }
+
+        Node get(int id) {
+            int index = Arrays.binarySearch(this.ids, id);
+            return index < 0 ? null : this.nodes[index];
+        }
+    }
+
+    /**
+     * Features of one todo node derived by parent stats minus sibling stats, sibling stats is from cache or from
+     * another todo node in the same iteration.
+     */
+    private static final class SubtractionPlan {
+
+        private final Map<Integer, double[]> parentStats;
+
+        private final Map<Integer, double[]> siblingStats;
+
+        private final int siblingSlot;
+
+        private final Set<Integer> features;
+
+        private SubtractionPlan(Map<Integer, double[]> parentStats, Map<Integer, double[]> siblingStats,
+                int siblingSlot, Set<Integer> features) {
+            this.parentStats = parentStats;
+            this.siblingStats = siblingStats;
+            this.siblingSlot = siblingSlot;
+            this.features = features;
+        }
+
+        /**
+         * @return plan of features existing in node, parent and sibling or null if no such feature
+         */
+        static SubtractionPlan of(Map<Integer, double[]> nodeStats, Map<Integer, double[]> parentStats,
+                Map<Integer, double[]> siblingStats, int siblingSlot) {
+            Set<Integer> features = new HashSet<Integer>();
+            for(Entry<Integer, double[]> entry: nodeStats.entrySet()) {
+                double[] parent = parentStats.get(entry.getKey());
+                double[] sibling = siblingStats.get(entry.getKey());
+                if(parent != null && sibling != null && parent.length == entry.getValue().length
+                        && sibling.length == entry.getValue().length) {
+                    features.add(entry.getKey());
+                }
+            }
+            if(features.isEmpty()) {
+                return null;
+            }
+            return new SubtractionPlan(parentStats, siblingSlot >= 0 ? null : siblingStats, siblingSlot, features);
+        }
+    }
+
     private Map<Integer, NodeStats> initTodoNodeStats(Map<Integer, TreeNode> todoNodes) {
         Map<Integer, NodeStats> statistics = new HashMap<Integer, NodeStats>(todoNodes.size(), 1f);
         for(Map.Entry<Integer, TreeNode> entry: todoNodes.entrySet()) {
@@ -951,10 +1605,6 @@ public class DTWorker extends
     @Override
     protected void postLoad(WorkerContext<DTMasterParams, DTWorkerParams> context) {
         // need to switch state for read
-        this.trainingData.switchState();
-        if(validationData != null) {
-            this.validationData.switchState();
-        }
         LOG.info("    - # Records of the Total Data Set: {}.", this.count);
         LOG.info("    - Bagging Sample Rate: {}.", this.modelConfig.getBaggingSampleRate());
         LOG.info("    - Bagging With Replacement: {}.", this.modelConfig.isBaggingWithReplacement());
@@ -980,6 +1630,99 @@ public class DTWorker extends
                 LOG.info("        - # Negative Records of the Validation Set: {}.", this.negativeValidationCount);
             }
         }
+        LOG.info("        - Training Set Spilled out of Heap: {}.", this.trainingData.isSpilled());
+
+        initNodeIndexAndStatsCache(context);
+    }
+
+    private void initNodeIndexAndStatsCache(WorkerContext<DTMasterParams, DTWorkerParams> context) {
+        long maxCacheMemory = (long) (Runtime.getRuntime().maxMemory() * Double.valueOf(
+                context.getProps().getProperty(CommonConstants.SHIFU_DT_WORKER_CACHE_MEMORY_FRACTION, "0.1")));
+        boolean isNodeIndexEnabled = Boolean.TRUE.toString().equalsIgnoreCase(
+                context.getProps().getProperty(CommonConstants.SHIFU_DT_WORKER_NODE_INDEX_ENABLE, "true"));
+        if(isNodeIndexEnabled) {
+            // RF trees are built at the same time while GBDT only builds the last tree
+            int treeSlots = this.isRF ? this.treeNum : 1;
+            int records = this.trainingData.size();
+            long indexMemory = RecordNodeIndex.estimateMemory(treeSlots, records);
+            if(indexMemory <= maxCacheMemory) {
+                this.nodeIndex = new RecordNodeIndex(treeSlots, records);
+            } else {
+                LOG.warn("Node index is disabled because of memory {} is larger than max cache memory {}.",
+                        indexMemory, maxCacheMemory);
+            }
+        }
+        boolean isHistSubtractionEnabled = Boolean.TRUE.toString().equalsIgnoreCase(
+                context.getProps().getProperty(CommonConstants.SHIFU_DT_WORKER_HIST_SUBTRACTION_ENABLE, "true"));
+        if(isHistSubtractionEnabled) {
+            this.statsCache = new NodeStatsCache(maxCacheMemory);
+        }
+        LOG.info("Node index enabled: {}, histogram subtraction enabled: {}, max cache memory: {}.",
+                this.nodeIndex != null, this.statsCache != null, maxCacheMemory);
+    }
+
+    /**
+     * Create columnar training and validation data stores, heap memory budgets are the same as former in memory lists.
+     */
+    private void initDataStores(WorkerContext<DTMasterParams, DTWorkerParams> context, double memoryFraction) {
+        long maxMemory = (long) (Runtime.getRuntime().maxMemory() * memoryFraction);
+        String spillMode = context.getProps().getProperty(CommonConstants.SHIFU_DT_WORKER_STORE_SPILL_MODE,
+                ColumnarDataStore.SPILL_MMAP);
+        int[] maxBinIndexes = getMaxBinIndexes();
+        // only one sample weight if tree == 1 or GBDT without replacement sampling, refer to sampleWeights
+        int weightSize = (this.treeNum == 1 || (this.isGBDT && !this.gbdtSampleWithReplacement)) ? 1 : this.treeNum;
+
+        double validationRate = this.modelConfig.getValidSetRate();
+        if(StringUtils.isNotBlank(modelConfig.getValidationDataSetRawPath())) {
+            // fixed 0.6 and 0.4 of max memory for trainingData and validationData
+            this.trainingData = new ColumnarDataStore(maxBinIndexes, weightSize, (long) (maxMemory * 0.6), spillMode);
+            this.validationData = new ColumnarDataStore(maxBinIndexes, 1, (long) (maxMemory * 0.4), spillMode);
+        } else {
+            if(Double.compare(validationRate, 0d) != 0) {
+                this.trainingData = new ColumnarDataStore(maxBinIndexes, weightSize,
+                        (long) (maxMemory * (1 - validationRate)), spillMode);
+                this.validationData = new ColumnarDataStore(maxBinIndexes, 1, (long) (maxMemory * validationRate),
+                        spillMode);
+            } else {
+                this.trainingData = new ColumnarDataStore(maxBinIndexes, weightSize, maxMemory, spillMode);
+            }
+        }
+        LOG.info("Data store spill mode: {}, # of subsample weights: {}.", spillMode, weightSize);
+    }
+
+    /**
+     * Max bin index of each input in the same order as inputs in {@link #load}, bin index of numerical column is up to
+     * bin boundary size - 1 and categorical column is up to bin category size (missing or invalid category).
+     */
+    private int[] getMaxBinIndexes() {
+        int[] maxBinIndexes = new int[this.inputCount];
+        int inputIndex = 0;
+        for(ColumnConfig config: this.columnConfigList) {
+            if(config.isMeta() || config.isTarget()) {
+                continue;
+            }
+            boolean isInput = this.isAfterVarSelect ? config.isFinalSelect()
+                    : CommonUtils.isGoodCandidate(config, this.hasCandidates);
+            if(!isInput) {
+                continue;
+            }
+            if(inputIndex >= maxBinIndexes.length) {
+                // inconsistent with input count, short columns for all inputs
+                inputIndex = -1;
+                break;
+            }
+            int maxBinIndex = Short.MAX_VALUE;
+            if(config.isNumerical() && config.getBinBoundary() != null) {
+                maxBinIndex = config.getBinBoundary().size() - 1;
+            } else if(config.isCategorical() && config.getBinCategory() != null) {
+                maxBinIndex = config.getBinCategory().size();
+            }
+            maxBinIndexes[inputIndex++] = maxBinIndex;
+        }
+        if(inputIndex != maxBinIndexes.length) {
+            Arrays.fill(maxBinIndexes, Short.MAX_VALUE);
+        }
+        return maxBinIndexes;
     }
 
     private List<Integer> getAllValidFeatures() {
@@ -1010,17 +1753,18 @@ public class DTWorker extends
     }
 
     /**
-     * 'binBoundary' is ArrayList in fact, so we can use get method. ["-Infinity", 1d, 4d, ....]
+     * Bin index of value in primitive bin boundaries like ["-Infinity", 1d, 4d, ....], see
+     * {@link ColumnConfig#getBinBoundaryArray()}.
      * 
      * @param value
      *            the value to be checked
      * @param binBoundary
-     *            the bin boundary list
+     *            the bin boundary array
      * @return the index in which bin
      */
-    public static int getBinIndex(float value, List<Double> binBoundary) {
-        if(binBoundary.size() <= 1) {
-            // feature with binBoundary.size() <= 1 will not be send to worker, while such feature is still loading into
+    public static int getBinIndex(float value, double[] binBoundary) {
+        if(binBoundary.length <= 1) {
+            // feature with binBoundary.length <= 1 will not be send to worker, while such feature is still loading into
             // memory, just return the first bin index to avoid exception, while actually such feature isn't used in
             // GBT/RF.
             return 0;
@@ -1028,7 +1772,7 @@ public class DTWorker extends
 
         // the last bin if positive infinity
         if(value == Float.POSITIVE_INFINITY) {
-            return binBoundary.size() - 1;
+            return binBoundary.length - 1;
         }
 
         // the first bin if negative infinity
@@ -1036,11 +1780,11 @@ public class DTWorker extends
             return 0;
         }
 
-        int low = 0, high = binBoundary.size() - 1;
+        int low = 0, high = binBoundary.length - 1;
         while(low <= high) {
             int mid = (low + high) >>> 1;
-            double lowThreshold = binBoundary.get(mid);
-            double highThreshold = mid == binBoundary.size() - 1 ? Double.MAX_VALUE : binBoundary.get(mid + 1);
+            double lowThreshold = binBoundary[mid];
+            double highThreshold = mid == binBoundary.length - 1 ? Double.MAX_VALUE : binBoundary[mid + 1];
             if(value >= lowThreshold && value < highThreshold) {
                 return mid;
             }
@@ -1053,66 +1797,70 @@ public class DTWorker extends
         return -1;
     }
 
-    private Node predictNodeIndex(Node node, Data data, boolean isForErr) {
+    /**
+     * Walk tree from node to leaf node according to bin indexes of record in data store.
+     */
+    private Node predictNodeIndex(Node node, ColumnarDataStore store, int record) {
         Node currNode = node;
-        Split split = currNode.getSplit();
+        while(true) {
+            Split split = currNode.getSplit();
 
-        // if is leaf
-        if(split == null || (currNode.getLeft() == null && currNode.getRight() == null)) {
-            return currNode;
-        }
+            // if is leaf
+            if(split == null || (currNode.getLeft() == null && currNode.getRight() == null)) {
+                return currNode;
+            }
 
-        ColumnConfig columnConfig = this.columnConfigList.get(split.getColumnNum());
+            ColumnConfig columnConfig = this.columnConfigList.get(split.getColumnNum());
 
-        Node nextNode = null;
-        Integer inputIndex = this.inputIndexMap.get(split.getColumnNum());
-        if(inputIndex == null) {
-            throw new IllegalStateException("InputIndex should not be null: Split is " + split + ", inputIndexMap is "
-                    + this.inputIndexMap + ", data is " + data);
-        }
-        short value = 0;
-        if(columnConfig.isNumerical()) {
-            short binIndex = data.inputs[inputIndex];
-            value = binIndex;
-            double valueToBinLowestValue = columnConfig.getBinBoundary().get(binIndex);
-            if(valueToBinLowestValue < split.getThreshold()) {
-                nextNode = currNode.getLeft();
-            } else {
-                nextNode = currNode.getRight();
-            }
-        } else if(columnConfig.isCategorical()) {
-            short indexValue = (short) (columnConfig.getBinCategory().size());
-            value = indexValue;
-            if(data.inputs[inputIndex] >= 0
-                    && data.inputs[inputIndex] < (short) (columnConfig.getBinCategory().size())) {
-                indexValue = data.inputs[inputIndex];
-            } else {
-                // for invalid category, set to last one
-                indexValue = (short) (columnConfig.getBinCategory().size());
+            Node nextNode = null;
+            Integer inputIndex = this.inputIndexMap.get(split.getColumnNum());
+            if(inputIndex == null) {
+                throw new IllegalStateException("InputIndex should not be null: Split is " + split
+                        + ", inputIndexMap is " + this.inputIndexMap + ", record is " + record);
             }
-
-            Set<Short> childCategories = split.getLeftOrRightCategories();
-            if(split.isLeft()) {
-                if(childCategories.contains(indexValue)) {
+            short binIndex = store.getBin(inputIndex, record);
+            short value = 0;
+            if(columnConfig.isNumerical()) {
+                value = binIndex;
+                double valueToBinLowestValue = columnConfig.getBinBoundary().get(binIndex);
+                if(valueToBinLowestValue < split.getThreshold()) {
                     nextNode = currNode.getLeft();
                 } else {
                     nextNode = currNode.getRight();
                 }
-            } else {
-                if(childCategories.contains(indexValue)) {
-                    nextNode = currNode.getRight();
+            } else if(columnConfig.isCategorical()) {
+                short indexValue = (short) (columnConfig.getBinCategory().size());
+                value = indexValue;
+                if(binIndex >= 0 && binIndex < (short) (columnConfig.getBinCategory().size())) {
+                    indexValue = binIndex;
                 } else {
-                    nextNode = currNode.getLeft();
+                    // for invalid category, set to last one
+                    indexValue = (short) (columnConfig.getBinCategory().size());
+                }
+
+                Set<Short> childCategories = split.getLeftOrRightCategories();
+                if(split.isLeft()) {
+                    if(childCategories.contains(indexValue)) {
+                        nextNode = currNode.getLeft();
+                    } else {
+                        nextNode = currNode.getRight();
+                    }
+                } else {
+                    if(childCategories.contains(indexValue)) {
+                        nextNode = currNode.getRight();
+                    } else {
+                        nextNode = currNode.getLeft();
+                    }
                 }
             }
-        }
 
-        if(nextNode == null) {
-            throw new IllegalStateException(
-                    "NextNode is null, parent id is " + currNode.getId() + "; parent split is " + split + "; left is "
-                            + currNode.getLeft() + "; right is " + currNode.getRight() + "; value is " + value);
+            if(nextNode == null) {
+                throw new IllegalStateException("NextNode is null, parent id is " + currNode.getId()
+                        + "; parent split is " + split + "; left is " + currNode.getLeft() + "; right is "
+                        + currNode.getRight() + "; value is " + value);
+            }
+            currNode = nextNode;
         }
-        return predictNodeIndex(nextNode, data, isForErr);
     }
 
     @Override
@@ -1164,7 +1912,7 @@ public class DTWorker extends
                             if(columnConfig.isNumerical()) {
                                 float floatValue = getFloatValue(input);
                                 // cast is safe as we limit max bin to Short.MAX_VALUE
-                                short binIndex = (short) getBinIndex(floatValue, columnConfig.getBinBoundary());
+                                short binIndex = (short) getBinIndex(floatValue, columnConfig.getBinBoundaryArray());
                                 inputs[inputIndex] = binIndex;
                                 if(!this.inputIndexMap.containsKey(columnConfig.getColumnNum())) {
                                     this.inputIndexMap.put(columnConfig.getColumnNum(), inputIndex);
@@ -1203,7 +1951,7 @@ public class DTWorker extends
                             if(columnConfig.isNumerical()) {
                                 float floatValue = getFloatValue(input);
                                 // cast is safe as we limit max bin to Short.MAX_VALUE
-                                short binIndex = (short) getBinIndex(floatValue, columnConfig.getBinBoundary());
+                                short binIndex = (short) getBinIndex(floatValue, columnConfig.getBinBoundaryArray());
                                 inputs[inputIndex] = binIndex;
                                 if(!this.inputIndexMap.containsKey(columnConfig.getColumnNum())) {
                                     this.inputIndexMap.put(columnConfig.getColumnNum(), inputIndex);
@@ -1308,6 +2056,11 @@ public class DTWorker extends
         // do bagging sampling only for training data
         if(isInTraining) {
             data.subsampleWeights = sampleWeights(data.label);
+            // data is already appended, set weights of the last record in training store
+            int record = this.trainingData.size() - 1;
+            for(int i = 0; i < data.subsampleWeights.length; i++) {
+                this.trainingData.setWeight(i, record, data.subsampleWeights[i]);
+            }
             // for training data, compute real selected training data according to baggingSampleRate
             // if gbdt, only the 1st sampling value is used, if rf, use the 1st to denote some information, no need all
             if(isPositive(data.label)) {
@@ -1473,14 +2226,16 @@ public class DTWorker extends
     }
 
     // isFailoverOrContinuous true failover task, isFailoverOrContinuous false continuous model training
-    private void recoverGBTData(WorkerContext<DTMasterParams, DTWorkerParams> context, float output, float predict,
-            Data data, boolean isFailoverOrContinuous) {
+    private void recoverGBTData(ColumnarDataStore store, int record, boolean isFailoverOrContinuous) {
         final List<TreeNode> trees = this.recoverTrees;
         if(trees == null) {
             return;
         }
 
         if(trees.size() >= 1) {
+            float label = store.getLabel(record);
+            float predict = store.getPredict(record);
+            float output = store.getOutput(record);
             // if isSwitchToNextTree == false, iterate all trees except current one to get new predict and
             // output value; if isSwitchToNextTree == true, iterate all trees except current two trees.
             // the last tree is a root node, the tree with index size-2 will be called in doCompute method
@@ -1493,21 +2248,21 @@ public class DTWorker extends
             for(int i = 0; i < iterLen; i++) {
                 TreeNode currTree = trees.get(i);
                 if(i == 0) {
-                    double oldPredict = predictNodeIndex(currTree.getNode(), data, false).getPredict().getPredict();
+                    double oldPredict = predictNodeIndex(currTree.getNode(), store, record).getPredict().getPredict();
                     predict = (float) oldPredict;
-                    output = -1f * loss.computeGradient(predict, data.label);
+                    output = -1f * loss.computeGradient(predict, label);
                 } else {
                     // random drop
                     if(this.dropOutRate > 0.0 && dropOutRandom.nextDouble() < this.dropOutRate) {
                         continue;
                     }
-                    double oldPredict = predictNodeIndex(currTree.getNode(), data, false).getPredict().getPredict();
+                    double oldPredict = predictNodeIndex(currTree.getNode(), store, record).getPredict().getPredict();
                     predict += (float) (this.learningRate * oldPredict);
-                    output = -1f * loss.computeGradient(predict, data.label);
+                    output = -1f * loss.computeGradient(predict, label);
                 }
             }
-            data.output = output;
-            data.predict = predict;
+            store.setOutput(record, output);
+            store.setPredict(record, predict);
         }
     }
 
@@ -1537,6 +2292,82 @@ public class DTWorker extends
         return trees;
     }
 
+    /**
+     * GOSS sampling of new tree by gradients (outputs) of training records: records with top a absolute gradients are
+     * all selected, other records are randomly selected at rate b / (1 - a) and weighted by (1 - a) / b to keep
+     * gradient sums unbiased, a is top rate and b is other rate.
+     */
+    static void sampleByGradients(ColumnarDataStore trainingData, int treeIndex, double topRate, double otherRate,
+            Random random) {
+        int size = trainingData.size();
+        if(size == 0) {
+            return;
+        }
+        int topCount = (int) Math.ceil(size * topRate);
+        float threshold = Float.MAX_VALUE;
+        if(topCount > 0) {
+            float[] gradients = new float[size];
+            for(int j = 0; j < size; j++) {
+                gradients[j] = Math.abs(trainingData.getOutput(j));
+            }
+            // only the threshold is needed, no need to sort all gradients
+            threshold = selectKth(gradients, size - topCount);
+        }
+
+        double otherSampleRate = otherRate / (1d - topRate);
+        float otherWeight = (float) ((1d - topRate) / otherRate);
+        int weightIndex = treeIndex % trainingData.getWeightSize();
+        int selectedTop = 0, selectedOther = 0;
+        for(int j = 0; j < size; j++) {
+            if(Math.abs(trainingData.getOutput(j)) >= threshold) {
+                trainingData.setWeight(weightIndex, j, 1f);
+                selectedTop += 1;
+            } else if(random.nextDouble() < otherSampleRate) {
+                trainingData.setWeight(weightIndex, j, otherWeight);
+                selectedOther += 1;
+            } else {
+                trainingData.setWeight(weightIndex, j, 0f);
+            }
+        }
+        LOG.info("GOSS in tree {}: gradient threshold {}, {} top records and {} other records with weight {} selected.",
+                treeIndex, threshold, selectedTop, selectedOther, otherWeight);
+    }
+
+    /**
+     * Quickselect of the k-th (0-based) smallest value in average O(n) time, values are reordered in place.
+     */
+    static float selectKth(float[] values, int k) {
+        int left = 0, right = values.length - 1;
+        while(left < right) {
+            int mid = (left + right) >>> 1;
+            float pivot = Math.max(Math.min(values[left], values[mid]),
+                    Math.min(Math.max(values[left], values[mid]), values[right]));
+            int i = left, j = right;
+            while(i <= j) {
+                while(values[i] < pivot) {
+                    i++;
+                }
+                while(values[j] > pivot) {
+                    j--;
+                }
+                if(i <= j) {
+                    float tmp = values[i];
+                    values[i++] = values[j];
+                    values[j--] = tmp;
+                }
+            }
+            // values in [left, j] <= pivot, values in [i, right] >= pivot, values in (j, i) are pivot
+            if(k <= j) {
+                right = j;
+            } else if(k >= i) {
+                left = i;
+            } else {
+                return values[k];
+            }
+        }
+        return values[k];
+    }
+
     private float[] sampleWeights(float label) {
         float[] sampleWeights = null;
         // sample negative or kFoldCV, sample rate is 1d
@@ -1611,9 +2442,8 @@ public class DTWorker extends
         private static final long serialVersionUID = 903201066309036170L;
 
         /**
-         * Inputs for bin index, short is using to compress data, for numerical, it can be byte type for less than 256
-         * bins, while it is hard to control byte and short together, as so far memory consumption is OK, just use short
-         * for both numerical and categorical columns
+         * Inputs for bin index, short is using to compress data; in {@link ColumnarDataStore} bin indexes are kept in
+         * byte columns for columns with less than 128 bins and short columns for others
          */
         short[] inputs;
 
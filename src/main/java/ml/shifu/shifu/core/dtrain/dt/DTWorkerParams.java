@@ -24,6 +24,7 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import ml.shifu.guagua.GuaguaRuntimeException;
 import ml.shifu.guagua.io.Bytable;
 import ml.shifu.guagua.io.Combinable;
 import ml.shifu.guagua.io.HaltBytable;
@@ -37,6 +38,11 @@ import ml.shifu.guagua.io.HaltBytable;
  * <p>
  * {@link #nodeStatsMap} includes node statistics for each node, key is node group index id from master.
  * 
+ * <p>
+ * Node statistics are written in encoding of {@link #statsEncoding}, see {@link NodeStatsCodec}. Encoded statistics
+ * read from workers are only decoded when needed and can be merged into other statistics in streaming way by
+ * {@link NodeStats#mergeTo(Map)}.
+ * 
  * @author Zhang David (pengzhang@paypal.com)
  * 
  * @see NodeStats
@@ -68,6 +74,11 @@ public class DTWorkerParams extends HaltBytable implements Combinable<DTWorkerPa
      */
     private Map<Integer, NodeStats> nodeStatsMap;
 
+    /**
+     * Encoding flags of node statistics, {@link NodeStatsCodec#RAW} by default.
+     */
+    private int statsEncoding = NodeStatsCodec.RAW;
+
     public DTWorkerParams() {
     }
 
@@ -90,10 +101,15 @@ public class DTWorkerParams extends HaltBytable implements Combinable<DTWorkerPa
             out.writeBoolean(false);
         } else {
             out.writeBoolean(true);
+            out.writeByte(statsEncoding);
             out.writeInt(nodeStatsMap.size());
             for(Entry<Integer, NodeStats> entry: nodeStatsMap.entrySet()) {
                 out.writeInt(entry.getKey());
-                entry.getValue().write(out);
+                if(statsEncoding == NodeStatsCodec.RAW) {
+                    entry.getValue().write(out);
+                } else {
+                    entry.getValue().writeEncoded(out, statsEncoding);
+                }
             }
         }
     }
@@ -105,12 +121,17 @@ public class DTWorkerParams extends HaltBytable implements Combinable<DTWorkerPa
         this.trainError = in.readDouble();
         this.validationError = in.readDouble();
         if(in.readBoolean()) {
+            this.statsEncoding = in.readByte();
             this.nodeStatsMap = new HashMap<Integer, NodeStats>();
             int len = in.readInt();
             for(int i = 0; i < len; i++) {
                 int key = in.readInt();
                 NodeStats stats = new NodeStats();
-                stats.readFields(in);
+                if(this.statsEncoding == NodeStatsCodec.RAW) {
+                    stats.readFields(in);
+                } else {
+                    stats.readEncoded(in, this.statsEncoding);
+                }
                 this.nodeStatsMap.put(key, stats);
             }
         }
@@ -131,6 +152,21 @@ public class DTWorkerParams extends HaltBytable implements Combinable<DTWorkerPa
         this.nodeStatsMap = nodeStatsMap;
     }
 
+    /**
+     * @return the statsEncoding
+     */
+    public int getStatsEncoding() {
+        return statsEncoding;
+    }
+
+    /**
+     * @param statsEncoding
+     *            the statsEncoding to set, flags of {@link NodeStatsCodec}
+     */
+    public void setStatsEncoding(int statsEncoding) {
+        this.statsEncoding = statsEncoding;
+    }
+
     /**
      * @return the squareError
      */
@@ -174,6 +210,16 @@ public class DTWorkerParams extends HaltBytable implements Combinable<DTWorkerPa
          */
         private Map<Integer, double[]> featureStatistics;
 
+        /**
+         * Encoded feature statistics read in compact encoding, decoded lazily.
+         */
+        private byte[] encodedStatistics;
+
+        /**
+         * Encoding flags of {@link #encodedStatistics}.
+         */
+        private int encoding;
+
         public NodeStats() {
         }
 
@@ -191,12 +237,42 @@ public class DTWorkerParams extends HaltBytable implements Combinable<DTWorkerPa
         }
 
         /**
-         * @return the featureStatistics
+         * @return the featureStatistics, encoded statistics are decoded at the first call
          */
         public Map<Integer, double[]> getFeatureStatistics() {
+            if(this.featureStatistics == null && this.encodedStatistics != null) {
+                try {
+                    this.featureStatistics = NodeStatsCodec.decode(this.encodedStatistics, this.encoding);
+                } catch (IOException e) {
+                    throw new GuaguaRuntimeException(e);
+                }
+                this.encodedStatistics = null;
+            }
             return featureStatistics;
         }
 
+        /**
+         * Add feature statistics into histograms of the same features in target, encoded statistics are decoded and
+         * added directly without new histograms.
+         */
+        public void mergeTo(Map<Integer, double[]> target) {
+            if(this.featureStatistics == null && this.encodedStatistics != null) {
+                try {
+                    NodeStatsCodec.merge(this.encodedStatistics, this.encoding, target);
+                } catch (IOException e) {
+                    throw new GuaguaRuntimeException(e);
+                }
+                return;
+            }
+            for(Entry<Integer, double[]> entry: this.featureStatistics.entrySet()) {
+                double[] statistics = target.get(entry.getKey());
+                double[] values = entry.getValue();
+                for(int i = 0; i < statistics.length; i++) {
+                    statistics[i] += values[i];
+                }
+            }
+        }
+
         /**
          * @param treeId
          *            the treeId to set
@@ -211,6 +287,7 @@ public class DTWorkerParams extends HaltBytable implements Combinable<DTWorkerPa
          */
         public void setFeatureStatistics(Map<Integer, double[]> featureStatistics) {
             this.featureStatistics = featureStatistics;
+            this.encodedStatistics = null;
         }
 
         @Override
@@ -227,6 +304,32 @@ public class DTWorkerParams extends HaltBytable implements Combinable<DTWorkerPa
             }
         }
 
+        /**
+         * Write with feature statistics encoded by {@link NodeStatsCodec}.
+         */
+        public void writeEncoded(DataOutput out, int flags) throws IOException {
+            out.writeInt(nodeId);
+            out.writeInt(treeId);
+            byte[] bytes = (this.encodedStatistics != null && this.encoding == flags) ? this.encodedStatistics
+                    : NodeStatsCodec.encode(getFeatureStatistics(), flags);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        /**
+         * Read encoded feature statistics written by {@link #writeEncoded(DataOutput, int)}, statistics are kept in
+         * encoded bytes until {@link #getFeatureStatistics()} or {@link #mergeTo(Map)} is called.
+         */
+        public void readEncoded(DataInput in, int flags) throws IOException {
+            this.nodeId = in.readInt();
+            this.treeId = in.readInt();
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            this.featureStatistics = null;
+            this.encodedStatistics = bytes;
+            this.encoding = flags;
+        }
+
         @Override
         public void readFields(DataInput in) throws IOException {
             this.nodeId = in.readInt();
@@ -267,7 +370,7 @@ public class DTWorkerParams extends HaltBytable implements Combinable<DTWorkerPa
         @Override
         public String toString() {
             return "NodeStats [nodeId=" + nodeId + ", treeId=" + treeId + ", featureStatistics="
-                    + toString(featureStatistics) + "]";
+                    + toString(getFeatureStatistics()) + "]";
         }
 
         private String toString(Map<Integer, double[]> featureStatistics) {
@@ -307,13 +410,7 @@ public class DTWorkerParams extends HaltBytable implements Combinable<DTWorkerPa
                 assert nodeStats.nodeId == thatNodeStats.nodeId;
                 assert nodeStats.treeId == thatNodeStats.treeId;
 
-                for(Entry<Integer, double[]> featureStatsEntry: nodeStats.getFeatureStatistics().entrySet()) {
-                    double[] thisFeatureStats = featureStatsEntry.getValue();
-                    double[] thatFeatureStats = thatNodeStats.featureStatistics.get(featureStatsEntry.getKey());
-                    for(int i = 0; i < thisFeatureStats.length; i++) {
-                        thisFeatureStats[i] += thatFeatureStats[i];
-                    }
-                }
+                thatNodeStats.mergeTo(nodeStats.getFeatureStatistics());
             }
             that.setNodeStatsMap(null); // set to null, for memory release
         }
@@ -0,0 +1,339 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.dt;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * {@link FlatTreeEnsemble} is a compiled form of one bag of trees (one RF or one GBT model) in
+ * {@link IndependentTreeModel}. All nodes of all trees are packed into primitive arrays (split feature index, threshold,
+ * categorical bitset, left and right child position, leaf value) so prediction of one record is only array reads
+ * without any allocation and boxing.
+ *
+ * <p>
+ * Node semantics are exactly the same as {@link IndependentTreeModel} object graph walking: for continuous feature,
+ * value less than threshold goes left; for categorical feature, value out of [0, categoricalSize) is treated as missing
+ * category and category hit in {@link Split#getLeftOrRightCategories()} goes left if {@link Split#isLeft()} or else
+ * goes right. This makes sure scores are bit-for-bit identical to the non-compiled path.
+ *
+ * @author Zhang David (pengzhang@paypal.com)
+ */
+final class FlatTreeEnsemble {
+
+    /**
+     * Marker of feature index for leaf node
+     */
+    private static final int LEAF = -1;
+
+    /**
+     * Root node position of each tree in node arrays.
+     */
+    private final int[] roots;
+
+    /**
+     * Weights (learning rate) of each tree.
+     */
+    private final double[] weights;
+
+    /**
+     * Index in input double array of split feature, {@link #LEAF} if it is a leaf node.
+     */
+    private final int[] features;
+
+    /**
+     * Threshold for continuous split.
+     */
+    private final double[] thresholds;
+
+    /**
+     * Left child position in node arrays.
+     */
+    private final int[] lefts;
+
+    /**
+     * Right child position in node arrays.
+     */
+    private final int[] rights;
+
+    /**
+     * Categorical value size for categorical split, -1 for continuous split.
+     */
+    private final int[] categoricalSizes;
+
+    /**
+     * Offset of categorical bitset in {@link #categoryBits}.
+     */
+    private final int[] bitOffsets;
+
+    /**
+     * # of valid bits of categorical bitset for each node.
+     */
+    private final int[] bitLengths;
+
+    /**
+     * If categories in bitset go to left child, the same as {@link Split#isLeft()}.
+     */
+    private final boolean[] isLefts;
+
+    /**
+     * Leaf predict (regression) or class value (classification), only meaningful for leaf nodes.
+     */
+    private final double[] leafValues;
+
+    /**
+     * All categorical bitsets packed together.
+     */
+    private final long[] categoryBits;
+
+    private FlatTreeEnsemble(int[] roots, double[] weights, int nodeNum, int bitWords) {
+        this.roots = roots;
+        this.weights = weights;
+        this.features = new int[nodeNum];
+        this.thresholds = new double[nodeNum];
+        this.lefts = new int[nodeNum];
+        this.rights = new int[nodeNum];
+        this.categoricalSizes = new int[nodeNum];
+        this.bitOffsets = new int[nodeNum];
+        this.bitLengths = new int[nodeNum];
+        this.isLefts = new boolean[nodeNum];
+        this.leafValues = new double[nodeNum];
+        this.categoryBits = new long[bitWords];
+    }
+
+    /**
+     * Column index and categorical size resolver which is consistent with {@link IndependentTreeModel} in optimize and
+     * non-optimize mode.
+     */
+    interface ColumnResolver {
+
+        int getColumnIndex(int columnNum);
+
+        int getCategoricalSize(int columnNum);
+    }
+
+    /**
+     * Compile one bag of trees into a {@link FlatTreeEnsemble}.
+     *
+     * @param trees
+     *            trees of one RF or GBT model
+     * @param weights
+     *            weights of each tree
+     * @param isClassification
+     *            if leaf value is class value or regression predict
+     * @param resolver
+     *            column index and categorical size resolver
+     * @return the compiled ensemble
+     */
+    static FlatTreeEnsemble compile(List<TreeNode> trees, List<Double> weights, boolean isClassification,
+            ColumnResolver resolver) {
+        // first pass to collect nodes in BFS order per tree and compute array sizes
+        List<Node> nodes = new ArrayList<Node>();
+        int[] roots = new int[trees.size()];
+        int bitWords = 0;
+        for(int i = 0; i < trees.size(); i++) {
+            roots[i] = nodes.size();
+            Queue<Node> queue = new LinkedList<Node>();
+            queue.offer(trees.get(i).getNode());
+            while(!queue.isEmpty()) {
+                Node node = queue.poll();
+                nodes.add(node);
+                if(!isLeafNode(node)) {
+                    queue.offer(node.getLeft());
+                    queue.offer(node.getRight());
+                    Split split = node.getSplit();
+                    if(split.getFeatureType() == Split.CATEGORICAL) {
+                        bitWords += wordsOf(bitLength(split));
+                    }
+                }
+            }
+        }
+
+        double[] wgts = new double[weights.size()];
+        for(int i = 0; i < wgts.length; i++) {
+            wgts[i] = weights.get(i);
+        }
+
+        FlatTreeEnsemble ensemble = new FlatTreeEnsemble(roots, wgts, nodes.size(), bitWords);
+        // second pass to fill arrays, children are always after parent in BFS order of each tree
+        int bitOffset = 0;
+        for(int i = 0; i < trees.size(); i++) {
+            int curr = roots[i];
+            int next = curr + 1;
+            int end = (i == trees.size() - 1) ? nodes.size() : roots[i + 1];
+            for(; curr < end; curr++) {
+                Node node = nodes.get(curr);
+                if(isLeafNode(node)) {
+                    ensemble.features[curr] = LEAF;
+                    ensemble.leafValues[curr] = isClassification ? node.getPredict().getClassValue()
+                            : node.getPredict().getPredict();
+                    continue;
+                }
+                Split split = node.getSplit();
+                ensemble.features[curr] = resolver.getColumnIndex(split.getColumnNum());
+                ensemble.lefts[curr] = next++;
+                ensemble.rights[curr] = next++;
+                if(split.getFeatureType() == Split.CATEGORICAL) {
+                    int bitLength = bitLength(split);
+                    ensemble.categoricalSizes[curr] = resolver.getCategoricalSize(split.getColumnNum());
+                    ensemble.bitOffsets[curr] = bitOffset;
+                    ensemble.bitLengths[curr] = bitLength;
+                    ensemble.isLefts[curr] = split.isLeft();
+                    Set<Short> categories = split.getLeftOrRightCategories();
+                    if(categories != null) {
+                        for(Short category: categories) {
+                            if(category != null && category >= 0) {
+                                ensemble.categoryBits[bitOffset + (category >>> 6)] |= (1L << category);
+                            }
+                        }
+                    }
+                    bitOffset += wordsOf(bitLength);
+                } else {
+                    ensemble.categoricalSizes[curr] = -1;
+                    ensemble.thresholds[curr] = split.getThreshold();
+                }
+            }
+        }
+        return ensemble;
+    }
+
+    private static boolean isLeafNode(Node node) {
+        return node.getSplit() == null || node.isRealLeaf();
+    }
+
+    private static int bitLength(Split split) {
+        int max = -1;
+        Set<Short> categories = split.getLeftOrRightCategories();
+        if(categories != null) {
+            for(Short category: categories) {
+                if(category != null && category > max) {
+                    max = category;
+                }
+            }
+        }
+        return max + 1;
+    }
+
+    private static int wordsOf(int bitLength) {
+        return (bitLength + 63) >>> 6;
+    }
+
+    /**
+     * @return # of trees in this ensemble
+     */
+    int size() {
+        return this.roots.length;
+    }
+
+    /**
+     * @return weights of all trees
+     */
+    double[] getWeights() {
+        return this.weights;
+    }
+
+    /**
+     * Walk the tree with index treeIndex for one record and return leaf value.
+     *
+     * @param treeIndex
+     *            the tree index in this ensemble
+     * @param data
+     *            the input data, categorical value is category index
+     * @return leaf predict or class value
+     */
+    double predict(int treeIndex, double[] data) {
+        int curr = this.roots[treeIndex];
+        int feature;
+        while((feature = this.features[curr]) != LEAF) {
+            curr = goesLeft(curr, data[feature]) ? this.lefts[curr] : this.rights[curr];
+        }
+        return this.leafValues[curr];
+    }
+
+    /**
+     * Walk the tree with index treeIndex for a block of records in row-major layout, one tree is applied to all records
+     * before next tree so that node arrays of this tree stay hot in cache.
+     *
+     * @param treeIndex
+     *            the tree index in this ensemble
+     * @param data
+     *            records in row-major layout, record r starts at r * inputCount
+     * @param inputCount
+     *            # of inputs per record
+     * @param numRecords
+     *            # of records in this block
+     * @param leafValues
+     *            output leaf values with at least numRecords length
+     */
+    void predictBatch(int treeIndex, double[] data, int inputCount, int numRecords, double[] leafValues) {
+        int root = this.roots[treeIndex];
+        for(int r = 0, offset = 0; r < numRecords; r++, offset += inputCount) {
+            int curr = root;
+            int feature;
+            while((feature = this.features[curr]) != LEAF) {
+                curr = goesLeft(curr, data[offset + feature]) ? this.lefts[curr] : this.rights[curr];
+            }
+            leafValues[r] = this.leafValues[curr];
+        }
+    }
+
+    /**
+     * Walk the tree with index treeIndex for a block of records in columnar layout.
+     *
+     * @param treeIndex
+     *            the tree index in this ensemble
+     * @param columns
+     *            records in columnar layout, columns[i][r] is input i of record r
+     * @param numRecords
+     *            # of records in this block
+     * @param leafValues
+     *            output leaf values with at least numRecords length
+     */
+    void predictBatch(int treeIndex, double[][] columns, int numRecords, double[] leafValues) {
+        int root = this.roots[treeIndex];
+        for(int r = 0; r < numRecords; r++) {
+            int curr = root;
+            int feature;
+            while((feature = this.features[curr]) != LEAF) {
+                curr = goesLeft(curr, columns[feature][r]) ? this.lefts[curr] : this.rights[curr];
+            }
+            leafValues[r] = this.leafValues[curr];
+        }
+    }
+
+    private boolean goesLeft(int curr, double value) {
+        int categoricalSize = this.categoricalSizes[curr];
+        if(categoricalSize < 0) {
+            // value is real numeric value and no need to transform to binLowestValue
+            return value < this.thresholds[curr];
+        }
+
+        short indexValue;
+        if(Double.compare(value, 0d) < 0 || Double.compare(value, categoricalSize) >= 0) {
+            indexValue = (short) categoricalSize;
+        } else {
+            // value is category index + 0.1d is to avoid 0.9999999 converted to 0
+            indexValue = (short) (value + 0.1d);
+        }
+        boolean isHit = indexValue >= 0 && indexValue < this.bitLengths[curr]
+                && (this.categoryBits[this.bitOffsets[curr] + (indexValue >>> 6)] & (1L << indexValue)) != 0L;
+        return isHit == this.isLefts[curr];
+    }
+
+}
@@ -87,6 +87,34 @@ public abstract class Impurity {
     public abstract void featureUpdate(double[] featuerStatistic, int binIndex, float label, float significance,
             float weight);
 
+    /**
+     * Relative tolerance to treat a subtracted value as zero, subtraction of two accumulated double values leaves tiny
+     * rounding residual like 1e-16 in bins with no instance.
+     */
+    protected static final double SUBTRACT_TOLERANCE = 1e-10d;
+
+    /**
+     * Histogram subtraction of one feature: sibling stats is computed by parent stats minus child stats as all stats
+     * are additive. By default all stats values are weighted counts and residual rounding values are set to 0.
+     * 
+     * @param parentStats
+     *            the stats array of parent node
+     * @param childStats
+     *            the stats array of one child node
+     * @param results
+     *            the stats array of the other child node to be set
+     */
+    public void featureSubtract(double[] parentStats, double[] childStats, double[] results) {
+        for(int i = 0; i < results.length; i++) {
+            results[i] = subtract(parentStats[i], childStats[i]);
+        }
+    }
+
+    protected static double subtract(double parent, double child) {
+        double result = parent - child;
+        return Math.abs(result) <= SUBTRACT_TOLERANCE * Math.abs(parent) ? 0d : result;
+    }
+
     /**
      * @return the statsSize
      */
@@ -252,6 +280,21 @@ class Variance extends Impurity {
         featuerStatistic[binIndex * super.statsSize + 2] += (label * label * significance * weight);
     }
 
+    @Override
+    public void featureSubtract(double[] parentStats, double[] childStats, double[] results) {
+        for(int i = 0; i < results.length; i += super.statsSize) {
+            double count = subtract(parentStats[i], childStats[i]);
+            if(count == 0d) {
+                // no instance in such bin, sum and sumSquare must be 0
+                results[i] = results[i + 1] = results[i + 2] = 0d;
+            } else {
+                results[i] = count;
+                results[i + 1] = parentStats[i + 1] - childStats[i + 1];
+                results[i + 2] = parentStats[i + 2] - childStats[i + 2];
+            }
+        }
+    }
+
 }
 
 /**
@@ -51,6 +51,10 @@ import ml.shifu.shifu.util.Constants;
  * 
  * <p>
  * To predict data for tree model, call {@link #compute(Map)} or {@link #compute(double[])}
+ * 
+ * <p>
+ * For high throughput scoring, call {@link #compile()} or load with compile mode to pack all trees into primitive
+ * arrays, scores are the same as object graph walking.
  */
 public class IndependentTreeModel {
 
@@ -176,6 +180,13 @@ public class IndependentTreeModel {
      */
     private List<String> usedFeatures;
 
+    /**
+     * Compiled primitive array form of {@link #trees} and {@link #weights} per bag, null if model is not compiled. If
+     * not null, {@link #compute(double[])} will walk these arrays instead of {@link TreeNode} object graph. Volatile to
+     * safely publish arrays compiled by the first concurrent {@link #computeBatch(double[], int, double[])} call.
+     */
+    private volatile FlatTreeEnsemble[] flatTrees;
+
     public IndependentTreeModel(Map<Integer, Double> numericalMeanMapping, Map<Integer, String> numNameMapping,
             Map<Integer, List<String>> categoricalColumnNameNames,
             Map<Integer, Map<String, Integer>> columnCategoryIndexMapping, Map<Integer, Integer> columnNumIndexMapping,
@@ -359,9 +370,238 @@ public class IndependentTreeModel {
      *         if regression of GBT, return array with only one element which is score of the GBT model
      */
     public double[] compute(double[] data) {
+        FlatTreeEnsemble[] ensembles = this.flatTrees;
+        if(ensembles != null) {
+            return (this.isClassification ? computeFlatClassificationScore(ensembles, data)
+                    : computeFlatRegressionScore(ensembles, data));
+        }
         return (this.isClassification ? computeClassificationScore(data) : computeRegressionScore(data));
     }
 
+    /**
+     * Compile all trees and weights into primitive arrays to make {@link #compute(double[])} allocation free (except
+     * result array) and much fewer pointer chasing. Scores are bit-for-bit identical to non-compiled mode. Object graph
+     * in {@link #getTrees()} is still kept for encoding, serialization and feature analysis.
+     * 
+     * @return current model instance which is compiled
+     */
+    public synchronized IndependentTreeModel compile() {
+        FlatTreeEnsemble.ColumnResolver resolver = new FlatTreeEnsemble.ColumnResolver() {
+            @Override
+            public int getColumnIndex(int columnNum) {
+                return IndependentTreeModel.this.getColumnIndex(columnNum);
+            }
+
+            @Override
+            public int getCategoricalSize(int columnNum) {
+                return IndependentTreeModel.this.getCategoricalSize(columnNum);
+            }
+        };
+        FlatTreeEnsemble[] ensembles = new FlatTreeEnsemble[this.trees.size()];
+        for(int i = 0; i < ensembles.length; i++) {
+            ensembles[i] = FlatTreeEnsemble.compile(this.trees.get(i), this.weights.get(i), this.isClassification,
+                    resolver);
+        }
+        this.flatTrees = ensembles;
+        return this;
+    }
+
+    /**
+     * @return if model is compiled into primitive arrays by {@link #compile()}
+     */
+    public boolean isCompiled() {
+        return this.flatTrees != null;
+    }
+
+    /**
+     * Re-compile model if trees, weights or predict type are changed after compiled.
+     */
+    private void recompileIfNeeded() {
+        if(this.flatTrees != null) {
+            compile();
+        }
+    }
+
+    private double[] computeFlatClassificationScore(FlatTreeEnsemble[] ensembles, double[] data) {
+        int size = 0;
+        for(FlatTreeEnsemble ensemble: ensembles) {
+            size += ensemble.size();
+        }
+        double[] scores = new double[size];
+        int index = 0;
+        for(FlatTreeEnsemble ensemble: ensembles) {
+            for(int j = 0; j < ensemble.size(); j++) {
+                scores[index++] = ensemble.predict(j, data);
+            }
+        }
+        return scores;
+    }
+
+    private double[] computeFlatRegressionScore(FlatTreeEnsemble[] ensembles, double[] data) {
+        int bags = ensembles.length;
+        double finalPredict = 0d;
+        if(this.isGBDT) {
+            for(int i = 0; i < bags; i++) {
+                FlatTreeEnsemble ensemble = ensembles[i];
+                double[] wgts = ensemble.getWeights();
+                double predict = 0d;
+                for(int j = 0; j < wgts.length; j++) {
+                    predict += ensemble.predict(j, data) * wgts[j];
+                }
+                finalPredict += convertGbtScore(predict);
+            }
+        } else {
+            for(int i = 0; i < bags; i++) {
+                FlatTreeEnsemble ensemble = ensembles[i];
+                double[] wgts = ensemble.getWeights();
+                double predictSum = 0d, weightSum = 0d;
+                for(int j = 0; j < wgts.length; j++) {
+                    double weight = wgts[j];
+                    weightSum += weight;
+                    predictSum += ensemble.predict(j, data) * weight;
+                }
+                finalPredict += (predictSum / weightSum);
+            }
+        }
+        return new double[] { finalPredict / bags };
+    }
+
+    /**
+     * Compute scores of a block of records in row-major layout. Model is compiled at first call if not compiled, and
+     * each tree is applied to all records in the block before next tree. Scores are bit-for-bit identical to
+     * {@link #compute(double[])}.
+     * 
+     * @param data
+     *            records in row-major layout, record r starts at r * columnNumIndexMapping.size() which is the same
+     *            length of data in {@link #compute(double[])}, numeric value is real value, categorical feature value is
+     *            index of binCategoryList.
+     * @param numRecords
+     *            # of records in data
+     * @param scores
+     *            output buffer to be reused, if null or length not enough, a new array is created
+     * @return scores in row-major layout, record r starts at r * {@link #getBatchOutputSize()}
+     */
+    public double[] computeBatch(double[] data, int numRecords, double[] scores) {
+        return computeFlatBatch(data, null, numRecords, scores);
+    }
+
+    /**
+     * Compute scores of a block of records in columnar layout, see {@link #computeBatch(double[], int, double[])}.
+     * 
+     * @param columns
+     *            records in columnar layout, columns[i][r] is input i of record r, the same input index in
+     *            {@link #compute(double[])}
+     * @param numRecords
+     *            # of records in each column
+     * @param scores
+     *            output buffer to be reused, if null or length not enough, a new array is created
+     * @return scores in row-major layout, record r starts at r * {@link #getBatchOutputSize()}
+     */
+    public double[] computeBatch(double[][] columns, int numRecords, double[] scores) {
+        return computeFlatBatch(null, columns, numRecords, scores);
+    }
+
+    /**
+     * @return # of scores per record in {@link #computeBatch(double[], int, double[])}, # of all trees in
+     *         classification mode or 1 in regression mode
+     */
+    public int getBatchOutputSize() {
+        if(!this.isClassification) {
+            return 1;
+        }
+        int size = 0;
+        for(List<TreeNode> list: this.trees) {
+            size += list.size();
+        }
+        return size;
+    }
+
+    private double[] computeFlatBatch(double[] data, double[][] columns, int numRecords, double[] scores) {
+        FlatTreeEnsemble[] ensembles = this.flatTrees;
+        if(ensembles == null) {
+            // double-checked with volatile flatTrees, concurrent first calls compile only once and never see
+            // partially compiled arrays
+            synchronized(this) {
+                if(this.flatTrees == null) {
+                    compile();
+                }
+                ensembles = this.flatTrees;
+            }
+        }
+        int outputSize = getBatchOutputSize();
+        double[] results = (scores != null && scores.length >= numRecords * outputSize) ? scores
+                : new double[numRecords * outputSize];
+        double[] leafValues = new double[numRecords];
+
+        if(this.isClassification) {
+            int index = 0;
+            for(FlatTreeEnsemble ensemble: ensembles) {
+                for(int j = 0; j < ensemble.size(); j++, index++) {
+                    predictFlatBatch(ensemble, j, data, columns, numRecords, leafValues);
+                    for(int r = 0; r < numRecords; r++) {
+                        results[r * outputSize + index] = leafValues[r];
+                    }
+                }
+            }
+            return results;
+        }
+
+        // per record accumulations are in the same order of compute(double[]) to keep the same precision
+        double[] predicts = new double[numRecords];
+        double[] weightSums = this.isGBDT ? null : new double[numRecords];
+        Arrays.fill(results, 0, numRecords, 0d);
+        for(FlatTreeEnsemble ensemble: ensembles) {
+            double[] wgts = ensemble.getWeights();
+            Arrays.fill(predicts, 0, numRecords, 0d);
+            if(weightSums != null) {
+                Arrays.fill(weightSums, 0, numRecords, 0d);
+            }
+            for(int j = 0; j < wgts.length; j++) {
+                double weight = wgts[j];
+                predictFlatBatch(ensemble, j, data, columns, numRecords, leafValues);
+                for(int r = 0; r < numRecords; r++) {
+                    if(weightSums != null) {
+                        weightSums[r] += weight;
+                    }
+                    predicts[r] += leafValues[r] * weight;
+                }
+            }
+            for(int r = 0; r < numRecords; r++) {
+                results[r] += (this.isGBDT ? convertGbtScore(predicts[r]) : (predicts[r] / weightSums[r]));
+            }
+        }
+        int bags = ensembles.length;
+        for(int r = 0; r < numRecords; r++) {
+            results[r] = results[r] / bags;
+        }
+        return results;
+    }
+
+    private void predictFlatBatch(FlatTreeEnsemble ensemble, int treeIndex, double[] data, double[][] columns,
+            int numRecords, double[] leafValues) {
+        if(columns != null) {
+            ensemble.predictBatch(treeIndex, columns, numRecords, leafValues);
+        } else {
+            ensemble.predictBatch(treeIndex, data, this.columnNumIndexMapping.size(), numRecords, leafValues);
+        }
+    }
+
+    /**
+     * Convert one gbt model raw score according to {@link #gbtScoreConvertStrategy}.
+     */
+    private double convertGbtScore(double predict) {
+        if(this.isGBTOldSigmoidConvert) {
+            return convertToSigmoid(predict);
+        } else if(this.isGBTSigmoidConvert) {
+            return convertToNewSigmoid(predict);
+        } else if(this.isGBTCutoffConvert) {
+            return cutoffPredict(predict);
+        } else {
+            // raw score, HALF_CUTOFF and MAXMIN_SCALE are processed in ConfusionMatrix, just keep raw score here
+            return predict;
+        }
+    }
+
     /**
      * Run as classification mode, since no idea of average or vote, classification will return all tree values.
      * 
@@ -409,21 +649,8 @@ public class IndependentTreeModel {
                     predict += score * wgtList.get(j);
                 }
 
-                if(this.isGBTOldSigmoidConvert) {
-                    predict = convertToSigmoid(predict);
-                } else if(this.isGBTSigmoidConvert) {
-                    predict = convertToNewSigmoid(predict);
-                } else if(this.isGBTCutoffConvert) {
-                    predict = cutoffPredict(predict);
-                } else {
-                    // raw score, not to do sth. just to use raw predict score
-                    // here, only SIGMOID, RAW, CUTOFF are supported here since for HALF_CUTOFF and MAXMIN_SCALE are all
-                    // related with max and min score and has been processed in ConfusionMatrix, for HALF_CUTOFF or
-                    // MAXMIN_SCALE, just keep it as raw score here without doing anything
-                }
-
                 // sum all computing scores
-                finalPredict += predict;
+                finalPredict += convertGbtScore(predict);
             }
             // return average bagging score in
             return new double[] { finalPredict / bags };
@@ -751,6 +978,7 @@ public class IndependentTreeModel {
      */
     public void setTrees(List<List<TreeNode>> trees) {
         this.trees = trees;
+        recompileIfNeeded();
     }
 
     /**
@@ -759,6 +987,7 @@ public class IndependentTreeModel {
      */
     public void setWeights(List<List<Double>> weights) {
         this.weights = weights;
+        recompileIfNeeded();
     }
 
     /**
@@ -775,6 +1004,7 @@ public class IndependentTreeModel {
      */
     public void setClassification(boolean isClassification) {
         this.isClassification = isClassification;
+        recompileIfNeeded();
     }
 
     /**
@@ -1017,6 +1247,36 @@ public class IndependentTreeModel {
     public static IndependentTreeModel loadFromStream(InputStream input, boolean isConvertToProb,
             boolean isOptimizeMode, boolean isRemoveNameSpace, String gbtScoreConvertStrategy, PrecisionType pt)
             throws IOException {
+        return loadFromStream(input, isConvertToProb, isOptimizeMode, isRemoveNameSpace, gbtScoreConvertStrategy, pt,
+                false);
+    }
+
+    /**
+     * Load model instance from stream like model0.gbt or model0.rf. User can specify to use raw score or score after
+     * sigmoid transform by isConvertToProb.
+     * 
+     * @param input
+     *            the input stream
+     * @param isConvertToProb
+     *            if convert score to probability (if to transform raw score by sigmoid)
+     * @param isOptimizeMode
+     *            if column index query is optimized
+     * @param isRemoveNameSpace
+     *            new column name including namespace like "a::b", if true, remove "a::" and set column name to simple
+     *            name
+     * @param gbtScoreConvertStrategy
+     *            specify how to convert gbt raw score
+     * @param pt
+     *            precision for threshold or split if they can be in float or double in output format
+     * @param isCompileMode
+     *            if compile trees into primitive arrays after loading, see {@link #compile()}
+     * @return the tree model instance
+     * @throws IOException
+     *             any exception in load input stream
+     */
+    public static IndependentTreeModel loadFromStream(InputStream input, boolean isConvertToProb,
+            boolean isOptimizeMode, boolean isRemoveNameSpace, String gbtScoreConvertStrategy, PrecisionType pt,
+            boolean isCompileMode) throws IOException {
         DataInputStream dis = null;
         // check if gzip or not
         try {
@@ -1125,10 +1385,14 @@ public class IndependentTreeModel {
         }
 
         // if one vs all, even multiple classification, treated as regression
-        return new IndependentTreeModel(numericalMeanMapping, columnIndexNameMapping, categoricalColumnNameNames,
-                columnCategoryIndexMapping, columnMapping, isOptimizeMode, bagTrees, bagWgts,
-                CommonConstants.GBT_ALG_NAME.equalsIgnoreCase(algorithm), isClassification && !isOneVsAll,
+        IndependentTreeModel model = new IndependentTreeModel(numericalMeanMapping, columnIndexNameMapping,
+                categoricalColumnNameNames, columnCategoryIndexMapping, columnMapping, isOptimizeMode, bagTrees,
+                bagWgts, CommonConstants.GBT_ALG_NAME.equalsIgnoreCase(algorithm), isClassification && !isOneVsAll,
                 isConvertToProb, lossStr, algorithm, inputNode, version, gbtScoreConvertStrategy);
+        if(isCompileMode) {
+            model.compile();
+        }
+        return model;
     }
 
     /**
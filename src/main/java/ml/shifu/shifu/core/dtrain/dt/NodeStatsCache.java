@@ -0,0 +1,166 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.dt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * {@link NodeStatsCache} caches worker local feature statistics (histograms) of nodes computed in former iterations.
+ * With parent statistics cached, statistics of one child can be derived by parent minus its sibling instead of
+ * scanning records (histogram subtraction).
+ *
+ * <p>
+ * Cached statistics are copies since statistics sent to master may be merged in place. Total cached memory is bounded
+ * by a budget, statistics over budget are just not cached, which only makes histogram subtraction not happen.
+ */
+final class NodeStatsCache {
+
+    /**
+     * Statistics per node, key is built by {@link #key(int, int)}.
+     */
+    private final Map<Long, Map<Integer, double[]>> cache = new HashMap<Long, Map<Integer, double[]>>();
+
+    /**
+     * Max memory in bytes of cached statistics.
+     */
+    private final long maxMemory;
+
+    /**
+     * Current memory in bytes of cached statistics.
+     */
+    private long currMemory;
+
+    NodeStatsCache(long maxMemory) {
+        this.maxMemory = maxMemory;
+    }
+
+    private static Long key(int treeId, int nodeId) {
+        return (((long) treeId) << 32) | (nodeId & 0xFFFFFFFFL);
+    }
+
+    private static int treeId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int nodeId(long key) {
+        return (int) key;
+    }
+
+    private static long memoryOf(Map<Integer, double[]> statistics) {
+        long memory = 0L;
+        for(double[] stats: statistics.values()) {
+            memory += stats.length * 8L;
+        }
+        return memory;
+    }
+
+    /**
+     * @return cached statistics of node or null if not cached
+     */
+    Map<Integer, double[]> get(int treeId, int nodeId) {
+        return this.cache.get(key(treeId, nodeId));
+    }
+
+    boolean contains(int treeId, int nodeId) {
+        return this.cache.containsKey(key(treeId, nodeId));
+    }
+
+    /**
+     * Cache a copy of statistics if memory budget is enough.
+     *
+     * @return if statistics is cached
+     */
+    boolean put(int treeId, int nodeId, Map<Integer, double[]> statistics) {
+        long memory = memoryOf(statistics);
+        Long key = key(treeId, nodeId);
+        Map<Integer, double[]> old = this.cache.get(key);
+        long oldMemory = old == null ? 0L : memoryOf(old);
+        if(this.currMemory - oldMemory + memory > this.maxMemory) {
+            return false;
+        }
+        Map<Integer, double[]> copy = new HashMap<Integer, double[]>(statistics.size(), 1f);
+        for(Entry<Integer, double[]> entry: statistics.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().clone());
+        }
+        this.cache.put(key, copy);
+        this.currMemory += memory - oldMemory;
+        return true;
+    }
+
+    void remove(int treeId, int nodeId) {
+        Map<Integer, double[]> old = this.cache.remove(key(treeId, nodeId));
+        if(old != null) {
+            this.currMemory -= memoryOf(old);
+        }
+    }
+
+    /**
+     * Remove statistics which can never be used again: node finally set to leaf in current tree or parent node with
+     * both children statistics cached. Trees with invalid root (not sent by master in current iteration) are skipped.
+     *
+     * @param trees
+     *            current trees indexed by tree id, only trees in such map are checked
+     */
+    void evict(Map<Integer, TreeNode> trees) {
+        // check all nodes before removing to make it irrelevant to iteration order
+        List<Long> uselessKeys = new ArrayList<Long>();
+        for(Long key: this.cache.keySet()) {
+            int treeId = treeId(key);
+            int nodeId = nodeId(key);
+            TreeNode treeNode = trees.get(treeId);
+            if(treeNode == null || treeNode.getNode().getId() == Node.INVALID_INDEX) {
+                continue;
+            }
+            Node node = Node.getNode(treeNode.getNode(), nodeId);
+            if(node == null || node.isRealLeaf()
+                    || (contains(treeId, Node.leftIndex(nodeId)) && contains(treeId, Node.rightIndex(nodeId)))) {
+                uselessKeys.add(key);
+            }
+        }
+        for(Long key: uselessKeys) {
+            this.currMemory -= memoryOf(this.cache.remove(key));
+        }
+    }
+
+    /**
+     * Remove all statistics of tree with id treeId.
+     */
+    void clear(int treeId) {
+        Iterator<Entry<Long, Map<Integer, double[]>>> iterator = this.cache.entrySet().iterator();
+        while(iterator.hasNext()) {
+            Entry<Long, Map<Integer, double[]>> entry = iterator.next();
+            if(treeId(entry.getKey()) == treeId) {
+                this.currMemory -= memoryOf(entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    void clear() {
+        this.cache.clear();
+        this.currMemory = 0L;
+    }
+
+    int size() {
+        return this.cache.size();
+    }
+
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.dt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * {@link NodeStatsCodec} encodes feature statistics (histograms) of one node into compact bytes sent from workers to
+ * master.
+ *
+ * <p>
+ * Encoding is combined by flags:
+ * <ul>
+ * <li>{@link #SPARSE}: only non-zero bins are written with index gaps.</li>
+ * <li>{@link #VARINT}: histograms with all integral values (like weighted counts of classification) are written in
+ * zigzag var-length longs, lossless.</li>
+ * <li>{@link #FLOAT}: non-integral values are written in float instead of double, lossy.</li>
+ * <li>{@link #DEFLATE}: encoded bytes of each node are compressed by {@link Deflater} in best speed level.</li>
+ * </ul>
+ * {@link #RAW} is the same format as {@link DTWorkerParams.NodeStats#write(DataOutput)}.
+ *
+ * <p>
+ * Decoding can add values into existing histograms directly to merge statistics without materializing histograms of
+ * each worker.
+ */
+final class NodeStatsCodec {
+
+    static final int RAW = 0;
+
+    static final int SPARSE = 1;
+
+    static final int VARINT = 1 << 1;
+
+    static final int FLOAT = 1 << 2;
+
+    static final int DEFLATE = 1 << 3;
+
+    /**
+     * Lossless compact encoding.
+     */
+    static final int DEFAULT_FLAGS = SPARSE | VARINT;
+
+    /**
+     * Values of histogram are written by var-length longs.
+     */
+    private static final int TYPE_VARINT = 0;
+
+    /**
+     * Values of histogram are written by doubles or floats.
+     */
+    private static final int TYPE_REAL = 1;
+
+    /**
+     * Max integral value which can be exactly represented by double.
+     */
+    private static final double MAX_EXACT_VALUE = (double) (1L << 53);
+
+    private NodeStatsCodec() {
+    }
+
+    /**
+     * Parse encoding flags from comma separated names like 'sparse,varint,float,deflate', 'raw' for no encoding and
+     * blank for {@link #DEFAULT_FLAGS}.
+     */
+    static int parseFlags(String encoding) {
+        if(StringUtils.isBlank(encoding)) {
+            return DEFAULT_FLAGS;
+        }
+        int flags = RAW;
+        for(String name: encoding.split(",")) {
+            name = name.trim();
+            if("raw".equalsIgnoreCase(name)) {
+                continue;
+            } else if("sparse".equalsIgnoreCase(name)) {
+                flags |= SPARSE;
+            } else if("varint".equalsIgnoreCase(name)) {
+                flags |= VARINT;
+            } else if("float".equalsIgnoreCase(name)) {
+                flags |= FLOAT;
+            } else if("deflate".equalsIgnoreCase(name)) {
+                flags |= DEFLATE;
+            } else {
+                throw new IllegalArgumentException("Invalid node stats encoding " + name + " in " + encoding);
+            }
+        }
+        return flags;
+    }
+
+    static byte[] encode(Map<Integer, double[]> featureStatistics, int flags) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = null;
+        DataOutputStream out;
+        if((flags & DEFLATE) != 0) {
+            deflater = new Deflater(Deflater.BEST_SPEED);
+            out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater, 8192));
+        } else {
+            out = new DataOutputStream(bytes);
+        }
+        try {
+            writeVarLong(out, featureStatistics.size());
+            for(Entry<Integer, double[]> entry: featureStatistics.entrySet()) {
+                writeVarLong(out, entry.getKey());
+                writeHistogram(out, entry.getValue(), flags);
+            }
+        } finally {
+            out.close();
+            if(deflater != null) {
+                deflater.end();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode bytes into new histograms.
+     */
+    static Map<Integer, double[]> decode(byte[] bytes, int flags) throws IOException {
+        return read(bytes, flags, null);
+    }
+
+    /**
+     * Decode bytes and add values into histograms of the same features in target.
+     */
+    static void merge(byte[] bytes, int flags, Map<Integer, double[]> target) throws IOException {
+        read(bytes, flags, target);
+    }
+
+    /**
+     * Read histograms into target if target is not null, else into new map with the same capacity as
+     * {@link DTWorkerParams.NodeStats#readFields(DataInput)} to keep the same iteration order.
+     */
+    private static Map<Integer, double[]> read(byte[] bytes, int flags, Map<Integer, double[]> target)
+            throws IOException {
+        InputStream stream = new ByteArrayInputStream(bytes);
+        if((flags & DEFLATE) != 0) {
+            stream = new InflaterInputStream(stream);
+        }
+        DataInputStream in = new DataInputStream(stream);
+        try {
+            int size = (int) readVarLong(in);
+            Map<Integer, double[]> featureStatistics = target == null ? new HashMap<Integer, double[]>(size, 1f)
+                    : target;
+            for(int i = 0; i < size; i++) {
+                int columnNum = (int) readVarLong(in);
+                if(target == null) {
+                    featureStatistics.put(columnNum, readHistogram(in, flags, null));
+                } else {
+                    double[] values = target.get(columnNum);
+                    if(values == null) {
+                        throw new IllegalStateException("No statistics of column " + columnNum + " to merge.");
+                    }
+                    readHistogram(in, flags, values);
+                }
+            }
+            return featureStatistics;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void writeHistogram(DataOutput out, double[] values, int flags) throws IOException {
+        int type = TYPE_REAL;
+        if((flags & VARINT) != 0) {
+            type = TYPE_VARINT;
+            for(double value: values) {
+                if(!isExactLong(value)) {
+                    type = TYPE_REAL;
+                    break;
+                }
+            }
+        }
+        writeVarLong(out, values.length);
+        out.writeByte(type);
+        if((flags & SPARSE) != 0) {
+            int nonZeros = 0;
+            for(double value: values) {
+                if(value != 0d) {
+                    nonZeros += 1;
+                }
+            }
+            writeVarLong(out, nonZeros);
+            int last = -1;
+            for(int i = 0; i < values.length; i++) {
+                if(values[i] != 0d) {
+                    writeVarLong(out, i - last - 1);
+                    writeValue(out, values[i], type, flags);
+                    last = i;
+                }
+            }
+        } else {
+            for(double value: values) {
+                writeValue(out, value, type, flags);
+            }
+        }
+    }
+
+    /**
+     * Read one histogram, values are added into target if target is not null, else new array is returned.
+     */
+    private static double[] readHistogram(DataInput in, int flags, double[] target) throws IOException {
+        int length = (int) readVarLong(in);
+        int type = in.readByte();
+        double[] values = target;
+        if(values == null) {
+            values = new double[length];
+        } else if(values.length != length) {
+            throw new IllegalStateException("Histogram length " + length + " is not equal to " + values.length);
+        }
+        if((flags & SPARSE) != 0) {
+            int nonZeros = (int) readVarLong(in);
+            int index = -1;
+            for(int i = 0; i < nonZeros; i++) {
+                index += (int) readVarLong(in) + 1;
+                values[index] += readValue(in, type, flags);
+            }
+        } else {
+            for(int i = 0; i < length; i++) {
+                values[i] += readValue(in, type, flags);
+            }
+        }
+        return values;
+    }
+
+    private static boolean isExactLong(double value) {
+        return value == Math.rint(value) && Math.abs(value) <= MAX_EXACT_VALUE;
+    }
+
+    private static void writeValue(DataOutput out, double value, int type, int flags) throws IOException {
+        if(type == TYPE_VARINT) {
+            long longValue = (long) value;
+            writeVarLong(out, (longValue << 1) ^ (longValue >> 63));
+        } else if((flags & FLOAT) != 0) {
+            out.writeFloat((float) value);
+        } else {
+            out.writeDouble(value);
+        }
+    }
+
+    private static double readValue(DataInput in, int type, int flags) throws IOException {
+        if(type == TYPE_VARINT) {
+            long zigzag = readVarLong(in);
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        } else if((flags & FLOAT) != 0) {
+            return in.readFloat();
+        } else {
+            return in.readDouble();
+        }
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while((value & ~0x7FL) != 0L) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0L;
+        int shift = 0;
+        while(true) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+            if(shift > 63) {
+                throw new IOException("Malformed var-length long.");
+            }
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.dt;
+
+import java.util.Arrays;
+
+/**
+ * {@link RecordNodeIndex} keeps for each training record and each tree the deepest node id such record has reached. As
+ * tree path of one record is deterministic, next time walking can start from the cached node instead of from root:
+ * only records in just split nodes are moved one or few levels down, no root-to-leaf walk per iteration.
+ *
+ * <p>
+ * For RF, one id array is kept per tree. For GBDT only the current tree is indexed and the index is reset to root when
+ * a new tree is started, see {@link #ensureTree(int)}.
+ *
+ * <p>
+ * Each record index is updated by only one thread as records are partitioned by index range in {@link DTWorker}, no
+ * synchronization is needed.
+ */
+final class RecordNodeIndex {
+
+    /**
+     * Node id of each record per tree slot.
+     */
+    private final int[][] nodeIds;
+
+    /**
+     * Tree id of each slot, -1 if slot is not indexed.
+     */
+    private final int[] treeIds;
+
+    /**
+     * Create index for treeSlots trees and records training records.
+     *
+     * @param treeSlots
+     *            # of trees indexed at the same time, tree number for RF and 1 for GBDT
+     * @param records
+     *            # of training records
+     */
+    RecordNodeIndex(int treeSlots, int records) {
+        this.nodeIds = new int[treeSlots][records];
+        this.treeIds = new int[treeSlots];
+        Arrays.fill(this.treeIds, -1);
+    }
+
+    /**
+     * Estimated memory in bytes for such index.
+     */
+    static long estimateMemory(int treeSlots, int records) {
+        return 4L * treeSlots * records;
+    }
+
+    private int slot(int treeId) {
+        return treeId % this.nodeIds.length;
+    }
+
+    /**
+     * Make sure index of tree with id treeId is in such index, if not, reset all records to root node.
+     *
+     * @param treeId
+     *            the tree id
+     */
+    void ensureTree(int treeId) {
+        int slot = slot(treeId);
+        if(this.treeIds[slot] != treeId) {
+            Arrays.fill(this.nodeIds[slot], Node.ROOT_INDEX);
+            this.treeIds[slot] = treeId;
+        }
+    }
+
+    /**
+     * @return if tree with id treeId is indexed
+     */
+    boolean isIndexed(int treeId) {
+        return this.treeIds[slot(treeId)] == treeId;
+    }
+
+    /**
+     * Reset all trees to be un-indexed, for example data predict is recovered in fail-over.
+     */
+    void reset() {
+        Arrays.fill(this.treeIds, -1);
+    }
+
+    int get(int treeId, int record) {
+        return this.nodeIds[slot(treeId)][record];
+    }
+
+    void set(int treeId, int record, int nodeId) {
+        this.nodeIds[slot(treeId)][record] = nodeId;
+    }
+
+}
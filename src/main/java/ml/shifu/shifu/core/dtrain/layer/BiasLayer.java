@@ -118,6 +118,7 @@ public class BiasLayer extends AbstractLayer<Double, Double, Double, Double, Bia
     public void write(DataOutput out) throws IOException {
         switch(this.serializationType) {
             case WEIGHTS:
+            case SPARSE_WEIGHTS:
             case MODEL_SPEC:
                 out.writeDouble(weight);
                 break;
@@ -138,6 +139,7 @@ public class BiasLayer extends AbstractLayer<Double, Double, Double, Double, Bia
     public void readFields(DataInput in) throws IOException {
         switch(this.serializationType) {
             case WEIGHTS:
+            case SPARSE_WEIGHTS:
             case MODEL_SPEC:
                 this.weight = in.readDouble();
                 break;
@@ -18,6 +18,7 @@ package ml.shifu.shifu.core.dtrain.layer;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -90,6 +91,16 @@ public class DenseLayer extends AbstractLayer<double[], double[], double[], doub
      */
     private double[] lastInput = null;
 
+    /**
+     * Forward results reused for each record if {@link #reuseBuffers}, backward results are always reused as backward
+     * is only called by the training thread owning this layer.
+     */
+    private double[] forwardResults;
+
+    private boolean reuseBuffers;
+
+    private double[] backwardResults;
+
     public DenseLayer() {
     }
 
@@ -192,25 +203,46 @@ public class DenseLayer extends AbstractLayer<double[], double[], double[], doub
     @Override
     public double[] forward(double[] inputs) {
         this.lastInput = inputs;
-        double[] results = new double[this.out];
-        for(int i = 0; i < results.length; i++) {
-            for(int j = 0; j < inputs.length; j++) {
-                results[i] += inputs[j] * this.weights[j][i];
+        double[] results;
+        if(this.reuseBuffers) {
+            if(this.forwardResults == null || this.forwardResults.length != this.out) {
+                this.forwardResults = new double[this.out];
+            }
+            results = this.forwardResults;
+            Arrays.fill(results, 0d);
+        } else {
+            results = new double[this.out];
+        }
+        // iterate weight rows in memory order, each result still sums inputs in the same order
+        for(int j = 0; j < inputs.length; j++) {
+            double input = inputs[j];
+            double[] row = this.weights[j];
+            for(int i = 0; i < results.length; i++) {
+                results[i] += input * row[i];
             }
+        }
+        for(int i = 0; i < results.length; i++) {
             results[i] += bias[i];
         }
         return results;
     }
 
+    @Override
+    public void setReuseBuffers(boolean reuseBuffers) {
+        this.reuseBuffers = reuseBuffers;
+    }
+
     @Override
     public double[] backward(double[] backInputs) {
         // gradients compute and L2 reg here
         for(int i = 0; i < this.in; i++) {
+            double[] grads = this.wGrads[i];
+            double input = this.lastInput[i];
             for(int j = 0; j < this.out; j++) {
                 // basic derivatives
-                this.wGrads[i][j] += (this.lastInput[i] * backInputs[j]);
+                grads[j] += (input * backInputs[j]);
                 // l2 loss derivatives
-                this.wGrads[i][j] += (this.l2reg * backInputs[j]);
+                grads[j] += (this.l2reg * backInputs[j]);
             }
         }
         for(int j = 0; j < this.out; j++) {
@@ -219,11 +251,17 @@ public class DenseLayer extends AbstractLayer<double[], double[], double[], doub
         }
 
         // compute back inputs
-        double[] results = new double[this.in];
+        if(this.backwardResults == null || this.backwardResults.length != this.in) {
+            this.backwardResults = new double[this.in];
+        }
+        double[] results = this.backwardResults;
         for(int i = 0; i < this.in; i++) {
+            double[] row = this.weights[i];
+            double sum = 0d;
             for(int j = 0; j < backInputs.length; j++) {
-                results[i] += (backInputs[j] * this.weights[i][j]);
+                sum += (backInputs[j] * row[j]);
             }
+            results[i] = sum;
         }
         return results;
     }
@@ -310,6 +348,7 @@ public class DenseLayer extends AbstractLayer<double[], double[], double[], doub
 
         switch(this.serializationType) {
             case WEIGHTS:
+            case SPARSE_WEIGHTS:
             case MODEL_SPEC:
                 SerializationUtil.write2DimDoubleArray(out, this.weights, this.in, this.out);
                 SerializationUtil.writeDoubleArray(out, this.bias, this.out);
@@ -336,6 +375,7 @@ public class DenseLayer extends AbstractLayer<double[], double[], double[], doub
 
         switch(this.serializationType) {
             case WEIGHTS:
+            case SPARSE_WEIGHTS:
             case MODEL_SPEC:
                 this.weights = SerializationUtil.read2DimDoubleArray(in, this.weights, this.in, this.out);
                 this.bias = SerializationUtil.readDoubleArray(in, this.bias, this.out);
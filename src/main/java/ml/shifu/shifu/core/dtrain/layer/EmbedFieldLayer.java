@@ -18,7 +18,7 @@ package ml.shifu.shifu.core.dtrain.layer;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -58,9 +58,9 @@ public class EmbedFieldLayer extends AbstractLayer<SparseInput, double[], double
     private WeightOptimizer[] optimizers;
 
     /**
-     * Weight gradients in back computation
+     * Weight gradients in back computation, only rows of category values seen are kept
      */
-    private Map<Integer, double[]> wGrads;
+    private IntDoubleArrayMap wGrads;
 
     /**
      * The output dimension
@@ -82,6 +82,26 @@ public class EmbedFieldLayer extends AbstractLayer<SparseInput, double[], double
      */
     private SparseInput lastInput;
 
+    /**
+     * Forward results reused for each record if {@link #reuseBuffers}
+     */
+    private double[] results;
+
+    private boolean reuseBuffers;
+
+    /**
+     * Rows updated in last {@link #optimizeWeight(double, int, EmbedFieldLayer)}, only such rows are serialized in
+     * {@link SerializationType#SPARSE_WEIGHTS}.
+     */
+    private int[] updatedRows = new int[16];
+
+    private int updatedRowSize;
+
+    /**
+     * Weight rows de-serialized from {@link SerializationType#SPARSE_WEIGHTS}.
+     */
+    private IntDoubleArrayMap sparseWeights;
+
     public EmbedFieldLayer() {
     }
 
@@ -108,24 +128,38 @@ public class EmbedFieldLayer extends AbstractLayer<SparseInput, double[], double
     public double[] forward(SparseInput si) {
         this.lastInput = si;
         int valueIndex = si.getValueIndex();
-        double[] results = new double[this.out];
+        double[] results;
+        if(this.reuseBuffers) {
+            if(this.results == null || this.results.length != this.out) {
+                this.results = new double[this.out];
+            }
+            results = this.results;
+        } else {
+            results = new double[this.out];
+        }
         if(valueIndex < weights.length && valueIndex >= 0) {
             for(int i = 0; i < results.length; i++) {
                 results[i] = si.getValue() * this.getWeights()[valueIndex][i];
             }
         } else {
+            Arrays.fill(results, 0d);
             LOG.error("valueIndex=" + valueIndex + ", columnId=" + columnId + ", in=" + in + ", out=" + out);
         }
         return results;
     }
 
+    @Override
+    public void setReuseBuffers(boolean reuseBuffers) {
+        this.reuseBuffers = reuseBuffers;
+    }
+
     @Override
     public double[] backward(double[] backInputs) {
         // gradients computation
         int valueIndex = this.lastInput.getValueIndex();
-        this.wGrads.computeIfAbsent(valueIndex, k -> new double[this.out]);
+        double[] grads = this.wGrads.getOrCreate(valueIndex, this.out);
         for(int j = 0; j < this.out; j++) {
-            this.wGrads.get(valueIndex)[j] += (this.lastInput.getValue() * backInputs[j]);
+            grads[j] += (this.lastInput.getValue() * backInputs[j]);
         }
 
         // no need compute backward outputs as it is last layer
@@ -195,7 +229,7 @@ public class EmbedFieldLayer extends AbstractLayer<SparseInput, double[], double
     /**
      * @return the wGrads
      */
-    public Map<Integer, double[]> getwGrads() {
+    public IntDoubleArrayMap getwGrads() {
         return wGrads;
     }
 
@@ -203,12 +237,17 @@ public class EmbedFieldLayer extends AbstractLayer<SparseInput, double[], double
      * @param wGrads
      *            the wGrads to set
      */
-    public void setwGrads(Map<Integer, double[]> wGrads) {
+    public void setwGrads(IntDoubleArrayMap wGrads) {
         this.wGrads = wGrads;
     }
 
     public void initGrads() {
-        this.wGrads = new HashMap<>();
+        if(this.wGrads == null) {
+            this.wGrads = new IntDoubleArrayMap();
+        } else {
+            // reuse rows allocated in last epoch
+            this.wGrads.clear();
+        }
     }
 
     @Override
@@ -218,6 +257,16 @@ public class EmbedFieldLayer extends AbstractLayer<SparseInput, double[], double
 
     @Override
     public void initWeight(EmbedFieldLayer updateModel) {
+        if(updateModel.getSerializationType() == SerializationType.SPARSE_WEIGHTS) {
+            // only rows updated in last iteration, others are kept the same as this layer
+            for(Entry<Integer, double[]> entry: updateModel.sparseWeights.entrySet()) {
+                int index = entry.getKey();
+                if(index < this.in) {
+                    System.arraycopy(entry.getValue(), 0, this.weights[index], 0, this.out);
+                }
+            }
+            return;
+        }
         for(int i = 0; i < this.in; i++) {
             for(int j = 0; j < this.out; j++) {
                 this.weights[i][j] = updateModel.getWeights()[i][j];
@@ -241,6 +290,13 @@ public class EmbedFieldLayer extends AbstractLayer<SparseInput, double[], double
             case MODEL_SPEC:
                 SerializationUtil.write2DimDoubleArray(out, this.weights, this.in, this.out);
                 break;
+            case SPARSE_WEIGHTS:
+                out.writeInt(this.updatedRowSize);
+                for(int i = 0; i < this.updatedRowSize; i++) {
+                    out.writeInt(this.updatedRows[i]);
+                    SerializationUtil.writeDoubleArray(out, this.weights[this.updatedRows[i]], this.out);
+                }
+                break;
             case GRADIENTS:
                 if(this.wGrads == null) {
                     out.writeInt(0);
@@ -273,11 +329,23 @@ public class EmbedFieldLayer extends AbstractLayer<SparseInput, double[], double
             case MODEL_SPEC:
                 this.weights = SerializationUtil.read2DimDoubleArray(in, this.weights, this.in, this.out);
                 break;
+            case SPARSE_WEIGHTS:
+                if(this.sparseWeights != null) {
+                    this.sparseWeights.clear();
+                } else {
+                    this.sparseWeights = new IntDoubleArrayMap();
+                }
+                int rowSize = in.readInt();
+                for(int i = 0; i < rowSize; i++) {
+                    int lineNumber = in.readInt();
+                    this.sparseWeights.put(lineNumber, SerializationUtil.readDoubleArray(in, null, this.out));
+                }
+                break;
             case GRADIENTS:
                 if(this.wGrads != null) {
                     this.wGrads.clear();
                 } else {
-                    this.wGrads = new HashMap<Integer, double[]>();
+                    this.wGrads = new IntDoubleArrayMap();
                 }
                 int gradSize = in.readInt();
                 for(int i = 0; i < gradSize; i++) {
@@ -298,15 +366,11 @@ public class EmbedFieldLayer extends AbstractLayer<SparseInput, double[], double
         }
         Map<Integer, double[]> fromGrads = from.getwGrads();
         for(Entry<Integer, double[]> entry: fromGrads.entrySet()) {
-            Integer index = entry.getKey();
             double[] grad = entry.getValue();
-            if(wGrads.containsKey(index)) {
-                double[] thisGrad = wGrads.get(index);
-                for(int i = 0; i < this.out; i++) {
-                    grad[i] += thisGrad[i];
-                }
+            double[] thisGrad = wGrads.getOrCreate(entry.getKey(), this.out);
+            for(int i = 0; i < this.out; i++) {
+                thisGrad[i] += grad[i];
             }
-            wGrads.put(index, grad);
         }
         return this;
     }
@@ -326,10 +390,15 @@ public class EmbedFieldLayer extends AbstractLayer<SparseInput, double[], double
 
     @Override
     public void optimizeWeight(double numTrainSize, int iteration, EmbedFieldLayer model) {
+        this.updatedRowSize = 0;
         for(Map.Entry<Integer, double[]> entry: model.getwGrads().entrySet()) {
             int index = entry.getKey();
             if(index < this.in) {
                 this.optimizers[index].calculateWeights(this.weights[index], entry.getValue(), iteration, numTrainSize);
+                if(this.updatedRowSize == this.updatedRows.length) {
+                    this.updatedRows = Arrays.copyOf(this.updatedRows, this.updatedRows.length * 2);
+                }
+                this.updatedRows[this.updatedRowSize++] = index;
             } else {
                 LOG.error("index {} in EmbedFieldLayer gradient great than in {}", index, this.in);
             }
@@ -57,20 +57,45 @@ public class EmbedLayer
         return len;
     }
 
+    /**
+     * Forward result list reused for each record if {@link #reuseBuffers}, backward result list is always reused as
+     * backward is only called by the training thread owning this layer.
+     */
+    private final List<double[]> forwardResults = new ArrayList<>();
+
+    private boolean reuseBuffers;
+
+    private final List<double[]> backwardResults = new ArrayList<>();
+
     @Override
     public List<double[]> forward(List<SparseInput> inputList) {
         AssertUtils.assertListNotNullAndSizeEqual(this.getEmbedLayers(), inputList);
-        List<double[]> list = new ArrayList<>();
+        List<double[]> list;
+        if(this.reuseBuffers) {
+            list = this.forwardResults;
+            list.clear();
+        } else {
+            list = new ArrayList<>(this.getEmbedLayers().size());
+        }
         for(int i = 0; i < this.getEmbedLayers().size(); i++) {
             list.add(this.getEmbedLayers().get(i).forward(inputList.get(i)));
         }
         return list;
     }
 
+    @Override
+    public void setReuseBuffers(boolean reuseBuffers) {
+        this.reuseBuffers = reuseBuffers;
+        for(EmbedFieldLayer embedLayer: this.getEmbedLayers()) {
+            embedLayer.setReuseBuffers(reuseBuffers);
+        }
+    }
+
     @Override
     public List<double[]> backward(List<double[]> backInputList) {
         AssertUtils.assertListNotNullAndSizeEqual(this.getEmbedLayers(), backInputList);
-        List<double[]> list = new ArrayList<>();
+        List<double[]> list = this.backwardResults;
+        list.clear();
         for(int i = 0; i < this.getEmbedLayers().size(); i++) {
             list.add(this.getEmbedLayers().get(i).backward(backInputList.get(i)));
         }
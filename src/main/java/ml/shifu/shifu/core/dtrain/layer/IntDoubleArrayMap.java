@@ -0,0 +1,237 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.layer;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * {@link IntDoubleArrayMap} is an open addressing hash map from primitive int keys to double arrays, which is used to
+ * accumulate sparse gradients of embedding rows.
+ *
+ * <p>
+ * {@link #getOrCreate(int, int)} neither boxes keys nor allocates once the map is warmed up: {@link #clear()} keeps
+ * value arrays of all slots and they are zeroed and reused by later keys. {@link Map} view is kept for optimizers and
+ * serialization which are called once per iteration.
+ */
+public class IntDoubleArrayMap extends AbstractMap<Integer, double[]> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] keys;
+
+    private double[][] values;
+
+    private boolean[] used;
+
+    private int size;
+
+    private int mask;
+
+    public IntDoubleArrayMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntDoubleArrayMap(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while(capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new int[capacity];
+        this.values = new double[capacity][];
+        this.used = new boolean[capacity];
+        this.mask = capacity - 1;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Find slot of key, or the empty slot where key should be put.
+     */
+    private int slot(int key) {
+        int slot = hash(key) & this.mask;
+        while(this.used[slot] && this.keys[slot] != key) {
+            slot = (slot + 1) & this.mask;
+        }
+        return slot;
+    }
+
+    /**
+     * @param key
+     *            the key
+     * @return value array of the key, null if key not exists
+     */
+    public double[] get(int key) {
+        int slot = slot(key);
+        return this.used[slot] ? this.values[slot] : null;
+    }
+
+    /**
+     * Get value array of the key, or a zero array of given width if key not exists.
+     *
+     * @param key
+     *            the key
+     * @param width
+     *            the width of value array
+     * @return value array of the key
+     */
+    public double[] getOrCreate(int key, int width) {
+        int slot = slot(key);
+        if(this.used[slot]) {
+            return this.values[slot];
+        }
+        if(this.size + 1 > (this.mask + 1) / 2) {
+            rehash();
+            slot = slot(key);
+        }
+        double[] value = this.values[slot];
+        if(value == null || value.length != width) {
+            value = new double[width];
+        } else {
+            Arrays.fill(value, 0d);
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        this.used[slot] = true;
+        this.size += 1;
+        return value;
+    }
+
+    /**
+     * Put value array of the key.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value array
+     * @return old value array of the key, null if key not exists
+     */
+    public double[] put(int key, double[] value) {
+        int slot = slot(key);
+        if(this.used[slot]) {
+            double[] old = this.values[slot];
+            this.values[slot] = value;
+            return old;
+        }
+        if(this.size + 1 > (this.mask + 1) / 2) {
+            rehash();
+            slot = slot(key);
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        this.used[slot] = true;
+        this.size += 1;
+        return null;
+    }
+
+    private void rehash() {
+        int[] oldKeys = this.keys;
+        double[][] oldValues = this.values;
+        boolean[] oldUsed = this.used;
+        allocate(oldKeys.length * 2);
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldUsed[i]) {
+                int slot = slot(oldKeys[i]);
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+                this.used[slot] = true;
+            }
+        }
+    }
+
+    @Override
+    public double[] get(Object key) {
+        return key instanceof Integer ? get(((Integer) key).intValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public double[] put(Integer key, double[] value) {
+        return put(key.intValue(), value);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Remove all keys, value arrays are kept to be reused by {@link #getOrCreate(int, int)}.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(this.used, false);
+        this.size = 0;
+    }
+
+    @Override
+    public Set<Entry<Integer, double[]>> entrySet() {
+        return new AbstractSet<Entry<Integer, double[]>>() {
+            @Override
+            public Iterator<Entry<Integer, double[]>> iterator() {
+                return new Iterator<Entry<Integer, double[]>>() {
+                    private int next = advance(0);
+
+                    private int advance(int from) {
+                        int i = from;
+                        while(i < IntDoubleArrayMap.this.used.length && !IntDoubleArrayMap.this.used[i]) {
+                            i++;
+                        }
+                        return i;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return this.next < IntDoubleArrayMap.this.used.length;
+                    }
+
+                    @Override
+                    public Entry<Integer, double[]> next() {
+                        if(!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        int current = this.next;
+                        this.next = advance(current + 1);
+                        return new SimpleImmutableEntry<Integer, double[]>(IntDoubleArrayMap.this.keys[current],
+                                IntDoubleArrayMap.this.values[current]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return IntDoubleArrayMap.this.size;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.layer;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * {@link IntDoubleMap} is an open addressing hash map from primitive int keys to primitive double values, which is used
+ * to accumulate sparse gradients of wide field weights.
+ *
+ * <p>
+ * {@link #add(int, double)} neither boxes keys or values nor allocates once the map is warmed up. {@link Map} view is
+ * kept for optimizers and serialization which are called once per iteration.
+ */
+public class IntDoubleMap extends AbstractMap<Integer, Double> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] keys;
+
+    private double[] values;
+
+    private boolean[] used;
+
+    private int size;
+
+    private int mask;
+
+    public IntDoubleMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntDoubleMap(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while(capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new int[capacity];
+        this.values = new double[capacity];
+        this.used = new boolean[capacity];
+        this.mask = capacity - 1;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Find slot of key, or the empty slot where key should be put.
+     */
+    private int slot(int key) {
+        int slot = hash(key) & this.mask;
+        while(this.used[slot] && this.keys[slot] != key) {
+            slot = (slot + 1) & this.mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Add delta to value of the key, value of a new key starts from 0.
+     *
+     * @param key
+     *            the key
+     * @param delta
+     *            the delta to add
+     */
+    public void add(int key, double delta) {
+        int slot = slot(key);
+        if(!this.used[slot]) {
+            slot = insert(key, slot);
+            this.values[slot] = 0d;
+        }
+        this.values[slot] += delta;
+    }
+
+    /**
+     * @param key
+     *            the key
+     * @param defaultValue
+     *            the value returned if key not exists
+     * @return value of the key
+     */
+    public double get(int key, double defaultValue) {
+        int slot = slot(key);
+        return this.used[slot] ? this.values[slot] : defaultValue;
+    }
+
+    /**
+     * Put value of the key.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     */
+    public void put(int key, double value) {
+        int slot = slot(key);
+        if(!this.used[slot]) {
+            slot = insert(key, slot);
+        }
+        this.values[slot] = value;
+    }
+
+    private int insert(int key, int slot) {
+        int result = slot;
+        if(this.size + 1 > (this.mask + 1) / 2) {
+            rehash();
+            result = slot(key);
+        }
+        this.keys[result] = key;
+        this.used[result] = true;
+        this.size += 1;
+        return result;
+    }
+
+    private void rehash() {
+        int[] oldKeys = this.keys;
+        double[] oldValues = this.values;
+        boolean[] oldUsed = this.used;
+        allocate(oldKeys.length * 2);
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldUsed[i]) {
+                int slot = slot(oldKeys[i]);
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+                this.used[slot] = true;
+            }
+        }
+    }
+
+    @Override
+    public Double get(Object key) {
+        if(!(key instanceof Integer)) {
+            return null;
+        }
+        int slot = slot((Integer) key);
+        return this.used[slot] ? this.values[slot] : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Double put(Integer key, Double value) {
+        Double old = get(key);
+        put(key.intValue(), value.doubleValue());
+        return old;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(this.used, false);
+        this.size = 0;
+    }
+
+    @Override
+    public Set<Entry<Integer, Double>> entrySet() {
+        return new AbstractSet<Entry<Integer, Double>>() {
+            @Override
+            public Iterator<Entry<Integer, Double>> iterator() {
+                return new Iterator<Entry<Integer, Double>>() {
+                    private int next = advance(0);
+
+                    private int advance(int from) {
+                        int i = from;
+                        while(i < IntDoubleMap.this.used.length && !IntDoubleMap.this.used[i]) {
+                            i++;
+                        }
+                        return i;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return this.next < IntDoubleMap.this.used.length;
+                    }
+
+                    @Override
+                    public Entry<Integer, Double> next() {
+                        if(!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        int current = this.next;
+                        this.next = advance(current + 1);
+                        return new SimpleImmutableEntry<Integer, Double>(IntDoubleMap.this.keys[current],
+                                IntDoubleMap.this.values[current]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return IntDoubleMap.this.size;
+            }
+        };
+    }
+
+}
@@ -49,4 +49,15 @@ public interface Layer<FIN, FOUT, BIN, BOUT> {
      */
     BOUT backward(BIN backInput);
 
+    /**
+     * Set if forward results are kept in buffers reused by the next {@link #forward(Object)} call. Buffers can only be
+     * reused if layer is used by one thread like the model cloned by each training thread, by default results are
+     * allocated in each call so that shared models can be used by concurrent scoring threads.
+     * 
+     * @param reuseBuffers
+     *            if reuse forward result buffers
+     */
+    default void setReuseBuffers(boolean reuseBuffers) {
+    }
+
 }
@@ -24,9 +24,10 @@ import java.util.Arrays;
  */
 public enum SerializationType {
     /**
-     * Serialize types, each of them including different serialize scope
+     * Serialize types, each of them including different serialize scope. SPARSE_WEIGHTS is the same as WEIGHTS except
+     * that embedding and wide field layers only include weights updated in last iteration.
      */
-    WEIGHTS(0), GRADIENTS(1), MODEL_SPEC(2), ERROR(-1);
+    WEIGHTS(0), GRADIENTS(1), MODEL_SPEC(2), SPARSE_WEIGHTS(3), ERROR(-1);
 
     int value;
 
@@ -64,6 +64,13 @@ public class WideDenseLayer extends AbstractLayer<double[], double[], double[],
      */
     private double[] lastInput;
 
+    /**
+     * Forward results reused for each record if {@link #reuseBuffers}
+     */
+    private final double[] forwardResults = new double[1];
+
+    private boolean reuseBuffers;
+
     /**
      * Columns of IDs
      */
@@ -95,7 +102,8 @@ public class WideDenseLayer extends AbstractLayer<double[], double[], double[],
         // LOG.info("WideDenseLayer inputs:" + Arrays.toString(inputs));
         // }
         this.lastInput = inputs;
-        double[] results = new double[1];
+        double[] results = this.reuseBuffers ? this.forwardResults : new double[1];
+        results[0] = 0d;
         for(int i = 0; i < inputs.length; i++) {
             // LOG.debug("inputs[i]=" + inputs[i] + "this.weights[i]=" + this.weights[i]);
             results[0] += inputs[i] * this.weights[i];
@@ -223,6 +231,7 @@ public class WideDenseLayer extends AbstractLayer<double[], double[], double[],
 
         switch(this.serializationType) {
             case WEIGHTS:
+            case SPARSE_WEIGHTS:
             case MODEL_SPEC:
                 SerializationUtil.writeDoubleArray(out, this.weights, this.in);
                 break;
@@ -246,6 +255,7 @@ public class WideDenseLayer extends AbstractLayer<double[], double[], double[],
 
         switch(this.serializationType) {
             case WEIGHTS:
+            case SPARSE_WEIGHTS:
             case MODEL_SPEC:
                 this.weights = SerializationUtil.readDoubleArray(in, this.weights, this.in);
                 break;
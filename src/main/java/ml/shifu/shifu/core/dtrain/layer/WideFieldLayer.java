@@ -18,7 +18,7 @@ package ml.shifu.shifu.core.dtrain.layer;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -52,7 +52,7 @@ public class WideFieldLayer extends AbstractLayer<SparseInput, double[], double[
     /**
      * Gradients, using map for sparse updates
      */
-    private Map<Integer, Double> wGrads;
+    private IntDoubleMap wGrads;
 
     /**
      * # of inputs
@@ -74,6 +74,26 @@ public class WideFieldLayer extends AbstractLayer<SparseInput, double[], double[
      */
     private SparseInput lastInput;
 
+    /**
+     * Forward results reused for each record if {@link #reuseBuffers}
+     */
+    private final double[] results = new double[1];
+
+    private boolean reuseBuffers;
+
+    /**
+     * Indices updated in last {@link #optimizeWeight(double, int, WideFieldLayer)}, only such weights are serialized in
+     * {@link SerializationType#SPARSE_WEIGHTS}.
+     */
+    private int[] updatedIndices = new int[16];
+
+    private int updatedIndexSize;
+
+    /**
+     * Weights de-serialized from {@link SerializationType#SPARSE_WEIGHTS}.
+     */
+    private IntDoubleMap sparseWeights;
+
     public WideFieldLayer() {
     }
 
@@ -95,10 +115,18 @@ public class WideFieldLayer extends AbstractLayer<SparseInput, double[], double[
     public double[] forward(SparseInput si) {
         this.lastInput = si;
         int valueIndex = si.getValueIndex();
+        double[] results = this.reuseBuffers ? this.results : new double[1];
         if(valueIndex < this.weights.length && valueIndex >= 0) {
-            return new double[] { si.getValue() * this.weights[valueIndex] };
+            results[0] = si.getValue() * this.weights[valueIndex];
+        } else {
+            results[0] = 0d;
         }
-        return new double[] { 0d };
+        return results;
+    }
+
+    @Override
+    public void setReuseBuffers(boolean reuseBuffers) {
+        this.reuseBuffers = reuseBuffers;
     }
 
     @Override
@@ -106,12 +134,8 @@ public class WideFieldLayer extends AbstractLayer<SparseInput, double[], double[
         assert backInputs.length == 1;
 
         int valueIndex = this.lastInput.getValueIndex();
-        Double grad = this.wGrads.get(valueIndex);
-        double tmpGrad = grad == null ? 0 : grad;
         // category value here is 1f
-        tmpGrad += (this.lastInput.getValue() * backInputs[0]);
-        // l2 loss
-        this.wGrads.put(valueIndex, tmpGrad);
+        this.wGrads.add(valueIndex, this.lastInput.getValue() * backInputs[0]);
 
         // no need compute backward outputs as it is last layer
         return null;
@@ -170,7 +194,7 @@ public class WideFieldLayer extends AbstractLayer<SparseInput, double[], double[
     /**
      * @return the wGrads
      */
-    public Map<Integer, Double> getwGrads() {
+    public IntDoubleMap getwGrads() {
         return wGrads;
     }
 
@@ -178,7 +202,7 @@ public class WideFieldLayer extends AbstractLayer<SparseInput, double[], double[
      * @param wGrads
      *            the wGrads to set
      */
-    public void setwGrads(Map<Integer, Double> wGrads) {
+    public void setwGrads(IntDoubleMap wGrads) {
         this.wGrads = wGrads;
     }
 
@@ -198,7 +222,11 @@ public class WideFieldLayer extends AbstractLayer<SparseInput, double[], double[
     }
 
     public void initGrads() {
-        this.wGrads = new HashMap<Integer, Double>();
+        if(this.wGrads == null) {
+            this.wGrads = new IntDoubleMap();
+        } else {
+            this.wGrads.clear();
+        }
     }
 
     @Override
@@ -208,6 +236,16 @@ public class WideFieldLayer extends AbstractLayer<SparseInput, double[], double[
 
     @Override
     public void initWeight(WideFieldLayer updateModel) {
+        if(updateModel.getSerializationType() == SerializationType.SPARSE_WEIGHTS) {
+            // only weights updated in last iteration, others are kept the same as this layer
+            for(Entry<Integer, Double> entry: updateModel.sparseWeights.entrySet()) {
+                int index = entry.getKey();
+                if(index < this.in) {
+                    this.weights[index] = entry.getValue();
+                }
+            }
+            return;
+        }
         for(int i = 0; i < this.in; i++) {
             this.weights[i] = updateModel.getWeights()[i];
         }
@@ -229,6 +267,13 @@ public class WideFieldLayer extends AbstractLayer<SparseInput, double[], double[
             case MODEL_SPEC:
                 SerializationUtil.writeDoubleArray(out, this.weights, this.in);
                 break;
+            case SPARSE_WEIGHTS:
+                out.writeInt(this.updatedIndexSize);
+                for(int i = 0; i < this.updatedIndexSize; i++) {
+                    out.writeInt(this.updatedIndices[i]);
+                    out.writeDouble(this.weights[this.updatedIndices[i]]);
+                }
+                break;
             case GRADIENTS:
                 if(this.wGrads == null) {
                     out.writeInt(0);
@@ -261,11 +306,22 @@ public class WideFieldLayer extends AbstractLayer<SparseInput, double[], double[
             case MODEL_SPEC:
                 this.weights = SerializationUtil.readDoubleArray(in, this.weights, this.in);
                 break;
+            case SPARSE_WEIGHTS:
+                if(this.sparseWeights != null) {
+                    this.sparseWeights.clear();
+                } else {
+                    this.sparseWeights = new IntDoubleMap();
+                }
+                int weightSize = in.readInt();
+                for(int i = 0; i < weightSize; i++) {
+                    this.sparseWeights.put(in.readInt(), in.readDouble());
+                }
+                break;
             case GRADIENTS:
                 if(this.wGrads != null) {
                     this.wGrads.clear();
                 } else {
-                    this.wGrads = new HashMap<Integer, Double>();
+                    this.wGrads = new IntDoubleMap();
                 }
                 int size = in.readInt();
                 for(int i = 0; i < size; i++) {
@@ -284,9 +340,9 @@ public class WideFieldLayer extends AbstractLayer<SparseInput, double[], double[
         }
         Map<Integer, Double> fromGrads = from.getwGrads();
         for(Entry<Integer, Double> entry: fromGrads.entrySet()) {
-            Integer index = entry.getKey();
+            int index = entry.getKey();
             double grad = entry.getValue();
-            wGrads.put(index, grad + wGrads.getOrDefault(index, 0.0d));
+            wGrads.put(index, grad + wGrads.get(index, 0.0d));
         }
         return this;
     }
@@ -304,10 +360,15 @@ public class WideFieldLayer extends AbstractLayer<SparseInput, double[], double[
 
     @Override
     public void optimizeWeight(double numTrainSize, int iteration, WideFieldLayer model) {
+        this.updatedIndexSize = 0;
         for(Map.Entry<Integer, Double> entry: model.getwGrads().entrySet()) {
             int index = entry.getKey();
             if(index < this.in) {
                 this.optimizer.calculateWeights(this.weights, index, entry.getValue(), numTrainSize);
+                if(this.updatedIndexSize == this.updatedIndices.length) {
+                    this.updatedIndices = Arrays.copyOf(this.updatedIndices, this.updatedIndices.length * 2);
+                }
+                this.updatedIndices[this.updatedIndexSize++] = index;
             } else {
                 LOG.error("index {} in EmbedFieldLayer gradient great than in {}", index, this.in);
             }
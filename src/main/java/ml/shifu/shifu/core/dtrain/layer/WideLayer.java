@@ -21,6 +21,7 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -89,10 +90,31 @@ public class WideLayer
 
     private boolean isDebug = false;
 
+    /**
+     * Forward results reused for each record if {@link #reuseBuffers}, backward outputs are always reused as backward
+     * is only called by the training thread owning this layer.
+     */
+    private double[] forwardResults;
+
+    private boolean reuseBuffers;
+
+    private final List<double[]> backwardResults = new ArrayList<>();
+
+    private final double[] biasBackwardResults = new double[1];
+
     @Override
     public double[] forward(Tuple<List<SparseInput>, double[]> input) {
         AssertUtils.assertListNotNullAndSizeEqual(this.getLayers(), input.getFirst());
-        double[] results = new double[layers.get(0).getOutDim()];
+        int outDim = layers.get(0).getOutDim();
+        double[] results;
+        if(!this.reuseBuffers) {
+            results = new double[outDim];
+        } else if(this.forwardResults == null || this.forwardResults.length != outDim) {
+            results = this.forwardResults = new double[outDim];
+        } else {
+            results = this.forwardResults;
+            Arrays.fill(results, 0d);
+        }
         for(int i = 0; i < getLayers().size(); i++) {
             double[] fOuts = this.getLayers().get(i).forward(input.getFirst().get(i));
             for(int j = 0; j < results.length; j++) {
@@ -110,22 +132,35 @@ public class WideLayer
         }
 
         for(int j = 0; j < results.length; j++) {
-            results[j] += bias.forward(1d);
+            results[j] += bias.getWeight();
         }
         return results;
     }
 
+    @Override
+    public void setReuseBuffers(boolean reuseBuffers) {
+        this.reuseBuffers = reuseBuffers;
+        for(WideFieldLayer layer: this.getLayers()) {
+            layer.setReuseBuffers(reuseBuffers);
+        }
+        if(this.denseLayer != null) {
+            this.denseLayer.setReuseBuffers(reuseBuffers);
+        }
+    }
+
     @Override
     public List<double[]> backward(double[] backInputs) {
         // below backward call is for gradients computation in WideFieldLayer and BiasLayer
-        List<double[]> list = new ArrayList<>();
+        List<double[]> list = this.backwardResults;
+        list.clear();
         for(int i = 0; i < getLayers().size(); i++) {
             list.add(this.getLayers().get(i).backward(backInputs));
         }
         if(this.wideDenseEnable) {
             list.add(this.denseLayer.backward(backInputs));
         }
-        list.add(new double[] { bias.backward(backInputs[0]) });
+        this.biasBackwardResults[0] = bias.backward(backInputs[0]);
+        list.add(this.biasBackwardResults);
         return list;
     }
 
@@ -193,6 +228,13 @@ public class WideLayer
         return denseLayer;
     }
 
+    /**
+     * @return if dense fields are enabled in this wide layer
+     */
+    public boolean isWideDenseEnable() {
+        return wideDenseEnable;
+    }
+
     /**
      * @param denseLayer
      *            the denseLayer to set
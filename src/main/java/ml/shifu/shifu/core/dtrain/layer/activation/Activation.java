@@ -38,6 +38,65 @@ public abstract class Activation implements Layer<double[], double[], double[],
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Forward results reused for each record if {@link #reuseBuffers}, backward results are always reused as backward
+     * is only called by the training thread owning this activation.
+     */
+    private double[] forwardResults;
+
+    private double[] backwardResults;
+
+    private boolean reuseBuffers;
+
+    @Override
+    public void setReuseBuffers(boolean reuseBuffers) {
+        this.reuseBuffers = reuseBuffers;
+    }
+
+    /**
+     * @param size
+     *            the size of results
+     * @return the array to save forward results, it is reused by each call of forward if {@link #reuseBuffers}
+     */
+    protected double[] forwardResults(int size) {
+        if(!this.reuseBuffers) {
+            return new double[size];
+        }
+        if(this.forwardResults == null || this.forwardResults.length != size) {
+            this.forwardResults = new double[size];
+        }
+        return this.forwardResults;
+    }
+
+    /**
+     * @param size
+     *            the size of results
+     * @return the array to save backward results, it is reused by each call of backward
+     */
+    protected double[] backwardResults(int size) {
+        if(this.backwardResults == null || this.backwardResults.length != size) {
+            this.backwardResults = new double[size];
+        }
+        return this.backwardResults;
+    }
+
+    /**
+     * Forward computing on one slice of values in place, it is used in batch inference to avoid allocation per record
+     * and no state for {@link #backward(Object)} is saved. Results are the same as {@link #forward(Object)}.
+     * 
+     * @param values
+     *            the values buffer, slice [offset, offset + size) is replaced by activation outputs
+     * @param offset
+     *            start offset of the slice
+     * @param size
+     *            size of the slice
+     */
+    public void forwardInPlace(double[] values, int offset, int size) {
+        double[] inputs = new double[size];
+        System.arraycopy(values, offset, inputs, 0, size);
+        System.arraycopy(forward(inputs), 0, values, offset, size);
+    }
+
     @Override
     public void write(DataOutput out) throws IOException {
     }
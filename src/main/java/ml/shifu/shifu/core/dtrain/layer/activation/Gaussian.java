@@ -59,7 +59,7 @@ public class Gaussian extends Activation {
     @Override
     public double[] forward(double[] inputs) {
         this.lastInput = inputs;
-        double[] outputs = new double[inputs.length];
+        double[] outputs = forwardResults(inputs.length);
         for(int i = 0; i < inputs.length; i++) {
             outputs[i] = (double) (this.peak * BoundMath.exp(-Math.pow(inputs[i] - this.center, 2)
                     / (2.0 * this.width * this.width)));
@@ -67,9 +67,17 @@ public class Gaussian extends Activation {
         return outputs;
     }
 
+    @Override
+    public void forwardInPlace(double[] values, int offset, int size) {
+        for(int i = offset; i < offset + size; i++) {
+            values[i] = (double) (this.peak * BoundMath.exp(-Math.pow(values[i] - this.center, 2)
+                    / (2.0 * this.width * this.width)));
+        }
+    }
+
     @Override
     public double[] backward(double[] outputs) {
-        double[] results = new double[outputs.length];
+        double[] results = backwardResults(outputs.length);
         for(int i = 0; i < outputs.length; i++) {
             double interExpValue = this.width * this.width * this.lastInput[i] * this.lastInput[i];
             results[i] = (double) (Math.exp(-0.5 * interExpValue) * peak * width * width * (interExpValue - 1));
@@ -48,18 +48,23 @@ public class LeakyReLU extends Activation {
     @Override
     public double[] forward(double[] inputs) {
         this.lastInput = inputs;
-        double[] outputs = new double[inputs.length];
+        double[] outputs = forwardResults(inputs.length);
         for(int i = 0; i < inputs.length; i++) {
-            if(inputs[i] <= this.thresholdLow) {
-                outputs[i] = inputs[i] * this.alpha;
-            }
+            outputs[i] = inputs[i] <= this.thresholdLow ? inputs[i] * this.alpha : 0d;
         }
         return outputs;
     }
 
+    @Override
+    public void forwardInPlace(double[] values, int offset, int size) {
+        for(int i = offset; i < offset + size; i++) {
+            values[i] = values[i] <= this.thresholdLow ? values[i] * this.alpha : 0d;
+        }
+    }
+
     @Override
     public double[] backward(double[] backInput) {
-        double[] results = new double[backInput.length];
+        double[] results = backwardResults(backInput.length);
         for(int i = 0; i < results.length; i++) {
             results[i] = this.lastInput[i] <= this.thresholdLow ? this.alpha : 1.0f;
         }
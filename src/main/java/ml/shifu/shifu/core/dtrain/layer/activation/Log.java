@@ -31,7 +31,7 @@ public class Log extends Activation {
     @Override
     public double[] forward(double[] inputs) {
         this.lastInput = inputs;
-        double[] outputs = new double[inputs.length];
+        double[] outputs = forwardResults(inputs.length);
         for(int i = 0; i < inputs.length; i++) {
             if (inputs[i] >= 0) {
                 outputs[i] = (double) BoundMath.log(1 + inputs[i]);
@@ -42,9 +42,20 @@ public class Log extends Activation {
         return outputs;
     }
 
+    @Override
+    public void forwardInPlace(double[] values, int offset, int size) {
+        for(int i = offset; i < offset + size; i++) {
+            if (values[i] >= 0) {
+                values[i] = (double) BoundMath.log(1 + values[i]);
+            } else {
+                values[i] = (double) -BoundMath.log(1 - values[i]);
+            }
+        }
+    }
+
     @Override
     public double[] backward(double[] backInput) {
-        double[] results = new double[backInput.length];
+        double[] results = backwardResults(backInput.length);
         for(int i = 0; i < results.length; i++) {
             if (this.lastInput[i] >= 0) {
                 results[i] = 1 / (1 + this.lastInput[i]);
@@ -30,16 +30,23 @@ public class ReLU extends Activation {
     @Override
     public double[] forward(double[] inputs) {
         this.lastInput = inputs;
-        double[] outputs = new double[inputs.length];
+        double[] outputs = forwardResults(inputs.length);
         for(int i = 0; i < inputs.length; i++) {
             outputs[i] = Math.max(0, inputs[i]);
         }
         return outputs;
     }
 
+    @Override
+    public void forwardInPlace(double[] values, int offset, int size) {
+        for(int i = offset; i < offset + size; i++) {
+            values[i] = Math.max(0, values[i]);
+        }
+    }
+
     @Override
     public double[] backward(double[] outputs) {
-        double[] results = new double[outputs.length];
+        double[] results = backwardResults(outputs.length);
         for(int i = 0; i < outputs.length; i++) {
             results[i] = this.lastInput[i] > 0 ? outputs[i] * 1f : 0f;
         }
@@ -33,7 +33,7 @@ public class Sigmoid extends Activation {
     public double[] forward(double[] in) {
         AssertUtils.assertNotNull(in);
 
-        double[] results = new double[in.length];
+        double[] results = forwardResults(in.length);
         for(int i = 0; i < results.length; i++) {
             results[i] = (double) (1 / (1 + Math.min(1.0E19, Math.exp(-1 * in[i]))));
         }
@@ -43,11 +43,18 @@ public class Sigmoid extends Activation {
         return results;
     }
 
+    @Override
+    public void forwardInPlace(double[] values, int offset, int size) {
+        for(int i = offset; i < offset + size; i++) {
+            values[i] = (double) (1 / (1 + Math.min(1.0E19, Math.exp(-1 * values[i]))));
+        }
+    }
+
     @Override
     public double[] backward(double[] out) {
         AssertUtils.assertDoubleArrayNotNullAndLengthEqual(out, lastForward);
 
-        double[] results = new double[out.length];
+        double[] results = backwardResults(out.length);
         for(int i = 0; i < results.length; i++) {
             results[i] = out[i] * lastForward[i] * (1f - lastForward[i]);
         }
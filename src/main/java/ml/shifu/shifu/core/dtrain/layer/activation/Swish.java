@@ -29,16 +29,23 @@ public class Swish extends Activation {
     @Override
     public double[] forward(double[] input) {
         this.lastInput = input;
-        double[] result = new double[input.length];
+        double[] result = forwardResults(input.length);
         for(int i = 0; i < result.length; i++) {
             result[i] = (double) (input[i] * (1/ (Math.exp(-1* input[i]) +1 )));
         }
         return result;
     }
 
+    @Override
+    public void forwardInPlace(double[] values, int offset, int size) {
+        for(int i = offset; i < offset + size; i++) {
+            values[i] = (double) (values[i] * (1 / (Math.exp(-1 * values[i]) + 1)));
+        }
+    }
+
     @Override
     public double[] backward(double[] backInput) {
-        double[] result = new double[backInput.length];
+        double[] result = backwardResults(backInput.length);
         for(int i = 0; i < result.length; i++) {
             double sigmoid = (double) (1 / (1.0 + Math.exp(-lastInput[i])));
             result[i] = sigmoid + lastInput[i] * sigmoid * (1 - sigmoid);
@@ -23,16 +23,23 @@ package ml.shifu.shifu.core.dtrain.layer.activation;
 public class TanH extends Activation {
     @Override
     public double[] forward(double[] input) {
-        double[] outputs = new double[input.length];
+        double[] outputs = forwardResults(input.length);
         for(int i = 0; i < input.length; i++) {
             outputs[i] = (double) Math.tanh(input[i]);
         }
         return outputs;
     }
 
+    @Override
+    public void forwardInPlace(double[] values, int offset, int size) {
+        for(int i = offset; i < offset + size; i++) {
+            values[i] = (double) Math.tanh(values[i]);
+        }
+    }
+
     @Override
     public double[] backward(double[] backInput) {
-        double[] results = new double[backInput.length];
+        double[] results = backwardResults(backInput.length);
         for(int i = 0; i < results.length; i++) {
             results[i] = 1 - backInput[i] * backInput[i];
         }
@@ -25,6 +25,7 @@ import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.LR;
 import ml.shifu.shifu.core.dtrain.CommonConstants;
 import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.ParamsCodec;
 import ml.shifu.shifu.core.dtrain.RegulationLevel;
 import ml.shifu.shifu.core.dtrain.Weight;
 import ml.shifu.shifu.core.dtrain.earlystop.AbstractEarlyStopStrategy;
@@ -39,6 +40,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -63,6 +66,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * 
  * <p>
  * L1 and l2 regulations are supported by configuration: RegularizedConstant in model params of ModelConfig.json.
+ * 
+ * <p>
+ * If several trainers are set in {@link CommonConstants#SHIFU_TRAINER_IDS}, models of all trainers are updated in one
+ * job with their own grid search params, weights of all models are concatenated in master result.
  */
 public class LogisticRegressionMaster
         extends AbstractMasterComputable<LogisticRegressionParams, LogisticRegressionParams> {
@@ -70,24 +77,29 @@ public class LogisticRegressionMaster
     private static final Logger LOG = LoggerFactory.getLogger(LogisticRegressionMaster.class);
 
     /**
-     * This is the model weights in LR which will be updated each iteration TODO, if master is failed, how to recovery
+     * This is the model weights in LR which will be updated each iteration, weights of all models are concatenated.
      */
     private double[] weights;
 
     /**
-     * Learning rate configured by user in params
+     * Trainer ids of all models trained in current job
+     */
+    private int[] trainerIds;
+
+    /**
+     * Learning rate configured by user in params of each model
      */
-    private double learningRate = 1.0d;
+    private double[] learningRates;
 
     /**
-     * Regulation parameter for l1 or l2
+     * Regulation parameter for l1 or l2 of each model
      */
-    private double regularizedConstant = 0.0d;
+    private double[] regularizedConstants;
 
     /**
-     * To calculate weights according to last weights and accumulated gradients
+     * To calculate weights of each model according to last weights and accumulated gradients
      */
-    private Weight weightCalculator = null;
+    private Weight[] weightCalculators;
 
     /**
      * Model configuration loaded from configuration file.
@@ -100,9 +112,9 @@ public class LogisticRegressionMaster
     private List<ColumnConfig> columnConfigList;
 
     /**
-     * Propagation type for lr model setting: Q, B, R, C
+     * Propagation type for lr model setting of each model: Q, B, R, C
      */
-    private String propagation = "R";
+    private String[] propagations;
 
     /**
      * Whether some configurations are initialized
@@ -115,19 +127,30 @@ public class LogisticRegressionMaster
     private boolean isContinuousEnabled = false;
 
     /**
-     * The best validation error for error computing
+     * The best validation error of each model for error computing
+     */
+    private double[] bestValidationErrors;
+
+    /**
+     * Valid params specially for grid search of each model
+     */
+    private List<Map<String, Object>> validParams;
+
+    /**
+     * The early stop strategy of each model. If it is null, then early stop is disabled
      */
-    private double bestValidationError = Double.MAX_VALUE;
+    private AbstractEarlyStopStrategy[] earlyStopStrategies;
 
     /**
-     * Valid params specially for grid search
+     * Whether each model is stopped early, weights of such model are not updated any more.
      */
-    private Map<String, Object> validParams;
+    private boolean[] isModelHalted;
 
     /**
-     * The early stop strategy. If it is null, then early stop is disabled
+     * Wire encoding flags of {@link ParamsCodec} for weights, set by train param
+     * {@link CommonConstants#PARAMS_ENCODING}
      */
-    private AbstractEarlyStopStrategy earlyStopStrategy;
+    private int paramsEncoding = ParamsCodec.RAW;
 
     /**
      * The model set candidate variables or not
@@ -154,49 +177,73 @@ public class LogisticRegressionMaster
         this.modelFeatureSet = DTrainUtils.getModelFeatureSet(this.columnConfigList, this.hasCandidates);
         this.modelInputCnt = DTrainUtils.getFeatureInputsCnt(this.modelConfig, this.columnConfigList, this.modelFeatureSet);
 
-        int trainerId = Integer.valueOf(context.getProps().getProperty(CommonConstants.SHIFU_TRAINER_ID, "0"));
+        this.trainerIds = DTrainUtils.getTrainerIds(context.getProps());
+        int models = this.trainerIds.length;
+        this.learningRates = new double[models];
+        this.regularizedConstants = new double[models];
+        this.propagations = new String[models];
+        this.weightCalculators = new Weight[models];
+        this.earlyStopStrategies = new AbstractEarlyStopStrategy[models];
+        this.isModelHalted = new boolean[models];
+        this.bestValidationErrors = new double[models];
+        Arrays.fill(this.bestValidationErrors, Double.MAX_VALUE);
+        this.validParams = new ArrayList<Map<String, Object>>(models);
 
         GridSearch gs = new GridSearch(modelConfig.getTrain().getParams(),
                 modelConfig.getTrain().getGridConfigFileContent());
-        validParams = this.modelConfig.getTrain().getParams();
-        if(gs.hasHyperParam()) {
-            validParams = gs.getParams(trainerId);
-            LOG.info("Start grid search master with params: {}", validParams);
+        for(int m = 0; m < models; m++) {
+            Map<String, Object> params = this.modelConfig.getTrain().getParams();
+            if(gs.hasHyperParam()) {
+                params = gs.getParams(this.trainerIds[m]);
+                LOG.info("Start grid search master with params: {}", params);
+            }
+            this.validParams.add(params);
+            initModel(context, m, params);
         }
+        Object encoding = this.validParams.get(0).get(CommonConstants.PARAMS_ENCODING);
+        this.paramsEncoding = ParamsCodec.weightFlags(ParamsCodec.parseFlags(encoding == null ? null : encoding
+                .toString()));
+        if(models > 1) {
+            LOG.info("Train {} models of trainers {} in one job.", models, Arrays.toString(this.trainerIds));
+        }
+
+        this.isContinuousEnabled = Boolean.TRUE.toString()
+                .equalsIgnoreCase(context.getProps().getProperty(CommonConstants.CONTINUOUS_TRAINING));
+
+        // not initialized and not first iteration, should be fault tolerance, recover state in LogisticRegressionMaster
+        this.weights = recoverMasterState(context).getParameters();
+    }
 
-        this.learningRate = Double.valueOf(this.validParams.get(CommonConstants.LEARNING_RATE).toString());
-        Boolean enabledEarlyStop = DTrainUtils.getBoolean(validParams, CommonConstants.ENABLE_EARLY_STOP,
-                Boolean.FALSE);
+    private void initModel(MasterContext<LogisticRegressionParams, LogisticRegressionParams> context, int model,
+            Map<String, Object> params) {
+        this.learningRates[model] = Double.valueOf(params.get(CommonConstants.LEARNING_RATE).toString());
+        Boolean enabledEarlyStop = DTrainUtils.getBoolean(params, CommonConstants.ENABLE_EARLY_STOP, Boolean.FALSE);
         if(enabledEarlyStop) {
-            Double validTolerance = DTrainUtils.getDouble(validParams, CommonConstants.VALIDATION_TOLERANCE, null);
+            Double validTolerance = DTrainUtils.getDouble(params, CommonConstants.VALIDATION_TOLERANCE, null);
             if(validTolerance == null) {
                 LOG.info("Early Stop is enabled. use WindowEarlyStop");
                 // windowSize default 20, user should could adjust it
-                this.earlyStopStrategy = new WindowEarlyStop(context, this.modelConfig,
+                this.earlyStopStrategies[model] = new WindowEarlyStop(context, this.modelConfig,
                         DTrainUtils.getInt(context.getProps(), CommonConstants.SHIFU_TRAIN_EARLYSTOP_WINDOW_SIZE, 20));
             } else {
                 LOG.info("Early Stop is enabled. use ConvergeAndValiToleranceEarlyStop");
                 Double threshold = this.modelConfig.getTrain().getConvergenceThreshold();
-                this.earlyStopStrategy = new ConvergeAndValidToleranceEarlyStop(
+                this.earlyStopStrategies[model] = new ConvergeAndValidToleranceEarlyStop(
                         threshold == null ? Double.MIN_VALUE : threshold.doubleValue(), validTolerance);
             }
         }
 
-        Object pObject = validParams.get(CommonConstants.PROPAGATION);
-        this.propagation = pObject == null ? "R" : (String) pObject;
-
-        Object rconstant = validParams.get(CommonConstants.REGULARIZED_CONSTANT);
-        this.regularizedConstant = NumberFormatUtils.getDouble(rconstant == null ? "" : rconstant.toString(), 0d);
-
-        this.isContinuousEnabled = Boolean.TRUE.toString()
-                .equalsIgnoreCase(context.getProps().getProperty(CommonConstants.CONTINUOUS_TRAINING));
+        Object pObject = params.get(CommonConstants.PROPAGATION);
+        this.propagations[model] = pObject == null ? "R" : (String) pObject;
 
-        // not initialized and not first iteration, should be fault tolerance, recover state in LogisticRegressionMaster
-        this.weights = recoverMasterState(context).getParameters();
+        Object rconstant = params.get(CommonConstants.REGULARIZED_CONSTANT);
+        this.regularizedConstants[model] = NumberFormatUtils.getDouble(rconstant == null ? "" : rconstant.toString(),
+                0d);
     }
 
     private LogisticRegressionParams initModelParams(LR loadModel) {
         LogisticRegressionParams params = new LogisticRegressionParams();
+        params.setEncoding(this.paramsEncoding);
         params.setTrainError(0);
         params.setValidationError(0);
         // prevent null point
@@ -242,9 +289,11 @@ public class LogisticRegressionMaster
         }
 
         // 2. accumulate all gradients together
-        double[] gradients = new double[this.modelInputCnt + 1]; // append bias
-        double trainError = 0.0d, validationError = 0d;
-        double trainSize = 0, vldSize = 0, trainCount = 0, vldCount = 0;
+        int models = this.trainerIds.length;
+        double[] gradients = new double[models * (this.modelInputCnt + 1)]; // append bias
+        double[] trainErrors = new double[models], validationErrors = new double[models];
+        double[] trainSizes = new double[models];
+        double vldSize = 0, trainCount = 0, vldCount = 0;
         for(LogisticRegressionParams param: context.getWorkerResults()) {
             if(param == null) {
                 continue;
@@ -252,50 +301,99 @@ public class LogisticRegressionMaster
             for(int i = 0; i < gradients.length; i++) {
                 gradients[i] += param.getParameters()[i];
             }
-            trainError += param.getTrainError();
-            validationError += param.getValidationError();
-            trainSize += param.getTrainSize();
+            if(models > 1) {
+                for(int m = 0; m < models; m++) {
+                    trainErrors[m] += param.getTrainErrors()[m];
+                    validationErrors[m] += param.getValidationErrors()[m];
+                    trainSizes[m] += param.getTrainSizes()[m];
+                }
+            } else {
+                trainErrors[0] += param.getTrainError();
+                validationErrors[0] += param.getValidationError();
+                trainSizes[0] += param.getTrainSize();
+            }
             vldSize += param.getValidationSize();
             trainCount += param.getTrainCount();
             vldCount += param.getValidationCount();
         }
 
         // 3. compute to get latest model weights; on demand init Weight instance because of trainCount needed
-        initWeightOptimizerIfNeeded(trainSize);
         int currItr = context.getCurrentIteration();
-        this.weights = this.weightCalculator.calculateWeights(this.weights, gradients, (currItr - 1));
+        double[] finalTrainErrors = new double[models], finalTestErrors = new double[models];
+        for(int m = 0; m < models; m++) {
+            if(!this.isModelHalted[m]) {
+                updateModelWeights(m, gradients, trainSizes[m], currItr);
+            }
+            finalTrainErrors[m] = trainErrors[m] / trainSizes[m];
+            finalTestErrors[m] = validationErrors[m] / vldSize;
+            LOG.info("Iteration {} with train error {}, test error {}{}", currItr, finalTrainErrors[m],
+                    finalTestErrors[m], models > 1 ? " of trainer " + this.trainerIds[m] : "");
+        }
 
         // 4. return latest model weights to workers
-        double finalTrainError = trainError / trainSize;
-        double finalTestError = validationError / vldSize;
-        LOG.info("Iteration {} with train error {}, test error {}", currItr, finalTrainError, finalTestError);
-        return buildReturnParams(context, trainSize, vldSize, trainCount, vldCount, finalTrainError, finalTestError);
+        LogisticRegressionParams lrParams = buildReturnParams(context, trainSizes[0], vldSize, trainCount, vldCount,
+                finalTrainErrors, finalTestErrors);
+        if(models > 1) {
+            lrParams.setTrainErrors(finalTrainErrors);
+            lrParams.setValidationErrors(finalTestErrors);
+            lrParams.setTrainSizes(trainSizes);
+        }
+        return lrParams;
+    }
+
+    /**
+     * Update weights of one model by its gradients in accumulated gradients of all models.
+     */
+    private void updateModelWeights(int model, double[] gradients, double trainSize, int currItr) {
+        int width = this.modelInputCnt + 1;
+        int offset = model * width;
+        initWeightOptimizerIfNeeded(model, trainSize);
+        double[] modelWeights = Arrays.copyOfRange(this.weights, offset, offset + width);
+        double[] modelGradients = Arrays.copyOfRange(gradients, offset, offset + width);
+        modelWeights = this.weightCalculators[model].calculateWeights(modelWeights, modelGradients, (currItr - 1));
+        System.arraycopy(modelWeights, 0, this.weights, offset, width);
     }
 
     private LogisticRegressionParams buildReturnParams(
             MasterContext<LogisticRegressionParams, LogisticRegressionParams> context, double trainSize,
-            double validationSize, double trainCount, double validationCount, double finalTrainError,
-            double finalTestError) {
-        LogisticRegressionParams lrParams = new LogisticRegressionParams(weights, finalTrainError, finalTestError,
-                trainSize, validationSize, trainCount, validationCount);
-
-        if(finalTestError < this.bestValidationError) {
-            this.bestValidationError = finalTestError;
-        }
+            double validationSize, double trainCount, double validationCount, double[] finalTrainErrors,
+            double[] finalTestErrors) {
+        LogisticRegressionParams lrParams = new LogisticRegressionParams(weights, finalTrainErrors[0],
+                finalTestErrors[0], trainSize, validationSize, trainCount, validationCount);
+        lrParams.setEncoding(this.paramsEncoding);
+
+        int width = this.modelInputCnt + 1;
+        boolean isAllHalted = true;
+        for(int m = 0; m < this.trainerIds.length; m++) {
+            if(finalTestErrors[m] < this.bestValidationErrors[m]) {
+                this.bestValidationErrors[m] = finalTestErrors[m];
+            }
 
-        if(earlyStopStrategy != null) {
-            boolean isToStopEarly = earlyStopStrategy.shouldEarlyStop(context.getCurrentIteration(), weights,
-                    finalTrainError, finalTestError);
-            if(isToStopEarly) {
-                lrParams.setHalt(true);
+            if(!this.isModelHalted[m] && this.earlyStopStrategies[m] != null) {
+                double[] modelWeights = Arrays.copyOfRange(this.weights, m * width, (m + 1) * width);
+                boolean isToStopEarly = this.earlyStopStrategies[m].shouldEarlyStop(context.getCurrentIteration(),
+                        modelWeights, finalTrainErrors[m], finalTestErrors[m]);
+                if(isToStopEarly) {
+                    LOG.info("Model of trainer {} is stopped early in iteration {}.", this.trainerIds[m],
+                            context.getCurrentIteration());
+                    this.isModelHalted[m] = true;
+                }
             }
+            isAllHalted &= this.isModelHalted[m];
         }
+        if(isAllHalted) {
+            lrParams.setHalt(true);
+        }
+        // master result is checkpoint of master, carry state which cannot be recomputed from weights
+        lrParams.setHaltedModels(this.isModelHalted.clone());
+        lrParams.setBestValidationErrors(this.bestValidationErrors.clone());
         return lrParams;
     }
 
     private LogisticRegressionParams initOrContinueTrain(
             MasterContext<LogisticRegressionParams, LogisticRegressionParams> context) {
-        if(this.isContinuousEnabled) {
+        // continuous training is only for one model in one job
+        if(this.isContinuousEnabled && this.trainerIds.length == 1) {
             return initOrRecoverParams(context);
         } else {
             return initWeights();
@@ -309,6 +407,7 @@ public class LogisticRegressionMaster
             if(lastMasterResult != null && lastMasterResult.getParameters() != null) {
                 // recover state in current master computable and return to workers
                 this.weights = lastMasterResult.getParameters();
+                recoverModelState(lastMasterResult);
                 return lastMasterResult;
             } else {
                 // no weights, restarted from the very beginning, this may not happen
@@ -318,21 +417,41 @@ public class LogisticRegressionMaster
         return initWeights();
     }
 
-    private void initWeightOptimizerIfNeeded(double trainSize) {
-        if(this.weightCalculator == null) {
-            this.weightCalculator = new Weight(weights.length, trainSize, learningRate, this.propagation,
-                    this.regularizedConstant, RegulationLevel.to(this.validParams.get(CommonConstants.REG_LEVEL_KEY)));
+    /**
+     * Recover halted flags and best validation errors of models, no state is recovered if last master result is from
+     * the first iteration or of different models.
+     */
+    private void recoverModelState(LogisticRegressionParams lastMasterResult) {
+        boolean[] haltedModels = lastMasterResult.getHaltedModels();
+        if(haltedModels != null && haltedModels.length == this.isModelHalted.length) {
+            System.arraycopy(haltedModels, 0, this.isModelHalted, 0, haltedModels.length);
+        }
+        double[] bestValidationErrors = lastMasterResult.getBestValidationErrors();
+        if(bestValidationErrors != null && bestValidationErrors.length == this.bestValidationErrors.length) {
+            System.arraycopy(bestValidationErrors, 0, this.bestValidationErrors, 0, bestValidationErrors.length);
+        }
+        LOG.info("Recovered master state with halted models {} and best validation errors {}.",
+                Arrays.toString(this.isModelHalted), Arrays.toString(this.bestValidationErrors));
+    }
+
+    private void initWeightOptimizerIfNeeded(int model, double trainSize) {
+        if(this.weightCalculators[model] == null) {
+            this.weightCalculators[model] = new Weight(this.modelInputCnt + 1, trainSize, this.learningRates[model],
+                    this.propagations[model], this.regularizedConstants[model],
+                    RegulationLevel.to(this.validParams.get(model).get(CommonConstants.REG_LEVEL_KEY)));
         } else {
-            this.weightCalculator.setNumTrainSize(trainSize);
+            this.weightCalculators[model].setNumTrainSize(trainSize);
         }
     }
 
     private LogisticRegressionParams initWeights() {
-        weights = new double[this.modelInputCnt + 1];
+        weights = new double[this.trainerIds.length * (this.modelInputCnt + 1)];
         for(int i = 0; i < weights.length; i++) {
             weights[i] = nextDouble(-1, 1);
         }
-        return new LogisticRegressionParams(weights);
+        LogisticRegressionParams params = new LogisticRegressionParams(weights);
+        params.setEncoding(this.paramsEncoding);
+        return params;
     }
 
     private void loadConfigFiles(final Properties props) {
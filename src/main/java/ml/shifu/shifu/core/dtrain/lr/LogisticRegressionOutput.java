@@ -39,6 +39,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * {@link LogisticRegressionOutput} is used to write the final model output to file system.
+ * 
+ * <p>
+ * If several models are trained in one job, weights of each model are sliced from master result and written to its
+ * own output in {@link CommonConstants#SHIFU_TRAINER_OUTPUTS}.
  */
 public class LogisticRegressionOutput
         extends BasicMasterInterceptor<LogisticRegressionParams, LogisticRegressionParams> {
@@ -49,6 +53,21 @@ public class LogisticRegressionOutput
 
     private String trainerId;
 
+    /**
+     * Trainer ids of all models trained in current job
+     */
+    private int[] trainerIds;
+
+    /**
+     * Model output path of each trainer
+     */
+    private String[] outputs;
+
+    /**
+     * Validation error output path of each trainer, only for grid search or k-fold
+     */
+    private String[] valErrOutputs;
+
     private String tmpModelsFolder;
 
     /**
@@ -67,14 +86,14 @@ public class LogisticRegressionOutput
     private AtomicBoolean isInit = new AtomicBoolean(false);
 
     /**
-     * The minimum test error during model training
+     * The minimum test error of each model during model training
      */
-    private double minTestError = Double.MAX_VALUE;
+    private double[] minTestErrors;
 
     /**
-     * The best weights that we meet
+     * The best weights of each model that we meet
      */
-    private double[] optimizedWeights = null;
+    private double[][] optimizedWeights;
 
     /**
      * Progress output stream which is used to write progress to that HDFS file. Should be closed in
@@ -115,18 +134,19 @@ public class LogisticRegressionOutput
             minimumEpochs = (int) (modelConfig.getNumTrainEpochs() * minimumStepsRatio);
         }
 
-        if(context.getCurrentIteration() < minimumEpochs) {
-            this.optimizedWeights = context.getMasterResult().getParameters();
-        } else {
-            double currentError = ((modelConfig.getTrain().getValidSetRate() < EPSILON)
-                    ? context.getMasterResult().getTrainError()
-                    : context.getMasterResult().getValidationError());
-            if(currentError < this.minTestError) {
-                this.minTestError = currentError;
-                this.optimizedWeights = Arrays.copyOf(context.getMasterResult().getParameters(),
-                        context.getMasterResult().getParameters().length);
-                LOG.info("change minTestError to {}, and update best weights at {}-th epoch.", this.minTestError,
-                        context.getCurrentIteration());
+        for(int m = 0; m < this.trainerIds.length; m++) {
+            if(context.getCurrentIteration() < minimumEpochs) {
+                this.optimizedWeights[m] = getModelWeights(context.getMasterResult().getParameters(), m);
+            } else {
+                double currentError = ((modelConfig.getTrain().getValidSetRate() < EPSILON)
+                        ? getTrainError(context.getMasterResult(), m)
+                        : getValidationError(context.getMasterResult(), m));
+                if(currentError < this.minTestErrors[m]) {
+                    this.minTestErrors[m] = currentError;
+                    this.optimizedWeights[m] = getModelWeights(context.getMasterResult().getParameters(), m);
+                    LOG.info("change minTestError of trainer {} to {}, and update best weights at {}-th epoch.",
+                            this.trainerIds[m], this.minTestErrors[m], context.getCurrentIteration());
+                }
             }
         }
 
@@ -134,6 +154,7 @@ public class LogisticRegressionOutput
         final int tmpModelFactor = DTrainUtils.tmpModelFactor(context.getTotalIteration());
         final int currentIteration = context.getCurrentIteration();
         final double[] parameters = context.getMasterResult().getParameters();
+        final double[][] bestWeights = Arrays.copyOf(this.optimizedWeights, this.optimizedWeights.length);
         final int totalIteration = context.getTotalIteration();
         final boolean isHalt = context.getMasterResult().isHalt();
         // currentIteration - 1 because the first iteration is used for sync master models to workers
@@ -141,18 +162,21 @@ public class LogisticRegressionOutput
             Thread tmpNNThread = new Thread(new Runnable() {
                 @Override
                 public void run() {
-                    saveTmpModelToHDFS(currentIteration - 1, parameters);
-                    // save model results for continue model training, if current job is failed, then next running
-                    // we can start from this point to save time.
-                    // another case for master recovery, if master is failed, read such checkpoint model
-                    Path out = new Path(context.getProps().getProperty(CommonConstants.GUAGUA_OUTPUT));
-
-                    // if current iteration is the last iteration, or it is halted by early stop condition, no
-                    // need to save checkpoint model here as it is replicated with postApplication.
-                    // There is issue here if saving the same model in this thread and another thread in
-                    // postApplication, sometimes this conflict will cause model writing failed.
-                    if(!isHalt && currentIteration != totalIteration) {
-                        writeModelWeightsToFileSystem(optimizedWeights, out);
+                    for(int m = 0; m < trainerIds.length; m++) {
+                        saveTmpModelToHDFS(String.valueOf(trainerIds[m]), currentIteration - 1,
+                                getModelWeights(parameters, m));
+                        // save model results for continue model training, if current job is failed, then next
+                        // running we can start from this point to save time.
+                        // another case for master recovery, if master is failed, read such checkpoint model
+                        Path out = new Path(outputs[m]);
+
+                        // if current iteration is the last iteration, or it is halted by early stop condition, no
+                        // need to save checkpoint model here as it is replicated with postApplication.
+                        // There is issue here if saving the same model in this thread and another thread in
+                        // postApplication, sometimes this conflict will cause model writing failed.
+                        if(!isHalt && currentIteration != totalIteration) {
+                            writeModelWeightsToFileSystem(bestWeights[m], out);
+                        }
                     }
                 }
             }, "saveTmpModelToHDFS thread");
@@ -169,13 +193,17 @@ public class LogisticRegressionOutput
             // first iteration is used for training preparation
             return;
         }
-        String progress = new StringBuilder(200).append("    Trainer ").append(this.trainerId).append(" Epoch #")
-                .append(currentIteration - 1).append(" Training Error:")
-                .append(context.getMasterResult().getTrainError()).append(" Validation Error:")
-                .append(context.getMasterResult().getValidationError()).append("\n").toString();
+        StringBuilder progress = new StringBuilder(200);
+        for(int m = 0; m < this.trainerIds.length; m++) {
+            String trainer = this.trainerIds.length == 1 ? this.trainerId : String.valueOf(this.trainerIds[m]);
+            progress.append("    Trainer ").append(trainer).append(" Epoch #").append(currentIteration - 1)
+                    .append(" Training Error:").append(getTrainError(context.getMasterResult(), m))
+                    .append(" Validation Error:").append(getValidationError(context.getMasterResult(), m))
+                    .append("\n");
+        }
         try {
             LOG.debug("Writing progress results to {} {}", context.getCurrentIteration(), progress.toString());
-            this.progressOutput.write(progress.getBytes("UTF-8"));
+            this.progressOutput.write(progress.toString().getBytes("UTF-8"));
             this.progressOutput.flush();
             this.progressOutput.hflush();
         } catch (IOException e) {
@@ -192,15 +220,17 @@ public class LogisticRegressionOutput
             return;
         }
 
-        if(optimizedWeights == null) {
-            optimizedWeights = context.getMasterResult().getParameters();
-        }
+        for(int m = 0; m < this.trainerIds.length; m++) {
+            if(optimizedWeights[m] == null) {
+                optimizedWeights[m] = getModelWeights(context.getMasterResult().getParameters(), m);
+            }
 
-        Path out = new Path(context.getProps().getProperty(CommonConstants.GUAGUA_OUTPUT));
-        writeModelWeightsToFileSystem(optimizedWeights, out);
-        if(this.isKFoldCV || this.isGsMode) {
-            Path valErrOutput = new Path(context.getProps().getProperty(CommonConstants.GS_VALIDATION_ERROR));
-            writeValErrorToFileSystem(context.getMasterResult().getValidationError(), valErrOutput);
+            Path out = new Path(this.outputs[m]);
+            writeModelWeightsToFileSystem(optimizedWeights[m], out);
+            if(this.isKFoldCV || this.isGsMode) {
+                Path valErrOutput = new Path(this.valErrOutputs[m]);
+                writeValErrorToFileSystem(getValidationError(context.getMasterResult(), m), valErrOutput);
+            }
         }
         IOUtils.closeStream(this.progressOutput);
     }
@@ -221,12 +251,29 @@ public class LogisticRegressionOutput
     /**
      * Save tmp nn model to HDFS.
      */
-    private void saveTmpModelToHDFS(int iteration, double[] weights) {
-        Path out = new Path(DTrainUtils.getTmpModelName(this.tmpModelsFolder, this.trainerId, iteration,
+    private void saveTmpModelToHDFS(String trainer, int iteration, double[] weights) {
+        Path out = new Path(DTrainUtils.getTmpModelName(this.tmpModelsFolder, trainer, iteration,
                 modelConfig.getTrain().getAlgorithm().toLowerCase()));
         writeModelWeightsToFileSystem(weights, out);
     }
 
+    /**
+     * Weights of one model sliced from concatenated weights of all models.
+     */
+    private double[] getModelWeights(double[] parameters, int model) {
+        int width = parameters.length / this.trainerIds.length;
+        return Arrays.copyOfRange(parameters, model * width, (model + 1) * width);
+    }
+
+    private double getTrainError(LogisticRegressionParams params, int model) {
+        return params.getTrainErrors() == null ? params.getTrainError() : params.getTrainErrors()[model];
+    }
+
+    private double getValidationError(LogisticRegressionParams params, int model) {
+        return params.getValidationErrors() == null ? params.getValidationError()
+                : params.getValidationErrors()[model];
+    }
+
     private void init(MasterContext<LogisticRegressionParams, LogisticRegressionParams> context) {
         this.isDry = Boolean.TRUE.toString().equals(context.getProps().getProperty(CommonConstants.SHIFU_DRY_DTRAIN));
 
@@ -237,6 +284,19 @@ public class LogisticRegressionOutput
             loadConfigFiles(context.getProps());
             this.trainerId = context.getProps().getProperty(CommonConstants.SHIFU_TRAINER_ID);
             this.tmpModelsFolder = context.getProps().getProperty(CommonConstants.SHIFU_TMP_MODELS_FOLDER);
+            this.trainerIds = DTrainUtils.getTrainerIds(context.getProps());
+            this.optimizedWeights = new double[this.trainerIds.length][];
+            this.minTestErrors = new double[this.trainerIds.length];
+            Arrays.fill(this.minTestErrors, Double.MAX_VALUE);
+            if(this.trainerIds.length > 1) {
+                this.outputs = context.getProps().getProperty(CommonConstants.SHIFU_TRAINER_OUTPUTS).split(",");
+                String valErrors = context.getProps().getProperty(CommonConstants.SHIFU_TRAINER_VALIDATION_ERRORS);
+                this.valErrOutputs = valErrors == null ? null : valErrors.split(",");
+            } else {
+                this.outputs = new String[] { context.getProps().getProperty(CommonConstants.GUAGUA_OUTPUT) };
+                this.valErrOutputs = new String[] {
+                        context.getProps().getProperty(CommonConstants.GS_VALIDATION_ERROR) };
+            }
             Integer kCrossValidation = this.modelConfig.getTrain().getNumKFold();
             if(kCrossValidation != null && kCrossValidation > 0) {
                 isKFoldCV = true;
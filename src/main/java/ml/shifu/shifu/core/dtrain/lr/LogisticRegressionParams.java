@@ -21,6 +21,7 @@ import java.io.IOException;
 
 import ml.shifu.guagua.io.Combinable;
 import ml.shifu.guagua.io.HaltBytable;
+import ml.shifu.shifu.core.dtrain.ParamsCodec;
 
 /**
  * A model class to store logistic regression weight on first iteration by using {@link #parameters}, while in other
@@ -33,6 +34,18 @@ import ml.shifu.guagua.io.HaltBytable;
  * <p>
  * Workers are responsible to compute local accumulated gradients and send to master while master accumulates all
  * gradients together to build a global model.
+ * 
+ * <p>
+ * {@link #parameters} are written in {@link #encoding} flags of {@link ParamsCodec}.
+ * 
+ * <p>
+ * If several models are trained in one job, {@link #parameters} are concatenated by parameters of all models and errors
+ * and train sizes of each model are in {@link #trainErrors}, {@link #validationErrors} and {@link #trainSizes}, while
+ * scalar errors and sizes are of the first model.
+ * 
+ * <p>
+ * Master results also carry {@link #haltedModels} and {@link #bestValidationErrors} to recover master state from
+ * checkpoint in fail over.
  */
 public class LogisticRegressionParams extends HaltBytable implements Combinable<LogisticRegressionParams> {
 
@@ -71,6 +84,36 @@ public class LogisticRegressionParams extends HaltBytable implements Combinable<
      */
     private double validationCount;
 
+    /**
+     * Encoding flags of {@link ParamsCodec} to write parameters
+     */
+    private int encoding = ParamsCodec.RAW;
+
+    /**
+     * Train errors of each model, null if only one model in the job
+     */
+    private double[] trainErrors;
+
+    /**
+     * Validation errors of each model, null if only one model in the job
+     */
+    private double[] validationErrors;
+
+    /**
+     * Weighted training record count of each model, null if only one model in the job
+     */
+    private double[] trainSizes;
+
+    /**
+     * If each model is halted by early stop, only set in master results
+     */
+    private boolean[] haltedModels;
+
+    /**
+     * Best validation error of each model, only set in master results
+     */
+    private double[] bestValidationErrors;
+
     public LogisticRegressionParams() {
     }
 
@@ -125,41 +168,70 @@ public class LogisticRegressionParams extends HaltBytable implements Combinable<
         for(int i = 0; i < this.parameters.length; i++) {
             this.parameters[i] += from.parameters[i];
         }
+        this.trainErrors = plus(this.trainErrors, from.trainErrors);
+        this.validationErrors = plus(this.validationErrors, from.validationErrors);
+        this.trainSizes = plus(this.trainSizes, from.trainSizes);
         return this;
     }
 
+    private static double[] plus(double[] to, double[] from) {
+        if(to == null || from == null) {
+            return to == null ? from : to;
+        }
+        for(int i = 0; i < to.length; i++) {
+            to[i] += from[i];
+        }
+        return to;
+    }
+
     @Override
     public void doWrite(DataOutput out) throws IOException {
-        if(parameters == null) {
-            out.writeInt(0);
-        } else {
-            out.writeInt(this.parameters.length);
-            for(int i = 0; i < this.parameters.length; i++) {
-                out.writeDouble(this.parameters[i]);
-            }
-        }
+        out.writeByte(this.encoding);
+        ParamsCodec.write(out, this.parameters, this.encoding);
         out.writeDouble(this.trainError);
         out.writeDouble(this.validationError);
         out.writeDouble(this.trainSize);
         out.writeDouble(this.validationSize);
         out.writeDouble(this.trainCount);
         out.writeDouble(this.validationCount);
-
+        ParamsCodec.write(out, this.trainErrors, ParamsCodec.RAW);
+        ParamsCodec.write(out, this.validationErrors, ParamsCodec.RAW);
+        ParamsCodec.write(out, this.trainSizes, ParamsCodec.RAW);
+        if(this.haltedModels == null) {
+            out.writeInt(0);
+        } else {
+            out.writeInt(this.haltedModels.length);
+            for(boolean isHalted: this.haltedModels) {
+                out.writeBoolean(isHalted);
+            }
+        }
+        ParamsCodec.write(out, this.bestValidationErrors, ParamsCodec.RAW);
     }
 
     @Override
     public void doReadFields(DataInput in) throws IOException {
-        int length = in.readInt();
-        this.parameters = new double[length];
-        for(int i = 0; i < length; i++) {
-            this.parameters[i] = in.readDouble();
-        }
+        this.encoding = in.readByte();
+        this.parameters = ParamsCodec.read(in, this.encoding);
         this.trainError = in.readDouble();
         this.validationError = in.readDouble();
         this.trainSize = in.readDouble();
         this.validationSize = in.readDouble();
         this.trainCount = in.readDouble();
         this.validationCount = in.readDouble();
+        this.trainErrors = readModelStats(in);
+        this.validationErrors = readModelStats(in);
+        this.trainSizes = readModelStats(in);
+        int models = in.readInt();
+        this.haltedModels = models == 0 ? null : new boolean[models];
+        for(int i = 0; i < models; i++) {
+            this.haltedModels[i] = in.readBoolean();
+        }
+        this.bestValidationErrors = readModelStats(in);
+    }
+
+    private static double[] readModelStats(DataInput in) throws IOException {
+        double[] stats = ParamsCodec.read(in, ParamsCodec.RAW);
+        return stats.length == 0 ? null : stats;
     }
 
     /**
@@ -237,4 +309,94 @@ public class LogisticRegressionParams extends HaltBytable implements Combinable<
         this.validationCount = validationCount;
     }
 
+    /**
+     * @return the trainErrors
+     */
+    public double[] getTrainErrors() {
+        return trainErrors;
+    }
+
+    /**
+     * @param trainErrors
+     *            the trainErrors to set
+     */
+    public void setTrainErrors(double[] trainErrors) {
+        this.trainErrors = trainErrors;
+    }
+
+    /**
+     * @return the validationErrors
+     */
+    public double[] getValidationErrors() {
+        return validationErrors;
+    }
+
+    /**
+     * @param validationErrors
+     *            the validationErrors to set
+     */
+    public void setValidationErrors(double[] validationErrors) {
+        this.validationErrors = validationErrors;
+    }
+
+    /**
+     * @return the trainSizes
+     */
+    public double[] getTrainSizes() {
+        return trainSizes;
+    }
+
+    /**
+     * @param trainSizes
+     *            the trainSizes to set
+     */
+    public void setTrainSizes(double[] trainSizes) {
+        this.trainSizes = trainSizes;
+    }
+
+    /**
+     * @return the haltedModels
+     */
+    public boolean[] getHaltedModels() {
+        return haltedModels;
+    }
+
+    /**
+     * @param haltedModels
+     *            the haltedModels to set
+     */
+    public void setHaltedModels(boolean[] haltedModels) {
+        this.haltedModels = haltedModels;
+    }
+
+    /**
+     * @return the bestValidationErrors
+     */
+    public double[] getBestValidationErrors() {
+        return bestValidationErrors;
+    }
+
+    /**
+     * @param bestValidationErrors
+     *            the bestValidationErrors to set
+     */
+    public void setBestValidationErrors(double[] bestValidationErrors) {
+        this.bestValidationErrors = bestValidationErrors;
+    }
+
+    /**
+     * @return the encoding
+     */
+    public int getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * @param encoding
+     *            the encoding flags of {@link ParamsCodec} to set
+     */
+    public void setEncoding(int encoding) {
+        this.encoding = encoding;
+    }
+
 }
@@ -15,8 +15,6 @@
  */
 package ml.shifu.shifu.core.dtrain.lr;
 
-import com.google.common.base.Splitter;
-import com.google.common.collect.Lists;
 import ml.shifu.guagua.ComputableMonitor;
 import ml.shifu.guagua.hadoop.io.GuaguaLineRecordReader;
 import ml.shifu.guagua.hadoop.io.GuaguaWritableAdapter;
@@ -25,12 +23,19 @@ import ml.shifu.guagua.io.GuaguaFileSplit;
 import ml.shifu.guagua.util.BytableMemoryDiskList;
 import ml.shifu.guagua.worker.AbstractWorkerComputable;
 import ml.shifu.guagua.worker.WorkerContext;
+import ml.shifu.guagua.worker.WorkerContext.WorkerCompletionCallBack;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.ModelNormalizeConf;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.dtrain.CommonConstants;
 import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.NormFields;
+import ml.shifu.shifu.core.dtrain.ParamsCodec;
+import ml.shifu.shifu.core.dtrain.gs.GridSearch;
+import ml.shifu.shifu.guagua.GuaguaNormBinaryRecordReader;
+import ml.shifu.shifu.guagua.GuaguaNormCacheRecordReader;
+import ml.shifu.shifu.guagua.GuaguaNormRecordReader;
 import ml.shifu.shifu.util.CommonUtils;
 import ml.shifu.shifu.util.Constants;
 import ml.shifu.shifu.util.MapReduceUtils;
@@ -47,6 +52,12 @@ import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -66,6 +77,12 @@ import java.util.concurrent.TimeUnit;
  * 
  * <p>
  * L1 and l2 regulations are supported by configuration: RegularizedConstant in model params of ModelConfig.json.
+ * 
+ * <p>
+ * Records are appended to shards in round robin, one shard per thread of 'workerThreadCount' in train config.
+ * Gradients of each shard are accumulated by one thread in its own {@link GradientShard} and summed after all threads
+ * are done. If 'MiniBatchs' is set in train params, each iteration only computes gradients of one batch of records in
+ * each shard.
  */
 @ComputableMonitor(timeUnit = TimeUnit.SECONDS, duration = 3600)
 public class LogisticRegressionWorker extends
@@ -85,14 +102,39 @@ public class LogisticRegressionWorker extends
     private int count;
 
     /**
-     * Testing data set.
+     * Testing data set, records are appended to shards in round robin.
      */
-    private BytableMemoryDiskList<Data> validationData;
+    private List<BytableMemoryDiskList<Data>> validationData;
 
     /**
-     * Training data set.
+     * Training data set, records are appended to shards in round robin.
      */
-    private BytableMemoryDiskList<Data> trainingData;
+    private List<BytableMemoryDiskList<Data>> trainingData;
+
+    /**
+     * Record count of training data set.
+     */
+    private long trainingCount;
+
+    /**
+     * Record count of testing data set.
+     */
+    private long validationCount;
+
+    /**
+     * Gradient accumulators of each shard of training and testing data set.
+     */
+    private GradientShard[] gradientShards;
+
+    /**
+     * Thread pool to compute shards in parallel, null if only one shard.
+     */
+    private ExecutorService threadPool;
+
+    /**
+     * Number of mini batches in one epoch, set by train param 'MiniBatchs', 1 means full batch.
+     */
+    private int batchs = 1;
 
     /**
      * Local logistic regression model.
@@ -110,9 +152,36 @@ public class LogisticRegressionWorker extends
     private List<ColumnConfig> columnConfigList;
 
     /**
-     * A splitter to split data with specified delimiter.
+     * The decoded delimiter to split normalized data.
+     */
+    private String normDelimiter;
+
+    /**
+     * The delimiter of normalization data set
+     */
+    private String delimiter;
+
+    /**
+     * Folder of parsed normalization data cache, null if cache is not enabled
      */
-    private Splitter splitter;
+    private String dataCacheDir;
+
+    /**
+     * Config key of parsed normalization data cache
+     */
+    private String dataCacheKey;
+
+    /**
+     * If normalized data is in binary format
+     */
+    private boolean isBinaryNorm;
+
+    /**
+     * Reader of parsed fields of current split if normalized data is binary or normalization data cache is enabled
+     */
+    private GuaguaNormRecordReader normReader;
+
+    private final NormFields normFields = new NormFields();
 
     /**
      * PoissonDistribution which is used for poisson sampling for bagging with replacement.
@@ -189,6 +258,11 @@ public class LogisticRegressionWorker extends
      */
     private Integer trainerId;
 
+    /**
+     * Trainer ids of all models trained in current job, bagging sampling is done for each model separately.
+     */
+    private int[] trainerIds;
+
     /**
      * If k-fold cross validation
      */
@@ -234,13 +308,28 @@ public class LogisticRegressionWorker extends
      */
     protected boolean isWeightColumnMeta = false;
 
+    /**
+     * Wire encoding flags of {@link ParamsCodec} for gradients, set by train param
+     * {@link CommonConstants#PARAMS_ENCODING}
+     */
+    private int paramsEncoding = ParamsCodec.RAW;
+
     protected boolean isUpSampleEnabled() {
         return this.upSampleRng != null;
     }
 
     @Override
     public void initRecordReader(GuaguaFileSplit fileSplit) throws IOException {
-        this.setRecordReader(new GuaguaLineRecordReader(fileSplit));
+        if(this.isBinaryNorm) {
+            this.normReader = new GuaguaNormBinaryRecordReader(fileSplit);
+            this.setRecordReader(this.normReader);
+        } else if(StringUtils.isBlank(this.dataCacheDir)) {
+            this.setRecordReader(new GuaguaLineRecordReader(fileSplit));
+        } else {
+            this.normReader = new GuaguaNormCacheRecordReader(fileSplit, this.dataCacheDir, this.delimiter,
+                    this.dataCacheKey);
+            this.setRecordReader(this.normReader);
+        }
     }
 
     @Override
@@ -255,6 +344,25 @@ public class LogisticRegressionWorker extends
         this.isSpecificValidation = StringUtils.isNotBlank(modelConfig.getValidationDataSetRawPath());
         this.isStratifiedSampling = this.modelConfig.getTrain().getStratifiedSample();
         this.trainerId = Integer.valueOf(context.getProps().getProperty(CommonConstants.SHIFU_TRAINER_ID, "0"));
+        this.trainerIds = DTrainUtils.getTrainerIds(context.getProps());
+
+        GridSearch gs = new GridSearch(modelConfig.getTrain().getParams(),
+                modelConfig.getTrain().getGridConfigFileContent());
+        Map<String, Object> validParams = gs.hasHyperParam() ? gs.getParams(this.trainerId)
+                : this.modelConfig.getTrain().getParams();
+        Object encoding = validParams.get(CommonConstants.PARAMS_ENCODING);
+        this.paramsEncoding = ParamsCodec.parseFlags(encoding == null ? null : encoding.toString());
+        Object miniBatchO = validParams.get(CommonConstants.MINI_BATCH);
+        if(miniBatchO != null) {
+            int miniBatchs;
+            try {
+                miniBatchs = Integer.parseInt(miniBatchO.toString());
+            } catch (Exception e) {
+                miniBatchs = 1;
+            }
+            this.batchs = Math.max(miniBatchs, 1);
+            LOG.info("'miniBatchs' in worker is : {}, batchs is {} ", miniBatchs, this.batchs);
+        }
 
         Integer kCrossValidation = this.modelConfig.getTrain().getNumKFold();
         this.isKFoldCV = (kCrossValidation != null && kCrossValidation > 0);
@@ -277,33 +385,62 @@ public class LogisticRegressionWorker extends
         double vldRate = this.modelConfig.getValidSetRate();
         String tmpFolder = context.getProps().getProperty("guagua.data.tmpfolder", "tmp");
 
-        if(StringUtils.isNotBlank(modelConfig.getValidationDataSetRawPath())) {
-            // fixed 0.6 and 0.4 of max memory for trainingData and validationData
-            this.trainingData = new BytableMemoryDiskList<Data>(
-                    (long) (Runtime.getRuntime().maxMemory() * memoryFraction * 0.6),
-                    tmpFolder + File.separator + "train-" + System.currentTimeMillis(), Data.class.getName());
-            this.validationData = new BytableMemoryDiskList<Data>(
-                    (long) (Runtime.getRuntime().maxMemory() * memoryFraction * 0.4),
-                    tmpFolder + File.separator + "test-" + System.currentTimeMillis(), Data.class.getName());
-        } else {
-            this.trainingData = new BytableMemoryDiskList<Data>(
-                    (long) (Runtime.getRuntime().maxMemory() * memoryFraction * (1 - vldRate)),
-                    tmpFolder + File.separator + "train-" + System.currentTimeMillis(), Data.class.getName());
-            this.validationData = new BytableMemoryDiskList<Data>(
-                    (long) (Runtime.getRuntime().maxMemory() * memoryFraction * vldRate),
-                    tmpFolder + File.separator + "test-" + System.currentTimeMillis(), Data.class.getName());
+        // fixed 0.6 and 0.4 of max memory for trainingData and validationData if validation data set is specified
+        double trainRate = StringUtils.isNotBlank(modelConfig.getValidationDataSetRawPath()) ? 0.6d : (1 - vldRate);
+        double testRate = StringUtils.isNotBlank(modelConfig.getValidationDataSetRawPath()) ? 0.4d : vldRate;
+        int shards = Math.max(this.modelConfig.getTrain().getWorkerThreadCount(), 1);
+        long time = System.currentTimeMillis();
+        this.trainingData = new ArrayList<BytableMemoryDiskList<Data>>(shards);
+        this.validationData = new ArrayList<BytableMemoryDiskList<Data>>(shards);
+        this.gradientShards = new GradientShard[shards];
+        for(int i = 0; i < shards; i++) {
+            this.trainingData.add(new BytableMemoryDiskList<Data>(
+                    (long) (Runtime.getRuntime().maxMemory() * memoryFraction * trainRate / shards),
+                    tmpFolder + File.separator + "train-" + time + "-" + i, Data.class.getName()));
+            this.validationData.add(new BytableMemoryDiskList<Data>(
+                    (long) (Runtime.getRuntime().maxMemory() * memoryFraction * testRate / shards),
+                    tmpFolder + File.separator + "test-" + time + "-" + i, Data.class.getName()));
+            this.gradientShards[i] = new GradientShard(this.trainingData.get(i), this.validationData.get(i),
+                    this.trainerIds.length, this.modelInputCnt);
+        }
+        LOG.info("Gradient computing thread count is {}.", shards);
+        if(shards > 1) {
+            this.threadPool = Executors.newFixedThreadPool(shards);
+            context.addCompletionCallBack(
+                    new WorkerCompletionCallBack<LogisticRegressionParams, LogisticRegressionParams>() {
+                        @Override
+                        public void callback(
+                                WorkerContext<LogisticRegressionParams, LogisticRegressionParams> context) {
+                            LogisticRegressionWorker.this.threadPool.shutdownNow();
+                            try {
+                                LogisticRegressionWorker.this.threadPool.awaitTermination(2, TimeUnit.SECONDS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                    });
         }
 
-        // create Splitter
-        String delimiter = context.getProps().getProperty(Constants.SHIFU_OUTPUT_DATA_DELIMITER);
-        this.splitter = MapReduceUtils.generateShifuOutputSplitter(delimiter);
+        // decode delimiter
+        this.delimiter = context.getProps().getProperty(Constants.SHIFU_OUTPUT_DATA_DELIMITER);
+        this.normDelimiter = MapReduceUtils.getShifuOutputDelimiter(this.delimiter);
+        this.dataCacheDir = context.getProps().getProperty(CommonConstants.SHIFU_TRAIN_DATA_CACHE_DIR);
+        if(StringUtils.isNotBlank(this.dataCacheDir)) {
+            this.dataCacheKey = GuaguaNormCacheRecordReader.configKey(this.modelConfig, this.columnConfigList);
+        }
+        this.isBinaryNorm = Boolean.TRUE.toString()
+                .equalsIgnoreCase(context.getProps().getProperty(CommonConstants.SHIFU_NORM_BINARY));
 
         // cannot find a good place to close these two data set, using Shutdown hook
         Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
             @Override
             public void run() {
-                LogisticRegressionWorker.this.validationData.close();
-                LogisticRegressionWorker.this.trainingData.close();
+                for(BytableMemoryDiskList<Data> data: LogisticRegressionWorker.this.validationData) {
+                    data.close();
+                }
+                for(BytableMemoryDiskList<Data> data: LogisticRegressionWorker.this.trainingData) {
+                    data.close();
+                }
             }
         }));
     }
@@ -316,78 +453,152 @@ public class LogisticRegressionWorker extends
             return new LogisticRegressionParams();
         }
 
-        // 2. get latest model weights
+        // 2. get latest model weights, weights of all models are concatenated
         this.weights = context.getLastMasterResult().getParameters();
-
-        // 3. forward and backward training to get gradients
-        double[] gradients = new double[this.modelInputCnt + 1];
-        double totalTrainError = 0.0d, totalVldError = 0.0d, wgtTrainSize = 0d, wgtVldSize = 0d;
-        this.trainingData.reOpen();
-        for(Data data: trainingData) {
-            wgtTrainSize += data.getSignificance();
-            double result = sigmoid(logits(data.inputs, this.weights));
-            double error = data.outputs[0] - result;
-            totalTrainError += caculateMSEError(error) * data.getSignificance();
-            double[] tmpGrds = new double[gradients.length];
-            for(int i = 0; i < gradients.length; i++) {
-                if(i < gradients.length - 1) {
-                    // compute gradient for each weight, derivedFunction is sigmoid derive.
-                    tmpGrds[i] = error * data.inputs[i] * (derivedFunction(result) + FLAT_SPOT_VALUE)
-                            * data.getSignificance();
-                } else {
-                    // for bias parameter, input is a constant 1d
-                    tmpGrds[i] = error * 1d * (derivedFunction(result) + FLAT_SPOT_VALUE) * data.getSignificance();
-                }
-                gradients[i] += tmpGrds[i];
+        int models = this.trainerIds.length;
+        int width = this.modelInputCnt + 1;
+
+        // 3. forward and backward training to get gradients of one mini batch in each shard, and validation error
+        // computation. We couldn't use current weights + gradients to compute testing error, so far it is for last
+        // error
+        int batch = (context.getCurrentIteration() - 2) % this.batchs;
+        computeShards(batch);
+
+        double[] gradients = sumGradients(this.gradientShards, models * width);
+        double[] totalTrainErrors = new double[models], totalVldErrors = new double[models];
+        double[] wgtTrainSizes = new double[models];
+        double wgtVldSize = 0d;
+        for(GradientShard shard: this.gradientShards) {
+            for(int m = 0; m < models; m++) {
+                totalTrainErrors[m] += shard.trainErrors[m];
+                totalVldErrors[m] += shard.validationErrors[m];
+                wgtTrainSizes[m] += shard.trainSizes[m];
             }
+            wgtVldSize += shard.validationSize;
         }
-
-        // 4. validation error computation
-        // We couldn't use current weights + gradients to compute testing error, so far it is for last error
-        this.validationData.reOpen();
-        for(Data data: validationData) {
-            wgtVldSize += data.getSignificance();
-            double result = sigmoid(logits(data.inputs, this.weights));
-            double error = data.outputs[0] - result;
-            totalVldError += caculateMSEError(error) * data.getSignificance();
+        for(int m = 0; m < models; m++) {
+            LOG.info("Iteration {} training error {}{}", context.getCurrentIteration(),
+                    totalTrainErrors[m] / wgtTrainSizes[m], models > 1 ? " of trainer " + this.trainerIds[m] : "");
+            LOG.info("Iteration {} testing error {}{}", context.getCurrentIteration(), totalVldErrors[m] / wgtVldSize,
+                    models > 1 ? " of trainer " + this.trainerIds[m] : "");
         }
-        LOG.info("Iteration {} training error {}", context.getCurrentIteration(), totalTrainError / wgtTrainSize);
-        LOG.info("Iteration {} testing error {}", context.getCurrentIteration(), totalVldError / wgtVldSize);
 
         // return gradients and other params to master
-        return new LogisticRegressionParams(gradients, totalTrainError, totalVldError, wgtTrainSize, wgtVldSize,
-                this.trainingData.size(), this.validationData.size());
+        LogisticRegressionParams params = new LogisticRegressionParams(gradients, totalTrainErrors[0],
+                totalVldErrors[0], wgtTrainSizes[0], wgtVldSize, this.trainingCount, this.validationCount);
+        params.setEncoding(this.paramsEncoding);
+        if(models > 1) {
+            params.setTrainErrors(totalTrainErrors);
+            params.setValidationErrors(totalVldErrors);
+            params.setTrainSizes(wgtTrainSizes);
+        }
+        return params;
 
     }
 
+    /**
+     * Compute gradients and errors of all shards, in parallel if more than one shard.
+     */
+    private void computeShards(int batch) {
+        for(GradientShard shard: this.gradientShards) {
+            shard.setBatch(this.weights, batch, this.batchs);
+        }
+        if(this.threadPool == null) {
+            this.gradientShards[0].call();
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        CompletionService<GradientShard> completionService = new ExecutorCompletionService<GradientShard>(
+                this.threadPool);
+        for(GradientShard shard: this.gradientShards) {
+            completionService.submit(shard);
+        }
+        for(int i = 0; i < this.gradientShards.length; i++) {
+            try {
+                // no need to take a timeout here as it is difficult to set a good default timeout for all cases.
+                completionService.take().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                // gradients of a failed shard cannot be skipped, else weights are updated by partial gradients
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        LOG.info("Worker with parallel train run time {} ms.", (System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Sum gradients of all shards in shard order.
+     */
+    static double[] sumGradients(GradientShard[] shards, int length) {
+        double[] gradients = new double[length];
+        for(GradientShard shard: shards) {
+            for(int i = 0; i < length; i++) {
+                gradients[i] += shard.gradients[i];
+            }
+        }
+        return gradients;
+    }
+
     /**
      * MSE value computation. We can provide more for user to configure in the future.
      */
-    private double caculateMSEError(double error) {
+    private static double caculateMSEError(double error) {
         return error * error;
     }
 
     /**
      * Derived function for sigmoid function.
      */
-    private double derivedFunction(double result) {
+    private static double derivedFunction(double result) {
         return result * (1d - result);
     }
 
     /**
-     * Compute sigmoid value by dot operation of two vectors.
+     * Compute sigmoid value by dot operation of inputs and weights of one model starting from offset, only non-zero
+     * inputs are computed if inputs are sparse.
      */
-    private double logits(float[] inputs, double[] weights) {
+    private static double logits(Data data, double[] weights, int offset, int inputCnt) {
+        float[] inputs = data.inputs;
+        int[] indices = data.indices;
         double value = 0.0d;
-        for(int i = 0; i < inputs.length; i++) {
-            value += weights[i] * inputs[i];
+        if(indices == null) {
+            for(int i = 0; i < inputs.length; i++) {
+                value += weights[offset + i] * inputs[i];
+            }
+        } else {
+            for(int i = 0; i < indices.length; i++) {
+                value += weights[offset + indices[i]] * inputs[i];
+            }
         }
         // append bias
-        value += weights[inputs.length] * 1d;
+        value += weights[offset + inputCnt] * 1d;
         return value;
     }
 
-    private double sigmoid(double logit) {
+    /**
+     * Accumulate gradients of one record to gradients of one model starting from offset, only non-zero inputs are
+     * computed if inputs are sparse.
+     */
+    private static void accumulateGradients(Data data, double delta, double[] gradients, int offset, int inputCnt) {
+        float[] inputs = data.inputs;
+        int[] indices = data.indices;
+        if(indices == null) {
+            for(int i = 0; i < inputs.length; i++) {
+                gradients[offset + i] += delta * inputs[i];
+            }
+        } else {
+            for(int i = 0; i < indices.length; i++) {
+                gradients[offset + indices[i]] += delta * inputs[i];
+            }
+        }
+        // for bias parameter, input is a constant 1d
+        gradients[offset + inputCnt] += delta * 1d;
+    }
+
+    private static double sigmoid(double logit) {
         return 1.0d / (1.0d + BoundMath.exp(-1 * logit));
     }
 
@@ -402,9 +613,11 @@ public class LogisticRegressionWorker extends
 
     @Override
     protected void postLoad(WorkerContext<LogisticRegressionParams, LogisticRegressionParams> context) {
-        this.trainingData.switchState();
-        if(validationData != null) {
-            this.validationData.switchState();
+        for(BytableMemoryDiskList<Data> data: this.trainingData) {
+            data.switchState();
+        }
+        for(BytableMemoryDiskList<Data> data: this.validationData) {
+            data.switchState();
         }
         LOG.info("    - # Records of the Total Data Set: {}.", this.count);
         LOG.info("    - Bagging Sample Rate: {}.", this.modelConfig.getBaggingSampleRate());
@@ -414,7 +627,7 @@ public class LogisticRegressionWorker extends
         } else {
             LOG.info("        - Validation Rate: {}.", this.modelConfig.getValidSetRate());
         }
-        LOG.info("        - # Records of the Training Set: {}.", this.trainingData.size());
+        LOG.info("        - # Records of the Training Set: {}.", this.trainingCount);
         if(modelConfig.isRegression() || modelConfig.getTrain().isOneVsAll()) {
             LOG.info("        - # Positive Bagging Selected Records of the Training Set: {}.",
                     this.positiveSelectedTrainCount);
@@ -425,7 +638,7 @@ public class LogisticRegressionWorker extends
         }
 
         if(validationData != null) {
-            LOG.info("        - # Records of the Validation Set: {}.", this.validationData.size());
+            LOG.info("        - # Records of the Validation Set: {}.", this.validationCount);
             if(modelConfig.isRegression() || modelConfig.getTrain().isOneVsAll()) {
                 LOG.info("        - # Positive Records of the Validation Set: {}.", this.positiveValidationCount);
                 LOG.info("        - # Negative Records of the Validation Set: {}.", this.negativeValidationCount);
@@ -439,17 +652,18 @@ public class LogisticRegressionWorker extends
         if((this.count++) % 100000 == 0) {
             LOG.info("Read {} records.", this.count);
         }
-        String line = currentValue.getWritable().toString();
         float[] inputData = new float[this.modelInputCnt];
         float[] outputData = new float[this.modelOutputCnt];
 
-        String[] fields = Lists.newArrayList(this.splitter.split(line)).toArray(new String[0]);
+        NormFields fields = this.normReader == null
+                ? this.normFields.reset(currentValue.getWritable().toString(), this.normDelimiter)
+                : this.normReader.getCurrentFields();
         int dataPos = 0, inputIndex = 0, outputIndex = 0;
         long hashcode = 0;
         double significance = CommonConstants.DEFAULT_SIGNIFICANCE_VALUE;
 
         for(ColumnConfig columnConfig: this.columnConfigList) {
-            float fval = DTrainUtils.parseRawNormValue(fields, dataPos, 0.0f);
+            float fval = fields.getFloat(dataPos, 0.0f);
 
             if(columnConfig.isTarget()) {
                 outputData[outputIndex++] = fval;
@@ -457,7 +671,7 @@ public class LogisticRegressionWorker extends
             } else if(this.weightColumnId > 0 // user set weight column
                     && this.weightColumnId == columnConfig.getColumnNum() // the weight column is current
                     && this.isWeightColumnMeta) { // the weight column is Meta
-                significance = DTrainUtils.parseRawNormValue(fields, dataPos, 1.0f);
+                significance = fields.getFloat(dataPos, 1.0f);
                 // if invalid weight, set it to 1f and warning in log
                 if(Double.compare(significance, 0f) < 0) {
                     LOG.warn("The {} record in current worker weight {} is less than 0f, it is invalid, set it to 1.",
@@ -473,7 +687,7 @@ public class LogisticRegressionWorker extends
                     } else if(columnConfig != null && columnConfig.isNumerical()
                             && modelConfig.getNormalizeType().equals(ModelNormalizeConf.NormType.ONEHOT)) {
                         for(int k = 0; k < columnConfig.getBinBoundary().size() + 1; k++) {
-                            float tval = DTrainUtils.parseRawNormValue(fields, dataPos, 0.0f);
+                            float tval = fields.getFloat(dataPos, 0.0f);
                             inputData[inputIndex++] = tval;
                             dataPos++;
                         }
@@ -481,7 +695,7 @@ public class LogisticRegressionWorker extends
                             && (modelConfig.getNormalizeType().equals(ModelNormalizeConf.NormType.ZSCALE_ONEHOT)
                                     || modelConfig.getNormalizeType().equals(ModelNormalizeConf.NormType.ONEHOT))) {
                         for(int k = 0; k < columnConfig.getBinCategory().size() + 1; k++) {
-                            float tval = DTrainUtils.parseRawNormValue(fields, dataPos, 0.0f);
+                            float tval = fields.getFloat(dataPos, 0.0f);
                             inputData[inputIndex++] = tval;
                             dataPos++;
                         }
@@ -509,24 +723,24 @@ public class LogisticRegressionWorker extends
             }
         }
 
-        // if (dataPos == fields.length -1), the last column is weight column
-        // if (dataPos == fields.length), normalized data doesn't have weight column
-        if(dataPos != fields.length - 1 && dataPos != fields.length) {
+        // if (dataPos == fields.size() -1), the last column is weight column
+        // if (dataPos == fields.size()), normalized data doesn't have weight column
+        if(dataPos != fields.size() - 1 && dataPos != fields.size()) {
             LOG.error("Normalization data has extra data. Expect {} or {}, actual is {}.", dataPos, dataPos + 1,
-                    fields.length);
+                    fields.size());
             throw new RuntimeException("Out of range Normalization data doesn't match with ColumnConfig.json.");
         }
 
-        if(this.weightColumnId > 0 && !this.isWeightColumnMeta && dataPos == fields.length - 1) {
+        if(this.weightColumnId > 0 && !this.isWeightColumnMeta && dataPos == fields.size() - 1) {
             // user specified the weight column, it is not meta column and now point to last column of data
-            significance = DTrainUtils.parseRawNormValue(fields, dataPos, 1.0f);
+            significance = fields.getFloat(dataPos, 1.0f);
             // if invalid weight, set it to 1f and warning in log
             if(Double.compare(significance, 0f) < 0) {
                 LOG.warn("The {} record in current worker weight {} is less than 0f, it is invalid, set it to 1.",
                         count, significance);
                 significance = 1f;
             }
-        } else if(this.weightColumnId > 0 && !this.isWeightColumnMeta && dataPos == fields.length) {
+        } else if(this.weightColumnId > 0 && !this.isWeightColumnMeta && dataPos == fields.size()) {
             // user specified the weight column, and it is not meta column
             // but it doesn't exist in normalized data set, throw error or use default?
             // OK, use default currently
@@ -558,9 +772,10 @@ public class LogisticRegressionWorker extends
                         && isInRange(hashcode, startHashCode, endHashCode)) {
                     return;
                 }
-            } else {
+            } else if(this.trainerIds.length == 1) {
                 // if not fixed initial input, and for regression or onevsall multiple classification (regression also).
-                // if negative record
+                // if negative record. For several models in one job, negative records are sampled for each model in
+                // bagging sampling
                 if((modelConfig.isRegression()
                         || (modelConfig.isClassification() && modelConfig.getTrain().isOneVsAll())) // regression or
                                                                                                     // onevsall
@@ -587,8 +802,20 @@ public class LogisticRegressionWorker extends
         boolean isInTraining = addDataPairToDataSet(hashcode, data, isValidation);
 
         // do bagging sampling only for training data
-        if(isInTraining) {
-            float subsampleWeights = sampleWeights(outputData[0]);
+        if(isInTraining && this.trainerIds.length > 1) {
+            // keep sampling weights of each model in data as they are different in bagging, significance is shared
+            float[] bagWeights = new float[this.trainerIds.length];
+            for(int m = 0; m < bagWeights.length; m++) {
+                bagWeights[m] = isNegativeSampledOut(outputData[0]) ? 0f : sampleWeights(outputData[0], m);
+            }
+            if(isPositive(outputData[0])) {
+                this.positiveSelectedTrainCount += bagWeights[0] * 1L;
+            } else {
+                this.negativeSelectedTrainCount += bagWeights[0] * 1L;
+            }
+            data.setBagWeights(bagWeights);
+        } else if(isInTraining) {
+            float subsampleWeights = sampleWeights(outputData[0], 0);
             if(isPositive(outputData[0])) {
                 this.positiveSelectedTrainCount += subsampleWeights * 1L;
             } else {
@@ -602,27 +829,41 @@ public class LogisticRegressionWorker extends
         }
     }
 
-    protected float sampleWeights(float label) {
+    /**
+     * Negative records sampled out by sample negative only logic if several models in one job.
+     */
+    private boolean isNegativeSampledOut(float label) {
+        return modelConfig.getTrain().getSampleNegOnly()
+                && (modelConfig.isRegression() || (modelConfig.isClassification() && modelConfig.getTrain().isOneVsAll()))
+                && (int) (label + 0.01d) == 0 && Double.compare(Math.random(), modelConfig.getBaggingSampleRate()) >= 0;
+    }
+
+    /**
+     * Bagging sampling weights of the model with index in {@link #trainerIds}.
+     */
+    protected float sampleWeights(float label, int model) {
         float sampleWeights = 1f;
         // sample negative or kFoldCV, sample rate is 1d
         double sampleRate = (modelConfig.getTrain().getSampleNegOnly() || this.isKFoldCV) ? 1d
                 : modelConfig.getTrain().getBaggingSampleRate();
         int classValue = (int) (label + 0.01f);
+        // each model has its own random instances, key is class value for the only model in one job
+        int stratifiedKey = classValue * this.trainerIds.length + model;
         if(!modelConfig.isBaggingWithReplacement()) {
             Random random = null;
             if(this.isStratifiedSampling) {
-                random = baggingRandomMap.get(classValue);
+                random = baggingRandomMap.get(stratifiedKey);
                 if(random == null) {
                     random = DTrainUtils.generateRandomBySampleSeed(modelConfig.getTrain().getBaggingSampleSeed(),
                             CommonConstants.NOT_CONFIGURED_BAGGING_SEED);
-                    baggingRandomMap.put(classValue, random);
+                    baggingRandomMap.put(stratifiedKey, random);
                 }
             } else {
-                random = baggingRandomMap.get(0);
+                random = baggingRandomMap.get(model);
                 if(random == null) {
                     random = DTrainUtils.generateRandomBySampleSeed(modelConfig.getTrain().getBaggingSampleSeed(),
                             CommonConstants.NOT_CONFIGURED_BAGGING_SEED);
-                    baggingRandomMap.put(0, random);
+                    baggingRandomMap.put(model, random);
                 }
             }
             if(random.nextDouble() <= sampleRate) {
@@ -634,17 +875,17 @@ public class LogisticRegressionWorker extends
             // bagging with replacement sampling in training data set, take PoissonDistribution for sampling with
             // replacement
             if(this.isStratifiedSampling) {
-                PoissonDistribution rng = this.baggingRngMap.get(classValue);
+                PoissonDistribution rng = this.baggingRngMap.get(stratifiedKey);
                 if(rng == null) {
                     rng = new PoissonDistribution(sampleRate);
-                    this.baggingRngMap.put(classValue, rng);
+                    this.baggingRngMap.put(stratifiedKey, rng);
                 }
                 sampleWeights = rng.sample();
             } else {
-                PoissonDistribution rng = this.baggingRngMap.get(0);
+                PoissonDistribution rng = this.baggingRngMap.get(model);
                 if(rng == null) {
                     rng = new PoissonDistribution(sampleRate);
-                    this.baggingRngMap.put(0, rng);
+                    this.baggingRngMap.put(model, rng);
                 }
                 sampleWeights = rng.sample();
             }
@@ -695,7 +936,7 @@ public class LogisticRegressionWorker extends
         if(this.isKFoldCV) {
             int k = this.modelConfig.getTrain().getNumKFold();
             if(hashcode % k == this.trainerId) {
-                this.validationData.append(data);
+                appendValidationData(data);
                 if(isPositive(data.outputs[0])) {
                     this.positiveValidationCount += 1L;
                 } else {
@@ -703,7 +944,7 @@ public class LogisticRegressionWorker extends
                 }
                 return false;
             } else {
-                this.trainingData.append(data);
+                appendTrainingData(data);
                 if(isPositive(data.outputs[0])) {
                     this.positiveTrainCount += 1L;
                 } else {
@@ -715,7 +956,7 @@ public class LogisticRegressionWorker extends
 
         if(this.isSpecificValidation) {
             if(isValidation) {
-                this.validationData.append(data);
+                appendValidationData(data);
                 if(isPositive(data.outputs[0])) {
                     this.positiveValidationCount += 1L;
                 } else {
@@ -723,7 +964,7 @@ public class LogisticRegressionWorker extends
                 }
                 return false;
             } else {
-                this.trainingData.append(data);
+                appendTrainingData(data);
                 if(isPositive(data.outputs[0])) {
                     this.positiveTrainCount += 1L;
                 } else {
@@ -760,7 +1001,7 @@ public class LogisticRegressionWorker extends
                     int endHashCode = startHashCode
                             + Double.valueOf(this.modelConfig.getValidSetRate() * 100).intValue();
                     if(isInRange(hashcode, startHashCode, endHashCode)) {
-                        this.validationData.append(data);
+                        appendValidationData(data);
                         if(isPositive(data.outputs[0])) {
                             this.positiveValidationCount += 1L;
                         } else {
@@ -768,7 +1009,7 @@ public class LogisticRegressionWorker extends
                         }
                         return false;
                     } else {
-                        this.trainingData.append(data);
+                        appendTrainingData(data);
                         if(isPositive(data.outputs[0])) {
                             this.positiveTrainCount += 1L;
                         } else {
@@ -779,7 +1020,7 @@ public class LogisticRegressionWorker extends
                 } else {
                     // not fixed initial input, if random value >= validRate, training, otherwise validation.
                     if(random.nextDouble() >= this.modelConfig.getValidSetRate()) {
-                        this.trainingData.append(data);
+                        appendTrainingData(data);
                         if(isPositive(data.outputs[0])) {
                             this.positiveTrainCount += 1L;
                         } else {
@@ -787,7 +1028,7 @@ public class LogisticRegressionWorker extends
                         }
                         return true;
                     } else {
-                        this.validationData.append(data);
+                        appendValidationData(data);
                         if(isPositive(data.outputs[0])) {
                             this.positiveValidationCount += 1L;
                         } else {
@@ -797,7 +1038,7 @@ public class LogisticRegressionWorker extends
                     }
                 }
             } else {
-                this.trainingData.append(data);
+                appendTrainingData(data);
                 if(isPositive(data.outputs[0])) {
                     this.positiveTrainCount += 1L;
                 } else {
@@ -808,6 +1049,21 @@ public class LogisticRegressionWorker extends
         }
     }
 
+    private void appendTrainingData(Data data) {
+        appendToShard(this.trainingData, this.trainingCount++, data);
+    }
+
+    private void appendValidationData(Data data) {
+        appendToShard(this.validationData, this.validationCount++, data);
+    }
+
+    /**
+     * Append the index-th record to shards in round robin.
+     */
+    static void appendToShard(List<BytableMemoryDiskList<Data>> shards, long index, Data data) {
+        shards.get((int) (index % shards.size())).append(data);
+    }
+
     private boolean isInRange(long hashcode, int startHashCode, int endHashCode) {
         // check if in [start, end] or if in [start, 100) and [0, end-100)
         int hashCodeIn100 = (int) hashcode % 100;
@@ -820,16 +1076,175 @@ public class LogisticRegressionWorker extends
         }
     }
 
-    private static class Data implements Bytable {
+    /**
+     * Gradients and errors of one shard of training and testing data set, accumulators are reused in all iterations.
+     */
+    static class GradientShard implements Callable<GradientShard> {
+
+        private final BytableMemoryDiskList<Data> trainingData;
+        private final BytableMemoryDiskList<Data> validationData;
+
+        /**
+         * # of inputs of each model, weights and gradients of one model are inputCnt + 1 with bias.
+         */
+        private final int inputCnt;
+
+        /**
+         * Weights of all models in current iteration.
+         */
+        private double[] weights;
+
+        private final double[] gradients;
+        private final double[] trainErrors;
+        private final double[] trainSizes;
+        private final double[] validationErrors;
+        private double validationSize;
+
+        /**
+         * Training records in [batchStart, batchEnd) of this shard are computed in current iteration.
+         */
+        private long batchStart;
+        private long batchEnd;
+
+        public GradientShard(BytableMemoryDiskList<Data> trainingData, BytableMemoryDiskList<Data> validationData,
+                int models, int inputCnt) {
+            this.trainingData = trainingData;
+            this.validationData = validationData;
+            this.inputCnt = inputCnt;
+            this.gradients = new double[models * (inputCnt + 1)];
+            this.trainErrors = new double[models];
+            this.trainSizes = new double[models];
+            this.validationErrors = new double[models];
+        }
+
+        public void setBatch(double[] weights, int batch, int batchs) {
+            this.weights = weights;
+            long size = this.trainingData.size();
+            this.batchStart = size * batch / batchs;
+            this.batchEnd = size * (batch + 1) / batchs;
+        }
+
+        /**
+         * @return gradients of all models in training records of current batch
+         */
+        public double[] getGradients() {
+            return gradients;
+        }
+
+        /**
+         * @return weighted training errors of all models in current batch
+         */
+        public double[] getTrainErrors() {
+            return trainErrors;
+        }
+
+        /**
+         * @return weighted training record sizes of all models in current batch
+         */
+        public double[] getTrainSizes() {
+            return trainSizes;
+        }
+
+        /**
+         * @return weighted testing errors of all models
+         */
+        public double[] getValidationErrors() {
+            return validationErrors;
+        }
+
+        @Override
+        public GradientShard call() {
+            double[] weights = this.weights;
+            int models = this.trainErrors.length;
+            int width = this.inputCnt + 1;
+            Arrays.fill(this.gradients, 0d);
+            Arrays.fill(this.trainErrors, 0d);
+            Arrays.fill(this.trainSizes, 0d);
+            Arrays.fill(this.validationErrors, 0d);
+            this.validationSize = 0d;
+
+            long index = 0L;
+            this.trainingData.reOpen();
+            for(Data data: this.trainingData) {
+                if(index < this.batchStart || index >= this.batchEnd) {
+                    index++;
+                    continue;
+                }
+                index++;
+                for(int m = 0; m < models; m++) {
+                    double significance = data.getSignificance(m);
+                    this.trainSizes[m] += significance;
+                    if(significance == 0d) {
+                        // not sampled in bagging, no gradients and errors
+                        continue;
+                    }
+                    int offset = m * width;
+                    double result = sigmoid(logits(data, weights, offset, this.inputCnt));
+                    double error = data.outputs[0] - result;
+                    this.trainErrors[m] += caculateMSEError(error) * significance;
+                    // derivedFunction is sigmoid derive.
+                    accumulateGradients(data, error * (derivedFunction(result) + FLAT_SPOT_VALUE) * significance,
+                            this.gradients, offset, this.inputCnt);
+                }
+            }
+
+            this.validationData.reOpen();
+            for(Data data: this.validationData) {
+                this.validationSize += data.getSignificance();
+                for(int m = 0; m < models; m++) {
+                    double result = sigmoid(logits(data, weights, m * width, this.inputCnt));
+                    double error = data.outputs[0] - result;
+                    this.validationErrors[m] += caculateMSEError(error) * data.getSignificance();
+                }
+            }
+            return this;
+        }
+    }
+
+    static class Data implements Bytable {
 
         private double significance;
+
+        /**
+         * All inputs if {@link #indices} is null, else only non-zero inputs
+         */
         private float[] inputs;
+
+        /**
+         * Indices of non-zero inputs if inputs are sparse, null if inputs are dense
+         */
+        private int[] indices;
+
         private float[] outputs;
 
+        /**
+         * Bagging sampling weights of each model if several models in one job, null if only one model.
+         */
+        private float[] bagWeights;
+
         public Data(float[] inputs, float[] outputs, double significance) {
-            this.inputs = inputs;
             this.outputs = outputs;
             this.significance = significance;
+            int nonZeros = 0;
+            for(int i = 0; i < inputs.length; i++) {
+                if(inputs[i] != 0f) {
+                    nonZeros++;
+                }
+            }
+            if(nonZeros * 2 > inputs.length) {
+                this.inputs = inputs;
+                return;
+            }
+            // keep one-hot like inputs in sparse, index and value of each non-zero input take no more memory than
+            // dense inputs and only non-zero inputs are computed in training
+            this.inputs = new float[nonZeros];
+            this.indices = new int[nonZeros];
+            for(int i = 0, j = 0; i < inputs.length; i++) {
+                if(inputs[i] != 0f) {
+                    this.inputs[j] = inputs[i];
+                    this.indices[j++] = i;
+                }
+            }
         }
 
         @SuppressWarnings("unused")
@@ -851,6 +1266,42 @@ public class LogisticRegressionWorker extends
             this.significance = significance;
         }
 
+        /**
+         * @return the significance with bagging sampling weight of the model
+         */
+        public double getSignificance(int model) {
+            return this.bagWeights == null ? this.significance : this.significance * this.bagWeights[model];
+        }
+
+        /**
+         * @param bagWeights
+         *            the bagWeights to set
+         */
+        public void setBagWeights(float[] bagWeights) {
+            this.bagWeights = bagWeights;
+        }
+
+        /**
+         * @return all inputs if {@link #getIndices()} is null, else only non-zero inputs
+         */
+        public float[] getInputs() {
+            return inputs;
+        }
+
+        /**
+         * @return indices of non-zero inputs, null if inputs are dense
+         */
+        public int[] getIndices() {
+            return indices;
+        }
+
+        /**
+         * @return the outputs
+         */
+        public float[] getOutputs() {
+            return outputs;
+        }
+
         @Override
         public void write(DataOutput out) throws IOException {
             out.writeDouble(significance);
@@ -862,6 +1313,22 @@ public class LogisticRegressionWorker extends
             for(int i = 0; i < outputs.length; i++) {
                 out.writeFloat(outputs[i]);
             }
+            if(bagWeights == null) {
+                out.writeInt(0);
+            } else {
+                out.writeInt(bagWeights.length);
+                for(int i = 0; i < bagWeights.length; i++) {
+                    out.writeFloat(bagWeights[i]);
+                }
+            }
+            if(indices == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(indices.length);
+                for(int i = 0; i < indices.length; i++) {
+                    out.writeInt(indices[i]);
+                }
+            }
         }
 
         @Override
@@ -877,6 +1344,24 @@ public class LogisticRegressionWorker extends
             for(int i = 0; i < outputsLen; i++) {
                 outputs[i] = in.readFloat();
             }
+            int bagWeightsLen = in.readInt();
+            if(bagWeightsLen == 0) {
+                this.bagWeights = null;
+            } else {
+                this.bagWeights = new float[bagWeightsLen];
+                for(int i = 0; i < bagWeightsLen; i++) {
+                    bagWeights[i] = in.readFloat();
+                }
+            }
+            int indicesLen = in.readInt();
+            if(indicesLen < 0) {
+                this.indices = null;
+            } else {
+                this.indices = new int[indicesLen];
+                for(int i = 0; i < indicesLen; i++) {
+                    indices[i] = in.readInt();
+                }
+            }
         }
     }
 
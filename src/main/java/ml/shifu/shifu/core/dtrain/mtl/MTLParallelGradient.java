@@ -197,6 +197,7 @@ public class MTLParallelGradient {
         public GradientTask(final MultiTaskModel mtm, final FloatMLDataSet trainData, final FloatMLDataSet testData,
                 long trainLow, long trainHigh, long testLow, long testHigh) {
             this.mtm = mtm.clone();
+            this.mtm.setReuseBuffers(true);
             this.trainData = trainData;
             this.validationData = testData;
             this.trainLow = trainLow;
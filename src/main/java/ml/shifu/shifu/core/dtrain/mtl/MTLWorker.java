@@ -34,13 +34,10 @@ import org.apache.hadoop.io.Text;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Splitter;
-
 import ml.shifu.guagua.GuaguaRuntimeException;
 import ml.shifu.guagua.hadoop.io.GuaguaLineRecordReader;
 import ml.shifu.guagua.hadoop.io.GuaguaWritableAdapter;
 import ml.shifu.guagua.io.GuaguaFileSplit;
-import ml.shifu.guagua.util.NumberFormatUtils;
 import ml.shifu.guagua.worker.AbstractWorkerComputable;
 import ml.shifu.guagua.worker.WorkerContext;
 import ml.shifu.shifu.container.obj.ColumnConfig;
@@ -48,6 +45,7 @@ import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.dtrain.CommonConstants;
 import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.NormFields;
 import ml.shifu.shifu.core.dtrain.RegulationLevel;
 import ml.shifu.shifu.core.dtrain.dataset.BasicFloatMLData;
 import ml.shifu.shifu.core.dtrain.dataset.BasicFloatMLDataPair;
@@ -57,6 +55,9 @@ import ml.shifu.shifu.core.dtrain.dataset.MemoryDiskFloatMLDataSet;
 import ml.shifu.shifu.core.dtrain.layer.SerializationType;
 import ml.shifu.shifu.core.dtrain.nn.NNConstants;
 import ml.shifu.shifu.fs.PathFinder;
+import ml.shifu.shifu.guagua.GuaguaNormBinaryRecordReader;
+import ml.shifu.shifu.guagua.GuaguaNormCacheRecordReader;
+import ml.shifu.shifu.guagua.GuaguaNormRecordReader;
 import ml.shifu.shifu.util.CommonUtils;
 import ml.shifu.shifu.util.Constants;
 import ml.shifu.shifu.util.MapReduceUtils;
@@ -125,9 +126,36 @@ public class MTLWorker extends
     private volatile FloatMLDataSet validationData;
 
     /**
-     * A splitter to split data with specified delimiter.
+     * The decoded delimiter to split normalized data.
+     */
+    private String normDelimiter;
+
+    /**
+     * The delimiter of normalization data set
+     */
+    private String delimiter;
+
+    /**
+     * Folder of parsed normalization data cache, null if cache is not enabled
+     */
+    private String dataCacheDir;
+
+    /**
+     * Config key of parsed normalization data cache
      */
-    private Splitter splitter;
+    private String dataCacheKey;
+
+    /**
+     * If normalized data is in binary format
+     */
+    private boolean isBinaryNorm;
+
+    /**
+     * Reader of parsed fields of current split if normalized data is binary or normalization data cache is enabled
+     */
+    private GuaguaNormRecordReader normReader;
+
+    private final NormFields normFields = new NormFields();
 
     /**
      * Trainer id used to tag bagging training job, starting from 0, 1, 2 ...
@@ -212,11 +240,13 @@ public class MTLWorker extends
         // all columnConfigList have the same size, so just get the first one
         int columns = this.mtlColumnConfigLists.get(0).size();
 
-        // use guava Splitter to iterate only once
-        for(String input: this.splitter.split(currentValue.getWritable().toString())) {
+        NormFields fields = this.normReader == null
+                ? this.normFields.reset(currentValue.getWritable().toString(), this.normDelimiter)
+                : this.normReader.getCurrentFields();
+        for(; index < fields.size(); index++) {
             if(this.isMultiWeights) {
                 if(index >= this.multiTagColumns.size() * columns) {
-                    significances[mtlWgtIndex++] = getWeightValue(input);
+                    significances[mtlWgtIndex++] = getWeightValue(fields, index);
                     if(mtlWgtIndex < significances.length) {
                         continue;
                     } else {
@@ -225,7 +255,7 @@ public class MTLWorker extends
                 }
             } else {
                 if(index == this.multiTagColumns.size() * columns) {
-                    significance = getWeightValue(input);
+                    significance = getWeightValue(fields, index);
                     break; // only the last field is significance, break here
                 }
             }
@@ -234,15 +264,14 @@ public class MTLWorker extends
             int currCCListIndex = index / columns, currCCIndex = index % columns;
             ColumnConfig config = this.mtlColumnConfigLists.get(currCCListIndex).get(currCCIndex);
             if(config != null && config.isTarget()) {
-                outputs[outputIndex++] = CommonUtils.getFloatValue(input);
+                outputs[outputIndex++] = fields.getFloat(index, 0f);
             } else {
                 // final select some variables but meta and target are not included
                 if(validColumn(config)) {
-                    inputs[inputIndex++] = CommonUtils.getFloatValue(input);
-                    hashcode = hashcode * 31 + input.hashCode();
+                    inputs[inputIndex++] = fields.getFloat(index, 0f);
+                    hashcode = hashcode * 31 + fields.fieldHash(index);
                 }
             }
-            index += 1;
         }
 
         // output delimiter in norm can be set by user now and if user set a special one later changed, this exception
@@ -402,11 +431,10 @@ public class MTLWorker extends
         }
     }
 
-    private float getWeightValue(String input) {
+    private float getWeightValue(NormFields fields, int index) {
         float significance = 1f;
         if(StringUtils.isNotBlank(modelConfig.getWeightColumnName())) {
-            // check here to avoid bad performance in failed NumberFormatUtils.getFloat(input, 1f)
-            significance = input.length() == 0 ? 1f : NumberFormatUtils.getFloat(input, 1f);
+            significance = fields.getFloat(index, 1f);
             // if invalid weight, set it to 1d and warning in log
             if(significance < 0f) {
                 LOG.warn("Record {} with weight {} is less than 0 and invalid, set it to 1.", count, significance);
@@ -418,8 +446,17 @@ public class MTLWorker extends
 
     @Override
     public void initRecordReader(GuaguaFileSplit fileSplit) throws IOException {
-        // initialize Hadoop based line (long, string) reader
-        super.setRecordReader(new GuaguaLineRecordReader(fileSplit));
+        if(this.isBinaryNorm) {
+            this.normReader = new GuaguaNormBinaryRecordReader(fileSplit);
+            super.setRecordReader(this.normReader);
+        } else if(StringUtils.isBlank(this.dataCacheDir)) {
+            // initialize Hadoop based line (long, string) reader
+            super.setRecordReader(new GuaguaLineRecordReader(fileSplit));
+        } else {
+            this.normReader = new GuaguaNormCacheRecordReader(fileSplit, this.dataCacheDir, this.delimiter,
+                    this.dataCacheKey);
+            super.setRecordReader(this.normReader);
+        }
     }
 
     @SuppressWarnings({ "unchecked" })
@@ -432,9 +469,15 @@ public class MTLWorker extends
 
         this.hasCandidates = CommonUtils.hasCandidateColumns(this.mtlColumnConfigLists.get(0));
 
-        // create Splitter
-        String delimiter = context.getProps().getProperty(Constants.SHIFU_OUTPUT_DATA_DELIMITER);
-        this.splitter = MapReduceUtils.generateShifuOutputSplitter(delimiter);
+        // decode delimiter
+        this.delimiter = context.getProps().getProperty(Constants.SHIFU_OUTPUT_DATA_DELIMITER);
+        this.normDelimiter = MapReduceUtils.getShifuOutputDelimiter(this.delimiter);
+        this.dataCacheDir = context.getProps().getProperty(CommonConstants.SHIFU_TRAIN_DATA_CACHE_DIR);
+        if(StringUtils.isNotBlank(this.dataCacheDir)) {
+            this.dataCacheKey = GuaguaNormCacheRecordReader.configKey(this.modelConfig, this.mtlColumnConfigLists);
+        }
+        this.isBinaryNorm = Boolean.TRUE.toString()
+                .equalsIgnoreCase(context.getProps().getProperty(CommonConstants.SHIFU_NORM_BINARY));
 
         Integer kCrossValidation = this.modelConfig.getTrain().getNumKFold();
         if(kCrossValidation != null && kCrossValidation > 0) {
@@ -25,6 +25,7 @@ import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -121,6 +122,21 @@ public class MultiTaskModel implements WeightInitializer<MultiTaskModel>, Bytabl
      */
     private static final double FLAT_SPOT_VALUE = 0.1d;
 
+    /**
+     * Workspaces reused by forward and backward computation for each record. Backward workspaces are always reused as
+     * each training thread works on its own cloned model, forward workspaces are only reused if
+     * {@link #setReuseBuffers(boolean)} as shared models are used by concurrent scoring threads.
+     */
+    private double[] forwardResults;
+
+    private boolean reuseBuffers;
+
+    private double[] grad2Logits;
+
+    private double[] finalBackInputs;
+
+    private final double[] finalGrad2Logits = new double[1];
+
     /**
      * Default constructor which is for de-serialization.
      */
@@ -229,7 +245,14 @@ public class MultiTaskModel implements WeightInitializer<MultiTaskModel>, Bytabl
             }
         }
 
-        double[] results = new double[this.finalLayers.size()];
+        double[] results;
+        if(!this.reuseBuffers) {
+            results = new double[this.finalLayers.size()];
+        } else if(this.forwardResults == null || this.forwardResults.length != this.finalLayers.size()) {
+            results = this.forwardResults = new double[this.finalLayers.size()];
+        } else {
+            results = this.forwardResults;
+        }
         for(int j = 0; j < finalLayers.size(); j++) {
             double[] outputs = finalLayers.get(j).forward(forwards);
             results[j] = outputs[0];
@@ -237,6 +260,31 @@ public class MultiTaskModel implements WeightInitializer<MultiTaskModel>, Bytabl
         return results;
     }
 
+    /**
+     * Reuse forward buffers of this model and all its layers, only for the model used by one training thread like the
+     * one cloned in {@link MTLParallelGradient}.
+     * 
+     * @param reuseBuffers
+     *            if reuse forward result buffers
+     */
+    @SuppressWarnings("rawtypes")
+    public void setReuseBuffers(boolean reuseBuffers) {
+        this.reuseBuffers = reuseBuffers;
+        if(this.dil != null) {
+            this.dil.setReuseBuffers(reuseBuffers);
+        }
+        if(this.hiddenLayers != null) {
+            for(Layer layer: this.hiddenLayers) {
+                layer.setReuseBuffers(reuseBuffers);
+            }
+        }
+        if(this.finalLayers != null) {
+            for(DenseLayer layer: this.finalLayers) {
+                layer.setReuseBuffers(reuseBuffers);
+            }
+        }
+    }
+
     /**
      * Backward computation to get gradients. Gradients are computed and saved in each layer based on backward errors.
      * 
@@ -252,18 +300,14 @@ public class MultiTaskModel implements WeightInitializer<MultiTaskModel>, Bytabl
     public double[] backward(double[] predicts, double[] actuals, double sig) {
         // TODO add binary cross entropy here
         // 1. Error computation based on outputs of different target.
-        double[] grad2Logits = new double[predicts.length];
+        double[] grad2Logits = grad2Logits(predicts.length);
         for(int i = 0; i < grad2Logits.length; i++) {
             double error = (predicts[i] - actuals[i]);
             grad2Logits[i] = error * (CommonUtils.sigmoidDerivedFunction(predicts[i]) + FLAT_SPOT_VALUE) * sig * -1d;
         }
 
         // 2. Final layers backward accumulation
-        double[] backInputs = new double[finalLayers.get(0).getIn()];
-        for(int i = 0; i < this.finalLayers.size(); i++) {
-            backInputs = CommonUtils.plus(backInputs,
-                    this.finalLayers.get(i).backward(new double[] { grad2Logits[i] }));
-        }
+        double[] backInputs = finalLayersBackward(grad2Logits);
 
         // 3. Backward computation in hidden layers
         for(int i = 0; i < this.hiddenLayers.size(); i++) {
@@ -294,18 +338,14 @@ public class MultiTaskModel implements WeightInitializer<MultiTaskModel>, Bytabl
     public double[] backward(double[] predicts, double[] actuals, float[] sig) {
         // TODO add binary cross entropy here, merge into another backward method
         // 1. Error computation based on outputs of different target.
-        double[] grad2Logits = new double[predicts.length];
+        double[] grad2Logits = grad2Logits(predicts.length);
         for(int i = 0; i < grad2Logits.length; i++) {
             double error = (predicts[i] - actuals[i]);
             grad2Logits[i] = error * (CommonUtils.sigmoidDerivedFunction(predicts[i]) + FLAT_SPOT_VALUE) * sig[i] * -1d;
         }
 
         // 2. Final layers backward accumulation
-        double[] backInputs = new double[finalLayers.get(0).getIn()];
-        for(int i = 0; i < this.finalLayers.size(); i++) {
-            backInputs = CommonUtils.plus(backInputs,
-                    this.finalLayers.get(i).backward(new double[] { grad2Logits[i] }));
-        }
+        double[] backInputs = finalLayersBackward(grad2Logits);
 
         // 3. Backward computation in hidden layers
         for(int i = 0; i < this.hiddenLayers.size(); i++) {
@@ -321,6 +361,36 @@ public class MultiTaskModel implements WeightInitializer<MultiTaskModel>, Bytabl
         return null;
     }
 
+    private double[] grad2Logits(int size) {
+        if(this.grad2Logits == null || this.grad2Logits.length != size) {
+            this.grad2Logits = new double[size];
+        }
+        return this.grad2Logits;
+    }
+
+    /**
+     * Accumulate backward outputs of all final layers into one reused array, per element summation order is the same
+     * as {@link CommonUtils#plus(double[], double[])} on a zero array.
+     */
+    private double[] finalLayersBackward(double[] grad2Logits) {
+        int in = this.finalLayers.get(0).getIn();
+        if(this.finalBackInputs == null || this.finalBackInputs.length != in) {
+            this.finalBackInputs = new double[in];
+        } else {
+            Arrays.fill(this.finalBackInputs, 0d);
+        }
+        double[] backInputs = this.finalBackInputs;
+        for(int i = 0; i < this.finalLayers.size(); i++) {
+            this.finalGrad2Logits[0] = grad2Logits[i];
+            double[] outputs = this.finalLayers.get(i).backward(this.finalGrad2Logits);
+            assert outputs.length == backInputs.length;
+            for(int j = 0; j < backInputs.length; j++) {
+                backInputs[j] += outputs[j];
+            }
+        }
+        return backInputs;
+    }
+
     /**
      * Each layer with correlated optimizer should be optimized for weights updating.
      */
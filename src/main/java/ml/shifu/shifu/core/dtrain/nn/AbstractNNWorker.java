@@ -17,7 +17,11 @@ package ml.shifu.shifu.core.dtrain.nn;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -39,8 +43,6 @@ import org.encog.neural.networks.BasicNetwork;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Splitter;
-
 import ml.shifu.guagua.GuaguaRuntimeException;
 import ml.shifu.guagua.hadoop.io.GuaguaWritableAdapter;
 import ml.shifu.guagua.worker.AbstractWorkerComputable;
@@ -51,6 +53,7 @@ import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.dtrain.CommonConstants;
 import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.ParamsCodec;
 import ml.shifu.shifu.core.dtrain.dataset.BasicFloatMLData;
 import ml.shifu.shifu.core.dtrain.dataset.BasicFloatMLDataPair;
 import ml.shifu.shifu.core.dtrain.dataset.BasicFloatMLDataSet;
@@ -60,6 +63,7 @@ import ml.shifu.shifu.core.dtrain.dataset.FloatMLDataPair;
 import ml.shifu.shifu.core.dtrain.dataset.FloatMLDataSet;
 import ml.shifu.shifu.core.dtrain.dataset.MemoryDiskFloatMLDataSet;
 import ml.shifu.shifu.core.dtrain.gs.GridSearch;
+import ml.shifu.shifu.guagua.GuaguaNormCacheRecordReader;
 import ml.shifu.shifu.udf.norm.PrecisionType;
 import ml.shifu.shifu.util.CommonUtils;
 import ml.shifu.shifu.util.Constants;
@@ -280,9 +284,29 @@ public abstract class AbstractNNWorker<VALUE extends Writable> extends
     private int batchs = 1;
 
     /**
-     * The splitter for normalization data set
+     * The decoded delimiter for normalization data set
+     */
+    protected String normDelimiter;
+
+    /**
+     * The delimiter of normalization data set
+     */
+    protected String delimiter;
+
+    /**
+     * Folder of parsed normalization data cache, null if cache is not enabled
+     */
+    protected String dataCacheDir;
+
+    /**
+     * Config key of parsed normalization data cache
+     */
+    protected String dataCacheKey;
+
+    /**
+     * If normalized data is in binary format
      */
-    protected Splitter splitter;
+    protected boolean isBinaryNorm;
 
     /**
      * The models is linear model or not
@@ -316,6 +340,23 @@ public abstract class AbstractNNWorker<VALUE extends Writable> extends
      */
     private PrecisionType precisionType;
 
+    /**
+     * Wire encoding flags of {@link ParamsCodec} for weights and gradients, set by train param
+     * {@link CommonConstants#PARAMS_ENCODING}
+     */
+    private int paramsEncoding = ParamsCodec.RAW;
+
+    /**
+     * Bounded staleness of gradients, if > 0, gradients not applied by master are carried into next iterations until
+     * they are older than this bound.
+     */
+    private int stalenessBound = 0;
+
+    /**
+     * Gradients not acknowledged by master yet, only used if {@link #stalenessBound} > 0.
+     */
+    private LateGradients lateGradients;
+
     protected boolean isUpSampleEnabled() {
         // only enabled in regression
         return this.upSampleRng != null && (modelConfig.isRegression()
@@ -404,6 +445,13 @@ public abstract class AbstractNNWorker<VALUE extends Writable> extends
             this.validParams = gs.getParams(trainerId);
             LOG.info("Start grid search master with params: {}", validParams);
         }
+        Object encoding = this.validParams.get(CommonConstants.PARAMS_ENCODING);
+        this.paramsEncoding = ParamsCodec.parseFlags(encoding == null ? null : encoding.toString());
+        this.stalenessBound = DTrainUtils.getInt(this.validParams, CommonConstants.STALENESS_BOUND, 0);
+        if(this.stalenessBound > 0) {
+            LOG.info("Bounded staleness training is enabled with bound {}.", this.stalenessBound);
+            this.lateGradients = new LateGradients(this.stalenessBound);
+        }
 
         Integer kCrossValidation = this.modelConfig.getTrain().getNumKFold();
         if(kCrossValidation != null && kCrossValidation > 0) {
@@ -543,9 +591,15 @@ public abstract class AbstractNNWorker<VALUE extends Writable> extends
             }
         }
 
-        // create Splitter
-        String delimiter = context.getProps().getProperty(Constants.SHIFU_OUTPUT_DATA_DELIMITER);
-        this.splitter = MapReduceUtils.generateShifuOutputSplitter(delimiter);
+        // decode delimiter
+        this.delimiter = context.getProps().getProperty(Constants.SHIFU_OUTPUT_DATA_DELIMITER);
+        this.normDelimiter = MapReduceUtils.getShifuOutputDelimiter(this.delimiter);
+        this.dataCacheDir = context.getProps().getProperty(CommonConstants.SHIFU_TRAIN_DATA_CACHE_DIR);
+        if(StringUtils.isNotBlank(this.dataCacheDir)) {
+            this.dataCacheKey = GuaguaNormCacheRecordReader.configKey(this.modelConfig, this.columnConfigList);
+        }
+        this.isBinaryNorm = Boolean.TRUE.toString()
+                .equalsIgnoreCase(context.getProps().getProperty(CommonConstants.SHIFU_NORM_BINARY));
     }
 
     private boolean isOnDisk() {
@@ -612,7 +666,15 @@ public abstract class AbstractNNWorker<VALUE extends Writable> extends
                 new Object[] { context.getCurrentIteration(), trainError,
                         (this.validationData.getRecordCount() > 0 ? testError : "N/A") });
 
+        if(this.stalenessBound > 0) {
+            gradients = carryLateGradients(context, gradients);
+        }
+
         NNParams params = new NNParams();
+        params.setEncoding(this.paramsEncoding);
+        if(this.stalenessBound > 0) {
+            params.setWorkerIds(Collections.singleton(context.getContainerId()));
+        }
         params.setValidationError(testError);
         params.setTrainError(trainError);
         if(this.precisionType == null) {
@@ -630,6 +692,16 @@ public abstract class AbstractNNWorker<VALUE extends Writable> extends
         return params;
     }
 
+    /**
+     * Add gradients of last iterations which are not applied by master (worker was later than min workers ratio of
+     * master) into gradients of current iteration.
+     */
+    private double[] carryLateGradients(WorkerContext<NNParams, NNParams> context, double[] gradients) {
+        Set<String> appliedWorkerIds = context.getLastMasterResult().getWorkerIds();
+        boolean isApplied = appliedWorkerIds != null && appliedWorkerIds.contains(context.getContainerId());
+        return this.lateGradients.carry(context.getCurrentIteration(), isApplied, gradients);
+    }
+
     private double[] castToPrecision(double[] gradients) {
         for(int i = 0; i < gradients.length; i++) {
             gradients[i] = ((Number)this.precisionType.to(gradients[i])).doubleValue();
@@ -661,10 +733,17 @@ public abstract class AbstractNNWorker<VALUE extends Writable> extends
         this.gradient = new ParallelGradient((FloatFlatNetwork) flat, training, testing, flatSpot,
                 new LinearErrorFunction(), isCrossOver, modelConfig.getTrain().getWorkerThreadCount(), this.lossStr,
                 this.batchs);
+        int batchComputeSize = Integer
+                .parseInt(this.props.getProperty(CommonConstants.SHIFU_NN_WORKER_BATCH_COMPUTE_SIZE, "0"));
+        if(batchComputeSize > 0) {
+            LOG.info("Gradient computing block size is {}.", batchComputeSize);
+            this.gradient.setBatchComputeSize(batchComputeSize);
+        }
     }
 
     private NNParams buildEmptyNNParams(WorkerContext<NNParams, NNParams> workerContext) {
         NNParams params = new NNParams();
+        params.setEncoding(this.paramsEncoding);
         params.setWeights(new double[0]);
         params.setGradients(new double[0]);
         params.setValidationError(NNConstants.DRY_ERROR);
@@ -1011,4 +1090,75 @@ public abstract class AbstractNNWorker<VALUE extends Writable> extends
         this.outputNodeCount = outputNodeCount;
     }
 
+    /**
+     * {@link LateGradients} keeps gradients sent to master but not acknowledged yet. They are added into gradients of
+     * next iterations until master acknowledges this worker, gradients older than staleness bound are dropped.
+     */
+    static class LateGradients {
+
+        private final int stalenessBound;
+
+        /**
+         * Gradients sent to master but not acknowledged yet, the oldest one is the first.
+         */
+        private final Deque<double[]> pendingGradients = new ArrayDeque<double[]>();
+
+        /**
+         * Iterations of {@link #pendingGradients}.
+         */
+        private final Deque<Integer> pendingIterations = new ArrayDeque<Integer>();
+
+        LateGradients(int stalenessBound) {
+            this.stalenessBound = stalenessBound;
+        }
+
+        /**
+         * Carry pending gradients into gradients of current iteration.
+         *
+         * @param currentIteration
+         *            current iteration
+         * @param isApplied
+         *            if gradients sent in last iteration are applied by master
+         * @param gradients
+         *            gradients of current iteration, not changed
+         * @return gradients of current iteration plus pending gradients
+         */
+        double[] carry(int currentIteration, boolean isApplied, double[] gradients) {
+            if(isApplied) {
+                // gradients sent in last iteration already include all pending gradients
+                this.pendingGradients.clear();
+                this.pendingIterations.clear();
+            }
+            while(!this.pendingIterations.isEmpty()
+                    && currentIteration - this.pendingIterations.peekFirst() > this.stalenessBound) {
+                LOG.warn("Gradients of iteration {} are not applied by master in {} iterations, drop them.",
+                        this.pendingIterations.peekFirst(), this.stalenessBound);
+                this.pendingGradients.pollFirst();
+                this.pendingIterations.pollFirst();
+            }
+
+            double[] results = Arrays.copyOf(gradients, gradients.length);
+            if(!this.pendingGradients.isEmpty()) {
+                LOG.info("Carry late gradients of iterations {} into iteration {}.", this.pendingIterations,
+                        currentIteration);
+                for(double[] pending: this.pendingGradients) {
+                    for(int i = 0; i < results.length; i++) {
+                        results[i] += pending[i];
+                    }
+                }
+            }
+            // gradients may be reused by next iteration
+            this.pendingGradients.addLast(Arrays.copyOf(gradients, gradients.length));
+            this.pendingIterations.addLast(currentIteration);
+            return results;
+        }
+
+        /**
+         * @return iterations of gradients not acknowledged by master
+         */
+        List<Integer> getPendingIterations() {
+            return new ArrayList<Integer>(this.pendingIterations);
+        }
+    }
+
 }
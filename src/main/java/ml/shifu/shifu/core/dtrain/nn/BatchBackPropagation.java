@@ -0,0 +1,421 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.nn;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import org.encog.engine.network.activation.ActivationFunction;
+import org.encog.neural.error.ErrorFunction;
+
+import ml.shifu.shifu.core.dtrain.dataset.BatchFlatNetwork;
+import ml.shifu.shifu.core.dtrain.dataset.FloatFlatNetwork;
+import ml.shifu.shifu.core.dtrain.loss.ErrorCalculation;
+import ml.shifu.shifu.core.dtrain.loss.LogErrorFunction;
+
+/**
+ * {@link BatchBackPropagation} is to do forward and backward computing of a block of records on one
+ * {@link FloatFlatNetwork}, layers are computed as matrix-matrix products of the record block and layer weights like
+ * {@link BatchFlatNetwork}.
+ *
+ * <p>
+ * Records are buffered by {@link #add(float[], float[], double)} and computed by
+ * {@link #flush(double[], ErrorCalculation)} once block is full. Each gradient is accumulated in record order and each
+ * sum is added in the same neuron order of {@link SubGradient}, which makes gradients and errors bit-for-bit identical
+ * to per record back propagation, dropout is applied the same way.
+ *
+ * <p>
+ * All buffers are allocated once in construction and reused, such class is not thread-safe and should be used by one
+ * {@link SubGradient}. Recurrent network with context neurons is not supported.
+ */
+public class BatchBackPropagation {
+
+    /**
+     * Default # of records computed in one block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 64;
+
+    /**
+     * The network to train, weights are read in each {@link #flush(double[], ErrorCalculation)}.
+     */
+    private FloatFlatNetwork network;
+
+    private final int blockSize;
+
+    private final int inputCount;
+
+    private final int outputCount;
+
+    private final int[] layerCounts;
+
+    private final int[] layerFeedCounts;
+
+    private final int[] layerIndex;
+
+    private final int[] weightIndex;
+
+    private final double[] layerDropoutRates;
+
+    private final double[] flatSpot;
+
+    private final ErrorFunction errorFunction;
+
+    /**
+     * Layer outputs, sums and deltas in the layer order of {@link FloatFlatNetwork#getLayerIndex()}, each buffer is
+     * blockSize * layerCounts[i].
+     */
+    private final double[][] layerOutputs;
+
+    private final double[][] layerSums;
+
+    private final double[][] layerDeltas;
+
+    /**
+     * Buffered raw inputs, ideals and significances of records in current block.
+     */
+    private final float[] inputs;
+
+    private final double[] ideals;
+
+    private final double[] significances;
+
+    /**
+     * # of records buffered in current block.
+     */
+    private int rows;
+
+    /**
+     * Dropout flags by neuron index of {@link FloatFlatNetwork#getLayerOutput()}, null if dropout is not enabled.
+     */
+    private boolean[] dropped;
+
+    /**
+     * Record level buffers to call {@link ErrorCalculation} and {@link ErrorFunction}.
+     */
+    private final double[] actual;
+
+    private final double[] ideal;
+
+    private final double[] delta;
+
+    /**
+     * Buffer to accumulate weighted deltas of one record in back propagation.
+     */
+    private final double[] deltaSums;
+
+    public BatchBackPropagation(FloatFlatNetwork network, double[] flatSpot, ErrorFunction errorFunction) {
+        this(network, flatSpot, errorFunction, DEFAULT_BLOCK_SIZE);
+    }
+
+    public BatchBackPropagation(FloatFlatNetwork network, double[] flatSpot, ErrorFunction errorFunction,
+            int blockSize) {
+        if(blockSize <= 0) {
+            throw new IllegalArgumentException("Block size should be positive, but is " + blockSize);
+        }
+        for(int size: network.getContextTargetSize()) {
+            if(size > 0) {
+                throw new IllegalArgumentException("Recurrent network with context neurons is not supported.");
+            }
+        }
+        this.network = network;
+        this.blockSize = blockSize;
+        this.flatSpot = flatSpot;
+        this.errorFunction = errorFunction;
+        this.inputCount = network.getInputCount();
+        this.outputCount = network.getOutputCount();
+        this.layerCounts = network.getLayerCounts();
+        this.layerFeedCounts = network.getLayerFeedCounts();
+        this.layerIndex = network.getLayerIndex();
+        this.weightIndex = network.getWeightIndex();
+        this.layerDropoutRates = network.getLayerDropoutRates();
+
+        double[] layerOutput = network.getLayerOutput();
+        int maxCount = 0;
+        this.layerOutputs = new double[this.layerCounts.length][];
+        this.layerSums = new double[this.layerCounts.length][];
+        this.layerDeltas = new double[this.layerCounts.length][];
+        for(int i = 0; i < this.layerCounts.length; i++) {
+            int count = this.layerCounts[i];
+            int feedCount = (i == this.layerCounts.length - 1) ? this.inputCount : this.layerFeedCounts[i];
+            double[] buffer = new double[blockSize * count];
+            // bias neurons are never updated in forward computing, fill them once for all records
+            for(int r = 0; r < blockSize; r++) {
+                System.arraycopy(layerOutput, this.layerIndex[i] + feedCount, buffer, r * count + feedCount, count
+                        - feedCount);
+            }
+            this.layerOutputs[i] = buffer;
+            this.layerSums[i] = new double[blockSize * count];
+            this.layerDeltas[i] = new double[blockSize * count];
+            maxCount = Math.max(maxCount, count);
+        }
+
+        this.inputs = new float[blockSize * this.inputCount];
+        this.ideals = new double[blockSize * this.outputCount];
+        this.significances = new double[blockSize];
+        this.actual = new double[this.outputCount];
+        this.ideal = new double[this.outputCount];
+        this.delta = new double[this.outputCount];
+        this.deltaSums = new double[maxCount];
+    }
+
+    /**
+     * Buffer one record into current block.
+     *
+     * @param input
+     *            the network input
+     * @param ideal
+     *            the ideal values
+     * @param significance
+     *            the significance of the record
+     * @return true if block is full and {@link #flush(double[], ErrorCalculation)} should be called
+     */
+    public boolean add(float[] input, float[] ideal, double significance) {
+        System.arraycopy(input, 0, this.inputs, this.rows * this.inputCount, this.inputCount);
+        int offset = this.rows * this.outputCount;
+        for(int i = 0; i < this.outputCount; i++) {
+            this.ideals[offset + i] = ideal[i];
+        }
+        this.significances[this.rows] = significance;
+        this.rows += 1;
+        return this.rows == this.blockSize;
+    }
+
+    /**
+     * Compute records in current block, accumulate gradients and errors and then clear the block.
+     *
+     * @param gradients
+     *            the gradients to accumulate into
+     * @param errorCalculation
+     *            the error calculation to update by each record
+     */
+    public void flush(double[] gradients, ErrorCalculation errorCalculation) {
+        if(this.rows == 0) {
+            return;
+        }
+        int outputStride = this.layerCounts[0];
+        double[] outputs = this.layerOutputs[0];
+
+        forward(false);
+        for(int r = 0; r < this.rows; r++) {
+            System.arraycopy(outputs, r * outputStride, this.actual, 0, this.outputCount);
+            System.arraycopy(this.ideals, r * this.outputCount, this.ideal, 0, this.outputCount);
+            errorCalculation.updateError(this.actual, this.ideal, this.significances[r]);
+        }
+
+        // if there is no dropout node set in master, forward result without dropout is used in back propagation
+        if(this.dropped != null) {
+            forward(true);
+        }
+
+        double[] sums = this.layerSums[0];
+        double[] deltas = this.layerDeltas[0];
+        ActivationFunction activation = this.network.getActivationFunctions()[0];
+        boolean isLogLoss = this.errorFunction instanceof LogErrorFunction;
+        for(int r = 0; r < this.rows; r++) {
+            int offset = r * outputStride;
+            double s = this.significances[r];
+            System.arraycopy(outputs, offset, this.actual, 0, this.outputCount);
+            System.arraycopy(this.ideals, r * this.outputCount, this.ideal, 0, this.outputCount);
+            this.errorFunction.calculateError(this.ideal, this.actual, this.delta);
+            for(int i = 0; i < this.outputCount; i++) {
+                if(isLogLoss) {
+                    deltas[offset + i] = this.delta[i] * s;
+                } else {
+                    deltas[offset + i] = ((activation.derivativeFunction(sums[offset + i], outputs[offset + i])
+                            + this.flatSpot[0])) * (this.delta[i] * s);
+                }
+            }
+        }
+
+        for(int i = this.network.getBeginTraining(); i < this.network.getEndTraining(); i++) {
+            backward(i, gradients);
+        }
+        this.rows = 0;
+    }
+
+    private void forward(boolean dropout) {
+        int inputLayer = this.layerCounts.length - 1;
+        int stride = this.layerCounts[inputLayer];
+        double[] buffer = this.layerOutputs[inputLayer];
+        boolean inputDropout = dropout && isDropoutEnable(inputLayer);
+        double nonDropoutRate = inputDropout ? 1d - this.layerDropoutRates[inputLayer] : 1d;
+        int sourceIndex = this.layerIndex[inputLayer];
+        for(int r = 0; r < this.rows; r++) {
+            int from = r * this.inputCount, to = r * stride;
+            for(int i = 0; i < this.inputCount; i++) {
+                if(inputDropout) {
+                    buffer[to + i] = this.dropped[sourceIndex + i] ? 0d : this.inputs[from + i] / nonDropoutRate;
+                } else {
+                    buffer[to + i] = this.inputs[from + i];
+                }
+            }
+        }
+
+        for(int i = inputLayer; i > 0; i--) {
+            computeLayer(i, dropout);
+        }
+    }
+
+    private void computeLayer(int currentLayer, boolean dropout) {
+        double[] weights = this.network.getWeights();
+        double[] inputs = this.layerOutputs[currentLayer];
+        double[] outputs = this.layerOutputs[currentLayer - 1];
+        double[] sums = this.layerSums[currentLayer - 1];
+        int inputSize = this.layerCounts[currentLayer];
+        int outputStride = this.layerCounts[currentLayer - 1];
+        int outputSize = this.layerFeedCounts[currentLayer - 1];
+        int index = this.weightIndex[currentLayer - 1];
+
+        // one weight row is applied to all records in the block before next weight row
+        for(int x = 0; x < outputSize; x++, index += inputSize) {
+            for(int r = 0; r < this.rows; r++) {
+                int inputIndex = r * inputSize;
+                double sum = 0;
+                for(int y = 0; y < inputSize; y++) {
+                    sum += weights[index + y] * inputs[inputIndex + y];
+                }
+                sums[r * outputStride + x] = sum;
+                outputs[r * outputStride + x] = sum;
+            }
+        }
+
+        ActivationFunction activation = this.network.getActivationFunctions()[currentLayer - 1];
+        for(int r = 0; r < this.rows; r++) {
+            activation.activationFunction(outputs, r * outputStride, outputSize);
+        }
+
+        if(dropout && isDropoutEnable(currentLayer - 1)) {
+            // dropout nodes' output and rescale remain nodes' output
+            double nonDropoutRate = 1d - this.layerDropoutRates[currentLayer - 1];
+            int neuronIndex = this.layerIndex[currentLayer - 1];
+            for(int r = 0; r < this.rows; r++) {
+                int offset = r * outputStride;
+                for(int x = 0; x < outputSize; x++) {
+                    if(this.dropped[neuronIndex + x]) {
+                        outputs[offset + x] = 0d;
+                    } else {
+                        outputs[offset + x] /= nonDropoutRate;
+                    }
+                }
+            }
+        }
+    }
+
+    private void backward(int currentLevel, double[] gradients) {
+        int fromLayer = currentLevel + 1;
+        int fromLayerSize = this.layerCounts[fromLayer];
+        int toLayerStride = this.layerCounts[currentLevel];
+        int toLayerSize = this.layerFeedCounts[currentLevel];
+        int index = this.weightIndex[currentLevel];
+        double[] weights = this.network.getWeights();
+        double[] fromOutputs = this.layerOutputs[fromLayer];
+        double[] toDeltas = this.layerDeltas[currentLevel];
+
+        // gradients of one weight row are accumulated by all records before next weight row
+        for(int x = 0, wi = index; x < toLayerSize; x++, wi += fromLayerSize) {
+            for(int r = 0; r < this.rows; r++) {
+                double delta = toDeltas[r * toLayerStride + x];
+                int outputIndex = r * fromLayerSize;
+                for(int y = 0; y < fromLayerSize; y++) {
+                    gradients[wi + y] += fromOutputs[outputIndex + y] * delta;
+                }
+            }
+        }
+
+        // deltas are only needed by next level, bias neurons and input layer never propagate deltas
+        if(fromLayer >= this.network.getEndTraining()) {
+            return;
+        }
+        int fromFeedSize = this.layerFeedCounts[fromLayer];
+        double nonDropoutRate = 1.0d;
+        if(this.layerDropoutRates.length > fromLayer && this.layerDropoutRates[fromLayer] != 0) {
+            nonDropoutRate = 1.0d - this.layerDropoutRates[fromLayer];
+        }
+        boolean isDropout = Double.compare(nonDropoutRate, 1.0d) != 0 && this.dropped != null;
+        ActivationFunction activation = this.network.getActivationFunctions()[fromLayer];
+        double currentFlatSpot = this.flatSpot[fromLayer];
+        double[] fromSums = this.layerSums[fromLayer];
+        double[] fromDeltas = this.layerDeltas[fromLayer];
+        int neuronIndex = this.layerIndex[fromLayer];
+        for(int r = 0; r < this.rows; r++) {
+            for(int y = 0; y < fromFeedSize; y++) {
+                this.deltaSums[y] = 0d;
+            }
+            for(int x = 0, wi = index; x < toLayerSize; x++, wi += fromLayerSize) {
+                double delta = toDeltas[r * toLayerStride + x];
+                for(int y = 0; y < fromFeedSize; y++) {
+                    this.deltaSums[y] += weights[wi + y] * delta;
+                }
+            }
+            int offset = r * fromLayerSize;
+            for(int y = 0; y < fromFeedSize; y++) {
+                int yi = offset + y;
+                if(!isDropout) {
+                    fromDeltas[yi] = this.deltaSums[y]
+                            * (activation.derivativeFunction(fromSums[yi], fromOutputs[yi]) + currentFlatSpot);
+                } else if(this.dropped[neuronIndex + y]) {
+                    fromDeltas[yi] = 0d;
+                } else {
+                    fromDeltas[yi] = (this.deltaSums[y] / nonDropoutRate)
+                            * (activation.derivativeFunction(fromSums[yi], fromOutputs[yi] * nonDropoutRate)
+                                    + currentFlatSpot);
+                }
+            }
+        }
+    }
+
+    private boolean isDropoutEnable(int layer) {
+        return this.layerDropoutRates.length > layer && Double.compare(this.layerDropoutRates[layer], 0d) > 0;
+    }
+
+    /**
+     * @param network
+     *            the network with new weights, it should have the same structure of current network
+     */
+    public void setNetwork(FloatFlatNetwork network) {
+        this.network = network;
+    }
+
+    /**
+     * @param dropoutNodes
+     *            dropout nodes generated by master, null if no dropout
+     */
+    public void setDropoutNodes(Set<Integer> dropoutNodes) {
+        if(dropoutNodes == null) {
+            this.dropped = null;
+            return;
+        }
+        int neurons = this.network.getLayerOutput().length;
+        if(this.dropped == null) {
+            this.dropped = new boolean[neurons];
+        } else {
+            Arrays.fill(this.dropped, false);
+        }
+        for(Integer node: dropoutNodes) {
+            if(node != null && node >= 0 && node < neurons) {
+                this.dropped[node] = true;
+            }
+        }
+    }
+
+    /**
+     * @return # of records in one block
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+}
@@ -20,6 +20,7 @@ import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +35,7 @@ import ml.shifu.shifu.core.Normalizer;
 import ml.shifu.shifu.core.dtrain.CommonConstants;
 import ml.shifu.shifu.core.dtrain.StringUtils;
 import ml.shifu.shifu.core.dtrain.dataset.BasicFloatNetwork;
+import ml.shifu.shifu.core.dtrain.dataset.BatchFlatNetwork;
 import ml.shifu.shifu.core.dtrain.dataset.PersistBasicFloatNetwork;
 import ml.shifu.shifu.udf.norm.PrecisionType;
 import ml.shifu.shifu.util.BinUtils;
@@ -63,6 +65,12 @@ public class IndependentNNModel {
      */
     private List<BasicFloatNetwork> basicNetworks;
 
+    /**
+     * Per thread batch computing engines of {@link #basicNetworks}, engines and output buffers are not thread-safe and
+     * lazily created in first batch computing of each thread.
+     */
+    private final ThreadLocal<BatchState> batchStates = new ThreadLocal<BatchState>();
+
     /**
      * Normalization type
      */
@@ -232,6 +240,109 @@ public class IndependentNNModel {
         }
     }
 
+    /**
+     * Compute scores of a block of records in row-major layout. Layer computing is matrix-matrix product on record
+     * blocks with reusable layer buffers. Scores are bit-for-bit identical to {@link #compute(double[])}.
+     * 
+     * @param data
+     *            records in row-major layout, record r starts at r * inputCount, each record is the same as data in
+     *            {@link #compute(double[])}
+     * @param numRecords
+     *            # of records in data
+     * @param scores
+     *            output buffer to be reused, if null or length not enough, a new array is created
+     * @return scores in row-major layout, record r starts at r * outputCount, if multiple models, do averaging on all
+     *         models outputs
+     */
+    public double[] computeBatch(double[] data, int numRecords, double[] scores) {
+        return computeBatch(data, null, numRecords, scores);
+    }
+
+    /**
+     * Compute scores of a block of records in columnar layout, see {@link #computeBatch(double[], int, double[])}.
+     * 
+     * @param columns
+     *            records in columnar layout, columns[i][r] is input i of record r
+     * @param numRecords
+     *            # of records in each column
+     * @param scores
+     *            output buffer to be reused, if null or length not enough, a new array is created
+     * @return scores in row-major layout, record r starts at r * outputCount
+     */
+    public double[] computeBatch(double[][] columns, int numRecords, double[] scores) {
+        return computeBatch(null, columns, numRecords, scores);
+    }
+
+    private double[] computeBatch(double[] data, double[][] columns, int numRecords, double[] scores) {
+        if(this.basicNetworks == null || this.basicNetworks.size() == 0) {
+            throw new IllegalStateException("no models inside");
+        }
+        BatchState state = this.batchStates.get();
+        if(state == null || state.basicNetworks != this.basicNetworks) {
+            // new state if first call in current thread or networks are reset by setBasicNetwork
+            state = new BatchState(this.basicNetworks);
+            this.batchStates.set(state);
+        }
+
+        int outputSize = this.basicNetworks.get(0).getOutputCount();
+        int length = numRecords * outputSize;
+        double[] results = (scores != null && scores.length >= length) ? scores : new double[length];
+        if(state.networks.length == 1) {
+            computeBatch(state.networks[0], data, columns, numRecords, results);
+            return results;
+        }
+
+        if(state.modelOutput == null || state.modelOutput.length < length) {
+            state.modelOutput = new double[length];
+        }
+        double[] currResults = state.modelOutput;
+        int modelSize = state.networks.length;
+        Arrays.fill(results, 0, length, 0d);
+        for(BatchFlatNetwork network: state.networks) {
+            computeBatch(network, data, columns, numRecords, currResults);
+            for(int i = 0; i < length; i++) {
+                // directly do averaging on each model output element
+                results[i] += currResults[i] / modelSize;
+            }
+        }
+        return results;
+    }
+
+    private void computeBatch(BatchFlatNetwork network, double[] data, double[][] columns, int numRecords,
+            double[] output) {
+        if(columns != null) {
+            network.compute(columns, numRecords, output);
+        } else {
+            network.compute(data, numRecords, output);
+        }
+    }
+
+    /**
+     * Batch computing engines and model output buffer owned by one scoring thread.
+     */
+    private static class BatchState {
+
+        /**
+         * Networks the engines are created from, to detect networks reset by {@link #setBasicNetwork(List)}.
+         */
+        private final List<BasicFloatNetwork> basicNetworks;
+
+        private final BatchFlatNetwork[] networks;
+
+        /**
+         * Output buffer of each model in batch computing of multiple models.
+         */
+        private double[] modelOutput;
+
+        private BatchState(List<BasicFloatNetwork> basicNetworks) {
+            this.basicNetworks = basicNetworks;
+            this.networks = new BatchFlatNetwork[basicNetworks.size()];
+            for(int i = 0; i < this.networks.length; i++) {
+                this.networks[i] = new BatchFlatNetwork(basicNetworks.get(i).getFlat());
+            }
+        }
+    }
+
     /**
      * Given {@code dataMap} with format (columnName, value), compute score values of neural network model.
      * 
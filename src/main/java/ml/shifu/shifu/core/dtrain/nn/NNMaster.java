@@ -43,6 +43,7 @@ import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.dtrain.CommonConstants;
 import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.ParamsCodec;
 import ml.shifu.shifu.core.dtrain.RegulationLevel;
 import ml.shifu.shifu.core.dtrain.Weight;
 import ml.shifu.shifu.core.dtrain.dataset.BasicFloatNetwork;
@@ -210,6 +211,18 @@ public class NNMaster extends AbstractMasterComputable<NNParams, NNParams> {
      */
     private PrecisionType precisionType;
 
+    /**
+     * Wire encoding flags of {@link ParamsCodec} for weights and gradients, set by train param
+     * {@link CommonConstants#PARAMS_ENCODING}
+     */
+    private int paramsEncoding = ParamsCodec.RAW;
+
+    /**
+     * Bounded staleness of worker gradients, if > 0, workers whose gradients are applied are acknowledged in master
+     * result and other workers carry their gradients into next iterations.
+     */
+    private int stalenessBound = 0;
+
     @Override
     public NNParams doCompute(MasterContext<NNParams, NNParams> context) {
         if(context.isFirstIteration()) {
@@ -226,6 +239,7 @@ public class NNMaster extends AbstractMasterComputable<NNParams, NNParams> {
 
             // should be set here to make sure master and workers use the same weights
             this.globalNNParams.setWeights(params.getWeights());
+            params.setEncoding(this.paramsEncoding);
             // for continuous model training, here can be optimized by return null and load model weights in worker by
             // reading HDFS.
             return params;
@@ -245,6 +259,7 @@ public class NNMaster extends AbstractMasterComputable<NNParams, NNParams> {
         long totalCount = 0L;
         double totalTrainSum = 0.0d, totalValidationSum = 0.0d;
         int totalWorkerCount = 0;
+        Set<String> appliedWorkerIds = this.stalenessBound > 0 ? new HashSet<String>() : null;
         for(NNParams nn: context.getWorkerResults()) {
             totalTestError += nn.getValidationError();
             totalTrainError += nn.getTrainError();
@@ -255,6 +270,9 @@ public class NNMaster extends AbstractMasterComputable<NNParams, NNParams> {
             totalValidationSum += nn.getValidationSum();
             // original worker count before combinable
             totalWorkerCount += nn.getWrCount();
+            if(appliedWorkerIds != null && nn.getWorkerIds() != null) {
+                appliedWorkerIds.addAll(nn.getWorkerIds());
+            }
             size++;
         }
         this.globalNNParams.setTrainSum(totalTrainSum);
@@ -310,11 +328,13 @@ public class NNMaster extends AbstractMasterComputable<NNParams, NNParams> {
                 new Object[] { context.getCurrentIteration(), currentTrainError, currentTestError });
 
         NNParams params = new NNParams();
+        params.setEncoding(this.paramsEncoding);
         params.setTrainError(currentTrainError);
         params.setValidationError(currentTestError);
         // prevent null point
         params.setGradients(new double[0]);
         params.setEvaluatedWeights(oldWeights);
+        params.setWorkerIds(appliedWorkerIds);
         if(this.precisionType == null) {
             params.setWeights(weights);
         } else {
@@ -455,6 +475,9 @@ public class NNMaster extends AbstractMasterComputable<NNParams, NNParams> {
             validParams = gs.getParams(trainerId);
             LOG.info("Start grid search master with params: {}", validParams);
         }
+        Object encoding = validParams.get(CommonConstants.PARAMS_ENCODING);
+        this.paramsEncoding = ParamsCodec.parseFlags(encoding == null ? null : encoding.toString());
+        this.stalenessBound = DTrainUtils.getInt(validParams, CommonConstants.STALENESS_BOUND, 0);
 
         Boolean enabledEarlyStop = DTrainUtils.getBoolean(validParams, CommonConstants.ENABLE_EARLY_STOP,
                 Boolean.FALSE);
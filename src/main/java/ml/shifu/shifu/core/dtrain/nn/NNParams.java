@@ -19,11 +19,13 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Set;
 
 import ml.shifu.guagua.io.Combinable;
 import ml.shifu.guagua.io.HaltBytable;
 import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.ParamsCodec;
 
 /**
  * NNParams are used to save NN model info which can also be stored into ZooKeeper.
@@ -34,6 +36,10 @@ import ml.shifu.shifu.core.dtrain.DTrainUtils;
  * <p>
  * {@link #gradients} is used to accumulate all workers' gradients together in master and then use the accumulated
  * gradients to update weights.
+ * 
+ * <p>
+ * {@link #encoding} is the wire encoding of weights and gradients by {@link ParamsCodec}, weights are written in
+ * {@link ParamsCodec#weightFlags(int)}.
  */
 public class NNParams extends HaltBytable implements Combinable<NNParams> {
 
@@ -99,6 +105,17 @@ public class NNParams extends HaltBytable implements Combinable<NNParams> {
      */
     private Set<Integer> dropoutNodes = null;
 
+    /**
+     * Encoding flags of {@link ParamsCodec} to write weights and gradients
+     */
+    private int encoding = ParamsCodec.RAW;
+
+    /**
+     * Ids of workers whose gradients are in this params, in master result it is used to acknowledge workers that their
+     * gradients are applied. Only set in bounded staleness training.
+     */
+    private Set<String> workerIds = null;
+
     public double[] getEvaluatedWeights() {
         return evaluatedWeights;
     }
@@ -207,18 +224,21 @@ public class NNParams extends HaltBytable implements Combinable<NNParams> {
         out.writeDouble(getTrainSum());
         out.writeDouble(getValidationSum());
 
-        out.writeInt(getWeights().length);
-        for(double weight: getWeights()) {
-            out.writeDouble(weight);
-        }
-
-        out.writeInt(getGradients().length);
-        for(double gradient: getGradients()) {
-            out.writeDouble(gradient);
-        }
+        out.writeByte(this.encoding);
+        ParamsCodec.write(out, getWeights(), ParamsCodec.weightFlags(this.encoding));
+        ParamsCodec.write(out, getGradients(), this.encoding);
 
         out.writeLong(count);
         out.writeInt(this.wrCount);
+
+        if(this.workerIds == null) {
+            out.writeInt(0);
+        } else {
+            out.writeInt(this.workerIds.size());
+            for(String workerId: this.workerIds) {
+                out.writeUTF(workerId);
+            }
+        }
     }
 
     @Override
@@ -230,22 +250,22 @@ public class NNParams extends HaltBytable implements Combinable<NNParams> {
         this.trainSum = in.readDouble();
         this.validationSum = in.readDouble();
 
-        int len = in.readInt();
-        double[] weights = new double[len];
-        for(int i = 0; i < len; i++) {
-            weights[i] = in.readDouble();
-        }
-        this.weights = weights;
-
-        len = in.readInt();
-        double[] gradients = new double[len];
-        for(int i = 0; i < len; i++) {
-            gradients[i] = in.readDouble();
-        }
-        this.gradients = gradients;
+        this.encoding = in.readByte();
+        this.weights = ParamsCodec.read(in, ParamsCodec.weightFlags(this.encoding));
+        this.gradients = ParamsCodec.read(in, this.encoding);
 
         this.count = in.readLong();
         this.wrCount = in.readInt();
+
+        int size = in.readInt();
+        if(size == 0) {
+            this.workerIds = null;
+        } else {
+            this.workerIds = new HashSet<String>(size);
+            for(int i = 0; i < size; i++) {
+                this.workerIds.add(in.readUTF());
+            }
+        }
     }
 
     /**
@@ -283,6 +303,13 @@ public class NNParams extends HaltBytable implements Combinable<NNParams> {
             this.gradients[i] += from.gradients[i];
         }
         this.setWrCount(this.getWrCount() + from.getWrCount());
+        if(from.workerIds != null) {
+            Set<String> ids = new HashSet<String>(from.workerIds);
+            if(this.workerIds != null) {
+                ids.addAll(this.workerIds);
+            }
+            this.workerIds = ids;
+        }
         return this;
     }
 
@@ -309,6 +336,36 @@ public class NNParams extends HaltBytable implements Combinable<NNParams> {
         this.dropoutNodes = dropoutNodes;
     }
 
+    /**
+     * @return the workerIds
+     */
+    public Set<String> getWorkerIds() {
+        return workerIds;
+    }
+
+    /**
+     * @param workerIds
+     *            the workerIds to set
+     */
+    public void setWorkerIds(Set<String> workerIds) {
+        this.workerIds = workerIds;
+    }
+
+    /**
+     * @return the encoding
+     */
+    public int getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * @param encoding
+     *            the encoding flags of {@link ParamsCodec} to set
+     */
+    public void setEncoding(int encoding) {
+        this.encoding = encoding;
+    }
+
     /**
      * @return the validationSize
      */
@@ -18,11 +18,10 @@ package ml.shifu.shifu.core.dtrain.nn;
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 
-import com.google.common.collect.Lists;
-
 import ml.shifu.guagua.ComputableMonitor;
 import ml.shifu.guagua.hadoop.io.GuaguaLineRecordReader;
 import ml.shifu.guagua.hadoop.io.GuaguaWritableAdapter;
@@ -30,10 +29,13 @@ import ml.shifu.guagua.io.GuaguaFileSplit;
 import ml.shifu.guagua.worker.WorkerContext;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelNormalizeConf;
-import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.NormFields;
 import ml.shifu.shifu.core.dtrain.dataset.BasicFloatMLData;
 import ml.shifu.shifu.core.dtrain.dataset.BasicFloatMLDataPair;
 import ml.shifu.shifu.core.dtrain.dataset.FloatMLDataPair;
+import ml.shifu.shifu.guagua.GuaguaNormBinaryRecordReader;
+import ml.shifu.shifu.guagua.GuaguaNormCacheRecordReader;
+import ml.shifu.shifu.guagua.GuaguaNormRecordReader;
 import ml.shifu.shifu.util.CommonUtils;
 import ml.shifu.shifu.util.Constants;
 
@@ -51,6 +53,13 @@ import ml.shifu.shifu.util.Constants;
 @ComputableMonitor(timeUnit = TimeUnit.SECONDS, duration = 3600)
 public class NNWorker extends AbstractNNWorker<Text> {
 
+    /**
+     * Reader of parsed fields of current split if normalized data is binary or normalization data cache is enabled
+     */
+    private GuaguaNormRecordReader normReader;
+
+    private final NormFields normFields = new NormFields();
+
     @Override
     public void load(GuaguaWritableAdapter<LongWritable> currentKey, GuaguaWritableAdapter<Text> currentValue,
             WorkerContext<NNParams, NNParams> workerContext) {
@@ -71,24 +80,25 @@ public class NNWorker extends AbstractNNWorker<Text> {
 
         long hashcode = 0;
         float significance = 1.0f;
-        // use guava Splitter to iterate only once
+        // split fields as ranges of line and parse in place to iterate only once
         // use NNConstants.NN_DEFAULT_COLUMN_SEPARATOR to replace getModelConfig().getDataSetDelimiter(), super follows
         // the function in akka mode.
         int dataPos = 0, inputsIndex = 0, outputIndex = 0;
 
-        String[] fields = Lists.newArrayList(this.splitter.split(currentValue.getWritable().toString()))
-                .toArray(new String[0]);
+        NormFields fields = this.normReader == null
+                ? this.normFields.reset(currentValue.getWritable().toString(), this.normDelimiter)
+                : this.normReader.getCurrentFields();
 
         if (super.count == 1) {
             // When reading the first line, we check if it is the compact mode.
-            configureCompactMode(fields.length);
+            configureCompactMode(fields.size());
         }
 
         for (ColumnConfig columnConfig : this.columnConfigList) {
             float fval;
 
             if (columnConfig.isTarget()) {
-                fval = DTrainUtils.parseRawNormValue(fields, dataPos, 0.0f);
+                fval = fields.getFloat(dataPos, 0.0f);
                 if(isLinearTarget || modelConfig.isRegression()) {
                     ideal[outputIndex++] = fval;
                 } else {
@@ -114,7 +124,7 @@ public class NNWorker extends AbstractNNWorker<Text> {
             } else if (this.weightColumnId > 0 // user set weight column
                     && this.weightColumnId == columnConfig.getColumnNum() // the weight column is current
                     && this.isWeightColumnMeta) { // the weight column is Meta
-                significance = DTrainUtils.parseRawNormValue(fields, dataPos, 1.0f);
+                significance = fields.getFloat(dataPos, 1.0f);
                 // if invalid weight, set it to 1f and warning in log
                 if(Float.compare(significance, 0f) < 0) {
                     LOG.warn("The {} record in current worker weight {} is less than 0f, it is invalid, set it to 1.",
@@ -124,14 +134,14 @@ public class NNWorker extends AbstractNNWorker<Text> {
                 dataPos ++;
             } else { // other variables
                 if(subFeatureSet.contains(columnConfig.getColumnNum())) {
-                    fval = DTrainUtils.parseRawNormValue(fields, dataPos, 0.0f);
+                    fval = fields.getFloat(dataPos, 0.0f);
                     if(columnConfig.isMeta() || columnConfig.isForceRemove()) {
                         // it shouldn't happen here
                         dataPos += 1;
                     } else if(columnConfig != null && columnConfig.isNumerical()
                             && modelConfig.getNormalizeType().equals(ModelNormalizeConf.NormType.ONEHOT)) {
                         for(int k = 0; k < columnConfig.getBinBoundary().size() + 1; k++) {
-                            float tval = DTrainUtils.parseRawNormValue(fields, dataPos, 0.0f);
+                            float tval = fields.getFloat(dataPos, 0.0f);
                             inputs[inputsIndex++] = tval;
                             dataPos++;
                         }
@@ -139,7 +149,7 @@ public class NNWorker extends AbstractNNWorker<Text> {
                             && (modelConfig.getNormalizeType().equals(ModelNormalizeConf.NormType.ZSCALE_ONEHOT)
                             || modelConfig.getNormalizeType().equals(ModelNormalizeConf.NormType.ONEHOT))) {
                         for(int k = 0; k < columnConfig.getBinCategory().size() + 1; k++) {
-                            float tval = DTrainUtils.parseRawNormValue(fields, dataPos, 0.0f);
+                            float tval = fields.getFloat(dataPos, 0.0f);
                             inputs[inputsIndex++] = tval;
                             dataPos++;
                         }
@@ -167,23 +177,23 @@ public class NNWorker extends AbstractNNWorker<Text> {
             }
         }
 
-        // if (dataPos == fields.length -1), the last column is weight column
-        // if (dataPos == fields.length), normalized data doesn't have weight column
-        if (dataPos != fields.length -1 && dataPos != fields.length) {
-            LOG.error("Normalization data has extra data. Expect {} or {}, actual is {}.", dataPos, dataPos + 1, fields.length);
+        // if (dataPos == fields.size() -1), the last column is weight column
+        // if (dataPos == fields.size()), normalized data doesn't have weight column
+        if (dataPos != fields.size() -1 && dataPos != fields.size()) {
+            LOG.error("Normalization data has extra data. Expect {} or {}, actual is {}.", dataPos, dataPos + 1, fields.size());
             throw new RuntimeException("Out of range Normalization data doesn't match with ColumnConfig.json.");
         }
 
-        if (this.weightColumnId > 0 && !this.isWeightColumnMeta && dataPos == fields.length - 1) {
+        if (this.weightColumnId > 0 && !this.isWeightColumnMeta && dataPos == fields.size() - 1) {
             // user specified the weight column, it is not meta column and now point to last column of data
-            significance = DTrainUtils.parseRawNormValue(fields, dataPos, 1.0f);
+            significance = fields.getFloat(dataPos, 1.0f);
             // if invalid weight, set it to 1f and warning in log
             if(Float.compare(significance, 0f) < 0) {
                 LOG.warn("The {} record in current worker weight {} is less than 0f, it is invalid, set it to 1.",
                         count, significance);
                 significance = 1f;
             }
-        } else if(this.weightColumnId > 0 && !this.isWeightColumnMeta && dataPos == fields.length) {
+        } else if(this.weightColumnId > 0 && !this.isWeightColumnMeta && dataPos == fields.size()) {
             // user specified the weight column, and it is not meta column
             // but it doesn't exist in normalized data set, throw error or use default?
             // OK, use default currently
@@ -270,6 +280,15 @@ public class NNWorker extends AbstractNNWorker<Text> {
      */
     @Override
     public void initRecordReader(GuaguaFileSplit fileSplit) throws IOException {
-        super.setRecordReader(new GuaguaLineRecordReader(fileSplit));
+        if(super.isBinaryNorm) {
+            this.normReader = new GuaguaNormBinaryRecordReader(fileSplit);
+            super.setRecordReader(this.normReader);
+        } else if(StringUtils.isBlank(super.dataCacheDir)) {
+            super.setRecordReader(new GuaguaLineRecordReader(fileSplit));
+        } else {
+            this.normReader = new GuaguaNormCacheRecordReader(fileSplit, super.dataCacheDir, super.delimiter,
+                    super.dataCacheKey);
+            super.setRecordReader(this.normReader);
+        }
     }
 }
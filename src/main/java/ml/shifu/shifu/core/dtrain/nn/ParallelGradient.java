@@ -98,6 +98,17 @@ public class ParallelGradient {
 
     private SubGradient[] subGradients;
 
+    /**
+     * Training data views opened by {@link FloatMLDataSet#openAdditional()}, one for each thread, null if training or
+     * testing data set doesn't support additional views and then all threads read shared data sets with lock.
+     */
+    private FloatMLDataSet[] trainingViews;
+
+    /**
+     * Testing data views opened by {@link FloatMLDataSet#openAdditional()}, one for each thread.
+     */
+    private FloatMLDataSet[] testingViews;
+
     /**
      * Create a thread pool to do gradient computing and test set error computing using multiple threads.
      */
@@ -122,6 +133,12 @@ public class ParallelGradient {
      * A shuffler to map indexes. If mini batch is enabled, this will be initialized to a permutation shuffler.
      */
     private Shuffler shuffler = null;
+
+    /**
+     * # of records computed in one block by {@link BatchBackPropagation}, records are computed one by one if it is not
+     * positive.
+     */
+    private int batchComputeSize = 0;
     
     private long trainSize;
     private long validationSize;
@@ -190,6 +207,40 @@ public class ParallelGradient {
         if (this.batchs > 1 && this.training instanceof BasicFloatMLData) {
             this.shuffler = new PermutationShuffler((int) this.training.getRecordCount());
         }
+        openViews();
+    }
+
+    /**
+     * Open one training and one testing view for each thread, views are only read by its own thread and no lock is
+     * needed to read records. Views are kept across iterations as opening file based views is not cheap.
+     */
+    private void openViews() {
+        FloatMLDataSet[] trainViews = new FloatMLDataSet[this.threadCount];
+        FloatMLDataSet[] testViews = new FloatMLDataSet[this.threadCount];
+        try {
+            for(int i = 0; i < this.threadCount; i++) {
+                trainViews[i] = this.training.openAdditional();
+                testViews[i] = this.testing.openAdditional();
+            }
+        } catch (UnsupportedOperationException e) {
+            LOG.warn("Data set {} or {} doesn't support additional views, records will be read with lock.",
+                    this.training.getClass().getName(), this.testing.getClass().getName());
+            closeViews(trainViews, testViews);
+            return;
+        }
+        this.trainingViews = trainViews;
+        this.testingViews = testViews;
+    }
+
+    private static void closeViews(FloatMLDataSet[] trainViews, FloatMLDataSet[] testViews) {
+        for(int i = 0; i < trainViews.length; i++) {
+            if(trainViews[i] != null) {
+                trainViews[i].close();
+            }
+            if(testViews[i] != null) {
+                testViews[i].close();
+            }
+        }
     }
 
     public double[] computeGradients(int currentIteration, Set<Integer> dropoutNodes) {
@@ -201,9 +252,18 @@ public class ParallelGradient {
         }
         for(int i = 0; i < this.threadCount; i++) {
             if(this.subGradients[i] == null) {
-                this.subGradients[i] = new SubGradient(this.network.clone(), this.training, this.trainLows[i],
-                        this.trainHighs[i], this.testing, this.testLows[i], this.testHighs[i], this.flatSpot,
-                        this.isCrossOver, this, this.batchs, currentIteration, dropoutNodes, threadCount, shuffler);
+                if(this.trainingViews == null) {
+                    this.subGradients[i] = new SubGradient(this.network.clone(), this.training, this.trainLows[i],
+                            this.trainHighs[i], this.testing, this.testLows[i], this.testHighs[i], this.flatSpot,
+                            this.isCrossOver, this, this.batchs, currentIteration, dropoutNodes, threadCount,
+                            shuffler);
+                } else {
+                    this.subGradients[i] = new SubGradient(this.network.clone(), this.trainingViews[i],
+                            this.trainLows[i], this.trainHighs[i], this.testingViews[i], this.testLows[i],
+                            this.testHighs[i], this.flatSpot, this.isCrossOver, this, this.batchs, currentIteration,
+                            dropoutNodes, threadCount, shuffler);
+                    this.subGradients[i].setDataLock(null);
+                }
             } else {
                 this.subGradients[i].setNetwork(this.network.clone());
                 this.subGradients[i].setDropoutNodes(dropoutNodes);
@@ -244,6 +304,21 @@ public class ParallelGradient {
         return finalGradients;
     }
 
+    /**
+     * @return # of records computed in one block in each thread, non-positive for record by record computing
+     */
+    public int getBatchComputeSize() {
+        return batchComputeSize;
+    }
+
+    /**
+     * @param batchComputeSize
+     *            # of records computed in one block in each thread, it should be set before first iteration
+     */
+    public void setBatchComputeSize(int batchComputeSize) {
+        this.batchComputeSize = batchComputeSize;
+    }
+
     /**
      * @return the seed
      */
@@ -377,6 +452,11 @@ public class ParallelGradient {
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
+        if(this.trainingViews != null) {
+            closeViews(this.trainingViews, this.testingViews);
+            this.trainingViews = null;
+            this.testingViews = null;
+        }
     }
 
     /**
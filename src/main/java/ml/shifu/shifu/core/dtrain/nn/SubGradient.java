@@ -154,6 +154,12 @@ public class SubGradient implements Callable<double[]> {
 
     private ParallelGradient owner;
 
+    /**
+     * Lock held when reading records, by default it is {@link #owner} as data sets are shared by all sub gradients. It
+     * is null if {@link #training} and {@link #testing} are views only used by this sub gradient.
+     */
+    private Object dataLock;
+
     private double[] doubleIdeal;
 
     /**
@@ -184,6 +190,11 @@ public class SubGradient implements Callable<double[]> {
     private double validationSum;
     private final Shuffler shuffler;
 
+    /**
+     * Block computing of training records, null if records are computed one by one.
+     */
+    private BatchBackPropagation batch;
+
     public SubGradient(final FloatFlatNetwork theNetwork, final FloatMLDataSet theTraining, long trainLow,
             long trainHigh, final FloatMLDataSet theTesting, long testLow, long testHigh, final double[] flatSpot,
             boolean isCrossOver, ParallelGradient owner, int batchs, int currentInteration, Set<Integer> dropoutNodes,
@@ -198,6 +209,7 @@ public class SubGradient implements Callable<double[]> {
         this.isCrossOver = isCrossOver;
         this.flatSpot = flatSpot;
         this.owner = owner;
+        this.dataLock = owner;
         this.errorFunction = this.owner.createEFInstance();
         this.layerDropoutRates = theNetwork.getLayerDropoutRates();
         this.initNetworkParams();
@@ -207,6 +219,11 @@ public class SubGradient implements Callable<double[]> {
         this.dropoutNodes = dropoutNodes;
         this.threadCount = threadCount;
         this.shuffler = shuffler;
+        int batchComputeSize = this.owner.getBatchComputeSize();
+        if(batchComputeSize > 0) {
+            this.batch = new BatchBackPropagation(theNetwork, flatSpot, this.errorFunction, batchComputeSize);
+            this.batch.setDropoutNodes(dropoutNodes);
+        }
     }
 
     private void initNetworkParams() {
@@ -364,29 +381,25 @@ public class SubGradient implements Callable<double[]> {
             }
 
             for(long i = start; i <= end; i++) {
-                synchronized(this.owner) {
-                    if(this.isCrossOver) {
-                        // 3:1 to select testing data set, tmp hard code, TODO fix hard code issue,extract such logic to
-                        // a method
-                        if((i + seed) % 4 < 3) {
-                            this.training.getRecord(this.shuffler == null ? i : this.shuffler.getIndex((int) i), this.pair);
-                        } else {
-                            long testingSize = this.testing.getRecordCount();
-                            // it's ok to take data from all testing set
-                            if(i < testingSize) {
-                                this.testing.getRecord(i, this.pair);
-                            } else {
-                                this.testing.getRecord(i % testingSize, this.pair);
-                            }
-                        }
-                    } else {
-                        this.training.getRecord(this.shuffler == null ? i : this.shuffler.getIndex((int) i), this.pair);
+                if(this.dataLock == null) {
+                    readTrainingRecord(i, this.pair);
+                } else {
+                    synchronized(this.dataLock) {
+                        readTrainingRecord(i, this.pair);
                     }
                 }
-                process(this.pair.getInputArray(), this.pair.getIdealArray(), pair.getSignificance());
+                if(this.batch == null) {
+                    process(this.pair.getInputArray(), this.pair.getIdealArray(), pair.getSignificance());
+                } else if(this.batch.add(this.pair.getInputArray(), this.pair.getIdealArray(),
+                        this.pair.getSignificance())) {
+                    this.batch.flush(this.gradients, this.errorCalculation);
+                }
                 this.trainSize += 1L;
                 this.trainSum += this.pair.getSignificance();
             }
+            if(this.batch != null) {
+                this.batch.flush(this.gradients, this.errorCalculation);
+            }
             this.error = this.errorCalculation.calculate();
         } catch (final Throwable ex) {
             throw new RuntimeException(ex);
@@ -394,6 +407,50 @@ public class SubGradient implements Callable<double[]> {
         return this.gradients;
     }
 
+    /**
+     * Read the i-th record of training range into pair, in cross over mode 1/4 records are taken from testing set.
+     */
+    private void readTrainingRecord(long i, FloatMLDataPair pair) {
+        if(this.isCrossOver) {
+            // 3:1 to select testing data set, tmp hard code, TODO fix hard code issue
+            if((i + seed) % 4 < 3) {
+                this.training.getRecord(this.shuffler == null ? i : this.shuffler.getIndex((int) i), pair);
+            } else {
+                long testingSize = this.testing.getRecordCount();
+                // it's ok to take data from all testing set
+                if(i < testingSize) {
+                    this.testing.getRecord(i, pair);
+                } else {
+                    this.testing.getRecord(i % testingSize, pair);
+                }
+            }
+        } else {
+            this.training.getRecord(this.shuffler == null ? i : this.shuffler.getIndex((int) i), pair);
+        }
+    }
+
+    /**
+     * Read the i-th record of testing range into pair, in cross over mode 1/4 records are taken from training set.
+     */
+    private void readTestingRecord(long i, FloatMLDataPair pair) {
+        if(this.isCrossOver) {
+            // 3:1 to select testing data set, tmp hard code, TODO fix hard code issue
+            if((i + seed) % 4 < 3) {
+                this.testing.getRecord(i, pair);
+            } else {
+                long trainingSize = this.training.getRecordCount();
+                // it's ok to take data from all training set
+                if(i < trainingSize) {
+                    this.training.getRecord(i, pair);
+                } else {
+                    this.training.getRecord(i % trainingSize, pair);
+                }
+            }
+        } else {
+            this.testing.getRecord(i, pair);
+        }
+    }
+
     /**
      * Calculate the error for this neural network. The error is calculated
      * using root-mean-square(RMS).
@@ -410,22 +467,11 @@ public class SubGradient implements Callable<double[]> {
         this.validationSum = 0d;
 
         for(long i = testLow; i <= testHigh; i++) {
-            synchronized(this.owner) {
-                if(this.isCrossOver) {
-                    // 3:1 to select testing data set, tmp hard code, TODO fix hard code issue
-                    if((i + seed) % 4 < 3) {
-                        this.testing.getRecord(i, pair);
-                    } else {
-                        long trainingSize = this.training.getRecordCount();
-                        // it's ok to take data from all training set
-                        if(i < trainingSize) {
-                            this.training.getRecord(i, pair);
-                        } else {
-                            this.training.getRecord(i % trainingSize, pair);
-                        }
-                    }
-                } else {
-                    this.testing.getRecord(i, pair);
+            if(this.dataLock == null) {
+                readTestingRecord(i, pair);
+            } else {
+                synchronized(this.dataLock) {
+                    readTestingRecord(i, pair);
                 }
             }
             ((FloatFlatNetwork) this.getNetwork()).compute(pair.getInputArray(), actual);
@@ -516,6 +562,17 @@ public class SubGradient implements Callable<double[]> {
     public void setNetwork(FloatFlatNetwork network) {
         this.network = network;
         this.weights = this.network.getWeights();
+        if(this.batch != null) {
+            this.batch.setNetwork(network);
+        }
+    }
+
+    /**
+     * @param dataLock
+     *            the lock to read records, null if training and testing data sets are confined to this sub gradient
+     */
+    public void setDataLock(Object dataLock) {
+        this.dataLock = dataLock;
     }
 
     public Set<Integer> getDropoutNodes() {
@@ -524,6 +581,9 @@ public class SubGradient implements Callable<double[]> {
 
     public void setDropoutNodes(Set<Integer> dropoutNodes) {
         this.dropoutNodes = dropoutNodes;
+        if(this.batch != null) {
+            this.batch.setDropoutNodes(dropoutNodes);
+        }
     }
 
     /**
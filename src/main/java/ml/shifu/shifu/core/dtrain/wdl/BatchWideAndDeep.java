@@ -0,0 +1,270 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.wdl;
+
+import java.util.List;
+
+import ml.shifu.shifu.core.dtrain.layer.DenseLayer;
+import ml.shifu.shifu.core.dtrain.layer.EmbedFieldLayer;
+import ml.shifu.shifu.core.dtrain.layer.Layer;
+import ml.shifu.shifu.core.dtrain.layer.WideDenseLayer;
+import ml.shifu.shifu.core.dtrain.layer.WideFieldLayer;
+import ml.shifu.shifu.core.dtrain.layer.WideLayer;
+import ml.shifu.shifu.core.dtrain.layer.activation.Activation;
+
+/**
+ * {@link BatchWideAndDeep} is to do forward computing of a block of records on one {@link WideAndDeep} model for
+ * inference. Each {@link DenseLayer} is computed as matrix-matrix product of record block and layer weights and
+ * {@link Activation} is computed in place, no array is allocated per record or per layer.
+ *
+ * <p>
+ * Per output summation order is the same as {@link WideAndDeep#forward(double[], List, List)} which makes logits
+ * bit-for-bit identical. Sparse inputs are category index with value 1 which is the same as
+ * {@link ml.shifu.shifu.core.dtrain.layer.SparseInput} used in {@link IndependentWDLModel}.
+ *
+ * <p>
+ * Such class is not thread-safe as layer buffers are shared, please use one instance per thread.
+ */
+public class BatchWideAndDeep {
+
+    /**
+     * Default # of records computed in one block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 128;
+
+    /**
+     * The model to be computed.
+     */
+    private final WideAndDeep wnd;
+
+    /**
+     * Max # of records in one block.
+     */
+    private final int blockSize;
+
+    /**
+     * Dense inputs merged with embedding outputs, the inputs of first hidden layer.
+     */
+    private final double[] deepInputs;
+
+    /**
+     * Width of {@link #deepInputs} for each record.
+     */
+    private final int deepInputSize;
+
+    /**
+     * Output buffers of hidden {@link DenseLayer}s in the same index of {@link WideAndDeep#getHiddenLayers()}, null
+     * for {@link Activation} which is computed in place.
+     */
+    private final double[][] hiddenOutputs;
+
+    /**
+     * Output buffer of final layer.
+     */
+    private final double[] finalOutputs;
+
+    @SuppressWarnings("rawtypes")
+    public BatchWideAndDeep(WideAndDeep wnd, int blockSize) {
+        if(blockSize <= 0) {
+            throw new IllegalArgumentException("Block size should be positive, but is " + blockSize);
+        }
+        this.wnd = wnd;
+        this.blockSize = blockSize;
+        this.finalOutputs = new double[blockSize];
+        if(!wnd.isDeepEnable()) {
+            this.deepInputSize = 0;
+            this.deepInputs = null;
+            this.hiddenOutputs = null;
+            return;
+        }
+
+        int inputSize = wnd.getDil().getOutDim();
+        if(wnd.isEmbedEnable()) {
+            inputSize += wnd.getEcl().getOutDim();
+        }
+        this.deepInputSize = inputSize;
+        this.deepInputs = new double[blockSize * inputSize];
+        List<Layer> hiddenLayers = wnd.getHiddenLayers();
+        this.hiddenOutputs = new double[hiddenLayers.size()][];
+        for(int i = 0; i < hiddenLayers.size(); i++) {
+            if(hiddenLayers.get(i) instanceof DenseLayer) {
+                this.hiddenOutputs[i] = new double[blockSize * ((DenseLayer) hiddenLayers.get(i)).getOut()];
+            }
+        }
+    }
+
+    /**
+     * Compute logits of a block of records.
+     *
+     * @param denseInputs
+     *            dense inputs in row-major layout, record r starts at r * {@link WideAndDeep#getDenseColumnIds()} size
+     * @param embedIndices
+     *            category indexes of embed columns in row-major layout, record r starts at r *
+     *            {@link WideAndDeep#getEmbedColumnIds()} size
+     * @param wideIndices
+     *            category indexes of wide columns in row-major layout, record r starts at r *
+     *            {@link WideAndDeep#getWideColumnIds()} size
+     * @param rows
+     *            # of records which should not be larger than block size
+     * @param logits
+     *            output logits, one logit per record
+     * @param offset
+     *            offset in logits of the first record
+     */
+    public void forward(double[] denseInputs, int[] embedIndices, int[] wideIndices, int rows, double[] logits,
+            int offset) {
+        if(rows > this.blockSize) {
+            throw new IllegalArgumentException("Rows " + rows + " is larger than block size " + this.blockSize);
+        }
+        if(!this.wnd.isDeepEnable()) {
+            // wide only mode
+            forwardWide(denseInputs, wideIndices, rows, logits, offset);
+            return;
+        }
+
+        double[] dnnLogits = forwardDeep(denseInputs, embedIndices, rows);
+        if(!this.wnd.isWideEnable()) {
+            // deep only mode
+            System.arraycopy(dnnLogits, 0, logits, offset, rows);
+            return;
+        }
+
+        forwardWide(denseInputs, wideIndices, rows, logits, offset);
+        DenseLayer wdLayer = this.wnd.getWdLayer();
+        double[][] weights = wdLayer.getWeights();
+        double bias = wdLayer.getBias()[0];
+        for(int r = 0; r < rows; r++) {
+            double result = 0d;
+            result += logits[offset + r] * weights[0][0];
+            result += dnnLogits[r] * weights[1][0];
+            result += bias;
+            logits[offset + r] = result;
+        }
+    }
+
+    private void forwardWide(double[] denseInputs, int[] wideIndices, int rows, double[] logits, int offset) {
+        WideLayer wl = this.wnd.getWl();
+        List<WideFieldLayer> fieldLayers = wl.getLayers();
+        int fields = fieldLayers.size();
+        WideDenseLayer denseLayer = wl.isWideDenseEnable() ? wl.getDenseLayer() : null;
+        int denseSize = this.wnd.getDenseColumnIds().size();
+        double bias = wl.getBias().getWeight();
+        for(int r = 0; r < rows; r++) {
+            double result = 0d;
+            for(int i = 0; i < fields; i++) {
+                double[] weights = fieldLayers.get(i).getWeights();
+                int valueIndex = wideIndices[r * fields + i];
+                result += (valueIndex < weights.length && valueIndex >= 0) ? weights[valueIndex] : 0d;
+            }
+            if(denseLayer != null) {
+                double[] weights = denseLayer.getWeights();
+                double denseForward = 0d;
+                for(int i = 0, index = r * denseSize; i < denseSize; i++, index++) {
+                    denseForward += denseInputs[index] * weights[i];
+                }
+                result += denseForward;
+            }
+            result += bias;
+            logits[offset + r] = result;
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private double[] forwardDeep(double[] denseInputs, int[] embedIndices, int rows) {
+        // merge dense inputs and embedding outputs
+        int denseSize = this.wnd.getDenseColumnIds().size();
+        List<EmbedFieldLayer> embedLayers = this.wnd.isEmbedEnable() ? this.wnd.getEcl().getEmbedLayers() : null;
+        for(int r = 0; r < rows; r++) {
+            int index = r * this.deepInputSize;
+            System.arraycopy(denseInputs, r * denseSize, this.deepInputs, index, denseSize);
+            index += denseSize;
+            if(embedLayers != null) {
+                int fields = embedLayers.size();
+                for(int i = 0; i < fields; i++) {
+                    EmbedFieldLayer embedLayer = embedLayers.get(i);
+                    double[][] weights = embedLayer.getWeights();
+                    int out = embedLayer.getOut();
+                    int valueIndex = embedIndices[r * fields + i];
+                    if(valueIndex < weights.length && valueIndex >= 0) {
+                        System.arraycopy(weights[valueIndex], 0, this.deepInputs, index, out);
+                    } else {
+                        for(int j = index; j < index + out; j++) {
+                            this.deepInputs[j] = 0d;
+                        }
+                    }
+                    index += out;
+                }
+            }
+        }
+
+        double[] inputs = this.deepInputs;
+        int inputSize = this.deepInputSize;
+        List<Layer> hiddenLayers = this.wnd.getHiddenLayers();
+        for(int i = 0; i < hiddenLayers.size(); i++) {
+            Layer layer = hiddenLayers.get(i);
+            if(layer instanceof DenseLayer) {
+                DenseLayer dl = (DenseLayer) layer;
+                forwardDense(dl, inputs, inputSize, rows, this.hiddenOutputs[i]);
+                inputs = this.hiddenOutputs[i];
+                inputSize = dl.getOut();
+            } else if(layer instanceof Activation) {
+                Activation acti = (Activation) layer;
+                for(int r = 0; r < rows; r++) {
+                    acti.forwardInPlace(inputs, r * inputSize, inputSize);
+                }
+            }
+        }
+        forwardDense(this.wnd.getFinalLayer(), inputs, inputSize, rows, this.finalOutputs);
+        return this.finalOutputs;
+    }
+
+    /**
+     * Matrix-matrix product of record block and weights, each output is accumulated in the same input order of
+     * {@link DenseLayer#forward(double[])} and then bias is added.
+     */
+    private void forwardDense(DenseLayer layer, double[] inputs, int inputSize, int rows, double[] outputs) {
+        double[][] weights = layer.getWeights();
+        double[] bias = layer.getBias();
+        int out = layer.getOut();
+        for(int k = 0, limit = rows * out; k < limit; k++) {
+            outputs[k] = 0d;
+        }
+        for(int j = 0; j < inputSize; j++) {
+            double[] wj = weights[j];
+            for(int r = 0; r < rows; r++) {
+                double input = inputs[r * inputSize + j];
+                int index = r * out;
+                for(int i = 0; i < out; i++) {
+                    outputs[index + i] += input * wj[i];
+                }
+            }
+        }
+        for(int r = 0; r < rows; r++) {
+            int index = r * out;
+            for(int i = 0; i < out; i++) {
+                outputs[index + i] += bias[i];
+            }
+        }
+    }
+
+    /**
+     * @return max # of records in one block
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+}
@@ -132,6 +132,12 @@ public class IndependentWDLModel {
 
     private Map<Integer, Map<String, Double>> binPosRateMap;
 
+    /**
+     * Per thread batch computing state, batch engine and block buffers are not thread-safe and lazily created in first
+     * batch computing of each thread.
+     */
+    private final ThreadLocal<BatchState> batchStates = new ThreadLocal<BatchState>();
+
     private IndependentWDLModel(WideAndDeep wideAndDeep, NormType normType, Map<Integer, Double> cutOffMap,
             Map<Integer, String> numNameMap, Map<Integer, Map<String, Integer>> cateIndexMap,
             Map<Integer, List<Double>> numerBinBoundaries, Map<Integer, List<Double>> numerWoes,
@@ -219,6 +225,143 @@ public class IndependentWDLModel {
         return compute(getDenseInputs(data), getEmbedInputs(data), getWideInputs(data));
     }
 
+    /**
+     * Compute scores of a block of records in row-major layout. Records are computed block by block with
+     * {@link BatchWideAndDeep} and block buffers reused per thread, scores are bit-for-bit identical to
+     * {@link #compute(double[])}.
+     *
+     * @param data
+     *            records in row-major layout, record r starts at r * columnNumIndexMapping.size(), each record is the
+     *            same as data in {@link #compute(double[])}
+     * @param numRecords
+     *            # of records in data
+     * @param scores
+     *            output buffer to be reused, if null or length not enough, a new array is created
+     * @return scores of all records, one score per record
+     */
+    public double[] computeBatch(double[] data, int numRecords, double[] scores) {
+        return computeBatch(data, null, numRecords, scores);
+    }
+
+    /**
+     * Compute scores of a block of records in columnar layout, see {@link #computeBatch(double[], int, double[])}.
+     *
+     * @param columns
+     *            records in columnar layout, columns[i][r] is input i of record r
+     * @param numRecords
+     *            # of records in each column
+     * @param scores
+     *            output buffer to be reused, if null or length not enough, a new array is created
+     * @return scores of all records, one score per record
+     */
+    public double[] computeBatch(double[][] columns, int numRecords, double[] scores) {
+        return computeBatch(null, columns, numRecords, scores);
+    }
+
+    private double[] computeBatch(double[] data, double[][] columns, int numRecords, double[] scores) {
+        BatchState state = this.batchStates.get();
+        if(state == null) {
+            state = new BatchState(this.wnd, getInputIndexes(this.wnd.getDenseColumnIds()),
+                    getInputIndexes(this.wnd.getEmbedColumnIds()), getInputIndexes(this.wnd.getWideColumnIds()));
+            this.batchStates.set(state);
+        }
+        double[] results = (scores != null && scores.length >= numRecords) ? scores : new double[numRecords];
+        int blockSize = state.batchWnd.getBlockSize();
+        for(int start = 0; start < numRecords; start += blockSize) {
+            int rows = Math.min(blockSize, numRecords - start);
+            if(columns != null) {
+                state.fillInputs(columns, start, rows);
+            } else {
+                state.fillInputs(data, this.columnNumIndexMapping.size(), start, rows);
+            }
+            state.batchWnd.forward(state.denseInputs, state.embedInputs, state.wideInputs, rows, results, start);
+        }
+        for(int r = 0; r < numRecords; r++) {
+            results[r] = sigmoid(results[r]);
+        }
+        return results;
+    }
+
+    private int[] getInputIndexes(List<Integer> columnIds) {
+        int[] indexes = new int[columnIds.size()];
+        for(int i = 0; i < indexes.length; i++) {
+            Integer index = this.columnNumIndexMapping.get(columnIds.get(i));
+            if(index == null) {
+                throw new ShifuException(ShifuErrorCode.ERROR_LESS_COL);
+            }
+            indexes[i] = index;
+        }
+        return indexes;
+    }
+
+    /**
+     * Batch computing engine and reusable block buffers owned by one scoring thread, weights are shared with
+     * {@link #wnd}.
+     */
+    private static class BatchState {
+
+        private final BatchWideAndDeep batchWnd;
+
+        /**
+         * Input indexes of dense, embed and wide columns in data array.
+         */
+        private final int[] denseIndexes, embedIndexes, wideIndexes;
+
+        /**
+         * Block buffers of dense inputs, embed and wide category indexes.
+         */
+        private final double[] denseInputs;
+
+        private final int[] embedInputs, wideInputs;
+
+        private BatchState(WideAndDeep wnd, int[] denseIndexes, int[] embedIndexes, int[] wideIndexes) {
+            int blockSize = BatchWideAndDeep.DEFAULT_BLOCK_SIZE;
+            this.batchWnd = new BatchWideAndDeep(wnd, blockSize);
+            this.denseIndexes = denseIndexes;
+            this.embedIndexes = embedIndexes;
+            this.wideIndexes = wideIndexes;
+            this.denseInputs = new double[blockSize * denseIndexes.length];
+            this.embedInputs = new int[blockSize * embedIndexes.length];
+            this.wideInputs = new int[blockSize * wideIndexes.length];
+        }
+
+        private void fillInputs(double[] data, int inputSize, int start, int rows) {
+            for(int r = 0; r < rows; r++) {
+                int offset = (start + r) * inputSize;
+                for(int i = 0; i < this.denseIndexes.length; i++) {
+                    this.denseInputs[r * this.denseIndexes.length + i] = data[offset + this.denseIndexes[i]];
+                }
+                for(int i = 0; i < this.embedIndexes.length; i++) {
+                    this.embedInputs[r * this.embedIndexes.length + i] = (int) data[offset + this.embedIndexes[i]];
+                }
+                for(int i = 0; i < this.wideIndexes.length; i++) {
+                    this.wideInputs[r * this.wideIndexes.length + i] = (int) data[offset + this.wideIndexes[i]];
+                }
+            }
+        }
+
+        private void fillInputs(double[][] columns, int start, int rows) {
+            for(int i = 0; i < this.denseIndexes.length; i++) {
+                double[] column = columns[this.denseIndexes[i]];
+                for(int r = 0; r < rows; r++) {
+                    this.denseInputs[r * this.denseIndexes.length + i] = column[start + r];
+                }
+            }
+            for(int i = 0; i < this.embedIndexes.length; i++) {
+                double[] column = columns[this.embedIndexes[i]];
+                for(int r = 0; r < rows; r++) {
+                    this.embedInputs[r * this.embedIndexes.length + i] = (int) column[start + r];
+                }
+            }
+            for(int i = 0; i < this.wideIndexes.length; i++) {
+                double[] column = columns[this.wideIndexes[i]];
+                for(int r = 0; r < rows; r++) {
+                    this.wideInputs[r * this.wideIndexes.length + i] = (int) column[start + r];
+                }
+            }
+        }
+    }
+
     /**
      * Load model instance from input stream which is saved in WDLOutput for specified binary format.
      *
@@ -122,6 +122,12 @@ public class WDLMaster extends AbstractMasterComputable<WDLParams, WDLParams> {
     @SuppressWarnings("unused")
     private Optimizer optimizer;
 
+    /**
+     * Number of iterations between full weights sent to workers, in other iterations only embedding and wide weights
+     * updated in current iteration are sent. Non-positive value to send full weights in each iteration.
+     */
+    private int fullWeightsInterval;
+
     @SuppressWarnings({ "unchecked", "unused" })
     @Override
     public void init(MasterContext<WDLParams, WDLParams> context) {
@@ -143,6 +149,8 @@ public class WDLMaster extends AbstractMasterComputable<WDLParams, WDLParams> {
 
         this.isContinuousEnabled = Boolean.TRUE.toString()
                 .equalsIgnoreCase(context.getProps().getProperty(CommonConstants.CONTINUOUS_TRAINING));
+        this.fullWeightsInterval = NumberUtils
+                .toInt(context.getProps().getProperty(CommonConstants.SHIFU_WDL_FULL_WEIGHTS_INTERVAL), 0);
 
         // Build wide and deep graph
         List<Integer> embedColumnIds = (List<Integer>) this.validParams.get(CommonConstants.NUM_EMBED_COLUMN_IDS);
@@ -215,7 +223,10 @@ public class WDLMaster extends AbstractMasterComputable<WDLParams, WDLParams> {
         WDLParams aggregation = aggregateWorkerGradients(context);
 
         // apply optimizer
-        this.wnd.optimizeWeight(aggregation.getTrainSize(), context.getCurrentIteration() - 1, aggregation.getWnd());
+        if(aggregation.getWnd() != null) {
+            this.wnd.optimizeWeight(aggregation.getTrainSize(), context.getCurrentIteration() - 1,
+                    aggregation.getWnd());
+        }
         // this.wnd.update(aggregation.getWnd(), optimizer, aggregation.getTrainSize());
 
         // construct master result which contains WideAndDeep current model weights
@@ -226,13 +237,33 @@ public class WDLMaster extends AbstractMasterComputable<WDLParams, WDLParams> {
         params.setValidationError(aggregation.getValidationError());
         params.setTrainSize(aggregation.getTrainSize());
         params.setValidationSize(aggregation.getValidationSize());
-        params.setSerializationType(SerializationType.WEIGHTS);
-        this.wnd.setSerializationType(SerializationType.WEIGHTS);
+        SerializationType serializationType = isFullWeights(context) ? SerializationType.WEIGHTS
+                : SerializationType.SPARSE_WEIGHTS;
+        params.setSerializationType(serializationType);
+        this.wnd.setSerializationType(serializationType);
         params.setWnd(this.wnd);
 
         return params;
     }
 
+    /**
+     * Full weights are sent if sparse weights not enabled, or in each {@link #fullWeightsInterval} iterations, or if
+     * some worker returns no gradients, which means such worker cannot apply sparse weights of current iteration.
+     */
+    private boolean isFullWeights(MasterContext<WDLParams, WDLParams> context) {
+        if(this.fullWeightsInterval <= 0 || context.getCurrentIteration() % this.fullWeightsInterval == 0) {
+            return true;
+        }
+        for(WDLParams params: context.getWorkerResults()) {
+            if(params.getWnd() == null) {
+                LOG.info("Worker without gradients in iteration {}, send full weights.",
+                        context.getCurrentIteration());
+                return true;
+            }
+        }
+        return false;
+    }
+
     private WDLParams aggregateWorkerGradients(MasterContext<WDLParams, WDLParams> context) {
         WDLParams aggregation = null;
         for(WDLParams params: context.getWorkerResults()) {
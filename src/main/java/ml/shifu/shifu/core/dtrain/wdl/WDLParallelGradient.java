@@ -15,13 +15,13 @@
  */
 package ml.shifu.shifu.core.dtrain.wdl;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
 
 import ml.shifu.shifu.util.Shuffler;
 import org.encog.mathutil.BoundMath;
@@ -195,10 +195,22 @@ public class WDLParallelGradient {
 
         private ErrorCalculation errorCalculation;
 
+        /**
+         * Per record inputs and outputs reused in this task to avoid allocations in forward and backward.
+         */
+        private final List<SparseInput> embedInputs = new ArrayList<>();
+
+        private final List<SparseInput> wideInputs = new ArrayList<>();
+
+        private final double[] predicts = new double[1];
+
+        private final double[] actuals = new double[1];
+
         public GradientTask(final WideAndDeep wdl, ConcurrentMap<Integer, Integer> inputIndexMap,
                 final MemoryLimitedList<WDLWorker.Data> trainData, final MemoryLimitedList<WDLWorker.Data> testData,
                 int trainLow, int trainHigh, int testLow, int testHigh, LossType lossType, Shuffler shuffler) {
             this.wnd = wdl.clone();
+            this.wnd.setReuseBuffers(true);
             this.inputIndexMap = inputIndexMap;
             this.trainData = trainData;
             this.testData = testData;
@@ -220,13 +232,20 @@ public class WDLParallelGradient {
         }
 
         private List<SparseInput> getWideInputs(WDLWorker.Data data) {
-            return this.wnd.getWideColumnIds().stream()
-                    .map(id -> data.getCategoricalValues()[this.inputIndexMap.get(id)]).collect(Collectors.toList());
+            return getSparseInputs(data, this.wnd.getWideColumnIds(), this.wideInputs);
         }
 
         private List<SparseInput> getEmbedInputs(WDLWorker.Data data) {
-            return this.wnd.getEmbedColumnIds().stream()
-                    .map(id -> data.getCategoricalValues()[this.inputIndexMap.get(id)]).collect(Collectors.toList());
+            return getSparseInputs(data, this.wnd.getEmbedColumnIds(), this.embedInputs);
+        }
+
+        private List<SparseInput> getSparseInputs(WDLWorker.Data data, List<Integer> columnIds,
+                List<SparseInput> inputs) {
+            inputs.clear();
+            for(int i = 0; i < columnIds.size(); i++) {
+                inputs.add(data.getCategoricalValues()[this.inputIndexMap.get(columnIds.get(i))]);
+            }
+            return inputs;
         }
 
         private double sigmoid(double logit) {
@@ -260,8 +279,9 @@ public class WDLParallelGradient {
                         getWideInputs(data));
                 double predict = sigmoid(logits[0]);
                 trainSumError += this.errorCalculation.updateError(predict, data.getLabel()) * data.getWeight();
-                this.wnd.backward(new double[] { predict }, new double[] { data.getLabel() }, data.getWeight(),
-                        this.lossType);
+                this.predicts[0] = predict;
+                this.actuals[0] = data.getLabel();
+                this.wnd.backward(this.predicts, this.actuals, data.getWeight(), this.lossType);
                 index += 1;
             }
             TASK_LOG.info("Worker with training time {} ms.", (System.currentTimeMillis() - start));
@@ -162,7 +162,7 @@ public class WDLParams extends HaltBytable implements Combinable<WDLParams> {
         this.validationSize += from.validationSize;
         // In the first iteration, the worker may send a empty WDLParams without WideAndDeep Init
         if(from.getWnd() != null) {
-            this.wnd = this.wnd.combine(from.getWnd());
+            this.wnd = this.wnd == null ? from.getWnd() : this.wnd.combine(from.getWnd());
         }
         return this;
     }
@@ -194,6 +194,8 @@ public class WDLParams extends HaltBytable implements Combinable<WDLParams> {
                 this.wnd = new WideAndDeep();
             }
             this.wnd.readFields(in);
+        } else {
+            this.wnd = null;
         }
         this.trainCount = in.readDouble();
         this.validationCount = in.readDouble();
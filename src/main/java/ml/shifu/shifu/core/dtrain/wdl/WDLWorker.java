@@ -43,14 +43,11 @@ import org.junit.Assert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Splitter;
-
 import ml.shifu.guagua.ComputableMonitor;
 import ml.shifu.guagua.hadoop.io.GuaguaLineRecordReader;
 import ml.shifu.guagua.hadoop.io.GuaguaWritableAdapter;
 import ml.shifu.guagua.io.GuaguaFileSplit;
 import ml.shifu.guagua.util.MemoryLimitedList;
-import ml.shifu.guagua.util.NumberFormatUtils;
 import ml.shifu.guagua.worker.AbstractWorkerComputable;
 import ml.shifu.guagua.worker.WorkerContext;
 import ml.shifu.guagua.worker.WorkerContext.WorkerCompletionCallBack;
@@ -60,10 +57,14 @@ import ml.shifu.shifu.container.obj.ModelNormalizeConf.NormType;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.dtrain.CommonConstants;
 import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.NormFields;
 import ml.shifu.shifu.core.dtrain.layer.SerializationType;
 import ml.shifu.shifu.core.dtrain.layer.SparseInput;
 import ml.shifu.shifu.core.dtrain.loss.LossType;
 import ml.shifu.shifu.core.dtrain.nn.NNConstants;
+import ml.shifu.shifu.guagua.GuaguaNormBinaryRecordReader;
+import ml.shifu.shifu.guagua.GuaguaNormCacheRecordReader;
+import ml.shifu.shifu.guagua.GuaguaNormRecordReader;
 import ml.shifu.shifu.util.CommonUtils;
 import ml.shifu.shifu.util.Constants;
 import ml.shifu.shifu.util.MapReduceUtils;
@@ -188,9 +189,36 @@ public class WDLWorker extends
     private Map<Integer, Map<String, Integer>> columnCategoryIndexMapping;
 
     /**
-     * A splitter to split data with specified delimiter.
+     * The decoded delimiter to split normalized data.
+     */
+    private String normDelimiter;
+
+    /**
+     * The delimiter of normalization data set
+     */
+    private String delimiter;
+
+    /**
+     * Folder of parsed normalization data cache, null if cache is not enabled
      */
-    private Splitter splitter;
+    private String dataCacheDir;
+
+    /**
+     * Config key of parsed normalization data cache
+     */
+    private String dataCacheKey;
+
+    /**
+     * If normalized data is in binary format
+     */
+    private boolean isBinaryNorm;
+
+    /**
+     * Reader of parsed fields of current split if normalized data is binary or normalization data cache is enabled
+     */
+    private GuaguaNormRecordReader normReader;
+
+    private final NormFields normFields = new NormFields();
 
     /**
      * Index map in which column index and data input array index for fast location.
@@ -283,6 +311,12 @@ public class WDLWorker extends
      */
     private Shuffler shuffler = null;
 
+    /**
+     * Last iteration in which master weights are applied to {@link #wnd}, sparse weights from master can only be
+     * applied on weights of last iteration.
+     */
+    private int lastWeightsIteration = -1;
+
     private boolean isLog = true;
 
     /**
@@ -339,7 +373,9 @@ public class WDLWorker extends
             LOG.info("Read {} records.", this.count);
         }
 
-        List<String> fields = CommonUtils.splitAndReturnList(currentValue.getWritable().toString(), this.splitter);
+        NormFields fields = this.normReader == null
+                ? this.normFields.reset(currentValue.getWritable().toString(), this.normDelimiter)
+                : this.normReader.getCurrentFields();
         if (this.count == 1) {
             configureCompactMode(fields.size());
         }
@@ -358,7 +394,7 @@ public class WDLWorker extends
         }
         for (ColumnConfig config : columnConfigList) {
             if (config.isTarget()) {
-                ideal = getDoubleValue(fields.get(index++));
+                ideal = fields.getDouble(index++, 0d);
             } else if (config.isMeta()) {
                 // In compact mode, the data column will be missing if it is not selected.
                 index += 1;
@@ -366,27 +402,23 @@ public class WDLWorker extends
                 // valid column should have data whether it is compact mode or not.
                 if (this.isNormWithIndex) {
                     // For data which has index, we fetch two data columns.
-                    String firstInput = fields.get(index++);
-                    inputs[numIndex] = getDoubleValue(firstInput);
+                    inputs[numIndex] = fields.getDouble(index, 0d);
                     this.inputIndexMap.putIfAbsent(config.getColumnNum(), numIndex++);
-                    hashcode = hashcode * 31 + firstInput.hashCode();
+                    hashcode = hashcode * 31 + fields.fieldHash(index++);
 
-                    String secondInput = fields.get(index++);
-                    cateInputs[cateIndex] = new SparseInput(config.getColumnNum(), (int) getDoubleValue(secondInput));
+                    cateInputs[cateIndex] = new SparseInput(config.getColumnNum(), (int) fields.getDouble(index, 0d));
                     this.inputIndexMap.putIfAbsent(config.getColumnNum(), cateIndex++);
-                    hashcode = hashcode * 31 + secondInput.hashCode();
+                    hashcode = hashcode * 31 + fields.fieldHash(index++);
                 } else if (config.isNumerical()) {
                     // For data which has no index, we fetch one data column. This is for numeric.
-                    String input = fields.get(index++);
-                    inputs[numIndex] = getDoubleValue(input);
+                    inputs[numIndex] = fields.getDouble(index, 0d);
                     this.inputIndexMap.putIfAbsent(config.getColumnNum(), numIndex++);
-                    hashcode = hashcode * 31 + input.hashCode();
+                    hashcode = hashcode * 31 + fields.fieldHash(index++);
                 } else if (config.isCategorical()) {
                     // For data which has no index, we fetch one data column. This is for category.
-                    String input = fields.get(index++);
-                    cateInputs[cateIndex] = new SparseInput(config.getColumnNum(), (int) getDoubleValue(input));
+                    cateInputs[cateIndex] = new SparseInput(config.getColumnNum(), (int) fields.getDouble(index, 0d));
                     this.inputIndexMap.putIfAbsent(config.getColumnNum(), cateIndex++);
-                    hashcode = hashcode * 31 + input.hashCode();
+                    hashcode = hashcode * 31 + fields.fieldHash(index++);
                 }
             } else if (!isCompactMode){
                 // Not target, meta column, and not final select. So it is numeric or category column with out final select.
@@ -394,7 +426,7 @@ public class WDLWorker extends
                 index += this.isNormWithIndex ? 2 : 1;
             }
         }
-        significance = getWeightValue(fields.get(index++));
+        significance = getWeightValue(fields, index++);
 
         // output delimiter in norm can be set by user now and if user set a special one later changed, this exception
         // is helped to quick find such issue, here only check numerical array
@@ -650,11 +682,10 @@ public class WDLWorker extends
         return shortValue;
     }
 
-    private double getWeightValue(String input) {
+    private double getWeightValue(NormFields fields, int index) {
         double significance = 1d;
         if(StringUtils.isNotBlank(modelConfig.getWeightColumnName())) {
-            // check here to avoid bad performance in failed NumberFormatUtils.getDouble(input, 1d)
-            significance = input.length() == 0 ? 1d : NumberFormatUtils.getDouble(input, 1d);
+            significance = fields.getDouble(index, 1d);
             // if invalid weight, set it to 1d and warning in log
             if(significance < 0d) {
                 LOG.warn("Record {} with weight {} is less than 0 and invalid, set it to 1.", count, significance);
@@ -664,17 +695,19 @@ public class WDLWorker extends
         return significance;
     }
 
-    private double getDoubleValue(String input) {
-        // check here to avoid bad performance in failed NumberFormatUtils.getDouble(input, 0d)
-        double doubleValue = input.length() == 0 ? 0d : NumberFormatUtils.getDouble(input, 0d);
-        // no idea about why NaN in input data, we should process it as missing value TODO , according to norm type
-        return (Double.isNaN(doubleValue) || Double.isNaN(doubleValue)) ? 0d : doubleValue;
-    }
-
     @Override
     public void initRecordReader(GuaguaFileSplit fileSplit) throws IOException {
-        // initialize Hadoop based line (long, string) reader
-        super.setRecordReader(new GuaguaLineRecordReader(fileSplit));
+        if(this.isBinaryNorm) {
+            this.normReader = new GuaguaNormBinaryRecordReader(fileSplit);
+            super.setRecordReader(this.normReader);
+        } else if(StringUtils.isBlank(this.dataCacheDir)) {
+            // initialize Hadoop based line (long, string) reader
+            super.setRecordReader(new GuaguaLineRecordReader(fileSplit));
+        } else {
+            this.normReader = new GuaguaNormCacheRecordReader(fileSplit, this.dataCacheDir, this.delimiter,
+                    this.dataCacheKey);
+            super.setRecordReader(this.normReader);
+        }
     }
 
     @SuppressWarnings({ "unchecked", "unused" })
@@ -695,9 +728,15 @@ public class WDLWorker extends
         this.initCateIndexMap();
         this.hasCandidates = CommonUtils.hasCandidateColumns(columnConfigList);
 
-        // create Splitter
-        String delimiter = context.getProps().getProperty(Constants.SHIFU_OUTPUT_DATA_DELIMITER);
-        this.splitter = MapReduceUtils.generateShifuOutputSplitter(delimiter);
+        // decode delimiter
+        this.delimiter = context.getProps().getProperty(Constants.SHIFU_OUTPUT_DATA_DELIMITER);
+        this.normDelimiter = MapReduceUtils.getShifuOutputDelimiter(this.delimiter);
+        this.dataCacheDir = context.getProps().getProperty(CommonConstants.SHIFU_TRAIN_DATA_CACHE_DIR);
+        if(StringUtils.isNotBlank(this.dataCacheDir)) {
+            this.dataCacheKey = GuaguaNormCacheRecordReader.configKey(this.modelConfig, this.columnConfigList);
+        }
+        this.isBinaryNorm = Boolean.TRUE.toString()
+                .equalsIgnoreCase(context.getProps().getProperty(CommonConstants.SHIFU_NORM_BINARY));
 
         Integer kCrossValidation = this.modelConfig.getTrain().getNumKFold();
         if(kCrossValidation != null && kCrossValidation > 0) {
@@ -857,7 +896,17 @@ public class WDLWorker extends
         }
 
         // update master global model into worker WideAndDeep graph
-        this.wnd.updateWeights(context.getLastMasterResult());
+        WDLParams lastMasterResult = context.getLastMasterResult();
+        if(lastMasterResult.getSerializationType() == SerializationType.SPARSE_WEIGHTS
+                && this.lastWeightsIteration != context.getCurrentIteration() - 1) {
+            // like a restarted worker, weights of last iteration are missing; return empty and master would send full
+            // weights in next iteration
+            LOG.warn("Sparse weights cannot be applied in iteration {}, last weights iteration {}.",
+                    context.getCurrentIteration(), this.lastWeightsIteration);
+            return new WDLParams();
+        }
+        this.wnd.updateWeights(lastMasterResult);
+        this.lastWeightsIteration = context.getCurrentIteration();
         if (this.shuffler != null) {
             // refresh shuffle mapping for each iteration
             this.shuffler.refresh();
@@ -138,6 +138,28 @@ public class WideAndDeep
      */
     private boolean wideDenseEnable = true;
 
+    /**
+     * Workspaces reused by {@link #forward(double[], List, List)} and
+     * {@link #backward(double[], double[], double, LossType)} for each record. Backward workspaces are always reused as
+     * each training thread works on its own cloned model, forward workspaces are only reused if
+     * {@link #setReuseBuffers(boolean)} as shared models are used by concurrent scoring threads.
+     */
+    private final Tuple<List<SparseInput>, double[]> wideLayerInputs = new Tuple<>(null, null);
+
+    private final double[] wdInputs = new double[2];
+
+    private double[] mergedInputs;
+
+    private double[] grad2Logits;
+
+    private final double[] wideBackInputs = new double[1];
+
+    private final double[] deepBackInputs = new double[1];
+
+    private final List<double[]> embedBackInputs = new ArrayList<>();
+
+    private boolean reuseBuffers;
+
     private boolean isDebug = false;
 
     /**
@@ -249,7 +271,13 @@ public class WideAndDeep
     public double[] forward(double[] denseInputs, List<SparseInput> embedInputs, List<SparseInput> wideInputs) {
         double[] wlLogits = null;
         if(this.wideEnable) {
-            wlLogits = this.wl.forward(new Tuple(wideInputs, denseInputs));
+            if(this.reuseBuffers) {
+                this.wideLayerInputs.setFirst(wideInputs);
+                this.wideLayerInputs.setSecond(denseInputs);
+                wlLogits = this.wl.forward(this.wideLayerInputs);
+            } else {
+                wlLogits = this.wl.forward(new Tuple(wideInputs, denseInputs));
+            }
         }
 
         if(!this.deepEnable) { // wide only mode
@@ -279,7 +307,10 @@ public class WideAndDeep
                 return dnnLogits;
             } else { // wide and deep
                 AssertUtils.assertDoubleArrayNotNullAndLengthEqual(wlLogits, dnnLogits);
-                double[] logits = this.wdLayer.forward(new double[] { wlLogits[0], dnnLogits[0] });
+                double[] wdInputs = this.reuseBuffers ? this.wdInputs : new double[2];
+                wdInputs[0] = wlLogits[0];
+                wdInputs[1] = dnnLogits[0];
+                double[] logits = this.wdLayer.forward(wdInputs);
                 return logits;
             }
         }
@@ -294,7 +325,10 @@ public class WideAndDeep
 
     @SuppressWarnings("rawtypes")
     public double[] backward(double[] predicts, double[] actuals, double sig, LossType lossType) {
-        double[] grad2Logits = new double[predicts.length];
+        if(this.grad2Logits == null || this.grad2Logits.length != predicts.length) {
+            this.grad2Logits = new double[predicts.length];
+        }
+        double[] grad2Logits = this.grad2Logits;
         for(int i = 0; i < grad2Logits.length; i++) {
             double error = (predicts[i] - actuals[i]);
             switch(lossType) {
@@ -312,9 +346,11 @@ public class WideAndDeep
             // TODO refact me please to remove duplicated code
             double[] backInputs = this.wdLayer.backward(grad2Logits);
 
-            this.wl.backward(new double[] { backInputs[0] });
+            this.wideBackInputs[0] = backInputs[0];
+            this.wl.backward(this.wideBackInputs);
 
-            backInputs = this.finalLayer.backward(new double[] { backInputs[1] });
+            this.deepBackInputs[0] = backInputs[1];
+            backInputs = this.finalLayer.backward(this.deepBackInputs);
             for(int i = 0; i < this.hiddenLayers.size(); i++) {
                 Layer layer = this.hiddenLayers.get(this.hiddenLayers.size() - 1 - i);
                 if(layer instanceof DenseLayer) {
@@ -377,13 +413,21 @@ public class WideAndDeep
     }
 
     private List<double[]> splitArray(int outDim, List<EmbedFieldLayer> embedLayers, double[] backInputs) {
-        List<double[]> results = new ArrayList<>();
+        List<double[]> results = this.embedBackInputs;
         int srcPos = outDim;
-        for(EmbedFieldLayer el: embedLayers) {
-            double[] elBackInputs = new double[el.getOut()];
+        for(int i = 0; i < embedLayers.size(); i++) {
+            EmbedFieldLayer el = embedLayers.get(i);
+            if(results.size() <= i) {
+                results.add(new double[el.getOut()]);
+            } else if(results.get(i).length != el.getOut()) {
+                results.set(i, new double[el.getOut()]);
+            }
+            double[] elBackInputs = results.get(i);
             System.arraycopy(backInputs, srcPos, elBackInputs, 0, elBackInputs.length);
             srcPos += elBackInputs.length;
-            results.add(elBackInputs);
+        }
+        while(results.size() > embedLayers.size()) {
+            results.remove(results.size() - 1);
         }
         return results;
     }
@@ -394,7 +438,14 @@ public class WideAndDeep
             len += fs.length;
         }
 
-        double[] results = new double[len];
+        double[] results;
+        if(!this.reuseBuffers) {
+            results = new double[len];
+        } else if(this.mergedInputs == null || this.mergedInputs.length != len) {
+            results = this.mergedInputs = new double[len];
+        } else {
+            results = this.mergedInputs;
+        }
 
         // copy dense
         System.arraycopy(dilOuts, 0, results, 0, dilOuts.length);
@@ -423,6 +474,28 @@ public class WideAndDeep
         this.isDebug = isDebug;
     }
 
+    /**
+     * Reuse forward buffers of this model and all its layers, only for the model used by one training thread like the
+     * one cloned in {@link WDLParallelGradient}.
+     * 
+     * @param reuseBuffers
+     *            if reuse forward result buffers
+     */
+    @SuppressWarnings("rawtypes")
+    public void setReuseBuffers(boolean reuseBuffers) {
+        this.reuseBuffers = reuseBuffers;
+        for(Layer layer: new Layer[] { this.dil, this.finalLayer, this.ecl, this.wl, this.wdLayer }) {
+            if(layer != null) {
+                layer.setReuseBuffers(reuseBuffers);
+            }
+        }
+        if(this.hiddenLayers != null) {
+            for(Layer layer: this.hiddenLayers) {
+                layer.setReuseBuffers(reuseBuffers);
+            }
+        }
+    }
+
     /**
      * @return the dil
      */
@@ -470,6 +543,13 @@ public class WideAndDeep
         this.finalLayer = finalLayer;
     }
 
+    /**
+     * @return the wdLayer which combines wide and deep logits, null if not both wide and deep are enabled
+     */
+    public DenseLayer getWdLayer() {
+        return wdLayer;
+    }
+
     /**
      * @return the ecl
      */
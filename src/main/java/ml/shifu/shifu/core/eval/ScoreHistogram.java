@@ -0,0 +1,164 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.eval;
+
+/**
+ * {@link ScoreHistogram} holds positive and negative counts and weights of eval records in fine-grained equal-width
+ * score buckets in [0, maxScore]. Histograms built on parts of eval data can be merged, the merged one is enough to
+ * compute all bucketing performance like ROC, PR and gain chart by scanning buckets from the highest score instead of
+ * sorting all records by score.
+ */
+public class ScoreHistogram {
+
+    /**
+     * Default number of score buckets
+     */
+    public static final int DEFAULT_BUCKETS = 10000;
+
+    private final int buckets;
+
+    private final double maxScore;
+
+    private final long[] posCounts;
+
+    private final long[] negCounts;
+
+    private final double[] posWeights;
+
+    private final double[] negWeights;
+
+    public ScoreHistogram(int buckets, double maxScore) {
+        if(buckets <= 0 || maxScore <= 0d) {
+            throw new IllegalArgumentException("Number of buckets and max score should be larger than 0.");
+        }
+        this.buckets = buckets;
+        this.maxScore = maxScore;
+        this.posCounts = new long[buckets];
+        this.negCounts = new long[buckets];
+        this.posWeights = new double[buckets];
+        this.negWeights = new double[buckets];
+    }
+
+    /**
+     * Bucket index of score, scores out of [0, maxScore] are put into the first or the last bucket.
+     */
+    public int getBucket(double score) {
+        return getBucket(score, this.buckets, this.maxScore);
+    }
+
+    /**
+     * Bucket index of score without creating histogram.
+     */
+    public static int getBucket(double score, int buckets, double maxScore) {
+        int bucket = (int) (score * buckets / maxScore);
+        return Math.max(0, Math.min(buckets - 1, bucket));
+    }
+
+    /**
+     * Lowest score of bucket which is used as the score threshold of all records in this and higher buckets.
+     */
+    public double getLowestScore(int bucket) {
+        return bucket * this.maxScore / this.buckets;
+    }
+
+    public void add(double score, boolean isPositive, double weight) {
+        int bucket = getBucket(score);
+        if(isPositive) {
+            this.posCounts[bucket] += 1L;
+            this.posWeights[bucket] += weight;
+        } else {
+            this.negCounts[bucket] += 1L;
+            this.negWeights[bucket] += weight;
+        }
+    }
+
+    public void add(int bucket, long posCount, long negCount, double posWeight, double negWeight) {
+        this.posCounts[bucket] += posCount;
+        this.negCounts[bucket] += negCount;
+        this.posWeights[bucket] += posWeight;
+        this.negWeights[bucket] += negWeight;
+    }
+
+    public void merge(ScoreHistogram other) {
+        if(other.buckets != this.buckets) {
+            throw new IllegalArgumentException("Cannot merge histograms with different number of buckets.");
+        }
+        for(int i = 0; i < this.buckets; i++) {
+            add(i, other.posCounts[i], other.negCounts[i], other.posWeights[i], other.negWeights[i]);
+        }
+    }
+
+    public boolean isEmpty(int bucket) {
+        return this.posCounts[bucket] == 0L && this.negCounts[bucket] == 0L;
+    }
+
+    public long getPosCount(int bucket) {
+        return this.posCounts[bucket];
+    }
+
+    public long getNegCount(int bucket) {
+        return this.negCounts[bucket];
+    }
+
+    public double getPosWeight(int bucket) {
+        return this.posWeights[bucket];
+    }
+
+    public double getNegWeight(int bucket) {
+        return this.negWeights[bucket];
+    }
+
+    public long getPosCount() {
+        long sum = 0L;
+        for(long count: this.posCounts) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    public long getNegCount() {
+        long sum = 0L;
+        for(long count: this.negCounts) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    public double getPosWeight() {
+        double sum = 0d;
+        for(double weight: this.posWeights) {
+            sum += weight;
+        }
+        return sum;
+    }
+
+    public double getNegWeight() {
+        double sum = 0d;
+        for(double weight: this.negWeights) {
+            sum += weight;
+        }
+        return sum;
+    }
+
+    public int getBuckets() {
+        return this.buckets;
+    }
+
+    public double getMaxScore() {
+        return this.maxScore;
+    }
+
+}
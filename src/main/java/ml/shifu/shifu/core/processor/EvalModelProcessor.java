@@ -57,6 +57,7 @@ import ml.shifu.shifu.core.Scorer;
 import ml.shifu.shifu.core.dtrain.CommonConstants;
 import ml.shifu.shifu.core.dtrain.dt.IndependentTreeModel;
 import ml.shifu.shifu.core.eval.GainChart;
+import ml.shifu.shifu.core.eval.ScoreHistogram;
 import ml.shifu.shifu.core.model.ModelSpec;
 import ml.shifu.shifu.core.validator.ModelInspector.ModelStep;
 import ml.shifu.shifu.exception.ShifuErrorCode;
@@ -460,6 +461,11 @@ public class EvalModelProcessor extends BasicModelProcessor implements Processor
         if(modelConfig.isClassification()
                 || (isNoSort() && (EvalStep.SCORE.equals(this.evalStep) || EvalStep.AUDIT.equals(this.evalStep)))) {
             pigScript = "scripts/EvalScore.pig";
+        } else if(isHistogramEval(evalConfig)) {
+            ShifuFileUtils.deleteFile(pathFinder.getEvalScoreHistogramPath(evalConfig), sourceType);
+            paramsMap.put("pathEvalScoreHistogram", pathFinder.getEvalScoreHistogramPath(evalConfig));
+            paramsMap.put("histogram_buckets", Integer.toString(getHistogramBuckets()));
+            pigScript = "scripts/EvalWithHistogram.pig";
         }
         try {
             PigExecutor.getExecutor().submitJob(modelConfig, pathFinder.getScriptPath(pigScript), paramsMap,
@@ -1244,7 +1250,11 @@ public class EvalModelProcessor extends BasicModelProcessor implements Processor
         switch(modelConfig.getBasic().getRunMode()) {
             case DIST:
             case MAPRED:
-                if(modelConfig.isRegression()) {
+                if(modelConfig.isRegression() && isHistogramEval(config)) {
+                    return worker.computeConfusionMatrixAndPerformanceFromHistogram(
+                            pathFinder.getEvalScoreHistogramPath(config), getHistogramBuckets(), evalPerformancePath,
+                            isPrint, isGenerateChart);
+                } else if(modelConfig.isRegression()) {
                     return worker.bufferedComputeConfusionMatrixAndPerformance(ss.pigPosTags, ss.pigNegTags,
                             ss.pigPosWeightTags, ss.pigNegWeightTags, ss.evalRecords, ss.maxScore, ss.minScore,
                             scoreDataPath, evalPerformancePath, isPrint, isGenerateChart, isUseMaxMinScore, isMTL,
@@ -1436,6 +1446,37 @@ public class EvalModelProcessor extends BasicModelProcessor implements Processor
         return getBooleanParam(this.params, NOSORT);
     }
 
+    /**
+     * Check if eval performance is computed from score histogram instead of sorted eval scores. It is only for
+     * 'shifu eval -run' of binary classification when scores are in [0, scale]; raw or max-min scaled GBT scores are
+     * still sorted as their bounds are only known after scoring.
+     * 
+     * @param evalConfig
+     *            eval config
+     * @return true if 'shifu.eval.histogram' is enabled and such eval supports histogram
+     */
+    private boolean isHistogramEval(EvalConfig evalConfig) {
+        if(!EvalStep.RUN.equals(this.evalStep) || !Boolean.TRUE.toString()
+                .equalsIgnoreCase(Environment.getProperty(CommonConstants.SHIFU_EVAL_HISTOGRAM, "false"))) {
+            return false;
+        }
+        String gbtStrategy = evalConfig.getGbtScoreConvertStrategy();
+        boolean isUnboundedScore = isGBTNotConvertToProb(evalConfig)
+                || (CommonConstants.GBT_ALG_NAME.equalsIgnoreCase(modelConfig.getAlgorithm())
+                        && (Constants.GBT_SCORE_HALF_CUTOFF_CONVETER.equalsIgnoreCase(gbtStrategy)
+                                || Constants.GBT_SCORE_MAXMIN_SCALE_CONVETER.equalsIgnoreCase(gbtStrategy)));
+        if(!modelConfig.isRegression() || modelConfig.isMultiTask() || isUnboundedScore) {
+            LOG.warn("Score histogram is not supported in eval {}, eval scores are sorted instead.",
+                    evalConfig.getName());
+            return false;
+        }
+        return true;
+    }
+
+    private int getHistogramBuckets() {
+        return Environment.getInt(CommonConstants.SHIFU_EVAL_HISTOGRAM_BUCKETS, ScoreHistogram.DEFAULT_BUCKETS);
+    }
+
     /**
      * Add ref models as score column for performance comparision
      * 
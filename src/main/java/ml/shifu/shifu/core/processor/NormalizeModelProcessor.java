@@ -85,7 +85,9 @@ public class NormalizeModelProcessor extends BasicModelProcessor implements Proc
                             }
                         }
 
-                        if(this.isToShuffleData) {
+                        if(this.isToShuffleData && this.modelConfig.getNormalize().getIsBinary()) {
+                            log.warn("Data shuffle is not supported for binary normalized data, shuffle is skipped.");
+                        } else if(this.isToShuffleData) {
                             runDataShuffle(this.modelConfig, this.columnConfigList, this.pathFinder.getNormalizedDataPath(),
                                     this.pathFinder.getNormalizedDataHeaderPath(),
                                     this.modelConfig.getDataSet().getSource(), getExpectPosRatio(), getIsRblUpdateWeight());
@@ -152,6 +154,7 @@ public class NormalizeModelProcessor extends BasicModelProcessor implements Proc
 
         ShifuFileUtils.deleteFile(pathFinder.getNormalizedDataPath(), sourceType);
         ShifuFileUtils.deleteFile(pathFinder.getSelectedRawDataPath(), sourceType);
+        ShifuFileUtils.deleteFile(pathFinder.getTrainDataCachePath(sourceType), sourceType);
 
         List<Scanner> scanners = null;
         try {
@@ -185,6 +188,8 @@ public class NormalizeModelProcessor extends BasicModelProcessor implements Proc
 
         ShifuFileUtils.deleteFile(pathFinder.getNormalizedDataPath(), sourceType);
         ShifuFileUtils.deleteFile(pathFinder.getSelectedRawDataPath(), sourceType);
+        // caches are invalid after normalized data is re-generated
+        ShifuFileUtils.deleteFile(pathFinder.getTrainDataCachePath(sourceType), sourceType);
 
         Map<String, String> paramsMap = new HashMap<String, String>();
         paramsMap.put("sampleRate", modelConfig.getNormalizeSampleRate().toString());
@@ -209,6 +214,8 @@ public class NormalizeModelProcessor extends BasicModelProcessor implements Proc
                     log.info("Post train is disabled by 'postTrainOn=false'.");
                     normPigPath = pathFinder.getScriptPath("scripts/NormalizeWithParquet.pig");
                 }
+            } else if(modelConfig.getNormalize().getIsBinary()) {
+                normPigPath = pathFinder.getScriptPath("scripts/NormalizeWithBinary.pig");
             } else {
                 if(modelConfig.getBasic().getPostTrainOn()) {
                     // this condition is for comment, no matter post train enabled or not, only norm results will be
@@ -141,6 +141,7 @@ import ml.shifu.shifu.exception.ShifuException;
 import ml.shifu.shifu.fs.PathFinder;
 import ml.shifu.shifu.fs.ShifuFileUtils;
 import ml.shifu.shifu.guagua.GuaguaParquetMapReduceClient;
+import ml.shifu.shifu.guagua.NormBinaryReader;
 import ml.shifu.shifu.guagua.ShifuInputFormat;
 import ml.shifu.shifu.util.Base64Utils;
 import ml.shifu.shifu.util.CommonUtils;
@@ -271,6 +272,10 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
      * Local mode training entry point.
      */
     private void runLocalTrain() throws IOException {
+        if(modelConfig.getNormalize().getIsBinary()) {
+            throw new IllegalArgumentException(
+                    "Local training reads text normalized data, please set normalize#isBinary to false and re-run norm.");
+        }
         if(Constants.TENSORFLOW.equalsIgnoreCase(modelConfig.getAlgorithm())) {
             runLocalTensorflowTrain();
         } else {
@@ -422,6 +427,17 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
                     "WDL only supports normalize#normType with ZSCALE_INDEX/ZSCORE_INDEX/WOE_INDEX/WOE_ZSCALE_INDEX, please reset and run 'shifu norm' again.");
         }
 
+        if(super.modelConfig.getNormalize().getIsParquet() && super.modelConfig.getNormalize().getIsBinary()) {
+            throw new IllegalArgumentException(
+                    "Normalized data cannot be both parquet and binary format, please set isParquet or isBinary to false and re-run norm.");
+        }
+
+        if((Constants.TENSORFLOW.equalsIgnoreCase(alg) || CommonConstants.TF_ALG_NAME.equalsIgnoreCase(alg))
+                && super.modelConfig.getNormalize().getIsBinary()) {
+            throw new IllegalArgumentException(
+                    "TensorFlow training reads text normalized data, please set normalize#isBinary to false and re-run norm.");
+        }
+
         // check if parquet format norm output is consistent with current isParquet setting.
         boolean isParquetMetaFileExist = false;
         try {
@@ -770,6 +786,41 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
         args.add(StringUtils.join(jars, NNConstants.LIB_JAR_SEPARATOR));
     }
 
+    /**
+     * Check if normalized data is binary or text format the same as normalize#isBinary by magic of binary normalized
+     * data in the first non-empty part file.
+     */
+    private void validateNormBinaryFormat(SourceType sourceType) throws IOException {
+        String normPath = super.getPathFinder().getNormalizedDataPath();
+        FileStatus firstPart = null;
+        for(FileStatus fileStatus: ShifuFileUtils.getFileStatus(normPath, sourceType)) {
+            if(fileStatus.getLen() > 0) {
+                firstPart = fileStatus;
+                break;
+            }
+        }
+        if(firstPart == null) {
+            // no normalized data, would fail in data loading with clear error
+            return;
+        }
+
+        boolean isBinaryNormData;
+        InputStream input = null;
+        try {
+            input = ShifuFileUtils.getFileSystemBySourceType(sourceType, firstPart.getPath()).open(firstPart.getPath());
+            isBinaryNormData = NormBinaryReader.isBinaryNormFile(input);
+        } finally {
+            IOUtils.closeStream(input);
+        }
+        if(super.modelConfig.getNormalize().getIsBinary() && !isBinaryNormData) {
+            throw new IllegalArgumentException("Your normalized input in " + normPath
+                    + " is not binary format. Please keep isBinary and re-run norm again and then run training step or change isBinary to false.");
+        } else if(!super.modelConfig.getNormalize().getIsBinary() && isBinaryNormData) {
+            throw new IllegalArgumentException("Your normalized input in " + normPath
+                    + " is binary format. Please keep isBinary and re-run norm again or change isBinary directly to true.");
+        }
+    }
+
     protected int runDistributedTrain() throws IOException, InterruptedException, ClassNotFoundException {
         LOG.info("Started distributed training.");
         int status = 0;
@@ -786,6 +837,12 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
             cleanOldModels(conf, sourceType, fileSystem, tmpModelsPath);
         }
 
+        // tree models read cleaned data which is always text, parquet format is checked in validateDistributedTrain
+        String alg = super.getModelConfig().getTrain().getAlgorithm();
+        if(!CommonUtils.isTreeModel(alg) && !super.modelConfig.getNormalize().getIsParquet()) {
+            validateNormBinaryFormat(sourceType);
+        }
+
         final List<String> args = new ArrayList<String>();
 
         GridSearch gs = new GridSearch(modelConfig.getTrain().getParams(),
@@ -834,7 +891,6 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
             guaguaClient = new GuaguaMapReduceClient();
         }
 
-        String alg = super.getModelConfig().getTrain().getAlgorithm();
         status = runDistributedBaggingTraining(status, conf, sourceType, fileSystem, args, gs, alg, baggingNum,
                 isKFoldCV, isParallel, guaguaClient, inputNodeCount, isAfterVarSelect);
 
@@ -1033,6 +1089,10 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
         }
 
         LOG.info("Distributed trainning with baggingNum: {}", baggingNum);
+        if(isModelsInOneJob(alg, baggingNum, isKFoldCV, gs)) {
+            return runDistributedModelsInOneJob(status, conf, sourceType, fileSystem, args, gs, alg, baggingNum,
+                    guaguaClient);
+        }
         List<String> progressLogList = new ArrayList<String>(baggingNum);
         boolean isOneJobNotContinuous = false;
         for(int j = 0; j < parallelGroups; j++) {
@@ -1136,6 +1196,96 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
         return status;
     }
 
+    /**
+     * Check if all bagging or grid search models can be trained in one guagua job. Only LR models are supported as
+     * they share the same inputs, k-fold, fixed initial input, continuous training and grid search on worker side
+     * settings need one job per model.
+     */
+    private boolean isModelsInOneJob(String alg, int baggingNum, boolean isKFoldCV, GridSearch gs) {
+        boolean isEnabled = Boolean.TRUE.toString()
+                .equalsIgnoreCase(Environment.getProperty(CommonConstants.SHIFU_TRAIN_MODELS_IN_ONE_JOB, "false"));
+        if(!isEnabled || baggingNum <= 1) {
+            return false;
+        }
+        if(!CommonConstants.LR_ALG_NAME.equalsIgnoreCase(alg) || !modelConfig.isRegression() || isKFoldCV
+                || this.modelConfig.isFixInitialInput() || this.modelConfig.getTrain().getIsContinuous()) {
+            LOG.warn("{} is only for LR bagging or grid search without k-fold, fixInitialInput or continuous "
+                    + "training, models are trained in separated jobs.", CommonConstants.SHIFU_TRAIN_MODELS_IN_ONE_JOB);
+            return false;
+        }
+        if(gs.hasHyperParam() && DTrainUtils.isWorkerParamsVaried(gs.getFlattenParams())) {
+            LOG.warn("{} doesn't support grid search on {} or {}, models are trained in separated jobs.",
+                    CommonConstants.SHIFU_TRAIN_MODELS_IN_ONE_JOB, CommonConstants.MINI_BATCH,
+                    CommonConstants.PARAMS_ENCODING);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Train all bagging or grid search LR models in one guagua job, training data is loaded only once and gradients of
+     * all models are computed in each pass over the data. Model and validation error outputs are still per trainer.
+     */
+    private int runDistributedModelsInOneJob(int status, Configuration conf, SourceType sourceType,
+            FileSystem fileSystem, final List<String> args, GridSearch gs, String alg, int baggingNum,
+            GuaguaMapReduceClient guaguaClient) throws IOException, InterruptedException, ClassNotFoundException {
+        LOG.info("Start {} trainers in one job.", baggingNum);
+        List<String> localArgs = new ArrayList<String>(args);
+        localArgs.add("-n");
+        localArgs.add(String.format("Shifu Master-Workers %s Training Iteration: %s id:0-%s", alg,
+                super.getModelConfig().getModelSetName(), baggingNum - 1));
+
+        // gs or bagging in one job doesn't support continuous training, delete all old models
+        String srcModelPath = super.getPathFinder().getModelsPath(sourceType);
+        String mvModelPath = srcModelPath + "_" + System.currentTimeMillis();
+        LOG.info("Old model path has been moved to {}", mvModelPath);
+        fileSystem.rename(new Path(srcModelPath), new Path(mvModelPath));
+        fileSystem.mkdirs(new Path(srcModelPath));
+        FileSystem.getLocal(conf).delete(new Path(super.getPathFinder().getModelsPath(SourceType.LOCAL)), true);
+
+        List<String> trainerIds = new ArrayList<String>(baggingNum);
+        List<String> modelPaths = new ArrayList<String>(baggingNum);
+        List<String> valErrPaths = new ArrayList<String>(baggingNum);
+        for(int i = 0; i < baggingNum; i++) {
+            trainerIds.add(String.valueOf(i));
+            modelPaths.add(fileSystem
+                    .makeQualified(new Path(super.getPathFinder().getModelsPath(sourceType), getModelName(i)))
+                    .toString());
+            valErrPaths.add(fileSystem
+                    .makeQualified(new Path(super.getPathFinder().getValErrorPath(sourceType), "val_error_" + i))
+                    .toString());
+        }
+        Path bModelPath = fileSystem
+                .makeQualified(new Path(super.getPathFinder().getBinaryModelsPath(sourceType), getModelName(0)));
+
+        localArgs.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT, CommonConstants.GUAGUA_OUTPUT,
+                modelPaths.get(0)));
+        localArgs.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT, Constants.SHIFU_BINARY_MODEL_PATH,
+                bModelPath.toString()));
+        localArgs.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT, CommonConstants.SHIFU_TRAINER_OUTPUTS,
+                StringUtils.join(modelPaths, ',')));
+        if(gs.hasHyperParam()) {
+            localArgs.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT, CommonConstants.GS_VALIDATION_ERROR,
+                    valErrPaths.get(0)));
+            localArgs.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT,
+                    CommonConstants.SHIFU_TRAINER_VALIDATION_ERRORS, StringUtils.join(valErrPaths, ',')));
+        }
+        localArgs.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT, CommonConstants.SHIFU_TRAINER_ID, "0"));
+        localArgs.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT, CommonConstants.SHIFU_TRAINER_IDS,
+                StringUtils.join(trainerIds, ',')));
+
+        final String progressLogFile = getProgressLogFile(0);
+        Path progressFilePath = new Path(progressLogFile);
+        localArgs.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT, CommonConstants.SHIFU_DTRAIN_PROGRESS_FILE,
+                HDFSUtils.getFS(progressFilePath).makeQualified(progressFilePath).toString()));
+
+        TailThread tailThread = startTailThread(new String[] { progressLogFile });
+        boolean ret = guaguaClient.createJob(localArgs.toArray(new String[0])).waitForCompletion(true);
+        status += (ret ? 0 : 1);
+        stopTailThread(tailThread);
+        return status;
+    }
+
     private void setDistributedNNFeatureSubsetParams(GridSearch gs, int inputNodeCount, boolean isAfterVarSelect, int i,
             List<String> localArgs, Path modelPath, boolean isContinuous) throws IOException {
         Map<String, Object> params = gs.hasHyperParam() ? gs.getParams(i) : this.modelConfig.getTrain().getParams();
@@ -1559,6 +1709,23 @@ public class TrainModelProcessor extends BasicModelProcessor implements Processo
             args.add(ShifuInputFormat.class.getName());
         }
 
+        // binary normalized data is read as parsed float fields directly
+        if(!CommonUtils.isTreeModel(alg) && modelConfig.getNormalize().getIsBinary()) {
+            args.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT, CommonConstants.SHIFU_NORM_BINARY,
+                    Boolean.TRUE.toString()));
+        }
+
+        // parsed data cache is only for text normalized data, fixed initial input hashes raw text of fields
+        boolean isDataCacheEnabled = Boolean.TRUE.toString()
+                .equalsIgnoreCase(Environment.getProperty(CommonConstants.SHIFU_TRAIN_DATA_CACHE, "false"));
+        if(isDataCacheEnabled && !CommonUtils.isTreeModel(alg) && !modelConfig.getNormalize().getIsParquet()
+                && !modelConfig.getNormalize().getIsBinary() && !modelConfig.isFixInitialInput()) {
+            Path cachePath = new Path(super.getPathFinder().getTrainDataCachePath(sourceType));
+            args.add(String.format(CommonConstants.MAPREDUCE_PARAM_FORMAT, CommonConstants.SHIFU_TRAIN_DATA_CACHE_DIR,
+                    ShifuFileUtils.getFileSystemBySourceType(sourceType, cachePath).makeQualified(cachePath)
+                            .toString()));
+        }
+
         String zkServers = Environment.getProperty(Environment.ZOO_KEEPER_SERVERS);
         if(StringUtils.isEmpty(zkServers)) {
             LOG.warn(
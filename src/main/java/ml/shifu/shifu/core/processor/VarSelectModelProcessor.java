@@ -490,6 +490,10 @@ public class VarSelectModelProcessor extends BasicModelProcessor implements Proc
                 this.modelConfig.getDataSet().getSource())) {
             throw new IllegalStateException("Cannot find normalized data, please do 'Shifu normalize' firstly.");
         }
+        if(this.modelConfig.getNormalize().getIsBinary()) {
+            throw new IllegalArgumentException(
+                    "Sensitivity variable selection reads text normalized data, please set normalize#isBinary to false and re-run norm.");
+        }
     }
 
     private void validateSEParameters() {
@@ -74,6 +74,8 @@ import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.RawSourceData;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.binning.BinningInfoWritable;
+import ml.shifu.shifu.core.binning.BinningPartialMapper;
+import ml.shifu.shifu.core.binning.BinningPartialReducer;
 import ml.shifu.shifu.core.binning.UpdateBinningInfoMapper;
 import ml.shifu.shifu.core.binning.UpdateBinningInfoReducer;
 import ml.shifu.shifu.core.datestat.DateStatComputeMapper;
@@ -273,14 +275,74 @@ public class MapReducerStatsWorker extends AbstractStatsExecutor {
             }
 
             LOG.debug("this.pathFinder.getOtherConfigs() => " + this.pathFinder.getOtherConfigs());
-            PigExecutor.getExecutor().submitJob(modelConfig, pathFinder.getScriptPath("scripts/StatsSpdtI.pig"),
-                    paramsMap, modelConfig.getDataSet().getSource(), this.pathFinder);
+            if(isMapSideBinningEnabled()) {
+                runBinningPartialMRJob();
+            } else {
+                PigExecutor.getExecutor().submitJob(modelConfig, pathFinder.getScriptPath("scripts/StatsSpdtI.pig"),
+                        paramsMap, modelConfig.getDataSet().getSource(), this.pathFinder);
+            }
         }
         // update
         LOG.info("Updating binning info ...");
         updateBinningInfoWithMRJob();
     }
 
+    protected boolean isMapSideBinningEnabled() {
+        return Boolean.TRUE.toString()
+                .equalsIgnoreCase(Environment.getProperty(CommonConstants.SHIFU_STATS_MAPSIDE_BINNING, "false"));
+    }
+
+    /**
+     * Build bin boundaries and categories of all columns by {@link BinningPartialMapper} and
+     * {@link BinningPartialReducer}, output is the same as binning info of StatsSpdtI.pig.
+     */
+    protected void runBinningPartialMRJob() throws IOException, InterruptedException, ClassNotFoundException {
+        RawSourceData.SourceType source = this.modelConfig.getDataSet().getSource();
+
+        Configuration conf = new Configuration();
+        prepareJobConf(source, conf, null);
+        conf.set(CommonConstants.MTL_INDEX, this.getMtlIndex() + "");
+        conf.set(Constants.SHIFU_OUTPUT_DATA_DELIMITER,
+                Environment.getProperty(Constants.SHIFU_OUTPUT_DATA_DELIMITER, Constants.DEFAULT_DELIMITER));
+
+        @SuppressWarnings("deprecation")
+        Job job = new Job(conf, "Shifu: Stats Partial Binning Job : " + this.modelConfig.getModelSetName());
+        job.setJarByClass(getClass());
+        job.setMapperClass(BinningPartialMapper.class);
+        job.setMapOutputKeyClass(IntWritable.class);
+        job.setMapOutputValueClass(Text.class);
+        job.setInputFormatClass(CombineInputFormat.class);
+        Path rawDataPath = new Path(super.modelConfig.getDataSetRawPath());
+        FileInputFormat.setInputPaths(job,
+                ShifuFileUtils.getFileSystemBySourceType(source, rawDataPath).makeQualified(rawDataPath));
+
+        job.setReducerClass(BinningPartialReducer.class);
+        Integer reducerSize = Environment.getInt(CommonConstants.SHIFU_BINNING_PARTIAL_REDUCER);
+        if(reducerSize != null) {
+            job.setNumReduceTasks(reducerSize);
+        } else {
+            // By average, each reducer handle 100 variables
+            job.setNumReduceTasks((this.columnConfigList.size() / 100) + 1);
+        }
+        job.setOutputKeyClass(NullWritable.class);
+        job.setOutputValueClass(Text.class);
+        job.setOutputFormatClass(TextOutputFormat.class);
+
+        String binningInfoPath = this.modelConfig.isMultiTask()
+                ? this.pathFinder.getUpdatedBinningInfoPath(source, this.getMtlIndex())
+                : this.pathFinder.getUpdatedBinningInfoPath(source);
+        FileOutputFormat.setOutputPath(job, new Path(binningInfoPath));
+        ShifuFileUtils.deleteFile(binningInfoPath, source);
+
+        if(!job.waitForCompletion(true)) {
+            throw new RuntimeException("MapReduce Job Partial Binning failed.");
+        }
+        LOG.info("Total valid records {}, invalid tag records {}, filter out records {}.",
+                job.getCounters().findCounter(Constants.SHIFU_GROUP_COUNTER, "TOTAL_VALID_COUNT").getValue(),
+                job.getCounters().findCounter(Constants.SHIFU_GROUP_COUNTER, "INVALID_TAG").getValue(),
+                job.getCounters().findCounter(Constants.SHIFU_GROUP_COUNTER, "FILTER_OUT_COUNT").getValue());
+    }
+
     protected void updateDateStatWithMRJob() throws IOException, InterruptedException, ClassNotFoundException {
         if(StringUtils.isEmpty(this.modelConfig.getDateColumnName())) {
             LOG.info("ModelConfig#dataSet#dateColumnName is not set, skip updateDateStatWithMRJob.");
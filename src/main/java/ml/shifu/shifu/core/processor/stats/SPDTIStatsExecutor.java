@@ -61,8 +61,12 @@ public class SPDTIStatsExecutor extends MapReducerStatsWorker {
                         modelConfig.getDataSet().getSource());
             }
 
-            PigExecutor.getExecutor().submitJob(modelConfig, pathFinder.getScriptPath("scripts/StatsSpdtI.pig"),
-                    paramsMap, modelConfig.getDataSet().getSource(), super.pathFinder);
+            if(isMapSideBinningEnabled()) {
+                runBinningPartialMRJob();
+            } else {
+                PigExecutor.getExecutor().submitJob(modelConfig, pathFinder.getScriptPath("scripts/StatsSpdtI.pig"),
+                        paramsMap, modelConfig.getDataSet().getSource(), super.pathFinder);
+            }
         }
         // update
         log.info("Updating binning info ...");
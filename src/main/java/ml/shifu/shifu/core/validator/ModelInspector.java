@@ -840,6 +840,20 @@ public class ModelInspector {
                                 .add("'LearningRate' parameter isn't being set in train#parameters in GBT training.");
                         result = ValidateResult.mergeResult(result, tmpResult);
                     }
+
+                    Object gossTopObj = params.get(CommonConstants.GOSS_TOP_RATE);
+                    Object gossOtherObj = params.get(CommonConstants.GOSS_OTHER_RATE);
+                    if(gossTopObj != null && gossOtherObj != null) {
+                        double gossTopRate = Double.valueOf(gossTopObj.toString());
+                        double gossOtherRate = Double.valueOf(gossOtherObj.toString());
+                        if(gossTopRate < 0d || gossOtherRate < 0d || gossTopRate + gossOtherRate >= 1d) {
+                            ValidateResult tmpResult = new ValidateResult(true);
+                            tmpResult.setStatus(false);
+                            tmpResult.getCauses()
+                                    .add("GOSSTopRate and GOSSOtherRate should >= 0 and their sum should < 1.");
+                            result = ValidateResult.mergeResult(result, tmpResult);
+                        }
+                    }
                 }
 
                 Object minInstancesPerNodeObj = params.get("MinInstancesPerNode");
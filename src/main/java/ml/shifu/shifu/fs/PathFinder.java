@@ -590,6 +590,17 @@ public class PathFinder {
         return getPathBySourceType(new Path(Constants.TMP, "valerr"), sourceType);
     }
 
+    /**
+     * Get the path of parsed normalized data cache shared by training jobs
+     *
+     * @param sourceType
+     *            - Local/HDFS
+     * @return path of training data cache
+     */
+    public String getTrainDataCachePath(SourceType sourceType) {
+        return getPathBySourceType(new Path(Constants.TMP, "TrainDataCache"), sourceType);
+    }
+
     /**
      * Get the path of models
      *
@@ -796,6 +807,18 @@ public class PathFinder {
         }
     }
 
+    /**
+     * Get the path of evaluation score histogram
+     *
+     * @param evalConfig
+     *            - EvalConfig to find
+     * @return path of evaluation score histogram
+     */
+    public String getEvalScoreHistogramPath(EvalConfig evalConfig) {
+        return getEvalFilePath(evalConfig.getName(), Constants.EVAL_SCORE_HISTOGRAM,
+                evalConfig.getDataSet().getSource());
+    }
+
     public String getEvalConfusionPath(EvalConfig evalConfig, SourceType sourceType) {
         String scorePath = getPreferPath(evalConfig.getCustomPaths(), Constants.KEY_SCORE_PATH);
         if(StringUtils.isBlank(scorePath)) {
@@ -0,0 +1,135 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.guagua;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ml.shifu.guagua.hadoop.io.GuaguaWritableAdapter;
+import ml.shifu.guagua.io.GuaguaFileSplit;
+import ml.shifu.shifu.core.dtrain.NormFields;
+
+/**
+ * {@link GuaguaNormBinaryRecordReader} reads binary normalized data written by {@link NormBinaryWriter}, float fields
+ * of each record are got by {@link #getCurrentFields()} without any text splitting and parsing. The value of
+ * {@link #getCurrentValue()} is always empty.
+ */
+public class GuaguaNormBinaryRecordReader implements GuaguaNormRecordReader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GuaguaNormBinaryRecordReader.class);
+
+    private final Configuration conf;
+
+    private NormBinaryReader reader;
+
+    private final NormFields fields = new NormFields();
+
+    private float[] values;
+
+    private long rows;
+
+    private final GuaguaWritableAdapter<LongWritable> currentKey = new GuaguaWritableAdapter<LongWritable>(
+            new LongWritable());
+
+    private final GuaguaWritableAdapter<Text> emptyValue = new GuaguaWritableAdapter<Text>(new Text());
+
+    public GuaguaNormBinaryRecordReader(GuaguaFileSplit split) throws IOException {
+        this.conf = new Configuration();
+        initialize(split);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see ml.shifu.guagua.io.GuaguaRecordReader#initialize(ml.shifu.guagua.io.GuaguaFileSplit)
+     */
+    @Override
+    public void initialize(GuaguaFileSplit split) throws IOException {
+        Path path = new Path(split.getPath());
+        FileSystem fs = path.getFileSystem(this.conf);
+        if(fs.getFileStatus(path).getLen() == 0L) {
+            // tasks without any output rows write empty files
+            return;
+        }
+        this.reader = new NormBinaryReader(fs.open(path), split.getOffset(), split.getLength());
+        this.values = new float[this.reader.getColumnNames().length];
+        LOG.info("Read binary normalized data of split {} with {} columns.", split, this.values.length);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see ml.shifu.guagua.io.GuaguaRecordReader#nextKeyValue()
+     */
+    @Override
+    public boolean nextKeyValue() throws IOException {
+        if(this.reader == null || !this.reader.next(this.values)) {
+            return false;
+        }
+        this.currentKey.getWritable().set(this.rows++);
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see ml.shifu.shifu.guagua.GuaguaNormRecordReader#getCurrentFields()
+     */
+    @Override
+    public NormFields getCurrentFields() {
+        return this.fields.reset(this.values);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see ml.shifu.guagua.io.GuaguaRecordReader#getCurrentKey()
+     */
+    @Override
+    public GuaguaWritableAdapter<LongWritable> getCurrentKey() {
+        return this.currentKey;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see ml.shifu.guagua.io.GuaguaRecordReader#getCurrentValue()
+     */
+    @Override
+    public GuaguaWritableAdapter<Text> getCurrentValue() {
+        return this.emptyValue;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see ml.shifu.guagua.io.GuaguaRecordReader#close()
+     */
+    @Override
+    public void close() throws IOException {
+        if(this.reader != null) {
+            this.reader.close();
+        }
+    }
+
+}
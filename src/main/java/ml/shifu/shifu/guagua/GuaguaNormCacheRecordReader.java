@@ -0,0 +1,367 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.guagua;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ml.shifu.guagua.hadoop.io.GuaguaLineRecordReader;
+import ml.shifu.guagua.hadoop.io.GuaguaWritableAdapter;
+import ml.shifu.guagua.io.GuaguaFileSplit;
+import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.core.dtrain.NormFields;
+import ml.shifu.shifu.util.JSONUtils;
+import ml.shifu.shifu.util.MapReduceUtils;
+
+/**
+ * {@link GuaguaNormCacheRecordReader} reads text normalized data and caches parsed float fields of each split in a
+ * binary file, later training jobs on the same split read fields from the cache without splitting and parsing text
+ * lines again.
+ *
+ * <p>
+ * Cache file of a split is named by split path, offset, length and modification time of the input file and by the
+ * config key of normalization settings and column configs, so that it is shared by all NN, LR, WDL and MTL jobs on the
+ * same normalized data and invalid once normalized data is re-generated or configs are changed. The cache is written
+ * to a temporary file and renamed after the whole split is read, failures in cache writing are only logged and don't
+ * break training. A cache file without the trailer written at the end of split is treated as truncated, it is deleted
+ * and text normalized data is read instead.
+ *
+ * <p>
+ * Parsed fields are got by {@link #getCurrentFields()}, the value of {@link #getCurrentValue()} is empty when reading
+ * from cache.
+ */
+public class GuaguaNormCacheRecordReader implements GuaguaNormRecordReader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GuaguaNormCacheRecordReader.class);
+
+    private static final int MAGIC = 0x53484e43;
+
+    private static final int VERSION = 2;
+
+    private static final int END_OF_CACHE = -1;
+
+    /**
+     * Header of magic and version
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * Trailer of end mark, record count and magic
+     */
+    private static final int TRAILER_SIZE = 16;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Configuration conf;
+
+    private final String cacheDir;
+
+    private final String delimiter;
+
+    private final String configKey;
+
+    /**
+     * Decoded delimiter to split text lines
+     */
+    private final String normDelimiter;
+
+    /**
+     * Text line reader, null if split is read from cache
+     */
+    private GuaguaLineRecordReader lineReader;
+
+    private DataInputStream cacheInput;
+
+    private DataOutputStream cacheOutput;
+
+    private Path cachePath;
+
+    private Path tmpCachePath;
+
+    private FileSystem cacheFs;
+
+    private final NormFields fields = new NormFields();
+
+    private float[] values;
+
+    private long rows;
+
+    /**
+     * Record count in cache trailer
+     */
+    private long cachedRows;
+
+    private boolean isFinished;
+
+    private final GuaguaWritableAdapter<LongWritable> currentKey = new GuaguaWritableAdapter<LongWritable>(
+            new LongWritable());
+
+    private final GuaguaWritableAdapter<Text> emptyValue = new GuaguaWritableAdapter<Text>(new Text());
+
+    public GuaguaNormCacheRecordReader(GuaguaFileSplit split, String cacheDir, String delimiter, String configKey)
+            throws IOException {
+        this.conf = new Configuration();
+        this.cacheDir = cacheDir;
+        this.delimiter = delimiter;
+        this.configKey = configKey;
+        this.normDelimiter = MapReduceUtils.getShifuOutputDelimiter(delimiter);
+        initialize(split);
+    }
+
+    /**
+     * Config key of cache files from normalization settings, data set settings and column configs which decide
+     * normalized data. Training settings are not included so that cache is shared by jobs with different training
+     * parameters.
+     *
+     * @param modelConfig
+     *            model config
+     * @param columnConfigs
+     *            column config list, or column config lists of all tasks in MTL
+     * @return config key
+     */
+    public static String configKey(ModelConfig modelConfig, List<?> columnConfigs) {
+        StringWriter writer = new StringWriter();
+        try {
+            JSONUtils.writeValue(writer, modelConfig.getNormalize());
+            JSONUtils.writeValue(writer, modelConfig.getDataSet());
+            JSONUtils.writeValue(writer, columnConfigs);
+            return UUID.nameUUIDFromBytes(writer.toString().getBytes("UTF-8")).toString();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see ml.shifu.guagua.io.GuaguaRecordReader#initialize(ml.shifu.guagua.io.GuaguaFileSplit)
+     */
+    @Override
+    public void initialize(GuaguaFileSplit split) throws IOException {
+        Path input = new Path(split.getPath());
+        FileStatus status = input.getFileSystem(this.conf).getFileStatus(input);
+        String key = new StringBuilder(256).append(status.getPath()).append('|').append(status.getLen()).append('|')
+                .append(status.getModificationTime()).append('|').append(split.getOffset()).append('|')
+                .append(split.getLength()).append('|').append(this.delimiter).append('|').append(this.configKey)
+                .toString();
+        this.cachePath = new Path(this.cacheDir, UUID.nameUUIDFromBytes(key.getBytes("UTF-8")).toString());
+        this.cacheFs = this.cachePath.getFileSystem(this.conf);
+
+        if(this.cacheFs.exists(this.cachePath) && openCache()) {
+            LOG.info("Read normalized data of split {} from cache {}.", split, this.cachePath);
+            return;
+        }
+
+        this.lineReader = new GuaguaLineRecordReader(split);
+        this.tmpCachePath = new Path(this.cacheDir, "_" + this.cachePath.getName() + "_" + UUID.randomUUID());
+        try {
+            this.cacheOutput = new DataOutputStream(new BufferedOutputStream(this.cacheFs.create(this.tmpCachePath),
+                    BUFFER_SIZE));
+            this.cacheOutput.writeInt(MAGIC);
+            this.cacheOutput.writeInt(VERSION);
+        } catch (IOException e) {
+            LOG.warn("Failed to create cache " + this.tmpCachePath + ", normalized data is not cached.", e);
+            abortCache();
+        }
+    }
+
+    private boolean openCache() throws IOException {
+        long length = this.cacheFs.getFileStatus(this.cachePath).getLen();
+        FSDataInputStream input = this.cacheFs.open(this.cachePath);
+        String error = null;
+        try {
+            if(length < HEADER_SIZE + TRAILER_SIZE || input.readInt() != MAGIC || input.readInt() != VERSION) {
+                error = "not in current version";
+            } else {
+                input.seek(length - TRAILER_SIZE);
+                if(input.readInt() != END_OF_CACHE || (this.cachedRows = input.readLong()) < 0L
+                        || input.readInt() != MAGIC) {
+                    error = "truncated";
+                } else {
+                    input.seek(HEADER_SIZE);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to open cache " + this.cachePath + ".", e);
+            error = "not readable";
+        }
+        if(error != null) {
+            LOG.warn("Cache {} is {}, read text normalized data.", this.cachePath, error);
+            IOUtils.closeStream(input);
+            // delete it so that a complete cache can be renamed to it
+            this.cacheFs.delete(this.cachePath, false);
+            return false;
+        }
+        this.cacheInput = new DataInputStream(new BufferedInputStream(input, BUFFER_SIZE));
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see ml.shifu.guagua.io.GuaguaRecordReader#nextKeyValue()
+     */
+    @Override
+    public boolean nextKeyValue() throws IOException {
+        if(this.isFinished) {
+            return false;
+        }
+        if(this.cacheInput != null) {
+            int size = this.cacheInput.readInt();
+            if(size == END_OF_CACHE) {
+                if(this.rows != this.cachedRows) {
+                    throw new IOException(String.format("Cache %s is corrupted, %d records are read while %d cached.",
+                            this.cachePath, this.rows, this.cachedRows));
+                }
+                this.isFinished = true;
+                return false;
+            }
+            if(this.values == null || this.values.length != size) {
+                this.values = new float[size];
+            }
+            for(int i = 0; i < size; i++) {
+                this.values[i] = this.cacheInput.readFloat();
+            }
+        } else {
+            if(!this.lineReader.nextKeyValue()) {
+                this.isFinished = true;
+                commitCache();
+                return false;
+            }
+            parseLine(this.lineReader.getCurrentValue().getWritable().toString());
+        }
+        this.currentKey.getWritable().set(this.rows++);
+        return true;
+    }
+
+    private void parseLine(String line) {
+        this.fields.reset(line, this.normDelimiter);
+        if(this.values == null || this.values.length != this.fields.size()) {
+            this.values = new float[this.fields.size()];
+        }
+        for(int i = 0; i < this.values.length; i++) {
+            this.values[i] = this.fields.getFloat(i, Float.NaN);
+        }
+        if(this.cacheOutput != null) {
+            try {
+                this.cacheOutput.writeInt(this.values.length);
+                for(int i = 0; i < this.values.length; i++) {
+                    this.cacheOutput.writeFloat(this.values[i]);
+                }
+            } catch (IOException e) {
+                LOG.warn("Failed to write cache " + this.tmpCachePath + ", normalized data is not cached.", e);
+                abortCache();
+            }
+        }
+    }
+
+    private void commitCache() {
+        if(this.cacheOutput == null) {
+            return;
+        }
+        try {
+            this.cacheOutput.writeInt(END_OF_CACHE);
+            this.cacheOutput.writeLong(this.rows);
+            this.cacheOutput.writeInt(MAGIC);
+            this.cacheOutput.close();
+            this.cacheOutput = null;
+            // another job may cache the same split at the same time, keep the first one
+            if(!this.cacheFs.rename(this.tmpCachePath, this.cachePath)) {
+                this.cacheFs.delete(this.tmpCachePath, false);
+            } else {
+                LOG.info("Normalized data of {} records are cached in {}.", this.rows, this.cachePath);
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to commit cache " + this.tmpCachePath + ", normalized data is not cached.", e);
+            abortCache();
+        }
+    }
+
+    private void abortCache() {
+        IOUtils.closeStream(this.cacheOutput);
+        this.cacheOutput = null;
+        try {
+            this.cacheFs.delete(this.tmpCachePath, false);
+        } catch (IOException e) {
+            LOG.warn("Failed to delete tmp cache {}.", this.tmpCachePath);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see ml.shifu.shifu.guagua.GuaguaNormRecordReader#getCurrentFields()
+     */
+    @Override
+    public NormFields getCurrentFields() {
+        return this.fields.reset(this.values);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see ml.shifu.guagua.io.GuaguaRecordReader#getCurrentKey()
+     */
+    @Override
+    public GuaguaWritableAdapter<LongWritable> getCurrentKey() {
+        return this.currentKey;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see ml.shifu.guagua.io.GuaguaRecordReader#getCurrentValue()
+     */
+    @Override
+    public GuaguaWritableAdapter<Text> getCurrentValue() {
+        return this.lineReader == null ? this.emptyValue : this.lineReader.getCurrentValue();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see ml.shifu.guagua.io.GuaguaRecordReader#close()
+     */
+    @Override
+    public void close() throws IOException {
+        IOUtils.closeStream(this.cacheInput);
+        if(this.cacheOutput != null) {
+            // split is not fully read, cache is incomplete
+            abortCache();
+        }
+        if(this.lineReader != null) {
+            this.lineReader.close();
+        }
+    }
+
+}
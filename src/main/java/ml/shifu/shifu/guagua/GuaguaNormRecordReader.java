@@ -0,0 +1,37 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.guagua;
+
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+
+import ml.shifu.guagua.hadoop.io.GuaguaWritableAdapter;
+import ml.shifu.guagua.io.GuaguaRecordReader;
+import ml.shifu.shifu.core.dtrain.NormFields;
+
+/**
+ * {@link GuaguaNormRecordReader} is the reader of normalized data which hands parsed fields of current record to
+ * workers by {@link #getCurrentFields()}, the value of {@link #getCurrentValue()} may be empty.
+ */
+public interface GuaguaNormRecordReader extends
+        GuaguaRecordReader<GuaguaWritableAdapter<LongWritable>, GuaguaWritableAdapter<Text>> {
+
+    /**
+     * Parsed fields of current record, missing or invalid values are NaN in fields.
+     */
+    NormFields getCurrentFields();
+
+}
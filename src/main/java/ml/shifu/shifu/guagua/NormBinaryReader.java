@@ -0,0 +1,275 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.guagua;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * {@link NormBinaryReader} reads rows of one split of a file written by {@link NormBinaryWriter}.
+ *
+ * <p>
+ * The header is always read from the start of file. If the split doesn't start in the header, reader skips to split
+ * start and scans to the first sync marker, and then reads all blocks whose sync marker starts before split end, so
+ * that blocks are read exactly once by all splits of one file.
+ */
+public class NormBinaryReader implements Closeable {
+
+    private final CountingInputStream counter;
+
+    private final DataInputStream in;
+
+    private final long end;
+
+    private final String[] columnNames;
+
+    private final byte[] sync = new byte[NormBinaryWriter.SYNC_SIZE];
+
+    /**
+     * If sync marker of next block has been read by scanning
+     */
+    private boolean isSyncRead;
+
+    /**
+     * Values of current block row by row
+     */
+    private float[] block = new float[0];
+
+    private int blockRows;
+
+    private int nextRow;
+
+    private boolean isFinished;
+
+    /**
+     * Check if a file is in Shifu binary normalized format by the magic at the start of the file.
+     *
+     * @param in
+     *            the stream of file from the start of file, not closed in this method
+     * @return if file starts with magic of binary normalized data
+     * @throws IOException
+     *             any IO exception.
+     */
+    public static boolean isBinaryNormFile(InputStream in) throws IOException {
+        try {
+            return new DataInputStream(in).readInt() == NormBinaryWriter.MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Constructor of reader
+     *
+     * @param in
+     *            the stream of file from the start of file
+     * @param start
+     *            split start offset
+     * @param length
+     *            split length
+     * @throws IOException
+     *             if header is invalid or any IO exception.
+     */
+    public NormBinaryReader(InputStream in, long start, long length) throws IOException {
+        this.counter = new CountingInputStream(new BufferedInputStream(in, 64 * 1024));
+        this.in = new DataInputStream(this.counter);
+        this.end = start + length;
+
+        if(this.in.readInt() != NormBinaryWriter.MAGIC) {
+            throw new IOException("Not Shifu binary normalized data, please check normalize#isBinary and re-run norm.");
+        }
+        int version = this.in.readInt();
+        if(version != NormBinaryWriter.VERSION) {
+            throw new IOException("Not supported version " + version + " of binary normalized data.");
+        }
+        int columns = this.in.readInt();
+        this.columnNames = new String[columns];
+        for(int i = 0; i < columns; i++) {
+            this.columnNames[i] = this.in.readUTF();
+        }
+        this.in.readFully(this.sync);
+
+        if(start > this.counter.count) {
+            skipFully(start - this.counter.count);
+            this.isSyncRead = scanSync();
+            this.isFinished = !this.isSyncRead;
+        }
+    }
+
+    private void skipFully(long n) throws IOException {
+        long remaining = n;
+        while(remaining > 0) {
+            long skipped = this.in.skip(remaining);
+            if(skipped <= 0) {
+                throw new EOFException("Split start is beyond the end of file.");
+            }
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * Scan to the end of next sync marker, return false if no sync marker starts before split end.
+     */
+    private boolean scanSync() throws IOException {
+        byte[] window = new byte[NormBinaryWriter.SYNC_SIZE];
+        int read = 0;
+        while(true) {
+            int b = this.in.read();
+            if(b < 0) {
+                return false;
+            }
+            window[read % window.length] = (byte) b;
+            read += 1;
+            // sync marker in window starts at count - window length
+            if(read >= window.length && isSync(window, read % window.length)) {
+                return this.counter.count - window.length < this.end;
+            }
+            if(this.counter.count + 1 - window.length >= this.end) {
+                return false;
+            }
+        }
+    }
+
+    private boolean isSync(byte[] window, int head) {
+        for(int i = 0; i < window.length; i++) {
+            if(window[(head + i) % window.length] != this.sync[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read next row into given array, return false if no more rows in this split.
+     */
+    public boolean next(float[] row) throws IOException {
+        if(this.nextRow == this.blockRows && !readBlock()) {
+            return false;
+        }
+        System.arraycopy(this.block, this.nextRow * this.columnNames.length, row, 0, this.columnNames.length);
+        this.nextRow += 1;
+        return true;
+    }
+
+    private boolean readBlock() throws IOException {
+        if(this.isFinished) {
+            return false;
+        }
+        if(!this.isSyncRead) {
+            if(this.counter.count >= this.end) {
+                this.isFinished = true;
+                return false;
+            }
+            int first = this.in.read();
+            if(first < 0) {
+                this.isFinished = true;
+                return false;
+            }
+            byte[] marker = new byte[NormBinaryWriter.SYNC_SIZE];
+            marker[0] = (byte) first;
+            this.in.readFully(marker, 1, marker.length - 1);
+            if(!Arrays.equals(marker, this.sync)) {
+                throw new IOException("Invalid sync marker at " + (this.counter.count - marker.length)
+                        + " of binary normalized data.");
+            }
+        }
+        this.isSyncRead = false;
+
+        int rows = this.in.readInt();
+        int columns = this.columnNames.length;
+        if(this.block.length < rows * columns) {
+            this.block = new float[rows * columns];
+        }
+        for(int i = 0; i < columns; i++) {
+            byte type = this.in.readByte();
+            switch(type) {
+                case NormBinaryWriter.BYTE_COLUMN:
+                    for(int j = 0; j < rows; j++) {
+                        this.block[j * columns + i] = this.in.readByte();
+                    }
+                    break;
+                case NormBinaryWriter.SHORT_COLUMN:
+                    for(int j = 0; j < rows; j++) {
+                        this.block[j * columns + i] = this.in.readShort();
+                    }
+                    break;
+                case NormBinaryWriter.FLOAT_COLUMN:
+                    for(int j = 0; j < rows; j++) {
+                        this.block[j * columns + i] = this.in.readFloat();
+                    }
+                    break;
+                default:
+                    throw new IOException("Invalid column type " + type + " of binary normalized data.");
+            }
+        }
+        this.blockRows = rows;
+        this.nextRow = 0;
+        return rows > 0 || readBlock();
+    }
+
+    public String[] getColumnNames() {
+        return this.columnNames;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    /**
+     * Count bytes read to get current position in file.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if(b >= 0) {
+                this.count += 1;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if(n > 0) {
+                this.count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            this.count += skipped;
+            return skipped;
+        }
+    }
+
+}
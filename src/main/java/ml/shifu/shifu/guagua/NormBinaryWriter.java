@@ -0,0 +1,174 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.guagua;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * {@link NormBinaryWriter} writes normalized rows in Shifu binary normalized format which is read by
+ * {@link NormBinaryReader}.
+ *
+ * <p>
+ * One file has a header and a list of blocks. The header is magic, version, number of columns, column names and a
+ * random sync marker of the file. Each block starts with the sync marker, then number of rows in the block and all
+ * values column by column. Each column in a block is encoded in fixed width by its values: byte or short if all values
+ * are integers in range like tag, one-hot or bin index columns, else float. The sync marker makes the file splittable at
+ * any offset like Hadoop SequenceFile: a block is read by the split which contains the start of its sync marker.
+ */
+public class NormBinaryWriter implements Closeable {
+
+    static final int MAGIC = 0x53484e42;
+
+    static final int VERSION = 1;
+
+    static final int SYNC_SIZE = 16;
+
+    static final byte FLOAT_COLUMN = 0;
+
+    static final byte SHORT_COLUMN = 1;
+
+    static final byte BYTE_COLUMN = 2;
+
+    /**
+     * Default size of values in one block, rows of block is this size divided by number of columns
+     */
+    public static final int DEFAULT_BLOCK_VALUES = 1024 * 1024;
+
+    private final DataOutputStream out;
+
+    private final int columns;
+
+    private final int blockRows;
+
+    private final byte[] sync;
+
+    /**
+     * Values of current block column by column, value of row r and column c is at c * blockRows + r
+     */
+    private final float[] block;
+
+    private int rows;
+
+    public NormBinaryWriter(OutputStream out, String[] columnNames) throws IOException {
+        this(out, columnNames, DEFAULT_BLOCK_VALUES);
+    }
+
+    public NormBinaryWriter(OutputStream out, String[] columnNames, int blockValues) throws IOException {
+        if(columnNames.length == 0) {
+            throw new IllegalArgumentException("Number of columns should be larger than 0.");
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        this.columns = columnNames.length;
+        this.blockRows = Math.max(1, blockValues / this.columns);
+        this.block = new float[this.columns * this.blockRows];
+        UUID uuid = UUID.randomUUID();
+        this.sync = ByteBuffer.allocate(SYNC_SIZE).putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits()).array();
+
+        this.out.writeInt(MAGIC);
+        this.out.writeInt(VERSION);
+        this.out.writeInt(this.columns);
+        for(String name: columnNames) {
+            this.out.writeUTF(name == null ? "" : name);
+        }
+        this.out.write(this.sync);
+    }
+
+    /**
+     * Append one row, size of row should be the same as number of columns.
+     */
+    public void write(float[] row) throws IOException {
+        if(row.length != this.columns) {
+            throw new IllegalArgumentException("Row size " + row.length + " doesn't match with number of columns "
+                    + this.columns + ".");
+        }
+        for(int i = 0; i < this.columns; i++) {
+            this.block[i * this.blockRows + this.rows] = row[i];
+        }
+        if(++this.rows == this.blockRows) {
+            flushBlock();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if(this.rows == 0) {
+            return;
+        }
+        this.out.write(this.sync);
+        this.out.writeInt(this.rows);
+        for(int i = 0; i < this.columns; i++) {
+            int offset = i * this.blockRows;
+            byte type = getColumnType(offset);
+            this.out.writeByte(type);
+            switch(type) {
+                case BYTE_COLUMN:
+                    for(int j = offset; j < offset + this.rows; j++) {
+                        this.out.writeByte((int) this.block[j]);
+                    }
+                    break;
+                case SHORT_COLUMN:
+                    for(int j = offset; j < offset + this.rows; j++) {
+                        this.out.writeShort((int) this.block[j]);
+                    }
+                    break;
+                default:
+                    for(int j = offset; j < offset + this.rows; j++) {
+                        this.out.writeFloat(this.block[j]);
+                    }
+                    break;
+            }
+        }
+        this.rows = 0;
+    }
+
+    /**
+     * Narrowest fixed width type of one column in current block, NaN or any fraction makes it a float column.
+     */
+    private byte getColumnType(int offset) {
+        byte type = BYTE_COLUMN;
+        for(int j = offset; j < offset + this.rows; j++) {
+            float value = this.block[j];
+            if(value != (int) value || value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+                return FLOAT_COLUMN;
+            }
+            if(value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) {
+                type = SHORT_COLUMN;
+            }
+        }
+        return type;
+    }
+
+    /**
+     * Flush current block and the underlying stream without closing it.
+     */
+    public void flush() throws IOException {
+        flushBlock();
+        this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        this.out.close();
+    }
+
+}
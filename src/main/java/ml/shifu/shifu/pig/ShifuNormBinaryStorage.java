@@ -0,0 +1,173 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.pig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.pig.ResourceSchema;
+import org.apache.pig.StoreFunc;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.impl.util.ObjectSerializer;
+import org.apache.pig.impl.util.UDFContext;
+
+import ml.shifu.shifu.guagua.NormBinaryWriter;
+import ml.shifu.shifu.util.NumberCodec;
+
+/**
+ * {@link ShifuNormBinaryStorage} stores normalized tuples in Shifu binary normalized format by {@link NormBinaryWriter}
+ * instead of delimited text, which is read by training workers through
+ * {@link ml.shifu.shifu.guagua.GuaguaNormBinaryRecordReader}.
+ *
+ * <p>
+ * All fields are stored as float: numbers are converted directly, text fields like FLOAT7 output are parsed and
+ * empty or invalid fields are NaN. Column names are from the schema of stored relation.
+ */
+public class ShifuNormBinaryStorage extends StoreFunc {
+
+    private static final String COLUMN_NAMES = "shifu.norm.binary.column.names";
+
+    private String signature;
+
+    private NormBinaryRecordWriter writer;
+
+    private float[] row;
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public OutputFormat getOutputFormat() throws IOException {
+        return new NormBinaryOutputFormat();
+    }
+
+    @Override
+    public void setStoreLocation(String location, Job job) throws IOException {
+        FileOutputFormat.setOutputPath(job, new Path(location));
+    }
+
+    @Override
+    public void setStoreFuncUDFContextSignature(String signature) {
+        this.signature = signature;
+    }
+
+    @Override
+    public void checkSchema(ResourceSchema schema) throws IOException {
+        String[] names = schema.fieldNames();
+        for(int i = 0; i < names.length; i++) {
+            // remove prefix of flattened fields like 'normalized::column'
+            int index = names[i] == null ? -1 : names[i].lastIndexOf("::");
+            if(index >= 0) {
+                names[i] = names[i].substring(index + 2);
+            }
+        }
+        UDFContext.getUDFContext().getUDFProperties(getClass(), new String[] { this.signature })
+                .setProperty(COLUMN_NAMES, ObjectSerializer.serialize(names));
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public void prepareToWrite(RecordWriter writer) throws IOException {
+        this.writer = (NormBinaryRecordWriter) writer;
+        String names = UDFContext.getUDFContext().getUDFProperties(getClass(), new String[] { this.signature })
+                .getProperty(COLUMN_NAMES);
+        if(names != null) {
+            this.writer.columnNames = (String[]) ObjectSerializer.deserialize(names);
+        }
+    }
+
+    @Override
+    public void putNext(Tuple tuple) throws IOException {
+        if(this.row == null || this.row.length != tuple.size()) {
+            this.row = new float[tuple.size()];
+        }
+        for(int i = 0; i < this.row.length; i++) {
+            this.row[i] = toFloat(tuple.get(i));
+        }
+        this.writer.write(NullWritable.get(), this.row);
+    }
+
+    private static float toFloat(Object field) {
+        if(field == null) {
+            return Float.NaN;
+        }
+        if(field instanceof Number) {
+            return ((Number) field).floatValue();
+        }
+        String str = field.toString();
+        return NumberCodec.parseFloat(str, 0, str.length(), Float.NaN);
+    }
+
+    /**
+     * {@link NormBinaryOutputFormat} writes one binary normalized file per task, compression settings are not used as
+     * binary files are splittable by sync markers.
+     */
+    public static class NormBinaryOutputFormat extends FileOutputFormat<NullWritable, float[]> {
+
+        @Override
+        public RecordWriter<NullWritable, float[]> getRecordWriter(TaskAttemptContext context) throws IOException {
+            Configuration conf = context.getConfiguration();
+            Path file = getDefaultWorkFile(context, "");
+            return new NormBinaryRecordWriter(file.getFileSystem(conf).create(file, false));
+        }
+
+    }
+
+    /**
+     * Binary writer is created at the first row when number of columns is known.
+     */
+    static class NormBinaryRecordWriter extends RecordWriter<NullWritable, float[]> {
+
+        private final OutputStream out;
+
+        private String[] columnNames;
+
+        private NormBinaryWriter writer;
+
+        NormBinaryRecordWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(NullWritable key, float[] value) throws IOException {
+            if(this.writer == null) {
+                if(this.columnNames == null || this.columnNames.length != value.length) {
+                    this.columnNames = new String[value.length];
+                }
+                this.writer = new NormBinaryWriter(this.out, this.columnNames);
+            }
+            this.writer.write(value);
+        }
+
+        @Override
+        public void close(TaskAttemptContext context) throws IOException {
+            if(this.writer != null) {
+                this.writer.close();
+            } else {
+                // empty file without any rows
+                this.out.close();
+            }
+        }
+
+    }
+
+}
@@ -34,9 +34,8 @@ import org.apache.pig.impl.util.UDFContext;
 import org.apache.pig.tools.pigstats.PigStatusReporter;
 
 import ml.shifu.shifu.container.obj.ColumnConfig;
-import ml.shifu.shifu.container.obj.ModelStatsConf;
-import ml.shifu.shifu.container.obj.ModelStatsConf.BinningMethod;
 import ml.shifu.shifu.core.DataPurifier;
+import ml.shifu.shifu.core.binning.PartialBinningUtils;
 import ml.shifu.shifu.exception.ShifuErrorCode;
 import ml.shifu.shifu.exception.ShifuException;
 import ml.shifu.shifu.udf.norm.PrecisionType;
@@ -167,15 +166,8 @@ public class AddColumnNumAndFilterUDF extends AddColumnNumUDF {
             return null;
         }
 
-        Double rate = modelConfig.getBinningSampleRate();
-        if(!this.isLinearTarget && !modelConfig.isClassification() && modelConfig.isBinningSampleNegOnly()) {
-            if(super.negTagSet.contains(tag) && random.nextDouble() > rate) {
-                return null;
-            }
-        } else {
-            if(random.nextDouble() > rate) {
-                return null;
-            }
+        if(PartialBinningUtils.isSampledOut(modelConfig, this.isLinearTarget, super.negTagSet, tag, random)) {
+            return null;
         }
 
         List<Boolean> filterResultList = null;
@@ -190,7 +182,7 @@ public class AddColumnNumAndFilterUDF extends AddColumnNumUDF {
         boolean isPositiveInst = (modelConfig.isRegression() && super.posTagSet.contains(tag));
         for(int i = 0; i < size; i++) {
             ColumnConfig config = columnConfigList.get(i);
-            if(!isValidRecord(modelConfig.isRegression(), isPositiveInst, config)) {
+            if(!PartialBinningUtils.isValidRecord(modelConfig, isPositiveInst, config)) {
                 continue;
             }
 
@@ -230,18 +222,9 @@ public class AddColumnNumAndFilterUDF extends AddColumnNumUDF {
         Tuple tuple = tupleFactory.newTuple(TOTAL_COLUMN_CNT);
         tuple.set(COLUMN_ID_INDX, finalIndex);
 
-        if(this.precisionType == null || this.columnConfigList.get(i).isCategorical()) {
-            tuple.set(COLUMN_VAL_INDX, (input.get(i) == null ? null : input.get(i).toString())); // Set Data
-        } else {
-            double dval;
-            try {
-                dval = Double.parseDouble(input.get(i).toString());
-                // reduced to precision Type
-                tuple.set(COLUMN_VAL_INDX, (input.get(i) == null ? null : this.precisionType.to(dval).toString())); 
-            } catch (Exception e) {
-                tuple.set(COLUMN_VAL_INDX, null); // Set Data
-            }
-        }
+        // reduced to precision type, invalid numbers are set to null
+        tuple.set(COLUMN_VAL_INDX,
+                PartialBinningUtils.toPrecisionValue(this.precisionType, this.columnConfigList.get(i), input.get(i)));
 
         if(modelConfig.isRegression()) {
             if(posTags.contains(tag)) { // Set Tag
@@ -282,31 +265,4 @@ public class AddColumnNumAndFilterUDF extends AddColumnNumUDF {
             return null;
         }
     }
-
-    private boolean isValidRecord(boolean isBinary, boolean isPositive, ColumnConfig columnConfig) {
-        if(isBinary) {
-            return columnConfig != null && (columnConfig.isCategorical() || isValidBinningMethodForBinary(isPositive));
-        } else {
-            return columnConfig != null && (columnConfig.isCategorical() || isValidBinningMethod());
-        }
-    }
-
-    private boolean isValidBinningMethodForBinary(boolean isPositive) {
-        return modelConfig.getBinningAlgorithm().equals(ModelStatsConf.BinningAlgorithm.DynamicBinning)
-                || modelConfig.getBinningMethod().equals(BinningMethod.EqualTotal)
-                || modelConfig.getBinningMethod().equals(BinningMethod.EqualInterval)
-                || (modelConfig.getBinningMethod().equals(BinningMethod.EqualPositive) && isPositive)
-                || (modelConfig.getBinningMethod().equals(BinningMethod.EqualNegative) && !isPositive)
-                || modelConfig.getBinningMethod().equals(BinningMethod.WeightEqualTotal)
-                || modelConfig.getBinningMethod().equals(BinningMethod.WeightEqualInterval)
-                || (modelConfig.getBinningMethod().equals(BinningMethod.WeightEqualPositive) && isPositive)
-                || (modelConfig.getBinningMethod().equals(BinningMethod.WeightEqualNegative) && !isPositive);
-    }
-
-    private boolean isValidBinningMethod() {
-        return modelConfig.getBinningMethod().equals(BinningMethod.EqualTotal)
-                || modelConfig.getBinningMethod().equals(BinningMethod.EqualInterval)
-                || modelConfig.getBinningMethod().equals(BinningMethod.WeightEqualTotal)
-                || modelConfig.getBinningMethod().equals(BinningMethod.WeightEqualInterval);
-    }
 }
@@ -16,12 +16,14 @@
 package ml.shifu.shifu.udf;
 
 import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.core.binning.PartialBinningUtils;
 import ml.shifu.shifu.exception.ShifuErrorCode;
 import ml.shifu.shifu.exception.ShifuException;
 import ml.shifu.shifu.util.CommonUtils;
 import ml.shifu.shifu.util.Constants;
 import ml.shifu.shifu.util.Environment;
 import org.apache.commons.lang.StringUtils;
+import org.apache.pig.backend.executionengine.ExecException;
 import org.apache.pig.data.*;
 import org.apache.pig.impl.logicalLayer.schema.Schema;
 import org.apache.pig.impl.logicalLayer.schema.Schema.FieldSchema;
@@ -163,30 +165,30 @@ public class AddColumnNumUDF extends AbstractTrainerUDF<DataBag> {
 
 	@SuppressWarnings("deprecation")
 	protected double getWeightColumnVal(Tuple input) {
-		double weight = 1.0;
-		if (this.weightColumnId != INVALID_INDEX) {
-			String weightText = null;
-			try {
-				weightText = input.get(this.weightColumnId) == null ? null : input.get(this.weightColumnId).toString();
-				weight = Double.parseDouble(weightText);
-				if (weight < 0d) {
-					LOG.warn("weight column is less than 0.");
-					if (isPigEnabled(Constants.SHIFU_GROUP_COUNTER, "INVALID_WEIGHT_RECORDS")) {
-						PigStatusReporter.getInstance()
-								.getCounter(Constants.SHIFU_GROUP_COUNTER, "INVALID_WEIGHT_RECORDS").increment(1);
-					}
-				}
-			} catch (Exception e) {
-				if (random.nextInt() % 100 == 0) { // only print 1% warn log
-					LOG.warn("value:{}, weight column is not numerical or null.", weightText);
-				}
-				if (isPigEnabled(Constants.SHIFU_GROUP_COUNTER, "INVALID_WEIGHT_RECORDS")) {
-					PigStatusReporter.getInstance().getCounter(Constants.SHIFU_GROUP_COUNTER, "INVALID_WEIGHT_RECORDS")
-							.increment(1);
-				}
+		if (this.weightColumnId == INVALID_INDEX) {
+			return 1.0;
+		}
+		Object weightVal = null;
+		try {
+			weightVal = input.get(this.weightColumnId);
+		} catch (ExecException e) {
+			// treated as invalid weight below
+		}
+		double weight = PartialBinningUtils.parseWeight(weightVal);
+		if (Double.isNaN(weight)) {
+			if (random.nextInt() % 100 == 0) { // only print 1% warn log
+				LOG.warn("value:{}, weight column is not numerical or null.", weightVal);
+			}
+		} else if (weight < 0d) {
+			LOG.warn("weight column is less than 0.");
+		}
+		if (Double.isNaN(weight) || weight < 0d) {
+			if (isPigEnabled(Constants.SHIFU_GROUP_COUNTER, "INVALID_WEIGHT_RECORDS")) {
+				PigStatusReporter.getInstance().getCounter(Constants.SHIFU_GROUP_COUNTER, "INVALID_WEIGHT_RECORDS")
+						.increment(1);
 			}
 		}
-		return weight;
+		return Double.isNaN(weight) ? 1.0 : weight;
 	}
 
 	@Override
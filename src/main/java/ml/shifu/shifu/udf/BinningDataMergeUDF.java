@@ -19,9 +19,7 @@ package ml.shifu.shifu.udf;
 
 import java.io.IOException;
 import java.util.Iterator;
-import java.util.List;
 
-import org.apache.commons.lang.StringUtils;
 import org.apache.pig.data.DataBag;
 import org.apache.pig.data.DataType;
 import org.apache.pig.data.Tuple;
@@ -31,9 +29,7 @@ import org.apache.pig.impl.logicalLayer.schema.Schema.FieldSchema;
 
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.core.binning.AbstractBinning;
-import ml.shifu.shifu.core.binning.CategoricalBinning;
-import ml.shifu.shifu.util.CommonUtils;
-import ml.shifu.shifu.util.Constants;
+import ml.shifu.shifu.core.binning.PartialBinningUtils;
 
 /**
  * MergeBinningDataUDF class
@@ -63,8 +59,7 @@ public class BinningDataMergeUDF extends AbstractTrainerUDF<Tuple> {
         }
         ColumnConfig columnConfig = super.columnConfigList.get(corrColumnId);
 
-        AbstractBinning<?> binning = null;
-        AbstractBinning<?> backupBinning = null;
+        AbstractBinning<?>[] merged = null;
         log.info("Start merging bin info for columnId - " + columnId + ", the bag size is - " + databag.size());
 
         Iterator<Tuple> iterator = databag.iterator();
@@ -74,66 +69,16 @@ public class BinningDataMergeUDF extends AbstractTrainerUDF<Tuple> {
                 continue;
             }
 
-            String objValStr = (String) element.get(1);
-            String hybridCateValStr = null;
-
             long start = System.currentTimeMillis();
-
-            // for hybrid, split
-            if(columnConfig.isHybrid()) {
-                String[] splits = CommonUtils.split(objValStr, Constants.HYBRID_BIN_STR_DILIMETER);
-                objValStr = splits[0];
-                hybridCateValStr = splits[1];
-            }
-            AbstractBinning<?> partialBinning = AbstractBinning.constructBinningFromStr(modelConfig, columnConfig,
-                    objValStr, this.maxCategorySize);
-            AbstractBinning<?> partialBackupBinning = null;
-            if(columnConfig.isHybrid()) {
-                partialBackupBinning = new CategoricalBinning();
-                partialBackupBinning.stringToObj(hybridCateValStr);
-            }
-            log.info("constructBinningFromStr: " + (System.currentTimeMillis() - start) + "ms");
-            start = System.currentTimeMillis();
-
-            if(binning == null) {
-                binning = partialBinning;
-                if(columnConfig.isHybrid()) {
-                    backupBinning = partialBackupBinning;
-                }
-            } else {
-                binning.mergeBin(partialBinning);
-                if(columnConfig.isHybrid()) {
-                    backupBinning.mergeBin(partialBackupBinning);
-                }
-            }
+            merged = PartialBinningUtils.mergePartial(modelConfig, columnConfig, merged, (String) element.get(1),
+                    this.maxCategorySize);
             log.info("mergeBin: " + (System.currentTimeMillis() - start) + "ms");
         }
 
         Tuple output = TupleFactory.getInstance().newTuple(3);
         output.set(0, columnId);
-        List<?> binFields = binning.getDataBin();
-
-        if(columnConfig.isCategorical() && binFields.size() > this.maxCategorySize) {
-            log.warn(columnId + " " + columnConfig.getColumnName() + " is over maximal categorical size: "
-                    + this.maxCategorySize + "only keep random " + this.maxCategorySize
-                    + "category, better to use hash column or check if it is numerical variable.");
-            output.set(1, StringUtils.join(binFields, CalculateStatsUDF.CATEGORY_VAL_SEPARATOR));
-        } else {
-            if(columnConfig.isHybrid()) {
-                String finalBinStr = StringUtils.join(binFields, CalculateStatsUDF.CATEGORY_VAL_SEPARATOR);
-                finalBinStr += Constants.HYBRID_BIN_STR_DILIMETER
-                        + StringUtils.join(backupBinning.getDataBin(), CalculateStatsUDF.CATEGORY_VAL_SEPARATOR);
-                output.set(1, finalBinStr);
-            } else {
-                output.set(1, StringUtils.join(binFields, CalculateStatsUDF.CATEGORY_VAL_SEPARATOR));
-            }
-        }
-
-        if(columnConfig.isCategorical()) {
-            output.set(2, ((CategoricalBinning) binning).cardinality());
-        } else {
-            output.set(2, -1L);
-        }
+        output.set(1, PartialBinningUtils.toBinningInfo(columnConfig, merged, this.maxCategorySize));
+        output.set(2, PartialBinningUtils.cardinality(columnConfig, merged));
 
         log.info("Finish merging bin info for columnId - " + columnId);
 
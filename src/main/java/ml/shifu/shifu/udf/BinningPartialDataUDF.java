@@ -27,13 +27,8 @@ import org.apache.pig.impl.logicalLayer.schema.Schema;
 
 import ml.shifu.guagua.util.NumberFormatUtils;
 import ml.shifu.shifu.container.obj.ColumnConfig;
-import ml.shifu.shifu.container.obj.ModelStatsConf.BinningMethod;
 import ml.shifu.shifu.core.binning.AbstractBinning;
-import ml.shifu.shifu.core.binning.CategoricalBinning;
-import ml.shifu.shifu.core.binning.EqualIntervalBinning;
-import ml.shifu.shifu.core.binning.EqualPopulationBinning;
-import ml.shifu.shifu.util.BinUtils;
-import ml.shifu.shifu.util.Constants;
+import ml.shifu.shifu.core.binning.PartialBinningUtils;
 
 /**
  * GenBinningDataUDF class
@@ -87,78 +82,34 @@ public class BinningPartialDataUDF extends AbstractTrainerUDF<String> {
                     columnId = columnId % super.columnConfigList.size();
                 }
                 columnConfig = super.columnConfigList.get(columnId);
-                if(columnConfig.isCategorical()) {
-                    binning = new CategoricalBinning(-1, modelConfig.getMissingOrInvalidValues(),
-                            this.maxCategorySize, columnConfig.getHashSeed());
-                } else {
-                    if(super.modelConfig.getBinningMethod().equals(BinningMethod.EqualInterval)) {
-                        binning = new EqualIntervalBinning(modelConfig.getStats().getMaxNumBin() > 0
-                                    ? modelConfig.getStats().getMaxNumBin() : 1024,
-                                modelConfig.getMissingOrInvalidValues());
-                    } else {
-                        binning = new EqualPopulationBinning(modelConfig.getStats().getMaxNumBin() > 0
-                                ? modelConfig.getStats().getMaxNumBin() : 1024, modelConfig.getMissingOrInvalidValues());
-                    }
-                }
-
-                if(columnConfig.isHybrid()) {
-                    this.backUpbinning = new CategoricalBinning(-1, modelConfig.getMissingOrInvalidValues(),
-                            this.maxCategorySize);
-                }
+                binning = PartialBinningUtils.newBinning(modelConfig, columnConfig, this.maxCategorySize);
+                this.backUpbinning = PartialBinningUtils.newBackupBinning(modelConfig, columnConfig,
+                        this.maxCategorySize);
             }
 
             Object value = element.get(1);
             if(value != null) {
-                String valStr = value.toString();
-                if(isWeightBinningMethod() && binning instanceof EqualPopulationBinning) {
-                    ((EqualPopulationBinning) binning).addData(valStr,
-                            (Double) element.get(AddColumnNumUDF.COLUMN_WEIGHT_INDX));
-                } else {
-                    binning.addData(valStr);
-                }
-                if(this.columnConfig.isHybrid()) {
-                    // missing value and not number value go to categorical binning
-                    double douVal = BinUtils.parseNumber(valStr);
-                    Double hybridThreshould = this.columnConfig.getHybridThreshold();
-                    if(hybridThreshould == null) {
-                        hybridThreshould = Double.NEGATIVE_INFINITY;
-                    }
-                    // douVal < hybridThreshould which will also be set to category
-                    boolean isCategory = Double.isNaN(douVal) || douVal < hybridThreshould;
-                    if(douVal < hybridThreshould) {
-                        log.warn("douVal " + douVal + ", threshold " + hybridThreshould + ", column {}"
-                                + columnConfig.getColumnName());
-                    }
-                    if(binning.isMissingVal(valStr) || isCategory) {
-                        this.backUpbinning.addData(valStr);
-                    }
-                }
+                double weight = PartialBinningUtils.isWeightBinningMethod(modelConfig)
+                        ? (Double) element.get(AddColumnNumUDF.COLUMN_WEIGHT_INDX)
+                        : 1d;
+                PartialBinningUtils.addData(modelConfig, columnConfig, binning, this.backUpbinning, value.toString(),
+                        weight);
             }
         }
-        String binningObjStr = ((binning == null) ? null : binning.objToString());
-
-        if(this.columnConfig.isHybrid()) {
-            binningObjStr += Constants.HYBRID_BIN_STR_DILIMETER + this.backUpbinning.objToString();
-        }
+        String binningObjStr = PartialBinningUtils.toPartialString(binning, this.backUpbinning);
 
         cleanUp();
 
         return binningObjStr;
     }
 
-    private boolean isWeightBinningMethod() {
-        return modelConfig.getBinningMethod().equals(BinningMethod.WeightEqualTotal)
-                || modelConfig.getBinningMethod().equals(BinningMethod.WeightEqualInterval)
-                || modelConfig.getBinningMethod().equals(BinningMethod.WeightEqualPositive)
-                || modelConfig.getBinningMethod().equals(BinningMethod.WeightEqualNegative);
-    }
-
     /**
      * cleanup the binning information
      */
     private void cleanUp() {
         this.columnId = -1;
         this.binning = null;
+        this.backUpbinning = null;
     }
 
     @Override
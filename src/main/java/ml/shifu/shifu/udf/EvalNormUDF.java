@@ -19,7 +19,7 @@ import ml.shifu.shifu.column.NSColumn;
 import ml.shifu.shifu.container.CaseScoreResult;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.core.ModelRunner;
-import ml.shifu.shifu.core.Normalizer;
+import ml.shifu.shifu.core.NormPlan;
 import ml.shifu.shifu.core.dtrain.DTrainUtils;
 import ml.shifu.shifu.udf.norm.CategoryMissingNormType;
 import ml.shifu.shifu.udf.norm.PrecisionType;
@@ -27,6 +27,7 @@ import ml.shifu.shifu.util.CommonUtils;
 import ml.shifu.shifu.util.Constants;
 import ml.shifu.shifu.util.Environment;
 import ml.shifu.shifu.util.ModelSpecLoaderUtils;
+import ml.shifu.shifu.util.NumberCodec;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.pig.data.DataType;
@@ -75,6 +76,16 @@ public class EvalNormUDF extends AbstractEvalUDF<Tuple> {
      */
     private CategoryMissingNormType categoryMissingNormType = CategoryMissingNormType.POSRATE;
 
+    /**
+     * Norm plans compiled once for each column
+     */
+    private Map<ColumnConfig, NormPlan> normPlans = new IdentityHashMap<ColumnConfig, NormPlan>();
+
+    /**
+     * Reusable buffer of normalized values of one column
+     */
+    private double[] normRow = new double[1];
+
     /**
      * Valid meta size which is in final output
      */
@@ -334,14 +345,12 @@ public class EvalNormUDF extends AbstractEvalUDF<Tuple> {
                 tuple.append(raw);
             } else {
                 ColumnConfig columnConfig = this.columnConfigMap.get(name);
-                List<Double> normVals = Normalizer.fullNormalize(columnConfig, raw,
-                        this.modelConfig.getNormalizeStdDevCutOff(), this.modelConfig.getNormalizeType(),
-                        this.categoryMissingNormType, this.categoricalIndexMap.get(columnConfig.getColumnNum()));
+                int size = getNormPlan(columnConfig).normalize(raw, this.normRow, 0);
                 if(this.isOutputRaw) { // add to raw list
                     outputRawList.add(raw);
                 }
-                for(Double normVal: normVals) {
-                    tuple.append(getOutputValue(normVal, true));
+                for(int k = 0; k < size; k++) {
+                    tuple.append(getOutputValue(this.normRow[k], true));
                 }
             }
         }
@@ -364,6 +373,20 @@ public class EvalNormUDF extends AbstractEvalUDF<Tuple> {
         return tuple;
     }
 
+    private NormPlan getNormPlan(ColumnConfig columnConfig) {
+        NormPlan normPlan = this.normPlans.get(columnConfig);
+        if(normPlan == null) {
+            normPlan = NormPlan.compile(columnConfig, this.modelConfig.getNormalizeStdDevCutOff(),
+                    this.modelConfig.getNormalizeType(), this.categoryMissingNormType,
+                    this.categoricalIndexMap.get(columnConfig.getColumnNum()));
+            this.normPlans.put(columnConfig, normPlan);
+            if(normPlan.size() > this.normRow.length) {
+                this.normRow = new double[normPlan.size()];
+            }
+        }
+        return normPlan;
+    }
+
     /**
      * output the schema for evaluation score
      */
@@ -414,7 +437,7 @@ public class EvalNormUDF extends AbstractEvalUDF<Tuple> {
         if(enablePrecision) {
             switch(this.precisionType) {
                 case FLOAT7:
-                    return NormalizeUDF.DECIMAL_FORMAT.format(value);
+                    return NumberCodec.formatDecimal(value, 6);
                 case FLOAT16:
                     return "" + NormalizeUDF.toFloat(NormalizeUDF.fromFloat((float) value));
                 case DOUBLE64:
@@ -17,10 +17,10 @@ package ml.shifu.shifu.udf;
 
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,6 +42,7 @@ import ml.shifu.shifu.container.obj.ModelNormalizeConf.NormType;
 import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
 import ml.shifu.shifu.core.DataPurifier;
 import ml.shifu.shifu.core.DataSampler;
+import ml.shifu.shifu.core.NormPlan;
 import ml.shifu.shifu.core.Normalizer;
 import ml.shifu.shifu.core.dtrain.CommonConstants;
 import ml.shifu.shifu.exception.ShifuErrorCode;
@@ -52,6 +53,7 @@ import ml.shifu.shifu.udf.norm.PrecisionType;
 import ml.shifu.shifu.udf.norm.WarnInNormalizeUDF;
 import ml.shifu.shifu.util.CommonUtils;
 import ml.shifu.shifu.util.Constants;
+import ml.shifu.shifu.util.NumberCodec;
 
 /**
  * NormalizeUDF class normalize the training data for parquet format.
@@ -60,7 +62,6 @@ public class NormalizeUDF extends AbstractTrainerUDF<Tuple> {
 
     private static final String POSRATE = "posrate";
     private static final int MAX_MISMATCH_CNT = 500;
-    public static DecimalFormat DECIMAL_FORMAT = new DecimalFormat("#.######");
 
     private List<Set<String>> tags;
 
@@ -120,6 +121,16 @@ public class NormalizeUDF extends AbstractTrainerUDF<Tuple> {
      */
     private CategoryMissingNormType categoryMissingNormType = CategoryMissingNormType.POSRATE;
 
+    /**
+     * Norm plans compiled once for each ColumnConfig instance, MTL column config lists have their own instances.
+     */
+    private Map<ColumnConfig, NormPlan> normPlans = new IdentityHashMap<ColumnConfig, NormPlan>();
+
+    /**
+     * Reusable buffer of normalized values of one column
+     */
+    private double[] normRow = new double[1];
+
     /**
      * Output compact column list for #isCompactNorm, schema is: tag, meta columns, feature list, weight
      */
@@ -595,17 +606,16 @@ public class NormalizeUDF extends AbstractTrainerUDF<Tuple> {
                             val = this.inputPrecisionType.to(dVal).toString();
                         }
 
-                        List<Double> normVals = Normalizer.fullNormalize(config, val, cutoff, normType,
-                                this.categoryMissingNormType, categoricalIndexMap.get(config.getColumnNum()));
-                        List<String> formatNormVals = new ArrayList<>();
-                        for(Double normVal: normVals) {
-                            String formatVal = getOutputValue(normVal, true);
-                            formatNormVals.add(formatVal);
-                        }
+                        NormPlan normPlan = getNormPlan(config, categoricalIndexMap.get(config.getColumnNum()));
+                        int size = normPlan.normalize(val, this.normRow, 0);
 
                         List<String> normVarNames = this.normVarNamesMapping.get(config.getColumnName());
+                        if(normVarNames.size() > size) {
+                            throw new IllegalStateException("Norm column names of " + config.getColumnName()
+                                    + " don't match with normalized values.");
+                        }
                         for(int k = 0; k < normVarNames.size(); k++) {
-                            compactVarMap.put(normVarNames.get(k), formatNormVals.get(k));
+                            compactVarMap.put(normVarNames.get(k), getOutputValue(this.normRow[k], true));
                         }
                     } else if(config.isMeta()) {
                         compactVarMap.put(CommonUtils.normColumnName(config.getColumnName()), val);
@@ -630,10 +640,10 @@ public class NormalizeUDF extends AbstractTrainerUDF<Tuple> {
                             }
                             val = this.inputPrecisionType.to(dVal).toString();
                         }
-                        List<Double> normVals = Normalizer.fullNormalize(config, val, cutoff, normType,
-                                this.categoryMissingNormType, categoricalIndexMap.get(config.getColumnNum()));
-                        for(Double normVal: normVals) {
-                            appendOutputValue(tuple, normVal, this.enablePrecision);
+                        NormPlan normPlan = getNormPlan(config, categoricalIndexMap.get(config.getColumnNum()));
+                        int size = normPlan.normalize(val, this.normRow, 0);
+                        for(int k = 0; k < size; k++) {
+                            appendOutputValue(tuple, this.normRow[k], this.enablePrecision);
                         }
                     } else {
                         tuple.append(config.isMeta() ? val : null);
@@ -644,6 +654,22 @@ public class NormalizeUDF extends AbstractTrainerUDF<Tuple> {
         return result;
     }
 
+    /**
+     * Get norm plan of column, compile it at the first time and grow row buffer if needed.
+     */
+    private NormPlan getNormPlan(ColumnConfig config, Map<String, Integer> cateIndexMap) {
+        NormPlan normPlan = this.normPlans.get(config);
+        if(normPlan == null) {
+            normPlan = NormPlan.compile(config, this.cutoff, this.normType, this.categoryMissingNormType,
+                    cateIndexMap);
+            this.normPlans.put(config, normPlan);
+            if(normPlan.size() > this.normRow.length) {
+                this.normRow = new double[normPlan.size()];
+            }
+        }
+        return normPlan;
+    }
+
     @SuppressWarnings("deprecation")
     private String validTag(Tuple input, int tagColumnNum, Set<String> tagSet) throws ExecException {
         Object tag = input.get(tagColumnNum);
@@ -673,7 +699,7 @@ public class NormalizeUDF extends AbstractTrainerUDF<Tuple> {
         if(enablePrecision) {
             switch(this.getPrecisionType()) {
                 case FLOAT7:
-                    return DECIMAL_FORMAT.format(value);
+                    return NumberCodec.formatDecimal(value, 6);
                 case FLOAT16:
                     return "" + toFloat(fromFloat((float) value));
                 case DOUBLE64:
@@ -695,7 +721,7 @@ public class NormalizeUDF extends AbstractTrainerUDF<Tuple> {
         if(enablePrecision) {
             switch(this.getPrecisionType()) {
                 case FLOAT7:
-                    tuple.append(DECIMAL_FORMAT.format(value));
+                    tuple.append(NumberCodec.formatDecimal(value, 6));
                     break;
                 case FLOAT16:
                     float float16 = toFloat(fromFloat((float) value));
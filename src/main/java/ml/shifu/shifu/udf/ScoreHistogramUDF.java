@@ -0,0 +1,268 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.udf;
+
+import java.io.IOException;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.pig.Algebraic;
+import org.apache.pig.EvalFunc;
+import org.apache.pig.data.BagFactory;
+import org.apache.pig.data.DataBag;
+import org.apache.pig.data.DataType;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.data.TupleFactory;
+import org.apache.pig.impl.logicalLayer.schema.Schema;
+import org.apache.pig.impl.logicalLayer.schema.Schema.FieldSchema;
+
+import ml.shifu.guagua.util.NumberFormatUtils;
+import ml.shifu.shifu.core.eval.ScoreHistogram;
+
+/**
+ * {@link ScoreHistogramUDF} builds {@link ScoreHistogram} of eval scores, input is a bag of (tag, weight, score)
+ * tuples and output is a bag of non-empty buckets (bucket, posCount, negCount, posWeight, negWeight).
+ *
+ * <p>
+ * The UDF is {@link Algebraic}: histograms are built in mappers, merged in combiners and then in one reducer, so that
+ * only buckets instead of all eval records are shuffled.
+ */
+public class ScoreHistogramUDF extends AbstractEvalUDF<DataBag> implements Algebraic {
+
+    private final double scale;
+
+    private final int buckets;
+
+    public ScoreHistogramUDF(String source, String pathModelConfig, String pathColumnConfig, String evalSetName,
+            String scale, String buckets) throws IOException {
+        super(source, pathModelConfig, pathColumnConfig, evalSetName);
+        this.scale = NumberFormatUtils.getDouble(scale, 1d);
+        this.buckets = NumberFormatUtils.getInt(buckets, ScoreHistogram.DEFAULT_BUCKETS);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.pig.EvalFunc#exec(org.apache.pig.data.Tuple)
+     */
+    @Override
+    public DataBag exec(Tuple input) throws IOException {
+        if(input == null || input.size() == 0) {
+            return null;
+        }
+        ScoreHistogram histogram = new ScoreHistogram(this.buckets, this.scale);
+        for(Tuple record: (DataBag) input.get(0)) {
+            Tuple bucket = toBucket(record, this.buckets, this.scale, this.posTagSet, this.negTagSet);
+            if(bucket != null) {
+                addBucket(histogram, bucket);
+            }
+        }
+        return toBag(histogram);
+    }
+
+    @Override
+    public String getInitial() {
+        return Initial.class.getName();
+    }
+
+    @Override
+    public String getIntermed() {
+        return Intermed.class.getName();
+    }
+
+    @Override
+    public String getFinal() {
+        return Final.class.getName();
+    }
+
+    /**
+     * Bucket tuple (bucket, posCount, negCount, posWeight, negWeight) of one (tag, weight, score) record, null if tag
+     * or score is invalid. Invalid or negative weight is taken as 1 like non-histogram eval.
+     */
+    private static Tuple toBucket(Tuple record, int buckets, double scale, Set<String> posTags, Set<String> negTags)
+            throws IOException {
+        if(record == null || record.size() < 3 || record.get(0) == null || record.get(2) == null) {
+            return null;
+        }
+        String tag = record.get(0).toString();
+        if(StringUtils.isBlank(tag) || (!posTags.contains(tag) && !negTags.contains(tag))) {
+            return null;
+        }
+
+        Object scoreObj = record.get(2);
+        double score = scoreObj instanceof Number ? ((Number) scoreObj).doubleValue()
+                : NumberFormatUtils.getDouble(scoreObj.toString(), Double.NaN);
+        if(Double.isNaN(score)) {
+            return null;
+        }
+
+        double weight = record.get(1) == null ? 1d : NumberFormatUtils.getDouble(record.get(1).toString(), 1d);
+        if(weight < 0d) {
+            weight = 1d;
+        }
+
+        boolean isPositive = posTags.contains(tag);
+        Tuple tuple = TupleFactory.getInstance().newTuple(5);
+        tuple.set(0, ScoreHistogram.getBucket(score, buckets, scale));
+        tuple.set(1, isPositive ? 1L : 0L);
+        tuple.set(2, isPositive ? 0L : 1L);
+        tuple.set(3, isPositive ? weight : 0d);
+        tuple.set(4, isPositive ? 0d : weight);
+        return tuple;
+    }
+
+    private static void addBucket(ScoreHistogram histogram, Tuple bucket) throws IOException {
+        histogram.add((Integer) bucket.get(0), (Long) bucket.get(1), (Long) bucket.get(2), (Double) bucket.get(3),
+                (Double) bucket.get(4));
+    }
+
+    /**
+     * Merge bag of intermediate tuples, each has one bag of non-empty buckets.
+     */
+    private static void mergeBuckets(ScoreHistogram histogram, DataBag partials) throws IOException {
+        for(Tuple partial: partials) {
+            DataBag bag = (DataBag) partial.get(0);
+            if(bag == null) {
+                continue;
+            }
+            for(Tuple bucket: bag) {
+                addBucket(histogram, bucket);
+            }
+        }
+    }
+
+    private static DataBag toBag(ScoreHistogram histogram) throws IOException {
+        DataBag bag = BagFactory.getInstance().newDefaultBag();
+        for(int i = 0; i < histogram.getBuckets(); i++) {
+            if(histogram.isEmpty(i)) {
+                continue;
+            }
+            Tuple tuple = TupleFactory.getInstance().newTuple(5);
+            tuple.set(0, i);
+            tuple.set(1, histogram.getPosCount(i));
+            tuple.set(2, histogram.getNegCount(i));
+            tuple.set(3, histogram.getPosWeight(i));
+            tuple.set(4, histogram.getNegWeight(i));
+            bag.add(tuple);
+        }
+        return bag;
+    }
+
+    /**
+     * Bucket tuples of records in mappers. Pig creates algebraic functions by no-arg constructor to check their types,
+     * and by constructor arguments of {@link ScoreHistogramUDF} to run them.
+     */
+    public static class Initial extends EvalFunc<Tuple> {
+
+        private final ScoreHistogramUDF udf;
+
+        public Initial() {
+            this.udf = null;
+        }
+
+        public Initial(String source, String pathModelConfig, String pathColumnConfig, String evalSetName,
+                String scale, String buckets) throws IOException {
+            this.udf = new ScoreHistogramUDF(source, pathModelConfig, pathColumnConfig, evalSetName, scale, buckets);
+        }
+
+        @Override
+        public Tuple exec(Tuple input) throws IOException {
+            // input bag has only a few records, buckets are output directly without a full histogram
+            DataBag bag = BagFactory.getInstance().newDefaultBag();
+            for(Tuple record: (DataBag) input.get(0)) {
+                Tuple bucket = toBucket(record, udf.buckets, udf.scale, udf.posTagSet, udf.negTagSet);
+                if(bucket != null) {
+                    bag.add(bucket);
+                }
+            }
+            return TupleFactory.getInstance().newTuple(bag);
+        }
+    }
+
+    /**
+     * Merge partial histograms in combiners, model configs are not needed and not loaded.
+     */
+    public static class Intermed extends EvalFunc<Tuple> {
+
+        private final double scale;
+
+        private final int buckets;
+
+        public Intermed() {
+            this.scale = 1d;
+            this.buckets = ScoreHistogram.DEFAULT_BUCKETS;
+        }
+
+        public Intermed(String source, String pathModelConfig, String pathColumnConfig, String evalSetName,
+                String scale, String buckets) {
+            this.scale = NumberFormatUtils.getDouble(scale, 1d);
+            this.buckets = NumberFormatUtils.getInt(buckets, ScoreHistogram.DEFAULT_BUCKETS);
+        }
+
+        @Override
+        public Tuple exec(Tuple input) throws IOException {
+            ScoreHistogram histogram = new ScoreHistogram(this.buckets, this.scale);
+            mergeBuckets(histogram, (DataBag) input.get(0));
+            return TupleFactory.getInstance().newTuple(toBag(histogram));
+        }
+    }
+
+    /**
+     * Merge all partial histograms in reducer into final non-empty buckets.
+     */
+    public static class Final extends EvalFunc<DataBag> {
+
+        private final double scale;
+
+        private final int buckets;
+
+        public Final() {
+            this.scale = 1d;
+            this.buckets = ScoreHistogram.DEFAULT_BUCKETS;
+        }
+
+        public Final(String source, String pathModelConfig, String pathColumnConfig, String evalSetName,
+                String scale, String buckets) {
+            this.scale = NumberFormatUtils.getDouble(scale, 1d);
+            this.buckets = NumberFormatUtils.getInt(buckets, ScoreHistogram.DEFAULT_BUCKETS);
+        }
+
+        @Override
+        public DataBag exec(Tuple input) throws IOException {
+            ScoreHistogram histogram = new ScoreHistogram(this.buckets, this.scale);
+            mergeBuckets(histogram, (DataBag) input.get(0));
+            return toBag(histogram);
+        }
+    }
+
+    @Override
+    public Schema outputSchema(Schema input) {
+        try {
+            Schema tupleSchema = new Schema();
+            tupleSchema.add(new FieldSchema("bucket", DataType.INTEGER));
+            tupleSchema.add(new FieldSchema("posCount", DataType.LONG));
+            tupleSchema.add(new FieldSchema("negCount", DataType.LONG));
+            tupleSchema.add(new FieldSchema("posWeight", DataType.DOUBLE));
+            tupleSchema.add(new FieldSchema("negWeight", DataType.DOUBLE));
+            return new Schema(new FieldSchema("ScoreHistogram",
+                    new Schema(new FieldSchema("bucket", tupleSchema, DataType.TUPLE)), DataType.BAG));
+        } catch (IOException e) {
+            log.error("Error in outputSchema", e);
+            return null;
+        }
+    }
+
+}
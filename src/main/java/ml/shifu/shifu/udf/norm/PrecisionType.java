@@ -15,14 +15,19 @@
 package ml.shifu.shifu.udf.norm;
 
 import java.math.BigDecimal;
-import java.text.DecimalFormat;
+
+import ml.shifu.shifu.util.NumberCodec;
 
 public enum PrecisionType {
 
     FLOAT7 {
 
         public Float to(double value) {
-            return (Double.isNaN(value) ? Float.NaN : Float.parseFloat(DECIMAL_FORMAT.format(value)));
+            if(Double.isNaN(value)) {
+                return Float.NaN;
+            }
+            StringBuilder sb = NumberCodec.appendDecimal(NumberCodec.localBuilder(), value, 6);
+            return NumberCodec.parseFloat(sb, 0, sb.length());
         }
 
     },
@@ -61,8 +66,6 @@ public enum PrecisionType {
 
     };
 
-    public static DecimalFormat DECIMAL_FORMAT = new DecimalFormat("#.######");
-
     public static PrecisionType of(String precisionType) {
         for(PrecisionType pt: PrecisionType.values()) {
             if(pt.toString().equalsIgnoreCase(precisionType)) {
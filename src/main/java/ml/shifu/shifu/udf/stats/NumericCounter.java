@@ -24,7 +24,7 @@ import java.util.*;
  */
 public class NumericCounter extends Counter {
 
-    private List<Double> binBoundary;
+    private double[] binBoundary;
 
     @SuppressWarnings("unused")
     private String name;
@@ -32,7 +32,10 @@ public class NumericCounter extends Counter {
     public NumericCounter(List<String> missingInvalidValues, String name, List<Double> binBoundary) {
         super(binBoundary.size(), new HashSet<>(missingInvalidValues));
         this.name = name;
-        this.binBoundary = binBoundary;
+        this.binBoundary = new double[binBoundary.size()];
+        for(int i = 0; i < this.binBoundary.length; i++) {
+            this.binBoundary[i] = binBoundary.get(i);
+        }
     }
 
     @Override
@@ -47,7 +50,7 @@ public class NumericCounter extends Counter {
             counter[binLen] += 1;
         } else {
             try {
-                Double dVal = Double.parseDouble(val);
+                double dVal = Double.parseDouble(val);
                 int index = BinUtils.getBinIndex(binBoundary, dVal);
                 counter[index] += 1;
                 unitSum += dVal;
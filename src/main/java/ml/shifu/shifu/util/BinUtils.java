@@ -15,14 +15,11 @@
  */
 package ml.shifu.shifu.util;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
 
-import com.google.common.base.Splitter;
-
 import ml.shifu.shifu.container.obj.ColumnConfig;
 
 /**
@@ -59,7 +56,7 @@ public final class BinUtils {
                 return getCategoicalBinIndex(columnConfig, columnVal.toString());
             }
         } else {
-            return getNumericalBinIndex(columnConfig.getBinBoundary(), columnVal);
+            return getNumericalBinIndex(columnConfig.getBinBoundaryArray(), columnVal);
         }
     }
 
@@ -93,6 +90,36 @@ public final class BinUtils {
         return getBinIndex(binBoundaries, dval);
     }
 
+    /**
+     * Get numerical bin index according to string column value.
+     * 
+     * @param binBoundaries
+     *            the bin boundaries, see {@link ColumnConfig#getBinBoundaryArray()}
+     * @param columnVal
+     *            the column value
+     * @return bin index, -1 if invalid values
+     */
+    public static int getNumericalBinIndex(double[] binBoundaries, Object columnVal) {
+        if(columnVal == null) {
+            return -1;
+        }
+
+        double dval = 0.0;
+
+        if(columnVal instanceof Double) {
+            dval = (Double) columnVal;
+        } else if(columnVal instanceof Integer) {
+            dval = ((Integer) columnVal).doubleValue();
+        } else {
+            try {
+                dval = Double.parseDouble(columnVal.toString());
+            } catch (Exception e) {
+                return -1;
+            }
+        }
+        return getBinIndex(binBoundaries, dval);
+    }
+
     /**
      * Get categorical bin index according to string column value.
      * 
@@ -109,22 +136,16 @@ public final class BinUtils {
         if(columnConfig.getHashSeed() > 0) {
             columnVal = columnVal.hashCode() % columnConfig.getHashSeed() + "";
         }
-        if(columnConfig.getColumnBinning().getBinCateMap() != null) {
-            Map<String, Integer> binCateMap = columnConfig.getColumnBinning().getBinCateMap();
-            Integer intIndex = binCateMap.get(columnVal);
-            if(intIndex == null || intIndex < 0) {
-                intIndex = -1;
-            }
-            return intIndex;
-        } else {
-            List<String> binCategories = columnConfig.getColumnBinning().getBinCategory();
-            for(int i = 0; i < binCategories.size(); i++) {
-                if(isCategoricalBinValue(binCategories.get(i), columnVal)) {
-                    return i;
-                }
-            }
+        // map is lazily built from bin categories with merged categories flattened
+        Map<String, Integer> binCateMap = columnConfig.getColumnBinning().getBinCateMap();
+        if(binCateMap == null) {
+            return -1;
+        }
+        Integer intIndex = binCateMap.get(columnVal);
+        if(intIndex == null || intIndex < 0) {
+            return -1;
         }
-        return -1;
+        return intIndex;
     }
 
     /**
@@ -137,25 +158,26 @@ public final class BinUtils {
      * @return true if the categorical value exists in group, else false
      */
     public static boolean isCategoricalBinValue(String binVal, String cval) {
-        // TODO cache flattenCatValGrp(binVal)??
-        return binVal.equals(cval) ? true : flattenCatValGrp(binVal).contains(cval);
-    }
-
-    /**
-     * flatten categorical value group into values list
-     * 
-     * @param categoricalValGrp
-     *            - categorical val group, it some values like zn^us^ck^
-     * @return value list of categorical val
-     */
-    private static List<String> flattenCatValGrp(String categoricalValGrp) {
-        List<String> catVals = new ArrayList<String>();
-        if(StringUtils.isNotBlank(categoricalValGrp)) {
-            for(String cval: Splitter.on(Constants.CATEGORICAL_GROUP_VAL_DELIMITER).split(categoricalValGrp)) {
-                catVals.add(cval);
+        if(binVal.equals(cval)) {
+            return true;
+        }
+        if(StringUtils.isBlank(binVal)) {
+            return false;
+        }
+        // scan values in group without splitting
+        String delimiter = Constants.CATEGORICAL_GROUP_VAL_DELIMITER;
+        int begin = 0;
+        while(true) {
+            int end = binVal.indexOf(delimiter, begin);
+            int valEnd = end < 0 ? binVal.length() : end;
+            if(valEnd - begin == cval.length() && binVal.startsWith(cval, begin)) {
+                return true;
+            }
+            if(end < 0) {
+                return false;
             }
+            begin = end + delimiter.length();
         }
-        return catVals;
     }
 
     /**
@@ -197,6 +219,43 @@ public final class BinUtils {
         return low == 0 ? 0 : low - 1;
     }
 
+    /**
+     * Get bin index by binary search on primitive bin boundaries, the same as {@link #getBinIndex(List, Double)} but
+     * without boxing.
+     * 
+     * @param binBoundary
+     *            bin boundary array which should be sorted, see {@link ColumnConfig#getBinBoundaryArray()}.
+     * @param dVal
+     *            value of column
+     * @return bin index, -1 if dValue is NaN.
+     */
+    public static int getBinIndex(double[] binBoundary, double dVal) {
+        assert binBoundary != null && binBoundary.length > 0;
+
+        if(Double.isNaN(dVal)) {
+            return -1;
+        }
+
+        int low = 0;
+        int high = binBoundary.length - 1;
+
+        while(low <= high) {
+            int mid = (low + high) >>> 1;
+            // Double.compare keeps the same order as Double.compareTo in boxed version
+            int cmp = Double.compare(binBoundary[mid], dVal);
+
+            if(cmp < 0) {
+                low = mid + 1;
+            } else if(cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid; // key found
+            }
+        }
+
+        return low == 0 ? 0 : low - 1;
+    }
+
     /**
      * Avoid parsing times, failed parsing is set to NaN
      * 
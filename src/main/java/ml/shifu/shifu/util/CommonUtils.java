@@ -60,6 +60,7 @@ import com.google.common.collect.Lists;
 import ml.shifu.guagua.util.NumberFormatUtils;
 import ml.shifu.shifu.column.NSColumn;
 import ml.shifu.shifu.column.NSColumnUtils;
+import ml.shifu.shifu.container.obj.ColumnBinning;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.EvalConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
@@ -446,22 +447,8 @@ public final class CommonUtils {
             // construct Category Index map for fast query.
             if(columnConfig.isCategorical() && columnConfig.getColumnBinning() != null
                     && columnConfig.getColumnBinning().getBinCategory() != null) {
-                List<String> categories = columnConfig.getColumnBinning().getBinCategory();
-                Map<String, Integer> categoryIndexMapping = new HashMap<String, Integer>();
-                for(int i = 0; i < categories.size(); i++) {
-                    String category = categories.get(i);
-                    if(category.contains(Constants.CATEGORICAL_GROUP_VAL_DELIMITER)) {
-                        // merged category should be flatten, use split function this class to avoid depending on guava
-                        String[] splits = ml.shifu.shifu.core.dtrain.StringUtils.split(category,
-                                Constants.CATEGORICAL_GROUP_VAL_DELIMITER);
-                        for(String str: splits) {
-                            categoryIndexMapping.put(str, i);
-                        }
-                    } else {
-                        categoryIndexMapping.put(category, i);
-                    }
-                }
-                columnConfig.getColumnBinning().setBinCateMap(categoryIndexMapping);
+                columnConfig.getColumnBinning().setBinCateMap(
+                        ColumnBinning.buildBinCateMap(columnConfig.getColumnBinning().getBinCategory()));
             }
             columnConfigList.add(columnConfig);
         }
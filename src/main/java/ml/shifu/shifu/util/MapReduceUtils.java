@@ -36,6 +36,17 @@ public class MapReduceUtils {
      * @return - Splitter for MR jobs.
      */
     public static Splitter generateShifuOutputSplitter(String delimiter) {
+        return Splitter.on(getShifuOutputDelimiter(delimiter));
+    }
+
+    /**
+     * Decode the base64-encoded delimiter for MR jobs, default delimiter is used if it is blank or cannot be decoded.
+     * 
+     * @param delimiter
+     *            - delimiter in context or properties
+     * @return - decoded delimiter for MR jobs.
+     */
+    public static String getShifuOutputDelimiter(String delimiter) {
         try {
             delimiter = (StringUtils.isNotBlank(delimiter) ? Base64Utils.base64Decode(delimiter)
                     : Constants.DEFAULT_DELIMITER);
@@ -43,6 +54,6 @@ public class MapReduceUtils {
             delimiter = Constants.DEFAULT_DELIMITER;
         }
         LOG.info("The delimiter of normalization data is - {}", delimiter);
-        return Splitter.on(delimiter);
+        return delimiter;
     }
 }
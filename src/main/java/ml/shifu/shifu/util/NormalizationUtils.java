@@ -16,10 +16,12 @@ package ml.shifu.shifu.util;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.encog.ml.data.MLDataPair;
@@ -29,6 +31,8 @@ import org.encog.ml.data.basic.BasicMLDataPair;
 import ml.shifu.shifu.column.NSColumn;
 import ml.shifu.shifu.container.obj.ColumnConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.container.obj.ModelNormalizeConf.NormType;
+import ml.shifu.shifu.core.NormPlan;
 import ml.shifu.shifu.core.Normalizer;
 import ml.shifu.shifu.core.dtrain.CommonConstants;
 import ml.shifu.shifu.udf.norm.CategoryMissingNormType;
@@ -36,6 +40,13 @@ import ml.shifu.shifu.udf.norm.PrecisionType;
 
 public class NormalizationUtils {
 
+    /**
+     * Norm plans compiled for ColumnConfig instances used in scoring. Plans don't refer to ColumnConfig, so the weak
+     * keys are released together with column config list, fallback plans are not cached as they refer to ColumnConfig.
+     */
+    private static final Map<ColumnConfig, NormPlan> NORM_PLANS = Collections
+            .synchronizedMap(new WeakHashMap<ColumnConfig, NormPlan>());
+
     public static MLDataPair assembleNsDataPair(Map<Integer, Map<String, Integer>> binCategoryMap, boolean noVarSel,
             ModelConfig modelConfig, List<ColumnConfig> columnConfigList, Map<NSColumn, String> rawNsDataMap,
             double cutoff, String alg) {
@@ -83,24 +94,17 @@ public class NormalizationUtils {
             double cutoff, String alg, CategoryMissingNormType categoryMissingNormType, PrecisionType pt) {
         double[] ideal = { Constants.DEFAULT_IDEAL_VALUE };
 
-        List<Double> inputList = assembleNormDataIntoList(binCategoryMap, noVarSel, modelConfig, columnConfigList,
-                rawNsDataMap, cutoff, alg, categoryMissingNormType, pt);
-
-        // god, Double [] cannot be casted to double[], toArray doesn't work
-        int size = inputList.size();
-        double[] input = new double[size];
-        for(int i = 0; i < size; i++) {
-            input[i] = inputList.get(i);
-        }
+        NormRow inputRow = new NormRow(columnConfigList.size());
+        assembleNormData(binCategoryMap, noVarSel, modelConfig, columnConfigList, rawNsDataMap, cutoff, alg,
+                categoryMissingNormType, pt, inputRow);
 
-        return new BasicMLDataPair(new BasicMLData(input), new BasicMLData(ideal));
+        return new BasicMLDataPair(new BasicMLData(inputRow.toArray()), new BasicMLData(ideal));
     }
 
-    private static List<Double> assembleNormDataIntoList(Map<Integer, Map<String, Integer>> binCategoryMap,
-            boolean noVarSel, ModelConfig modelConfig, List<ColumnConfig> columnConfigList,
-            Map<NSColumn, String> rawNsDataMap, double cutoff, String alg,
-            CategoryMissingNormType categoryMissingNormType, PrecisionType pt) {
-        List<Double> inputList = new ArrayList<Double>();
+    private static void assembleNormData(Map<Integer, Map<String, Integer>> binCategoryMap, boolean noVarSel,
+            ModelConfig modelConfig, List<ColumnConfig> columnConfigList, Map<NSColumn, String> rawNsDataMap,
+            double cutoff, String alg, CategoryMissingNormType categoryMissingNormType, PrecisionType pt,
+            NormRow inputRow) {
         boolean hasCandidates = CommonUtils.hasCandidateColumns(columnConfigList);
         for(ColumnConfig config: columnConfigList) {
             if(config == null) {
@@ -125,17 +129,15 @@ public class NormalizationUtils {
                             if(index == null) {
                                 // not in binCategories, should be missing value
                                 // -1 as missing value
-                                inputList.add(-1d);
+                                inputRow.add(-1d);
                             } else {
-                                inputList.add(index * 1d);
+                                inputRow.add(index * 1d);
                             }
                         } else if(CommonUtils.isWDLModel(alg)) {
-                            List<Double> normalizeValue = Normalizer.fullNormalize(config, val, cutoff,
-                                    modelConfig.getNormalizeType(), categoryMissingNormType,
-                                    binCategoryMap.get(config.getColumnNum()));
-                            inputList.addAll(normalizeValue);
+                            inputRow.add(getNormPlan(config, cutoff, modelConfig.getNormalizeType(),
+                                    categoryMissingNormType, binCategoryMap.get(config.getColumnNum()), true), val);
                         } else {
-                            inputList.addAll(computeNumericNormResult(modelConfig, cutoff, config, val, pt));
+                            computeNumericNormResult(modelConfig, cutoff, config, val, pt, inputRow);
                         }
                     }
                 } else {
@@ -146,23 +148,20 @@ public class NormalizationUtils {
                             if(index == null) {
                                 // not in binCategories, should be missing value
                                 // -1 as missing value
-                                inputList.add(-1d);
+                                inputRow.add(-1d);
                             } else {
-                                inputList.add(index * 1d);
+                                inputRow.add(index * 1d);
                             }
                         } else if(CommonUtils.isWDLModel(alg)) {
-                            List<Double> normalizeValue = Normalizer.fullNormalize(config, val, cutoff,
-                                    modelConfig.getNormalizeType(), categoryMissingNormType,
-                                    binCategoryMap.get(config.getColumnNum()));
-                            inputList.addAll(normalizeValue);
+                            inputRow.add(getNormPlan(config, cutoff, modelConfig.getNormalizeType(),
+                                    categoryMissingNormType, binCategoryMap.get(config.getColumnNum()), true), val);
                         } else {
-                            inputList.addAll(computeNumericNormResult(modelConfig, cutoff, config, val, pt));
+                            computeNumericNormResult(modelConfig, cutoff, config, val, pt, inputRow);
                         }
                     }
                 }
             }
         }
-        return inputList;
     }
 
     /**
@@ -276,7 +275,7 @@ public class NormalizationUtils {
         }
         double[] ideal = { Constants.DEFAULT_IDEAL_VALUE };
 
-        List<Double> inputList = new ArrayList<Double>();
+        NormRow inputRow = new NormRow(featureSet.size());
         for(ColumnConfig config: columnConfigList) {
             if(config == null) {
                 continue;
@@ -297,30 +296,21 @@ public class NormalizationUtils {
                         Integer index = binCategoryMap.get(config.getColumnNum()).get(val == null ? "" : val);
                         if(index == null) {
                             // not in binCategories, should be missing value -1 as missing value
-                            inputList.add(-1d);
+                            inputRow.add(-1d);
                         } else {
-                            inputList.add(index * 1d);
+                            inputRow.add(index * 1d);
                         }
                     } else if(CommonUtils.isWDLModel(alg) && config.isCategorical()) {
-                        List<Double> normalizeValue = Normalizer.fullNormalize(config, val, cutoff,
-                                modelConfig.getNormalizeType(), categoryMissingNormType,
-                                binCategoryMap.get(config.getColumnNum()));
-                        inputList.addAll(normalizeValue);
+                        inputRow.add(getNormPlan(config, cutoff, modelConfig.getNormalizeType(),
+                                categoryMissingNormType, binCategoryMap.get(config.getColumnNum()), true), val);
                     } else {
-                        inputList.addAll(computeNumericNormResult(modelConfig, cutoff, config, val, precisionType));
+                        computeNumericNormResult(modelConfig, cutoff, config, val, precisionType, inputRow);
                     }
                 }
             }
         }
 
-        // god, Double [] cannot be casted to double[], toArray doesn't work
-        int size = inputList.size();
-        double[] input = new double[size];
-        for(int i = 0; i < size; i++) {
-            input[i] = inputList.get(i);
-        }
-
-        return new BasicMLDataPair(new BasicMLData(input), new BasicMLData(ideal));
+        return new BasicMLDataPair(new BasicMLData(inputRow.toArray()), new BasicMLData(ideal));
     }
 
     /**
@@ -412,17 +402,18 @@ public class NormalizationUtils {
      *            - variable configuration
      * @param val
      *            - raw variable value
-     * @return - most normalization method return 1 element double list,
-     *         but OneHot will will return multi-elements double list
+     * @param inputRow
+     *            - row to append normalized values, most normalization method append 1 element,
+     *            but OneHot will append multi-elements
      */
-    private static List<Double> computeNumericNormResult(ModelConfig modelConfig, double cutoff, ColumnConfig config,
-            String val, PrecisionType pt) {
-        List<Double> normalizeValue = null;
+    private static void computeNumericNormResult(ModelConfig modelConfig, double cutoff, ColumnConfig config,
+            String val, PrecisionType pt, NormRow inputRow) {
+        int start = inputRow.size;
         if(CommonUtils.isTreeModel(modelConfig.getAlgorithm())) {
             try {
-                normalizeValue = Arrays.asList(new Double[] { Double.parseDouble(val) });
+                inputRow.add(Double.parseDouble(val));
             } catch (Exception e) {
-                normalizeValue = Arrays.asList(new Double[] { Normalizer.defaultMissingValue(config) });
+                inputRow.add(Normalizer.defaultMissingValue(config));
             }
         } else {
             if(pt != null) {
@@ -432,20 +423,36 @@ public class NormalizationUtils {
                     val = pt.to(Normalizer.defaultMissingValue(config)).toString();
                 }
             }
-            normalizeValue = Normalizer.normalize(config, val, cutoff, modelConfig.getNormalizeType());
+            inputRow.add(getNormPlan(config, cutoff, modelConfig.getNormalizeType(), CategoryMissingNormType.POSRATE,
+                    null, false), val);
         }
 
-        if(CollectionUtils.isNotEmpty(normalizeValue)) {
-            for(int i = 0; i < normalizeValue.size(); i++) {
-                Double nval = normalizeValue.get(i);
-                if(Double.isInfinite(nval) || Double.isNaN(nval)) {
-                    // if the value is Infinite or NaN, treat it as missing value
-                    // should treat Infinite as missing value also?
-                    normalizeValue.set(i, defaultMissingValue(config));
-                }
+        for(int i = start; i < inputRow.size; i++) {
+            double nval = inputRow.values[i];
+            if(Double.isInfinite(nval) || Double.isNaN(nval)) {
+                // if the value is Infinite or NaN, treat it as missing value
+                // should treat Infinite as missing value also?
+                inputRow.values[i] = defaultMissingValue(config);
             }
         }
-        return normalizeValue;
+    }
+
+    /**
+     * Get cached norm plan of column or compile a new one if settings are changed.
+     */
+    private static NormPlan getNormPlan(ColumnConfig config, double cutoff, NormType normType,
+            CategoryMissingNormType categoryMissingNormType, Map<String, Integer> cateIndexMap, boolean isFull) {
+        NormPlan normPlan = NORM_PLANS.get(config);
+        if(normPlan != null
+                && normPlan.isCompiledFor(cutoff, normType, categoryMissingNormType, cateIndexMap, isFull)) {
+            return normPlan;
+        }
+        normPlan = isFull ? NormPlan.compile(config, cutoff, normType, categoryMissingNormType, cateIndexMap)
+                : NormPlan.compile(config, cutoff, normType, categoryMissingNormType);
+        if(!normPlan.isFallback()) {
+            NORM_PLANS.put(config, normPlan);
+        }
+        return normPlan;
     }
 
     /**
@@ -505,20 +512,47 @@ public class NormalizationUtils {
             boolean noVarSelect, ModelConfig modelConfig, List<List<ColumnConfig>> mtlSelectedColumnConfigList,
             Map<NSColumn, String> rawNsDataMap, double cutoff, String alg,
             CategoryMissingNormType categoryMissingNormType) {
-        List<Double> finalList = new ArrayList<>();
+        NormRow inputRow = new NormRow(rawNsDataMap.size());
         for(int i = 0; i < mtlBinCategoryMaps.size(); i++) {
-            finalList.addAll(assembleNormDataIntoList(mtlBinCategoryMaps.get(i), noVarSelect, modelConfig,
-                    mtlSelectedColumnConfigList.get(i), rawNsDataMap, cutoff, alg, categoryMissingNormType, null));
+            assembleNormData(mtlBinCategoryMaps.get(i), noVarSelect, modelConfig, mtlSelectedColumnConfigList.get(i),
+                    rawNsDataMap, cutoff, alg, categoryMissingNormType, null, inputRow);
         }
 
-        // god, Double [] cannot be casted to double[], toArray doesn't work
-        int size = finalList.size();
-        double[] inputs = new double[size];
-        for(int i = 0; i < size; i++) {
-            inputs[i] = finalList.get(i);
+        double[] ideal = { Constants.DEFAULT_IDEAL_VALUE };
+        return new BasicMLDataPair(new BasicMLData(inputRow.toArray()), new BasicMLData(ideal));
+    }
+
+    /**
+     * Growable row of normalized values to avoid boxing values into list.
+     */
+    private static final class NormRow {
+
+        private double[] values;
+
+        private int size;
+
+        NormRow(int capacity) {
+            this.values = new double[Math.max(capacity, 1)];
         }
 
-        double[] ideal = { Constants.DEFAULT_IDEAL_VALUE };
-        return new BasicMLDataPair(new BasicMLData(inputs), new BasicMLData(ideal));
+        void add(double value) {
+            ensureCapacity(1);
+            this.values[this.size++] = value;
+        }
+
+        void add(NormPlan normPlan, Object raw) {
+            ensureCapacity(normPlan.size());
+            this.size = normPlan.normalize(raw, this.values, this.size);
+        }
+
+        private void ensureCapacity(int count) {
+            if(this.size + count > this.values.length) {
+                this.values = Arrays.copyOf(this.values, Math.max(this.values.length * 2, this.size + count));
+            }
+        }
+
+        double[] toArray() {
+            return this.size == this.values.length ? this.values : Arrays.copyOf(this.values, this.size);
+        }
     }
 }
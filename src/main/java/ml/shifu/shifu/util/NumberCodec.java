@@ -0,0 +1,314 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+
+/**
+ * {@link NumberCodec} formats and parses float and double text in normalized data and score output without
+ * {@link DecimalFormat}, intermediate {@link String}s or boxing in the common cases.
+ *
+ * <p>
+ * {@link #appendDecimal(StringBuilder, double, int)} has the same output as {@code DecimalFormat("#.######")} with
+ * the given number of fraction digits. Parse methods read a range of {@link CharSequence} and have the same results as
+ * {@link Float#parseFloat(String)} and {@link Double#parseDouble(String)}. Plain decimals which can be computed exactly
+ * are done in place, others like exponents, NaN or very long numbers fall back to JDK implementation.
+ */
+public final class NumberCodec {
+
+    /**
+     * Max fraction digits supported by {@link #appendDecimal(StringBuilder, double, int)}
+     */
+    public static final int MAX_FRACTION_DIGITS = 9;
+
+    /**
+     * Values with absolute value less than it are formatted in place, value * 10^fractionDigits is less than 2^53
+     */
+    private static final double MAX_FAST_FORMAT_VALUE = 1e6d;
+
+    /**
+     * Exact powers of ten in double
+     */
+    private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+            1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    private static final long[] LONG_POW10 = { 1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L,
+            100000000L, 1000000000L };
+
+    /**
+     * Max mantissa which can be converted to double exactly
+     */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /**
+     * Max significant digits read in place, longer ones may overflow long
+     */
+    private static final int MAX_FAST_DIGITS = 18;
+
+    private static final ThreadLocal<StringBuilder> LOCAL_BUILDER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(32);
+        }
+    };
+
+    private static final ThreadLocal<DecimalFormat[]> LOCAL_FORMATS = new ThreadLocal<DecimalFormat[]>() {
+        @Override
+        protected DecimalFormat[] initialValue() {
+            return new DecimalFormat[MAX_FRACTION_DIGITS + 1];
+        }
+    };
+
+    /**
+     * Avoid using new for our utility class.
+     */
+    private NumberCodec() {
+    }
+
+    /**
+     * @return thread local string builder which is cleared, it should not be held after next call of this class.
+     */
+    public static StringBuilder localBuilder() {
+        StringBuilder sb = LOCAL_BUILDER.get();
+        sb.setLength(0);
+        return sb;
+    }
+
+    /**
+     * Format value like {@code DecimalFormat("#.######")} with at most {@code fractionDigits} fraction digits.
+     *
+     * @param value
+     *            the value to format
+     * @param fractionDigits
+     *            max fraction digits, from 1 to {@link #MAX_FRACTION_DIGITS}
+     * @return formatted string
+     */
+    public static String formatDecimal(double value, int fractionDigits) {
+        return appendDecimal(localBuilder(), value, fractionDigits).toString();
+    }
+
+    /**
+     * Append value like {@code DecimalFormat("#.######")} with at most {@code fractionDigits} fraction digits: values
+     * are rounded in half even mode, trailing zeros and decimal point of integers are removed, and negative values
+     * rounded to zero are '-0'.
+     *
+     * @param sb
+     *            the string builder to append to
+     * @param value
+     *            the value to format
+     * @param fractionDigits
+     *            max fraction digits, from 1 to {@link #MAX_FRACTION_DIGITS}
+     * @return the string builder
+     */
+    public static StringBuilder appendDecimal(StringBuilder sb, double value, int fractionDigits) {
+        if(fractionDigits < 1 || fractionDigits > MAX_FRACTION_DIGITS) {
+            throw new IllegalArgumentException("Fraction digits should be in [1, " + MAX_FRACTION_DIGITS + "].");
+        }
+        double abs = Math.abs(value);
+        if(!(abs < MAX_FAST_FORMAT_VALUE)) {
+            // NaN, infinite and large values
+            return sb.append(decimalFormat(fractionDigits).format(value));
+        }
+
+        long scaled = roundHalfEven(abs, fractionDigits);
+        if(value < 0d || (value == 0d && 1d / value < 0d)) {
+            sb.append('-');
+        }
+        long unit = LONG_POW10[fractionDigits];
+        sb.append(scaled / unit);
+        long fraction = scaled % unit;
+        if(fraction != 0L) {
+            int digits = fractionDigits;
+            while(fraction % 10L == 0L) {
+                fraction /= 10L;
+                digits -= 1;
+            }
+            sb.append('.');
+            for(long base = LONG_POW10[digits - 1]; base > fraction; base /= 10L) {
+                sb.append('0');
+            }
+            sb.append(fraction);
+        }
+        return sb;
+    }
+
+    /**
+     * Round exact value of {@code abs * 10^fractionDigits} to long in half even mode.
+     */
+    private static long roundHalfEven(double abs, int fractionDigits) {
+        double scaled = abs * POW10[fractionDigits];
+        double floor = Math.floor(scaled);
+        // only one rounding in multiply, error is no more than half ulp, check exact value if too close to half
+        if(Math.abs(scaled - floor - 0.5d) <= Math.ulp(scaled)) {
+            return new BigDecimal(abs).setScale(fractionDigits, RoundingMode.HALF_EVEN).unscaledValue().longValue();
+        }
+        return (long) Math.rint(scaled);
+    }
+
+    private static DecimalFormat decimalFormat(int fractionDigits) {
+        DecimalFormat[] formats = LOCAL_FORMATS.get();
+        if(formats[fractionDigits] == null) {
+            StringBuilder pattern = new StringBuilder("#.");
+            for(int i = 0; i < fractionDigits; i++) {
+                pattern.append('#');
+            }
+            formats[fractionDigits] = new DecimalFormat(pattern.toString());
+        }
+        return formats[fractionDigits];
+    }
+
+    /**
+     * Parse float in range of char sequence, the same as {@link Float#parseFloat(String)}.
+     *
+     * @param cs
+     *            the char sequence
+     * @param start
+     *            start index, inclusive
+     * @param end
+     *            end index, exclusive
+     * @return parsed float value
+     * @throws NumberFormatException
+     *             if not a valid float
+     */
+    public static float parseFloat(CharSequence cs, int start, int end) {
+        double value = parseExactDecimal(cs, start, end);
+        if(!Double.isNaN(value)) {
+            float fval = (float) value;
+            if(!isFloatRoundingTie(value, fval)) {
+                return fval;
+            }
+        }
+        return Float.parseFloat(cs.subSequence(start, end).toString());
+    }
+
+    /**
+     * Parse float in range of char sequence, default value is returned if empty or not a valid float.
+     */
+    public static float parseFloat(CharSequence cs, int start, int end, float defVal) {
+        if(start >= end) {
+            return defVal;
+        }
+        try {
+            return parseFloat(cs, start, end);
+        } catch (NumberFormatException e) {
+            return defVal;
+        }
+    }
+
+    /**
+     * Parse double in range of char sequence, the same as {@link Double#parseDouble(String)}.
+     *
+     * @param cs
+     *            the char sequence
+     * @param start
+     *            start index, inclusive
+     * @param end
+     *            end index, exclusive
+     * @return parsed double value
+     * @throws NumberFormatException
+     *             if not a valid double
+     */
+    public static double parseDouble(CharSequence cs, int start, int end) {
+        double value = parseExactDecimal(cs, start, end);
+        if(!Double.isNaN(value)) {
+            return value;
+        }
+        return Double.parseDouble(cs.subSequence(start, end).toString());
+    }
+
+    /**
+     * Parse double in range of char sequence, default value is returned if empty or not a valid double.
+     */
+    public static double parseDouble(CharSequence cs, int start, int end, double defVal) {
+        if(start >= end) {
+            return defVal;
+        }
+        try {
+            return parseDouble(cs, start, end);
+        } catch (NumberFormatException e) {
+            return defVal;
+        }
+    }
+
+    /**
+     * Parse plain decimal like '-12.345' whose digits and power of ten are both exact in double, in which case the
+     * division is correctly rounded.
+     *
+     * @return correctly rounded double value or NaN if it cannot be computed exactly in place
+     */
+    private static double parseExactDecimal(CharSequence cs, int start, int end) {
+        int i = start;
+        boolean isNegative = false;
+        if(i < end && (cs.charAt(i) == '-' || cs.charAt(i) == '+')) {
+            isNegative = cs.charAt(i) == '-';
+            i += 1;
+        }
+        long mantissa = 0L;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean hasPoint = false;
+        boolean hasDigit = false;
+        for(; i < end; i++) {
+            char c = cs.charAt(i);
+            if(c >= '0' && c <= '9') {
+                hasDigit = true;
+                if(mantissa == 0L && c == '0') {
+                    // leading zeros are not significant
+                    if(hasPoint) {
+                        fractionDigits += 1;
+                    }
+                    continue;
+                }
+                if(++digits > MAX_FAST_DIGITS) {
+                    return Double.NaN;
+                }
+                mantissa = mantissa * 10L + (c - '0');
+                if(hasPoint) {
+                    fractionDigits += 1;
+                }
+            } else if(c == '.' && !hasPoint) {
+                hasPoint = true;
+            } else {
+                return Double.NaN;
+            }
+        }
+        if(!hasDigit || mantissa > MAX_EXACT_MANTISSA || fractionDigits >= POW10.length) {
+            return Double.NaN;
+        }
+        double value = fractionDigits == 0 ? (double) mantissa : mantissa / POW10[fractionDigits];
+        return isNegative ? -value : value;
+    }
+
+    /**
+     * Casting double to float rounds twice when the double is rounded from decimal, it may be wrong only if double is
+     * exactly halfway between two floats, or is out of normal float range.
+     */
+    private static boolean isFloatRoundingTie(double value, float fval) {
+        if(value == 0d) {
+            return false;
+        }
+        double abs = Math.abs(value);
+        if(abs < Float.MIN_NORMAL || Float.isInfinite(fval)) {
+            return true;
+        }
+        // low 29 bits of double mantissa are dropped in float
+        long bits = Double.doubleToRawLongBits(value) & 0x1fffffffL;
+        return bits == 0x10000000L;
+    }
+
+}
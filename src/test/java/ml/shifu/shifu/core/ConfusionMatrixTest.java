@@ -18,17 +18,23 @@ package ml.shifu.shifu.core;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import ml.shifu.shifu.container.ConfusionMatrixObject;
+import ml.shifu.shifu.container.PerformanceObject;
 import ml.shifu.shifu.container.obj.EvalConfig;
 import ml.shifu.shifu.container.obj.ModelConfig;
 import ml.shifu.shifu.container.obj.ModelTrainConf.ALGORITHM;
+import ml.shifu.shifu.container.obj.PerformanceResult;
 import ml.shifu.shifu.exception.ShifuException;
 import ml.shifu.shifu.util.Constants;
 
@@ -109,6 +115,60 @@ public class ConfusionMatrixTest {
         new ConfusionMatrix(modelConfig, null, evalConfig);
     }
 
+    @Test
+    public void testPerformanceBinsOfWideHistogramBuckets() {
+        int numBucket = 10;
+        ConfusionMatrixObject cmo = new ConfusionMatrixObject();
+        cmo.setFn(10d);
+        cmo.setTn(10d);
+        cmo.setWeightedFn(10d);
+        cmo.setWeightedTn(10d);
+        cmo.setScore(1000d);
+        ConfusionMatrix.PerformanceBins bins = new ConfusionMatrix.PerformanceBins(numBucket, 1000d, 0d, 20L,
+                PerformanceEvaluator.setPerformanceObject(cmo));
+
+        // each histogram bucket spans several bins of all lists
+        cmo = addBucket(cmo, 6, 3, 900d);
+        bins.add(cmo, 900d, 9L, 9d, 9d);
+        cmo = addBucket(cmo, 4, 7, 0d);
+        bins.add(cmo, 0d, 20L, 11d, 11d);
+        PerformanceResult result = bins.buildPerfResult();
+
+        for(List<PerformanceObject> list: Arrays.asList(result.roc, result.pr, result.gains, result.modelScoreList,
+                result.weightedRoc, result.weightedPr, result.weightedGains)) {
+            Assert.assertEquals(list.size(), numBucket + 1);
+            for(int i = 0; i < list.size(); i++) {
+                Assert.assertEquals(list.get(i).binNum, i);
+            }
+        }
+        // fpr is 0.3 after the first bucket, bins 1-3 are crossed by the first bucket
+        Assert.assertEquals(result.roc.get(3).fpr, 0.3d, 1e-10);
+        Assert.assertEquals(result.roc.get(4).fpr, 1d, 1e-10);
+        // recall is 0.6 after the first bucket
+        Assert.assertEquals(result.pr.get(6).recall, 0.6d, 1e-10);
+        Assert.assertEquals(result.pr.get(7).recall, 1d, 1e-10);
+        // model score bins are [900, 1000], then all records of the second bucket are in the first crossed bin
+        Assert.assertEquals(result.modelScoreList.get(1).scoreCount, 9d);
+        Assert.assertEquals(result.modelScoreList.get(2).scoreCount, 11d);
+        for(int i = 3; i <= numBucket; i++) {
+            Assert.assertEquals(result.modelScoreList.get(i).scoreCount, 0d);
+        }
+    }
+
+    private static ConfusionMatrixObject addBucket(ConfusionMatrixObject prevCmo, int pos, int neg, double score) {
+        ConfusionMatrixObject cmo = new ConfusionMatrixObject(prevCmo);
+        cmo.setTp(cmo.getTp() + pos);
+        cmo.setFn(cmo.getFn() - pos);
+        cmo.setWeightedTp(cmo.getWeightedTp() + pos);
+        cmo.setWeightedFn(cmo.getWeightedFn() - pos);
+        cmo.setFp(cmo.getFp() + neg);
+        cmo.setTn(cmo.getTn() - neg);
+        cmo.setWeightedFp(cmo.getWeightedFp() + neg);
+        cmo.setWeightedTn(cmo.getWeightedTn() - neg);
+        cmo.setScore(score);
+        return cmo;
+    }
+
     @AfterClass
     public void tearDown() throws IOException {
         File dir = new File("test");
@@ -0,0 +1,167 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import ml.shifu.shifu.container.obj.ColumnBinning;
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.container.obj.ColumnType;
+import ml.shifu.shifu.container.obj.ModelNormalizeConf.NormType;
+import ml.shifu.shifu.udf.norm.CategoryMissingNormType;
+
+public class NormPlanTest {
+
+    private static final Object[] NUMERICAL_VALUES = { "5.0", "3", "-100", "1e10", "wrong_format", "", " ", null,
+            "NaN", "Infinity", 2.5d, 7, 1.5f };
+
+    private static final Object[] CATEGORICAL_VALUES = { "a", "b", "c", "d", "unknown", "", null, 1 };
+
+    private static final Object[] HYBRID_VALUES = { "5.0", "-1", "a", "b", "wrong_format", "", null };
+
+    @Test
+    public void testNumerical() {
+        ColumnConfig config = numericalConfig();
+        assertSameAsNormalizer(config, NUMERICAL_VALUES, null);
+    }
+
+    @Test
+    public void testCategorical() {
+        ColumnConfig config = categoricalConfig();
+        Map<String, Integer> cateIndexMap = new HashMap<String, Integer>();
+        cateIndexMap.put("a", 0);
+        cateIndexMap.put("b", 1);
+        cateIndexMap.put("c", 2);
+        assertSameAsNormalizer(config, CATEGORICAL_VALUES, cateIndexMap);
+    }
+
+    @Test
+    public void testHybrid() {
+        ColumnConfig config = numericalConfig();
+        config.setColumnType(ColumnType.H);
+        config.getColumnBinning().setBinCategory(Arrays.asList("a", "b"));
+        config.getColumnBinning().setBinCountWoe(Arrays.asList(10.0, 11.0, 12.0, 13.0, 1.0, 2.0, 6.5));
+        config.getColumnBinning().setBinWeightedWoe(Arrays.asList(20.0, 21.0, 22.0, 23.0, 3.0, 4.0, 16.5));
+        config.getColumnBinning().setBinCountNeg(Arrays.asList(1, 2, 3, 4, 5, 6, 7));
+        config.getColumnBinning().setBinCountPos(Arrays.asList(7, 6, 5, 4, 3, 2, 1));
+        for(NormType normType: new NormType[] { NormType.WOE, NormType.WEIGHT_WOE, NormType.WOE_ZSCORE,
+                NormType.WEIGHT_WOE_ZSCALE }) {
+            assertSameAsNormalizer(config, HYBRID_VALUES, normType, null);
+        }
+    }
+
+    @Test
+    public void testMissingStatsFallback() {
+        ColumnConfig config = new ColumnConfig();
+        config.setColumnType(ColumnType.N);
+        config.setMean(2.0);
+        config.getColumnBinning().setBinBoundary(Arrays.asList(Double.NEGATIVE_INFINITY, 2.0));
+        config.getColumnBinning().setBinCountWoe(Arrays.asList(1.0, null, 3.0));
+
+        NormPlan plan = NormPlan.compile(config, 4.0, NormType.WOE, CategoryMissingNormType.POSRATE);
+        Assert.assertTrue(plan.isFallback());
+        Assert.assertEquals(plan.normalize("1.0"), Arrays.asList(1.0));
+
+        plan = NormPlan.compile(config, 4.0, NormType.ZSCALE, CategoryMissingNormType.POSRATE);
+        Assert.assertTrue(plan.isFallback());
+    }
+
+    @Test
+    public void testRowBuffer() {
+        ColumnConfig config = categoricalConfig();
+        NormPlan plan = NormPlan.compile(config, 4.0, NormType.ONEHOT, CategoryMissingNormType.POSRATE);
+        Assert.assertEquals(plan.size(), 5);
+
+        double[] row = new double[7];
+        Arrays.fill(row, -1d);
+        Assert.assertEquals(plan.normalize("b", row, 1), 6);
+        Assert.assertEquals(row, new double[] { -1d, 0d, 1d, 0d, 0d, 0d, -1d });
+        Assert.assertEquals(plan.normalize("unknown", row, 1), 6);
+        Assert.assertEquals(row, new double[] { -1d, 0d, 0d, 0d, 0d, 1d, -1d });
+
+        Assert.assertTrue(plan.isCompiledFor(4.0, NormType.ONEHOT, CategoryMissingNormType.POSRATE, null, false));
+        Assert.assertFalse(plan.isCompiledFor(4.0, NormType.ONEHOT, CategoryMissingNormType.MEAN, null, false));
+    }
+
+    private static ColumnConfig numericalConfig() {
+        ColumnConfig config = new ColumnConfig();
+        config.setColumnType(ColumnType.N);
+        config.setMean(2.0);
+        config.setStdDev(1.0);
+        config.getColumnStats().setMin(-3.0);
+        config.getColumnStats().setMax(12.0);
+
+        ColumnBinning cbin = new ColumnBinning();
+        cbin.setBinCountWoe(Arrays.asList(10.0, 11.0, 12.0, 13.0, 6.5));
+        cbin.setBinWeightedWoe(Arrays.asList(20.0, 21.0, 22.0, 23.0, 16.5));
+        cbin.setBinBoundary(Arrays.asList(Double.NEGATIVE_INFINITY, 2.0, 4.0, 6.0));
+        cbin.setBinCountNeg(Arrays.asList(1, 2, 3, 4, 5));
+        cbin.setBinCountPos(Arrays.asList(5, 4, 3, 2, 1));
+        cbin.setBinPosRate(Arrays.asList(0.8, 0.6, 0.5, 0.3, 0.1));
+        config.setColumnBinning(cbin);
+        return config;
+    }
+
+    private static ColumnConfig categoricalConfig() {
+        ColumnConfig config = new ColumnConfig();
+        config.setColumnType(ColumnType.C);
+        config.setMean(0.4);
+        config.setStdDev(0.2);
+
+        ColumnBinning cbin = new ColumnBinning();
+        cbin.setBinCategory(Arrays.asList("a", "b", "c", "d"));
+        cbin.setBinCountWoe(Arrays.asList(10.0, 11.0, 12.0, 13.0, 6.5));
+        cbin.setBinWeightedWoe(Arrays.asList(20.0, 21.0, 22.0, 23.0, 16.5));
+        cbin.setBinCountNeg(Arrays.asList(1, 2, 3, 4, 5));
+        cbin.setBinCountPos(Arrays.asList(5, 4, 3, 2, 1));
+        cbin.setBinPosRate(Arrays.asList(0.8, 0.6, 0.4, 0.3, 0.1));
+        config.setColumnBinning(cbin);
+        return config;
+    }
+
+    private static void assertSameAsNormalizer(ColumnConfig config, Object[] values,
+            Map<String, Integer> cateIndexMap) {
+        for(NormType normType: NormType.values()) {
+            assertSameAsNormalizer(config, values, normType, cateIndexMap);
+        }
+    }
+
+    private static void assertSameAsNormalizer(ColumnConfig config, Object[] values, NormType normType,
+            Map<String, Integer> cateIndexMap) {
+        for(CategoryMissingNormType missingNormType: CategoryMissingNormType.values()) {
+            for(Double cutoff: new Double[] { null, 1.5 }) {
+                NormPlan plan = NormPlan.compile(config, cutoff, normType, missingNormType);
+                NormPlan fullPlan = NormPlan.compile(config, cutoff, normType, missingNormType, cateIndexMap);
+                for(Object value: values) {
+                    String message = normType + " " + missingNormType + " " + cutoff + " " + value;
+                    List<Double> expected = Normalizer.normalize(config, value, cutoff, normType, missingNormType);
+                    Assert.assertEquals(plan.normalize(value), expected, message);
+                    expected = Normalizer.fullNormalize(config, value, cutoff, normType, missingNormType,
+                            cateIndexMap);
+                    Assert.assertEquals(fullPlan.normalize(value), expected, message);
+                    Assert.assertEquals(fullPlan.size(), expected.size(), message);
+                }
+            }
+        }
+    }
+
+}
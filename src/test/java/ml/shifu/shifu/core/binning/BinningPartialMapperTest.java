@@ -0,0 +1,372 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.binning;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.mapred.RawKeyValueIterator;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.counters.GenericCounter;
+import org.apache.hadoop.mapreduce.lib.map.WrappedMapper;
+import org.apache.hadoop.mapreduce.lib.reduce.WrappedReducer;
+import org.apache.hadoop.mapreduce.task.MapContextImpl;
+import org.apache.hadoop.mapreduce.task.ReduceContextImpl;
+import org.apache.hadoop.util.Progress;
+import org.apache.pig.data.BagFactory;
+import org.apache.pig.data.DataBag;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.data.TupleFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.container.obj.ColumnType;
+import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.container.obj.ModelStatsConf.BinningMethod;
+import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
+import ml.shifu.shifu.udf.AddColumnNumAndFilterUDF;
+import ml.shifu.shifu.udf.AddColumnNumUDF;
+import ml.shifu.shifu.udf.BinningDataMergeUDF;
+import ml.shifu.shifu.udf.BinningPartialDataUDF;
+import ml.shifu.shifu.udf.CalculateStatsUDF;
+import ml.shifu.shifu.util.CommonUtils;
+import ml.shifu.shifu.util.Constants;
+import ml.shifu.shifu.util.JSONUtils;
+
+public class BinningPartialMapperTest {
+
+    private static final String MODEL_SET = "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/";
+
+    private static final int CATEGORICAL_COLUMN = 2;
+
+    private static final int HYBRID_COLUMN = 3;
+
+    private static final int NUMERICAL_COLUMN = 4;
+
+    private static final String SEPARATOR = String.valueOf(CalculateStatsUDF.CATEGORY_VAL_SEPARATOR);
+
+    private File tmpDir;
+
+    private String modelConfigPath;
+
+    private String columnConfigPath;
+
+    @BeforeClass
+    public void setUp() throws IOException {
+        this.tmpDir = new File("tmp/binning-partial-test");
+        FileUtils.deleteQuietly(this.tmpDir);
+        this.tmpDir.mkdirs();
+
+        ModelConfig modelConfig = CommonUtils.loadModelConfig(MODEL_SET + "ModelConfig.json", SourceType.LOCAL);
+        // weight column column_3 is used in weighted equal population binning
+        modelConfig.getStats().setBinningMethod(BinningMethod.WeightEqualTotal);
+        modelConfig.getStats().setSampleRate(1d);
+        List<ColumnConfig> columnConfigList = CommonUtils.loadColumnConfigList(MODEL_SET + "ColumnConfig.json",
+                SourceType.LOCAL);
+        columnConfigList.get(CATEGORICAL_COLUMN).setColumnType(ColumnType.C);
+        columnConfigList.get(HYBRID_COLUMN).setColumnType(ColumnType.H);
+        columnConfigList.get(HYBRID_COLUMN).setHybridThreshold(0d);
+
+        this.modelConfigPath = new File(this.tmpDir, "ModelConfig.json").getPath();
+        this.columnConfigPath = new File(this.tmpDir, "ColumnConfig.json").getPath();
+        JSONUtils.writeValue(new File(this.modelConfigPath), modelConfig);
+        JSONUtils.writeValue(new File(this.columnConfigPath), columnConfigList);
+    }
+
+    @AfterClass
+    public void tearDown() {
+        FileUtils.deleteQuietly(this.tmpDir);
+    }
+
+    @Test
+    public void testSameBinningAsPigUDFs() throws Exception {
+        int columns = CommonUtils.loadColumnConfigList(this.columnConfigPath, SourceType.LOCAL).size();
+        Random random = new Random(21L);
+        // two input splits for two mappers and two groups of pig partial binning
+        List<List<String>> splits = new ArrayList<List<String>>();
+        for(int s = 0; s < 2; s++) {
+            List<String> lines = new ArrayList<String>();
+            for(int r = 0; r < 300; r++) {
+                lines.add(newLine(random, columns));
+            }
+            splits.add(lines);
+        }
+
+        Map<Integer, String> expected = runPigUDFs(splits);
+        Map<Integer, String> actual = runMapReduce(splits);
+
+        Assert.assertEquals(actual.keySet(), expected.keySet());
+        for(Map.Entry<Integer, String> entry: expected.entrySet()) {
+            Assert.assertEquals(actual.get(entry.getKey()), entry.getValue(), "column " + entry.getKey());
+        }
+
+        // numerical, categorical and hybrid columns are all binned
+        String[] numerical = CommonUtils.split(actual.get(NUMERICAL_COLUMN), Constants.DEFAULT_DELIMITER);
+        Assert.assertTrue(CommonUtils.split(numerical[1], SEPARATOR).length > 5);
+        Assert.assertEquals(numerical[2], "-1");
+        String[] categorical = CommonUtils.split(actual.get(CATEGORICAL_COLUMN), Constants.DEFAULT_DELIMITER);
+        Assert.assertTrue(categorical[1].contains("cat1"));
+        // five categories and the empty missing value
+        Assert.assertEquals(categorical[2], "6");
+        String[] hybrid = CommonUtils.split(actual.get(HYBRID_COLUMN), Constants.DEFAULT_DELIMITER);
+        Assert.assertTrue(hybrid[1].contains(Constants.HYBRID_BIN_STR_DILIMETER));
+        Assert.assertTrue(hybrid[1].contains("unknown"));
+    }
+
+    private static String newLine(Random random, int columns) {
+        StringBuilder sb = new StringBuilder(random.nextBoolean() ? "M" : "B");
+        for(int i = 1; i < columns; i++) {
+            sb.append(Constants.DEFAULT_DELIMITER);
+            if(i == 1) {
+                // weight
+                sb.append(1 + random.nextInt(5));
+            } else if(i == CATEGORICAL_COLUMN) {
+                sb.append(random.nextInt(10) == 0 ? "" : "cat" + random.nextInt(5));
+            } else if(i == HYBRID_COLUMN) {
+                int r = random.nextInt(10);
+                sb.append(r == 0 ? "unknown" : (r == 1 ? "-1" : String.valueOf(random.nextGaussian() * 10)));
+            } else {
+                sb.append(random.nextInt(50) == 0 ? "abc" : String.valueOf(random.nextGaussian() * i));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Pig path in StatsSpdtI.pig: AddColumnNumAndFilterUDF, group by column, BinningPartialDataUDF, group by column
+     * and BinningDataMergeUDF.
+     */
+    private Map<Integer, String> runPigUDFs(List<List<String>> splits) throws Exception {
+        AddColumnNumAndFilterUDF addColumnNum = new AddColumnNumAndFilterUDF("LOCAL", this.modelConfigPath,
+                this.columnConfigPath, "false", "false");
+        BinningPartialDataUDF partialData = new BinningPartialDataUDF("LOCAL", this.modelConfigPath,
+                this.columnConfigPath);
+        BinningDataMergeUDF dataMerge = new BinningDataMergeUDF("LOCAL", this.modelConfigPath,
+                this.columnConfigPath);
+        TupleFactory tupleFactory = TupleFactory.getInstance();
+        BagFactory bagFactory = BagFactory.getInstance();
+
+        Map<Integer, DataBag> partials = new TreeMap<Integer, DataBag>();
+        for(List<String> lines: splits) {
+            Map<Integer, DataBag> columnBags = new TreeMap<Integer, DataBag>();
+            for(String line: lines) {
+                Tuple input = tupleFactory.newTuple();
+                for(String unit: CommonUtils.split(line, Constants.DEFAULT_DELIMITER)) {
+                    input.append(unit);
+                }
+                DataBag bag = addColumnNum.exec(input);
+                if(bag == null) {
+                    continue;
+                }
+                for(Tuple tuple: bag) {
+                    Integer columnId = (Integer) tuple.get(AddColumnNumUDF.COLUMN_ID_INDX);
+                    if(!columnBags.containsKey(columnId)) {
+                        columnBags.put(columnId, bagFactory.newDefaultBag());
+                    }
+                    columnBags.get(columnId).add(tuple);
+                }
+            }
+            for(Map.Entry<Integer, DataBag> entry: columnBags.entrySet()) {
+                String partial = partialData.exec(tupleFactory.newTuple(entry.getValue()));
+                if(!partials.containsKey(entry.getKey())) {
+                    partials.put(entry.getKey(), bagFactory.newDefaultBag());
+                }
+                Tuple partialTuple = tupleFactory.newTuple(2);
+                partialTuple.set(0, entry.getKey());
+                partialTuple.set(1, partial);
+                partials.get(entry.getKey()).add(partialTuple);
+            }
+        }
+
+        Map<Integer, String> results = new TreeMap<Integer, String>();
+        for(Map.Entry<Integer, DataBag> entry: partials.entrySet()) {
+            Tuple input = tupleFactory.newTuple(2);
+            input.set(0, entry.getKey());
+            input.set(1, entry.getValue());
+            Tuple output = dataMerge.exec(input);
+            results.put(entry.getKey(), output.get(0) + Constants.DEFAULT_DELIMITER + output.get(1)
+                    + Constants.DEFAULT_DELIMITER + output.get(2));
+        }
+        return results;
+    }
+
+    private Map<Integer, String> runMapReduce(List<List<String>> splits) throws Exception {
+        Configuration conf = new Configuration();
+        conf.set(Constants.SHIFU_MODELSET_SOURCE_TYPE, SourceType.LOCAL.toString());
+        conf.set(Constants.SHIFU_MODEL_CONFIG, this.modelConfigPath);
+        conf.set(Constants.SHIFU_COLUMN_CONFIG, this.columnConfigPath);
+
+        // shuffle: partial binning of the same column in mapper order
+        final Map<Integer, List<String>> shuffled = new TreeMap<Integer, List<String>>();
+        for(List<String> lines: splits) {
+            BinningPartialMapper mapper = new BinningPartialMapper();
+            RecordWriter<IntWritable, Text> writer = new RecordWriter<IntWritable, Text>() {
+                @Override
+                public void write(IntWritable key, Text value) {
+                    if(!shuffled.containsKey(key.get())) {
+                        shuffled.put(key.get(), new ArrayList<String>());
+                    }
+                    shuffled.get(key.get()).add(value.toString());
+                }
+
+                @Override
+                public void close(TaskAttemptContext context) {
+                }
+            };
+            Mapper<LongWritable, Text, IntWritable, Text>.Context context;
+            context = new WrappedMapper<LongWritable, Text, IntWritable, Text>()
+                    .getMapContext(new MapContextImpl<LongWritable, Text, IntWritable, Text>(conf,
+                            new TaskAttemptID(), null, writer, null, new CounterReporter(), null));
+            mapper.setup(context);
+            long offset = 0L;
+            for(String line: lines) {
+                mapper.map(new LongWritable(offset++), new Text(line), context);
+            }
+            mapper.cleanup(context);
+        }
+
+        final Map<Integer, String> results = new TreeMap<Integer, String>();
+        RecordWriter<NullWritable, Text> writer = new RecordWriter<NullWritable, Text>() {
+            @Override
+            public void write(NullWritable key, Text value) {
+                String line = value.toString();
+                results.put(Integer.valueOf(line.substring(0, line.indexOf(Constants.DEFAULT_DELIMITER))), line);
+            }
+
+            @Override
+            public void close(TaskAttemptContext context) {
+            }
+        };
+        Reducer<IntWritable, Text, NullWritable, Text>.Context context;
+        context = new WrappedReducer<IntWritable, Text, NullWritable, Text>()
+                .getReducerContext(new ReduceContextImpl<IntWritable, Text, NullWritable, Text>(conf,
+                        new TaskAttemptID(), new ShuffledIterator(shuffled), new GenericCounter(),
+                        new GenericCounter(), writer, null, new CounterReporter(),
+                        WritableComparator.get(IntWritable.class), IntWritable.class, Text.class));
+        new BinningPartialReducer().run(context);
+        return results;
+    }
+
+    private static class CounterReporter extends StatusReporter {
+
+        private final Counters counters = new Counters();
+
+        @Override
+        public Counter getCounter(Enum<?> name) {
+            return this.counters.findCounter(name);
+        }
+
+        @Override
+        public Counter getCounter(String group, String name) {
+            return this.counters.findCounter(group, name);
+        }
+
+        @Override
+        public void progress() {
+        }
+
+        @Override
+        public float getProgress() {
+            return 0f;
+        }
+
+        @Override
+        public void setStatus(String status) {
+        }
+    }
+
+    /**
+     * Serialized key and value pairs sorted by key as reducer input.
+     */
+    private static class ShuffledIterator implements RawKeyValueIterator {
+
+        private final Iterator<DataOutputBuffer[]> iterator;
+
+        private final DataInputBuffer key = new DataInputBuffer();
+
+        private final DataInputBuffer value = new DataInputBuffer();
+
+        ShuffledIterator(Map<Integer, List<String>> shuffled) throws IOException {
+            List<DataOutputBuffer[]> pairs = new ArrayList<DataOutputBuffer[]>();
+            for(Map.Entry<Integer, List<String>> entry: shuffled.entrySet()) {
+                for(String partial: entry.getValue()) {
+                    DataOutputBuffer keyBuffer = new DataOutputBuffer();
+                    new IntWritable(entry.getKey()).write(keyBuffer);
+                    DataOutputBuffer valueBuffer = new DataOutputBuffer();
+                    new Text(partial).write(valueBuffer);
+                    pairs.add(new DataOutputBuffer[] { keyBuffer, valueBuffer });
+                }
+            }
+            this.iterator = pairs.iterator();
+        }
+
+        @Override
+        public DataInputBuffer getKey() {
+            return this.key;
+        }
+
+        @Override
+        public DataInputBuffer getValue() {
+            return this.value;
+        }
+
+        @Override
+        public boolean next() {
+            if(!this.iterator.hasNext()) {
+                return false;
+            }
+            DataOutputBuffer[] pair = this.iterator.next();
+            this.key.reset(pair[0].getData(), pair[0].getLength());
+            this.value.reset(pair[1].getData(), pair[1].getLength());
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public Progress getProgress() {
+            return new Progress();
+        }
+    }
+
+}
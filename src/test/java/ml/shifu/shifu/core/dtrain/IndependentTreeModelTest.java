@@ -2,14 +2,21 @@ package ml.shifu.shifu.core.dtrain;
 
 import ml.shifu.shifu.combo.CsvFile;
 import ml.shifu.shifu.core.dtrain.dt.IndependentTreeModel;
+import ml.shifu.shifu.udf.norm.PrecisionType;
 import ml.shifu.shifu.util.Constants;
 import org.junit.Assert;
 import org.testng.annotations.Test;
 
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
 
 /**
  * Created by zhanhu on 5/31/17.
@@ -45,4 +52,79 @@ public class IndependentTreeModelTest {
             System.out.println(instanceCodes);
         }
     }
+
+    @Test
+    public void testCompiledScoreSameAsTreeWalking() throws IOException {
+        String modelPath = "src/test/resources/example/readablespec/model0.gbt";
+        Random random = new Random(17L);
+        for(String strategy: new String[] { Constants.GBT_SCORE_RAW_CONVETER, Constants.GBT_SCORE_SIGMOID_CONVETER }) {
+            for(boolean isOptimizeMode: new boolean[] { false, true }) {
+                IndependentTreeModel treeModel = loadGBT(modelPath, strategy, isOptimizeMode, false);
+                IndependentTreeModel compiledModel = loadGBT(modelPath, strategy, isOptimizeMode, true);
+                Assert.assertFalse(treeModel.isCompiled());
+                Assert.assertTrue(compiledModel.isCompiled());
+
+                int inputs = treeModel.getColumnNumIndexMapping().size();
+                for(int n = 0; n < 1000; n++) {
+                    double[] data = new double[inputs];
+                    for(int i = 0; i < inputs; i++) {
+                        // mix of normal values, category indexes, out of range category indexes and NaN
+                        int type = random.nextInt(10);
+                        data[i] = type == 0 ? Double.NaN : (type < 4 ? random.nextInt(20) - 2 : random.nextGaussian());
+                    }
+                    double[] expected = treeModel.compute(data);
+                    double[] actual = compiledModel.compute(data);
+                    Assert.assertEquals(expected.length, actual.length);
+                    for(int i = 0; i < expected.length; i++) {
+                        Assert.assertEquals(Double.doubleToLongBits(expected[i]), Double.doubleToLongBits(actual[i]));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testComputeBatchSameAsCompute() throws IOException {
+        String modelPath = "src/test/resources/example/readablespec/model0.gbt";
+        Random random = new Random(23L);
+        for(String strategy: new String[] { Constants.GBT_SCORE_RAW_CONVETER, Constants.GBT_SCORE_SIGMOID_CONVETER }) {
+            IndependentTreeModel treeModel = loadGBT(modelPath, strategy, true, false);
+            int inputs = treeModel.getColumnNumIndexMapping().size();
+            int records = 777;
+            double[] rows = new double[records * inputs];
+            double[][] columns = new double[inputs][records];
+            for(int r = 0; r < records; r++) {
+                for(int i = 0; i < inputs; i++) {
+                    int type = random.nextInt(10);
+                    double value = type == 0 ? Double.NaN : (type < 4 ? random.nextInt(20) - 2 : random.nextGaussian());
+                    rows[r * inputs + i] = value;
+                    columns[i][r] = value;
+                }
+            }
+
+            double[] expected = new double[records];
+            for(int r = 0; r < records; r++) {
+                expected[r] = treeModel.compute(Arrays.copyOfRange(rows, r * inputs, (r + 1) * inputs))[0];
+            }
+            Assert.assertEquals(treeModel.getBatchOutputSize(), 1);
+            double[] scores = new double[records + 1];
+            Assert.assertSame(treeModel.computeBatch(rows, records, scores), scores);
+            double[] columnScores = treeModel.computeBatch(columns, records, null);
+            for(int r = 0; r < records; r++) {
+                Assert.assertEquals(Double.doubleToLongBits(scores[r]), Double.doubleToLongBits(expected[r]));
+                Assert.assertEquals(Double.doubleToLongBits(columnScores[r]), Double.doubleToLongBits(expected[r]));
+            }
+        }
+    }
+
+    private IndependentTreeModel loadGBT(String modelPath, String strategy, boolean isOptimizeMode,
+            boolean isCompileMode) throws IOException {
+        InputStream input = new FileInputStream(modelPath);
+        try {
+            return IndependentTreeModel.loadFromStream(input, false, isOptimizeMode, true, strategy,
+                    PrecisionType.DOUBLE64, isCompileMode);
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
 }
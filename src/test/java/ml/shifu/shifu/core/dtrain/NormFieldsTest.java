@@ -0,0 +1,76 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class NormFieldsTest {
+
+    private static final List<String> LINE = Arrays.asList("0.5", "", "abc", "NaN", "-1.25", "3");
+
+    @Test
+    public void testCachedValuesAsRawFields() {
+        float[] values = new float[LINE.size()];
+        for(int i = 0; i < values.length; i++) {
+            values[i] = NormFields.parse(LINE.get(i));
+        }
+        NormFields raw = new NormFields().reset(LINE);
+        NormFields cached = new NormFields().reset(values);
+        Assert.assertEquals(cached.size(), raw.size());
+        for(int i = 0; i < LINE.size(); i++) {
+            Assert.assertEquals(cached.getFloat(i, 0f), raw.getFloat(i, 0f));
+            Assert.assertEquals(cached.getFloat(i, 1f), raw.getFloat(i, 1f));
+            Assert.assertEquals(cached.getFloat(i, 1f), DTrainUtils.parseRawNormValue(LINE.toArray(new String[0]), i,
+                    1f));
+            Assert.assertEquals(cached.getDouble(i, 1d), raw.getDouble(i, 1d));
+        }
+        Assert.assertEquals(raw.getFloat(1, 1f), 1f);
+        Assert.assertEquals(cached.getFloat(3, 0f), 0f);
+        Assert.assertEquals(cached.getDouble(4, 0d), -1.25d);
+    }
+
+    @Test
+    public void testLineAsRawFields() {
+        String delimiter = "|";
+        NormFields raw = new NormFields().reset(LINE);
+        NormFields line = new NormFields().reset(StringUtils.join(LINE, delimiter), delimiter);
+        Assert.assertEquals(line.size(), raw.size());
+        for(int i = 0; i < LINE.size(); i++) {
+            Assert.assertEquals(line.getFloat(i, 0f), raw.getFloat(i, 0f));
+            Assert.assertEquals(line.getFloat(i, 1f), raw.getFloat(i, 1f));
+            Assert.assertEquals(line.getDouble(i, 1d), raw.getDouble(i, 1d));
+            Assert.assertEquals(line.fieldHash(i), raw.fieldHash(i));
+        }
+
+        // empty fields at both ends are kept
+        line.reset("||1.5||", "||");
+        Assert.assertEquals(line.size(), 3);
+        Assert.assertEquals(line.getFloat(0, 2f), 2f);
+        Assert.assertEquals(line.getFloat(1, 2f), 1.5f);
+        Assert.assertEquals(line.getFloat(2, 2f), 2f);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void testOutOfRange() {
+        new NormFields().reset(new float[] { 1f }).getFloat(1, 0f);
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import ml.shifu.shifu.core.dtrain.lr.LogisticRegressionParams;
+import ml.shifu.shifu.core.dtrain.nn.NNParams;
+
+public class ParamsCodecTest {
+
+    @Test
+    public void testParseFlags() {
+        Assert.assertEquals(ParamsCodec.parseFlags(null), ParamsCodec.RAW);
+        Assert.assertEquals(ParamsCodec.parseFlags(" raw "), ParamsCodec.RAW);
+        Assert.assertEquals(ParamsCodec.parseFlags("half, Delta,deflate"),
+                ParamsCodec.HALF | ParamsCodec.DELTA | ParamsCodec.DEFLATE);
+        Assert.assertEquals(ParamsCodec.weightFlags(ParamsCodec.HALF | ParamsCodec.DEFLATE),
+                ParamsCodec.FLOAT | ParamsCodec.DEFLATE);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidFlags() {
+        ParamsCodec.parseFlags("float,zip");
+    }
+
+    @Test
+    public void testLosslessEncoding() throws IOException {
+        double[] values = values(1000, 1d);
+        int[] allFlags = new int[] { ParamsCodec.RAW, ParamsCodec.DELTA, ParamsCodec.DEFLATE,
+                ParamsCodec.DELTA | ParamsCodec.DEFLATE };
+        for(int flags: allFlags) {
+            Assert.assertEquals(copy(values, flags), values);
+        }
+        Assert.assertEquals(copy(null, ParamsCodec.DEFLATE), new double[0]);
+        Assert.assertEquals(copy(new double[0], ParamsCodec.HALF), new double[0]);
+    }
+
+    @Test
+    public void testFloatEncoding() throws IOException {
+        double[] values = values(1000, 3d);
+        int[] allFlags = new int[] { ParamsCodec.FLOAT, ParamsCodec.FLOAT | ParamsCodec.DELTA,
+                ParamsCodec.FLOAT | ParamsCodec.DELTA | ParamsCodec.DEFLATE };
+        for(int flags: allFlags) {
+            double[] result = copy(values, flags);
+            for(int i = 0; i < values.length; i++) {
+                Assert.assertEquals(result[i], (double) (float) values[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testHalfEncoding() throws IOException {
+        // summed gradients may be far beyond max value of fp16
+        double[] values = values(1000, 1e6d);
+        values[3] = 0d;
+        for(int flags: new int[] { ParamsCodec.HALF, ParamsCodec.HALF | ParamsCodec.DELTA | ParamsCodec.DEFLATE }) {
+            double[] result = copy(values, flags);
+            Assert.assertEquals(result[3], 0d);
+            for(int i = 0; i < values.length; i++) {
+                Assert.assertEquals(result[i], values[i], Math.abs(values[i]) / 1024d);
+            }
+        }
+    }
+
+    @Test
+    public void testNNParams() throws IOException {
+        NNParams params = new NNParams();
+        params.setEncoding(ParamsCodec.parseFlags("half,deflate"));
+        params.setTrainError(0.5d);
+        params.setTrainSize(100L);
+        params.setWeights(values(300, 1d));
+        params.setGradients(values(300, 10d));
+        params.setCount(200L);
+        params.setWrCount(2);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        params.write(out);
+        out.flush();
+        NNParams result = new NNParams();
+        result.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        Assert.assertEquals(result.getEncoding(), params.getEncoding());
+        Assert.assertEquals(result.getTrainError(), 0.5d);
+        Assert.assertEquals(result.getTrainSize(), 100L);
+        Assert.assertEquals(result.getCount(), 200L);
+        Assert.assertEquals(result.getWrCount(), 2);
+        for(int i = 0; i < params.getWeights().length; i++) {
+            // weights are written in float even if half is set
+            Assert.assertEquals(result.getWeights()[i], (double) (float) params.getWeights()[i]);
+            Assert.assertEquals(result.getGradients()[i], params.getGradients()[i],
+                    Math.abs(params.getGradients()[i]) / 1024d);
+        }
+    }
+
+    @Test
+    public void testLogisticRegressionParams() throws IOException {
+        LogisticRegressionParams params = new LogisticRegressionParams(values(50, 1d), 1d, 2d, 3d, 4d, 5d, 6d);
+        params.setEncoding(ParamsCodec.FLOAT | ParamsCodec.DEFLATE);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        params.write(out);
+        out.flush();
+        LogisticRegressionParams result = new LogisticRegressionParams();
+        result.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        Assert.assertEquals(result.getValidationCount(), 6d);
+        for(int i = 0; i < params.getParameters().length; i++) {
+            Assert.assertEquals(result.getParameters()[i], (double) (float) params.getParameters()[i]);
+        }
+    }
+
+    private static double[] values(int length, double scale) {
+        Random random = new Random(length);
+        double[] values = new double[length];
+        for(int i = 0; i < length; i++) {
+            values[i] = random.nextGaussian() * scale;
+        }
+        return values;
+    }
+
+    private static double[] copy(double[] values, int flags) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        ParamsCodec.write(out, values, flags);
+        out.flush();
+        return ParamsCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), flags);
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.dataset;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.encog.neural.flat.FlatNetwork;
+import org.encog.neural.networks.BasicNetwork;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import ml.shifu.shifu.core.dtrain.DTrainUtils;
+
+public class BatchFlatNetworkTest {
+
+    @Test
+    public void testBatchSameAsRecordCompute() {
+        BasicNetwork network = DTrainUtils.generateNetwork(9, 2, 2, Arrays.asList("tanh", "relu"),
+                Arrays.asList(13, 5), true, 0d, DTrainUtils.WGT_INIT_DEFAULT, false, "sigmoid");
+        FlatNetwork flat = network.getFlat();
+        int inputs = flat.getInputCount(), outputs = flat.getOutputCount();
+
+        Random random = new Random(31L);
+        int records = 300;
+        double[] rows = new double[records * inputs];
+        double[][] columns = new double[inputs][records];
+        for(int r = 0; r < records; r++) {
+            for(int i = 0; i < inputs; i++) {
+                rows[r * inputs + i] = columns[i][r] = random.nextGaussian();
+            }
+        }
+
+        double[] expected = new double[records * outputs];
+        double[] output = new double[outputs];
+        for(int r = 0; r < records; r++) {
+            flat.compute(Arrays.copyOfRange(rows, r * inputs, (r + 1) * inputs), output);
+            System.arraycopy(output, 0, expected, r * outputs, outputs);
+        }
+
+        for(int blockSize: new int[] { 1, 7, BatchFlatNetwork.DEFAULT_BLOCK_SIZE, 1000 }) {
+            BatchFlatNetwork batch = new BatchFlatNetwork(flat, blockSize);
+            double[] rowResults = new double[records * outputs];
+            double[] columnResults = new double[records * outputs];
+            batch.compute(rows, records, rowResults);
+            batch.compute(columns, records, columnResults);
+            for(int i = 0; i < expected.length; i++) {
+                Assert.assertEquals(Double.doubleToLongBits(rowResults[i]), Double.doubleToLongBits(expected[i]));
+                Assert.assertEquals(Double.doubleToLongBits(columnResults[i]), Double.doubleToLongBits(expected[i]));
+            }
+        }
+    }
+
+}
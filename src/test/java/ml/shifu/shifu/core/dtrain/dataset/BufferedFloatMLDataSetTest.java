@@ -0,0 +1,79 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.dataset;
+
+import java.io.File;
+import java.util.Iterator;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class BufferedFloatMLDataSetTest {
+
+    @Test
+    public void testMappedRead() throws Exception {
+        final int inputs = 7, records = 1000;
+        File file = File.createTempFile("buffered", ".egb");
+        file.delete();
+        file.deleteOnExit();
+
+        BufferedFloatMLDataSet dataSet = new BufferedFloatMLDataSet(file);
+        try {
+            dataSet.beginLoad(inputs, 1);
+            for(int r = 0; r < records; r++) {
+                float[] input = new float[inputs];
+                for(int i = 0; i < inputs; i++) {
+                    input[i] = r * inputs + i;
+                }
+                BasicFloatMLDataPair pair = new BasicFloatMLDataPair(new BasicFloatMLData(input),
+                        new BasicFloatMLData(new float[] { r % 2 }));
+                pair.setSignificance(r % 3 + 1f);
+                dataSet.add(pair);
+            }
+            dataSet.endLoad();
+            Assert.assertEquals(dataSet.getRecordCount(), records);
+
+            // random access in reverse order
+            FloatMLDataPair pair = BasicFloatMLDataPair.createPair(inputs, 1);
+            for(int r = records - 1; r >= 0; r--) {
+                dataSet.getRecord(r, pair);
+                assertRecord(pair, r, inputs);
+                Assert.assertEquals(pair.getIdealArray()[0], r % 2f);
+            }
+
+            // unsupervised pair skips ideal values
+            FloatMLDataPair inputOnly = BasicFloatMLDataPair.createPair(inputs, 0);
+            dataSet.getRecord(records / 2, inputOnly);
+            assertRecord(inputOnly, records / 2, inputs);
+
+            int r = 0;
+            for(Iterator<FloatMLDataPair> it = dataSet.iterator(); it.hasNext(); r++) {
+                assertRecord(it.next(), r, inputs);
+            }
+            Assert.assertEquals(r, records);
+        } finally {
+            dataSet.close();
+        }
+    }
+
+    private static void assertRecord(FloatMLDataPair pair, int r, int inputs) {
+        for(int i = 0; i < inputs; i++) {
+            Assert.assertEquals(pair.getInputArray()[i], (float) (r * inputs + i));
+        }
+        Assert.assertEquals(pair.getSignificance(), r % 3 + 1f);
+    }
+
+}
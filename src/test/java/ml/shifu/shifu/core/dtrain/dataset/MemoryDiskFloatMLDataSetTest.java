@@ -0,0 +1,103 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.dataset;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import ml.shifu.shifu.util.SizeEstimator;
+
+public class MemoryDiskFloatMLDataSetTest {
+
+    @Test
+    public void testConcurrentReadByViews() throws Exception {
+        final int inputs = 5, records = 400, threads = 4;
+        File file = File.createTempFile("memory-disk", ".egb");
+        // disk data set only accepts an absent or valid egb file
+        file.delete();
+        file.deleteOnExit();
+
+        long recordSize = SizeEstimator.estimate(newPair(0, inputs));
+        final MemoryDiskFloatMLDataSet dataSet = new MemoryDiskFloatMLDataSet(recordSize * (records / 2),
+                file.getPath(), inputs, 1);
+        dataSet.beginLoad(inputs, 1);
+        for(int r = 0; r < records; r++) {
+            dataSet.add(newPair(r, inputs));
+        }
+        dataSet.endLoad();
+        Assert.assertTrue(dataSet.getMemoryCount() > 0 && dataSet.getDiskCount() > 0);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            final int step = records / threads;
+            for(int t = 0; t < threads; t++) {
+                final FloatMLDataSet view = dataSet.openAdditional();
+                Assert.assertEquals(view.getRecordCount(), records);
+                final int low = t * step;
+                results.add(pool.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws IOException {
+                        FloatMLDataPair pair = BasicFloatMLDataPair.createPair(inputs, 1);
+                        try {
+                            // read several passes to interleave with other threads
+                            for(int pass = 0; pass < 5; pass++) {
+                                for(int r = low; r < low + step; r++) {
+                                    view.getRecord(r, pair);
+                                    for(int i = 0; i < inputs; i++) {
+                                        if(pair.getInputArray()[i] != r * inputs + i) {
+                                            return false;
+                                        }
+                                    }
+                                    if(pair.getIdealArray()[0] != r % 2) {
+                                        return false;
+                                    }
+                                }
+                            }
+                        } finally {
+                            view.close();
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for(Future<Boolean> result: results) {
+                Assert.assertTrue(result.get());
+            }
+        } finally {
+            pool.shutdownNow();
+            dataSet.close();
+        }
+    }
+
+    private static FloatMLDataPair newPair(int r, int inputs) {
+        float[] input = new float[inputs];
+        for(int i = 0; i < inputs; i++) {
+            input[i] = r * inputs + i;
+        }
+        return new BasicFloatMLDataPair(new BasicFloatMLData(input), new BasicFloatMLData(new float[] { r % 2 }));
+    }
+
+}
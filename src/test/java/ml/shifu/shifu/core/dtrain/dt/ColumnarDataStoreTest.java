@@ -0,0 +1,94 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.dt;
+
+import java.util.Random;
+
+import ml.shifu.shifu.core.dtrain.dt.DTWorker.Data;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ColumnarDataStoreTest {
+
+    private static final int[] MAX_BIN_INDEXES = new int[] { 10, 127, 128, 1000 };
+
+    private static final int RECORDS = ColumnarDataStore.CHUNK_SIZE * 2 + 17;
+
+    @Test
+    public void testHeapStore() {
+        assertStore(new ColumnarDataStore(MAX_BIN_INDEXES, 3, Long.MAX_VALUE, ColumnarDataStore.SPILL_MMAP), false);
+    }
+
+    @Test
+    public void testDirectSpill() {
+        assertStore(new ColumnarDataStore(MAX_BIN_INDEXES, 3, 0L, ColumnarDataStore.SPILL_DIRECT), true);
+    }
+
+    @Test
+    public void testMmapSpill() {
+        assertStore(new ColumnarDataStore(MAX_BIN_INDEXES, 3, 0L, ColumnarDataStore.SPILL_MMAP), true);
+    }
+
+    private void assertStore(ColumnarDataStore store, boolean isSpilled) {
+        try {
+            Random random = new Random(7L);
+            Data[] records = new Data[RECORDS];
+            for(int j = 0; j < RECORDS; j++) {
+                short[] inputs = new short[MAX_BIN_INDEXES.length];
+                for(int i = 0; i < inputs.length; i++) {
+                    // -1 is the bin index of value not found
+                    inputs[i] = (short) (random.nextInt(MAX_BIN_INDEXES[i] + 2) - 1);
+                }
+                records[j] = new Data(inputs, random.nextFloat(), random.nextFloat(), random.nextInt(2),
+                        random.nextFloat());
+                if(j % 2 == 0) {
+                    records[j].subsampleWeights = new float[] { 0f, 1f, 2f };
+                }
+                store.append(records[j]);
+            }
+            Assert.assertEquals(store.size(), RECORDS);
+            Assert.assertEquals(store.isSpilled(), isSpilled);
+
+            for(int j = 0; j < RECORDS; j++) {
+                Data data = records[j];
+                for(int i = 0; i < data.inputs.length; i++) {
+                    Assert.assertEquals(store.getBin(i, j), data.inputs[i]);
+                }
+                Assert.assertEquals(store.getLabel(j), data.label);
+                Assert.assertEquals(store.getPredict(j), data.predict);
+                Assert.assertEquals(store.getOutput(j), data.output);
+                Assert.assertEquals(store.getSignificance(j), data.significance);
+                for(int i = 0; i < store.getWeightSize(); i++) {
+                    // weights not in weight size are set to 1
+                    Assert.assertEquals(store.getWeight(i, j), j % 2 == 0 ? (float) i : 1f);
+                }
+            }
+
+            int record = RECORDS - 1;
+            store.setPredict(record, 3f);
+            store.setOutput(record, -3f);
+            store.setWeight(2, record, 5f);
+            Assert.assertEquals(store.getPredict(record), 3f);
+            Assert.assertEquals(store.getOutput(record), -3f);
+            Assert.assertEquals(store.getWeight(2, record), 5f);
+            Assert.assertEquals(store.getWeight(1, record), 1f);
+        } finally {
+            store.close();
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.dt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
+import ml.shifu.shifu.core.dtrain.dt.DTWorkerParams.NodeStats;
+import ml.shifu.shifu.util.CommonUtils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class DTMasterTest {
+
+    private static final String MODEL_SET = "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/";
+
+    private static final int WORKERS = 21;
+
+    private static final int NODES = 6;
+
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    public void testGroupMergeSameSplitsAsSerialMerge() throws IOException {
+        List<ColumnConfig> columnConfigList = CommonUtils.loadColumnConfigList(MODEL_SET + "ColumnConfig.json",
+                SourceType.LOCAL);
+        Impurity impurity = new Variance(1, 0d, null);
+        List<byte[]> workerResults = newWorkerResults(new Random(31L), impurity, columnConfigList);
+
+        DTWorkerParams serial = DTMaster.mergeWorkerResults(readWorkerResults(workerResults), null, 1);
+        Map<Integer, GainInfo> serialGains = DTMaster.computeMaxGainInfos(serial.getNodeStatsMap(), null, impurity,
+                columnConfigList);
+        Assert.assertEquals(serial.getTrainCount(), (double) WORKERS);
+        Assert.assertEquals(serialGains.size(), NODES);
+        for(int node = 0; node < NODES; node++) {
+            // split on the feature related with label
+            Assert.assertEquals(serialGains.get(node).getSplit().getColumnNum(), node + 1);
+        }
+
+        ExecutorService threadPool = Executors.newFixedThreadPool(4);
+        try {
+            // odd group size leaves one group result not paired in pair merging
+            for(int groups: new int[] { 2, 3, 4 }) {
+                DTWorkerParams grouped = DTMaster.mergeWorkerResults(readWorkerResults(workerResults), threadPool,
+                        groups);
+                Assert.assertEquals(grouped.getTrainCount(), serial.getTrainCount(), EPSILON);
+                Assert.assertEquals(grouped.getTrainError(), serial.getTrainError(), EPSILON);
+                assertStatsEquals(grouped.getNodeStatsMap(), serial.getNodeStatsMap());
+
+                Map<Integer, GainInfo> groupedGains = DTMaster.computeMaxGainInfos(grouped.getNodeStatsMap(),
+                        threadPool, impurity, columnConfigList);
+                Assert.assertEquals(groupedGains.keySet(), serialGains.keySet());
+                for(Entry<Integer, GainInfo> entry: serialGains.entrySet()) {
+                    GainInfo expected = entry.getValue(), actual = groupedGains.get(entry.getKey());
+                    Assert.assertNotNull(actual);
+                    Assert.assertEquals(actual.getSplit().getColumnNum(), expected.getSplit().getColumnNum());
+                    Assert.assertEquals(actual.getSplit().getThreshold(), expected.getSplit().getThreshold());
+                    Assert.assertEquals(actual.getGain(), expected.getGain(), EPSILON);
+                }
+            }
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Serialized worker results with stats of records in todo nodes, half of workers use compact stats encoding.
+     */
+    private List<byte[]> newWorkerResults(Random random, Impurity impurity, List<ColumnConfig> columnConfigList)
+            throws IOException {
+        List<byte[]> workerResults = new ArrayList<byte[]>(WORKERS);
+        for(int worker = 0; worker < WORKERS; worker++) {
+            Map<Integer, NodeStats> nodeStatsMap = new HashMap<Integer, NodeStats>();
+            for(int node = 0; node < NODES; node++) {
+                Map<Integer, double[]> featureStatistics = new HashMap<Integer, double[]>();
+                for(ColumnConfig config: columnConfigList) {
+                    if(config.isFinalSelect()) {
+                        featureStatistics.put(config.getColumnNum(),
+                                new double[config.getBinBoundary().size() * impurity.getStatsSize()]);
+                    }
+                }
+                for(int r = 0; r < 50; r++) {
+                    float label = random.nextInt(2);
+                    for(Entry<Integer, double[]> entry: featureStatistics.entrySet()) {
+                        int bins = entry.getValue().length / impurity.getStatsSize();
+                        // label is related with bins of one feature in each node
+                        int bin = entry.getKey() == node + 1 ? (int) label * (bins - 1) : random.nextInt(bins);
+                        impurity.featureUpdate(entry.getValue(), bin, label, 1f, 1f + random.nextInt(2));
+                    }
+                }
+                nodeStatsMap.put(node, new NodeStats(0, node + 2, featureStatistics));
+            }
+            DTWorkerParams params = new DTWorkerParams(1d, 0d, random.nextDouble(), 0d, nodeStatsMap);
+            params.setStatsEncoding(worker % 2 == 0 ? NodeStatsCodec.RAW : NodeStatsCodec.DEFAULT_FLAGS);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            params.write(new DataOutputStream(bytes));
+            workerResults.add(bytes.toByteArray());
+        }
+        return workerResults;
+    }
+
+    /**
+     * Worker results are read again for each merging as merged results are reused to keep stats.
+     */
+    private List<DTWorkerParams> readWorkerResults(List<byte[]> workerResults) throws IOException {
+        List<DTWorkerParams> results = new ArrayList<DTWorkerParams>(workerResults.size());
+        for(byte[] bytes: workerResults) {
+            DTWorkerParams params = new DTWorkerParams();
+            params.readFields(new DataInputStream(new ByteArrayInputStream(bytes)));
+            results.add(params);
+        }
+        return results;
+    }
+
+    private void assertStatsEquals(Map<Integer, NodeStats> actual, Map<Integer, NodeStats> expected) {
+        Assert.assertEquals(actual.keySet(), expected.keySet());
+        for(Entry<Integer, NodeStats> entry: expected.entrySet()) {
+            Map<Integer, double[]> features = actual.get(entry.getKey()).getFeatureStatistics();
+            for(Entry<Integer, double[]> feature: entry.getValue().getFeatureStatistics().entrySet()) {
+                double[] stats = features.get(feature.getKey());
+                for(int i = 0; i < stats.length; i++) {
+                    Assert.assertEquals(stats[i], feature.getValue()[i], EPSILON);
+                }
+            }
+        }
+    }
+
+}
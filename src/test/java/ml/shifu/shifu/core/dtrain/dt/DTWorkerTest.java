@@ -0,0 +1,336 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.dt;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import ml.shifu.guagua.hadoop.io.GuaguaWritableAdapter;
+import ml.shifu.guagua.io.GuaguaFileSplit;
+import ml.shifu.guagua.worker.WorkerContext;
+import ml.shifu.guagua.worker.WorkerContext.WorkerCompletionCallBack;
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
+import ml.shifu.shifu.core.dtrain.CommonConstants;
+import ml.shifu.shifu.core.dtrain.dt.DTWorker.Data;
+import ml.shifu.shifu.core.dtrain.dt.DTWorkerParams.NodeStats;
+import ml.shifu.shifu.util.Base64Utils;
+import ml.shifu.shifu.util.CommonUtils;
+import ml.shifu.shifu.util.Constants;
+import ml.shifu.shifu.util.JSONUtils;
+
+public class DTWorkerTest {
+
+    private static final String MODEL_SET = "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/";
+
+    private static final String DELIMITER = "|";
+
+    private static final int TRAIN_RECORDS = 3000;
+
+    private static final double STATS_EPSILON = 1e-6;
+
+    private static final int[] MAX_BIN_INDEXES = new int[] { 10, 127 };
+
+    private static final int RECORDS = 20000;
+
+    private static final double TOP_RATE = 0.2d;
+
+    private static final double OTHER_RATE = 0.1d;
+
+    private File tmpDir;
+
+    private String modelConfigPath;
+
+    private String columnConfigPath;
+
+    private List<ColumnConfig> columnConfigList;
+
+    private List<String> lines;
+
+    @BeforeClass
+    public void setUp() throws IOException {
+        this.tmpDir = new File("tmp/dt-worker-test");
+        FileUtils.deleteQuietly(this.tmpDir);
+        this.tmpDir.mkdirs();
+
+        ModelConfig modelConfig = CommonUtils.loadModelConfig(MODEL_SET + "ModelConfig.json", SourceType.LOCAL);
+        modelConfig.getDataSet().setWeightColumnName(null);
+        modelConfig.getTrain().setAlgorithm("GBT");
+        modelConfig.getTrain().setValidSetRate(0d);
+        // all records are selected in bagging to make stats of workers comparable
+        modelConfig.getTrain().setBaggingSampleRate(1d);
+        modelConfig.getTrain().setBaggingWithReplacement(false);
+        modelConfig.getTrain().setWorkerThreadCount(4);
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("TreeNum", 1);
+        params.put("MaxDepth", 6);
+        params.put("Impurity", "variance");
+        params.put("MinInstancesPerNode", 1);
+        params.put("MinInfoGain", 0d);
+        params.put("Loss", "squared");
+        params.put(CommonConstants.LEARNING_RATE, 0.1d);
+        modelConfig.getTrain().setParams(params);
+        this.columnConfigList = CommonUtils.loadColumnConfigList(MODEL_SET + "ColumnConfig.json", SourceType.LOCAL);
+
+        this.modelConfigPath = new File(this.tmpDir, "ModelConfig.json").getPath();
+        this.columnConfigPath = new File(this.tmpDir, "ColumnConfig.json").getPath();
+        JSONUtils.writeValue(new File(this.modelConfigPath), modelConfig);
+        JSONUtils.writeValue(new File(this.columnConfigPath), this.columnConfigList);
+
+        Random random = new Random(23L);
+        this.lines = new ArrayList<String>(TRAIN_RECORDS);
+        for(int r = 0; r < TRAIN_RECORDS; r++) {
+            StringBuilder sb = new StringBuilder().append(random.nextInt(2));
+            for(int i = 1; i < this.columnConfigList.size(); i++) {
+                // values are spread over all bins of numerical columns
+                List<Double> binBoundary = this.columnConfigList.get(i).getBinBoundary();
+                int bin = random.nextInt(binBoundary.size());
+                double value = bin == 0 ? binBoundary.get(1) - 1d : binBoundary.get(bin);
+                sb.append(DELIMITER).append(random.nextInt(20) == 0 ? "" : String.valueOf(value));
+            }
+            this.lines.add(sb.toString());
+        }
+    }
+
+    @AfterClass
+    public void tearDown() {
+        FileUtils.deleteQuietly(this.tmpDir);
+    }
+
+    @Test
+    public void testHistSubtractionSameAsScanning() {
+        Properties subtraction = new Properties();
+        subtraction.setProperty(CommonConstants.SHIFU_DT_WORKER_HIST_SUBTRACTION_ENABLE, "true");
+        Properties scanning = new Properties();
+        scanning.setProperty(CommonConstants.SHIFU_DT_WORKER_HIST_SUBTRACTION_ENABLE, "false");
+
+        // root, then 2 children with one derived by subtraction, then 4 grandchildren with 2 derived
+        assertStatsEquals(computeStats(subtraction), computeStats(scanning));
+    }
+
+    @Test
+    public void testFeatureParallelSameAsRowParallel() {
+        for(String isHistSubtraction: new String[] { "false", "true" }) {
+            Properties feature = new Properties();
+            feature.setProperty(CommonConstants.SHIFU_DT_WORKER_STATS_PARALLEL, DTWorker.STATS_PARALLEL_FEATURE);
+            feature.setProperty(CommonConstants.SHIFU_DT_WORKER_HIST_SUBTRACTION_ENABLE, isHistSubtraction);
+            Properties row = new Properties();
+            row.setProperty(CommonConstants.SHIFU_DT_WORKER_STATS_PARALLEL, DTWorker.STATS_PARALLEL_ROW);
+            row.setProperty(CommonConstants.SHIFU_DT_WORKER_HIST_SUBTRACTION_ENABLE, isHistSubtraction);
+
+            assertStatsEquals(computeStats(feature), computeStats(row));
+        }
+    }
+
+    @Test
+    public void testSelectKthSameAsSort() {
+        Random random = new Random(3L);
+        for(int t = 0; t < 200; t++) {
+            float[] values = new float[1 + random.nextInt(300)];
+            // small value range to have many ties
+            int range = t % 2 == 0 ? 5 : Integer.MAX_VALUE;
+            for(int i = 0; i < values.length; i++) {
+                values[i] = random.nextInt(range);
+            }
+            float[] sorted = values.clone();
+            Arrays.sort(sorted);
+            int k = random.nextInt(values.length);
+            Assert.assertEquals(DTWorker.selectKth(values.clone(), k), sorted[k]);
+            Assert.assertEquals(DTWorker.selectKth(values.clone(), 0), sorted[0]);
+            Assert.assertEquals(DTWorker.selectKth(values.clone(), values.length - 1), sorted[values.length - 1]);
+        }
+    }
+
+    @Test
+    public void testGOSSSampling() {
+        ColumnarDataStore store = new ColumnarDataStore(MAX_BIN_INDEXES, 2, Long.MAX_VALUE,
+                ColumnarDataStore.SPILL_MMAP);
+        try {
+            Random random = new Random(11L);
+            float[] gradients = new float[RECORDS];
+            for(int j = 0; j < RECORDS; j++) {
+                gradients[j] = (float) random.nextGaussian();
+                store.append(new Data(new short[] { 1, 2 }, 0f, gradients[j], random.nextInt(2), 1f));
+            }
+            // tree 3 is sampled into weight index 1
+            DTWorker.sampleByGradients(store, 3, TOP_RATE, OTHER_RATE, new Random(13L));
+
+            int topCount = (int) Math.ceil(RECORDS * TOP_RATE);
+            float[] sorted = new float[RECORDS];
+            for(int j = 0; j < RECORDS; j++) {
+                sorted[j] = Math.abs(gradients[j]);
+            }
+            Arrays.sort(sorted);
+            float threshold = sorted[RECORDS - topCount];
+
+            float otherWeight = (float) ((1d - TOP_RATE) / OTHER_RATE);
+            int selectedTop = 0, selectedOther = 0;
+            double weightSum = 0d;
+            for(int j = 0; j < RECORDS; j++) {
+                // weights of other trees are not changed
+                Assert.assertEquals(store.getWeight(0, j), 1f);
+                float weight = store.getWeight(1, j);
+                weightSum += weight;
+                if(Math.abs(gradients[j]) >= threshold) {
+                    // all records with large gradients are kept without amplified
+                    Assert.assertEquals(weight, 1f);
+                    selectedTop += 1;
+                } else if(weight != 0f) {
+                    // sampled records with small gradients are amplified by (1 - a) / b
+                    Assert.assertEquals(weight, otherWeight);
+                    selectedOther += 1;
+                }
+            }
+            Assert.assertEquals(selectedTop, topCount);
+
+            // small gradients sampled at rate b / (1 - a), 5 standard deviations as tolerance
+            int others = RECORDS - topCount;
+            double otherSampleRate = OTHER_RATE / (1d - TOP_RATE);
+            double expected = others * otherSampleRate;
+            double tolerance = 5d * Math.sqrt(others * otherSampleRate * (1d - otherSampleRate));
+            Assert.assertEquals(selectedOther, expected, tolerance);
+            // total weights are kept unbiased
+            Assert.assertEquals(weightSum, RECORDS, tolerance * otherWeight);
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testGOSSWithoutTopRecords() {
+        ColumnarDataStore store = new ColumnarDataStore(MAX_BIN_INDEXES, 1, Long.MAX_VALUE,
+                ColumnarDataStore.SPILL_MMAP);
+        try {
+            for(int j = 0; j < 100; j++) {
+                store.append(new Data(new short[] { 1, 2 }, 0f, j, 1f, 1f));
+            }
+            // no top records, all records are sampled at other rate 1
+            DTWorker.sampleByGradients(store, 0, 0d, 1d, new Random(17L));
+            for(int j = 0; j < 100; j++) {
+                Assert.assertEquals(store.getWeight(0, j), 1f);
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    /**
+     * Load records into a new worker and compute stats of root, children and grandchildren of the first GBDT tree.
+     */
+    private List<Map<Integer, NodeStats>> computeStats(Properties workerProps) {
+        Properties props = new Properties();
+        props.setProperty(CommonConstants.MODELSET_SOURCE_TYPE, SourceType.LOCAL.toString());
+        props.setProperty(CommonConstants.SHIFU_MODEL_CONFIG, this.modelConfigPath);
+        props.setProperty(CommonConstants.SHIFU_COLUMN_CONFIG, this.columnConfigPath);
+        props.setProperty(Constants.SHIFU_OUTPUT_DATA_DELIMITER, Base64Utils.base64Encode(DELIMITER));
+        props.putAll(workerProps);
+        WorkerContext<DTMasterParams, DTWorkerParams> context = new WorkerContext<DTMasterParams, DTWorkerParams>(10,
+                "dt-worker-test", props, "0", Collections.<GuaguaFileSplit> emptyList(),
+                DTMasterParams.class.getName(), DTWorkerParams.class.getName());
+        DTWorker worker = new DTWorker();
+        try {
+            worker.init(context);
+            for(int r = 0; r < this.lines.size(); r++) {
+                worker.load(new GuaguaWritableAdapter<LongWritable>(new LongWritable(r)),
+                        new GuaguaWritableAdapter<Text>(new Text(this.lines.get(r))), context);
+            }
+            worker.postLoad(context);
+
+            context.setCurrentIteration(1);
+            worker.doCompute(context);
+
+            List<Map<Integer, NodeStats>> results = new ArrayList<Map<Integer, NodeStats>>();
+            Node root = new Node(Node.ROOT_INDEX);
+            TreeNode tree = new TreeNode(0, root, new ArrayList<Integer>(), 1d);
+            List<Node> todoNodes = Collections.singletonList(root);
+            for(int level = 0; level < 3; level++) {
+                DTMasterParams masterParams = new DTMasterParams(Collections.singletonList(tree),
+                        toTodoNodes(todoNodes));
+                masterParams.setSwitchToNextTree(level == 0);
+                masterParams.setFirstTree(true);
+                context.setCurrentIteration(level + 2);
+                context.setLastMasterResult(masterParams);
+                results.add(worker.doCompute(context).getNodeStatsMap());
+
+                // split each todo node by one bin boundary of the column numbered by node id
+                List<Node> children = new ArrayList<Node>();
+                for(Node node: todoNodes) {
+                    int columnNum = node.getId();
+                    double threshold = this.columnConfigList.get(columnNum).getBinBoundary().get(4 + level);
+                    node.setSplit(new Split(columnNum, Split.CONTINUOUS, threshold, false, null));
+                    node.setLeft(new Node(Node.leftIndex(node.getId())));
+                    node.setRight(new Node(Node.rightIndex(node.getId())));
+                    children.add(node.getLeft());
+                    children.add(node.getRight());
+                }
+                todoNodes = children;
+            }
+            return results;
+        } finally {
+            for(WorkerCompletionCallBack<DTMasterParams, DTWorkerParams> callback: context.getCallBackList()) {
+                callback.callback(context);
+            }
+        }
+    }
+
+    private static Map<Integer, TreeNode> toTodoNodes(List<Node> nodes) {
+        Map<Integer, TreeNode> todoNodes = new HashMap<Integer, TreeNode>();
+        for(int i = 0; i < nodes.size(); i++) {
+            todoNodes.put(i, new TreeNode(0, nodes.get(i), new ArrayList<Integer>(), 1d));
+        }
+        return todoNodes;
+    }
+
+    private static void assertStatsEquals(List<Map<Integer, NodeStats>> actual,
+            List<Map<Integer, NodeStats>> expected) {
+        Assert.assertEquals(actual.size(), expected.size());
+        for(int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(actual.get(i).keySet(), expected.get(i).keySet());
+            for(Entry<Integer, NodeStats> entry: expected.get(i).entrySet()) {
+                NodeStats nodeStats = actual.get(i).get(entry.getKey());
+                Assert.assertEquals(nodeStats.getNodeId(), entry.getValue().getNodeId());
+                Map<Integer, double[]> features = nodeStats.getFeatureStatistics();
+                Assert.assertEquals(features.keySet(), entry.getValue().getFeatureStatistics().keySet());
+                for(Entry<Integer, double[]> feature: entry.getValue().getFeatureStatistics().entrySet()) {
+                    double[] stats = features.get(feature.getKey());
+                    Assert.assertEquals(stats.length, feature.getValue().length);
+                    for(int j = 0; j < stats.length; j++) {
+                        Assert.assertEquals(stats[j], feature.getValue()[j], STATS_EPSILON);
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.dt;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class NodeStatsCacheTest {
+
+    private static final int BINS = 10;
+
+    @Test
+    public void testVarianceSubtract() {
+        assertSubtract(new Variance(1, 0d, "sort"));
+    }
+
+    @Test
+    public void testFriedmanMSESubtract() {
+        assertSubtract(new FriedmanMSE(1, 0d, "sort"));
+    }
+
+    @Test
+    public void testEntropySubtract() {
+        assertSubtract(new Entropy(3, 1, 0d, "sort"));
+    }
+
+    @Test
+    public void testGiniSubtract() {
+        assertSubtract(new Gini(3, 1, 0d, "sort"));
+    }
+
+    private void assertSubtract(Impurity impurity) {
+        Random random = new Random(7L);
+        int size = BINS * impurity.getStatsSize();
+        double[] parent = new double[size], left = new double[size], right = new double[size];
+        for(int i = 0; i < 1000; i++) {
+            int binIndex = random.nextInt(BINS);
+            // the last bin only has left records to check empty bin after subtraction
+            boolean isLeft = binIndex == BINS - 1 || random.nextBoolean();
+            float label = random.nextInt(3);
+            float significance = random.nextFloat() * 2f;
+            float weight = random.nextInt(3);
+            impurity.featureUpdate(parent, binIndex, label, significance, weight);
+            impurity.featureUpdate(isLeft ? left : right, binIndex, label, significance, weight);
+        }
+
+        double[] derived = new double[size];
+        impurity.featureSubtract(parent, left, derived);
+        for(int i = 0; i < size; i++) {
+            Assert.assertEquals(derived[i], right[i], 1e-6 * Math.max(1d, Math.abs(right[i])));
+        }
+        for(int i = (BINS - 1) * impurity.getStatsSize(); i < size; i++) {
+            Assert.assertEquals(derived[i], 0d);
+        }
+    }
+
+    @Test
+    public void testCacheCopyAndBudget() {
+        NodeStatsCache cache = new NodeStatsCache(3 * 8L * 4);
+        Map<Integer, double[]> stats = new HashMap<Integer, double[]>();
+        stats.put(1, new double[] { 1d, 2d, 3d });
+        stats.put(2, new double[] { 4d, 5d, 6d });
+        Assert.assertTrue(cache.put(0, 1, stats));
+
+        // cached stats are copies
+        stats.get(1)[0] = 100d;
+        Assert.assertEquals(cache.get(0, 1).get(1)[0], 1d);
+
+        Assert.assertTrue(cache.put(0, 2, stats));
+        // over budget
+        Assert.assertFalse(cache.put(0, 3, stats));
+        Assert.assertFalse(cache.contains(0, 3));
+
+        cache.remove(0, 1);
+        Assert.assertTrue(cache.put(0, 3, stats));
+        Assert.assertEquals(cache.size(), 2);
+
+        cache.clear(0);
+        Assert.assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testEvict() {
+        NodeStatsCache cache = new NodeStatsCache(Long.MAX_VALUE);
+        Map<Integer, double[]> stats = new HashMap<Integer, double[]>();
+        stats.put(1, new double[] { 1d, 2d, 3d });
+
+        // tree: 1 -> (2, 3), 2 -> (4, 5), 3 is leaf
+        Node root = new Node(Node.ROOT_INDEX);
+        Node node2 = new Node(2);
+        root.setLeft(node2);
+        root.setRight(new Node(3));
+        node2.setLeft(new Node(4));
+        node2.setRight(new Node(5));
+
+        for(int id = 1; id <= 4; id++) {
+            cache.put(0, id, stats);
+        }
+        // stats of invalid tree are kept
+        cache.put(1, 1, stats);
+
+        Map<Integer, TreeNode> trees = new HashMap<Integer, TreeNode>();
+        trees.put(0, new TreeNode(0, root, 1d));
+        trees.put(1, new TreeNode(1, new Node(Node.INVALID_INDEX), 1d));
+        cache.evict(trees);
+
+        // root has both children cached, node 3 is leaf, node 2 is still needed by node 5
+        Assert.assertFalse(cache.contains(0, 1));
+        Assert.assertTrue(cache.contains(0, 2));
+        Assert.assertFalse(cache.contains(0, 3));
+        Assert.assertFalse(cache.contains(0, 4));
+        Assert.assertTrue(cache.contains(1, 1));
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.dt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import ml.shifu.shifu.core.dtrain.dt.DTWorkerParams.NodeStats;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class NodeStatsCodecTest {
+
+    private Map<Integer, double[]> newStatistics(Random random) {
+        Map<Integer, double[]> statistics = new HashMap<Integer, double[]>();
+        // integral counts with empty bins
+        double[] counts = new double[30];
+        for(int i = 0; i < counts.length; i += 3) {
+            counts[i] = random.nextInt(1000) - 10;
+        }
+        statistics.put(3, counts);
+        // real values
+        double[] sums = new double[30];
+        for(int i = 0; i < sums.length; i++) {
+            sums[i] = i % 4 == 0 ? 0d : random.nextGaussian() * 100;
+        }
+        statistics.put(10, sums);
+        statistics.put(200, new double[0]);
+        return statistics;
+    }
+
+    @Test
+    public void testParseFlags() {
+        Assert.assertEquals(NodeStatsCodec.parseFlags(null), NodeStatsCodec.DEFAULT_FLAGS);
+        Assert.assertEquals(NodeStatsCodec.parseFlags("raw"), NodeStatsCodec.RAW);
+        Assert.assertEquals(NodeStatsCodec.parseFlags("sparse, Float,deflate"),
+                NodeStatsCodec.SPARSE | NodeStatsCodec.FLOAT | NodeStatsCodec.DEFLATE);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidFlags() {
+        NodeStatsCodec.parseFlags("sparse,lz4");
+    }
+
+    @Test
+    public void testLosslessRoundTrip() throws IOException {
+        Map<Integer, double[]> statistics = newStatistics(new Random(7L));
+        for(int flags = 0; flags < 16; flags++) {
+            if((flags & NodeStatsCodec.FLOAT) != 0) {
+                continue;
+            }
+            Map<Integer, double[]> decoded = NodeStatsCodec.decode(NodeStatsCodec.encode(statistics, flags), flags);
+            Assert.assertEquals(decoded.keySet(), statistics.keySet());
+            for(Integer key: statistics.keySet()) {
+                Assert.assertEquals(decoded.get(key), statistics.get(key));
+            }
+        }
+    }
+
+    @Test
+    public void testFloatRoundTrip() throws IOException {
+        Map<Integer, double[]> statistics = newStatistics(new Random(7L));
+        int flags = NodeStatsCodec.parseFlags("sparse,varint,float");
+        Map<Integer, double[]> decoded = NodeStatsCodec.decode(NodeStatsCodec.encode(statistics, flags), flags);
+        // integral counts are still exact
+        Assert.assertEquals(decoded.get(3), statistics.get(3));
+        for(int i = 0; i < statistics.get(10).length; i++) {
+            Assert.assertEquals(decoded.get(10)[i], statistics.get(10)[i], 1e-4);
+        }
+    }
+
+    @Test
+    public void testStreamingMerge() throws IOException {
+        Random random = new Random(11L);
+        DTWorkerParams result = null;
+        Map<Integer, double[]> expected = newStatistics(new Random(0L));
+        for(Map.Entry<Integer, double[]> entry: expected.entrySet()) {
+            entry.setValue(new double[entry.getValue().length]);
+        }
+        for(int worker = 0; worker < 3; worker++) {
+            Map<Integer, double[]> statistics = newStatistics(random);
+            for(Integer key: statistics.keySet()) {
+                for(int i = 0; i < statistics.get(key).length; i++) {
+                    expected.get(key)[i] += statistics.get(key)[i];
+                }
+            }
+            Map<Integer, NodeStats> nodeStatsMap = new HashMap<Integer, NodeStats>();
+            nodeStatsMap.put(0, new NodeStats(1, 2, statistics));
+            DTWorkerParams params = new DTWorkerParams(1d, 0d, 1d, 0d, nodeStatsMap);
+            params.setStatsEncoding(NodeStatsCodec.parseFlags("sparse,varint,deflate"));
+
+            // worker params are serialized and read by master
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            params.write(new DataOutputStream(bytes));
+            DTWorkerParams read = new DTWorkerParams();
+            read.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            Assert.assertEquals(read.getNodeStatsMap().get(0).getTreeId(), 1);
+            Assert.assertEquals(read.getNodeStatsMap().get(0).getNodeId(), 2);
+            result = result == null ? read : result.combine(read);
+        }
+        Map<Integer, double[]> merged = result.getNodeStatsMap().get(0).getFeatureStatistics();
+        for(Integer key: expected.keySet()) {
+            Assert.assertEquals(merged.get(key), expected.get(key));
+        }
+    }
+
+}
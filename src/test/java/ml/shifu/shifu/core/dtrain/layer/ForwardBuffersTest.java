@@ -0,0 +1,208 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.layer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import ml.shifu.shifu.core.dtrain.layer.WeightInitializer.InitMethod;
+import ml.shifu.shifu.core.dtrain.mtl.MultiTaskModel;
+import ml.shifu.shifu.core.dtrain.wdl.WideAndDeep;
+
+public class ForwardBuffersTest {
+
+    private static final List<Integer> DENSE_COLUMN_IDS = Arrays.asList(1, 2, 3, 4);
+
+    private static final List<Integer> EMBED_COLUMN_IDS = Arrays.asList(5, 6);
+
+    private static final List<Integer> WIDE_COLUMN_IDS = Arrays.asList(5, 6, 7);
+
+    private static final int RECORDS = 300;
+
+    @Test
+    public void testDenseLayerSameAsAllocation() {
+        Random random = new Random(3L);
+        DenseLayer layer = new DenseLayer(5, 7, 0d);
+        layer.initWeight(InitMethod.NEGATIVE_POSITIVE_ONE_RANGE_RANDOM);
+        for(boolean reuseBuffers: new boolean[] { false, true }) {
+            layer.setReuseBuffers(reuseBuffers);
+            for(int r = 0; r < 50; r++) {
+                double[] inputs = new double[7];
+                for(int j = 0; j < inputs.length; j++) {
+                    inputs[j] = random.nextGaussian();
+                }
+                // per record allocation and loop order before buffers were reused
+                double[] expected = new double[5];
+                for(int i = 0; i < expected.length; i++) {
+                    for(int j = 0; j < inputs.length; j++) {
+                        expected[i] += inputs[j] * layer.getWeights()[j][i];
+                    }
+                    expected[i] += layer.getBias()[i];
+                }
+                assertSameBits(layer.forward(inputs), expected);
+            }
+        }
+    }
+
+    @Test
+    public void testWideAndDeepReuseSameAsAllocation() {
+        for(String actiFunc: Arrays.asList("relu", "sigmoid", "tanh", "leakyrelu", "swish", "log", "gaussian")) {
+            WideAndDeep wnd = newWideAndDeep(Arrays.asList(actiFunc, "tanh"));
+            List<Object[]> records = newWideAndDeepRecords(new Random(7L));
+            List<double[]> expected = forwardAll(wnd, records);
+
+            wnd.setReuseBuffers(true);
+            List<double[]> results = forwardAll(wnd, records);
+            for(int r = 0; r < RECORDS; r++) {
+                assertSameBits(results.get(r), expected.get(r));
+            }
+        }
+    }
+
+    @Test
+    public void testSharedWideAndDeepNotReused() {
+        WideAndDeep wnd = newWideAndDeep(Arrays.asList("relu", "sigmoid"));
+        Object[] record = newWideAndDeepRecords(new Random(5L)).get(0);
+        double[] first = forward(wnd, record);
+        Assert.assertNotSame(forward(wnd, record), first);
+    }
+
+    @Test
+    public void testConcurrentWideAndDeepForward() throws Exception {
+        final WideAndDeep wnd = newWideAndDeep(Arrays.asList("relu", "sigmoid"));
+        final List<Object[]> records = newWideAndDeepRecords(new Random(11L));
+        List<double[]> expected = new ArrayList<double[]>();
+        for(double[] logits: forwardAll(wnd, records)) {
+            expected.add(logits.clone());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<double[]>>> futures = new ArrayList<Future<List<double[]>>>();
+            for(int t = 0; t < 8; t++) {
+                futures.add(pool.submit(new Callable<List<double[]>>() {
+                    @Override
+                    public List<double[]> call() {
+                        List<double[]> results = new ArrayList<double[]>();
+                        for(int i = 0; i < 20; i++) {
+                            for(Object[] record: records) {
+                                results.add(forward(wnd, record).clone());
+                            }
+                        }
+                        return results;
+                    }
+                }));
+            }
+            for(Future<List<double[]>> future: futures) {
+                List<double[]> results = future.get();
+                for(int i = 0; i < results.size(); i++) {
+                    assertSameBits(results.get(i), expected.get(i % RECORDS));
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testMultiTaskReuseSameAsAllocation() {
+        MultiTaskModel mtm = new MultiTaskModel(6, Arrays.asList(8, 5), Arrays.asList("relu", "tanh"),
+                Arrays.asList(1, 1, 1), 0d);
+        mtm.initWeights();
+        Random random = new Random(13L);
+        List<double[]> inputs = new ArrayList<double[]>();
+        List<double[]> expected = new ArrayList<double[]>();
+        for(int r = 0; r < RECORDS; r++) {
+            double[] input = new double[6];
+            for(int i = 0; i < input.length; i++) {
+                input[i] = random.nextGaussian();
+            }
+            inputs.add(input);
+            expected.add(mtm.forward(input));
+        }
+        Assert.assertNotSame(expected.get(1), expected.get(0));
+
+        mtm.setReuseBuffers(true);
+        for(int r = 0; r < RECORDS; r++) {
+            assertSameBits(mtm.forward(inputs.get(r)), expected.get(r));
+        }
+    }
+
+    private static WideAndDeep newWideAndDeep(List<String> actiFuncs) {
+        Map<Integer, Integer> idBinCateSizeMap = new HashMap<Integer, Integer>();
+        idBinCateSizeMap.put(5, 4);
+        idBinCateSizeMap.put(6, 9);
+        idBinCateSizeMap.put(7, 3);
+        WideAndDeep wnd = new WideAndDeep(true, true, true, true, idBinCateSizeMap, DENSE_COLUMN_IDS.size(),
+                DENSE_COLUMN_IDS, EMBED_COLUMN_IDS, Arrays.asList(3, 2), WIDE_COLUMN_IDS, Arrays.asList(6, 5),
+                actiFuncs, 0d);
+        wnd.initWeights();
+        return wnd;
+    }
+
+    private static List<Object[]> newWideAndDeepRecords(Random random) {
+        List<Object[]> records = new ArrayList<Object[]>();
+        for(int r = 0; r < RECORDS; r++) {
+            double[] dense = new double[DENSE_COLUMN_IDS.size()];
+            for(int i = 0; i < dense.length; i++) {
+                dense[i] = random.nextGaussian();
+            }
+            List<SparseInput> embedInputs = new ArrayList<SparseInput>();
+            for(Integer columnId: EMBED_COLUMN_IDS) {
+                embedInputs.add(new SparseInput(columnId, random.nextInt(4)));
+            }
+            List<SparseInput> wideInputs = new ArrayList<SparseInput>();
+            for(Integer columnId: WIDE_COLUMN_IDS) {
+                wideInputs.add(new SparseInput(columnId, random.nextInt(3)));
+            }
+            records.add(new Object[] { dense, embedInputs, wideInputs });
+        }
+        return records;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static double[] forward(WideAndDeep wnd, Object[] record) {
+        return wnd.forward((double[]) record[0], (List<SparseInput>) record[1], (List<SparseInput>) record[2]);
+    }
+
+    private static List<double[]> forwardAll(WideAndDeep wnd, List<Object[]> records) {
+        List<double[]> results = new ArrayList<double[]>();
+        for(Object[] record: records) {
+            // copy as reused buffers are overwritten by next record
+            results.add(forward(wnd, record).clone());
+        }
+        return results;
+    }
+
+    private static void assertSameBits(double[] actual, double[] expected) {
+        Assert.assertEquals(actual.length, expected.length);
+        for(int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(Double.doubleToLongBits(actual[i]), Double.doubleToLongBits(expected[i]));
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.layer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class IntDoubleArrayMapTest {
+
+    @Test
+    public void testGetOrCreateAndClear() {
+        IntDoubleArrayMap map = new IntDoubleArrayMap();
+        Map<Integer, double[]> expected = new HashMap<Integer, double[]>();
+        for(int i = 0; i < 1000; i++) {
+            int key = (i * 7919) % 337 - 100;
+            double[] grads = map.getOrCreate(key, 3);
+            grads[i % 3] += i;
+            double[] expectedGrads = expected.get(key);
+            if(expectedGrads == null) {
+                expectedGrads = new double[3];
+                expected.put(key, expectedGrads);
+            }
+            expectedGrads[i % 3] += i;
+        }
+        assertMapEquals(map, expected);
+
+        // arrays are reused after clear but values must start from zero
+        map.clear();
+        Assert.assertEquals(map.size(), 0);
+        Assert.assertNull(map.get(-100));
+        double[] grads = map.getOrCreate(5, 3);
+        Assert.assertEquals(grads, new double[3]);
+        Assert.assertEquals(map.size(), 1);
+
+        map.put(Integer.valueOf(6), new double[] { 1d, 2d, 3d });
+        Assert.assertTrue(map.containsKey(6));
+        Assert.assertEquals(map.get(Integer.valueOf(6)), new double[] { 1d, 2d, 3d });
+    }
+
+    @Test
+    public void testIntDoubleMap() {
+        IntDoubleMap map = new IntDoubleMap();
+        Map<Integer, Double> expected = new HashMap<Integer, Double>();
+        for(int i = 0; i < 1000; i++) {
+            int key = (i * 7919) % 251;
+            map.add(key, i * 0.5d);
+            Double value = expected.get(key);
+            expected.put(key, (value == null ? 0d : value) + i * 0.5d);
+        }
+        Assert.assertEquals(map.size(), expected.size());
+        for(Entry<Integer, Double> entry: map.entrySet()) {
+            Assert.assertEquals(entry.getValue(), expected.get(entry.getKey()));
+            Assert.assertEquals(map.get(entry.getKey().intValue(), -1d), expected.get(entry.getKey()).doubleValue());
+        }
+        Assert.assertEquals(map.get(1000, -1d), -1d);
+        Assert.assertNull(map.get(Integer.valueOf(1000)));
+
+        map.clear();
+        Assert.assertEquals(map.size(), 0);
+        Assert.assertFalse(map.entrySet().iterator().hasNext());
+        map.put(3, 1.5d);
+        Assert.assertEquals(map.get(3, 0d), 1.5d);
+    }
+
+    private static void assertMapEquals(IntDoubleArrayMap map, Map<Integer, double[]> expected) {
+        Assert.assertEquals(map.size(), expected.size());
+        int count = 0;
+        for(Entry<Integer, double[]> entry: map.entrySet()) {
+            Assert.assertEquals(entry.getValue(), expected.get(entry.getKey()));
+            Assert.assertSame(map.get(entry.getKey().intValue()), entry.getValue());
+            count += 1;
+        }
+        Assert.assertEquals(count, expected.size());
+    }
+
+}
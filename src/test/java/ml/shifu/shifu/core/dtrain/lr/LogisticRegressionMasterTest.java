@@ -0,0 +1,193 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.lr;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import ml.shifu.guagua.master.MasterContext;
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
+import ml.shifu.shifu.core.dtrain.CommonConstants;
+import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.util.CommonUtils;
+import ml.shifu.shifu.util.JSONUtils;
+
+public class LogisticRegressionMasterTest {
+
+    private static final String MODEL_SET = "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/";
+
+    private static final int MODELS = 2;
+
+    private File tmpDir;
+
+    private Properties props;
+
+    private int width;
+
+    @BeforeClass
+    public void setUp() throws IOException {
+        this.tmpDir = new File("tmp/lr-master-test");
+        FileUtils.deleteQuietly(this.tmpDir);
+        this.tmpDir.mkdirs();
+
+        ModelConfig modelConfig = CommonUtils.loadModelConfig(MODEL_SET + "ModelConfig.json", SourceType.LOCAL);
+        modelConfig.getTrain().setAlgorithm("LR");
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put(CommonConstants.LEARNING_RATE, 0.1d);
+        params.put(CommonConstants.PROPAGATION, "Q");
+        params.put(CommonConstants.ENABLE_EARLY_STOP, true);
+        // model of trainer 0 is stopped early at once, trainer 1 is never stopped
+        params.put(CommonConstants.VALIDATION_TOLERANCE, Arrays.asList(0.9d, 0d));
+        modelConfig.getTrain().setParams(params);
+        List<ColumnConfig> columnConfigList = CommonUtils.loadColumnConfigList(MODEL_SET + "ColumnConfig.json",
+                SourceType.LOCAL);
+        this.width = DTrainUtils.getFeatureInputsCnt(modelConfig, columnConfigList,
+                DTrainUtils.getModelFeatureSet(columnConfigList, false)) + 1;
+
+        File modelConfigFile = new File(this.tmpDir, "ModelConfig.json");
+        File columnConfigFile = new File(this.tmpDir, "ColumnConfig.json");
+        JSONUtils.writeValue(modelConfigFile, modelConfig);
+        JSONUtils.writeValue(columnConfigFile, columnConfigList);
+
+        this.props = new Properties();
+        this.props.setProperty(CommonConstants.MODELSET_SOURCE_TYPE, SourceType.LOCAL.toString());
+        this.props.setProperty(CommonConstants.SHIFU_MODEL_CONFIG, modelConfigFile.getPath());
+        this.props.setProperty(CommonConstants.SHIFU_COLUMN_CONFIG, columnConfigFile.getPath());
+        this.props.setProperty(CommonConstants.SHIFU_TRAINER_IDS, "0,1");
+    }
+
+    @AfterClass
+    public void tearDown() {
+        FileUtils.deleteQuietly(this.tmpDir);
+    }
+
+    @Test
+    public void testRecoverMasterFromCheckpoint() throws IOException {
+        Random random = new Random(41L);
+        MasterContext<LogisticRegressionParams, LogisticRegressionParams> context = newContext(1, null);
+        LogisticRegressionMaster master = new LogisticRegressionMaster();
+        master.init(context);
+        LogisticRegressionParams result = master.doCompute(context);
+
+        double[][] validationErrors = new double[][] { { 0.3d, 0.4d }, { 0.2d, 0.5d }, { 0.25d, 0.45d } };
+        for(int i = 0; i < validationErrors.length; i++) {
+            context.setCurrentIteration(i + 2);
+            context.setWorkerResults(workerResults(random, validationErrors[i]));
+            result = master.doCompute(context);
+        }
+        Assert.assertFalse(result.isHalt());
+        Assert.assertEquals(result.getHaltedModels(), new boolean[] { true, false });
+        Assert.assertEquals(result.getBestValidationErrors(), new double[] { 0.2d, 0.4d });
+
+        // master result is checkpoint of master, new master is recovered from it in fail over
+        LogisticRegressionParams checkpoint = copy(result);
+        Assert.assertEquals(checkpoint.getHaltedModels(), result.getHaltedModels());
+        Assert.assertEquals(checkpoint.getBestValidationErrors(), result.getBestValidationErrors());
+        context = newContext(5, checkpoint);
+        master = new LogisticRegressionMaster();
+        master.init(context);
+        LogisticRegressionParams recovered = master.doCompute(context);
+        Assert.assertEquals(recovered.getParameters(), result.getParameters());
+        double[] weights = recovered.getParameters().clone();
+
+        context.setCurrentIteration(6);
+        context.setWorkerResults(workerResults(random, new double[] { 0.1d, 0.35d }));
+        result = master.doCompute(context);
+        // halted model is not updated any more while the other one is still trained
+        Assert.assertEquals(Arrays.copyOfRange(result.getParameters(), 0, this.width),
+                Arrays.copyOfRange(weights, 0, this.width));
+        Assert.assertNotEquals(Arrays.copyOfRange(result.getParameters(), this.width, 2 * this.width),
+                Arrays.copyOfRange(weights, this.width, 2 * this.width));
+        Assert.assertEquals(result.getHaltedModels(), new boolean[] { true, false });
+        Assert.assertEquals(result.getBestValidationErrors(), new double[] { 0.1d, 0.35d });
+    }
+
+    @Test
+    public void testRecoverMasterFromFirstIteration() {
+        // first iteration result has no model state, fresh state is used
+        LogisticRegressionParams checkpoint = new LogisticRegressionParams(new double[MODELS * this.width]);
+        MasterContext<LogisticRegressionParams, LogisticRegressionParams> context = newContext(2, checkpoint);
+        LogisticRegressionMaster master = new LogisticRegressionMaster();
+        master.init(context);
+        Assert.assertSame(master.doCompute(context), checkpoint);
+
+        context.setCurrentIteration(3);
+        context.setWorkerResults(workerResults(new Random(43L), new double[] { 0.3d, 0.4d }));
+        LogisticRegressionParams result = master.doCompute(context);
+        Assert.assertEquals(result.getHaltedModels(), new boolean[] { false, false });
+        Assert.assertEquals(result.getBestValidationErrors(), new double[] { 0.3d, 0.4d });
+    }
+
+    private MasterContext<LogisticRegressionParams, LogisticRegressionParams> newContext(int iteration,
+            LogisticRegressionParams masterResult) {
+        MasterContext<LogisticRegressionParams, LogisticRegressionParams> context = new MasterContext<LogisticRegressionParams, LogisticRegressionParams>(
+                100, 2, this.props, "lr-master-test", "0", LogisticRegressionParams.class.getName(),
+                LogisticRegressionParams.class.getName(), 1d, 0L);
+        context.setCurrentIteration(iteration);
+        context.setMasterResult(masterResult);
+        return context;
+    }
+
+    /**
+     * Results of 2 workers with small gradients, validation errors of each model are sum of worker errors.
+     */
+    private List<LogisticRegressionParams> workerResults(Random random, double[] validationErrors) {
+        List<LogisticRegressionParams> results = new ArrayList<LogisticRegressionParams>();
+        for(int w = 0; w < 2; w++) {
+            double[] gradients = new double[MODELS * this.width];
+            for(int i = 0; i < gradients.length; i++) {
+                gradients[i] = random.nextGaussian() * 0.01d;
+            }
+            LogisticRegressionParams params = new LogisticRegressionParams(gradients, 0.5d, validationErrors[0] / 2,
+                    50d, 0.5d, 50d, 1d);
+            params.setTrainErrors(new double[] { 0.5d, 0.5d });
+            params.setValidationErrors(new double[] { validationErrors[0] / 2, validationErrors[1] / 2 });
+            params.setTrainSizes(new double[] { 50d, 50d });
+            results.add(params);
+        }
+        return results;
+    }
+
+    private static LogisticRegressionParams copy(LogisticRegressionParams params) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        params.write(out);
+        out.flush();
+        LogisticRegressionParams result = new LogisticRegressionParams();
+        result.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        return result;
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.lr;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import ml.shifu.shifu.core.dtrain.CommonConstants;
+import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.gs.GridSearch;
+
+public class LogisticRegressionParamsTest {
+
+    @Test
+    public void testCombineModels() throws IOException {
+        LogisticRegressionParams first = workerParams(1d);
+        first.combine(workerParams(2d));
+        Assert.assertEquals(first.getParameters(), new double[] { 3d, 3d, 3d, 3d });
+        Assert.assertEquals(first.getTrainErrors(), new double[] { 3d, 6d });
+        Assert.assertEquals(first.getValidationErrors(), new double[] { 6d, 9d });
+        Assert.assertEquals(first.getTrainSizes(), new double[] { 30d, 30d });
+
+        LogisticRegressionParams result = copy(first);
+        Assert.assertEquals(result.getTrainErrors(), first.getTrainErrors());
+        Assert.assertEquals(result.getValidationErrors(), first.getValidationErrors());
+        Assert.assertEquals(result.getTrainSizes(), first.getTrainSizes());
+
+        // only one model in job
+        LogisticRegressionParams params = new LogisticRegressionParams(new double[] { 1d, 2d }, 1d, 2d, 3d, 4d, 5d,
+                6d);
+        result = copy(params);
+        Assert.assertNull(result.getTrainErrors());
+        Assert.assertNull(result.getValidationErrors());
+        Assert.assertNull(result.getTrainSizes());
+        Assert.assertEquals(result.getTrainError(), 1d);
+    }
+
+    @Test
+    public void testTrainerIds() {
+        Properties props = new Properties();
+        Assert.assertEquals(DTrainUtils.getTrainerIds(props), new int[] { 0 });
+        props.setProperty(CommonConstants.SHIFU_TRAINER_ID, "3");
+        Assert.assertEquals(DTrainUtils.getTrainerIds(props), new int[] { 3 });
+        props.setProperty(CommonConstants.SHIFU_TRAINER_IDS, "0, 1,2");
+        Assert.assertEquals(DTrainUtils.getTrainerIds(props), new int[] { 0, 1, 2 });
+    }
+
+    @Test
+    public void testWorkerParamsVaried() {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put(CommonConstants.LEARNING_RATE, Arrays.asList(0.1d, 0.2d));
+        params.put(CommonConstants.MINI_BATCH, 10);
+        params.put(CommonConstants.PARAMS_ENCODING, "float,deflate");
+        GridSearch gs = new GridSearch(params, null);
+        Assert.assertTrue(gs.hasHyperParam());
+        // only learning rate differs, all models can share workers in one job
+        Assert.assertFalse(DTrainUtils.isWorkerParamsVaried(gs.getFlattenParams()));
+
+        params.put(CommonConstants.MINI_BATCH, Arrays.asList(1, 10));
+        Assert.assertTrue(DTrainUtils.isWorkerParamsVaried(new GridSearch(params, null).getFlattenParams()));
+
+        params.put(CommonConstants.MINI_BATCH, 10);
+        params.put(CommonConstants.PARAMS_ENCODING, Arrays.asList("float", "half,delta"));
+        Assert.assertTrue(DTrainUtils.isWorkerParamsVaried(new GridSearch(params, null).getFlattenParams()));
+    }
+
+    private static LogisticRegressionParams workerParams(double value) {
+        LogisticRegressionParams params = new LogisticRegressionParams(new double[] { value, value, value, value },
+                value, 2 * value, 10d, 5d, 10d, 5d);
+        params.setTrainErrors(new double[] { value, 2 * value });
+        params.setValidationErrors(new double[] { 2 * value, 3 * value });
+        params.setTrainSizes(new double[] { 10d * value, 10d * value });
+        return params;
+    }
+
+    private static LogisticRegressionParams copy(LogisticRegressionParams params) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        params.write(out);
+        out.flush();
+        LogisticRegressionParams result = new LogisticRegressionParams();
+        result.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        return result;
+    }
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.lr;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import ml.shifu.guagua.util.BytableMemoryDiskList;
+import ml.shifu.shifu.core.dtrain.lr.LogisticRegressionWorker.Data;
+import ml.shifu.shifu.core.dtrain.lr.LogisticRegressionWorker.GradientShard;
+
+public class LogisticRegressionWorkerTest {
+
+    private static final int INPUTS = 12;
+
+    private static final int MODELS = 2;
+
+    private static final double EPSILON = 1e-10;
+
+    @Test
+    public void testDataRoundTrip() throws IOException {
+        float[] denseInputs = new float[] { 0.5f, -1f, 2f, 0f, 3f, 1.5f };
+        Data dense = new Data(denseInputs.clone(), new float[] { 1f }, 2d);
+        Assert.assertNull(dense.getIndices());
+
+        // one-hot like inputs are kept in sparse
+        float[] sparseInputs = new float[] { 0f, 1f, 0f, 0f, 0f, -0.5f };
+        Data sparse = new Data(sparseInputs.clone(), new float[] { 0f }, 0.5d);
+        sparse.setBagWeights(new float[] { 2f, 0f });
+        Assert.assertEquals(sparse.getIndices(), new int[] { 1, 5 });
+        Assert.assertEquals(sparse.getInputs(), new float[] { 1f, -0.5f });
+
+        Data denseCopy = roundTrip(dense);
+        Assert.assertNull(denseCopy.getIndices());
+        Assert.assertEquals(denseCopy.getInputs(), denseInputs);
+        Assert.assertEquals(denseCopy.getOutputs(), new float[] { 1f });
+        Assert.assertEquals(denseCopy.getSignificance(), 2d);
+        Assert.assertEquals(denseCopy.getSignificance(1), 2d);
+
+        Data sparseCopy = roundTrip(sparse);
+        Assert.assertEquals(sparseCopy.getIndices(), new int[] { 1, 5 });
+        Assert.assertEquals(sparseCopy.getInputs(), new float[] { 1f, -0.5f });
+        Assert.assertEquals(sparseCopy.getOutputs(), new float[] { 0f });
+        Assert.assertEquals(sparseCopy.getSignificance(), 0.5d);
+        Assert.assertEquals(sparseCopy.getSignificance(0), 1d);
+        Assert.assertEquals(sparseCopy.getSignificance(1), 0d);
+    }
+
+    @Test
+    public void testShardedGradientsSameAsSingleShard() throws Exception {
+        Random random = new Random(19L);
+        List<Data> trainingRecords = newRecords(random, 1001);
+        List<Data> validationRecords = newRecords(random, 203);
+        double[] weights = newWeights(random);
+
+        GradientShard single = newShard(trainingRecords, validationRecords);
+        single.setBatch(weights, 0, 1);
+        single.call();
+
+        int shards = 4;
+        List<BytableMemoryDiskList<Data>> trainingShards = newShardLists(shards);
+        List<BytableMemoryDiskList<Data>> validationShards = newShardLists(shards);
+        for(int i = 0; i < trainingRecords.size(); i++) {
+            LogisticRegressionWorker.appendToShard(trainingShards, i, trainingRecords.get(i));
+        }
+        for(int i = 0; i < validationRecords.size(); i++) {
+            LogisticRegressionWorker.appendToShard(validationShards, i, validationRecords.get(i));
+        }
+        for(int i = 0; i < shards; i++) {
+            trainingShards.get(i).switchState();
+            validationShards.get(i).switchState();
+        }
+        // round robin, the first shards have one more record
+        Assert.assertEquals(trainingShards.get(0).size(), 251L);
+        Assert.assertEquals(trainingShards.get(3).size(), 250L);
+
+        GradientShard[] gradientShards = new GradientShard[shards];
+        ExecutorService pool = Executors.newFixedThreadPool(shards);
+        try {
+            List<Future<GradientShard>> futures = new ArrayList<Future<GradientShard>>();
+            for(int i = 0; i < shards; i++) {
+                gradientShards[i] = new GradientShard(trainingShards.get(i), validationShards.get(i), MODELS, INPUTS);
+                gradientShards[i].setBatch(weights, 0, 1);
+                futures.add(pool.submit(gradientShards[i]));
+            }
+            for(Future<GradientShard> future: futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        double[] gradients = LogisticRegressionWorker.sumGradients(gradientShards, MODELS * (INPUTS + 1));
+        assertArrayEquals(gradients, single.getGradients());
+        double[] trainErrors = new double[MODELS], trainSizes = new double[MODELS], vldErrors = new double[MODELS];
+        for(GradientShard shard: gradientShards) {
+            for(int m = 0; m < MODELS; m++) {
+                trainErrors[m] += shard.getTrainErrors()[m];
+                trainSizes[m] += shard.getTrainSizes()[m];
+                vldErrors[m] += shard.getValidationErrors()[m];
+            }
+        }
+        assertArrayEquals(trainErrors, single.getTrainErrors());
+        assertArrayEquals(trainSizes, single.getTrainSizes());
+        assertArrayEquals(vldErrors, single.getValidationErrors());
+    }
+
+    @Test
+    public void testMiniBatchBoundaries() {
+        Random random = new Random(29L);
+        List<Data> records = new ArrayList<Data>();
+        for(int i = 0; i < 10; i++) {
+            float[] inputs = new float[INPUTS];
+            for(int j = 0; j < INPUTS; j++) {
+                inputs[j] = (float) random.nextGaussian();
+            }
+            records.add(new Data(inputs, new float[] { random.nextInt(2) }, 1d));
+        }
+        double[] weights = newWeights(random);
+        GradientShard full = newShard(records, new ArrayList<Data>());
+        full.setBatch(weights, 0, 1);
+        double[] expected = full.call().getGradients().clone();
+        Assert.assertEquals(full.getTrainSizes()[0], 10d);
+
+        // batch b covers records in [10 * b / batchs, 10 * (b + 1) / batchs)
+        GradientShard shard = newShard(records, new ArrayList<Data>());
+        int[][] batchSizes = new int[][] { { 3, 3, 4 }, { 0, 1, 1, 1, 0, 1, 1, 1, 0, 1, 1, 1, 1 } };
+        for(int[] sizes: batchSizes) {
+            double[] gradients = new double[expected.length];
+            for(int b = 0; b < sizes.length; b++) {
+                shard.setBatch(weights, b, sizes.length);
+                shard.call();
+                Assert.assertEquals(shard.getTrainSizes()[0], (double) sizes[b]);
+                for(int i = 0; i < gradients.length; i++) {
+                    gradients[i] += shard.getGradients()[i];
+                }
+            }
+            assertArrayEquals(gradients, expected);
+        }
+
+        // each batch only has gradients of its own records
+        GradientShard first = newShard(records.subList(0, 3), new ArrayList<Data>());
+        first.setBatch(weights, 0, 1);
+        shard.setBatch(weights, 0, 3);
+        assertArrayEquals(shard.call().getGradients(), first.call().getGradients());
+    }
+
+    private static Data roundTrip(Data data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        data.write(out);
+        out.close();
+        Data copy = new Data();
+        copy.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        return copy;
+    }
+
+    private static List<Data> newRecords(Random random, int size) {
+        List<Data> records = new ArrayList<Data>(size);
+        for(int r = 0; r < size; r++) {
+            float[] inputs = new float[INPUTS];
+            if(r % 2 == 0) {
+                for(int i = 0; i < INPUTS; i++) {
+                    inputs[i] = (float) random.nextGaussian();
+                }
+            } else {
+                // sparse one-hot like record
+                inputs[random.nextInt(INPUTS)] = 1f;
+                inputs[random.nextInt(INPUTS)] = (float) random.nextGaussian();
+            }
+            Data data = new Data(inputs, new float[] { random.nextInt(2) }, 0.5d + random.nextDouble());
+            data.setBagWeights(new float[] { random.nextInt(3), random.nextInt(3) });
+            records.add(data);
+        }
+        return records;
+    }
+
+    private static double[] newWeights(Random random) {
+        double[] weights = new double[MODELS * (INPUTS + 1)];
+        for(int i = 0; i < weights.length; i++) {
+            weights[i] = random.nextGaussian() * 0.1d;
+        }
+        return weights;
+    }
+
+    private static List<BytableMemoryDiskList<Data>> newShardLists(int shards) {
+        List<BytableMemoryDiskList<Data>> lists = new ArrayList<BytableMemoryDiskList<Data>>(shards);
+        for(int i = 0; i < shards; i++) {
+            lists.add(new BytableMemoryDiskList<Data>(Long.MAX_VALUE, "tmp/lr-test-" + i, Data.class.getName()));
+        }
+        return lists;
+    }
+
+    private static GradientShard newShard(List<Data> trainingRecords, List<Data> validationRecords) {
+        List<BytableMemoryDiskList<Data>> lists = newShardLists(2);
+        for(Data data: trainingRecords) {
+            lists.get(0).append(data);
+        }
+        for(Data data: validationRecords) {
+            lists.get(1).append(data);
+        }
+        lists.get(0).switchState();
+        lists.get(1).switchState();
+        return new GradientShard(lists.get(0), lists.get(1), MODELS, INPUTS);
+    }
+
+    private static void assertArrayEquals(double[] actual, double[] expected) {
+        Assert.assertEquals(actual.length, expected.length);
+        for(int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(actual[i], expected[i], EPSILON);
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.nn;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import ml.shifu.shifu.core.dtrain.nn.AbstractNNWorker.LateGradients;
+
+public class AbstractNNWorkerTest {
+
+    @Test
+    public void testLateGradientsCarriedIntoNextIterations() {
+        LateGradients lateGradients = new LateGradients(3);
+        Assert.assertEquals(lateGradients.carry(1, false, new double[] { 1d, 2d }), new double[] { 1d, 2d });
+        Assert.assertEquals(lateGradients.carry(2, false, new double[] { 10d, 20d }), new double[] { 11d, 22d });
+        Assert.assertEquals(lateGradients.carry(3, false, new double[] { 100d, 200d }),
+                new double[] { 111d, 222d });
+        Assert.assertEquals(lateGradients.getPendingIterations(), Arrays.asList(1, 2, 3));
+    }
+
+    @Test
+    public void testLateGradientsClearedOnMasterAck() {
+        LateGradients lateGradients = new LateGradients(3);
+        lateGradients.carry(1, false, new double[] { 1d, 2d });
+        lateGradients.carry(2, false, new double[] { 10d, 20d });
+
+        // sum of iteration 1 and 2 sent in iteration 2 is applied by master
+        Assert.assertEquals(lateGradients.carry(3, true, new double[] { 100d, 200d }), new double[] { 100d, 200d });
+        Assert.assertEquals(lateGradients.getPendingIterations(), Collections.singletonList(3));
+
+        // iteration 3 is late again and carried into iteration 4
+        Assert.assertEquals(lateGradients.carry(4, false, new double[] { 1000d, 2000d }),
+                new double[] { 1100d, 2200d });
+        Assert.assertEquals(lateGradients.carry(5, true, new double[] { 0.5d, 0.5d }), new double[] { 0.5d, 0.5d });
+        Assert.assertEquals(lateGradients.getPendingIterations(), Collections.singletonList(5));
+    }
+
+    @Test
+    public void testLateGradientsDroppedAfterStalenessBound() {
+        LateGradients lateGradients = new LateGradients(2);
+        lateGradients.carry(1, false, new double[] { 1d });
+        lateGradients.carry(2, false, new double[] { 10d });
+        Assert.assertEquals(lateGradients.carry(3, false, new double[] { 100d }), new double[] { 111d });
+
+        // iteration 1 is older than 2 iterations
+        Assert.assertEquals(lateGradients.carry(4, false, new double[] { 1000d }), new double[] { 1110d });
+        Assert.assertEquals(lateGradients.getPendingIterations(), Arrays.asList(2, 3, 4));
+
+        // no result from iterations 5 and 6, only iteration 4 is kept in iteration 6
+        Assert.assertEquals(lateGradients.carry(6, false, new double[] { 10000d }), new double[] { 11000d });
+        Assert.assertEquals(lateGradients.getPendingIterations(), Arrays.asList(4, 6));
+    }
+
+    @Test
+    public void testLateGradientsNotChangedByReusedArray() {
+        LateGradients lateGradients = new LateGradients(3);
+        double[] gradients = new double[] { 1d, 2d };
+        double[] results = lateGradients.carry(1, false, gradients);
+        Assert.assertNotSame(results, gradients);
+
+        // gradient array is reused by next iteration
+        gradients[0] = 3d;
+        gradients[1] = 4d;
+        Assert.assertEquals(lateGradients.carry(2, false, gradients), new double[] { 4d, 6d });
+        Assert.assertEquals(gradients, new double[] { 3d, 4d });
+    }
+
+}
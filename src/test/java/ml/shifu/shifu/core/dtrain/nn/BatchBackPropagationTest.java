@@ -0,0 +1,102 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.nn;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.encog.engine.network.activation.ActivationSigmoid;
+import org.encog.neural.error.LinearErrorFunction;
+import org.encog.neural.networks.BasicNetwork;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.dataset.BasicFloatMLDataSet;
+import ml.shifu.shifu.core.dtrain.dataset.FloatFlatNetwork;
+
+public class BatchBackPropagationTest {
+
+    @Test
+    public void testBatchSameAsRecordGradients() {
+        BasicNetwork network = DTrainUtils.generateNetwork(11, 1, 2, Arrays.asList("tanh", "sigmoid"),
+                Arrays.asList(9, 4), true, 0.2d, DTrainUtils.WGT_INIT_DEFAULT, false, "sigmoid");
+        FloatFlatNetwork flat = (FloatFlatNetwork) network.getFlat();
+        double[] flatSpot = new double[flat.getActivationFunctions().length];
+        for(int i = 0; i < flatSpot.length; i++) {
+            flatSpot[i] = flat.getActivationFunctions()[i] instanceof ActivationSigmoid ? 0.1 : 0.0;
+        }
+
+        Random random = new Random(17L);
+        int records = 203;
+        float[][] inputs = new float[records][flat.getInputCount()];
+        float[][] ideals = new float[records][1];
+        for(int r = 0; r < records; r++) {
+            for(int i = 0; i < inputs[r].length; i++) {
+                inputs[r][i] = (float) random.nextGaussian();
+            }
+            ideals[r][0] = random.nextBoolean() ? 1f : 0f;
+        }
+
+        // drop some hidden and input neurons by their index in layer output
+        Set<Integer> dropoutNodes = new HashSet<Integer>();
+        int[] layerIndex = flat.getLayerIndex();
+        dropoutNodes.add(layerIndex[1] + 2);
+        dropoutNodes.add(layerIndex[2] + 5);
+        dropoutNodes.add(layerIndex[3] + 3);
+        // sub gradients compute on clones, dropout rates must be kept in clones
+        Assert.assertTrue(flat.getLayerDropoutRates().length > 0);
+        Assert.assertEquals(flat.clone().getLayerDropoutRates(), flat.getLayerDropoutRates());
+
+        for(String loss: new String[] { "squared", "log" }) {
+            double[] noDropoutGradients = null;
+            for(Set<Integer> nodes: Arrays.asList(null, dropoutNodes)) {
+                ParallelGradient expected = newGradient(flat, flatSpot, inputs, ideals, loss, 0);
+                double[] expectedGradients = expected.computeGradients(2, nodes);
+                if(nodes == null) {
+                    noDropoutGradients = expectedGradients;
+                } else {
+                    // dropout nodes really change gradients
+                    Assert.assertFalse(Arrays.equals(expectedGradients, noDropoutGradients));
+                }
+                for(int blockSize: new int[] { 1, 8, 64, 500 }) {
+                    ParallelGradient batch = newGradient(flat, flatSpot, inputs, ideals, loss, blockSize);
+                    double[] gradients = batch.computeGradients(2, nodes);
+                    for(int i = 0; i < gradients.length; i++) {
+                        Assert.assertEquals(Double.doubleToLongBits(gradients[i]),
+                                Double.doubleToLongBits(expectedGradients[i]));
+                    }
+                    Assert.assertEquals(batch.getTrainError(), expected.getTrainError());
+                    batch.shutdown();
+                }
+                expected.shutdown();
+            }
+        }
+    }
+
+    private static ParallelGradient newGradient(FloatFlatNetwork flat, double[] flatSpot, float[][] inputs,
+            float[][] ideals, String loss, int blockSize) {
+        BasicFloatMLDataSet training = new BasicFloatMLDataSet(inputs, ideals);
+        BasicFloatMLDataSet testing = new BasicFloatMLDataSet(inputs, ideals);
+        ParallelGradient gradient = new ParallelGradient(flat, training, testing, flatSpot, new LinearErrorFunction(),
+                false, 2, loss, 1);
+        gradient.setBatchComputeSize(blockSize);
+        return gradient;
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.nn;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class NNParamsTest {
+
+    @Test
+    public void testCombineWorkerIds() throws IOException {
+        NNParams first = workerParams("1", 1d);
+        first.combine(workerParams("2", 2d));
+        first.combine(workerParams("3", 3d));
+        Assert.assertEquals(first.getGradients(), new double[] { 6d, 6d });
+        Assert.assertEquals(first.getWrCount(), 3);
+        Assert.assertEquals(first.getWorkerIds(), new HashSet<String>(Arrays.asList("1", "2", "3")));
+
+        NNParams result = copy(first);
+        Assert.assertEquals(result.getWorkerIds(), first.getWorkerIds());
+        Assert.assertEquals(result.getGradients(), first.getGradients());
+
+        // bulk synchronous training doesn't send worker ids
+        NNParams params = workerParams("1", 1d);
+        params.setWorkerIds(null);
+        Assert.assertNull(copy(params).getWorkerIds());
+    }
+
+    private static NNParams workerParams(String workerId, double gradient) {
+        NNParams params = new NNParams();
+        params.setWeights(new double[0]);
+        params.setGradients(new double[] { gradient, gradient });
+        params.setWorkerIds(Collections.singleton(workerId));
+        return params;
+    }
+
+    private static NNParams copy(NNParams params) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        params.write(out);
+        out.flush();
+        NNParams result = new NNParams();
+        result.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        return result;
+    }
+
+}
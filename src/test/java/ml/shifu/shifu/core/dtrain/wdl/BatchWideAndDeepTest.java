@@ -0,0 +1,101 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.wdl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import ml.shifu.shifu.core.dtrain.layer.SparseInput;
+
+public class BatchWideAndDeepTest {
+
+    private static final List<Integer> DENSE_COLUMN_IDS = Arrays.asList(1, 2, 3, 4);
+
+    private static final List<Integer> EMBED_COLUMN_IDS = Arrays.asList(5, 6);
+
+    private static final List<Integer> WIDE_COLUMN_IDS = Arrays.asList(5, 6, 7);
+
+    @Test
+    public void testBatchSameAsForward() {
+        List<String> actiFuncs = Arrays.asList("relu", "sigmoid", "tanh", "leakyrelu", "swish", "log", "gaussian");
+        for(String actiFunc: actiFuncs) {
+            assertBatchSameAsForward(newModel(true, true, true, Arrays.asList(actiFunc, "tanh")));
+        }
+        assertBatchSameAsForward(newModel(false, true, true, Arrays.asList("relu", "sigmoid")));
+        assertBatchSameAsForward(newModel(true, false, false, Arrays.asList("relu", "sigmoid")));
+        assertBatchSameAsForward(newModel(true, true, false, Arrays.asList("relu", "sigmoid")));
+    }
+
+    private WideAndDeep newModel(boolean wideEnable, boolean deepEnable, boolean embedEnable, List<String> actiFuncs) {
+        Map<Integer, Integer> idBinCateSizeMap = new HashMap<Integer, Integer>();
+        idBinCateSizeMap.put(5, 4);
+        idBinCateSizeMap.put(6, 9);
+        idBinCateSizeMap.put(7, 3);
+        WideAndDeep wnd = new WideAndDeep(wideEnable, deepEnable, embedEnable, true, idBinCateSizeMap,
+                DENSE_COLUMN_IDS.size(), DENSE_COLUMN_IDS, EMBED_COLUMN_IDS, Arrays.asList(3, 2), WIDE_COLUMN_IDS,
+                Arrays.asList(6, 5), actiFuncs, 0d);
+        wnd.initWeights();
+        return wnd;
+    }
+
+    private void assertBatchSameAsForward(WideAndDeep wnd) {
+        Random random = new Random(7L);
+        int records = 200, denseSize = DENSE_COLUMN_IDS.size();
+        int embedSize = EMBED_COLUMN_IDS.size(), wideSize = WIDE_COLUMN_IDS.size();
+        double[] dense = new double[records * denseSize];
+        int[] embeds = new int[records * embedSize];
+        int[] wides = new int[records * wideSize];
+        double[] expected = new double[records];
+        for(int r = 0; r < records; r++) {
+            for(int i = 0; i < denseSize; i++) {
+                dense[r * denseSize + i] = random.nextGaussian();
+            }
+            List<SparseInput> embedInputs = new ArrayList<SparseInput>();
+            for(int i = 0; i < embedSize; i++) {
+                // includes a few out of range category indexes
+                embeds[r * embedSize + i] = random.nextInt(20) == 0 ? -1 : random.nextInt(4);
+                embedInputs.add(new SparseInput(EMBED_COLUMN_IDS.get(i), embeds[r * embedSize + i]));
+            }
+            List<SparseInput> wideInputs = new ArrayList<SparseInput>();
+            for(int i = 0; i < wideSize; i++) {
+                wides[r * wideSize + i] = random.nextInt(20) == 0 ? 10 : random.nextInt(4);
+                wideInputs.add(new SparseInput(WIDE_COLUMN_IDS.get(i), wides[r * wideSize + i]));
+            }
+            expected[r] = wnd.forward(Arrays.copyOfRange(dense, r * denseSize, (r + 1) * denseSize), embedInputs,
+                    wideInputs)[0];
+        }
+
+        BatchWideAndDeep batch = new BatchWideAndDeep(wnd, 64);
+        double[] logits = new double[records];
+        for(int start = 0; start < records; start += 64) {
+            int rows = Math.min(64, records - start);
+            batch.forward(Arrays.copyOfRange(dense, start * denseSize, (start + rows) * denseSize),
+                    Arrays.copyOfRange(embeds, start * embedSize, (start + rows) * embedSize),
+                    Arrays.copyOfRange(wides, start * wideSize, (start + rows) * wideSize), rows, logits, start);
+        }
+        for(int r = 0; r < records; r++) {
+            Assert.assertEquals(Double.doubleToLongBits(logits[r]), Double.doubleToLongBits(expected[r]));
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.wdl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import ml.shifu.shifu.container.obj.ModelNormalizeConf.NormType;
+import ml.shifu.shifu.core.dtrain.CommonConstants;
+import ml.shifu.shifu.core.dtrain.StringUtils;
+import ml.shifu.shifu.core.dtrain.layer.SerializationType;
+
+public class IndependentWDLModelTest {
+
+    private static final int INPUTS = 7;
+
+    @Test
+    public void testConcurrentComputeBatch() throws Exception {
+        final IndependentWDLModel model = newModel();
+        Random random = new Random(17L);
+        final int records = 300;
+        final double[] rows = new double[records * INPUTS];
+        for(int r = 0; r < records; r++) {
+            for(int i = 0; i < INPUTS; i++) {
+                // column i + 1 at index i, columns 1-4 are dense, 5-7 are category indexes
+                rows[r * INPUTS + i] = i < 4 ? random.nextGaussian() : random.nextInt(3);
+            }
+        }
+        final double[] expected = new double[records];
+        for(int r = 0; r < records; r++) {
+            expected[r] = model.compute(Arrays.copyOfRange(rows, r * INPUTS, (r + 1) * INPUTS))[0];
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+            for(int t = 0; t < 8; t++) {
+                futures.add(pool.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        double[] scores = new double[records];
+                        for(int i = 0; i < 20; i++) {
+                            model.computeBatch(rows, records, scores);
+                            for(int r = 0; r < records; r++) {
+                                if(Double.doubleToLongBits(scores[r]) != Double.doubleToLongBits(expected[r])) {
+                                    return false;
+                                }
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for(Future<Boolean> future: futures) {
+                Assert.assertTrue(future.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static IndependentWDLModel newModel() throws IOException {
+        Map<Integer, Integer> idBinCateSizeMap = new HashMap<Integer, Integer>();
+        idBinCateSizeMap.put(5, 4);
+        idBinCateSizeMap.put(6, 9);
+        idBinCateSizeMap.put(7, 3);
+        WideAndDeep wnd = new WideAndDeep(true, true, true, true, idBinCateSizeMap, 4, Arrays.asList(1, 2, 3, 4),
+                Arrays.asList(5, 6), Arrays.asList(3, 2), Arrays.asList(5, 6, 7), Arrays.asList(6, 5),
+                Arrays.asList("relu", "sigmoid"), 0d);
+        wnd.initWeights();
+
+        // same layout as BinaryWDLSerializer without column stats as inputs are already normalized
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(bytes);
+        dos.writeInt(CommonConstants.WDL_FORMAT_VERSION);
+        dos.writeDouble(0d);
+        dos.writeDouble(0d);
+        dos.writeDouble(0d);
+        dos.writeUTF("Reserved field");
+        StringUtils.writeString(dos, NormType.ZSCALE.toString());
+        dos.writeInt(0);
+        dos.writeInt(INPUTS);
+        for(int i = 0; i < INPUTS; i++) {
+            dos.writeInt(i + 1);
+            dos.writeInt(i);
+        }
+        wnd.write(dos, SerializationType.MODEL_SPEC);
+        dos.close();
+        return IndependentWDLModel.loadFromStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.dtrain.wdl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import ml.shifu.shifu.core.dtrain.DTrainUtils;
+import ml.shifu.shifu.core.dtrain.RegulationLevel;
+import ml.shifu.shifu.core.dtrain.layer.SerializationType;
+import ml.shifu.shifu.core.dtrain.layer.SparseInput;
+import ml.shifu.shifu.core.dtrain.loss.LossType;
+
+public class WDLParamsTest {
+
+    private static final List<Integer> DENSE_COLUMN_IDS = Arrays.asList(1, 2, 3);
+
+    private static final List<Integer> EMBED_COLUMN_IDS = Arrays.asList(5, 6);
+
+    private static final List<Integer> WIDE_COLUMN_IDS = Arrays.asList(5, 6, 7);
+
+    @Test
+    public void testSparseWeights() throws IOException {
+        Map<Integer, Integer> idBinCateSizeMap = new HashMap<Integer, Integer>();
+        idBinCateSizeMap.put(5, 200);
+        idBinCateSizeMap.put(6, 300);
+        idBinCateSizeMap.put(7, 100);
+        WideAndDeep master = new WideAndDeep(true, true, true, true, idBinCateSizeMap, DENSE_COLUMN_IDS.size(),
+                DENSE_COLUMN_IDS, EMBED_COLUMN_IDS, Arrays.asList(4, 4), WIDE_COLUMN_IDS, Arrays.asList(5),
+                Arrays.asList("relu"), 0d);
+        master.initWeights();
+        master.initOptimizer(0.1d, DTrainUtils.BACK_PROPAGATION, 0, RegulationLevel.NONE);
+        WideAndDeep worker = master.clone();
+
+        for(int iteration = 1; iteration <= 3; iteration++) {
+            // worker touches only a few categories in each iteration
+            Random random = new Random(iteration);
+            for(int r = 0; r < 20; r++) {
+                double[] dense = new double[DENSE_COLUMN_IDS.size()];
+                for(int i = 0; i < dense.length; i++) {
+                    dense[i] = random.nextGaussian();
+                }
+                List<SparseInput> embedInputs = new ArrayList<SparseInput>();
+                for(Integer id: EMBED_COLUMN_IDS) {
+                    embedInputs.add(new SparseInput(id, random.nextInt(5) * iteration));
+                }
+                List<SparseInput> wideInputs = new ArrayList<SparseInput>();
+                for(Integer id: WIDE_COLUMN_IDS) {
+                    wideInputs.add(new SparseInput(id, random.nextInt(5) * iteration));
+                }
+                double[] logits = worker.forward(dense, embedInputs, wideInputs);
+                double predict = 1d / (1d + Math.exp(-logits[0]));
+                worker.backward(new double[] { predict }, new double[] { r % 2 }, 1d, LossType.LOG);
+            }
+
+            WDLParams gradients = new WDLParams();
+            gradients.setTrainSize(20d);
+            gradients.setWnd(worker);
+            gradients.setSerializationType(SerializationType.GRADIENTS);
+            WDLParams aggregation = copy(gradients);
+            master.optimizeWeight(aggregation.getTrainSize(), iteration, aggregation.getWnd());
+
+            WDLParams sparse = new WDLParams();
+            sparse.setWnd(master);
+            sparse.setSerializationType(SerializationType.SPARSE_WEIGHTS);
+            byte[] sparseBytes = toBytes(sparse);
+            sparse.setSerializationType(SerializationType.WEIGHTS);
+            Assert.assertTrue(sparseBytes.length < toBytes(sparse).length / 2);
+
+            WDLParams masterResult = copy(sparseBytes);
+            Assert.assertEquals(masterResult.getSerializationType(), SerializationType.SPARSE_WEIGHTS);
+            worker.updateWeights(masterResult);
+            Assert.assertEquals(weights(worker), weights(master));
+        }
+    }
+
+    @Test
+    public void testCombineEmptyParams() {
+        WDLParams empty = new WDLParams();
+        empty.setTrainSize(1d);
+        WDLParams params = new WDLParams();
+        params.setTrainSize(2d);
+        params.setWnd(new WideAndDeep());
+        empty.combine(params);
+        Assert.assertSame(empty.getWnd(), params.getWnd());
+        Assert.assertEquals(empty.getTrainSize(), 3d);
+    }
+
+    private static byte[] weights(WideAndDeep wnd) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        wnd.write(out, SerializationType.WEIGHTS);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] toBytes(WDLParams params) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        params.write(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static WDLParams copy(WDLParams params) throws IOException {
+        return copy(toBytes(params));
+    }
+
+    private static WDLParams copy(byte[] bytes) throws IOException {
+        WDLParams params = new WDLParams();
+        params.readFields(new DataInputStream(new ByteArrayInputStream(bytes)));
+        return params;
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.core.eval;
+
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ScoreHistogramTest {
+
+    @Test
+    public void testBucket() {
+        ScoreHistogram histogram = new ScoreHistogram(100, 1000d);
+        Assert.assertEquals(histogram.getBucket(0d), 0);
+        Assert.assertEquals(histogram.getBucket(9.99d), 0);
+        Assert.assertEquals(histogram.getBucket(10d), 1);
+        Assert.assertEquals(histogram.getBucket(999.99d), 99);
+        // out of range scores are in the first or the last bucket
+        Assert.assertEquals(histogram.getBucket(1000d), 99);
+        Assert.assertEquals(histogram.getBucket(1200d), 99);
+        Assert.assertEquals(histogram.getBucket(-1d), 0);
+        Assert.assertEquals(histogram.getLowestScore(1), 10d);
+    }
+
+    @Test
+    public void testMerge() {
+        Random random = new Random(7L);
+        ScoreHistogram all = new ScoreHistogram(1000, 1000d);
+        ScoreHistogram[] parts = { new ScoreHistogram(1000, 1000d), new ScoreHistogram(1000, 1000d),
+                new ScoreHistogram(1000, 1000d) };
+        for(int i = 0; i < 30000; i++) {
+            double score = random.nextDouble() * 1000d;
+            boolean isPositive = random.nextInt(10) == 0;
+            double weight = random.nextInt(5);
+            all.add(score, isPositive, weight);
+            parts[i % parts.length].add(score, isPositive, weight);
+        }
+
+        ScoreHistogram merged = new ScoreHistogram(1000, 1000d);
+        for(ScoreHistogram part: parts) {
+            merged.merge(part);
+        }
+        for(int i = 0; i < all.getBuckets(); i++) {
+            Assert.assertEquals(merged.getPosCount(i), all.getPosCount(i));
+            Assert.assertEquals(merged.getNegCount(i), all.getNegCount(i));
+            Assert.assertEquals(merged.getPosWeight(i), all.getPosWeight(i), 1e-9);
+            Assert.assertEquals(merged.getNegWeight(i), all.getNegWeight(i), 1e-9);
+        }
+        Assert.assertEquals(merged.getPosCount() + merged.getNegCount(), 30000L);
+        Assert.assertEquals(merged.getPosWeight() + merged.getNegWeight(), all.getPosWeight() + all.getNegWeight(),
+                1e-6);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMergeDifferentBuckets() {
+        new ScoreHistogram(100, 1000d).merge(new ScoreHistogram(1000, 1000d));
+    }
+
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.guagua;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import ml.shifu.guagua.hadoop.io.GuaguaLineRecordReader;
+import ml.shifu.guagua.io.GuaguaFileSplit;
+import ml.shifu.shifu.container.obj.ColumnConfig;
+import ml.shifu.shifu.container.obj.ColumnType;
+import ml.shifu.shifu.container.obj.ModelConfig;
+import ml.shifu.shifu.container.obj.ModelNormalizeConf.NormType;
+import ml.shifu.shifu.container.obj.RawSourceData.SourceType;
+import ml.shifu.shifu.core.dtrain.NormFields;
+import ml.shifu.shifu.util.Base64Utils;
+import ml.shifu.shifu.util.CommonUtils;
+import ml.shifu.shifu.util.MapReduceUtils;
+
+public class GuaguaNormCacheRecordReaderTest {
+
+    private static final String MODEL_SET = "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/";
+
+    private static final String DELIMITER = "|";
+
+    /**
+     * Delimiter in worker properties is base64 encoded
+     */
+    private static final String ENCODED_DELIMITER = Base64Utils.base64Encode(DELIMITER);
+
+    private static final String CONFIG_KEY = "config";
+
+    private File tmpDir;
+
+    private File cacheDir;
+
+    private GuaguaFileSplit split;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        this.tmpDir = new File("tmp/norm-cache-test");
+        FileUtils.deleteQuietly(this.tmpDir);
+        this.cacheDir = new File(this.tmpDir, "cache");
+        this.cacheDir.mkdirs();
+
+        Random random = new Random(5L);
+        List<String> lines = new ArrayList<String>();
+        for(int r = 0; r < 200; r++) {
+            StringBuilder sb = new StringBuilder().append(random.nextInt(2));
+            for(int i = 0; i < 6; i++) {
+                sb.append(DELIMITER);
+                int type = random.nextInt(20);
+                // missing and invalid values are parsed the same as text reader
+                sb.append(type == 0 ? "" : (type == 1 ? "abc" : String.valueOf(random.nextGaussian())));
+            }
+            lines.add(sb.toString());
+        }
+        File data = new File(this.tmpDir, "part-00000");
+        FileUtils.writeLines(data, "UTF-8", lines);
+        this.split = new GuaguaFileSplit(data.getAbsolutePath(), 0L, data.length());
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        FileUtils.deleteQuietly(this.tmpDir);
+    }
+
+    @Test
+    public void testReadFromCacheSameAsText() throws IOException {
+        List<NormFields> expected = readText();
+
+        // first read parses text and writes cache
+        Assert.assertFalse(readCache(expected, CONFIG_KEY, -1));
+        Assert.assertEquals(cacheFiles().length, 1);
+
+        // second read is from cache with empty text value
+        Assert.assertTrue(readCache(expected, CONFIG_KEY, -1));
+        Assert.assertEquals(cacheFiles().length, 1);
+    }
+
+    @Test
+    public void testIncompleteCacheNotCommitted() throws IOException {
+        List<NormFields> expected = readText();
+
+        // split is not fully read, tmp cache is deleted in close
+        Assert.assertFalse(readCache(expected, CONFIG_KEY, 50));
+        Assert.assertEquals(cacheFiles().length, 0);
+
+        Assert.assertFalse(readCache(expected, CONFIG_KEY, -1));
+        Assert.assertTrue(readCache(expected, CONFIG_KEY, -1));
+    }
+
+    @Test
+    public void testTruncatedCacheFallbackToText() throws IOException {
+        List<NormFields> expected = readText();
+        Assert.assertFalse(readCache(expected, CONFIG_KEY, -1));
+        File cache = cacheFiles()[0];
+        long length = cache.length();
+
+        File crc = new File(this.cacheDir, "." + cache.getName() + ".crc");
+        for(boolean hasCrc: new boolean[] { true, false }) {
+            for(long truncated: new long[] { length - 1, length / 2, 4 }) {
+                RandomAccessFile file = new RandomAccessFile(cache, "rw");
+                try {
+                    file.setLength(truncated);
+                } finally {
+                    file.close();
+                }
+                if(!hasCrc) {
+                    // checksum error of local file system is not hit, truncated cache is found by trailer
+                    Assert.assertTrue(crc.delete());
+                }
+                // truncated cache is replaced by a complete one
+                Assert.assertFalse(readCache(expected, CONFIG_KEY, -1));
+                Assert.assertEquals(cache.length(), length);
+                Assert.assertTrue(readCache(expected, CONFIG_KEY, -1));
+            }
+        }
+    }
+
+    @Test
+    public void testCacheInvalidWithNewConfigKey() throws IOException {
+        List<NormFields> expected = readText();
+        Assert.assertFalse(readCache(expected, CONFIG_KEY, -1));
+        Assert.assertTrue(readCache(expected, CONFIG_KEY, -1));
+
+        Assert.assertFalse(readCache(expected, CONFIG_KEY + "-new", -1));
+        Assert.assertTrue(readCache(expected, CONFIG_KEY + "-new", -1));
+        Assert.assertEquals(cacheFiles().length, 2);
+    }
+
+    @Test
+    public void testConfigKey() throws IOException {
+        ModelConfig modelConfig = CommonUtils.loadModelConfig(MODEL_SET + "ModelConfig.json", SourceType.LOCAL);
+        List<ColumnConfig> columnConfigList = CommonUtils.loadColumnConfigList(MODEL_SET + "ColumnConfig.json",
+                SourceType.LOCAL);
+        String key = GuaguaNormCacheRecordReader.configKey(modelConfig, columnConfigList);
+        Assert.assertEquals(GuaguaNormCacheRecordReader.configKey(modelConfig, columnConfigList), key);
+
+        // training settings don't change normalized data
+        modelConfig.getTrain().setNumTrainEpochs(modelConfig.getTrain().getNumTrainEpochs() + 1);
+        Assert.assertEquals(GuaguaNormCacheRecordReader.configKey(modelConfig, columnConfigList), key);
+
+        modelConfig.getNormalize().setNormType(NormType.WOE);
+        String normKey = GuaguaNormCacheRecordReader.configKey(modelConfig, columnConfigList);
+        Assert.assertNotEquals(normKey, key);
+
+        columnConfigList.get(2).setColumnType(ColumnType.C);
+        Assert.assertNotEquals(GuaguaNormCacheRecordReader.configKey(modelConfig, columnConfigList), normKey);
+    }
+
+    private List<NormFields> readText() throws IOException {
+        String normDelimiter = MapReduceUtils.getShifuOutputDelimiter(ENCODED_DELIMITER);
+        List<NormFields> records = new ArrayList<NormFields>();
+        GuaguaLineRecordReader reader = new GuaguaLineRecordReader(this.split);
+        try {
+            while(reader.nextKeyValue()) {
+                records.add(new NormFields().reset(reader.getCurrentValue().getWritable().toString(), normDelimiter));
+            }
+        } finally {
+            reader.close();
+        }
+        return records;
+    }
+
+    /**
+     * Read at most limit records (all for -1) and check fields, returns if records are read from cache.
+     */
+    private boolean readCache(List<NormFields> expected, String configKey, int limit) throws IOException {
+        GuaguaNormCacheRecordReader reader = new GuaguaNormCacheRecordReader(this.split,
+                this.cacheDir.getAbsolutePath(), ENCODED_DELIMITER, configKey);
+        boolean isFromCache = true;
+        int count = 0;
+        try {
+            while((limit < 0 || count < limit) && reader.nextKeyValue()) {
+                Assert.assertEquals(reader.getCurrentKey().getWritable().get(), (long) count);
+                isFromCache &= reader.getCurrentValue().getWritable().getLength() == 0;
+                NormFields fields = reader.getCurrentFields();
+                NormFields text = expected.get(count);
+                Assert.assertEquals(fields.size(), text.size());
+                for(int i = 0; i < text.size(); i++) {
+                    Assert.assertEquals(fields.getFloat(i, 0f), text.getFloat(i, 0f));
+                    Assert.assertEquals(fields.getFloat(i, 1f), text.getFloat(i, 1f));
+                    Assert.assertEquals(fields.getDouble(i, 1d), (double) text.getFloat(i, 1f));
+                }
+                count += 1;
+            }
+        } finally {
+            reader.close();
+        }
+        if(limit < 0) {
+            Assert.assertEquals(count, expected.size());
+        }
+        return isFromCache;
+    }
+
+    private File[] cacheFiles() {
+        // hidden crc files of local file system are ignored
+        return this.cacheDir.listFiles((dir, name) -> !name.startsWith("."));
+    }
+
+}
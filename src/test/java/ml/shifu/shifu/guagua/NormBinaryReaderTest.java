@@ -0,0 +1,129 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.guagua;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class NormBinaryReaderTest {
+
+    private static final String[] NAMES = { "tag", "weight", "bin", "onehot", "zscore" };
+
+    private static float[][] randomRows(int size) {
+        Random random = new Random(7L);
+        float[][] rows = new float[size][];
+        for(int i = 0; i < size; i++) {
+            rows[i] = new float[] { random.nextInt(2), i % 97 == 0 ? Float.NaN : 1f, random.nextInt(1000),
+                    random.nextInt(2) - 128, (float) random.nextGaussian() };
+        }
+        return rows;
+    }
+
+    private static byte[] write(float[][] rows, int blockValues) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NormBinaryWriter writer = new NormBinaryWriter(out, NAMES, blockValues);
+        for(float[] row: rows) {
+            writer.write(row);
+        }
+        writer.close();
+        return out.toByteArray();
+    }
+
+    private static List<float[]> read(byte[] data, long start, long length) throws IOException {
+        List<float[]> rows = new ArrayList<float[]>();
+        NormBinaryReader reader = new NormBinaryReader(new ByteArrayInputStream(data), start, length);
+        try {
+            Assert.assertEquals(Arrays.asList(reader.getColumnNames()), Arrays.asList(NAMES));
+            float[] row = new float[NAMES.length];
+            while(reader.next(row)) {
+                rows.add(row.clone());
+            }
+        } finally {
+            reader.close();
+        }
+        return rows;
+    }
+
+    private static void assertRows(List<float[]> actual, float[][] expected) {
+        Assert.assertEquals(actual.size(), expected.length);
+        for(int i = 0; i < expected.length; i++) {
+            for(int j = 0; j < NAMES.length; j++) {
+                Assert.assertEquals(Float.floatToIntBits(actual.get(i)[j]), Float.floatToIntBits(expected[i][j]),
+                        "row " + i + " column " + j);
+            }
+        }
+    }
+
+    @Test
+    public void testWholeFile() throws IOException {
+        float[][] rows = randomRows(1000);
+        byte[] data = write(rows, 200);
+        assertRows(read(data, 0L, data.length), rows);
+    }
+
+    @Test
+    public void testNarrowColumns() throws IOException {
+        float[][] rows = randomRows(1000);
+        // tag, bin and one-hot columns are stored in byte or short instead of float
+        Assert.assertTrue(write(rows, 5000).length < 1000 * 4 * NAMES.length * 2 / 3);
+    }
+
+    @Test
+    public void testSplits() throws IOException {
+        float[][] rows = randomRows(3000);
+        byte[] data = write(rows, 300);
+        Random random = new Random(11L);
+        for(int i = 0; i < 50; i++) {
+            List<float[]> all = new ArrayList<float[]>();
+            long start = 0L;
+            while(start < data.length) {
+                long length = Math.min(data.length - start, 1 + random.nextInt(data.length / 3));
+                all.addAll(read(data, start, length));
+                start += length;
+            }
+            assertRows(all, rows);
+        }
+    }
+
+    @Test
+    public void testEmptySplit() throws IOException {
+        byte[] data = write(randomRows(10), 1000);
+        Assert.assertTrue(read(data, data.length - 1, 1L).isEmpty());
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testInvalidData() throws IOException {
+        byte[] data = "0.1|0.2|0.3\n".getBytes("UTF-8");
+        read(data, 0L, data.length);
+    }
+
+    @Test
+    public void testIsBinaryNormFile() throws IOException {
+        Assert.assertTrue(NormBinaryReader.isBinaryNormFile(new ByteArrayInputStream(write(randomRows(10), 1000))));
+        Assert.assertFalse(NormBinaryReader.isBinaryNormFile(new ByteArrayInputStream("0.1|0.2|0.3\n"
+                .getBytes("UTF-8"))));
+        Assert.assertFalse(NormBinaryReader.isBinaryNormFile(new ByteArrayInputStream(new byte[] { 'S', 'H' })));
+    }
+
+}
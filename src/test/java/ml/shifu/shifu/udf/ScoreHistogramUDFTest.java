@@ -0,0 +1,131 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.udf;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.pig.data.BagFactory;
+import org.apache.pig.data.DataBag;
+import org.apache.pig.data.Tuple;
+import org.apache.pig.data.TupleFactory;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * ScoreHistogramUDFTest class
+ */
+public class ScoreHistogramUDFTest {
+
+    private static final String[] ARGS = { "LOCAL",
+            "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/ModelConfig.json",
+            "src/test/resources/example/cancer-judgement/ModelStore/ModelSet1/ColumnConfig.json", "EvalA", "1000",
+            "100" };
+
+    private ScoreHistogramUDF instance;
+
+    private ScoreHistogramUDF.Initial initial;
+
+    private ScoreHistogramUDF.Intermed intermed;
+
+    private ScoreHistogramUDF.Final last;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        instance = new ScoreHistogramUDF(ARGS[0], ARGS[1], ARGS[2], ARGS[3], ARGS[4], ARGS[5]);
+        initial = new ScoreHistogramUDF.Initial(ARGS[0], ARGS[1], ARGS[2], ARGS[3], ARGS[4], ARGS[5]);
+        intermed = new ScoreHistogramUDF.Intermed(ARGS[0], ARGS[1], ARGS[2], ARGS[3], ARGS[4], ARGS[5]);
+        last = new ScoreHistogramUDF.Final(ARGS[0], ARGS[1], ARGS[2], ARGS[3], ARGS[4], ARGS[5]);
+    }
+
+    private static Tuple record(String tag, String weight, Object score) {
+        Tuple tuple = TupleFactory.getInstance().newTuple(3);
+        try {
+            tuple.set(0, tag);
+            tuple.set(1, weight);
+            tuple.set(2, score);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return tuple;
+    }
+
+    private static Tuple wrap(DataBag bag) {
+        return TupleFactory.getInstance().newTuple(bag);
+    }
+
+    private static Map<Integer, Tuple> toMap(DataBag bag) throws IOException {
+        Map<Integer, Tuple> buckets = new HashMap<Integer, Tuple>();
+        for(Tuple tuple: bag) {
+            buckets.put((Integer) tuple.get(0), tuple);
+        }
+        return buckets;
+    }
+
+    @Test
+    public void testInvalidRecords() throws IOException {
+        DataBag records = BagFactory.getInstance().newDefaultBag();
+        records.add(record("X", "1.0", 500d));
+        records.add(record("", "1.0", 500d));
+        records.add(record("M", "1.0", "abc"));
+        records.add(record("M", "abc", 505d));
+        records.add(record("B", "-2", 509d));
+
+        Map<Integer, Tuple> buckets = toMap(instance.exec(wrap(records)));
+        Assert.assertEquals(buckets.size(), 1);
+        Tuple bucket = buckets.get(50);
+        Assert.assertEquals(bucket.get(1), 1L);
+        Assert.assertEquals(bucket.get(2), 1L);
+        Assert.assertEquals(bucket.get(3), 1d);
+        Assert.assertEquals(bucket.get(4), 1d);
+    }
+
+    @Test
+    public void testAlgebraicSameAsExec() throws IOException {
+        Random random = new Random(7L);
+        DataBag all = BagFactory.getInstance().newDefaultBag();
+        DataBag[] mappers = { BagFactory.getInstance().newDefaultBag(), BagFactory.getInstance().newDefaultBag() };
+        for(int i = 0; i < 2000; i++) {
+            Tuple record = record(random.nextInt(3) == 0 ? "M" : "B", Integer.toString(1 + random.nextInt(3)),
+                    random.nextDouble() * 1000d);
+            all.add(record);
+
+            DataBag single = BagFactory.getInstance().newDefaultBag();
+            single.add(record);
+            mappers[i % mappers.length].add(initial.exec(wrap(single)));
+        }
+
+        DataBag combined = BagFactory.getInstance().newDefaultBag();
+        for(DataBag mapper: mappers) {
+            combined.add(intermed.exec(wrap(mapper)));
+        }
+        Map<Integer, Tuple> expected = toMap(instance.exec(wrap(all)));
+        Map<Integer, Tuple> actual = toMap(last.exec(wrap(combined)));
+
+        Assert.assertEquals(actual.size(), expected.size());
+        for(Map.Entry<Integer, Tuple> entry: expected.entrySet()) {
+            Tuple bucket = actual.get(entry.getKey());
+            Assert.assertEquals(bucket.get(1), entry.getValue().get(1));
+            Assert.assertEquals(bucket.get(2), entry.getValue().get(2));
+            Assert.assertEquals((Double) bucket.get(3), (Double) entry.getValue().get(3), 1e-9);
+            Assert.assertEquals((Double) bucket.get(4), (Double) entry.getValue().get(4), 1e-9);
+        }
+    }
+
+}
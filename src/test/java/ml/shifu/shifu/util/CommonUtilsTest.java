@@ -458,6 +458,79 @@ public class CommonUtilsTest {
 
     }
 
+    @Test
+    public void binIndexArrayTest() {
+        ColumnConfig config = new ColumnConfig();
+        config.setColumnType(ColumnType.N);
+        config.setBinBoundary(Arrays.asList(Double.NEGATIVE_INFINITY, -1d, 0d, 0.00351, 0.0642, 5d));
+        double[] binBoundary = config.getBinBoundaryArray();
+        Assert.assertTrue(config.getBinBoundaryArray() == binBoundary);
+
+        for(double value: new double[] { Double.NEGATIVE_INFINITY, -2d, -1d, -0d, 0d, 0.00350, 0.00351, 0.0642, 5d,
+                Double.POSITIVE_INFINITY, Double.NaN }) {
+            Assert.assertEquals(BinUtils.getBinIndex(binBoundary, value),
+                    BinUtils.getBinIndex(config.getBinBoundary(), value));
+        }
+        Assert.assertEquals(BinUtils.getBinNum(config, "0.01"), 3);
+        Assert.assertEquals(BinUtils.getBinNum(config, "abc"), -1);
+
+        // array is rebuilt after boundaries are reset
+        config.setBinBoundary(Arrays.asList(Double.NEGATIVE_INFINITY, 1d));
+        Assert.assertEquals(config.getBinBoundaryArray().length, 2);
+        Assert.assertEquals(BinUtils.getBinNum(config, "2"), 1);
+    }
+
+    @Test
+    public void categoricalBinIndexTest() {
+        ColumnConfig config = new ColumnConfig();
+        config.setColumnType(ColumnType.C);
+        config.setBinCategory(Arrays.asList("cn", "us@^uk@^jp", "", "fr"));
+
+        Assert.assertEquals(BinUtils.getBinNum(config, "cn"), 0);
+        Assert.assertEquals(BinUtils.getBinNum(config, "uk"), 1);
+        Assert.assertEquals(BinUtils.getBinNum(config, "jp"), 1);
+        Assert.assertEquals(BinUtils.getBinNum(config, "us@^uk@^jp"), 1);
+        Assert.assertEquals(BinUtils.getBinNum(config, "fr"), 3);
+        Assert.assertEquals(BinUtils.getBinNum(config, "u"), -1);
+        Assert.assertEquals(BinUtils.getBinNum(config, " "), -1);
+        Assert.assertEquals(BinUtils.getBinNum(config, null), -1);
+
+        Assert.assertTrue(BinUtils.isCategoricalBinValue("us@^uk@^jp", "us"));
+        Assert.assertTrue(BinUtils.isCategoricalBinValue("us@^uk@^jp", "jp"));
+        Assert.assertFalse(BinUtils.isCategoricalBinValue("us@^uk@^jp", "u"));
+        Assert.assertFalse(BinUtils.isCategoricalBinValue("us@^uk@^jp", "uk@^jp"));
+        Assert.assertTrue(BinUtils.isCategoricalBinValue("us@^", ""));
+        Assert.assertFalse(BinUtils.isCategoricalBinValue(" ", ""));
+
+        // map is rebuilt after categories are reset
+        config.setBinCategory(Arrays.asList("fr", "cn"));
+        Assert.assertEquals(BinUtils.getBinNum(config, "cn"), 1);
+        Assert.assertEquals(BinUtils.getBinNum(config, "uk"), -1);
+    }
+
+    @Test
+    public void testDuplicateCategoryBinIndex() {
+        ColumnConfig config = new ColumnConfig();
+        config.setColumnType(ColumnType.C);
+        // duplicate values keep the first bin like the linear scan of bin categories
+        config.setBinCategory(Arrays.asList("us", "uk@^jp", "us", "jp", "cn@^uk"));
+        Assert.assertEquals(BinUtils.getBinNum(config, "us"), 0);
+        Assert.assertEquals(BinUtils.getBinNum(config, "uk"), 1);
+        Assert.assertEquals(BinUtils.getBinNum(config, "jp"), 1);
+        Assert.assertEquals(BinUtils.getBinNum(config, "cn"), 4);
+        for(String value: Arrays.asList("us", "uk", "jp", "cn", "fr")) {
+            int expected = -1;
+            List<String> categories = config.getBinCategory();
+            for(int i = 0; i < categories.size(); i++) {
+                if(BinUtils.isCategoricalBinValue(categories.get(i), value)) {
+                    expected = i;
+                    break;
+                }
+            }
+            Assert.assertEquals(BinUtils.getBinNum(config, value), expected);
+        }
+    }
+
     @Test
     public void trimNumber() {
         Assert.assertEquals(CommonUtils.trimTag("1000"), "1000");
@@ -0,0 +1,87 @@
+/*
+ * Copyright [2013-2019] PayPal Software Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ml.shifu.shifu.util;
+
+import java.text.DecimalFormat;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class NumberCodecTest {
+
+    private static final double[] VALUES = { 0d, -0d, 0.5d, -0.5d, 1d, -5d, 1e-7, -1e-7, 5e-7, 1.5e-6, 2.5e-6,
+            9.9999995d, 122.0703125d, 0.1234565d, 999999.9999995d, 123456789.123456789d, 1e20, 9.999999999999999E22,
+            Double.MIN_VALUE, Double.MAX_VALUE, Double.NaN };
+
+    @Test
+    public void testFormatSameAsDecimalFormat() {
+        DecimalFormat format = new DecimalFormat("#.######");
+        for(double value: VALUES) {
+            Assert.assertEquals(NumberCodec.formatDecimal(value, 6), format.format(value), "" + value);
+        }
+
+        Random random = new Random(7L);
+        for(int i = 0; i < 100000; i++) {
+            double value = i % 2 == 0 ? (random.nextDouble() - 0.5d) * 2e6 : random.nextGaussian();
+            Assert.assertEquals(NumberCodec.formatDecimal(value, 6), format.format(value), "" + value);
+            // values exactly on or close to half of last digit
+            value = Math.round(value * 1e6) / 1e6 + 5e-7;
+            Assert.assertEquals(NumberCodec.formatDecimal(value, 6), format.format(value), "" + value);
+        }
+
+        Assert.assertEquals(NumberCodec.formatDecimal(0.123456789d, 3), "0.123");
+        Assert.assertEquals(NumberCodec.appendDecimal(new StringBuilder("a,"), 1.05d, 9).toString(), "a,1.05");
+    }
+
+    @Test
+    public void testParseSameAsJdk() {
+        String[] inputs = { "0", "-0", "-0.0", "+1", ".5", "5.", "0.1", "00012.5000", "-1.25", "16777217",
+                "16777219", "0.000000000000000000000001", "3.4028236e38", "1e3", "NaN", "-Infinity", " 1.5 ",
+                "123456789012345678901234567890", "0.1f" };
+        for(String input: inputs) {
+            Assert.assertEquals(Float.floatToIntBits(NumberCodec.parseFloat(input, 0, input.length())),
+                    Float.floatToIntBits(Float.parseFloat(input)), input);
+            Assert.assertEquals(Double.doubleToLongBits(NumberCodec.parseDouble(input, 0, input.length())),
+                    Double.doubleToLongBits(Double.parseDouble(input)), input);
+        }
+
+        Random random = new Random(7L);
+        for(int i = 0; i < 100000; i++) {
+            String input = i % 2 == 0 ? Double.toString(random.nextGaussian())
+                    : NumberCodec.formatDecimal((random.nextDouble() - 0.5d) * 2e6, 6);
+            Assert.assertEquals(Float.floatToIntBits(NumberCodec.parseFloat(input, 0, input.length())),
+                    Float.floatToIntBits(Float.parseFloat(input)), input);
+            Assert.assertEquals(Double.doubleToLongBits(NumberCodec.parseDouble(input, 0, input.length())),
+                    Double.doubleToLongBits(Double.parseDouble(input)), input);
+        }
+    }
+
+    @Test
+    public void testParseRange() {
+        String line = "a|-1.5||x";
+        Assert.assertEquals(NumberCodec.parseFloat(line, 2, 6), -1.5f);
+        Assert.assertEquals(NumberCodec.parseDouble(line, 2, 6), -1.5d);
+        Assert.assertEquals(NumberCodec.parseFloat(line, 7, 7, 2f), 2f);
+        Assert.assertEquals(NumberCodec.parseDouble(line, 8, 9, 2d), 2d);
+    }
+
+    @Test(expectedExceptions = NumberFormatException.class)
+    public void testParseInvalid() {
+        NumberCodec.parseFloat("1.2.3", 0, 5);
+    }
+
+}